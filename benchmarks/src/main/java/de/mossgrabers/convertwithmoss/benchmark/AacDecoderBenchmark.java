@@ -0,0 +1,81 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.file.aac.AacDecoder;
+import de.mossgrabers.convertwithmoss.file.aac.AacEncoder;
+
+
+/**
+ * Measures the decoding of 10 seconds of stereo audio in the AAC-LC format. The packets are
+ * created with the AAC encoder in the setup.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AacDecoderBenchmark
+{
+    private static final int FRAME_LENGTH = 1024;
+
+    private List<byte []>    packets;
+    private AacDecoder       decoder;
+    private byte []          output;
+
+
+    /**
+     * Encode the input signal.
+     *
+     * @throws IOException Could not encode
+     */
+    @Setup
+    public void setup () throws IOException
+    {
+        final int numberOfFrames = 10 * SyntheticSignals.SAMPLE_RATE;
+        final byte [] pcm = SyntheticSignals.createInterleavedPCM (2, numberOfFrames, 16);
+
+        final AacEncoder encoder = new AacEncoder (SyntheticSignals.SAMPLE_RATE, 2);
+        this.packets = encoder.encode (pcm, 0, numberOfFrames);
+
+        this.decoder = new AacDecoder (encoder.getMagicCookie ());
+        this.output = new byte [FRAME_LENGTH * 2 * 2];
+    }
+
+
+    /**
+     * Decode all packets, starting from a reset decoder like a new file.
+     *
+     * @return The number of decoded frames
+     * @throws IOException A packet is malformed
+     */
+    @Benchmark
+    public int decode () throws IOException
+    {
+        this.decoder.reset ();
+        int numberOfFrames = 0;
+        for (final byte [] packet: this.packets)
+            numberOfFrames += this.decoder.decodePacket (packet, 0, packet.length, this.output, 0);
+        return numberOfFrames;
+    }
+}
@@ -0,0 +1,137 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import de.mossgrabers.convertwithmoss.file.StreamUtils;
+import de.mossgrabers.convertwithmoss.format.ableton.AbletonDetector;
+import de.mossgrabers.tools.XMLUtils;
+
+
+/**
+ * Measures reading a large Ableton rack preset: a rack with 2000 effect devices (each with 40
+ * parameters) and 4 Sampler devices with 64 zones each, about 18MB of uncompressed XML. The
+ * complete document is parsed into a DOM from its text as well as read as a stream which keeps
+ * only the Sampler devices. Run it with <i>-prof gc</i> to compare the allocated memory as well.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class AbletonRackReadBenchmark
+{
+    private static final int NUMBER_OF_DEVICES    = 2000;
+    private static final int NUMBER_OF_PARAMETERS = 40;
+    private static final int NUMBER_OF_SAMPLERS   = 4;
+    private static final int NUMBER_OF_ZONES      = 64;
+
+    private byte []          compressedPreset;
+
+
+    /**
+     * Create the compressed preset.
+     *
+     * @throws IOException Could not create the preset
+     */
+    @Setup
+    public void setup () throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        try (final Writer writer = new OutputStreamWriter (new GZIPOutputStream (out), StandardCharsets.UTF_8))
+        {
+            writer.write ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Ableton MajorVersion=\"5\" Creator=\"Ableton Live 12.0\">\n<GroupDevicePreset>\n");
+            writer.write ("<LastPresetRef><Value><AbletonDefaultPresetRef><FileRef><RelativePathType Value=\"1\" /><RelativePath Value=\"\" /></FileRef></AbletonDefaultPresetRef></Value></LastPresetRef>\n");
+            writer.write ("<Device><InstrumentGroupDevice><Branches>\n");
+            for (int i = 0; i < NUMBER_OF_DEVICES; i++)
+            {
+                writer.write ("<InstrumentBranchPreset><DevicePresets><AudioEffectPreset Id=\"" + i + "\"><Device><AutoFilter>\n");
+                for (int p = 0; p < NUMBER_OF_PARAMETERS; p++)
+                    writer.write ("<Parameter" + p + "><LomId Value=\"0\" /><Manual Value=\"" + p * 0.25 + "\" /><AutomationTarget Id=\"" + (i * NUMBER_OF_PARAMETERS + p) + "\"><LockEnvelope Value=\"0\" /></AutomationTarget><MidiControllerRange><Min Value=\"0\" /><Max Value=\"1\" /></MidiControllerRange></Parameter" + p + ">\n");
+                writer.write ("</AutoFilter></Device></AudioEffectPreset></DevicePresets></InstrumentBranchPreset>\n");
+                if (i % (NUMBER_OF_DEVICES / NUMBER_OF_SAMPLERS) == 0)
+                    writeSampler (writer);
+            }
+            writer.write ("</Branches></InstrumentGroupDevice></Device>\n</GroupDevicePreset>\n</Ableton>\n");
+        }
+        this.compressedPreset = out.toByteArray ();
+    }
+
+
+    /**
+     * Parse the complete document from its text.
+     *
+     * @return The document
+     * @throws IOException Could not read the document
+     * @throws SAXException Could not parse the document
+     */
+    @Benchmark
+    public Document dom () throws IOException, SAXException
+    {
+        try (final InputStream in = new GZIPInputStream (new ByteArrayInputStream (this.compressedPreset)))
+        {
+            return XMLUtils.parseDocument (new InputSource (new StringReader (StreamUtils.readUtf8 (in))));
+        }
+    }
+
+
+    /**
+     * Read only the Sampler devices from the stream.
+     *
+     * @return The document
+     * @throws IOException Could not read the document
+     */
+    @Benchmark
+    public Document streaming () throws IOException
+    {
+        try (final InputStream in = new GZIPInputStream (new ByteArrayInputStream (this.compressedPreset), 64 * 1024))
+        {
+            return AbletonDetector.readSamplerDocument (in);
+        }
+    }
+
+
+    /**
+     * Write a Sampler device.
+     *
+     * @param writer Where to write to
+     * @throws IOException Could not write
+     */
+    private static void writeSampler (final Writer writer) throws IOException
+    {
+        writer.write ("<InstrumentBranchPreset><DevicePresets><MultiSampler><Player><MultiSampleMap><SampleParts>\n");
+        for (int z = 0; z < NUMBER_OF_ZONES; z++)
+            writer.write ("<MultiSamplePart Id=\"" + z + "\"><Name Value=\"Zone " + z + "\" /><KeyRange><Min Value=\"" + z + "\" /><Max Value=\"" + z + "\" /></KeyRange><RootKey Value=\"" + z + "\" /><SampleRef><FileRef><Path Value=\"Zone" + z + ".wav\" /></FileRef></SampleRef></MultiSamplePart>\n");
+        writer.write ("</SampleParts></MultiSampleMap></Player></MultiSampler></DevicePresets></InstrumentBranchPreset>\n");
+    }
+}
@@ -0,0 +1,91 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.file.alac.AlacDecoder;
+import de.mossgrabers.convertwithmoss.file.alac.AlacEncoder;
+
+
+/**
+ * Measures the decoding of 10 seconds of stereo audio in the Apple Lossless format. The packets
+ * are created with the ALAC encoder in the setup.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlacDecoderBenchmark
+{
+    private static final int   FRAME_LENGTH = 4096;
+
+    @Param(
+    {
+        "16",
+        "24"
+    })
+    private int                bitDepth;
+
+    private final List<byte []> packets     = new ArrayList<> ();
+    private AlacDecoder        decoder;
+    private byte []            output;
+
+
+    /**
+     * Encode the input signal.
+     *
+     * @throws IOException Could not encode
+     */
+    @Setup
+    public void setup () throws IOException
+    {
+        final int numberOfFrames = 10 * SyntheticSignals.SAMPLE_RATE;
+        final int frameSize = 2 * this.bitDepth / 8;
+        final byte [] pcm = SyntheticSignals.createInterleavedPCM (2, numberOfFrames, this.bitDepth);
+
+        final AlacEncoder encoder = new AlacEncoder (this.bitDepth, 2, SyntheticSignals.SAMPLE_RATE, FRAME_LENGTH);
+        for (int frame = 0; frame < numberOfFrames; frame += FRAME_LENGTH)
+            this.packets.add (encoder.encodePacket (pcm, frame * frameSize, Math.min (FRAME_LENGTH, numberOfFrames - frame)));
+
+        this.decoder = new AlacDecoder (encoder.getMagicCookie ());
+        this.output = new byte [FRAME_LENGTH * frameSize];
+    }
+
+
+    /**
+     * Decode all packets.
+     *
+     * @return The number of decoded frames
+     * @throws IOException A packet is malformed
+     */
+    @Benchmark
+    public int decode () throws IOException
+    {
+        int numberOfFrames = 0;
+        for (final byte [] packet: this.packets)
+            numberOfFrames += this.decoder.decodePacket (packet, 0, packet.length, this.output, 0);
+        return numberOfFrames;
+    }
+}
@@ -0,0 +1,188 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.file.aac.AacEncoder;
+import de.mossgrabers.convertwithmoss.file.alac.AlacEncoder;
+import de.mossgrabers.convertwithmoss.file.caf.CafAudioDescriptionChunk;
+import de.mossgrabers.convertwithmoss.file.caf.CafFile;
+
+
+/**
+ * Measures the decoding of 30 seconds of stereo audio in a CAF file which contains Apple Lossless
+ * or AAC packets: one packet after the other against the parallel decoding of the packet ranges on
+ * a pool with the given number of threads. The score is the number of decoded sample frames per
+ * second. The setup checks that the parallel decoding of the whole file and of a range in its
+ * middle is identical to the sequential one.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CafParallelDecodeBenchmark
+{
+    private static final int  NUMBER_OF_FRAMES  = 30 * SyntheticSignals.SAMPLE_RATE;
+    private static final int  ALAC_FRAME_LENGTH = 4096;
+
+    @Param(
+    {
+        "ALAC",
+        "AAC"
+    })
+    private String            format;
+
+    @Param(
+    {
+        "1",
+        "2",
+        "4",
+        "8"
+    })
+    private int               numberOfThreads;
+
+    private CafFile           sequentialFile;
+    private CafFile           parallelFile;
+    private ExecutorService   executor;
+
+
+    /**
+     * Encode the input signal, create the pool of threads and check that both ways decode the
+     * same.
+     *
+     * @throws IOException Could not encode or decode
+     */
+    @Setup
+    public void setup () throws IOException
+    {
+        final byte [] pcm = SyntheticSignals.createInterleavedPCM (2, NUMBER_OF_FRAMES, 16);
+        this.sequentialFile = createCafFile (this.format, pcm);
+        this.parallelFile = createCafFile (this.format, pcm);
+
+        this.executor = Executors.newFixedThreadPool (this.numberOfThreads);
+        this.parallelFile.setParallelDecoding (this.executor, this.numberOfThreads);
+
+        final long start = NUMBER_OF_FRAMES / 3 + 123;
+        final long length = NUMBER_OF_FRAMES / 3;
+        if (!Arrays.equals (decode (this.sequentialFile, 0, NUMBER_OF_FRAMES), decode (this.parallelFile, 0, NUMBER_OF_FRAMES)) || !Arrays.equals (decode (this.sequentialFile, start, length), decode (this.parallelFile, start, length)))
+            throw new IllegalStateException ("The parallel decoding differs from the sequential one.");
+    }
+
+
+    /**
+     * Shut down the pool of threads.
+     */
+    @TearDown
+    public void tearDown ()
+    {
+        this.executor.shutdownNow ();
+    }
+
+
+    /**
+     * Decode one packet after the other.
+     *
+     * @throws IOException Could not decode
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_FRAMES)
+    public void sequential () throws IOException
+    {
+        this.sequentialFile.decodeAudioData (OutputStream.nullOutputStream ());
+    }
+
+
+    /**
+     * Decode the packet ranges on the pool of threads.
+     *
+     * @throws IOException Could not decode
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_FRAMES)
+    public void parallel () throws IOException
+    {
+        this.parallelFile.decodeAudioData (OutputStream.nullOutputStream ());
+    }
+
+
+    private static byte [] decode (final CafFile cafFile, final long startFrame, final long numberOfFrames) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        cafFile.decodeAudioData (out, startFrame, numberOfFrames);
+        return out.toByteArray ();
+    }
+
+
+    private static CafFile createCafFile (final String format, final byte [] pcm) throws IOException
+    {
+        final CafFile cafFile = new CafFile ();
+        final CafAudioDescriptionChunk descriptionChunk = new CafAudioDescriptionChunk ();
+        descriptionChunk.setSampleRate (SyntheticSignals.SAMPLE_RATE);
+        descriptionChunk.setChannelsPerFrame (2);
+        descriptionChunk.setBytesPerPacket (0);
+        descriptionChunk.setBitsPerChannel (0);
+        cafFile.setAudioDescriptionChunk (descriptionChunk);
+
+        final List<byte []> packets;
+        if ("AAC".equals (format))
+        {
+            final AacEncoder encoder = new AacEncoder (SyntheticSignals.SAMPLE_RATE, 2);
+            packets = encoder.encode (pcm, 0, NUMBER_OF_FRAMES);
+            descriptionChunk.setFormatID (CafAudioDescriptionChunk.FORMAT_MPEG4_AAC);
+            descriptionChunk.setFormatFlags (2);
+            descriptionChunk.setFramesPerPacket (AacEncoder.FRAME_LENGTH);
+            cafFile.setMagicCookie (encoder.getMagicCookie ());
+        }
+        else
+        {
+            final AlacEncoder encoder = new AlacEncoder (16, 2, SyntheticSignals.SAMPLE_RATE, ALAC_FRAME_LENGTH);
+            packets = new ArrayList<> ();
+            for (int frame = 0; frame < NUMBER_OF_FRAMES; frame += ALAC_FRAME_LENGTH)
+                packets.add (encoder.encodePacket (pcm, frame * 4, Math.min (ALAC_FRAME_LENGTH, NUMBER_OF_FRAMES - frame)));
+            descriptionChunk.setFormatID (CafAudioDescriptionChunk.FORMAT_APPLE_LOSSLESS);
+            descriptionChunk.setFormatFlags (1);
+            descriptionChunk.setFramesPerPacket (ALAC_FRAME_LENGTH);
+            cafFile.setMagicCookie (encoder.getMagicCookie ());
+        }
+
+        final ByteArrayOutputStream audioData = new ByteArrayOutputStream ();
+        final int [] packetSizes = new int [packets.size ()];
+        for (int i = 0; i < packetSizes.length; i++)
+        {
+            audioData.write (packets.get (i));
+            packetSizes[i] = packets.get (i).length;
+        }
+        cafFile.setPacketTable (packetSizes, NUMBER_OF_FRAMES, "AAC".equals (format) ? AacEncoder.PRIMING_FRAMES : 0);
+        cafFile.setAudioData (audioData.toByteArray ());
+        return cafFile;
+    }
+}
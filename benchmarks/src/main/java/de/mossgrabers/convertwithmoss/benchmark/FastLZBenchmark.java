@@ -0,0 +1,102 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.file.FastLZ;
+
+
+/**
+ * Measures the FastLZ compression and de-compression of 1MB of data which resembles the NI
+ * container sub trees: repeating structured text mixed with some audio.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastLZBenchmark
+{
+    private static final int DATA_SIZE = 1024 * 1024;
+
+    private byte []          data;
+    private byte []          compressed;
+    private int              compressedLength;
+    private byte []          compressBuffer;
+    private byte []          uncompressBuffer;
+
+
+    /**
+     * Create the data and its compressed form.
+     */
+    @Setup
+    public void setup ()
+    {
+        this.data = new byte [DATA_SIZE];
+        final byte [] audio = SyntheticSignals.createInterleavedPCM (2, DATA_SIZE / 4, 16);
+        int position = 0;
+        int index = 0;
+        while (position < DATA_SIZE)
+        {
+            // Alternate between a structured text block and a block of audio
+            final byte [] block;
+            if (index % 2 == 0)
+                block = ("<zone index=\"" + index + "\" keyLow=\"" + index % 128 + "\" keyHigh=\"" + (index + 2) % 128 + "\" velocityLow=\"1\" velocityHigh=\"127\" gain=\"0.0\"/>\n").repeat (8).getBytes (StandardCharsets.US_ASCII);
+            else
+                block = audio;
+            final int length = Math.min (Math.min (block.length, 4096), DATA_SIZE - position);
+            System.arraycopy (block, index * 4096 % (block.length - length + 1), this.data, position, length);
+            position += length;
+            index++;
+        }
+
+        this.compressBuffer = new byte [FastLZ.getMaxCompressedLength (DATA_SIZE)];
+        this.compressed = FastLZ.compress (this.data);
+        this.compressedLength = this.compressed.length;
+        this.uncompressBuffer = new byte [DATA_SIZE];
+    }
+
+
+    /**
+     * Compress the data into a re-used buffer.
+     *
+     * @return The length of the compressed data
+     */
+    @Benchmark
+    public int compress ()
+    {
+        return FastLZ.compress (this.data, 0, DATA_SIZE, this.compressBuffer, 0);
+    }
+
+
+    /**
+     * Uncompress the data into a re-used buffer.
+     *
+     * @return The length of the uncompressed data
+     * @throws IOException The compressed data is malformed
+     */
+    @Benchmark
+    public int uncompress () throws IOException
+    {
+        return FastLZ.uncompress (this.compressed, 0, this.compressedLength, this.uncompressBuffer, 0, DATA_SIZE);
+    }
+}
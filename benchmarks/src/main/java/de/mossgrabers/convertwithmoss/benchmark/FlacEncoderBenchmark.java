@@ -0,0 +1,69 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.file.flac.FlacEncoder;
+
+
+/**
+ * Measures the FLAC encoding of 10 seconds of stereo audio.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlacEncoderBenchmark
+{
+    @Param(
+    {
+        "16",
+        "24"
+    })
+    private int       bitsPerSample;
+
+    private int [] [] channels;
+
+
+    /**
+     * Create the input signal.
+     */
+    @Setup
+    public void setup ()
+    {
+        this.channels = SyntheticSignals.createChannels (2, 10 * SyntheticSignals.SAMPLE_RATE, this.bitsPerSample);
+    }
+
+
+    /**
+     * Encode the signal.
+     *
+     * @return The FLAC stream
+     * @throws IOException Could not encode
+     */
+    @Benchmark
+    public byte [] encode () throws IOException
+    {
+        return FlacEncoder.encode (this.channels, SyntheticSignals.SAMPLE_RATE, this.bitsPerSample);
+    }
+}
@@ -0,0 +1,233 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.core.FormatDescriptor;
+import de.mossgrabers.convertwithmoss.core.FormatRegistry;
+import de.mossgrabers.convertwithmoss.core.INotifier;
+import de.mossgrabers.convertwithmoss.core.detector.IDetector;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
+
+
+/**
+ * Measures the automatic detection of the source format: 1000 source files of 10 different
+ * formats, among them formats which share their file ending with others, are offered to the
+ * detectors of all formats in the same way as the automatic detection does it. The headers of the
+ * files are created in memory, which excludes the disk from the measurement.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatProbeBenchmark
+{
+    private static final int         FILES_PER_FORMAT = 100;
+
+    private final List<IDetector<?>> detectors        = new ArrayList<> ();
+    private final List<String []>    detectorEndings  = new ArrayList<> ();
+    private final List<File>         files            = new ArrayList<> ();
+    private final List<byte []>      headers          = new ArrayList<> ();
+
+
+    /**
+     * Create the detectors and the files.
+     */
+    @Setup
+    public void setup ()
+    {
+        final INotifier notifier = new SilentNotifier ();
+        for (final FormatDescriptor<IDetector<?>> descriptor: FormatRegistry.getDetectors ())
+        {
+            final IDetector<?> detector = descriptor.create (notifier);
+            this.detectors.add (detector);
+            this.detectorEndings.add (detector.getFileEndings (false));
+        }
+
+        final byte [] mpc1000Header = new byte [64];
+        System.arraycopy ("MPC1000 PGM 1.00".getBytes (StandardCharsets.US_ASCII), 0, mpc1000Header, 4, 16);
+        final byte [] mpc2000Header = new byte [64];
+        mpc2000Header[0] = 0x07;
+        mpc2000Header[1] = 0x04;
+
+        for (int i = 0; i < FILES_PER_FORMAT; i++)
+        {
+            this.add ("Piano " + i + ".sfz", text ("<group> ampeg_release=0.5\n<region> sample=Piano_C4.wav key=60\n"));
+            this.add ("Strings " + i + ".sf2", riffHeader ("sfbk"));
+            this.add ("Drums " + i + ".dls", riffHeader ("DLS "));
+            this.add ("Kit " + i + ".pgm", mpc1000Header);
+            this.add ("PROG" + i + ".PGM", mpc2000Header);
+            this.add ("SYNT" + i + ".XML", text ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<sound firmwareVersion=\"4.1.0\">\n<osc1 type=\"sample\"/>\n</sound>\n"));
+            this.add ("Preset " + i + File.separator + "preset.xml", text ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<document version=\"2\">\n<session version=\"2\"/>\n</document>\n"));
+            this.add ("Pad " + i + ".exs", new byte [256]);
+            this.add ("Lead " + i + ".nki", new byte [256]);
+            this.add ("Bass " + i + ".multisample", new byte [256]);
+        }
+    }
+
+
+    /**
+     * Offer all files to all detectors.
+     *
+     * @return The number of files which were claimed by exactly one format
+     */
+    @Benchmark
+    public int probe ()
+    {
+        int claimed = 0;
+        for (int i = 0; i < this.files.size (); i++)
+        {
+            final File file = this.files.get (i);
+            final byte [] header = this.headers.get (i);
+
+            int fileEndingMatches = 0;
+            boolean hasSignature = false;
+            for (int d = 0; d < this.detectors.size (); d++)
+            {
+                final ProbeResult result = this.detectors.get (d).probe (file, header, this.detectorEndings.get (d), false);
+                if (result == ProbeResult.SIGNATURE)
+                {
+                    hasSignature = true;
+                    break;
+                }
+                if (result == ProbeResult.FILE_ENDING)
+                    fileEndingMatches++;
+            }
+            if (hasSignature || fileEndingMatches == 1)
+                claimed++;
+        }
+        return claimed;
+    }
+
+
+    /**
+     * Add a file.
+     *
+     * @param filename The name of the file, it does not exist
+     * @param header The first bytes of the file
+     */
+    private void add (final String filename, final byte [] header)
+    {
+        this.files.add (new File (filename));
+        this.headers.add (header);
+    }
+
+
+    /**
+     * Create the header of a text file.
+     *
+     * @param content The text
+     * @return The UTF-8 encoded text
+     */
+    private static byte [] text (final String content)
+    {
+        return content.getBytes (StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Create the header of a RIFF file.
+     *
+     * @param formType The form type of the RIFF chunk
+     * @return The header
+     */
+    private static byte [] riffHeader (final String formType)
+    {
+        final byte [] header = Arrays.copyOf ("RIFF".getBytes (StandardCharsets.US_ASCII), 64);
+        System.arraycopy (formType.getBytes (StandardCharsets.US_ASCII), 0, header, 8, 4);
+        return header;
+    }
+
+
+    /**
+     * Ignores all messages of the detectors.
+     */
+    private static final class SilentNotifier implements INotifier
+    {
+        /** {@inheritDoc} */
+        @Override
+        public void log (final String messageID, final String... replaceStrings)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final String messageID, final String... replaceStrings)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final String messageID, final Throwable throwable)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final Throwable throwable)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final Throwable throwable, final boolean logExceptionStack)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logText (final String text)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void updateButtonStates (final boolean canClose)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void finished (final boolean cancelled)
+        {
+            // Intentionally empty
+        }
+    }
+}
@@ -0,0 +1,304 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.core.algorithm.LayerSplitter;
+import de.mossgrabers.convertwithmoss.core.model.IGroup;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultGroup;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZone;
+
+
+/**
+ * Compares the 2 ways of splitting a multi-mic drum kit into non-overlapping layers: a matrix of
+ * booleans per layer which is tested and marked cell by cell, as it was done before, against the
+ * rows of velocity bits of the LayerSplitter. The kit has 16 groups (e.g. microphones) with 400
+ * zones each, which cover a few keys and random velocity ranges, and which therefore overlap into
+ * many round-robin like layers. The splitting does not modify the groups, therefore they are
+ * created only once. The setup checks that both ways create the same layers for the kit and for
+ * 2000 random multi-samples, which also cover the lowest and highest keys and velocities.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayerSplitterBenchmark
+{
+    private static final int NUMBER_OF_GROUPS  = 16;
+    private static final int ZONES_PER_GROUP   = 400;
+    private static final int NUMBER_OF_CHECKS  = 2000;
+
+    private List<IGroup>     groups;
+
+
+    /**
+     * Create the groups and check that both ways split the same.
+     */
+    @Setup
+    public void setup ()
+    {
+        final Random random = new Random (42);
+        this.groups = new ArrayList<> ();
+        for (int group = 0; group < NUMBER_OF_GROUPS; group++)
+        {
+            final List<ISampleZone> zones = new ArrayList<> ();
+            for (int i = 0; i < ZONES_PER_GROUP; i++)
+            {
+                final int key = 24 + random.nextInt (64);
+                final ISampleZone zone = new DefaultSampleZone ("Group " + (group + 1) + " Zone " + i, key, key + random.nextInt (3));
+                final int velocity = random.nextInt (128);
+                zone.setVelocityLow (velocity);
+                zone.setVelocityHigh (Math.min (velocity + random.nextInt (64), 127));
+                zones.add (zone);
+            }
+            this.groups.add (new DefaultGroup (zones));
+        }
+
+        checkSameLayers (this.groups);
+        for (int i = 0; i < NUMBER_OF_CHECKS; i++)
+            checkSameLayers (createRandomGroups (random));
+    }
+
+
+    /**
+     * Split the groups with the rows of velocity bits.
+     *
+     * @return The number of layers
+     */
+    @Benchmark
+    public int split ()
+    {
+        return LayerSplitter.splitIntoNonOverlappingLayers (this.groups).size ();
+    }
+
+
+    /**
+     * Split the groups with a matrix of booleans per layer.
+     *
+     * @return The number of layers
+     */
+    @Benchmark
+    public int splitWithBooleanMatrix ()
+    {
+        return splitWithBooleanMatrix (this.groups).size ();
+    }
+
+
+    /**
+     * Create 1 to 8 groups with 1 to 60 zones each. The key and velocity ranges are random and
+     * include the full and single key and velocity ranges at both ends.
+     *
+     * @param random The random generator
+     * @return The groups
+     */
+    private static List<IGroup> createRandomGroups (final Random random)
+    {
+        final List<IGroup> randomGroups = new ArrayList<> ();
+        final int numberOfGroups = 1 + random.nextInt (8);
+        for (int group = 0; group < numberOfGroups; group++)
+        {
+            final IGroup randomGroup = new DefaultGroup ("Group " + (group + 1));
+            final int numberOfZones = 1 + random.nextInt (60);
+            for (int i = 0; i < numberOfZones; i++)
+            {
+                final int [] keys = createRandomRange (random);
+                final int [] velocities = createRandomRange (random);
+                final ISampleZone zone = new DefaultSampleZone ("Zone " + i, keys[0], keys[1]);
+                zone.setVelocityLow (velocities[0]);
+                zone.setVelocityHigh (velocities[1]);
+                randomGroup.addSampleZone (zone);
+            }
+            randomGroups.add (randomGroup);
+        }
+        return randomGroups;
+    }
+
+
+    private static int [] createRandomRange (final Random random)
+    {
+        return switch (random.nextInt (6))
+        {
+            case 0 -> new int []
+            {
+                0,
+                127
+            };
+            case 1 -> new int []
+            {
+                0,
+                random.nextInt (128)
+            };
+            case 2 -> new int []
+            {
+                random.nextInt (128),
+                127
+            };
+            case 3 ->
+            {
+                final int value = random.nextInt (2) == 0 ? 0 : 127;
+                yield new int []
+                {
+                    value,
+                    value
+                };
+            }
+            default ->
+            {
+                final int low = random.nextInt (128);
+                yield new int []
+                {
+                    low,
+                    Math.min (low + random.nextInt (70), 127)
+                };
+            }
+        };
+    }
+
+
+    /**
+     * Check that both ways put the same zones into the same layers and reuse the same groups.
+     *
+     * @param groupsToSplit The groups to split
+     */
+    private static void checkSameLayers (final List<IGroup> groupsToSplit)
+    {
+        final List<List<IGroup>> expected = splitWithBooleanMatrix (groupsToSplit);
+        final List<List<IGroup>> actual = LayerSplitter.splitIntoNonOverlappingLayers (groupsToSplit);
+        if (expected.size () != actual.size ())
+            throw new IllegalStateException ("Different number of layers: " + expected.size () + " / " + actual.size ());
+        for (int layer = 0; layer < expected.size (); layer++)
+        {
+            final List<IGroup> expectedGroups = expected.get (layer);
+            final List<IGroup> actualGroups = actual.get (layer);
+            if (expectedGroups.size () != actualGroups.size ())
+                throw new IllegalStateException ("Different number of groups in layer " + layer);
+            for (int i = 0; i < expectedGroups.size (); i++)
+            {
+                final IGroup expectedGroup = expectedGroups.get (i);
+                final IGroup actualGroup = actualGroups.get (i);
+                final boolean isReused = groupsToSplit.contains (expectedGroup) || groupsToSplit.contains (actualGroup);
+                if (isReused ? expectedGroup != actualGroup : !isSameGroup (expectedGroup, actualGroup))
+                    throw new IllegalStateException ("Different group " + i + " in layer " + layer + ": " + expectedGroup.getName () + " / " + actualGroup.getName ());
+            }
+        }
+    }
+
+
+    private static boolean isSameGroup (final IGroup group1, final IGroup group2)
+    {
+        final List<ISampleZone> zones1 = group1.getSampleZones ();
+        final List<ISampleZone> zones2 = group2.getSampleZones ();
+        if (!Objects.equals (group1.getName (), group2.getName ()) || zones1.size () != zones2.size ())
+            return false;
+        for (int i = 0; i < zones1.size (); i++)
+            if (zones1.get (i) != zones2.get (i))
+                return false;
+        return true;
+    }
+
+
+    /**
+     * The splitting as it was done before: the occupied cells of each layer are stored in a matrix
+     * of booleans, which is tested and marked cell by cell.
+     *
+     * @param groupsToSplit The groups to split
+     * @return The layers
+     */
+    private static List<List<IGroup>> splitWithBooleanMatrix (final List<IGroup> groupsToSplit)
+    {
+        final List<boolean [] []> layerMatrices = new ArrayList<> ();
+        final Map<ISampleZone, Integer> zoneLayerMap = new IdentityHashMap<> ();
+
+        for (final IGroup group: groupsToSplit)
+            for (final ISampleZone zone: group.getSampleZones ())
+            {
+                int targetLayer = -1;
+                for (int l = 0; l < layerMatrices.size (); l++)
+                    if (fitsInLayer (zone, layerMatrices.get (l)))
+                    {
+                        targetLayer = l;
+                        break;
+                    }
+
+                if (targetLayer == -1)
+                {
+                    targetLayer = layerMatrices.size ();
+                    layerMatrices.add (new boolean [128] [128]);
+                }
+
+                zoneLayerMap.put (zone, Integer.valueOf (targetLayer));
+                markLayer (zone, layerMatrices.get (targetLayer));
+            }
+
+        final List<List<IGroup>> result = new ArrayList<> (layerMatrices.size ());
+        for (int i = 0; i < layerMatrices.size (); i++)
+            result.add (new ArrayList<> ());
+
+        for (final IGroup group: groupsToSplit)
+        {
+            final List<ISampleZone> zones = group.getSampleZones ();
+            final Set<Integer> usedLayers = new LinkedHashSet<> ();
+            for (final ISampleZone zone: zones)
+                usedLayers.add (zoneLayerMap.get (zone));
+
+            if (usedLayers.size () == 1)
+                result.get (usedLayers.iterator ().next ().intValue ()).add (group);
+            else
+                for (final int layer: usedLayers)
+                {
+                    final IGroup newGroup = new DefaultGroup (group.getName ());
+                    for (final ISampleZone zone: zones)
+                        if (zoneLayerMap.get (zone).intValue () == layer)
+                            newGroup.addSampleZone (zone);
+                    result.get (layer).add (newGroup);
+                }
+        }
+
+        return result;
+    }
+
+
+    private static boolean fitsInLayer (final ISampleZone zone, final boolean [] [] matrix)
+    {
+        for (int k = zone.getKeyLow (); k <= zone.getKeyHigh (); k++)
+            for (int v = zone.getVelocityLow (); v <= zone.getVelocityHigh (); v++)
+                if (matrix[k][v])
+                    return false;
+        return true;
+    }
+
+
+    private static void markLayer (final ISampleZone zone, final boolean [] [] matrix)
+    {
+        for (int k = zone.getKeyLow (); k <= zone.getKeyHigh (); k++)
+            for (int v = zone.getVelocityLow (); v <= zone.getVelocityHigh (); v++)
+                matrix[k][v] = true;
+    }
+}
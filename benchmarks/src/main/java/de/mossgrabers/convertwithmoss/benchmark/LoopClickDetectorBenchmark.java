@@ -0,0 +1,87 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.core.algorithm.LoopClickDetector;
+import de.mossgrabers.convertwithmoss.core.model.IGroup;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultAudioMetadata;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultGroup;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleLoop;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZone;
+import de.mossgrabers.convertwithmoss.core.model.implementation.InMemorySampleData;
+
+
+/**
+ * Measures the check of the loops of a multi-sample with 32 zones of 3 seconds stereo audio, each
+ * with one forward loop.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopClickDetectorBenchmark
+{
+    private static final int NUMBER_OF_ZONES = 32;
+
+    private List<IGroup>     groups;
+
+
+    /**
+     * Create the zones.
+     */
+    @Setup
+    public void setup ()
+    {
+        final int numberOfFrames = 3 * SyntheticSignals.SAMPLE_RATE;
+        final byte [] pcm = SyntheticSignals.createInterleavedPCM (2, numberOfFrames, 16);
+
+        final List<ISampleZone> zones = new ArrayList<> ();
+        for (int i = 0; i < NUMBER_OF_ZONES; i++)
+        {
+            final InMemorySampleData sampleData = new InMemorySampleData (new DefaultAudioMetadata (2, SyntheticSignals.SAMPLE_RATE, 16, numberOfFrames), pcm);
+            final ISampleZone zone = new DefaultSampleZone ("Zone " + (i + 1), sampleData);
+            // Loops of different lengths, some of them end in a step
+            final DefaultSampleLoop loop = new DefaultSampleLoop ();
+            loop.setStart (SyntheticSignals.SAMPLE_RATE + 997 * i);
+            loop.setEnd (numberOfFrames - 1 - 1013 * i);
+            zone.addLoop (loop);
+            zones.add (zone);
+        }
+        this.groups = List.of (new DefaultGroup (zones));
+    }
+
+
+    /**
+     * Check all loops.
+     *
+     * @return The result
+     */
+    @Benchmark
+    public Optional<LoopClickDetector.Result> detect ()
+    {
+        return LoopClickDetector.detect (this.groups);
+    }
+}
@@ -0,0 +1,83 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.core.algorithm.MultiSampleReducer;
+import de.mossgrabers.convertwithmoss.core.model.IGroup;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultGroup;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZone;
+
+
+/**
+ * Measures the reduction of a multi-sample with 4 velocity layers of one zone per key (512 zones)
+ * to 128 zones. Since the reduction modifies the groups, they are created again before each call.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiSampleReducerBenchmark
+{
+    private static final int NUMBER_OF_LAYERS = 4;
+    private static final int MAX_SAMPLES      = 128;
+
+    private List<IGroup>     groups;
+
+
+    /**
+     * Create the groups.
+     */
+    @Setup(Level.Invocation)
+    public void setup ()
+    {
+        this.groups = new ArrayList<> ();
+        final int layerSize = 128 / NUMBER_OF_LAYERS;
+        for (int layer = 0; layer < NUMBER_OF_LAYERS; layer++)
+        {
+            final List<ISampleZone> zones = new ArrayList<> ();
+            for (int key = 0; key < 128; key++)
+            {
+                final ISampleZone zone = new DefaultSampleZone ("Layer " + (layer + 1) + " Key " + key, key, key);
+                zone.setVelocityLow (layer * layerSize + 1);
+                zone.setVelocityHigh (Math.min ((layer + 1) * layerSize, 127));
+                zones.add (zone);
+            }
+            this.groups.add (new DefaultGroup (zones));
+        }
+    }
+
+
+    /**
+     * Reduce the zones.
+     *
+     * @return The number of removed zones
+     */
+    @Benchmark
+    public int reduce ()
+    {
+        return MultiSampleReducer.reduce (this.groups, MAX_SAMPLES);
+    }
+}
@@ -0,0 +1,167 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.file.ncw.NcwFile;
+
+
+/**
+ * Measures the decoding of a NCW file (the compressed sample format of Kontakt) with 10 seconds of
+ * 16-bit stereo audio. Since there is no NCW encoder, the file is assembled in the setup from
+ * delta-encoded blocks, which is the compression Kontakt uses for most samples.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NcwFileBenchmark
+{
+    private static final int            FILE_MAGIC    = 0xD69EA801;
+    private static final int            BLOCK_MAGIC   = 0x3E9A0C16;
+    private static final int            VERSION       = 0x131;
+    private static final int            HEADER_SIZE   = 120;
+    private static final int            BLOCK_SAMPLES = 512;
+
+    private byte []                     ncwData;
+    private final ByteArrayOutputStream wavOutput     = new ByteArrayOutputStream ();
+
+
+    /**
+     * Create the NCW file.
+     */
+    @Setup
+    public void setup ()
+    {
+        this.ncwData = createNcwFile (SyntheticSignals.createChannels (2, 10 * SyntheticSignals.SAMPLE_RATE, 16), 16);
+    }
+
+
+    /**
+     * Decode the NCW file.
+     *
+     * @return The decoded file
+     * @throws IOException Could not decode the file
+     */
+    @Benchmark
+    public NcwFile decode () throws IOException
+    {
+        return new NcwFile (new ByteArrayInputStream (this.ncwData));
+    }
+
+
+    /**
+     * Decode the NCW file and convert it to a WAV file, which is what happens when a Kontakt
+     * sample is converted.
+     *
+     * @return The number of bytes of the WAV file
+     * @throws IOException Could not decode the file
+     */
+    @Benchmark
+    public int decodeToWav () throws IOException
+    {
+        this.wavOutput.reset ();
+        new NcwFile (new ByteArrayInputStream (this.ncwData)).writeWAV (this.wavOutput);
+        return this.wavOutput.size ();
+    }
+
+
+    /**
+     * Create a NCW file from the given samples. Each block stores its first sample as the base
+     * value followed by the differences to the next samples with the smallest number of bits
+     * which can hold them.
+     *
+     * @param channels The samples, one array per channel
+     * @param bitsPerSample The resolution of the samples
+     * @return The content of the NCW file
+     */
+    private static byte [] createNcwFile (final int [] [] channels, final int bitsPerSample)
+    {
+        final int numberOfSamples = channels[0].length;
+        final int numberOfBlocks = (numberOfSamples + BLOCK_SAMPLES - 1) / BLOCK_SAMPLES;
+
+        final ByteArrayOutputStream blocks = new ByteArrayOutputStream ();
+        final int [] offsets = new int [numberOfBlocks + 1];
+        for (int block = 0; block < numberOfBlocks; block++)
+        {
+            offsets[block] = blocks.size ();
+            for (final int [] channel: channels)
+                writeDeltaBlock (blocks, channel, block * BLOCK_SAMPLES);
+        }
+        offsets[numberOfBlocks] = blocks.size ();
+
+        final int offsetBlockAddress = HEADER_SIZE;
+        final int offsetBlockData = offsetBlockAddress + 4 * offsets.length;
+        final ByteBuffer buffer = ByteBuffer.allocate (offsetBlockData + blocks.size ()).order (ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt (FILE_MAGIC).putInt (VERSION);
+        buffer.putShort ((short) channels.length).putShort ((short) bitsPerSample);
+        buffer.putInt (SyntheticSignals.SAMPLE_RATE).putInt (numberOfSamples);
+        buffer.putInt (offsetBlockAddress).putInt (offsetBlockData).putInt (blocks.size ());
+        buffer.position (HEADER_SIZE);
+        for (final int offset: offsets)
+            buffer.putInt (offset);
+        buffer.put (blocks.toByteArray ());
+        return buffer.array ();
+    }
+
+
+    private static void writeDeltaBlock (final ByteArrayOutputStream out, final int [] samples, final int start)
+    {
+        final int [] deltas = new int [BLOCK_SAMPLES];
+        int maxMagnitude = 0;
+        for (int i = 0; i < BLOCK_SAMPLES - 1; i++)
+        {
+            deltas[i] = getSample (samples, start + i + 1) - getSample (samples, start + i);
+            maxMagnitude = Math.max (maxMagnitude, Math.abs (deltas[i]));
+        }
+        // The sign bit plus the magnitude, a multiple of 8 samples always fills whole bytes
+        final int bits = 33 - Integer.numberOfLeadingZeros (maxMagnitude);
+
+        final ByteBuffer header = ByteBuffer.allocate (16).order (ByteOrder.LITTLE_ENDIAN);
+        header.putInt (BLOCK_MAGIC).putInt (getSample (samples, start)).putShort ((short) bits).putShort ((short) 0).putInt (0);
+        out.writeBytes (header.array ());
+
+        long accumulator = 0;
+        int bitsInAccumulator = 0;
+        for (final int delta: deltas)
+        {
+            accumulator |= (delta & (1L << bits) - 1) << bitsInAccumulator;
+            bitsInAccumulator += bits;
+            while (bitsInAccumulator >= 8)
+            {
+                out.write ((int) accumulator & 0xFF);
+                accumulator >>>= 8;
+                bitsInAccumulator -= 8;
+            }
+        }
+    }
+
+
+    private static int getSample (final int [] samples, final int index)
+    {
+        return index < samples.length ? samples[index] : 0;
+    }
+}
@@ -0,0 +1,187 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
+import de.mossgrabers.convertwithmoss.core.model.IFileBasedSampleData;
+import de.mossgrabers.convertwithmoss.core.model.IMetadata;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.core.utils.NoteParser;
+import de.mossgrabers.convertwithmoss.exception.CombinationNotPossibleException;
+import de.mossgrabers.convertwithmoss.exception.MultisampleException;
+import de.mossgrabers.convertwithmoss.format.KeyMapping;
+import de.mossgrabers.convertwithmoss.format.SampleNamePatterns;
+
+
+/**
+ * Measures the key mapping of the sample file detector, which detects the groups and the root
+ * notes from the names of the sample files: a library of 100 instruments (folders) with 3 velocity
+ * layers of 30 notes each. Half of the instruments use the second of the default group patterns,
+ * therefore the first pattern fails for them. The files contain no metadata, so all root notes
+ * need to be parsed from the names.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SampleNameKeyMappingBenchmark
+{
+    private static final int                       NUMBER_OF_INSTRUMENTS = 100;
+    private static final int                       NUMBER_OF_LAYERS      = 3;
+    private static final int                       NUMBER_OF_NOTES       = 30;
+    private static final String []                 GROUP_PATTERNS        =
+    {
+        "_ms*_",
+        "S_*_"
+    };
+    private static final String []                 MONO_SPLIT_PATTERNS   =
+    {
+        "_L"
+    };
+
+    private final List<List<IFileBasedSampleData>> instruments           = new ArrayList<> ();
+    private SampleNamePatterns                     namePatterns;
+
+
+    /**
+     * Create the names of the sample files and the patterns.
+     */
+    @Setup
+    public void setup ()
+    {
+        for (int instrument = 0; instrument < NUMBER_OF_INSTRUMENTS; instrument++)
+        {
+            final List<IFileBasedSampleData> files = new ArrayList<> ();
+            for (int layer = 1; layer <= NUMBER_OF_LAYERS; layer++)
+                for (int note = 0; note < NUMBER_OF_NOTES; note++)
+                {
+                    final String noteName = NoteParser.formatNoteSharps (36 + 2 * note);
+                    if (instrument % 2 == 0)
+                        files.add (new NamedSampleData ("Grand Piano " + instrument + "_ms" + layer + "_" + noteName + ".wav"));
+                    else
+                        files.add (new NamedSampleData ("Strings Ensemble " + instrument + " S_" + layer + "_" + noteName + ".wav"));
+                }
+            this.instruments.add (files);
+        }
+
+        this.namePatterns = new SampleNamePatterns (GROUP_PATTERNS, MONO_SPLIT_PATTERNS);
+    }
+
+
+    /**
+     * Map all instruments with the patterns which were created once for the whole library.
+     *
+     * @return The number of mapped groups
+     * @throws MultisampleException Could not map an instrument
+     * @throws CombinationNotPossibleException Could not combine split stereo files
+     */
+    @Benchmark
+    public int sharedPatterns () throws MultisampleException, CombinationNotPossibleException
+    {
+        int groups = 0;
+        for (final List<IFileBasedSampleData> files: this.instruments)
+            groups += new KeyMapping (files, true, 0, 0, this.namePatterns).getSampleMetadata ().size ();
+        return groups;
+    }
+
+
+    /**
+     * Map all instruments and create the patterns for each of them.
+     *
+     * @return The number of mapped groups
+     * @throws MultisampleException Could not map an instrument
+     * @throws CombinationNotPossibleException Could not combine split stereo files
+     */
+    @Benchmark
+    public int patternsPerInstrument () throws MultisampleException, CombinationNotPossibleException
+    {
+        int groups = 0;
+        for (final List<IFileBasedSampleData> files: this.instruments)
+            groups += new KeyMapping (files, true, 0, 0, new SampleNamePatterns (GROUP_PATTERNS, MONO_SPLIT_PATTERNS)).getSampleMetadata ().size ();
+        return groups;
+    }
+
+
+    /**
+     * Sample data which only has a file name. It has no metadata, therefore the root notes need to
+     * be parsed from the names.
+     */
+    private static final class NamedSampleData implements IFileBasedSampleData
+    {
+        private final String filename;
+
+
+        /**
+         * Constructor.
+         *
+         * @param filename The name of the sample file
+         */
+        NamedSampleData (final String filename)
+        {
+            this.filename = filename;
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public String getFilename ()
+        {
+            return this.filename;
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void updateMetadata (final IMetadata metadata)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public IAudioMetadata getAudioMetadata () throws IOException
+        {
+            throw new IOException ("No audio data.");
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void writeSample (final OutputStream outputStream) throws IOException
+        {
+            throw new IOException ("No audio data.");
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void addZoneData (final ISampleZone zone, final boolean addRootKey, final boolean addLoops) throws IOException
+        {
+            throw new IOException ("No metadata.");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.format.sfz.SfzTokenizer;
+import de.mossgrabers.tools.Pair;
+
+
+/**
+ * Compares the 2 ways of splitting a large machine-generated SFZ file into its headers and
+ * opcodes: the regular expressions which were used before, applied to the text in which the lines
+ * were joined again, against the single pass of the SfzTokenizer. The file has a group for each 100
+ * regions, the regions have sample names with spaces, some opcodes share a line and there are
+ * line comments, like the files written by sample libraries and conversion tools. The setup checks
+ * that both ways find the same headers with the same opcodes. Run it with <i>-prof gc</i> to
+ * compare the allocated memory as well.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SfzTokenizerBenchmark
+{
+    private static final Pattern HEADER_PATTERN    = Pattern.compile ("<([a-z]+)>([^<]*)", Pattern.DOTALL);
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile ("(\\b\\w+)=(.*?(?=\\s\\w+=|//|$))", Pattern.DOTALL);
+    private static final File    SFZ_FILE          = new File ("Benchmark.sfz");
+
+    @Param(
+    {
+        "10000",
+        "50000"
+    })
+    private int                  numberOfRegions;
+
+    private String               content;
+
+
+    /**
+     * Create the text of the SFZ file and check that both ways parse the same.
+     *
+     * @throws IOException Could not parse the text
+     */
+    @Setup
+    public void setup () throws IOException
+    {
+        final StringBuilder sb = new StringBuilder ();
+        sb.append ("// Generated multi-sample\r\n<control>\r\ndefault_path=Samples/\r\n<global>\r\nampeg_release=0.5 volume=-3\r\n");
+        for (int i = 0; i < this.numberOfRegions; i++)
+        {
+            if (i % 100 == 0)
+                sb.append ("\r\n<group> // Layer ").append (i / 100).append ("\r\nlovel=").append (i / 100 % 127 + 1).append (" hivel=127\r\n");
+            final int key = i % 128;
+            sb.append ("<region> sample=Grand Piano ").append (i).append (" Forte.wav\r\n");
+            sb.append ("pitch_keycenter=").append (key).append (" lokey=").append (key).append (" hikey=").append (key).append ("\r\n");
+            sb.append ("offset=0 end=").append (44100 + i).append (" loop_mode=loop_continuous loop_start=1000 loop_end=").append (40000 + i).append (" // Sustain\r\n");
+        }
+        this.content = sb.toString ();
+
+        final List<Pair<String, Map<String, String>>> expected = this.regularExpressions ();
+        final List<Pair<String, Map<String, String>>> actual = this.tokenizer ();
+        if (expected.size () != actual.size ())
+            throw new IllegalStateException ("Different number of headers: " + expected.size () + " / " + actual.size ());
+        for (int i = 0; i < expected.size (); i++)
+        {
+            final Pair<String, Map<String, String>> expectedHeader = expected.get (i);
+            final Pair<String, Map<String, String>> actualHeader = actual.get (i);
+            if (!expectedHeader.getKey ().equals (actualHeader.getKey ()) || !expectedHeader.getValue ().equals (actualHeader.getValue ()))
+                throw new IllegalStateException ("Different result for header " + i + ": " + expectedHeader.getKey () + expectedHeader.getValue () + " / " + actualHeader.getKey () + actualHeader.getValue ());
+        }
+    }
+
+
+    /**
+     * Join the lines of the file and parse the text with the regular expressions.
+     *
+     * @return The headers with their opcodes
+     */
+    @Benchmark
+    public List<Pair<String, Map<String, String>>> regularExpressions ()
+    {
+        final StringBuilder text = new StringBuilder ();
+        final Iterator<String> iterator = this.content.lines ().iterator ();
+        while (iterator.hasNext ())
+            text.append (iterator.next ()).append ('\n');
+
+        final List<Pair<String, Map<String, String>>> headersWithOpCodes = new ArrayList<> ();
+        final Matcher blockMatcher = HEADER_PATTERN.matcher (text.toString ());
+        while (blockMatcher.find ())
+        {
+            final String attributeBlock = blockMatcher.group (2);
+            final Map<String, String> attributes = new HashMap<> ();
+            if (attributeBlock != null && !attributeBlock.isBlank ())
+            {
+                final Matcher keyValueMatcher = ATTRIBUTE_PATTERN.matcher (attributeBlock);
+                while (keyValueMatcher.find ())
+                    attributes.put (keyValueMatcher.group (1).trim (), keyValueMatcher.group (2).trim ());
+            }
+            headersWithOpCodes.add (new Pair<> (blockMatcher.group (1), attributes));
+        }
+        return headersWithOpCodes;
+    }
+
+
+    /**
+     * Parse the text in a single pass with the tokenizer.
+     *
+     * @return The headers with their opcodes
+     * @throws IOException Could not parse the text
+     */
+    @Benchmark
+    public List<Pair<String, Map<String, String>>> tokenizer () throws IOException
+    {
+        final List<Pair<String, Map<String, String>>> headersWithOpCodes = new ArrayList<> ();
+        new SfzTokenizer (_ -> this.content, new SfzTokenizer.ISfzHandler ()
+        {
+            private Map<String, String> attributes;
+
+
+            /** {@inheritDoc} */
+            @Override
+            public void header (final String name)
+            {
+                this.attributes = new HashMap<> ();
+                headersWithOpCodes.add (new Pair<> (name, this.attributes));
+            }
+
+
+            /** {@inheritDoc} */
+            @Override
+            public void opcode (final String name, final String value)
+            {
+                this.attributes.put (name, value);
+            }
+        }).tokenize (SFZ_FILE);
+        return headersWithOpCodes;
+    }
+}
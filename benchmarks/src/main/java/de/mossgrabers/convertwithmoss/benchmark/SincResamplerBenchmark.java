@@ -0,0 +1,68 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.core.algorithm.SincResampler;
+
+
+/**
+ * Measures the sample rate conversion of 5 seconds of one channel of audio.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SincResamplerBenchmark
+{
+    @Param(
+    {
+        "48000",
+        "22050",
+        "32000"
+    })
+    private int       targetRate;
+
+    private double [] signal;
+
+
+    /**
+     * Create the input signal.
+     */
+    @Setup
+    public void setup ()
+    {
+        this.signal = SyntheticSignals.createSignal (5 * SyntheticSignals.SAMPLE_RATE, 0);
+    }
+
+
+    /**
+     * Convert the signal from 44.1kHz to the target rate.
+     *
+     * @return The converted signal
+     */
+    @Benchmark
+    public double [] resample ()
+    {
+        return SincResampler.resample (this.signal, SyntheticSignals.SAMPLE_RATE, this.targetRate);
+    }
+}
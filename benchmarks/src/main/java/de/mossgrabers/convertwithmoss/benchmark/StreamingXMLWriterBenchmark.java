@@ -0,0 +1,136 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
+import de.mossgrabers.tools.XMLUtils;
+
+
+/**
+ * Compares the 2 ways of writing the description of a Bitwig multi-sample: building a DOM and
+ * serializing it to a text with the Transformer, against streaming the elements with the
+ * StreamingXMLWriter. Both write the same bytes into a stream which discards them, the creation of
+ * the elements is part of the measurement.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class StreamingXMLWriterBenchmark
+{
+    @Param(
+    {
+        "10000",
+        "100000"
+    })
+    private int numberOfZones;
+
+
+    /**
+     * Build the document, serialize it to a text and write the encoded text.
+     *
+     * @throws ParserConfigurationException Could not create the document
+     * @throws TransformerException Could not serialize the document
+     * @throws IOException Could not write the text
+     */
+    @Benchmark
+    public void dom () throws ParserConfigurationException, TransformerException, IOException
+    {
+        final Document document = XMLUtils.newDocument ();
+        document.setXmlStandalone (true);
+        final Element root = document.createElement ("multisample");
+        document.appendChild (root);
+        root.setAttribute ("name", "Benchmark");
+        XMLUtils.addTextElement (document, root, "generator", "ConvertWithMoss");
+
+        for (int i = 0; i < this.numberOfZones; i++)
+        {
+            final Element zone = XMLUtils.addElement (document, root, "sample");
+            zone.setAttribute ("file", "Benchmark_" + i + ".wav");
+            XMLUtils.setDoubleAttribute (zone, "sample-start", 0, 3);
+            XMLUtils.setDoubleAttribute (zone, "sample-stop", 44100.0 + i, 3);
+            XMLUtils.setDoubleAttribute (zone, "gain", -0.5 * (i % 7), 2);
+
+            final Element key = XMLUtils.addElement (document, zone, "key");
+            XMLUtils.setIntegerAttribute (key, "root", i % 128);
+            XMLUtils.setIntegerAttribute (key, "low", i % 128);
+            XMLUtils.setIntegerAttribute (key, "high", i % 128);
+
+            final Element loop = XMLUtils.addElement (document, zone, "loop");
+            loop.setAttribute ("mode", "sustain");
+            XMLUtils.setDoubleAttribute (loop, "start", 1000.0 + i, 3);
+            XMLUtils.setDoubleAttribute (loop, "stop", 40000.0 + i, 3);
+        }
+
+        OutputStream.nullOutputStream ().write (XMLUtils.toString (document).getBytes (StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Stream the elements into the output.
+     *
+     * @throws IOException Could not write the text
+     */
+    @Benchmark
+    public void streaming () throws IOException
+    {
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (OutputStream.nullOutputStream (), true))
+        {
+            writer.startElement ("multisample");
+            writer.attribute ("name", "Benchmark");
+            writer.textElement ("generator", "ConvertWithMoss");
+
+            for (int i = 0; i < this.numberOfZones; i++)
+            {
+                writer.startElement ("sample");
+                writer.attribute ("file", "Benchmark_" + i + ".wav");
+                writer.attribute ("sample-start", 0, 3);
+                writer.attribute ("sample-stop", 44100.0 + i, 3);
+                writer.attribute ("gain", -0.5 * (i % 7), 2);
+
+                writer.startElement ("key");
+                writer.attribute ("root", i % 128);
+                writer.attribute ("low", i % 128);
+                writer.attribute ("high", i % 128);
+                writer.endElement ();
+
+                writer.startElement ("loop");
+                writer.attribute ("mode", "sustain");
+                writer.attribute ("start", 1000.0 + i, 3);
+                writer.attribute ("stop", 40000.0 + i, 3);
+                writer.endElement ();
+
+                writer.endElement ();
+            }
+
+            writer.endElement ();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.util.Random;
+
+
+/**
+ * Creates the deterministic input signals of the benchmarks. The signals are a mix of a slowly
+ * sweeping tone, some of its harmonics and a bit of noise from a random generator with a fixed
+ * seed, which makes them neither trivially compressible (like silence) nor incompressible (like
+ * white noise) and identical on every run.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class SyntheticSignals
+{
+    /** The sample rate of all created signals. */
+    public static final int    SAMPLE_RATE = 44100;
+
+    private static final long  SEED        = 0x4D6F7373L;
+    private static final double NOISE_LEVEL = 0.01;
+
+
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private SyntheticSignals ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Create a signal with values in the range of -1 to 1.
+     *
+     * @param numberOfFrames The length of the signal in sample frames
+     * @param channel The index of the channel, each channel starts with a different phase
+     * @return The signal
+     */
+    public static double [] createSignal (final int numberOfFrames, final int channel)
+    {
+        final Random random = new Random (SEED + channel);
+        final double [] signal = new double [numberOfFrames];
+        double phase = channel * 0.25 * Math.PI;
+        for (int i = 0; i < numberOfFrames; i++)
+        {
+            // Sweep from 110Hz to 880Hz and back every 4 seconds
+            final double position = (double) (i % (4 * SAMPLE_RATE)) / (4 * SAMPLE_RATE);
+            final double frequency = 110.0 + 770.0 * (1.0 - Math.abs (2.0 * position - 1.0));
+            phase += 2.0 * Math.PI * frequency / SAMPLE_RATE;
+            final double value = 0.6 * Math.sin (phase) + 0.2 * Math.sin (2.0 * phase) + 0.1 * Math.sin (5.0 * phase);
+            signal[i] = value + NOISE_LEVEL * (2.0 * random.nextDouble () - 1.0);
+        }
+        return signal;
+    }
+
+
+    /**
+     * Create integer samples of several channels.
+     *
+     * @param numberOfChannels The number of channels
+     * @param numberOfFrames The length of the signal in sample frames
+     * @param bitsPerSample The resolution of the samples, 8, 16, 24 or 32
+     * @return The signed samples, one array per channel
+     */
+    public static int [] [] createChannels (final int numberOfChannels, final int numberOfFrames, final int bitsPerSample)
+    {
+        final double maxValue = (1L << bitsPerSample - 1) - 1;
+        final int [] [] channels = new int [numberOfChannels] [numberOfFrames];
+        for (int channel = 0; channel < numberOfChannels; channel++)
+        {
+            final double [] signal = createSignal (numberOfFrames, channel);
+            for (int i = 0; i < numberOfFrames; i++)
+                channels[channel][i] = (int) Math.round (signal[i] * maxValue);
+        }
+        return channels;
+    }
+
+
+    /**
+     * Create interleaved little-endian PCM data like it is stored in a WAV file.
+     *
+     * @param numberOfChannels The number of channels
+     * @param numberOfFrames The length of the signal in sample frames
+     * @param bitsPerSample The resolution of the samples, 16, 24 or 32
+     * @return The PCM data
+     */
+    public static byte [] createInterleavedPCM (final int numberOfChannels, final int numberOfFrames, final int bitsPerSample)
+    {
+        final int [] [] channels = createChannels (numberOfChannels, numberOfFrames, bitsPerSample);
+        final int bytesPerSample = bitsPerSample / 8;
+        final byte [] data = new byte [numberOfChannels * numberOfFrames * bytesPerSample];
+        int position = 0;
+        for (int i = 0; i < numberOfFrames; i++)
+            for (int channel = 0; channel < numberOfChannels; channel++)
+            {
+                final int value = channels[channel][i];
+                for (int b = 0; b < bytesPerSample; b++)
+                    data[position++] = (byte) (value >> 8 * b);
+            }
+        return data;
+    }
+}
@@ -0,0 +1,226 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.format.TagDetector;
+
+
+/**
+ * Compares the 2 ways of detecting the category, the keywords and the camel case notation of
+ * preset, group and sample names: a search for each key of the lookups in the name, as it was done
+ * before, against the single pass of the TagDetector over each name. The 4800 names are combined
+ * from instruments, articulations, velocity layers and notes, like the names of the presets and
+ * samples of a library. The setup checks that both ways detect the same for all names.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagDetectorBenchmark
+{
+    private static final String [] INSTRUMENTS   =
+    {
+        "Grand Piano",
+        "Rhodes Mk1",
+        "Hammond B3 Drawbar",
+        "Nylon Guitar",
+        "Fretless Bass",
+        "808 Kick Long",
+        "Snare Rimshot",
+        "Closed HiHat",
+        "Strings Ensemble",
+        "Solo Cello",
+        "Trumpet Section",
+        "Alto Sax",
+        "Choir Aah",
+        "Tubular Bells",
+        "Marimba",
+        "Analog Pad Warm",
+        "Juno Lead Saw",
+        "Sitar Drone",
+        "Kalimba",
+        "Sweep FX Riser"
+    };
+    private static final String [] ARTICULATIONS =
+    {
+        "Sustain",
+        "Staccato",
+        "Legato Soft Attack",
+        "Pizzicato",
+        "Tremolo Wide",
+        "Release Dry",
+        "Vintage Tape",
+        "Arpeggiated"
+    };
+    private static final String [] LAYERS        =
+    {
+        "pp",
+        "mf",
+        "ff"
+    };
+    private static final String [] NOTES         =
+    {
+        "C2",
+        "F#2",
+        "C3",
+        "G3",
+        "D#4",
+        "A5",
+        "C6",
+        "E7",
+        "V1 C3",
+        "RR2"
+    };
+
+    private final List<String>     names         = new ArrayList<> ();
+    private Map<String, String>    categoryLookup;
+    private Map<String, String>    keywordLookup;
+    private List<String>           wordDictionary;
+
+
+    /**
+     * Create the names and check that both ways detect the same.
+     *
+     * @throws ReflectiveOperationException Could not read the lookups of the TagDetector
+     */
+    @Setup
+    public void setup () throws ReflectiveOperationException
+    {
+        for (final String instrument: INSTRUMENTS)
+            for (final String articulation: ARTICULATIONS)
+                for (final String layer: LAYERS)
+                    for (final String note: NOTES)
+                        this.names.add (instrument + " " + articulation + "_" + layer + "_" + note);
+
+        // The lookups are private, read them to search each of their keys like before
+        this.categoryLookup = getLookup ("CATEGORY_LOOKUP");
+        this.keywordLookup = getLookup ("KEYWORD_LOOKUP");
+        this.wordDictionary = getLookup ("WORD_DICT");
+
+        for (final String name: this.names)
+        {
+            final List<String> texts = List.of (name);
+            final boolean isSameCategory = TagDetector.detectCategory (texts).equals (TagDetector.detect (texts, this.categoryLookup, TagDetector.CATEGORY_UNKNOWN));
+            final boolean isSameKeywords = new HashSet<> (Arrays.asList (TagDetector.detectKeywords (texts))).equals (this.detectKeywordsPerKey (name));
+            final boolean isSameCamelCase = TagDetector.toCamelCase (name).equals (this.toCamelCasePerWord (name));
+            if (!isSameCategory || !isSameKeywords || !isSameCamelCase)
+                throw new IllegalStateException ("Different result for: " + name);
+        }
+    }
+
+
+    /**
+     * Detect everything with a single pass over each name.
+     *
+     * @return The number of characters of all results
+     */
+    @Benchmark
+    public int singlePass ()
+    {
+        int length = 0;
+        for (final String name: this.names)
+        {
+            final List<String> texts = List.of (name);
+            length += TagDetector.detectCategory (texts).length ();
+            length += TagDetector.detectKeywords (texts).length;
+            length += TagDetector.toCamelCase (name).length ();
+        }
+        return length;
+    }
+
+
+    /**
+     * Detect everything by searching each key of the lookups in each name.
+     *
+     * @return The number of characters of all results
+     */
+    @Benchmark
+    public int searchPerKey ()
+    {
+        int length = 0;
+        for (final String name: this.names)
+        {
+            length += TagDetector.detect (List.of (name), this.categoryLookup, TagDetector.CATEGORY_UNKNOWN).length ();
+            length += this.detectKeywordsPerKey (name).size ();
+            length += this.toCamelCasePerWord (name).length ();
+        }
+        return length;
+    }
+
+
+    private Set<String> detectKeywordsPerKey (final String name)
+    {
+        final Set<String> keywords = new HashSet<> ();
+        final String text = name.toUpperCase (Locale.US);
+        for (final Map.Entry<String, String> e: this.keywordLookup.entrySet ())
+            if (text.contains (e.getKey ()))
+                keywords.add (e.getValue ());
+        return keywords;
+    }
+
+
+    private String toCamelCasePerWord (final String name)
+    {
+        final StringBuilder out = new StringBuilder ();
+        final String s = name.toUpperCase (Locale.ROOT);
+
+        int i = 0;
+        while (i < s.length ())
+        {
+            boolean matched = false;
+            for (final String w: this.wordDictionary)
+                if (s.startsWith (w, i))
+                {
+                    out.append (w.charAt (0)).append (w.substring (1).toLowerCase (Locale.ROOT));
+                    i += w.length ();
+                    matched = true;
+                    break;
+                }
+
+            if (!matched)
+            {
+                out.append (Character.toLowerCase (s.charAt (i)));
+                i++;
+            }
+        }
+
+        out.setCharAt (0, Character.toUpperCase (out.charAt (0)));
+        return out.toString ();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getLookup (final String fieldName) throws ReflectiveOperationException
+    {
+        final Field field = TagDetector.class.getDeclaredField (fieldName);
+        field.setAccessible (true);
+        return (T) field.get (null);
+    }
+}
@@ -0,0 +1,93 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mossgrabers.convertwithmoss.exception.ParseException;
+import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
+
+
+/**
+ * Measures reading and writing of a WAV file with 10 seconds of 24-bit stereo audio from and to
+ * memory, which excludes the disk from the measurement.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaveFileBenchmark
+{
+    private WaveFile              waveFile;
+    private byte []               fileContent;
+    private ByteArrayOutputStream output;
+
+
+    /**
+     * Create the WAV file.
+     *
+     * @throws IOException Could not write the file
+     */
+    @Setup
+    public void setup () throws IOException
+    {
+        final int numberOfFrames = 10 * SyntheticSignals.SAMPLE_RATE;
+        this.waveFile = new WaveFile (2, SyntheticSignals.SAMPLE_RATE, 24, numberOfFrames);
+        this.waveFile.getDataChunk ().setData (SyntheticSignals.createInterleavedPCM (2, numberOfFrames, 24));
+
+        this.output = new ByteArrayOutputStream ();
+        this.waveFile.write (this.output);
+        this.fileContent = this.output.toByteArray ();
+    }
+
+
+    /**
+     * Read the WAV file.
+     *
+     * @return The read file
+     * @throws IOException Could not read the file
+     * @throws ParseException The file is malformed
+     */
+    @Benchmark
+    public WaveFile read () throws IOException, ParseException
+    {
+        final WaveFile wave = new WaveFile ();
+        wave.read (new ByteArrayInputStream (this.fileContent), false);
+        return wave;
+    }
+
+
+    /**
+     * Write the WAV file.
+     *
+     * @return The number of written bytes
+     * @throws IOException Could not write the file
+     */
+    @Benchmark
+    public int write () throws IOException
+    {
+        this.output.reset ();
+        this.waveFile.write (this.output);
+        return this.output.size ();
+    }
+}
@@ -0,0 +1,97 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import de.mossgrabers.tools.XMLUtils;
+
+
+/**
+ * Measures the serialization of an XML document which is structured like the ones of the XML
+ * based creators: a group with 512 zones, each with a few attributes and child elements.
+ *
+ * @author Jürgen Moßgraber
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLUtilsBenchmark
+{
+    private static final int NUMBER_OF_ZONES = 512;
+
+    private Document         document;
+
+
+    /**
+     * Create the document.
+     *
+     * @throws ParserConfigurationException Could not create the document
+     */
+    @Setup
+    public void setup () throws ParserConfigurationException
+    {
+        this.document = XMLUtils.newDocument ();
+        final Element root = this.document.createElement ("multisample");
+        this.document.appendChild (root);
+        root.setAttribute ("name", "Benchmark");
+        final Element group = XMLUtils.addElement (this.document, root, "group");
+        for (int i = 0; i < NUMBER_OF_ZONES; i++)
+        {
+            final Element zone = XMLUtils.addElement (this.document, group, "sample");
+            zone.setAttribute ("file", "Benchmark_" + i + ".wav");
+            XMLUtils.setIntegerAttribute (zone, "sample-start", 0);
+            XMLUtils.setIntegerAttribute (zone, "sample-stop", 44100 + i);
+            XMLUtils.setDoubleAttribute (zone, "gain", -0.5 * (i % 7), 2);
+            XMLUtils.setDoubleAttribute (zone, "tune", 0.01 * (i % 13), 2);
+
+            final Element key = XMLUtils.addElement (this.document, zone, "key");
+            XMLUtils.setIntegerAttribute (key, "root", i % 128);
+            XMLUtils.setIntegerAttribute (key, "low", i % 128);
+            XMLUtils.setIntegerAttribute (key, "high", i % 128);
+
+            final Element velocity = XMLUtils.addElement (this.document, zone, "velocity");
+            XMLUtils.setIntegerAttribute (velocity, "low", i / 128 * 32 + 1);
+            XMLUtils.setIntegerAttribute (velocity, "high", (i / 128 + 1) * 32);
+
+            final Element loop = XMLUtils.addElement (this.document, zone, "loop");
+            loop.setAttribute ("mode", "loop");
+            XMLUtils.setIntegerAttribute (loop, "start", 1000 + i);
+            XMLUtils.setIntegerAttribute (loop, "stop", 40000 + i);
+        }
+    }
+
+
+    /**
+     * Serialize the document.
+     *
+     * @return The formatted XML text
+     * @throws TransformerException Could not serialize the document
+     */
+    @Benchmark
+    public String serialize () throws TransformerException
+    {
+        return XMLUtils.toString (this.document);
+    }
+}
@@ -0,0 +1,489 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark.roundtrip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import de.mossgrabers.convertwithmoss.core.FormatDescriptor;
+import de.mossgrabers.convertwithmoss.core.FormatRegistry;
+import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
+import de.mossgrabers.convertwithmoss.core.INotifier;
+import de.mossgrabers.convertwithmoss.core.creator.ICreator;
+import de.mossgrabers.convertwithmoss.core.detector.IDetector;
+
+
+/**
+ * Converts the sources of the {@link SyntheticLibrary} with every creator, reads the result back
+ * with the detector of the same format (if there is one) and compares the description of what was
+ * read (see {@link RoundTripManifest}) with the golden manifest of the format. This finds the
+ * changes of a creator or detector which alter the written content, e.g. a moved loop or different
+ * audio data, without requiring a sample library. Additionally, the time to write the sources is
+ * measured for each format.
+ * <p>
+ * The parameters are the folder which contains the golden manifests (one file per format, named
+ * after the prefix of the format) and the folder into which the formats are written. The system
+ * property 'roundtrip.formats' restricts the run to the formats whose prefix matches the given
+ * regular expression. Setting the system property 'roundtrip.update' to true creates or replaces
+ * the golden manifests, e.g. after an intended change of a format; otherwise the golden folder is
+ * never written. The run fails if the result of a format differs from its golden manifest or if
+ * there is no golden manifest for it; the actual description is then written next to the written
+ * files of the format. Formats which are known to fail are still written (to measure them) but not
+ * compared and have no golden manifest, since it would only freeze the failure; their reason is
+ * printed instead. Formats which cannot run in the harness at all are excluded with their reason.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class RoundTripHarness
+{
+    private static final String                           THROUGHPUT_FILENAME = "round-trip-throughput.csv";
+    private static final long                             TIMEOUT_MINUTES     = 5;
+
+    /**
+     * The parameters of the detectors which have no usable default on the command line, by the
+     * prefix of the creator. The WAV files need the patterns to find the velocity layers and the
+     * left channels in the names of the zones of the {@link SyntheticLibrary}.
+     */
+    private static final Map<String, Map<String, String>> DETECTOR_PARAMETERS = Map.of ("Wav", Map.of ("samplefileDetectionPattern", "_ms*_", "samplefileMonoSplitPattern", "_L"));
+
+    /**
+     * The formats whose round-trip is known to fail, by the prefix of the creator, with the reason.
+     * Remove the entry when the reason is fixed and create the golden manifest.
+     */
+    private static final Map<String, String>              KNOWN_FAILURES      = Map.of ("distingEX", "The creator writes the name of the sample folder after the 80 parameters but the detector reads it before them, therefore it does not find the samples.");
+
+    /**
+     * The formats which are not run at all, by the prefix of the creator, with the reason.
+     */
+    private static final Map<String, String>              EXCLUDED            = Map.of (
+            // The creator needs the Maschine version to write on the command line, without it the
+            // settings are rejected (IDS_NI_MASCHINE_ONLY_V1_NOT_SUPPORTED) and nothing is written,
+            // therefore there would be nothing to compare
+            "Maschine", "The Maschine version to write has no default on the command line, nothing is written without it.");
+
+
+    /** The result of the round-trip of one format. */
+    private enum Status
+    {
+        /** The result matches the golden manifest. */
+        OK,
+        /** The result differs from the golden manifest. */
+        DIFFERENT,
+        /** There is no golden manifest. */
+        MISSING,
+        /** There was no golden manifest, it was created. */
+        NEW,
+        /** The golden manifest was replaced. */
+        UPDATED,
+        /** The round-trip is known to fail, it is not compared. */
+        KNOWN_FAILURE,
+        /** The format is not run. */
+        EXCLUDED
+    }
+
+
+    /**
+     * The measured values of one format.
+     *
+     * @param prefix The prefix of the format
+     * @param status The result of the comparison with the golden manifest
+     * @param frames The number of sample frames of all written sources
+     * @param writeMillis The time to write all sources
+     * @param readMillis The time to read back the written sources, -1 if there is no detector
+     */
+    private record FormatResult (String prefix, Status status, long frames, long writeMillis, long readMillis)
+    {
+        /**
+         * Get the number of written sample frames per second.
+         *
+         * @return The frames per second
+         */
+        long framesPerSecond ()
+        {
+            return this.frames * 1000 / Math.max (1, this.writeMillis);
+        }
+    }
+
+
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private RoundTripHarness ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Run the round-trip of all formats.
+     *
+     * @param args The folder with the golden manifests and the output folder
+     * @throws IOException The result of a format differs from its golden manifest, a golden
+     *             manifest is missing or a file could not be read or written
+     * @throws InterruptedException Waiting for a detector was interrupted
+     */
+    public static void main (final String [] args) throws IOException, InterruptedException
+    {
+        if (args.length != 2)
+            throw new IllegalArgumentException ("Usage: RoundTripHarness GOLDEN_FOLDER OUTPUT_FOLDER");
+
+        final File goldenFolder = new File (args[0]);
+        final File outputFolder = new File (args[1]);
+        final String formats = System.getProperty ("roundtrip.formats", "");
+        final Pattern formatPattern = formats.isBlank () ? null : Pattern.compile (formats, Pattern.CASE_INSENSITIVE);
+        final boolean update = Boolean.getBoolean ("roundtrip.update");
+
+        if (update)
+            Files.createDirectories (goldenFolder.toPath ());
+        Files.createDirectories (outputFolder.toPath ());
+
+        final List<FormatResult> results = new ArrayList<> ();
+        for (final FormatDescriptor<ICreator<?>> descriptor: FormatRegistry.getCreators ())
+            if (formatPattern == null || formatPattern.matcher (descriptor.prefix ()).matches ())
+            {
+                if (EXCLUDED.containsKey (descriptor.prefix ()))
+                    results.add (new FormatResult (descriptor.prefix (), Status.EXCLUDED, 0, 0, -1));
+                else
+                    results.add (runFormat (descriptor, goldenFolder, outputFolder, update));
+            }
+
+        writeThroughput (new File (outputFolder, THROUGHPUT_FILENAME), results);
+
+        final List<String> different = new ArrayList<> ();
+        final List<String> missing = new ArrayList<> ();
+        for (final FormatResult result: results)
+        {
+            System.out.println (String.format (Locale.US, "%-16s %-13s %12d frames/s  write %6d ms  read %6d ms", result.prefix (), result.status (), Long.valueOf (result.framesPerSecond ()), Long.valueOf (result.writeMillis ()), Long.valueOf (result.readMillis ())));
+            if (result.status () == Status.KNOWN_FAILURE)
+                System.out.println ("    " + KNOWN_FAILURES.get (result.prefix ()));
+            else if (result.status () == Status.EXCLUDED)
+                System.out.println ("    " + EXCLUDED.get (result.prefix ()));
+            else if (result.status () == Status.DIFFERENT)
+                different.add (result.prefix ());
+            else if (result.status () == Status.MISSING)
+                missing.add (result.prefix ());
+        }
+
+        final StringBuilder failure = new StringBuilder ();
+        if (!different.isEmpty ())
+            failure.append ("The round-trip of these formats differs from the golden manifest: ").append (different).append (". ");
+        if (!missing.isEmpty ())
+            failure.append ("There is no golden manifest for these formats, create it with -Droundtrip.update=true: ").append (missing).append (". ");
+        if (!failure.isEmpty ())
+            throw new IOException (failure.append ("The actual results are in ").append (outputFolder.getAbsolutePath ()).toString ());
+    }
+
+
+    /**
+     * Write the synthetic sources with the creator of a format, read them back and compare the
+     * result with the golden manifest.
+     *
+     * @param descriptor The description of the creator
+     * @param goldenFolder The folder with the golden manifests
+     * @param outputFolder The output folder
+     * @param update If true, the golden manifest is created or replaced
+     * @return The result
+     * @throws IOException Could not read or write a file
+     * @throws InterruptedException Waiting for the detector was interrupted
+     */
+    private static FormatResult runFormat (final FormatDescriptor<ICreator<?>> descriptor, final File goldenFolder, final File outputFolder, final boolean update) throws IOException, InterruptedException
+    {
+        final String prefix = descriptor.prefix ();
+        final File formatFolder = new File (outputFolder, prefix);
+        deleteRecursively (formatFolder.toPath ());
+        Files.createDirectories (formatFolder.toPath ());
+
+        final List<String> lines = new ArrayList<> ();
+
+        // Write all sources
+        final HarnessNotifier writeNotifier = new HarnessNotifier (formatFolder);
+        final ICreator<?> creator = descriptor.create (writeNotifier);
+        final List<IMultisampleSource> sources = SyntheticLibrary.createSources ();
+        final long frames = SyntheticLibrary.countFrames (sources);
+        final long writeStart = System.nanoTime ();
+        if (creator.getSettings ().checkSettingsCLI (writeNotifier, new HashMap<> ()))
+            for (final IMultisampleSource source: sources)
+                try
+                {
+                    creator.createPreset (formatFolder, source);
+                }
+                catch (final IOException | RuntimeException ex)
+                {
+                    writeNotifier.logError (ex);
+                }
+        final long writeMillis = (System.nanoTime () - writeStart) / 1_000_000;
+        creator.shutdown ();
+        for (final String error: writeNotifier.getErrors ())
+            lines.add ("write error " + error);
+
+        // Read them back
+        long readMillis = -1;
+        final Optional<FormatDescriptor<IDetector<?>>> detectorDescriptor = findDetector (descriptor);
+        if (detectorDescriptor.isEmpty ())
+            lines.add ("no detector");
+        else
+        {
+            final HarnessNotifier readNotifier = new HarnessNotifier (formatFolder);
+            final IDetector<?> detector = detectorDescriptor.get ().create (readNotifier);
+            final List<IMultisampleSource> readSources = Collections.synchronizedList (new ArrayList<> ());
+            final long readStart = System.nanoTime ();
+            if (detector.getSettings ().checkSettingsCLI (readNotifier, new HashMap<> (DETECTOR_PARAMETERS.getOrDefault (prefix, Map.of ()))))
+            {
+                detector.detect (formatFolder, null, readSources::add, _ -> {
+                    // Performances are not written
+                }, false);
+                if (!readNotifier.awaitFinished ())
+                {
+                    detector.cancel ();
+                    readNotifier.logError ("timeout");
+                }
+            }
+            readMillis = (System.nanoTime () - readStart) / 1_000_000;
+            detector.shutdown ();
+
+            lines.addAll (RoundTripManifest.describe (readSources));
+            for (final String error: readNotifier.getErrors ())
+                lines.add ("read error " + error);
+        }
+
+        if (KNOWN_FAILURES.containsKey (prefix))
+        {
+            Files.write (new File (outputFolder, prefix + ".actual.txt").toPath (), lines, StandardCharsets.UTF_8);
+            return new FormatResult (prefix, Status.KNOWN_FAILURE, frames, writeMillis, readMillis);
+        }
+        return new FormatResult (prefix, compare (lines, new File (goldenFolder, prefix + ".txt"), new File (outputFolder, prefix + ".actual.txt"), update), frames, writeMillis, readMillis);
+    }
+
+
+    /**
+     * Compare the description with the golden manifest.
+     *
+     * @param lines The description
+     * @param goldenFile The golden manifest
+     * @param actualFile Where to write the description if it differs or if there is no golden
+     *            manifest
+     * @param update If true, the golden manifest is created or replaced
+     * @return The result of the comparison
+     * @throws IOException Could not read or write the manifest
+     */
+    private static Status compare (final List<String> lines, final File goldenFile, final File actualFile, final boolean update) throws IOException
+    {
+        Files.deleteIfExists (actualFile.toPath ());
+        final boolean exists = goldenFile.exists ();
+        if (update)
+        {
+            Files.write (goldenFile.toPath (), lines, StandardCharsets.UTF_8);
+            return exists ? Status.UPDATED : Status.NEW;
+        }
+        if (!exists)
+        {
+            Files.write (actualFile.toPath (), lines, StandardCharsets.UTF_8);
+            return Status.MISSING;
+        }
+
+        if (Files.readAllLines (goldenFile.toPath (), StandardCharsets.UTF_8).equals (lines))
+            return Status.OK;
+        Files.write (actualFile.toPath (), lines, StandardCharsets.UTF_8);
+        return Status.DIFFERENT;
+    }
+
+
+    /**
+     * Find the detector of the format of a creator. Most formats use the same prefix for both, the
+     * others are matched by their name.
+     *
+     * @param creatorDescriptor The description of the creator
+     * @return The description of the detector, empty if the format cannot be read
+     */
+    private static Optional<FormatDescriptor<IDetector<?>>> findDetector (final FormatDescriptor<ICreator<?>> creatorDescriptor)
+    {
+        for (final FormatDescriptor<IDetector<?>> descriptor: FormatRegistry.getDetectors ())
+            if (descriptor.name ().equals (creatorDescriptor.name ()))
+                return Optional.of (descriptor);
+        return FormatRegistry.findDetector (creatorDescriptor.prefix ());
+    }
+
+
+    /**
+     * Write the measured values as a CSV file.
+     *
+     * @param file The file to write
+     * @param results The measured values
+     * @throws IOException Could not write the file
+     */
+    private static void writeThroughput (final File file, final List<FormatResult> results) throws IOException
+    {
+        try (final PrintWriter writer = new PrintWriter (file, StandardCharsets.UTF_8))
+        {
+            writer.println ("Format,Status,Frames,Write (ms),Frames per second,Read (ms)");
+            for (final FormatResult result: results)
+                writer.println (String.format (Locale.US, "%s,%s,%d,%d,%d,%d", result.prefix (), result.status (), Long.valueOf (result.frames ()), Long.valueOf (result.writeMillis ()), Long.valueOf (result.framesPerSecond ()), Long.valueOf (result.readMillis ())));
+        }
+    }
+
+
+    /**
+     * Delete a folder with all of its content.
+     *
+     * @param folder The folder, nothing happens if it does not exist
+     * @throws IOException Could not delete a file
+     */
+    private static void deleteRecursively (final Path folder) throws IOException
+    {
+        if (!Files.exists (folder))
+            return;
+        try (final Stream<Path> paths = Files.walk (folder))
+        {
+            for (final Path path: paths.sorted (Comparator.reverseOrder ()).toList ())
+                Files.delete (path);
+        }
+    }
+
+
+    /**
+     * Collects the errors of a creator or detector and signals the end of a detection. The
+     * messages are not translated and the output folder is replaced in them, which makes them
+     * independent from the machine on which the harness runs.
+     */
+    private static final class HarnessNotifier implements INotifier
+    {
+        private final String       outputPath;
+        private final List<String> errors   = Collections.synchronizedList (new ArrayList<> ());
+        private final Semaphore    finished = new Semaphore (0);
+
+
+        /**
+         * Constructor.
+         *
+         * @param outputFolder The output folder of the format
+         */
+        HarnessNotifier (final File outputFolder)
+        {
+            this.outputPath = outputFolder.getAbsolutePath ();
+        }
+
+
+        /**
+         * Get the collected errors.
+         *
+         * @return The errors
+         */
+        List<String> getErrors ()
+        {
+            synchronized (this.errors)
+            {
+                return new ArrayList<> (this.errors);
+            }
+        }
+
+
+        /**
+         * Wait until the detection has finished.
+         *
+         * @return True if it has finished, false if it did not finish in time
+         * @throws InterruptedException Waiting was interrupted
+         */
+        boolean awaitFinished () throws InterruptedException
+        {
+            return this.finished.tryAcquire (TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void log (final String messageID, final String... replaceStrings)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final String messageID, final String... replaceStrings)
+        {
+            final StringBuilder sb = new StringBuilder (messageID);
+            for (final String replaceString: replaceStrings)
+                sb.append (' ').append (replaceString);
+            this.addError (sb.toString ());
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final String messageID, final Throwable throwable)
+        {
+            this.addError (messageID + " " + describe (throwable));
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final Throwable throwable)
+        {
+            this.addError (describe (throwable));
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logError (final Throwable throwable, final boolean logExceptionStack)
+        {
+            this.addError (describe (throwable));
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void logText (final String text)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void updateButtonStates (final boolean canClose)
+        {
+            // Intentionally empty
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void finished (final boolean cancelled)
+        {
+            this.finished.release ();
+        }
+
+
+        private void addError (final String error)
+        {
+            this.errors.add (error.replace (this.outputPath, "<output>").replace ('\n', ' ').strip ());
+        }
+
+
+        private static String describe (final Throwable throwable)
+        {
+            final String message = throwable.getMessage ();
+            return throwable.getClass ().getSimpleName () + (message == null ? "" : ": " + message);
+        }
+    }
+}
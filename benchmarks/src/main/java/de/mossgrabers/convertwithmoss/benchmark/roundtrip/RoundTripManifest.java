@@ -0,0 +1,113 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark.roundtrip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
+import de.mossgrabers.convertwithmoss.core.model.IGroup;
+import de.mossgrabers.convertwithmoss.core.model.ISampleData;
+import de.mossgrabers.convertwithmoss.core.model.ISampleLoop;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.exception.ParseException;
+import de.mossgrabers.convertwithmoss.file.wav.FormatChunk;
+import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
+
+
+/**
+ * Describes the multi-sample sources which were read back from a written format as lines of text:
+ * the groups with their zones (key and velocity range, root key, play range, panning), the loops
+ * and the format and CRC32 checksum of the audio data of each zone. The description only contains
+ * what a detector reads, not how the files are stored, therefore it does not change if a creator
+ * writes the same content in a different way (e.g. with a different order of the chunks).
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class RoundTripManifest
+{
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private RoundTripManifest ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Describe the given sources.
+     *
+     * @param sources The sources
+     * @return The lines of the description
+     */
+    public static List<String> describe (final List<IMultisampleSource> sources)
+    {
+        final List<String> lines = new ArrayList<> ();
+        for (final IMultisampleSource source: sources)
+        {
+            lines.add ("source " + source.getName ());
+            for (final IGroup group: source.getGroups ())
+            {
+                lines.add ("  group " + group.getName ());
+                for (final ISampleZone zone: group.getSampleZones ())
+                    describeZone (zone, lines);
+            }
+        }
+        return lines;
+    }
+
+
+    /**
+     * Describe a zone with its loops and audio data.
+     *
+     * @param zone The zone
+     * @param lines Where to add the lines
+     */
+    private static void describeZone (final ISampleZone zone, final List<String> lines)
+    {
+        lines.add (String.format (Locale.US, "    zone %s keys=%d-%d root=%d velocity=%d-%d play=%d-%d panning=%.2f", zone.getName (), Integer.valueOf (zone.getKeyLow ()), Integer.valueOf (zone.getKeyHigh ()), Integer.valueOf (zone.getKeyRoot ()), Integer.valueOf (zone.getVelocityLow ()), Integer.valueOf (zone.getVelocityHigh ()), Integer.valueOf (zone.getStart ()), Integer.valueOf (zone.getStop ()), Double.valueOf (zone.getPanning ())));
+        for (final ISampleLoop loop: zone.getLoops ())
+            lines.add (String.format (Locale.US, "      loop %s %d-%d", loop.getType (), Integer.valueOf (loop.getStart ()), Integer.valueOf (loop.getEnd ())));
+        lines.add ("      audio " + describeAudio (zone.getSampleData ()));
+    }
+
+
+    /**
+     * Describe the format of the audio data and calculate the checksum of the sample frames.
+     *
+     * @param sampleData The sample data
+     * @return The description
+     */
+    private static String describeAudio (final Optional<ISampleData> sampleData)
+    {
+        if (sampleData.isEmpty ())
+            return "none";
+
+        try
+        {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream ();
+            sampleData.get ().writeSample (out);
+            final WaveFile waveFile = new WaveFile ();
+            waveFile.read (new ByteArrayInputStream (out.toByteArray ()), true);
+
+            final FormatChunk formatChunk = waveFile.getFormatChunk ();
+            final byte [] data = waveFile.getDataChunk ().getData ();
+            final CRC32 crc = new CRC32 ();
+            crc.update (data);
+            return String.format (Locale.US, "channels=%d rate=%d bits=%d bytes=%d crc=%08X", Integer.valueOf (formatChunk.getNumberOfChannels ()), Integer.valueOf (formatChunk.getSampleRate ()), Integer.valueOf (formatChunk.getSignificantBitsPerSample ()), Integer.valueOf (data.length), Long.valueOf (crc.getValue ()));
+        }
+        catch (final IOException | ParseException ex)
+        {
+            return "error " + ex.getClass ().getSimpleName ();
+        }
+    }
+}
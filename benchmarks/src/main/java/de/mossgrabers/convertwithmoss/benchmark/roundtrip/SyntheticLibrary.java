@@ -0,0 +1,254 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.benchmark.roundtrip;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import de.mossgrabers.convertwithmoss.benchmark.SyntheticSignals;
+import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
+import de.mossgrabers.convertwithmoss.core.detector.DefaultMultisampleSource;
+import de.mossgrabers.convertwithmoss.core.model.IGroup;
+import de.mossgrabers.convertwithmoss.core.model.ISampleLoop;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.core.model.enumeration.LoopType;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultAudioMetadata;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultGroup;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleLoop;
+import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZone;
+import de.mossgrabers.convertwithmoss.core.model.implementation.InMemorySampleData;
+import de.mossgrabers.convertwithmoss.core.utils.NoteParser;
+
+
+/**
+ * Creates the multi-sample sources of the round-trip harness. The sources cover the cases in which
+ * the formats differ the most: looped mono tones over the whole keyboard, velocity layers of stereo
+ * samples, split stereo zones (two hard panned mono zones per key range) and bit depths and sample
+ * rates which most formats need to convert. The audio is created from {@link SyntheticSignals},
+ * each zone with a different signal, therefore the sources are identical on every run. The names
+ * of the zones end with their root note and contain the velocity layer and the channel in the
+ * notation of the sample file detection, which allows reading back the written WAV files.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class SyntheticLibrary
+{
+    private static final Date CREATION_DATE = new Date (1_735_689_600_000L);
+
+
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private SyntheticLibrary ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Create all sources.
+     *
+     * @return The sources
+     */
+    public static List<IMultisampleSource> createSources ()
+    {
+        return List.of (createLoopedTones (), createVelocityLayers (), createSplitStereo (), createOddBitDepths ());
+    }
+
+
+    /**
+     * Get the number of sample frames of all zones of the given sources.
+     *
+     * @param sources The sources
+     * @return The number of frames
+     * @throws IOException Could not read the audio metadata
+     */
+    public static long countFrames (final List<IMultisampleSource> sources) throws IOException
+    {
+        long frames = 0;
+        for (final IMultisampleSource source: sources)
+            for (final IGroup group: source.getGroups ())
+                for (final ISampleZone zone: group.getSampleZones ())
+                    if (zone.getSampleData ().isPresent ())
+                        frames += zone.getSampleData ().get ().getAudioMetadata ().getNumberOfSamples ();
+        return frames;
+    }
+
+
+    /**
+     * 4 mono zones with 16 bit which cover 4 octaves, each with a forward sustain loop.
+     *
+     * @return The source
+     */
+    private static IMultisampleSource createLoopedTones ()
+    {
+        final IGroup group = new DefaultGroup ("Tones");
+        for (int i = 0; i < 4; i++)
+        {
+            final int keyLow = 36 + i * 12;
+            final ISampleZone zone = createZone ("Tone_" + NoteParser.formatNoteSharps (keyLow + 6), keyLow, keyLow + 11, keyLow + 6, 1, 44100, 16, 22050, i);
+            final ISampleLoop loop = new DefaultSampleLoop ();
+            loop.setType (LoopType.FORWARDS);
+            loop.setStart (11025);
+            loop.setEnd (21000);
+            zone.addLoop (loop);
+            group.addSampleZone (zone);
+        }
+        return createSource ("Looped Tones", List.of (group));
+    }
+
+
+    /**
+     * 3 velocity layers (one group each) of 2 stereo zones with 24 bit.
+     *
+     * @return The source
+     */
+    private static IMultisampleSource createVelocityLayers ()
+    {
+        final String [] layerNames =
+        {
+            "Soft",
+            "Medium",
+            "Hard"
+        };
+        final List<IGroup> groups = new ArrayList<> ();
+        for (int layer = 0; layer < layerNames.length; layer++)
+        {
+            final IGroup group = new DefaultGroup (layerNames[layer]);
+            for (int i = 0; i < 2; i++)
+            {
+                final int keyLow = 48 + i * 12;
+                final ISampleZone zone = createZone ("Velocity_" + layerNames[layer] + "_ms" + (layer + 1) + "_" + NoteParser.formatNoteSharps (keyLow + 6), keyLow, keyLow + 11, keyLow + 6, 2, 44100, 24, 11025, 10 + layer * 2 + i);
+                zone.setVelocityLow (layer * 42 + 1);
+                zone.setVelocityHigh (layer == 2 ? 127 : (layer + 1) * 42);
+                group.addSampleZone (zone);
+            }
+            groups.add (group);
+        }
+        return createSource ("Velocity Layers", groups);
+    }
+
+
+    /**
+     * 2 key ranges, each with a hard left and a hard right panned mono zone.
+     *
+     * @return The source
+     */
+    private static IMultisampleSource createSplitStereo ()
+    {
+        final IGroup group = new DefaultGroup ("Split");
+        for (int i = 0; i < 2; i++)
+        {
+            final int keyLow = 48 + i * 12;
+            for (int side = 0; side < 2; side++)
+            {
+                final ISampleZone zone = createZone ("Split_" + NoteParser.formatNoteSharps (keyLow + 6) + (side == 0 ? "_L" : "_R"), keyLow, keyLow + 11, keyLow + 6, 1, 44100, 16, 11025, 20 + i * 2 + side);
+                zone.setPanning (side == 0 ? -1 : 1);
+                group.addSampleZone (zone);
+            }
+        }
+        return createSource ("Split Stereo", List.of (group));
+    }
+
+
+    /**
+     * A mono zone with 8 bit at 22.05kHz and a stereo zone with 24 bit at 48kHz.
+     *
+     * @return The source
+     */
+    private static IMultisampleSource createOddBitDepths ()
+    {
+        final IGroup group = new DefaultGroup ("Odd");
+        group.addSampleZone (createZone ("Odd_Low_" + NoteParser.formatNoteSharps (48), 36, 59, 48, 1, 22050, 8, 8000, 30));
+        final ISampleZone zone = createZone ("Odd_High_" + NoteParser.formatNoteSharps (72), 60, 96, 72, 2, 48000, 24, 12000, 31);
+        final ISampleLoop loop = new DefaultSampleLoop ();
+        loop.setType (LoopType.ALTERNATING);
+        loop.setStart (4000);
+        loop.setEnd (11000);
+        zone.addLoop (loop);
+        group.addSampleZone (zone);
+        return createSource ("Odd Bit Depths", List.of (group));
+    }
+
+
+    /**
+     * Create a source.
+     *
+     * @param name The name of the source
+     * @param groups The groups of the source
+     * @return The source
+     */
+    private static IMultisampleSource createSource (final String name, final List<IGroup> groups)
+    {
+        final DefaultMultisampleSource source = new DefaultMultisampleSource (new File (name), new String [0], name);
+        source.setGroups (groups);
+        source.getMetadata ().setCreator ("ConvertWithMoss");
+        source.getMetadata ().setCreationDateTime (CREATION_DATE);
+        return source;
+    }
+
+
+    /**
+     * Create a zone with synthetic audio data.
+     *
+     * @param name The name of the zone
+     * @param keyLow The lowest key
+     * @param keyHigh The highest key
+     * @param keyRoot The root key
+     * @param numberOfChannels The number of channels
+     * @param sampleRate The sample rate
+     * @param bitsPerSample The bit resolution, 8, 16 or 24
+     * @param numberOfFrames The length in sample frames
+     * @param variant Selects the signal, each zone should use a different one
+     * @return The zone
+     */
+    private static ISampleZone createZone (final String name, final int keyLow, final int keyHigh, final int keyRoot, final int numberOfChannels, final int sampleRate, final int bitsPerSample, final int numberOfFrames, final int variant)
+    {
+        final DefaultAudioMetadata audioMetadata = new DefaultAudioMetadata (numberOfChannels, sampleRate, bitsPerSample, numberOfFrames);
+        final ISampleZone zone = new DefaultSampleZone (name, new InMemorySampleData (audioMetadata, createPCM (numberOfChannels, numberOfFrames, bitsPerSample, variant)));
+        zone.setKeyLow (keyLow);
+        zone.setKeyHigh (keyHigh);
+        zone.setKeyRoot (keyRoot);
+        zone.setStart (0);
+        zone.setStop (numberOfFrames);
+        return zone;
+    }
+
+
+    /**
+     * Create interleaved little-endian PCM data like it is stored in a WAV file, 8 bit data is
+     * unsigned.
+     *
+     * @param numberOfChannels The number of channels
+     * @param numberOfFrames The length in sample frames
+     * @param bitsPerSample The resolution of the samples, 8, 16 or 24
+     * @param variant Selects the signal
+     * @return The PCM data
+     */
+    private static byte [] createPCM (final int numberOfChannels, final int numberOfFrames, final int bitsPerSample, final int variant)
+    {
+        final double maxValue = (1 << bitsPerSample - 1) - 1;
+        final int bytesPerSample = bitsPerSample / 8;
+        final byte [] data = new byte [numberOfChannels * numberOfFrames * bytesPerSample];
+        for (int channel = 0; channel < numberOfChannels; channel++)
+        {
+            final double [] signal = SyntheticSignals.createSignal (numberOfFrames, variant * 2 + channel);
+            int position = channel * bytesPerSample;
+            for (int i = 0; i < numberOfFrames; i++)
+            {
+                int value = (int) Math.round (signal[i] * maxValue);
+                if (bitsPerSample == 8)
+                    value += 128;
+                for (int b = 0; b < bytesPerSample; b++)
+                    data[position + b] = (byte) (value >> 8 * b);
+                position += numberOfChannels * bytesPerSample;
+            }
+        }
+        return data;
+    }
+}
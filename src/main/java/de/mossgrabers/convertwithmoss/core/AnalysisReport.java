@@ -0,0 +1,519 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
+import de.mossgrabers.convertwithmoss.core.model.IFileBasedSampleData;
+import de.mossgrabers.convertwithmoss.core.model.IGroup;
+import de.mossgrabers.convertwithmoss.core.model.IMetadata;
+import de.mossgrabers.convertwithmoss.core.model.ISampleData;
+import de.mossgrabers.convertwithmoss.core.model.ISampleLoop;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+
+
+/**
+ * Writes the analysis of a sample library as JSON Lines: one JSON object per line for every found
+ * multi-sample, followed by one object with the totals of the whole run. A record describes what
+ * a library audit needs to know about a preset: the number of its groups and zones, the keys and
+ * velocities which no zone covers, the loops, the formats of the samples, the samples which are
+ * missing and the category and keywords. The records are written as soon as a multi-sample is
+ * inspected, which can be done on several threads at the same time, so nothing is kept in memory
+ * but the totals and the report file can be processed while it is still written.
+ * <p>
+ * Every record has a 'type': 'preset' for a multi-sample, 'unread' for a source file which did not
+ * contain any multi-sample (e.g. since it could not be parsed) and 'totals' for the last record.
+ * The records of the files appear in the order in which the files were read, which is not stable
+ * if they are read in parallel. The field names are intentionally not translated, since they are
+ * read by other applications.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class AnalysisReport
+{
+    private static final int             NUMBER_OF_NOTES           = 128;
+
+    private final ObjectMapper           mapper                    = new ObjectMapper ();
+    private final File                   reportFile;
+    private final File                   sourceFolder;
+    private final String                 format;
+    private final Writer                 writer;
+
+    private final LongAdder              files                     = new LongAdder ();
+    private final LongAdder              unreadFiles               = new LongAdder ();
+    private final LongAdder              presets                   = new LongAdder ();
+    private final LongAdder              zones                     = new LongAdder ();
+    private final LongAdder              presetsWithKeyGaps        = new LongAdder ();
+    private final LongAdder              presetsWithVelocityGaps   = new LongAdder ();
+    private final LongAdder              presetsWithLoops          = new LongAdder ();
+    private final LongAdder              presetsWithMissingSamples = new LongAdder ();
+    private final LongAdder              missingSamples            = new LongAdder ();
+    private final Map<String, LongAdder> sampleFormats             = new ConcurrentHashMap<> ();
+    private final Map<String, LongAdder> categories                = new ConcurrentHashMap<> ();
+
+
+    /**
+     * The totals of a run.
+     *
+     * @param files The number of read source files
+     * @param unreadFiles The number of source files which did not contain a multi-sample
+     * @param presets The number of found multi-samples
+     * @param zones The number of zones of all multi-samples
+     * @param presetsWithKeyGaps The number of multi-samples with keys which no zone covers
+     * @param presetsWithVelocityGaps The number of multi-samples with velocities which no zone
+     *            covers on a key which is covered
+     * @param presetsWithMissingSamples The number of multi-samples which miss samples
+     */
+    public record Totals (long files, long unreadFiles, long presets, long zones, long presetsWithKeyGaps, long presetsWithVelocityGaps, long presetsWithMissingSamples)
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Constructor. Creates the report file.
+     *
+     * @param reportFile The file into which to write the report
+     * @param sourceFolder The source folder, the paths of the source files are written relative to
+     *            it
+     * @param format The name of the source format
+     * @throws IOException Could not create the report file
+     */
+    public AnalysisReport (final File reportFile, final File sourceFolder, final String format) throws IOException
+    {
+        this.reportFile = reportFile;
+        this.sourceFolder = sourceFolder;
+        this.format = format;
+
+        final File parent = reportFile.getAbsoluteFile ().getParentFile ();
+        if (parent != null)
+            Files.createDirectories (parent.toPath ());
+        this.writer = Files.newBufferedWriter (reportFile.toPath (), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Get the file into which the report is written.
+     *
+     * @return The file
+     */
+    public File getReportFile ()
+    {
+        return this.reportFile;
+    }
+
+
+    /**
+     * Count a source file which was read. Can be called from several threads.
+     */
+    public void addFile ()
+    {
+        this.files.increment ();
+    }
+
+
+    /**
+     * Add the record of a source file which was read but did not contain any multi-sample. Can be
+     * called from several threads.
+     *
+     * @param sourceFile The source file
+     * @throws IOException Could not write the record
+     */
+    public void addUnreadFile (final File sourceFile) throws IOException
+    {
+        this.unreadFiles.increment ();
+
+        final ObjectNode record = this.mapper.createObjectNode ();
+        record.put ("type", "unread");
+        record.put ("file", this.getRelativePath (sourceFile));
+        record.put ("format", this.format);
+        this.write (record);
+    }
+
+
+    /**
+     * Inspect a multi-sample and add its record. Can be called from several threads.
+     *
+     * @param multisampleSource The multi-sample
+     * @param performanceName The name of the performance which contains the multi-sample, null if
+     *            it is not part of a performance
+     * @throws IOException Could not write the record
+     */
+    public void add (final IMultisampleSource multisampleSource, final String performanceName) throws IOException
+    {
+        final ObjectNode record = this.mapper.createObjectNode ();
+        record.put ("type", "preset");
+        record.put ("file", this.getRelativePath (multisampleSource.getSourceFile ()));
+        record.put ("format", this.format);
+        if (performanceName != null)
+            record.put ("performance", performanceName);
+        record.put ("name", multisampleSource.getName ());
+
+        final IMetadata metadata = multisampleSource.getMetadata ();
+        final String category = metadata.getCategory ();
+        if (category != null && !category.isBlank ())
+        {
+            record.put ("category", category);
+            count (this.categories, category);
+        }
+        final ArrayNode keywordsNode = record.putArray ("keywords");
+        final String [] keywords = metadata.getKeywords ();
+        if (keywords != null)
+            for (final String keyword: keywords)
+                keywordsNode.add (keyword);
+
+        final List<IGroup> groups = multisampleSource.getGroups ();
+        final List<ISampleZone> allZones = new ArrayList<> ();
+        for (final IGroup group: groups)
+            allZones.addAll (group.getSampleZones ());
+        record.put ("groups", groups.size ());
+        record.put ("zones", allZones.size ());
+        this.presets.increment ();
+        this.zones.add (allZones.size ());
+
+        addCoverage (record, allZones);
+        final boolean hasKeyGaps = !record.get ("keyGaps").isEmpty ();
+        final boolean hasVelocityGaps = !record.get ("velocityGaps").isEmpty ();
+        final boolean hasLoops = addLoops (record.putObject ("loops"), allZones);
+        final int numMissing = this.addSamples (record, allZones);
+
+        if (hasKeyGaps)
+            this.presetsWithKeyGaps.increment ();
+        if (hasVelocityGaps)
+            this.presetsWithVelocityGaps.increment ();
+        if (hasLoops)
+            this.presetsWithLoops.increment ();
+        if (numMissing > 0)
+        {
+            this.presetsWithMissingSamples.increment ();
+            this.missingSamples.add (numMissing);
+        }
+
+        this.write (record);
+    }
+
+
+    /**
+     * Write the totals as the last record and close the report.
+     *
+     * @param cancelled True if the run was cancelled, the totals then only cover the part which was
+     *            analyzed
+     * @return The totals
+     * @throws IOException Could not write the totals
+     */
+    public Totals finish (final boolean cancelled) throws IOException
+    {
+        final Totals totals = new Totals (this.files.sum (), this.unreadFiles.sum (), this.presets.sum (), this.zones.sum (), this.presetsWithKeyGaps.sum (), this.presetsWithVelocityGaps.sum (), this.presetsWithMissingSamples.sum ());
+
+        final ObjectNode record = this.mapper.createObjectNode ();
+        record.put ("type", "totals");
+        record.put ("format", this.format);
+        record.put ("cancelled", cancelled);
+        record.put ("files", totals.files ());
+        record.put ("unreadFiles", totals.unreadFiles ());
+        record.put ("presets", totals.presets ());
+        record.put ("zones", totals.zones ());
+        record.put ("presetsWithKeyGaps", totals.presetsWithKeyGaps ());
+        record.put ("presetsWithVelocityGaps", totals.presetsWithVelocityGaps ());
+        record.put ("presetsWithLoops", this.presetsWithLoops.sum ());
+        record.put ("presetsWithMissingSamples", totals.presetsWithMissingSamples ());
+        record.put ("missingSamples", this.missingSamples.sum ());
+
+        final ArrayNode formatsNode = record.putArray ("sampleFormats");
+        for (final Map.Entry<String, LongAdder> entry: new TreeMap<> (this.sampleFormats).entrySet ())
+        {
+            final ObjectNode formatNode = formatsNode.addObject ();
+            addSampleFormat (formatNode, entry.getKey ());
+            formatNode.put ("zones", entry.getValue ().sum ());
+        }
+        final ObjectNode categoriesNode = record.putObject ("categories");
+        for (final Map.Entry<String, LongAdder> entry: new TreeMap<> (this.categories).entrySet ())
+            categoriesNode.put (entry.getKey (), entry.getValue ().sum ());
+
+        try
+        {
+            this.write (record);
+        }
+        finally
+        {
+            synchronized (this.writer)
+            {
+                this.writer.close ();
+            }
+        }
+        return totals;
+    }
+
+
+    /**
+     * Add the covered key range as well as the keys and velocities which are not covered by any
+     * zone. Only the gaps between the lowest and the highest covered key are reported, a preset
+     * which covers only a part of the keyboard is fine. A velocity gap is reported for a range of
+     * covered keys which have the same velocities uncovered.
+     *
+     * @param record The record to which to add the coverage
+     * @param zones All zones of the multi-sample
+     */
+    private static void addCoverage (final ObjectNode record, final List<ISampleZone> zones)
+    {
+        // The uncovered velocities of each key as a 128 bit mask
+        final long [] [] velocityMasks = new long [NUMBER_OF_NOTES] [];
+        for (final ISampleZone zone: zones)
+        {
+            final int keyLow = Math.max (0, zone.getKeyLow ());
+            final int keyHigh = zone.getKeyHigh () < 0 ? NUMBER_OF_NOTES - 1 : Math.min (NUMBER_OF_NOTES - 1, zone.getKeyHigh ());
+            final int velocityLow = Math.max (1, zone.getVelocityLow ());
+            final int velocityHigh = zone.getVelocityHigh () <= 0 ? NUMBER_OF_NOTES - 1 : Math.min (NUMBER_OF_NOTES - 1, zone.getVelocityHigh ());
+            for (int key = keyLow; key <= keyHigh; key++)
+            {
+                if (velocityMasks[key] == null)
+                    velocityMasks[key] = new long []
+                    {
+                        -1L,
+                        -1L
+                    };
+                for (int velocity = velocityLow; velocity <= velocityHigh; velocity++)
+                    velocityMasks[key][velocity >> 6] &= ~(1L << (velocity & 63));
+            }
+        }
+
+        int lowestKey = -1;
+        int highestKey = -1;
+        for (int key = 0; key < NUMBER_OF_NOTES; key++)
+            if (velocityMasks[key] != null)
+            {
+                if (lowestKey < 0)
+                    lowestKey = key;
+                highestKey = key;
+            }
+        if (lowestKey >= 0)
+            addRange (record.putObject ("keys"), lowestKey, highestKey);
+
+        final ArrayNode keyGapsNode = record.putArray ("keyGaps");
+        final ArrayNode velocityGapsNode = record.putArray ("velocityGaps");
+        if (lowestKey < 0)
+            return;
+
+        int key = lowestKey;
+        while (key <= highestKey)
+        {
+            int end = key;
+            if (velocityMasks[key] == null)
+            {
+                while (end + 1 <= highestKey && velocityMasks[end + 1] == null)
+                    end++;
+                addRange (keyGapsNode.addObject (), key, end);
+            }
+            else
+            {
+                while (end + 1 <= highestKey && velocityMasks[end + 1] != null && Arrays.equals (velocityMasks[key], velocityMasks[end + 1]))
+                    end++;
+                addVelocityGaps (velocityGapsNode, velocityMasks[key], key, end);
+            }
+            key = end + 1;
+        }
+    }
+
+
+    /**
+     * Add the uncovered velocity ranges of a range of keys.
+     *
+     * @param velocityGapsNode Where to add the gaps
+     * @param mask The uncovered velocities of the keys
+     * @param keyLow The lowest key of the range
+     * @param keyHigh The highest key of the range
+     */
+    private static void addVelocityGaps (final ArrayNode velocityGapsNode, final long [] mask, final int keyLow, final int keyHigh)
+    {
+        int velocity = 1;
+        while (velocity < NUMBER_OF_NOTES)
+        {
+            if (!isSet (mask, velocity))
+            {
+                velocity++;
+                continue;
+            }
+            int end = velocity;
+            while (end + 1 < NUMBER_OF_NOTES && isSet (mask, end + 1))
+                end++;
+            final ObjectNode gapNode = velocityGapsNode.addObject ();
+            addRange (gapNode.putObject ("keys"), keyLow, keyHigh);
+            addRange (gapNode.putObject ("velocities"), velocity, end);
+            velocity = end + 1;
+        }
+    }
+
+
+    /**
+     * Add the statistics of the loops.
+     *
+     * @param loopsNode Where to add the statistics
+     * @param zones All zones of the multi-sample
+     * @return True if at least one zone has a loop
+     */
+    private static boolean addLoops (final ObjectNode loopsNode, final List<ISampleZone> zones)
+    {
+        int loopedZones = 0;
+        int numLoops = 0;
+        int shortest = Integer.MAX_VALUE;
+        int longest = 0;
+        final Map<String, Integer> types = new TreeMap<> ();
+        for (final ISampleZone zone: zones)
+        {
+            final List<ISampleLoop> loops = zone.getLoops ();
+            if (loops.isEmpty ())
+                continue;
+            loopedZones++;
+            for (final ISampleLoop loop: loops)
+            {
+                numLoops++;
+                final int length = Math.max (0, loop.getEnd () - loop.getStart ());
+                shortest = Math.min (shortest, length);
+                longest = Math.max (longest, length);
+                types.merge (loop.getType ().name ().toLowerCase (Locale.US), Integer.valueOf (1), Integer::sum);
+            }
+        }
+
+        loopsNode.put ("zones", loopedZones);
+        loopsNode.put ("loops", numLoops);
+        if (numLoops > 0)
+        {
+            loopsNode.put ("shortestFrames", shortest);
+            loopsNode.put ("longestFrames", longest);
+            final ObjectNode typesNode = loopsNode.putObject ("types");
+            for (final Map.Entry<String, Integer> entry: types.entrySet ())
+                typesNode.put (entry.getKey (), entry.getValue ().intValue ());
+        }
+        return loopedZones > 0;
+    }
+
+
+    /**
+     * Add the formats of the samples and the samples which are missing. A sample is missing if a
+     * zone has no sample at all or if the format of its sample cannot be read, e.g. since the file
+     * does not exist.
+     *
+     * @param record The record to which to add the samples
+     * @param zones All zones of the multi-sample
+     * @return The number of missing samples
+     */
+    private int addSamples (final ObjectNode record, final List<ISampleZone> zones)
+    {
+        final Map<String, Integer> formats = new TreeMap<> ();
+        final ArrayNode missingNode = this.mapper.createArrayNode ();
+        long frames = 0;
+        for (final ISampleZone zone: zones)
+        {
+            final Optional<ISampleData> sampleData = zone.getSampleData ();
+            if (sampleData.isEmpty ())
+            {
+                missingNode.add (zone.getName ());
+                continue;
+            }
+            try
+            {
+                final IAudioMetadata audioMetadata = sampleData.get ().getAudioMetadata ();
+                final String key = audioMetadata.getChannels () + ":" + audioMetadata.getSampleRate () + ":" + audioMetadata.getBitResolution ();
+                formats.merge (key, Integer.valueOf (1), Integer::sum);
+                count (this.sampleFormats, key);
+                frames += Math.max (0, audioMetadata.getNumberOfSamples ());
+            }
+            catch (final IOException | RuntimeException _)
+            {
+                missingNode.add (sampleData.get () instanceof final IFileBasedSampleData fileSampleData && fileSampleData.getFilename () != null ? fileSampleData.getFilename () : zone.getName ());
+            }
+        }
+
+        final ArrayNode formatsNode = record.putArray ("sampleFormats");
+        for (final Map.Entry<String, Integer> entry: formats.entrySet ())
+        {
+            final ObjectNode formatNode = formatsNode.addObject ();
+            addSampleFormat (formatNode, entry.getKey ());
+            formatNode.put ("zones", entry.getValue ().intValue ());
+        }
+        record.put ("frames", frames);
+        record.set ("missingSamples", missingNode);
+        return missingNode.size ();
+    }
+
+
+    /**
+     * Write one record as a line of the report.
+     *
+     * @param record The record
+     * @throws IOException Could not write the record
+     */
+    private void write (final ObjectNode record) throws IOException
+    {
+        final String line = this.mapper.writeValueAsString (record);
+        synchronized (this.writer)
+        {
+            this.writer.write (line);
+            this.writer.write ('\n');
+        }
+    }
+
+
+    private String getRelativePath (final File file)
+    {
+        if (file == null)
+            return "";
+        try
+        {
+            return this.sourceFolder.getAbsoluteFile ().toPath ().relativize (file.getAbsoluteFile ().toPath ()).toString ().replace ('\\', '/');
+        }
+        catch (final IllegalArgumentException _)
+        {
+            // A different root, e.g. another drive
+            return file.getAbsolutePath ();
+        }
+    }
+
+
+    private static void addSampleFormat (final ObjectNode formatNode, final String key)
+    {
+        final String [] parts = key.split (":");
+        formatNode.put ("channels", Integer.parseInt (parts[0]));
+        formatNode.put ("sampleRate", Integer.parseInt (parts[1]));
+        formatNode.put ("bits", Integer.parseInt (parts[2]));
+    }
+
+
+    private static void addRange (final ObjectNode rangeNode, final int low, final int high)
+    {
+        rangeNode.put ("low", low);
+        rangeNode.put ("high", high);
+    }
+
+
+    private static boolean isSet (final long [] mask, final int bit)
+    {
+        return (mask[bit >> 6] & 1L << (bit & 63)) != 0;
+    }
+
+
+    private static void count (final Map<String, LongAdder> counters, final String key)
+    {
+        counters.computeIfAbsent (key, _ -> new LongAdder ()).increment ();
+    }
+}
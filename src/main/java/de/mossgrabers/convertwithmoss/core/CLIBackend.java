@@ -5,21 +5,24 @@
 package de.mossgrabers.convertwithmoss.core;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
 
 import de.mossgrabers.convertwithmoss.core.creator.ICreator;
 import de.mossgrabers.convertwithmoss.core.detector.IDetector;
+import de.mossgrabers.convertwithmoss.core.detector.SourceTreeScanner;
 import de.mossgrabers.tools.ui.EndApplicationException;
 import de.mossgrabers.tools.ui.Functions;
 import picocli.CommandLine;
@@ -59,10 +62,23 @@ public class CLIBackend implements INotifier
         ALLOWED_BIT_DEPTHS.add (Integer.valueOf (8));
     }
 
-    private final Map<String, IDetector<?>> detectorsByName = new HashMap<> ();
-    private final Map<String, ICreator<?>>  creatorsByName  = new HashMap<> ();
-    private boolean                         hasFinished     = false;
-    private final ConverterBackend          backend;
+    /**
+     * A conversion which is completely set up from the command line arguments.
+     *
+     * @param detector The detector of the source format
+     * @param creator The creator of the destination format
+     * @param detectSettings The settings of the detection process
+     * @param detectPerformances If true, performances are detected otherwise presets
+     * @param onlyAnalyse True, if no files should be created
+     */
+    record Conversion (IDetector<?> detector, ICreator<?> creator, DetectSettings detectSettings, boolean detectPerformances, boolean onlyAnalyse)
+    {
+        // Intentionally empty
+    }
+
+    private boolean                hasFinished = false;
+    private final ConverterBackend backend;
+    private File                   metricsFile = null;
 
 
     /**
@@ -71,11 +87,6 @@ public class CLIBackend implements INotifier
     public CLIBackend ()
     {
         this.backend = new ConverterBackend (this);
-
-        for (final IDetector<?> detector: this.backend.getDetectors ())
-            this.detectorsByName.put (detector.getPrefix ().toLowerCase (), detector);
-        for (final ICreator<?> creator: this.backend.getCreators ())
-            this.creatorsByName.put (creator.getPrefix ().toLowerCase (), creator);
     }
 
 
@@ -90,35 +101,7 @@ public class CLIBackend implements INotifier
         {
             initStrings ();
 
-            final CommandSpec spec = CommandSpec.create ().name ("ConvertWithMoss");
-            spec.mixinStandardHelpOptions (true).version (Functions.getMessage ("TITLE"));
-
-            spec.addOption (OptionSpec.builder ("-s", "--source").paramLabel ("SOURCE").type (String.class).description ("The source format.").required (true).build ());
-            spec.addOption (OptionSpec.builder ("-d", "--destination").paramLabel ("DESTINATION").type (String.class).description ("The destination format.").required (true).build ());
-            spec.addOption (OptionSpec.builder ("-t", "--type").paramLabel ("TYPE").type (String.class).description ("Set to either 'preset' (the default if absent) or 'performance' (without the quotes).").build ());
-            spec.addOption (OptionSpec.builder ("-a", "--analyze").paramLabel ("ANALYZE").description ("If present, only analyzes the potential source files.").build ());
-            spec.addOption (OptionSpec.builder ("-ad", "--analyze-details").paramLabel ("ANALYZE_DETAILS").description ("Like --analyze, but additionally logs for every found multi-sample what it contains: the mapping of its zones, the sample format, loops, envelopes, LFOs and the filter. Only attributes which a source actually uses are logged, so searching the output finds the source files which use a specific feature.").build ());
-            spec.addOption (OptionSpec.builder ("-f", "--flat").paramLabel ("FLAT").description ("If present, the folder structure is not recreated in the output folder.").build ());
-            spec.addOption (OptionSpec.builder ("-l", "--library").paramLabel ("LIBRARY").type (String.class).description ("Name for the library. Set to create a library.").build ());
-            spec.addOption (OptionSpec.builder ("-p").paramLabel ("KEY=VALUE").description ("Key-value pairs in the form -pkey1=value1,key2=value2,...").required (false).arity ("0..*").type (Map.class).auxiliaryTypes (String.class, String.class).defaultValue (null).build ());
-            spec.addOption (OptionSpec.builder ("-P", "--machine-progress").paramLabel ("MACHINE_PROGRESS").description ("If present, the progress of the conversion is additionally written to the error output in a machine-readable form ('CWM_PROGRESS pct=<0..100> phase=<token> detail=<text>'), which allows a hosting application to display it. Can also be requested by setting the environment variable CWM_MACHINE_PROGRESS to 1.").build ());
-
-            // Processing parameters
-            spec.addOption (OptionSpec.builder ("-Ze", "--ProcessEnable").paramLabel ("PROCESS_ENABLE").type (Boolean.class).description ("Enables processing if set to true.").build ());
-            spec.addOption (OptionSpec.builder ("-Zn", "--ProcessNormalize").paramLabel ("PROCESS_NORMALIZE").type (Boolean.class).description ("Enables normalization if set to true and processing is enabled.").build ());
-            spec.addOption (OptionSpec.builder ("-Zm", "--ProcessMakeMono").paramLabel ("PROCESS_MAKE_MONO").type (Boolean.class).description ("Converts all samples to mono, if processing is enabled.").build ());
-            spec.addOption (OptionSpec.builder ("-Zt", "--ProcessTrim").paramLabel ("PROCESS_TRIM").type (Boolean.class).description ("Trims the start and end of all samples, if processing is enabled.").build ());
-            spec.addOption (OptionSpec.builder ("-Zx", "--ProcessMaxSamples").paramLabel ("PROCESS_MAX_SAMPLES").type (Integer.class).description ("Reduces the number of all samples to this maximum number, if processing is enabled.").build ());
-            spec.addOption (OptionSpec.builder ("-Zb", "--ProcessBitDepth").paramLabel ("PROCESS_BIT_DEPTH").type (Integer.class).description ("Reduces the bit-depth of all samples to this maximum value, if processing is enabled. Valid numbers are: 8, 16 and 24").build ());
-            spec.addOption (OptionSpec.builder ("-Zf", "--ProcessFrequency").paramLabel ("PROCESS_FREQUENCY").type (Integer.class).description ("Reduces the sample-rate of all samples to this maximum value, if processing is enabled. Valid numbers are: 48000, 44100, 32000, 31250, 30000, 28000, 27000, 24000, 22050, 16000, 12000, 11025 and 8000").build ());
-            spec.addOption (OptionSpec.builder ("-Za", "--ProcessAlwaysResample").paramLabel ("PROCESS_ALWAYS_RESAMPLE").type (Boolean.class).description ("Does as well up-sampling to the set sample frequency and bit depth, if enabled.").build ());
-            spec.addOption (OptionSpec.builder ("-Zl", "--ProcessLoopCrossfade").paramLabel ("PROCESS_LOOP_CROSSFADE").type (Integer.class).description ("Sets a fixed loop crossfade as a percentage. Valid values are 0-100.").build ());
-            spec.addOption (OptionSpec.builder ("-Zs", "--ProcessSnapLoops").paramLabel ("PROCESS_SNAP_LOOPS").type (Boolean.class).description ("Snaps forward loop boundaries to the nearest zero-crossing to remove loop clicks, if processing is enabled.").build ());
-            spec.addOption (OptionSpec.builder ("-Zp", "--ProcessTranspose").paramLabel ("PROCESS_TRANSPOSE").type (Integer.class).description ("Transposes playback by the given number of semitones (-24 to 24) by moving the sample root keys, if processing is enabled. The key ranges are not changed.").build ());
-
-            spec.addPositional (PositionalParamSpec.builder ().paramLabel ("SOURCE... DESTINATION_FOLDER").hideParamSyntax (true).type (List.class).auxiliaryTypes (File.class).index ("0..*").arity ("2..*").description ("The source folder to process or, instead, one or more source files to convert only these (e.g. by using a wildcard), followed by the destination folder to write to.").required (true).build ());
-
-            final CommandLine commandLine = new CommandLine (spec);
+            final CommandLine commandLine = new CommandLine (createCommandSpec ());
 
             commandLine.setExecutionStrategy (this::run);
             System.exit (commandLine.execute (arguments));
@@ -131,6 +114,52 @@ public class CLIBackend implements INotifier
     }
 
 
+    /**
+     * Create the specification of all options and parameters of a conversion.
+     *
+     * @return The specification
+     */
+    static CommandSpec createCommandSpec ()
+    {
+        final CommandSpec spec = CommandSpec.create ().name ("ConvertWithMoss");
+        spec.mixinStandardHelpOptions (true).version (Functions.getMessage ("TITLE"));
+
+        spec.addOption (OptionSpec.builder ("-s", "--source").paramLabel ("SOURCE").type (String.class).description ("The source format, or 'auto' to detect the format of each source file.").required (true).build ());
+        spec.addOption (OptionSpec.builder ("-d", "--destination").paramLabel ("DESTINATION").type (String.class).description ("The destination format.").required (true).build ());
+        spec.addOption (OptionSpec.builder ("-t", "--type").paramLabel ("TYPE").type (String.class).description ("Set to either 'preset' (the default if absent) or 'performance' (without the quotes).").build ());
+        spec.addOption (OptionSpec.builder ("-a", "--analyze").paramLabel ("ANALYZE").description ("If present, only analyzes the potential source files.").build ());
+        spec.addOption (OptionSpec.builder ("-ad", "--analyze-details").paramLabel ("ANALYZE_DETAILS").description ("Like --analyze, but additionally logs for every found multi-sample what it contains: the mapping of its zones, the sample format, loops, envelopes, LFOs and the filter. Only attributes which a source actually uses are logged, so searching the output finds the source files which use a specific feature.").build ());
+        spec.addOption (OptionSpec.builder ("-aj", "--analyze-json").paramLabel ("ANALYZE_JSON").type (File.class).description ("Like --analyze, but additionally writes one JSON record per line (JSON Lines) for every found multi-sample into the given file: the number of groups and zones, the keys and velocities which no zone covers, the loops, the sample formats, missing samples, the category and keywords. The last line contains the totals of the whole run. The source files are read on several threads, unless the source format reads folders instead of files, 'auto' is used or it is combined with --analyze-details or --render-previews.").build ());
+        spec.addOption (OptionSpec.builder ("-f", "--flat").paramLabel ("FLAT").description ("If present, the folder structure is not recreated in the output folder.").build ());
+        spec.addOption (OptionSpec.builder ("-l", "--library").paramLabel ("LIBRARY").type (String.class).description ("Name for the library. Set to create a library.").build ());
+        spec.addOption (OptionSpec.builder ("-p").paramLabel ("KEY=VALUE").description ("Key-value pairs in the form -pkey1=value1,key2=value2,...").required (false).arity ("0..*").type (Map.class).auxiliaryTypes (String.class, String.class).defaultValue (null).build ());
+        spec.addOption (OptionSpec.builder ("-R", "--render-previews").paramLabel ("RENDER_PREVIEWS").description ("If present, preview notes of every found multi-sample are rendered into WAV files next to the converted preset and summarized with their peak and RMS level and a silence flag in the file '" + PreviewWriter.SUMMARY_FILENAME + "' of the destination folder. Works with --analyze as well. No audio device is needed.").build ());
+        spec.addOption (OptionSpec.builder ("-Ro", "--preview-octaves").paramLabel ("PREVIEW_OCTAVES").type (String.class).description ("The octaves relative to the preview key of a multi-sample at which preview notes are rendered, separated by commas, e.g. -1,0,1. The default is 0, the preview key only.").build ());
+        spec.addOption (OptionSpec.builder ("-Rv", "--preview-velocities").paramLabel ("PREVIEW_VELOCITIES").type (String.class).description ("The velocities (1-127) at which each preview note is rendered, separated by commas, e.g. 40,100,127. The default is 100.").build ());
+        spec.addOption (OptionSpec.builder ("-M", "--metrics").paramLabel ("METRICS").description ("If present, measures how often and how long each stage of the conversion runs (folder walk, parsing of the source files, sample probing, processing, writing of samples and metadata, ZIP and FLAC encoding) and prints a summary table at the end of the run. Each stage is also reported as a JDK Flight Recorder event, which is recorded without this option as well if a recording is running.").build ());
+        spec.addOption (OptionSpec.builder ("-Mj", "--metrics-json").paramLabel ("METRICS_JSON").type (File.class).description ("Like --metrics, but additionally writes the measured values into the given JSON file, so that they can be compared between releases.").build ());
+        spec.addOption (OptionSpec.builder ("-P", "--machine-progress").paramLabel ("MACHINE_PROGRESS").description ("If present, the progress of the conversion is additionally written to the error output in a machine-readable form ('CWM_PROGRESS pct=<0..100> phase=<token> detail=<text>'), which allows a hosting application to display it. Can also be requested by setting the environment variable CWM_MACHINE_PROGRESS to 1.").build ());
+        spec.addOption (OptionSpec.builder ("-Sc", "--scan-threads").paramLabel ("SCAN_THREADS").type (Integer.class).description ("The number of folders of the source folder tree which are read at the same time (1-" + SourceTreeScanner.MAX_CONCURRENCY + "), the default is the number of processors, but at least 4. A higher number speeds up reading a library on a network volume.").build ());
+        spec.addOption (OptionSpec.builder ("-Mb", "--memory-budget").paramLabel ("MEMORY_BUDGET").type (Integer.class).description ("The memory in MB which can be used for the audio data of samples which are processed at the same time (e.g. when samples are reduced, encoded as FLAC or added to a ZIP file), the default is half of the maximum memory of the Java VM. If it is used up, the conversion waits until other samples are finished or uses temporary files. Set it lower than the maximum memory (-Xmx) to prevent out of memory errors with very large samples.").build ());
+
+        // Processing parameters
+        spec.addOption (OptionSpec.builder ("-Ze", "--ProcessEnable").paramLabel ("PROCESS_ENABLE").type (Boolean.class).description ("Enables processing if set to true.").build ());
+        spec.addOption (OptionSpec.builder ("-Zn", "--ProcessNormalize").paramLabel ("PROCESS_NORMALIZE").type (Boolean.class).description ("Enables normalization if set to true and processing is enabled.").build ());
+        spec.addOption (OptionSpec.builder ("-Zm", "--ProcessMakeMono").paramLabel ("PROCESS_MAKE_MONO").type (Boolean.class).description ("Converts all samples to mono, if processing is enabled.").build ());
+        spec.addOption (OptionSpec.builder ("-Zt", "--ProcessTrim").paramLabel ("PROCESS_TRIM").type (Boolean.class).description ("Trims the start and end of all samples, if processing is enabled.").build ());
+        spec.addOption (OptionSpec.builder ("-Zx", "--ProcessMaxSamples").paramLabel ("PROCESS_MAX_SAMPLES").type (Integer.class).description ("Reduces the number of all samples to this maximum number, if processing is enabled.").build ());
+        spec.addOption (OptionSpec.builder ("-Zb", "--ProcessBitDepth").paramLabel ("PROCESS_BIT_DEPTH").type (Integer.class).description ("Reduces the bit-depth of all samples to this maximum value, if processing is enabled. Valid numbers are: 8, 16 and 24").build ());
+        spec.addOption (OptionSpec.builder ("-Zf", "--ProcessFrequency").paramLabel ("PROCESS_FREQUENCY").type (Integer.class).description ("Reduces the sample-rate of all samples to this maximum value, if processing is enabled. Valid numbers are: 48000, 44100, 32000, 31250, 30000, 28000, 27000, 24000, 22050, 16000, 12000, 11025 and 8000").build ());
+        spec.addOption (OptionSpec.builder ("-Za", "--ProcessAlwaysResample").paramLabel ("PROCESS_ALWAYS_RESAMPLE").type (Boolean.class).description ("Does as well up-sampling to the set sample frequency and bit depth, if enabled.").build ());
+        spec.addOption (OptionSpec.builder ("-Zl", "--ProcessLoopCrossfade").paramLabel ("PROCESS_LOOP_CROSSFADE").type (Integer.class).description ("Sets a fixed loop crossfade as a percentage. Valid values are 0-100.").build ());
+        spec.addOption (OptionSpec.builder ("-Zs", "--ProcessSnapLoops").paramLabel ("PROCESS_SNAP_LOOPS").type (Boolean.class).description ("Snaps forward loop boundaries to the nearest zero-crossing to remove loop clicks, if processing is enabled.").build ());
+        spec.addOption (OptionSpec.builder ("-Zp", "--ProcessTranspose").paramLabel ("PROCESS_TRANSPOSE").type (Integer.class).description ("Transposes playback by the given number of semitones (-24 to 24) by moving the sample root keys, if processing is enabled. The key ranges are not changed.").build ());
+
+        spec.addPositional (PositionalParamSpec.builder ().paramLabel ("SOURCE... DESTINATION_FOLDER").hideParamSyntax (true).type (List.class).auxiliaryTypes (File.class).index ("0..*").arity ("2..*").description ("The source folder to process or, instead, one or more source files to convert only these (e.g. by using a wildcard), followed by the destination folder to write to.").required (true).build ());
+        return spec;
+    }
+
+
     private int run (final ParseResult parseResult)
     {
         // Handle help or version information
@@ -140,33 +169,77 @@ public class CLIBackend implements INotifier
 
         if (parseResult.matchedOptionValue ('P', null) != null)
             MachineProgressReporter.activate ();
+        this.metricsFile = parseResult.matchedOptionValue ("Mj", null);
+        if (this.metricsFile != null || parseResult.matchedOptionValue ('M', null) != null)
+            PipelineStatistics.activate ();
+        final Integer scanThreads = parseResult.matchedOptionValue ("Sc", null);
+        if (scanThreads != null)
+            SourceTreeScanner.setConcurrency (scanThreads.intValue ());
+        final Integer memoryBudget = parseResult.matchedOptionValue ("Mb", null);
+        if (memoryBudget != null)
+            MemoryBudget.setLimit (memoryBudget.longValue () * 1024 * 1024);
+
+        final Optional<Conversion> result = createConversion (parseResult, this.backend, this, System.err);
+        if (result.isEmpty ())
+            return 0;
+        final Conversion conversion = result.get ();
+        this.backend.detect (conversion.detector (), conversion.creator (), conversion.detectSettings (), conversion.detectPerformances (), conversion.onlyAnalyse ());
+
+        while (!this.hasFinished)
+            try
+            {
+                Thread.sleep (10);
+            }
+            catch (final InterruptedException _)
+            {
+                Thread.currentThread ().interrupt ();
+            }
 
+        return 0;
+    }
+
+
+    /**
+     * Set up a conversion from the given command line arguments. All problems are reported to the
+     * given error output.
+     *
+     * @param parseResult The parsed command line arguments
+     * @param backend The back-end which creates the selected detector and creator
+     * @param notifier The notifier which receives the problems of the detector and creator specific
+     *            parameters
+     * @param errorOutput Where to write all other problems to
+     * @return The conversion, empty if the arguments contain a problem
+     */
+    static Optional<Conversion> createConversion (final ParseResult parseResult, final ConverterBackend backend, final INotifier notifier, final PrintStream errorOutput)
+    {
         // Basic setup
         final String sourceFormat = parseResult.matchedOptionValue ('s', "");
         final String destinationFormat = parseResult.matchedOptionValue ('d', "");
 
-        final IDetector<?> detector = this.detectorsByName.get (sourceFormat.toLowerCase ());
-        if (detector == null)
+        final Optional<IDetector<?>> detectorOpt = backend.getDetector (sourceFormat);
+        if (detectorOpt.isEmpty ())
         {
-            System.err.println (Functions.getMessage ("IDS_CLI_UNKNOWN_SOURCE_FORMAT", sourceFormat, this.detectorsByName.keySet ().toString ()));
-            return 0;
+            errorOutput.println (Functions.getMessage ("IDS_CLI_UNKNOWN_SOURCE_FORMAT", sourceFormat, FormatRegistry.getPrefixes (FormatRegistry.getDetectors ()).toString ()));
+            return Optional.empty ();
         }
-        final ICreator<?> creator = this.creatorsByName.get (destinationFormat.toLowerCase ());
-        if (creator == null)
+        final Optional<ICreator<?>> creatorOpt = backend.getCreator (destinationFormat);
+        if (creatorOpt.isEmpty ())
         {
-            System.err.println (Functions.getMessage ("IDS_CLI_UNKNOWN_DESTINATION_FORMAT", destinationFormat, this.creatorsByName.keySet ().toString ()));
-            return 0;
+            errorOutput.println (Functions.getMessage ("IDS_CLI_UNKNOWN_DESTINATION_FORMAT", destinationFormat, FormatRegistry.getPrefixes (FormatRegistry.getCreators ()).toString ()));
+            return Optional.empty ();
         }
+        final IDetector<?> detector = detectorOpt.get ();
+        final ICreator<?> creator = creatorOpt.get ();
         // Parameter options for the specific detector and creator
         final Map<String, String> parameters = parseResult.matchedOptionValue ('p', Collections.emptyMap ());
-        if (!detector.getSettings ().checkSettingsCLI (this, parameters) || !creator.getSettings ().checkSettingsCLI (this, parameters))
-            return 0;
+        if (!detector.getSettings ().checkSettingsCLI (notifier, parameters) || !creator.getSettings ().checkSettingsCLI (notifier, parameters))
+            return Optional.empty ();
         if (!parameters.isEmpty ())
         {
             final String [] detectorCliParameterNames = detector.getSettings ().getCLIParameterNames ();
             final String [] creatorCliParameterNames = creator.getSettings ().getCLIParameterNames ();
-            System.err.println (Functions.getMessage ("IDS_CLI_UNKNOWN_PARAMETER", parameters.keySet ().iterator ().next (), Arrays.toString (detectorCliParameterNames), Arrays.toString (creatorCliParameterNames)));
-            return 0;
+            errorOutput.println (Functions.getMessage ("IDS_CLI_UNKNOWN_PARAMETER", parameters.keySet ().iterator ().next (), Arrays.toString (detectorCliParameterNames), Arrays.toString (creatorCliParameterNames)));
+            return Optional.empty ();
         }
 
         final DetectSettings detectSettings = new DetectSettings ();
@@ -182,8 +255,8 @@ public class CLIBackend implements INotifier
         {
             if (!ALLOWED_BIT_DEPTHS.contains (bitDepth))
             {
-                System.err.println (Functions.getMessage ("IDS_CLI_WRONG_BIT_DEPTH", bitDepth.toString ()));
-                return 0;
+                errorOutput.println (Functions.getMessage ("IDS_CLI_WRONG_BIT_DEPTH", bitDepth.toString ()));
+                return Optional.empty ();
             }
             detectSettings.reduceBitDepth = bitDepth.intValue ();
         }
@@ -192,8 +265,8 @@ public class CLIBackend implements INotifier
         {
             if (!ALLOWED_FREQUENCIES.contains (frequency))
             {
-                System.err.println (Functions.getMessage ("IDS_CLI_WRONG_FREQUENCY", frequency.toString ()));
-                return 0;
+                errorOutput.println (Functions.getMessage ("IDS_CLI_WRONG_FREQUENCY", frequency.toString ()));
+                return Optional.empty ();
             }
             detectSettings.reduceFrequency = frequency.intValue ();
         }
@@ -205,8 +278,8 @@ public class CLIBackend implements INotifier
         {
             if (Math.abs (transpose.intValue ()) > 24)
             {
-                System.err.println (Functions.getMessage ("IDS_CLI_WRONG_TRANSPOSE", transpose.toString ()));
-                return 0;
+                errorOutput.println (Functions.getMessage ("IDS_CLI_WRONG_TRANSPOSE", transpose.toString ()));
+                return Optional.empty ();
             }
             detectSettings.transposeSemitones = transpose.intValue ();
         }
@@ -218,8 +291,8 @@ public class CLIBackend implements INotifier
         }
         catch (final IllegalArgumentException ex)
         {
-            System.err.println (ex.getMessage ());
-            return 0;
+            errorOutput.println (ex.getMessage ());
+            return Optional.empty ();
         }
 
         final String type = parseResult.matchedOptionValue ('t', null);
@@ -228,7 +301,33 @@ public class CLIBackend implements INotifier
         detectSettings.wantsMultipleFiles = detectSettings.libraryName != null;
         detectSettings.createFolderStructure = parseResult.matchedOptionValue ('f', null) == null;
         detectSettings.logAnalysisDetails = parseResult.matchedOptionValue ("ad", null) != null;
-        final boolean onlyAnalyse = detectSettings.logAnalysisDetails || parseResult.matchedOptionValue ('a', null) != null;
+        detectSettings.analysisReportFile = parseResult.matchedOptionValue ("aj", null);
+
+        // Preview rendering
+        detectSettings.renderPreviews = parseResult.matchedOptionValue ('R', null) != null;
+        final String previewOctaves = parseResult.matchedOptionValue ("Ro", null);
+        if (previewOctaves != null)
+        {
+            final int [] octaves = parseIntegers (previewOctaves, -10, 10);
+            if (octaves.length == 0)
+            {
+                errorOutput.println (Functions.getMessage ("IDS_CLI_WRONG_PREVIEW_OCTAVES", previewOctaves));
+                return Optional.empty ();
+            }
+            detectSettings.previewOctaves = octaves;
+        }
+        final String previewVelocities = parseResult.matchedOptionValue ("Rv", null);
+        if (previewVelocities != null)
+        {
+            final int [] velocities = parseIntegers (previewVelocities, 1, 127);
+            if (velocities.length == 0)
+            {
+                errorOutput.println (Functions.getMessage ("IDS_CLI_WRONG_PREVIEW_VELOCITIES", previewVelocities));
+                return Optional.empty ();
+            }
+            detectSettings.previewVelocities = velocities;
+        }
+        final boolean onlyAnalyse = detectSettings.logAnalysisDetails || detectSettings.analysisReportFile != null || parseResult.matchedOptionValue ('a', null) != null;
 
         // Creating a library or a performance is an empty operation for a destination which does
         // not support it - everything detected would be collected and then silently dropped.
@@ -237,29 +336,17 @@ public class CLIBackend implements INotifier
         {
             if (detectSettings.wantsMultipleFiles && !(detectPerformances ? creator.supportsPerformanceLibraries () : creator.supportsPresetLibraries ()))
             {
-                System.err.println (Functions.getMessage ("IDS_CLI_NO_LIBRARY_SUPPORT", creator.getName ()));
-                return 0;
+                errorOutput.println (Functions.getMessage ("IDS_CLI_NO_LIBRARY_SUPPORT", creator.getName ()));
+                return Optional.empty ();
             }
             if (detectPerformances && !(creator.supportsPerformances () || creator.supportsPerformanceLibraries ()))
             {
-                System.err.println (Functions.getMessage ("IDS_CLI_NO_PERFORMANCE_SUPPORT", creator.getName ()));
-                return 0;
+                errorOutput.println (Functions.getMessage ("IDS_CLI_NO_PERFORMANCE_SUPPORT", creator.getName ()));
+                return Optional.empty ();
             }
         }
 
-        this.backend.detect (detector, creator, detectSettings, detectPerformances, onlyAnalyse);
-
-        while (!this.hasFinished)
-            try
-            {
-                Thread.sleep (10);
-            }
-            catch (final InterruptedException _)
-            {
-                Thread.currentThread ().interrupt ();
-            }
-
-        return 0;
+        return Optional.of (new Conversion (detector, creator, detectSettings, detectPerformances, onlyAnalyse));
     }
 
 
@@ -338,16 +425,40 @@ public class CLIBackend implements INotifier
         // Creates libraries if requested
         this.backend.finish (cancelled);
 
+        if (PipelineStatistics.isActive ())
+            this.logStatistics ();
+
         this.hasFinished = true;
     }
 
 
+    /**
+     * Print the statistics of the conversion pipeline and write them into the JSON file, if one was
+     * requested.
+     */
+    private void logStatistics ()
+    {
+        this.logText ("\n" + PipelineStatistics.formatSummary ());
+
+        if (this.metricsFile == null)
+            return;
+        try
+        {
+            PipelineStatistics.writeJson (this.metricsFile, Functions.getMessage ("TITLE"));
+        }
+        catch (final IOException ex)
+        {
+            this.logError ("IDS_NOTIFY_SAVE_FAILED", ex);
+        }
+    }
+
+
     /**
      * Initialize the string resources.
      *
      * @throws EndApplicationException Could not read the string resources
      */
-    private static void initStrings () throws EndApplicationException
+    static void initStrings () throws EndApplicationException
     {
         try
         {
@@ -401,6 +512,35 @@ public class CLIBackend implements INotifier
     }
 
 
+    /**
+     * Parse a list of integers which are separated by commas.
+     *
+     * @param text The text to parse
+     * @param minimum The smallest allowed value
+     * @param maximum The largest allowed value
+     * @return The values, empty if the text is not a valid list
+     */
+    private static int [] parseIntegers (final String text, final int minimum, final int maximum)
+    {
+        final String [] parts = text.split (",");
+        final int [] values = new int [parts.length];
+        try
+        {
+            for (int i = 0; i < parts.length; i++)
+            {
+                values[i] = Integer.parseInt (parts[i].trim ());
+                if (values[i] < minimum || values[i] > maximum)
+                    return new int [0];
+            }
+        }
+        catch (final NumberFormatException _)
+        {
+            return new int [0];
+        }
+        return values;
+    }
+
+
     /**
      * Get the deepest folder which contains all of the given files. This is simply the parent
      * folder if all files are located in the same folder, which is the normal case.
@@ -0,0 +1,448 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.mossgrabers.tools.ui.Functions;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Model.OptionSpec;
+import picocli.CommandLine.ParseResult;
+
+
+/**
+ * Keeps the application running and executes conversion jobs, which saves the start-up of the
+ * Java runtime and the creation of all detectors and creators for every conversion. A job has the
+ * same arguments as a conversion started from the command line and is handed over either through
+ * a local (UNIX domain) socket or as a file in a spool folder:
+ * <ul>
+ * <li>Socket: a client connects, writes the arguments as one line and then reads the output of
+ * the job until the daemon closes the connection at its end. If the client disconnects, the job is
+ * cancelled.</li>
+ * <li>Spool folder: a file which ends with '.job' contains the arguments. The daemon claims the
+ * file by renaming it to '.running', writes the output into a '.log' file of the same name and
+ * finally renames the job file to the final status of the job, e.g. '.done'.</li>
+ * </ul>
+ * The arguments are separated by white-space; an argument which contains white-space is enclosed
+ * in double quotes. The output is the one of the command line interface with the machine-readable
+ * progress switched on, plus the status lines of the job (see {@link DaemonJob}). A fixed number of
+ * workers executes the jobs, all further jobs wait in the order in which they arrived.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class ConversionDaemon
+{
+    /** The first command line argument which starts the daemon instead of a conversion. */
+    public static final String             COMMAND         = "daemon";
+
+    private static final int               DEFAULT_WORKERS = 2;
+    private static final int               MAX_WORKERS     = 16;
+    private static final String            JOB_ENDING      = ".job";
+    private static final String            RUNNING_ENDING  = ".running";
+    private static final String            LOG_ENDING      = ".log";
+
+    private final BlockingQueue<DaemonJob> queue           = new LinkedBlockingQueue<> ();
+    private final AtomicInteger            jobCounter      = new AtomicInteger ();
+
+
+    /**
+     * Parse the given command line arguments and start the daemon. Returns only if the daemon
+     * could not be started or all ways to receive jobs failed.
+     *
+     * @param arguments The arguments which follow the daemon command
+     */
+    public void parseCommandLine (final String [] arguments)
+    {
+        try
+        {
+            CLIBackend.initStrings ();
+
+            final CommandSpec spec = CommandSpec.create ().name ("ConvertWithMoss " + COMMAND);
+            spec.mixinStandardHelpOptions (true).version (Functions.getMessage ("TITLE"));
+
+            spec.addOption (OptionSpec.builder ("-u", "--socket").paramLabel ("SOCKET").type (File.class).description ("The file of the local (UNIX domain) socket on which the daemon waits for jobs. A client writes the arguments of a conversion as one line and then reads its output until the connection is closed.").build ());
+            spec.addOption (OptionSpec.builder ("-w", "--spool").paramLabel ("SPOOL_FOLDER").type (File.class).description ("The folder in which the daemon waits for job files. A job file ends with '" + JOB_ENDING + "' and contains the arguments of a conversion. Write it under a different name and then rename it, so that it is not read before it is complete.").build ());
+            spec.addOption (OptionSpec.builder ("-j", "--jobs").paramLabel ("JOBS").type (Integer.class).description ("The number of jobs which are executed at the same time (1-" + MAX_WORKERS + "), the default is " + DEFAULT_WORKERS + ". Each one needs the memory of a conversion.").build ());
+
+            final CommandLine commandLine = new CommandLine (spec);
+            commandLine.setExecutionStrategy (this::run);
+            System.exit (commandLine.execute (arguments));
+        }
+        catch (final Exception ex)
+        {
+            ex.printStackTrace ();
+            System.exit (0);
+        }
+    }
+
+
+    private int run (final ParseResult parseResult)
+    {
+        // Handle help or version information
+        final Integer helpExitCode = CommandLine.executeHelpRequest (parseResult);
+        if (helpExitCode != null)
+            return helpExitCode.intValue ();
+
+        final File socketFile = parseResult.matchedOptionValue ('u', null);
+        final File spoolFolder = parseResult.matchedOptionValue ('w', null);
+        if (socketFile == null && spoolFolder == null)
+        {
+            System.err.print (Functions.getMessage ("IDS_DAEMON_NO_JOB_SOURCE"));
+            return 1;
+        }
+        final Integer numberOfWorkers = parseResult.matchedOptionValue ('j', Integer.valueOf (DEFAULT_WORKERS));
+        if (numberOfWorkers.intValue () < 1 || numberOfWorkers.intValue () > MAX_WORKERS)
+        {
+            System.err.print (Functions.getMessage ("IDS_DAEMON_WRONG_JOBS", numberOfWorkers.toString (), Integer.toString (MAX_WORKERS)));
+            return 1;
+        }
+
+        // Every job reports its progress, the lines are written to the output of the job
+        MachineProgressReporter.activate ();
+
+        // Each worker keeps its back-end with the detectors and creators of its jobs
+        for (int i = 0; i < numberOfWorkers.intValue (); i++)
+            new Thread (new DaemonWorker (this.queue), "ConvertWithMoss Worker " + (i + 1)).start ();
+        System.out.print (Functions.getMessage ("IDS_DAEMON_STARTED", Functions.getMessage ("TITLE"), numberOfWorkers.toString ()));
+
+        final List<Thread> receivers = new ArrayList<> ();
+        if (spoolFolder != null)
+            receivers.add (startReceiver ("ConvertWithMoss Spool", () -> this.watchSpoolFolder (spoolFolder.toPath ())));
+        if (socketFile != null)
+            receivers.add (startReceiver ("ConvertWithMoss Socket", () -> this.listen (socketFile.toPath ())));
+
+        try
+        {
+            for (final Thread receiver: receivers)
+                receiver.join ();
+        }
+        catch (final InterruptedException _)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+
+        // All ways to receive jobs failed
+        return 1;
+    }
+
+
+    /**
+     * Wait for connections on the socket and queue the job of each connection.
+     *
+     * @param socketPath The file of the socket
+     */
+    private void listen (final Path socketPath)
+    {
+        try
+        {
+            // A socket file which is left over from a daemon which was killed blocks the address
+            if (Files.exists (socketPath))
+            {
+                if (Files.isRegularFile (socketPath) || Files.isDirectory (socketPath))
+                    throw new IOException (Functions.getMessage ("IDS_DAEMON_NOT_A_SOCKET", socketPath.toString ()));
+                Files.delete (socketPath);
+            }
+
+            try (final ServerSocketChannel server = ServerSocketChannel.open (StandardProtocolFamily.UNIX))
+            {
+                server.bind (UnixDomainSocketAddress.of (socketPath));
+                Runtime.getRuntime ().addShutdownHook (new Thread ( () -> deleteSocketFile (socketPath)));
+                System.out.print (Functions.getMessage ("IDS_DAEMON_LISTENING", socketPath.toString ()));
+
+                while (true)
+                {
+                    final SocketChannel channel = server.accept ();
+                    Thread.ofVirtual ().start ( () -> this.acceptConnection (channel));
+                }
+            }
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            System.err.print (Functions.getMessage ("IDS_DAEMON_SOCKET_FAILED", socketPath.toString (), ex.getMessage ()));
+        }
+    }
+
+
+    /**
+     * Read the arguments of a job from a new connection and queue the job. The connection is
+     * closed when the job is completed.
+     *
+     * @param channel The connection
+     */
+    private void acceptConnection (final SocketChannel channel)
+    {
+        try
+        {
+            // Only the first line is read, therefore the reader can be dropped afterwards
+            final BufferedReader reader = new BufferedReader (new InputStreamReader (Channels.newInputStream (channel), StandardCharsets.UTF_8));
+            final String line = reader.readLine ();
+            if (line == null || line.isBlank ())
+            {
+                channel.close ();
+                return;
+            }
+            final OutputStream output = Channels.newOutputStream (channel);
+            this.queue (new DaemonJob (this.jobCounter.incrementAndGet (), splitArguments (line), "socket", output, null));
+        }
+        catch (final IOException _)
+        {
+            try
+            {
+                channel.close ();
+            }
+            catch (final IOException _)
+            {
+                // Ignore
+            }
+        }
+    }
+
+
+    /**
+     * Queue the job files which are already in the spool folder and then the ones which are added
+     * to it.
+     *
+     * @param spoolFolder The spool folder
+     */
+    private void watchSpoolFolder (final Path spoolFolder)
+    {
+        try (final WatchService watchService = spoolFolder.getFileSystem ().newWatchService ())
+        {
+            spoolFolder.register (watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            System.out.print (Functions.getMessage ("IDS_DAEMON_WATCHING", spoolFolder.toString ()));
+
+            // A job which was running when the daemon was stopped is started again
+            try (final DirectoryStream<Path> runningFiles = Files.newDirectoryStream (spoolFolder, "*" + RUNNING_ENDING))
+            {
+                for (final Path runningFile: runningFiles)
+                    Files.move (runningFile, replaceEnding (runningFile, RUNNING_ENDING, JOB_ENDING), StandardCopyOption.ATOMIC_MOVE);
+            }
+            this.queueSpoolFiles (spoolFolder);
+
+            while (true)
+            {
+                final WatchKey key = watchService.take ();
+                // Which files were added does not matter, since the whole folder is checked
+                key.pollEvents ();
+                this.queueSpoolFiles (spoolFolder);
+                if (!key.reset ())
+                    throw new IOException (Functions.getMessage ("IDS_NOTIFY_SOURCE_DOES_NOT_EXIST", spoolFolder.toString ()));
+            }
+        }
+        catch (final InterruptedException _)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            System.err.print (Functions.getMessage ("IDS_DAEMON_SPOOL_FAILED", spoolFolder.toString (), ex.getMessage ()));
+        }
+    }
+
+
+    /**
+     * Queue all job files of the spool folder in the alphabetical order of their names.
+     *
+     * @param spoolFolder The spool folder
+     * @throws IOException Could not read the folder
+     */
+    private void queueSpoolFiles (final Path spoolFolder) throws IOException
+    {
+        final List<Path> jobFiles = new ArrayList<> ();
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream (spoolFolder, "*" + JOB_ENDING))
+        {
+            for (final Path jobFile: files)
+                jobFiles.add (jobFile);
+        }
+        jobFiles.sort (null);
+
+        for (final Path jobFile: jobFiles)
+        {
+            // Claim the file; fails if another daemon was faster or the file was removed
+            final Path runningFile = replaceEnding (jobFile, JOB_ENDING, RUNNING_ENDING);
+            try
+            {
+                Files.move (jobFile, runningFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (final IOException _)
+            {
+                continue;
+            }
+
+            final String arguments;
+            final OutputStream output;
+            try
+            {
+                arguments = Files.readString (runningFile, StandardCharsets.UTF_8);
+                output = Files.newOutputStream (replaceEnding (jobFile, JOB_ENDING, LOG_ENDING));
+            }
+            catch (final IOException ex)
+            {
+                System.err.print (Functions.getMessage ("IDS_DAEMON_SPOOL_FAILED", runningFile.toString (), ex.getMessage ()));
+                renameSpoolFile (runningFile, replaceEnding (jobFile, JOB_ENDING, "." + DaemonJob.STATUS_REJECTED));
+                continue;
+            }
+
+            final String name = jobFile.getFileName ().toString ();
+            this.queue (new DaemonJob (this.jobCounter.incrementAndGet (), splitArguments (arguments), name, output, status -> renameSpoolFile (runningFile, replaceEnding (jobFile, JOB_ENDING, "." + status))));
+        }
+    }
+
+
+    /**
+     * Rename a file of the spool folder to show the status of its job.
+     *
+     * @param file The file
+     * @param newFile The file with the new name
+     */
+    private static void renameSpoolFile (final Path file, final Path newFile)
+    {
+        try
+        {
+            Files.move (file, newFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (final IOException ex)
+        {
+            System.err.print (Functions.getMessage ("IDS_DAEMON_SPOOL_FAILED", file.toString (), ex.getMessage ()));
+        }
+    }
+
+
+    /**
+     * Add a job to the queue.
+     *
+     * @param job The job
+     */
+    private void queue (final DaemonJob job)
+    {
+        job.writeStatus (DaemonJob.STATUS_QUEUED, job.getDescription ());
+        System.out.print (Functions.getMessage ("IDS_DAEMON_JOB_QUEUED", Integer.toString (job.getId ()), String.join (" ", job.getArguments ())));
+        this.queue.add (job);
+    }
+
+
+    /**
+     * Split a line into arguments. Arguments are separated by white-space. A part which is enclosed
+     * in double quotes belongs to one argument, even if it contains white-space; inside of the
+     * quotes a backslash escapes a double quote or a backslash. All other backslashes are kept, so
+     * that Windows paths can be given without escaping.
+     *
+     * @param text The text to split
+     * @return The arguments
+     */
+    static String [] splitArguments (final String text)
+    {
+        final List<String> arguments = new ArrayList<> ();
+        final StringBuilder argument = new StringBuilder ();
+        boolean hasArgument = false;
+        boolean isQuoted = false;
+        for (int i = 0; i < text.length (); i++)
+        {
+            final char c = text.charAt (i);
+            if (isQuoted)
+            {
+                if (c == '"')
+                    isQuoted = false;
+                else if (c == '\\' && i + 1 < text.length () && (text.charAt (i + 1) == '"' || text.charAt (i + 1) == '\\'))
+                    argument.append (text.charAt (++i));
+                else
+                    argument.append (c);
+            }
+            else if (c == '"')
+            {
+                isQuoted = true;
+                hasArgument = true;
+            }
+            else if (Character.isWhitespace (c))
+            {
+                if (hasArgument)
+                {
+                    arguments.add (argument.toString ());
+                    argument.setLength (0);
+                    hasArgument = false;
+                }
+            }
+            else
+            {
+                argument.append (c);
+                hasArgument = true;
+            }
+        }
+        if (hasArgument)
+            arguments.add (argument.toString ());
+        return arguments.toArray (new String [arguments.size ()]);
+    }
+
+
+    /**
+     * Get the path of a file with a different ending.
+     *
+     * @param file The file
+     * @param ending The current ending of the file name
+     * @param newEnding The new ending
+     * @return The path of the file with the new ending
+     */
+    private static Path replaceEnding (final Path file, final String ending, final String newEnding)
+    {
+        final String name = file.getFileName ().toString ();
+        return file.resolveSibling (name.substring (0, name.length () - ending.length ()) + newEnding);
+    }
+
+
+    /**
+     * Start a thread which receives jobs.
+     *
+     * @param name The name of the thread
+     * @param receiver The code which receives the jobs
+     * @return The started thread
+     */
+    private static Thread startReceiver (final String name, final Runnable receiver)
+    {
+        final Thread thread = new Thread (receiver, name);
+        thread.start ();
+        return thread;
+    }
+
+
+    /**
+     * Delete the file of the socket when the daemon ends.
+     *
+     * @param socketPath The file of the socket
+     */
+    private static void deleteSocketFile (final Path socketPath)
+    {
+        try
+        {
+            Files.deleteIfExists (socketPath);
+        }
+        catch (final IOException _)
+        {
+            // Ignore, the next start removes it
+        }
+    }
+}
@@ -9,9 +9,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -22,6 +24,7 @@ import de.mossgrabers.convertwithmoss.core.algorithm.LoopClickDetector;
 import de.mossgrabers.convertwithmoss.core.algorithm.LoopZeroSnapper;
 import de.mossgrabers.convertwithmoss.core.algorithm.MultiSampleReducer;
 import de.mossgrabers.convertwithmoss.core.creator.ICreator;
+import de.mossgrabers.convertwithmoss.core.detector.AutoDetector;
 import de.mossgrabers.convertwithmoss.core.detector.IDetector;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelope;
 import de.mossgrabers.convertwithmoss.core.model.IGroup;
@@ -29,107 +32,6 @@ import de.mossgrabers.convertwithmoss.core.model.ISampleLoop;
 import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultEnvelope;
 import de.mossgrabers.convertwithmoss.core.settings.ICoreTaskSettings;
-import de.mossgrabers.convertwithmoss.format.ableton.AbletonCreator;
-import de.mossgrabers.convertwithmoss.format.ableton.AbletonDetector;
-import de.mossgrabers.convertwithmoss.format.akai.akp.AkpDetector;
-import de.mossgrabers.convertwithmoss.format.akai.mesa.AkaiMesaDetector;
-import de.mossgrabers.convertwithmoss.format.akai.mpc.MPCKeygroupCreator;
-import de.mossgrabers.convertwithmoss.format.akai.mpc.MPCModernDetector;
-import de.mossgrabers.convertwithmoss.format.akai.mpc1000.AkaiMPC1000Detector;
-import de.mossgrabers.convertwithmoss.format.akai.mpc2000.AkaiMPC2000Detector;
-import de.mossgrabers.convertwithmoss.format.akai.mpc60.AkaiMPC60Detector;
-import de.mossgrabers.convertwithmoss.format.akai.s1000.AkaiS1000Detector;
-import de.mossgrabers.convertwithmoss.format.akai.s900.AkaiS900Detector;
-import de.mossgrabers.convertwithmoss.format.bitwig.BitwigMultisampleCreator;
-import de.mossgrabers.convertwithmoss.format.bitwig.BitwigMultisampleDetector;
-import de.mossgrabers.convertwithmoss.format.bliss.BlissCreator;
-import de.mossgrabers.convertwithmoss.format.bliss.BlissDetector;
-import de.mossgrabers.convertwithmoss.format.casio.CasioFZCreator;
-import de.mossgrabers.convertwithmoss.format.casio.CasioFZDetector;
-import de.mossgrabers.convertwithmoss.format.cmi3.FairlightCmi3Creator;
-import de.mossgrabers.convertwithmoss.format.cmi3.FairlightCmi3Detector;
-import de.mossgrabers.convertwithmoss.format.decentsampler.DecentSamplerCreator;
-import de.mossgrabers.convertwithmoss.format.decentsampler.DecentSamplerDetector;
-import de.mossgrabers.convertwithmoss.format.directwave.DirectWaveCreator;
-import de.mossgrabers.convertwithmoss.format.directwave.DirectWaveDetector;
-import de.mossgrabers.convertwithmoss.format.disting.DistingExCreator;
-import de.mossgrabers.convertwithmoss.format.disting.DistingExDetector;
-import de.mossgrabers.convertwithmoss.format.dls.DlsDetector;
-import de.mossgrabers.convertwithmoss.format.elektron.TonverkMultiCreator;
-import de.mossgrabers.convertwithmoss.format.elektron.TonverkMultiDetector;
-import de.mossgrabers.convertwithmoss.format.elektron.TonverkPresetCreator;
-import de.mossgrabers.convertwithmoss.format.elektron.TonverkPresetDetector;
-import de.mossgrabers.convertwithmoss.format.emu.emulator2.Emulator2Detector;
-import de.mossgrabers.convertwithmoss.format.emu.emulator3.Emulator3Creator;
-import de.mossgrabers.convertwithmoss.format.emu.emulator3.Emulator3Detector;
-import de.mossgrabers.convertwithmoss.format.emu.emulator4.Emulator4Creator;
-import de.mossgrabers.convertwithmoss.format.emu.emulator4.Emulator4Detector;
-import de.mossgrabers.convertwithmoss.format.emu.emulatorx.EmulatorXCreator;
-import de.mossgrabers.convertwithmoss.format.emu.emulatorx.EmulatorXDetector;
-import de.mossgrabers.convertwithmoss.format.ensoniq.epsasr.EnsoniqEpsAsrDetector;
-import de.mossgrabers.convertwithmoss.format.ensoniq.mirage.MirageDetector;
-import de.mossgrabers.convertwithmoss.format.exs.EXS24Creator;
-import de.mossgrabers.convertwithmoss.format.exs.EXS24Detector;
-import de.mossgrabers.convertwithmoss.format.isla.s2400.S2400Creator;
-import de.mossgrabers.convertwithmoss.format.isla.s2400.S2400Detector;
-import de.mossgrabers.convertwithmoss.format.iso.IsoDetector;
-import de.mossgrabers.convertwithmoss.format.kmp.KMPCreator;
-import de.mossgrabers.convertwithmoss.format.kmp.KMPDetector;
-import de.mossgrabers.convertwithmoss.format.korgmultisample.KorgmultisampleCreator;
-import de.mossgrabers.convertwithmoss.format.korgmultisample.KorgmultisampleDetector;
-import de.mossgrabers.convertwithmoss.format.kurzweil.KurzweilCreator;
-import de.mossgrabers.convertwithmoss.format.kurzweil.KurzweilDetector;
-import de.mossgrabers.convertwithmoss.format.music1010.bento.BentoCreator;
-import de.mossgrabers.convertwithmoss.format.music1010.bento.BentoDetector;
-import de.mossgrabers.convertwithmoss.format.music1010.blackbox.Music1010Creator;
-import de.mossgrabers.convertwithmoss.format.music1010.blackbox.Music1010Detector;
-import de.mossgrabers.convertwithmoss.format.ni.kontakt.KontaktCreator;
-import de.mossgrabers.convertwithmoss.format.ni.kontakt.KontaktDetector;
-import de.mossgrabers.convertwithmoss.format.ni.maschine.MaschineCreator;
-import de.mossgrabers.convertwithmoss.format.ni.maschine.MaschineDetector;
-import de.mossgrabers.convertwithmoss.format.omnisphere.OmnisphereCreator;
-import de.mossgrabers.convertwithmoss.format.omnisphere.OmnisphereDetector;
-import de.mossgrabers.convertwithmoss.format.polyend.PolyendTrackerCreator;
-import de.mossgrabers.convertwithmoss.format.polyend.PolyendTrackerDetector;
-import de.mossgrabers.convertwithmoss.format.renoise.RenoiseCreator;
-import de.mossgrabers.convertwithmoss.format.renoise.RenoiseDetector;
-import de.mossgrabers.convertwithmoss.format.roland.mc707.MC707Creator;
-import de.mossgrabers.convertwithmoss.format.roland.mc707.MC707Detector;
-import de.mossgrabers.convertwithmoss.format.roland.mv8000.MV8000Creator;
-import de.mossgrabers.convertwithmoss.format.roland.mv8000.MV8000Detector;
-import de.mossgrabers.convertwithmoss.format.roland.s1xx.S1xxDetector;
-import de.mossgrabers.convertwithmoss.format.roland.s5xx.S5xxDetector;
-import de.mossgrabers.convertwithmoss.format.roland.s7xx.S770Detector;
-import de.mossgrabers.convertwithmoss.format.roland.sp404mk2.SP404Mk2Creator;
-import de.mossgrabers.convertwithmoss.format.roland.sp404mk2.SP404Mk2Detector;
-import de.mossgrabers.convertwithmoss.format.roland.zencore.ZenCoreCreator;
-import de.mossgrabers.convertwithmoss.format.roland.zencore.ZenCoreDetector;
-import de.mossgrabers.convertwithmoss.format.samplefile.SampleFileDetector;
-import de.mossgrabers.convertwithmoss.format.sf2.Sf2Creator;
-import de.mossgrabers.convertwithmoss.format.sf2.Sf2Detector;
-import de.mossgrabers.convertwithmoss.format.sfz.SfzCreator;
-import de.mossgrabers.convertwithmoss.format.sfz.SfzDetector;
-import de.mossgrabers.convertwithmoss.format.soundbox.SoundboxCreator;
-import de.mossgrabers.convertwithmoss.format.soundbox.SoundboxDetector;
-import de.mossgrabers.convertwithmoss.format.sxt.SxtCreator;
-import de.mossgrabers.convertwithmoss.format.sxt.SxtDetector;
-import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierRegenCreator;
-import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierRegenDetector;
-import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierVCreator;
-import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierVDetector;
-import de.mossgrabers.convertwithmoss.format.synthstrom.DelugeCreator;
-import de.mossgrabers.convertwithmoss.format.synthstrom.DelugeDetector;
-import de.mossgrabers.convertwithmoss.format.tal.TALSamplerCreator;
-import de.mossgrabers.convertwithmoss.format.tal.TALSamplerDetector;
-import de.mossgrabers.convertwithmoss.format.teenage.opxy.OpXyCreator;
-import de.mossgrabers.convertwithmoss.format.teenage.opxy.OpXyDetector;
-import de.mossgrabers.convertwithmoss.format.tx16wx.TX16WxCreator;
-import de.mossgrabers.convertwithmoss.format.tx16wx.TX16WxDetector;
-import de.mossgrabers.convertwithmoss.format.waldorf.qpat.WaldorfQpatCreator;
-import de.mossgrabers.convertwithmoss.format.waldorf.qpat.WaldorfQpatDetector;
-import de.mossgrabers.convertwithmoss.format.wav.WavCreator;
-import de.mossgrabers.convertwithmoss.format.yamaha.ysfc.YamahaYsfcCreator;
-import de.mossgrabers.convertwithmoss.format.yamaha.ysfc.YamahaYsfcDetector;
 import de.mossgrabers.tools.FileUtils;
 import de.mossgrabers.tools.ui.Functions;
 
@@ -141,12 +43,12 @@ import de.mossgrabers.tools.ui.Functions;
  */
 public class ConverterBackend
 {
-    private static final String            IDS_NOTIFY_ANALYZE_OK       = "IDS_NOTIFY_ANALYZE_OK";
-    private static final String            IDS_NOTIFY_SAVE_FAILED      = "IDS_NOTIFY_SAVE_FAILED";
+    private static final String             IDS_NOTIFY_ANALYZE_OK       = "IDS_NOTIFY_ANALYZE_OK";
+    private static final String             IDS_NOTIFY_SAVE_FAILED      = "IDS_NOTIFY_SAVE_FAILED";
 
     /** The MIDI note at the middle of the keyboard. */
-    private static final int               MIDDLE_KEY                  = 60;
-    private static final String []         NOTE_NAMES                  =
+    private static final int                MIDDLE_KEY                  = 60;
+    private static final String []          NOTE_NAMES                  =
     {
         "C",
         "C#",
@@ -162,21 +64,27 @@ public class ConverterBackend
         "B"
     };
 
-    protected INotifier                    notifier;
-    protected final List<IDetector<?>>     detectors;
-    protected final List<ICreator<?>>      creators;
-
-    private IDetector<?>                   detector;
-    private ICreator<?>                    creator;
-    private DetectSettings                 detectionSettings;
-    private boolean                        onlyAnalyse;
-    private boolean                        onlyContents;
-    private int                            indexInFile;
-    private File                           currentSourceFile;
-
-    private final List<IMultisampleSource> collectedPresetSources      = new ArrayList<> ();
-    private final List<IPerformanceSource> collectedPerformanceSources = new ArrayList<> ();
-    private final List<ContentsEntry>      contentsEntries             = new ArrayList<> ();
+    protected INotifier                     notifier;
+    private final Map<String, IDetector<?>> detectorsByPrefix           = new HashMap<> ();
+    private final Map<String, ICreator<?>>  creatorsByPrefix            = new HashMap<> ();
+    private List<IDetector<?>>              detectors;
+    private List<ICreator<?>>               creators;
+    private AutoDetector                    autoDetector;
+
+    private IDetector<?>                    detector;
+    private ICreator<?>                     creator;
+    private DetectSettings                  detectionSettings;
+    private boolean                         onlyAnalyse;
+    private boolean                         onlyContents;
+    private int                             indexInFile;
+    private File                            currentSourceFile;
+    private PreviewWriter                   previewWriter;
+    private AnalysisReport                  analysisReport;
+    private ParallelAnalysis                parallelAnalysis;
+
+    private final List<IMultisampleSource>  collectedPresetSources      = new ArrayList<> ();
+    private final List<IPerformanceSource>  collectedPerformanceSources = new ArrayList<> ();
+    private final List<ContentsEntry>       contentsEntries             = new ArrayList<> ();
 
 
     /**
@@ -190,136 +98,98 @@ public class ConverterBackend
 
         // Workaround for attribute limit of 200 which e.g. causes issues with TAL Sampler format
         System.setProperty ("jdk.xml.elementAttributeLimit", "1000");
-
-        this.detectors = new ArrayList<> ();
-        this.detectors.add (new BentoDetector (notifier));
-        this.detectors.add (new Music1010Detector (notifier));
-        this.detectors.add (new AbletonDetector (notifier));
-        this.detectors.add (new AkpDetector (notifier));
-        this.detectors.add (new AkaiMesaDetector (notifier));
-        this.detectors.add (new AkaiMPC60Detector (notifier));
-        this.detectors.add (new AkaiMPC1000Detector (notifier));
-        this.detectors.add (new AkaiMPC2000Detector (notifier));
-        this.detectors.add (new MPCModernDetector (notifier));
-        this.detectors.add (new AkaiS900Detector (notifier));
-        this.detectors.add (new AkaiS1000Detector (notifier));
-        this.detectors.add (new SynclavierVDetector (notifier));
-        this.detectors.add (new SoundboxDetector (notifier));
-        this.detectors.add (new BitwigMultisampleDetector (notifier));
-        this.detectors.add (new BlissDetector (notifier));
-        this.detectors.add (new CasioFZDetector (notifier));
-        this.detectors.add (new TX16WxDetector (notifier));
-        this.detectors.add (new DecentSamplerDetector (notifier));
-        this.detectors.add (new DlsDetector (notifier));
-        this.detectors.add (new Emulator2Detector (notifier));
-        this.detectors.add (new Emulator3Detector (notifier));
-        this.detectors.add (new Emulator4Detector (notifier));
-        this.detectors.add (new EmulatorXDetector (notifier));
-        this.detectors.add (new TonverkMultiDetector (notifier));
-        this.detectors.add (new TonverkPresetDetector (notifier));
-        this.detectors.add (new EnsoniqEpsAsrDetector (notifier));
-        this.detectors.add (new MirageDetector (notifier));
-        this.detectors.add (new DistingExDetector (notifier));
-        this.detectors.add (new FairlightCmi3Detector (notifier));
-        this.detectors.add (new DirectWaveDetector (notifier));
-        this.detectors.add (new S2400Detector (notifier));
-        this.detectors.add (new IsoDetector (notifier));
-        this.detectors.add (new KMPDetector (notifier));
-        this.detectors.add (new KorgmultisampleDetector (notifier));
-        this.detectors.add (new KurzweilDetector (notifier));
-        this.detectors.add (new EXS24Detector (notifier));
-        this.detectors.add (new KontaktDetector (notifier));
-        this.detectors.add (new MaschineDetector (notifier));
-        this.detectors.add (new PolyendTrackerDetector (notifier));
-        this.detectors.add (new RenoiseDetector (notifier));
-        this.detectors.add (new MC707Detector (notifier));
-        this.detectors.add (new MV8000Detector (notifier));
-        this.detectors.add (new S1xxDetector (notifier));
-        this.detectors.add (new S5xxDetector (notifier));
-        this.detectors.add (new S770Detector (notifier));
-        this.detectors.add (new SP404Mk2Detector (notifier));
-        this.detectors.add (new ZenCoreDetector (notifier));
-        this.detectors.add (new SxtDetector (notifier));
-        this.detectors.add (new SampleFileDetector (notifier));
-        this.detectors.add (new SfzDetector (notifier));
-        this.detectors.add (new Sf2Detector (notifier));
-        this.detectors.add (new OmnisphereDetector (notifier));
-        this.detectors.add (new SynclavierRegenDetector (notifier));
-        this.detectors.add (new DelugeDetector (notifier));
-        this.detectors.add (new OpXyDetector (notifier));
-        this.detectors.add (new TALSamplerDetector (notifier));
-        this.detectors.add (new WaldorfQpatDetector (notifier));
-        this.detectors.add (new YamahaYsfcDetector (notifier));
-
-        this.creators = new ArrayList<> ();
-        this.creators.add (new BentoCreator (notifier));
-        this.creators.add (new Music1010Creator (notifier));
-        this.creators.add (new AbletonCreator (notifier));
-        this.creators.add (new MPCKeygroupCreator (notifier));
-        this.creators.add (new SynclavierVCreator (notifier));
-        this.creators.add (new SoundboxCreator (notifier));
-        this.creators.add (new BitwigMultisampleCreator (notifier));
-        this.creators.add (new BlissCreator (notifier));
-        this.creators.add (new CasioFZCreator (notifier));
-        this.creators.add (new TX16WxCreator (notifier));
-        this.creators.add (new DecentSamplerCreator (notifier));
-        this.creators.add (new Emulator3Creator (notifier));
-        this.creators.add (new Emulator4Creator (notifier));
-        this.creators.add (new EmulatorXCreator (notifier));
-        this.creators.add (new TonverkMultiCreator (notifier));
-        this.creators.add (new TonverkPresetCreator (notifier));
-        this.creators.add (new FairlightCmi3Creator (notifier));
-        this.creators.add (new DistingExCreator (notifier));
-        this.creators.add (new DirectWaveCreator (notifier));
-        this.creators.add (new S2400Creator (notifier));
-        this.creators.add (new KMPCreator (notifier));
-        this.creators.add (new KorgmultisampleCreator (notifier));
-        this.creators.add (new KurzweilCreator (notifier));
-        this.creators.add (new EXS24Creator (notifier));
-        this.creators.add (new KontaktCreator (notifier));
-        this.creators.add (new MaschineCreator (notifier));
-        this.creators.add (new PolyendTrackerCreator (notifier));
-        this.creators.add (new RenoiseCreator (notifier));
-        this.creators.add (new MC707Creator (notifier));
-        this.creators.add (new MV8000Creator (notifier));
-        this.creators.add (new SP404Mk2Creator (notifier));
-        this.creators.add (new ZenCoreCreator (notifier));
-        this.creators.add (new SxtCreator (notifier));
-        this.creators.add (new WavCreator (notifier));
-        this.creators.add (new SfzCreator (notifier));
-        this.creators.add (new Sf2Creator (notifier));
-        this.creators.add (new OmnisphereCreator (notifier));
-        this.creators.add (new SynclavierRegenCreator (notifier));
-        this.creators.add (new DelugeCreator (notifier));
-        this.creators.add (new OpXyCreator (notifier));
-        this.creators.add (new TALSamplerCreator (notifier));
-        this.creators.add (new WaldorfQpatCreator (notifier));
-        this.creators.add (new YamahaYsfcCreator (notifier));
     }
 
 
     /**
-     * Get all detectors.
+     * Get all detectors. Creates the ones which were not created yet.
      *
-     * @return The detectors
+     * @return The detectors in the order of the registry
      */
     public List<IDetector<? extends ICoreTaskSettings>> getDetectors ()
     {
+        if (this.detectors == null)
+        {
+            this.detectors = new ArrayList<> ();
+            for (final FormatDescriptor<IDetector<?>> descriptor: FormatRegistry.getDetectors ())
+                this.detectors.add (this.getDetector (descriptor));
+        }
         return this.detectors;
     }
 
 
     /**
-     * Get all creators.
+     * Get all creators. Creates the ones which were not created yet.
      *
-     * @return The creators
+     * @return The creators in the order of the registry
      */
     public List<ICreator<? extends ICoreTaskSettings>> getCreators ()
     {
+        if (this.creators == null)
+        {
+            this.creators = new ArrayList<> ();
+            for (final FormatDescriptor<ICreator<?>> descriptor: FormatRegistry.getCreators ())
+                this.creators.add (this.getCreator (descriptor));
+        }
         return this.creators;
     }
 
 
+    /**
+     * Get the detector of a source format. Only this detector is created, if it was not created
+     * before, the ones of all other formats are not loaded.
+     *
+     * @param prefix The prefix of the source format, the case is ignored, 'auto' for the automatic
+     *            detection of the format
+     * @return The detector, empty if there is no source format with the prefix
+     */
+    public Optional<IDetector<?>> getDetector (final String prefix)
+    {
+        if (AutoDetector.PREFIX.equalsIgnoreCase (prefix))
+            return Optional.of (this.getAutoDetector ());
+        return FormatRegistry.findDetector (prefix).map (this::getDetector);
+    }
+
+
+    /**
+     * Get the detector which detects the format of each source file and hands it to the detector
+     * of that format. Creates the detectors of all formats.
+     *
+     * @return The detector
+     */
+    public AutoDetector getAutoDetector ()
+    {
+        if (this.autoDetector == null)
+            this.autoDetector = new AutoDetector (this.notifier, new ArrayList<> (this.getDetectors ()));
+        return this.autoDetector;
+    }
+
+
+    /**
+     * Get the creator of a destination format. Only this creator is created, if it was not created
+     * before, the ones of all other formats are not loaded.
+     *
+     * @param prefix The prefix of the destination format, the case is ignored
+     * @return The creator, empty if there is no destination format with the prefix
+     */
+    public Optional<ICreator<?>> getCreator (final String prefix)
+    {
+        return FormatRegistry.findCreator (prefix).map (this::getCreator);
+    }
+
+
+    private IDetector<?> getDetector (final FormatDescriptor<IDetector<?>> descriptor)
+    {
+        return this.detectorsByPrefix.computeIfAbsent (descriptor.prefix (), _ -> descriptor.create (this.notifier));
+    }
+
+
+    private ICreator<?> getCreator (final FormatDescriptor<ICreator<?>> descriptor)
+    {
+        return this.creatorsByPrefix.computeIfAbsent (descriptor.prefix (), _ -> descriptor.create (this.notifier));
+    }
+
+
     /**
      * Start the detection.
      *
@@ -364,6 +234,20 @@ public class ConverterBackend
         this.collectedPresetSources.clear ();
         this.collectedPerformanceSources.clear ();
         this.contentsEntries.clear ();
+        PipelineStatistics.reset ();
+        MemoryBudget.reset ();
+        this.previewWriter = !onlyContents && detectionSettings.renderPreviews ? new PreviewWriter (detectionSettings.previewOctaves, detectionSettings.previewVelocities) : null;
+        this.analysisReport = null;
+        this.parallelAnalysis = null;
+        if (onlyAnalyse && !onlyContents && detectionSettings.analysisReportFile != null)
+            try
+            {
+                this.analysisReport = new AnalysisReport (detectionSettings.analysisReportFile, detectionSettings.sourceFolder, detector.getName ());
+            }
+            catch (final IOException ex)
+            {
+                this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
+            }
 
         this.notifier.log ("TITLE");
         if (this.onlyContents)
@@ -374,7 +258,34 @@ public class ConverterBackend
             this.notifier.log ("IDS_NOTIFY_DETECTING", detector.getName (), creator.getName ());
         if (this.creator != null)
             this.creator.clearCancelled ();
-        this.detector.detect (detectionSettings.sourceFolder, getFilesToRead (detectionSettings, onlyContents), this::acceptMultisample, this::acceptPerformance, detectPerformances);
+
+        final List<File> filesToRead = getFilesToRead (detectionSettings, onlyContents);
+        final Optional<FormatDescriptor<IDetector<?>>> parallelDescriptor = this.getParallelAnalysisDescriptor (detectPerformances);
+        if (parallelDescriptor.isPresent ())
+        {
+            this.parallelAnalysis = new ParallelAnalysis (this.notifier, parallelDescriptor.get (), detector, this.analysisReport, detectionSettings.sourceFolder, filesToRead, detectPerformances);
+            this.parallelAnalysis.start ();
+        }
+        else
+            this.detector.detect (detectionSettings.sourceFolder, filesToRead, this::acceptMultisample, this::acceptPerformance, detectPerformances);
+    }
+
+
+    /**
+     * Get the source format whose detector can read the source files in parallel when an analysis
+     * report is written. The source files are read one after the other by the selected detector if
+     * the format reads folders instead of files, with the automatic detection, if specific sources
+     * were selected or if the details are logged or previews are rendered, since these need the
+     * sources in the order of the files.
+     *
+     * @param detectPerformances If true, performances are detected otherwise presets
+     * @return The source format, empty if the files need to be read one after the other
+     */
+    private Optional<FormatDescriptor<IDetector<?>>> getParallelAnalysisDescriptor (final boolean detectPerformances)
+    {
+        if (this.analysisReport == null || this.previewWriter != null || this.detectionSettings.logAnalysisDetails || !this.detectionSettings.selectedSources.isEmpty () || !ParallelAnalysis.supports (this.detector, detectPerformances))
+            return Optional.empty ();
+        return FormatRegistry.findDetector (this.detector.getPrefix ());
     }
 
 
@@ -413,6 +324,8 @@ public class ConverterBackend
     public void cancelExecution ()
     {
         this.detector.cancel ();
+        if (this.parallelAnalysis != null)
+            this.parallelAnalysis.cancel ();
         this.creator.cancel ();
     }
 
@@ -424,8 +337,11 @@ public class ConverterBackend
      */
     public void finish (final boolean cancelled)
     {
+        // The previews must be complete before a library is created from the same sources
+        this.finishPreviews (cancelled);
+
         if (!cancelled && !this.onlyAnalyse)
-            try
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.CREATOR_WRITE, this.detectionSettings.libraryName))
             {
                 if (!this.collectedPresetSources.isEmpty ())
                 {
@@ -443,10 +359,60 @@ public class ConverterBackend
                 this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
             }
 
+        this.finishAnalysisReport (cancelled);
+        MemoryBudget.logSummary (this.notifier);
         this.notifier.log (cancelled ? "IDS_NOTIFY_CANCELLED" : "IDS_NOTIFY_FINISHED");
     }
 
 
+    /**
+     * Write the totals of the analysis report, if one is written, and log them.
+     *
+     * @param cancelled True if the process was cancelled
+     */
+    private void finishAnalysisReport (final boolean cancelled)
+    {
+        if (this.analysisReport == null)
+            return;
+
+        try
+        {
+            final AnalysisReport.Totals totals = this.analysisReport.finish (cancelled);
+            this.notifier.log ("IDS_NOTIFY_ANALYSIS_REPORT", Long.toString (totals.files ()), Long.toString (totals.presets ()), Long.toString (totals.zones ()), Long.toString (totals.presetsWithKeyGaps ()), Long.toString (totals.presetsWithVelocityGaps ()), Long.toString (totals.presetsWithMissingSamples ()), Long.toString (totals.unreadFiles ()), this.analysisReport.getReportFile ().getAbsolutePath ());
+        }
+        catch (final IOException ex)
+        {
+            this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
+        }
+        this.analysisReport = null;
+        this.parallelAnalysis = null;
+    }
+
+
+    /**
+     * Wait for the rendering of the preview notes and write their summary.
+     *
+     * @param cancelled True if the process was cancelled
+     */
+    private void finishPreviews (final boolean cancelled)
+    {
+        if (this.previewWriter == null)
+            return;
+
+        try
+        {
+            final int [] result = this.previewWriter.finish (this.detectionSettings.outputFolder, cancelled);
+            if (!cancelled)
+                this.notifier.log ("IDS_NOTIFY_PREVIEWS_WRITTEN", Integer.toString (result[0]), Integer.toString (result[1]), PreviewWriter.SUMMARY_FILENAME);
+        }
+        catch (final IOException ex)
+        {
+            this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
+        }
+        this.previewWriter = null;
+    }
+
+
     private void acceptMultisample (final IMultisampleSource multisampleSource)
     {
         if (this.detector.isCancelled ())
@@ -470,6 +436,8 @@ public class ConverterBackend
         // not what the processing added (e.g. the category based default envelope)
         if (this.onlyAnalyse && this.detectionSettings.logAnalysisDetails)
             AnalysisLogger.log (this.notifier, multisampleSource);
+        if (this.analysisReport != null)
+            this.addToAnalysisReport (multisampleSource, null, index == 0);
 
         this.processSource (multisampleSource);
 
@@ -478,16 +446,18 @@ public class ConverterBackend
             if (!this.onlyAnalyse)
                 this.collectedPresetSources.add (multisampleSource);
             this.notifier.log ("IDS_NOTIFY_COLLECTING", multisampleSource.getName ());
+            this.renderPreviews (multisampleSource);
             return;
         }
 
         if (this.onlyAnalyse)
         {
             this.notifier.log (IDS_NOTIFY_ANALYZE_OK, multisampleSource.getName ());
+            this.renderPreviews (multisampleSource);
             return;
         }
 
-        try
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.CREATOR_WRITE, multisampleSource.getName ()))
         {
             final File multisampleOutputFolder = calcOutputFolder (this.detectionSettings.outputFolder, multisampleSource.getSubPath (), this.detectionSettings.createFolderStructure);
             this.creator.createPreset (multisampleOutputFolder, multisampleSource);
@@ -500,6 +470,53 @@ public class ConverterBackend
         {
             this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
         }
+
+        // Rendered after the creator is done with the source, since it runs in the background
+        this.renderPreviews (multisampleSource);
+    }
+
+
+    /**
+     * Add a multi-sample to the analysis report.
+     *
+     * @param multisampleSource The multi-sample
+     * @param performanceName The name of the performance which contains the multi-sample, null if
+     *            it is not part of a performance
+     * @param isFirstOfFile True if it is the first source of its file, which counts the file
+     */
+    private void addToAnalysisReport (final IMultisampleSource multisampleSource, final String performanceName, final boolean isFirstOfFile)
+    {
+        if (isFirstOfFile)
+            this.analysisReport.addFile ();
+        try
+        {
+            this.analysisReport.add (multisampleSource, performanceName);
+        }
+        catch (final IOException ex)
+        {
+            this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
+        }
+    }
+
+
+    /**
+     * Queue the rendering of the preview notes of a multi-sample, if requested.
+     *
+     * @param multisampleSource The multi-sample
+     */
+    private void renderPreviews (final IMultisampleSource multisampleSource)
+    {
+        if (this.previewWriter == null)
+            return;
+        try
+        {
+            final File previewFolder = calcOutputFolder (this.detectionSettings.outputFolder, multisampleSource.getSubPath (), this.detectionSettings.createFolderStructure);
+            this.previewWriter.render (multisampleSource, previewFolder);
+        }
+        catch (final IOException ex)
+        {
+            this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
+        }
     }
 
 
@@ -529,6 +546,9 @@ public class ConverterBackend
         // and not what the processing added (e.g. the category based default envelope)
         if (this.onlyAnalyse && this.detectionSettings.logAnalysisDetails)
             AnalysisLogger.log (this.notifier, performanceSource);
+        if (this.analysisReport != null)
+            for (int i = 0; i < instrumentSources.size (); i++)
+                this.addToAnalysisReport (instrumentSources.get (i).getMultisampleSource (), performanceSource.getName (), index == 0 && i == 0);
 
         for (final IInstrumentSource instrumentSource: instrumentSources)
             this.processSource (instrumentSource.getMultisampleSource ());
@@ -547,7 +567,7 @@ public class ConverterBackend
             return;
         }
 
-        try
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.CREATOR_WRITE, performanceSource.getName ()))
         {
             final File multisampleOutputFolder = calcOutputFolder (this.detectionSettings.outputFolder, instrumentSources.get (0).getMultisampleSource ().getSubPath (), this.detectionSettings.createFolderStructure);
             this.creator.createPerformance (multisampleOutputFolder, performanceSource);
@@ -600,11 +620,26 @@ public class ConverterBackend
 
     private void processSource (final IMultisampleSource multisampleSource)
     {
-        ensureSafeSampleFileNames (multisampleSource);
-        this.processSamples (multisampleSource);
-        this.applyDefaultEnvelope (multisampleSource);
-        this.checkOffCenterMapping (multisampleSource);
-        this.checkLoopClicks (multisampleSource);
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.PROCESS_SOURCE, multisampleSource.getName ()))
+        {
+            ensureSafeSampleFileNames (multisampleSource);
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.PROCESS_SAMPLES))
+            {
+                this.processSamples (multisampleSource);
+            }
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.PROCESS_DEFAULT_ENVELOPE))
+            {
+                this.applyDefaultEnvelope (multisampleSource);
+            }
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.PROCESS_MAPPING_CHECK))
+            {
+                this.checkOffCenterMapping (multisampleSource);
+            }
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.PROCESS_LOOP_CHECK))
+            {
+                this.checkLoopClicks (multisampleSource);
+            }
+        }
     }
 
 
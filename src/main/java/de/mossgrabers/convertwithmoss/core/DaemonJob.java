@@ -0,0 +1,236 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+
+/**
+ * One conversion which was handed to the conversion daemon. A job consists of the same arguments
+ * as a conversion started from the command line and an output to which everything is written which
+ * the command line interface would print: the log, the machine-readable progress and additionally
+ * the status of the job itself, one line each:
+ *
+ * <pre>
+ * CWM_JOB id=&lt;number&gt; status=&lt;token&gt; detail=&lt;text&gt;
+ * </pre>
+ *
+ * The status is one of 'queued' (the job waits for a free worker), 'running', 'done' (the
+ * conversion ran to its end without errors), 'failed' (errors were reported, e.g. for single files,
+ * or the job stopped with an unexpected exception, both are part of the log), 'cancelled' (the
+ * client disconnected) and 'rejected' (the arguments contain a problem, which is written before).
+ * The detail follows the rules of the progress lines (see {@link MachineProgressReporter}).
+ *
+ * @author Jürgen Moßgraber
+ */
+class DaemonJob
+{
+    /** The job waits for a free worker. */
+    static final String                  STATUS_QUEUED    = "queued";
+    /** The job is executed. */
+    static final String                  STATUS_RUNNING   = "running";
+    /** The conversion of the job ran to its end without errors. */
+    static final String                  STATUS_DONE      = "done";
+    /** Errors were reported during the conversion of the job or it stopped unexpectedly. */
+    static final String                  STATUS_FAILED    = "failed";
+    /** The job was cancelled since its client disconnected. */
+    static final String                  STATUS_CANCELLED = "cancelled";
+    /** The arguments of the job contain a problem. */
+    static final String                  STATUS_REJECTED  = "rejected";
+
+    private static final String          PREFIX           = "CWM_JOB";
+
+    private final int                    id;
+    private final String []              arguments;
+    private final String                 description;
+    private final LineTrackingStream     lineTracker;
+    private final PrintStream            output;
+    private final Consumer<String>       completionHandler;
+
+
+    /**
+     * Constructor.
+     *
+     * @param id The number which identifies the job in the status lines
+     * @param arguments The command line arguments of the conversion
+     * @param description Describes where the job comes from, e.g. the name of the spool file
+     * @param output Where to write the output of the job to, closed when the job is completed
+     * @param completionHandler Is called with the final status when the job is completed, might
+     *            be null
+     */
+    DaemonJob (final int id, final String [] arguments, final String description, final OutputStream output, final Consumer<String> completionHandler)
+    {
+        this.id = id;
+        this.arguments = arguments;
+        this.description = description;
+        this.lineTracker = new LineTrackingStream (output);
+        this.output = new PrintStream (this.lineTracker, true, StandardCharsets.UTF_8);
+        this.completionHandler = completionHandler;
+    }
+
+
+    /**
+     * Get the number which identifies the job.
+     *
+     * @return The number
+     */
+    int getId ()
+    {
+        return this.id;
+    }
+
+
+    /**
+     * Get the command line arguments of the conversion.
+     *
+     * @return The arguments
+     */
+    String [] getArguments ()
+    {
+        return this.arguments;
+    }
+
+
+    /**
+     * Get the description where the job comes from.
+     *
+     * @return The description
+     */
+    String getDescription ()
+    {
+        return this.description;
+    }
+
+
+    /**
+     * Get the output as a stream, e.g. to write the problems of the arguments to it.
+     *
+     * @return The output
+     */
+    PrintStream getOutput ()
+    {
+        return this.output;
+    }
+
+
+    /**
+     * Write text to the output of the job.
+     *
+     * @param text The text
+     */
+    synchronized void write (final String text)
+    {
+        this.output.print (text);
+        this.output.flush ();
+    }
+
+
+    /**
+     * Write one line of a protocol to the output of the job. The line always starts at the
+     * beginning of a line, even if the log text before did not end with a line separator, so that
+     * it can be parsed.
+     *
+     * @param line The line without a line separator
+     */
+    synchronized void writeLine (final String line)
+    {
+        if (!this.lineTracker.isAtLineStart ())
+            this.output.println ();
+        this.output.println (line);
+    }
+
+
+    /**
+     * Write a status line of the job.
+     *
+     * @param status The status, one of the STATUS constants
+     * @param detail The detail text
+     */
+    void writeStatus (final String status, final String detail)
+    {
+        this.writeLine (PREFIX + " id=" + this.id + " status=" + status + " detail=" + MachineProgressReporter.sanitize (detail));
+    }
+
+
+    /**
+     * Test if the output of the job can no longer be written, e.g. since the client which started
+     * it disconnected.
+     *
+     * @return True if the output is broken
+     */
+    boolean isDisconnected ()
+    {
+        return this.output.checkError ();
+    }
+
+
+    /**
+     * Write the final status, close the output and notify the completion handler.
+     *
+     * @param status The final status
+     */
+    void complete (final String status)
+    {
+        this.writeStatus (status, this.description);
+        this.output.close ();
+        if (this.completionHandler != null)
+            this.completionHandler.accept (status);
+    }
+
+
+    /**
+     * Remembers if the last written character ended a line.
+     */
+    private static final class LineTrackingStream extends FilterOutputStream
+    {
+        private volatile boolean isAtLineStart = true;
+
+
+        /**
+         * Constructor.
+         *
+         * @param out The stream to write to
+         */
+        LineTrackingStream (final OutputStream out)
+        {
+            super (out);
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void write (final int b) throws IOException
+        {
+            this.out.write (b);
+            this.isAtLineStart = b == '\n';
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void write (final byte [] b, final int off, final int len) throws IOException
+        {
+            this.out.write (b, off, len);
+            if (len > 0)
+                this.isAtLineStart = b[off + len - 1] == '\n';
+        }
+
+
+        /**
+         * Did the last written character end a line?
+         *
+         * @return True if nothing was written yet or the last character was a line feed
+         */
+        boolean isAtLineStart ()
+        {
+            return this.isAtLineStart;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.mossgrabers.convertwithmoss.core.CLIBackend.Conversion;
+import de.mossgrabers.tools.ui.Functions;
+import picocli.CommandLine;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.ParseResult;
+
+
+/**
+ * Executes the jobs of the conversion daemon one after the other. Each worker has its own back-end
+ * with its own detectors and creators, since these keep the settings and the state of the
+ * conversion which they execute. The back-end is created once and then kept for all jobs, a
+ * detector or creator is created with the first job which uses it and then kept as well. A job
+ * which fails, e.g. with an unexpected exception, is completed as failed and the worker continues
+ * with the next one.
+ *
+ * @author Jürgen Moßgraber
+ */
+class DaemonWorker implements Runnable, INotifier
+{
+    /** How often to check if the client of a running job is still connected, in seconds. */
+    private static final int               CONNECTION_CHECK_INTERVAL = 1;
+
+    private final BlockingQueue<DaemonJob> queue;
+    private final ConverterBackend         backend;
+
+    private volatile DaemonJob             currentJob;
+    private volatile CountDownLatch        finishedSignal;
+    private volatile boolean               hasErrors;
+
+
+    /**
+     * Constructor.
+     *
+     * @param queue The queue from which to take the jobs
+     */
+    DaemonWorker (final BlockingQueue<DaemonJob> queue)
+    {
+        this.queue = queue;
+        this.backend = new ConverterBackend (this);
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void run ()
+    {
+        try
+        {
+            while (!Thread.currentThread ().isInterrupted ())
+            {
+                final DaemonJob job = this.queue.take ();
+                String status;
+                try
+                {
+                    status = this.execute (job);
+                }
+                catch (final RuntimeException ex)
+                {
+                    final StringWriter sw = new StringWriter ();
+                    ex.printStackTrace (new PrintWriter (sw));
+                    job.write (sw.toString ());
+                    status = DaemonJob.STATUS_FAILED;
+                }
+                System.out.print (Functions.getMessage ("IDS_DAEMON_JOB_FINISHED", Integer.toString (job.getId ()), status));
+                job.complete (status);
+            }
+        }
+        catch (final InterruptedException _)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+
+    /**
+     * Execute one job.
+     *
+     * @param job The job
+     * @return The final status of the job, failed if the back-end reported an error
+     * @throws InterruptedException The worker was interrupted while waiting for the end of the
+     *             conversion
+     */
+    private String execute (final DaemonJob job) throws InterruptedException
+    {
+        if (job.isDisconnected ())
+            return DaemonJob.STATUS_CANCELLED;
+
+        this.currentJob = job;
+        this.hasErrors = false;
+        job.writeStatus (DaemonJob.STATUS_RUNNING, job.getDescription ());
+
+        final ParseResult parseResult;
+        try
+        {
+            parseResult = new CommandLine (CLIBackend.createCommandSpec ()).parseArgs (job.getArguments ());
+        }
+        catch (final ParameterException ex)
+        {
+            job.write (ex.getMessage () + "\n");
+            return DaemonJob.STATUS_REJECTED;
+        }
+        if (parseResult.isUsageHelpRequested () || parseResult.isVersionHelpRequested ())
+        {
+            job.write (parseResult.commandSpec ().commandLine ().getUsageMessage ());
+            return DaemonJob.STATUS_REJECTED;
+        }
+        if (parseResult.hasMatchedOption ("M") || parseResult.hasMatchedOption ("Mj"))
+        {
+            job.write (Functions.getMessage ("IDS_DAEMON_NO_METRICS"));
+            return DaemonJob.STATUS_REJECTED;
+        }
+        if (parseResult.hasMatchedOption ("Sc") || parseResult.hasMatchedOption ("Mb"))
+        {
+            job.write (Functions.getMessage ("IDS_DAEMON_NO_GLOBAL_SETTINGS"));
+            return DaemonJob.STATUS_REJECTED;
+        }
+
+        final Optional<Conversion> result = CLIBackend.createConversion (parseResult, this.backend, this, job.getOutput ());
+        if (result.isEmpty ())
+            return DaemonJob.STATUS_REJECTED;
+
+        final Conversion conversion = result.get ();
+        this.finishedSignal = new CountDownLatch (1);
+        this.backend.detect (conversion.detector (), conversion.creator (), conversion.detectSettings (), conversion.detectPerformances (), conversion.onlyAnalyse ());
+
+        boolean isCancelled = false;
+        while (!this.finishedSignal.await (CONNECTION_CHECK_INTERVAL, TimeUnit.SECONDS))
+            if (!isCancelled && job.isDisconnected ())
+            {
+                this.backend.cancelExecution ();
+                isCancelled = true;
+            }
+        if (isCancelled)
+            return DaemonJob.STATUS_CANCELLED;
+        return this.hasErrors ? DaemonJob.STATUS_FAILED : DaemonJob.STATUS_DONE;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void log (final String messageID, final String... replaceStrings)
+    {
+        this.currentJob.write (Functions.getMessage (messageID, replaceStrings));
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void logError (final String messageID, final String... replaceStrings)
+    {
+        this.hasErrors = true;
+        this.currentJob.write (Functions.getMessage (messageID, replaceStrings));
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void logError (final String messageID, final Throwable throwable)
+    {
+        this.hasErrors = true;
+        this.currentJob.write (Functions.getMessage (messageID, throwable));
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void logError (final Throwable throwable)
+    {
+        this.hasErrors = true;
+        this.currentJob.write (throwable.getMessage ());
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void logError (final Throwable throwable, final boolean logExceptionStack)
+    {
+        this.hasErrors = true;
+        String message = throwable.getMessage ();
+        if (message == null)
+            message = throwable.getClass ().getName ();
+        if (logExceptionStack)
+        {
+            final StringWriter sw = new StringWriter ();
+            throwable.printStackTrace (new PrintWriter (sw));
+            message = message + "\n" + sw.toString ();
+        }
+        this.currentJob.write (message + "\n");
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void logText (final String text)
+    {
+        this.currentJob.write (text);
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void logProgress (final String line)
+    {
+        this.currentJob.writeLine (line);
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void updateButtonStates (final boolean canClose)
+    {
+        // Not used
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void finished (final boolean cancelled)
+    {
+        // Creates libraries if requested
+        this.backend.finish (cancelled);
+
+        this.finishedSignal.countDown ();
+    }
+}
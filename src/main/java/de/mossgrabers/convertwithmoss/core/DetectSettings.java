@@ -43,6 +43,23 @@ public class DetectSettings
     public boolean                       createFolderStructure;
     /** True, if an analysis run should log the details of every found source. */
     public boolean                       logAnalysisDetails;
+    /**
+     * If set, an analysis run writes one JSON record for every found source into this file. The
+     * files are then read in parallel, if the source format supports it.
+     */
+    public File                          analysisReportFile;
+    /** True, if preview notes of every found source should be rendered into WAV files. */
+    public boolean                       renderPreviews;
+    /** The octaves relative to the preview key of a source at which preview notes are rendered. */
+    public int []                        previewOctaves     =
+    {
+        0
+    };
+    /** The velocities at which preview notes are rendered. */
+    public int []                        previewVelocities  =
+    {
+        100
+    };
 
     // Parameters for Processing
 
@@ -0,0 +1,47 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.util.function.Function;
+
+
+/**
+ * Describes a source or destination format without loading its implementation. The detector or
+ * creator (and with it all classes of the format, its settings and templates) is only loaded when
+ * it is created.
+ *
+ * @param prefix The prefix of the format, which identifies it on the command line, identical to
+ *            the prefix of the created detector or creator
+ * @param name The name of the format
+ * @param factory Creates the detector or creator
+ * @param <T> The type of the implementation, a detector or a creator
+ *
+ * @author Jürgen Moßgraber
+ */
+public record FormatDescriptor<T> (String prefix, String name, Function<INotifier, T> factory)
+{
+    /**
+     * Create a new instance of the detector or creator of the format.
+     *
+     * @param notifier The notifier for log-feedback
+     * @return The new instance
+     */
+    public T create (final INotifier notifier)
+    {
+        return this.factory.apply (notifier);
+    }
+
+
+    /**
+     * Test if the given text identifies this format. The case is ignored.
+     *
+     * @param text The text, e.g. from the command line
+     * @return True if it matches the prefix
+     */
+    public boolean matches (final String text)
+    {
+        return this.prefix.equalsIgnoreCase (text);
+    }
+}
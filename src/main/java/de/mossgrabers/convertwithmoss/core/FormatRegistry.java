@@ -0,0 +1,314 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import de.mossgrabers.convertwithmoss.core.creator.ICreator;
+import de.mossgrabers.convertwithmoss.core.detector.IDetector;
+import de.mossgrabers.convertwithmoss.format.ableton.AbletonCreator;
+import de.mossgrabers.convertwithmoss.format.ableton.AbletonDetector;
+import de.mossgrabers.convertwithmoss.format.akai.akp.AkpDetector;
+import de.mossgrabers.convertwithmoss.format.akai.mesa.AkaiMesaDetector;
+import de.mossgrabers.convertwithmoss.format.akai.mpc.MPCKeygroupCreator;
+import de.mossgrabers.convertwithmoss.format.akai.mpc.MPCModernDetector;
+import de.mossgrabers.convertwithmoss.format.akai.mpc1000.AkaiMPC1000Detector;
+import de.mossgrabers.convertwithmoss.format.akai.mpc2000.AkaiMPC2000Detector;
+import de.mossgrabers.convertwithmoss.format.akai.mpc60.AkaiMPC60Detector;
+import de.mossgrabers.convertwithmoss.format.akai.s1000.AkaiS1000Detector;
+import de.mossgrabers.convertwithmoss.format.akai.s900.AkaiS900Detector;
+import de.mossgrabers.convertwithmoss.format.bitwig.BitwigMultisampleCreator;
+import de.mossgrabers.convertwithmoss.format.bitwig.BitwigMultisampleDetector;
+import de.mossgrabers.convertwithmoss.format.bliss.BlissCreator;
+import de.mossgrabers.convertwithmoss.format.bliss.BlissDetector;
+import de.mossgrabers.convertwithmoss.format.casio.CasioFZCreator;
+import de.mossgrabers.convertwithmoss.format.casio.CasioFZDetector;
+import de.mossgrabers.convertwithmoss.format.cmi3.FairlightCmi3Creator;
+import de.mossgrabers.convertwithmoss.format.cmi3.FairlightCmi3Detector;
+import de.mossgrabers.convertwithmoss.format.decentsampler.DecentSamplerCreator;
+import de.mossgrabers.convertwithmoss.format.decentsampler.DecentSamplerDetector;
+import de.mossgrabers.convertwithmoss.format.directwave.DirectWaveCreator;
+import de.mossgrabers.convertwithmoss.format.directwave.DirectWaveDetector;
+import de.mossgrabers.convertwithmoss.format.disting.DistingExCreator;
+import de.mossgrabers.convertwithmoss.format.disting.DistingExDetector;
+import de.mossgrabers.convertwithmoss.format.dls.DlsDetector;
+import de.mossgrabers.convertwithmoss.format.elektron.TonverkMultiCreator;
+import de.mossgrabers.convertwithmoss.format.elektron.TonverkMultiDetector;
+import de.mossgrabers.convertwithmoss.format.elektron.TonverkPresetCreator;
+import de.mossgrabers.convertwithmoss.format.elektron.TonverkPresetDetector;
+import de.mossgrabers.convertwithmoss.format.emu.emulator2.Emulator2Detector;
+import de.mossgrabers.convertwithmoss.format.emu.emulator3.Emulator3Creator;
+import de.mossgrabers.convertwithmoss.format.emu.emulator3.Emulator3Detector;
+import de.mossgrabers.convertwithmoss.format.emu.emulator4.Emulator4Creator;
+import de.mossgrabers.convertwithmoss.format.emu.emulator4.Emulator4Detector;
+import de.mossgrabers.convertwithmoss.format.emu.emulatorx.EmulatorXCreator;
+import de.mossgrabers.convertwithmoss.format.emu.emulatorx.EmulatorXDetector;
+import de.mossgrabers.convertwithmoss.format.ensoniq.epsasr.EnsoniqEpsAsrDetector;
+import de.mossgrabers.convertwithmoss.format.ensoniq.mirage.MirageDetector;
+import de.mossgrabers.convertwithmoss.format.exs.EXS24Creator;
+import de.mossgrabers.convertwithmoss.format.exs.EXS24Detector;
+import de.mossgrabers.convertwithmoss.format.isla.s2400.S2400Creator;
+import de.mossgrabers.convertwithmoss.format.isla.s2400.S2400Detector;
+import de.mossgrabers.convertwithmoss.format.iso.IsoDetector;
+import de.mossgrabers.convertwithmoss.format.kmp.KMPCreator;
+import de.mossgrabers.convertwithmoss.format.kmp.KMPDetector;
+import de.mossgrabers.convertwithmoss.format.korgmultisample.KorgmultisampleCreator;
+import de.mossgrabers.convertwithmoss.format.korgmultisample.KorgmultisampleDetector;
+import de.mossgrabers.convertwithmoss.format.kurzweil.KurzweilCreator;
+import de.mossgrabers.convertwithmoss.format.kurzweil.KurzweilDetector;
+import de.mossgrabers.convertwithmoss.format.music1010.bento.BentoCreator;
+import de.mossgrabers.convertwithmoss.format.music1010.bento.BentoDetector;
+import de.mossgrabers.convertwithmoss.format.music1010.blackbox.Music1010Creator;
+import de.mossgrabers.convertwithmoss.format.music1010.blackbox.Music1010Detector;
+import de.mossgrabers.convertwithmoss.format.ni.kontakt.KontaktCreator;
+import de.mossgrabers.convertwithmoss.format.ni.kontakt.KontaktDetector;
+import de.mossgrabers.convertwithmoss.format.ni.maschine.MaschineCreator;
+import de.mossgrabers.convertwithmoss.format.ni.maschine.MaschineDetector;
+import de.mossgrabers.convertwithmoss.format.omnisphere.OmnisphereCreator;
+import de.mossgrabers.convertwithmoss.format.omnisphere.OmnisphereDetector;
+import de.mossgrabers.convertwithmoss.format.polyend.PolyendTrackerCreator;
+import de.mossgrabers.convertwithmoss.format.polyend.PolyendTrackerDetector;
+import de.mossgrabers.convertwithmoss.format.renoise.RenoiseCreator;
+import de.mossgrabers.convertwithmoss.format.renoise.RenoiseDetector;
+import de.mossgrabers.convertwithmoss.format.roland.mc707.MC707Creator;
+import de.mossgrabers.convertwithmoss.format.roland.mc707.MC707Detector;
+import de.mossgrabers.convertwithmoss.format.roland.mv8000.MV8000Creator;
+import de.mossgrabers.convertwithmoss.format.roland.mv8000.MV8000Detector;
+import de.mossgrabers.convertwithmoss.format.roland.s1xx.S1xxDetector;
+import de.mossgrabers.convertwithmoss.format.roland.s5xx.S5xxDetector;
+import de.mossgrabers.convertwithmoss.format.roland.s7xx.S770Detector;
+import de.mossgrabers.convertwithmoss.format.roland.sp404mk2.SP404Mk2Creator;
+import de.mossgrabers.convertwithmoss.format.roland.sp404mk2.SP404Mk2Detector;
+import de.mossgrabers.convertwithmoss.format.roland.zencore.ZenCoreCreator;
+import de.mossgrabers.convertwithmoss.format.roland.zencore.ZenCoreDetector;
+import de.mossgrabers.convertwithmoss.format.samplefile.SampleFileDetector;
+import de.mossgrabers.convertwithmoss.format.sf2.Sf2Creator;
+import de.mossgrabers.convertwithmoss.format.sf2.Sf2Detector;
+import de.mossgrabers.convertwithmoss.format.sfz.SfzCreator;
+import de.mossgrabers.convertwithmoss.format.sfz.SfzDetector;
+import de.mossgrabers.convertwithmoss.format.soundbox.SoundboxCreator;
+import de.mossgrabers.convertwithmoss.format.soundbox.SoundboxDetector;
+import de.mossgrabers.convertwithmoss.format.sxt.SxtCreator;
+import de.mossgrabers.convertwithmoss.format.sxt.SxtDetector;
+import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierRegenCreator;
+import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierRegenDetector;
+import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierVCreator;
+import de.mossgrabers.convertwithmoss.format.synclavier.SynclavierVDetector;
+import de.mossgrabers.convertwithmoss.format.synthstrom.DelugeCreator;
+import de.mossgrabers.convertwithmoss.format.synthstrom.DelugeDetector;
+import de.mossgrabers.convertwithmoss.format.tal.TALSamplerCreator;
+import de.mossgrabers.convertwithmoss.format.tal.TALSamplerDetector;
+import de.mossgrabers.convertwithmoss.format.teenage.opxy.OpXyCreator;
+import de.mossgrabers.convertwithmoss.format.teenage.opxy.OpXyDetector;
+import de.mossgrabers.convertwithmoss.format.tx16wx.TX16WxCreator;
+import de.mossgrabers.convertwithmoss.format.tx16wx.TX16WxDetector;
+import de.mossgrabers.convertwithmoss.format.waldorf.qpat.WaldorfQpatCreator;
+import de.mossgrabers.convertwithmoss.format.waldorf.qpat.WaldorfQpatDetector;
+import de.mossgrabers.convertwithmoss.format.wav.WavCreator;
+import de.mossgrabers.convertwithmoss.format.yamaha.ysfc.YamahaYsfcCreator;
+import de.mossgrabers.convertwithmoss.format.yamaha.ysfc.YamahaYsfcDetector;
+
+
+/**
+ * All supported source and destination formats. The formats are only described here, a detector
+ * or creator is created on demand. This keeps the classes of all other formats unloaded, e.g. when
+ * the command line converts from one format into another.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class FormatRegistry
+{
+    private static final List<FormatDescriptor<IDetector<?>>> DETECTORS = new ArrayList<> ();
+    private static final List<FormatDescriptor<ICreator<?>>>  CREATORS  = new ArrayList<> ();
+    static
+    {
+        DETECTORS.add (new FormatDescriptor<> ("Bento", "1010music bento", notifier -> new BentoDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("1010music", "1010music blackbox", notifier -> new Music1010Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Ableton", "Ableton Sampler", notifier -> new AbletonDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S5000", "Akai AKP/AKM", notifier -> new AkpDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MESA", "Akai MESA", notifier -> new AkaiMesaDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MPC60", "Akai MPC 60", notifier -> new AkaiMPC60Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MPC1000", "Akai MPC 500/1000/2500", notifier -> new AkaiMPC1000Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MPC2000", "Akai MPC 2000(XL)/3000", notifier -> new AkaiMPC2000Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MPC", "Akai MPC Modern", notifier -> new MPCModernDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S900", "Akai S900/S950", notifier -> new AkaiS900Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S1000", "Akai S1000/S3000", notifier -> new AkaiS1000Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("SynclavierV", "Arturia Synclavier V", notifier -> new SynclavierVDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Soundbox", "Audiomodern Soundbox", notifier -> new SoundboxDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Bitwig", "Bitwig Multisample", notifier -> new BitwigMultisampleDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("ZBP", "Bliss Preset/Bank", notifier -> new BlissDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("CasioFZ", "Casio FZ-1/10M/20M", notifier -> new CasioFZDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("TX16Wx", "CWITEC TX16Wx", notifier -> new TX16WxDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("DecentSampler", "DecentSampler", notifier -> new DecentSamplerDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("DLS", "Downloadable Sounds", notifier -> new DlsDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("EII", "E-mu Emulator II", notifier -> new Emulator2Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("EIII", "E-mu Emulator III", notifier -> new Emulator3Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("E4B", "E-mu Emulator IV", notifier -> new Emulator4Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("EXB", "E-mu Emulator X", notifier -> new EmulatorXDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Elektron", "Elektron Tonverk Multisample", notifier -> new TonverkMultiDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Tonverk", "Elektron Tonverk Preset", notifier -> new TonverkPresetDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Ensoniq", "Ensoniq EPS/ASR", notifier -> new EnsoniqEpsAsrDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Mirage", "Ensoniq Mirage", notifier -> new MirageDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("distingEX", "Expert Sleepers Disting EX", notifier -> new DistingExDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("CMI3", "Fairlight CMI Voice", notifier -> new FairlightCmi3Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("DirectWave", "FL Studio DirectWave", notifier -> new DirectWaveDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S2400", "ISLA S2400", notifier -> new S2400Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("ISO", "ISO/IMG file", notifier -> new IsoDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("KMP", "Korg KSC/KMP/KSF", notifier -> new KMPDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("KorgMultisample", "Korg Wavestate/Modwave", notifier -> new KorgmultisampleDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Kurzweil", "Kurzweil K2x00", notifier -> new KurzweilDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("EXS24", "Logic EXS24", notifier -> new EXS24Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Nki", "NI Kontakt", notifier -> new KontaktDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Maschine", "NI Maschine", notifier -> new MaschineDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("PolyendTracker", "Polyend Tracker", notifier -> new PolyendTrackerDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Renoise", "Renoise", notifier -> new RenoiseDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MC707", "Roland MC-707/MC-101", notifier -> new MC707Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("MV8000", "Roland MV-8000", notifier -> new MV8000Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S1xx", "Roland S-10, S-220, MKS-100", notifier -> new S1xxDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S5xx", "Roland S-5xx", notifier -> new S5xxDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("S7xx", "Roland S-7xx", notifier -> new S770Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("SP404MK2", "Roland SP-404MK2", notifier -> new SP404Mk2Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("ZenCore", "Roland ZEN-Core", notifier -> new ZenCoreDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("SXT", "Reason NN-XT", notifier -> new SxtDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("samplefile", "Sample Files", notifier -> new SampleFileDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("SFZ", "SFZ", notifier -> new SfzDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Sf2", "SoundFont 2", notifier -> new Sf2Detector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Omnisphere", "Spectrasonics Omnisphere 3", notifier -> new OmnisphereDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("SynclavierRegen", "Synclavier Regen", notifier -> new SynclavierRegenDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Deluge", "Synthstrom Deluge", notifier -> new DelugeDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("OPXY", "Teenage Engineering OP-XY", notifier -> new OpXyDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("TALSampler", "TAL Sampler", notifier -> new TALSamplerDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("QPAT", "Waldorf Quantum/Iridium", notifier -> new WaldorfQpatDetector (notifier)));
+        DETECTORS.add (new FormatDescriptor<> ("Ysfc", "Yamaha YSFC", notifier -> new YamahaYsfcDetector (notifier)));
+
+        CREATORS.add (new FormatDescriptor<> ("Bento", "1010music bento", notifier -> new BentoCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("1010music", "1010music blackbox", notifier -> new Music1010Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Ableton", "Ableton Sampler", notifier -> new AbletonCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("MPC", "Akai MPC Modern", notifier -> new MPCKeygroupCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("SynclavierV", "Arturia Synclavier V", notifier -> new SynclavierVCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Soundbox", "Audiomodern Soundbox", notifier -> new SoundboxCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Bitwig", "Bitwig Multisample", notifier -> new BitwigMultisampleCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("ZBP", "Bliss Preset/Bank", notifier -> new BlissCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("CasioFZ", "Casio FZ-1/10M/20M", notifier -> new CasioFZCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("TX16Wx", "CWITEC TX16Wx", notifier -> new TX16WxCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("DecentSampler", "DecentSampler", notifier -> new DecentSamplerCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("EIII", "E-mu Emulator III", notifier -> new Emulator3Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("E4B", "E-mu Emulator IV", notifier -> new Emulator4Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("EXB", "E-mu Emulator X", notifier -> new EmulatorXCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Emulti", "Elektron Tonverk Multisample", notifier -> new TonverkMultiCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Tonverk", "Elektron Tonverk Preset", notifier -> new TonverkPresetCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("CMI3", "Fairlight CMI Voice", notifier -> new FairlightCmi3Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("distingEX", "Expert Sleepers Disting EX", notifier -> new DistingExCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("DirectWave", "FL Studio DirectWave", notifier -> new DirectWaveCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("S2400", "ISLA S2400", notifier -> new S2400Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("KMP", "Korg KSC/KMP/KSF", notifier -> new KMPCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("KorgMultisample", "Korg Wavestate/Modwave", notifier -> new KorgmultisampleCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Kurzweil", "Kurzweil K2x00", notifier -> new KurzweilCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("EXS24", "Logic EXS24", notifier -> new EXS24Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Nki", "NI Kontakt", notifier -> new KontaktCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Maschine", "NI Maschine", notifier -> new MaschineCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("PolyendTracker", "Polyend Tracker", notifier -> new PolyendTrackerCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Renoise", "Renoise", notifier -> new RenoiseCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("MC707", "Roland MC-707/MC-101", notifier -> new MC707Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("MV8000", "Roland MV-8000", notifier -> new MV8000Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("SP404MK2", "Roland SP-404MK2", notifier -> new SP404Mk2Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("ZenCore", "Roland ZEN-Core", notifier -> new ZenCoreCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("SXT", "Reason NN-XT", notifier -> new SxtCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Wav", "Sample Files", notifier -> new WavCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("SFZ", "SFZ", notifier -> new SfzCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Sf2", "SoundFont 2", notifier -> new Sf2Creator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Omnisphere", "Spectrasonics Omnisphere 3", notifier -> new OmnisphereCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("SynclavierRegen", "Synclavier Regen", notifier -> new SynclavierRegenCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Deluge", "Synthstrom Deluge", notifier -> new DelugeCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("OPXY", "Teenage Engineering OP-XY", notifier -> new OpXyCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("TALSampler", "TAL Sampler", notifier -> new TALSamplerCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("QPAT", "Waldorf Quantum/Iridium", notifier -> new WaldorfQpatCreator (notifier)));
+        CREATORS.add (new FormatDescriptor<> ("Ysfc", "Yamaha YSFC", notifier -> new YamahaYsfcCreator (notifier)));
+    }
+
+
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private FormatRegistry ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Get the descriptions of all source formats in the order in which they are displayed.
+     *
+     * @return The descriptions
+     */
+    public static List<FormatDescriptor<IDetector<?>>> getDetectors ()
+    {
+        return Collections.unmodifiableList (DETECTORS);
+    }
+
+
+    /**
+     * Get the descriptions of all destination formats in the order in which they are displayed.
+     *
+     * @return The descriptions
+     */
+    public static List<FormatDescriptor<ICreator<?>>> getCreators ()
+    {
+        return Collections.unmodifiableList (CREATORS);
+    }
+
+
+    /**
+     * Find the description of a source format.
+     *
+     * @param prefix The prefix of the format, the case is ignored
+     * @return The description if found
+     */
+    public static Optional<FormatDescriptor<IDetector<?>>> findDetector (final String prefix)
+    {
+        return find (DETECTORS, prefix);
+    }
+
+
+    /**
+     * Find the description of a destination format.
+     *
+     * @param prefix The prefix of the format, the case is ignored
+     * @return The description if found
+     */
+    public static Optional<FormatDescriptor<ICreator<?>>> findCreator (final String prefix)
+    {
+        return find (CREATORS, prefix);
+    }
+
+
+    /**
+     * Get the lower-case prefixes of the given formats, e.g. to list the allowed values of an
+     * option.
+     *
+     * @param descriptors The descriptions of the formats
+     * @return The prefixes
+     */
+    public static List<String> getPrefixes (final List<? extends FormatDescriptor<?>> descriptors)
+    {
+        final List<String> prefixes = new ArrayList<> (descriptors.size ());
+        for (final FormatDescriptor<?> descriptor: descriptors)
+            prefixes.add (descriptor.prefix ().toLowerCase (Locale.US));
+        return prefixes;
+    }
+
+
+    private static <T> Optional<FormatDescriptor<T>> find (final List<FormatDescriptor<T>> descriptors, final String prefix)
+    {
+        for (final FormatDescriptor<T> descriptor: descriptors)
+            if (descriptor.matches (prefix))
+                return Optional.of (descriptor);
+        return Optional.empty ();
+    }
+}
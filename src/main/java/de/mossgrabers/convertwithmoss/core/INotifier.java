@@ -63,6 +63,19 @@ public interface INotifier
     void logText (String text);
 
 
+    /**
+     * Log one line of the machine-readable progress protocol (see
+     * {@link MachineProgressReporter}). By default it is written to the error output.
+     *
+     * @param line The line, without a line separator
+     */
+    default void logProgress (final String line)
+    {
+        System.err.println (line);
+        System.err.flush ();
+    }
+
+
     /**
      * Update the button execution states.
      *
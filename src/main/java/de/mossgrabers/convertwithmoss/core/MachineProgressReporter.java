@@ -32,21 +32,23 @@ import java.io.File;
  * line which is not understood should be ignored.
  * <p>
  * All progress calls happen on the thread which executes the detection; only the activation happens
- * before that thread is started.
+ * before that thread is started. The state of a run is kept per thread and the lines are written
+ * to the notifier of the run, therefore several detections can run at the same time (e.g. the jobs
+ * of the conversion daemon), each reporting to its own output.
  *
  * @author Jürgen Moßgraber
  */
 public final class MachineProgressReporter
 {
     /** The prefix which starts every line of the protocol. */
-    private static final String     PREFIX                = "CWM_PROGRESS";
+    private static final String           PREFIX               = "CWM_PROGRESS";
     /** The environment variable which activates the protocol instead of the command line option. */
-    private static final String     ENVIRONMENT_VARIABLE  = "CWM_MACHINE_PROGRESS";
+    private static final String           ENVIRONMENT_VARIABLE = "CWM_MACHINE_PROGRESS";
 
-    private static final String     PHASE_START           = "start";
-    private static final String     PHASE_CONVERT         = "convert";
-    private static final String     PHASE_SAMPLE          = "sample";
-    private static final String     PHASE_DONE            = "done";
+    private static final String           PHASE_START          = "start";
+    private static final String           PHASE_CONVERT        = "convert";
+    private static final String           PHASE_SAMPLE         = "sample";
+    private static final String           PHASE_DONE           = "done";
 
     /**
      * The number of loaded samples after which about 63% of the percentage range of the current
@@ -54,16 +56,13 @@ public final class MachineProgressReporter
      * read, therefore the progress inside of a file can only approach the end of its range instead
      * of walking towards it in known steps.
      */
-    private static final double     SAMPLE_CURVE_SCALE    = 25.0;
+    private static final double           SAMPLE_CURVE_SCALE   = 25.0;
     /** The maximum length of the detail text. A longer text keeps its end, e.g. the file name. */
-    private static final int        MAX_DETAIL_LENGTH     = 180;
+    private static final int              MAX_DETAIL_LENGTH    = 180;
 
-    private static volatile boolean isActive              = isActivatedByEnvironment ();
+    private static final ThreadLocal<Run> CURRENT_RUN          = new ThreadLocal<> ();
 
-    private static boolean          isRunning             = false;
-    private static int              numberOfFiles         = 0;
-    private static int              numberOfFinishedFiles = 0;
-    private static int              numberOfSamplesOfFile = 0;
+    private static volatile boolean       isActive             = isActivatedByEnvironment ();
 
 
     /**
@@ -97,23 +96,21 @@ public final class MachineProgressReporter
 
 
     /**
-     * Report the start of a detection run.
+     * Report the start of a detection run on the current thread.
      *
+     * @param notifier The notifier to which the lines of the run are written
      * @param sourceFolder The folder which is processed
      * @param numberOfSourceFiles The number of source files which will be processed. Set to 0 if
      *            that number is unknown, the progress then only moves with the loaded samples.
      */
-    public static void start (final File sourceFolder, final int numberOfSourceFiles)
+    public static void start (final INotifier notifier, final File sourceFolder, final int numberOfSourceFiles)
     {
         if (!isActive)
             return;
 
-        numberOfFiles = Math.max (0, numberOfSourceFiles);
-        numberOfFinishedFiles = 0;
-        numberOfSamplesOfFile = 0;
-        isRunning = true;
-
-        report (0, PHASE_START, sourceFolder == null ? "" : sourceFolder.getAbsolutePath ());
+        final Run run = new Run (notifier, Math.max (0, numberOfSourceFiles));
+        CURRENT_RUN.set (run);
+        run.report (0, PHASE_START, sourceFolder == null ? "" : sourceFolder.getAbsolutePath ());
     }
 
 
@@ -124,11 +121,12 @@ public final class MachineProgressReporter
      */
     public static void startFile (final File sourceFile)
     {
-        if (!isRunning)
+        final Run run = CURRENT_RUN.get ();
+        if (run == null)
             return;
 
-        numberOfSamplesOfFile = 0;
-        report (calcPercent (), PHASE_CONVERT, sourceFile.getName ());
+        run.numberOfSamplesOfFile = 0;
+        run.report (run.calcPercent (), PHASE_CONVERT, sourceFile.getName ());
     }
 
 
@@ -139,12 +137,13 @@ public final class MachineProgressReporter
      */
     public static void finishFile (final File sourceFile)
     {
-        if (!isRunning)
+        final Run run = CURRENT_RUN.get ();
+        if (run == null)
             return;
 
-        numberOfFinishedFiles++;
-        numberOfSamplesOfFile = 0;
-        report (calcPercent (), PHASE_CONVERT, sourceFile.getName ());
+        run.numberOfFinishedFiles++;
+        run.numberOfSamplesOfFile = 0;
+        run.report (run.calcPercent (), PHASE_CONVERT, sourceFile.getName ());
     }
 
 
@@ -155,11 +154,12 @@ public final class MachineProgressReporter
      */
     public static void reportSample (final File sampleFile)
     {
-        if (!isRunning)
+        final Run run = CURRENT_RUN.get ();
+        if (run == null)
             return;
 
-        numberOfSamplesOfFile++;
-        report (calcPercent (), PHASE_SAMPLE, sampleFile.getName ());
+        run.numberOfSamplesOfFile++;
+        run.report (run.calcPercent (), PHASE_SAMPLE, sampleFile.getName ());
     }
 
 
@@ -171,51 +171,12 @@ public final class MachineProgressReporter
      */
     public static void finish (final boolean cancelled)
     {
-        if (!isRunning)
+        final Run run = CURRENT_RUN.get ();
+        if (run == null)
             return;
 
-        isRunning = false;
-        report (cancelled ? calcPercent () : 100, PHASE_DONE, "");
-    }
-
-
-    /**
-     * Calculate the percentage which is currently reached. The full range is split into one slice
-     * per source file. Inside of a slice the progress approaches the end of the slice with the
-     * number of loaded samples but never reaches it, since the number of samples of a source file
-     * is only known once it was read - the end of a slice is therefore only reached by finishing
-     * the file. If more files are finished than were counted, the total is raised accordingly, so
-     * that the percentage never runs backwards or above 100.
-     *
-     * @return The percentage, 0-100
-     */
-    private static int calcPercent ()
-    {
-        final int total = Math.max (1, Math.max (numberOfFiles, numberOfFinishedFiles));
-        final int lowerBound = (int) (numberOfFinishedFiles * 100L / total);
-        final int upperBound = (int) Math.min (100L, (numberOfFinishedFiles + 1L) * 100L / total);
-        // The upper bound belongs to the next file, therefore stay 1 percent below it
-        final int span = Math.max (0, upperBound - 1 - lowerBound);
-        final double factor = 1.0 - Math.exp (-numberOfSamplesOfFile / SAMPLE_CURVE_SCALE);
-        return Math.min (100, lowerBound + (int) Math.round (span * factor));
-    }
-
-
-    /**
-     * Write one line of the protocol.
-     *
-     * @param percent The percentage, clipped to 0-100
-     * @param phase The phase
-     * @param detail The detail text
-     */
-    private static void report (final int percent, final String phase, final String detail)
-    {
-        final StringBuilder sb = new StringBuilder (PREFIX);
-        sb.append (" pct=").append (Math.clamp (percent, 0, 100));
-        sb.append (" phase=").append (phase);
-        sb.append (" detail=").append (sanitize (detail));
-        System.err.println (sb.toString ());
-        System.err.flush ();
+        CURRENT_RUN.remove ();
+        run.report (cancelled ? run.calcPercent () : 100, PHASE_DONE, "");
     }
 
 
@@ -228,7 +189,7 @@ public final class MachineProgressReporter
      * @param detail The text to sanitize
      * @return The sanitized text
      */
-    private static String sanitize (final String detail)
+    static String sanitize (final String detail)
     {
         if (detail == null)
             return "";
@@ -255,4 +216,68 @@ public final class MachineProgressReporter
         final String value = System.getenv (ENVIRONMENT_VARIABLE);
         return "1".equals (value) || "true".equalsIgnoreCase (value);
     }
+
+
+    /**
+     * The state of one detection run.
+     */
+    private static final class Run
+    {
+        private final INotifier notifier;
+        private final int       numberOfFiles;
+        private int             numberOfFinishedFiles = 0;
+        private int             numberOfSamplesOfFile = 0;
+
+
+        /**
+         * Constructor.
+         *
+         * @param notifier Where to write the lines to
+         * @param numberOfFiles The number of source files which will be processed, 0 if unknown
+         */
+        Run (final INotifier notifier, final int numberOfFiles)
+        {
+            this.notifier = notifier;
+            this.numberOfFiles = numberOfFiles;
+        }
+
+
+        /**
+         * Calculate the percentage which is currently reached. The full range is split into one
+         * slice per source file. Inside of a slice the progress approaches the end of the slice
+         * with the number of loaded samples but never reaches it, since the number of samples of a
+         * source file is only known once it was read - the end of a slice is therefore only
+         * reached by finishing the file. If more files are finished than were counted, the total
+         * is raised accordingly, so that the percentage never runs backwards or above 100.
+         *
+         * @return The percentage, 0-100
+         */
+        private int calcPercent ()
+        {
+            final int total = Math.max (1, Math.max (this.numberOfFiles, this.numberOfFinishedFiles));
+            final int lowerBound = (int) (this.numberOfFinishedFiles * 100L / total);
+            final int upperBound = (int) Math.min (100L, (this.numberOfFinishedFiles + 1L) * 100L / total);
+            // The upper bound belongs to the next file, therefore stay 1 percent below it
+            final int span = Math.max (0, upperBound - 1 - lowerBound);
+            final double factor = 1.0 - Math.exp (-this.numberOfSamplesOfFile / SAMPLE_CURVE_SCALE);
+            return Math.min (100, lowerBound + (int) Math.round (span * factor));
+        }
+
+
+        /**
+         * Write one line of the protocol.
+         *
+         * @param percent The percentage, clipped to 0-100
+         * @param phase The phase
+         * @param detail The detail text
+         */
+        private void report (final int percent, final String phase, final String detail)
+        {
+            final StringBuilder sb = new StringBuilder (PREFIX);
+            sb.append (" pct=").append (Math.clamp (percent, 0, 100));
+            sb.append (" phase=").append (phase);
+            sb.append (" detail=").append (sanitize (detail));
+            this.notifier.logProgress (sb.toString ());
+        }
+    }
 }
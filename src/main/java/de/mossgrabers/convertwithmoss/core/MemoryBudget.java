@@ -0,0 +1,313 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Optional;
+
+import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
+import de.mossgrabers.convertwithmoss.core.model.ISampleData;
+
+
+/**
+ * A budget for the large buffers which hold the audio data of whole samples (e.g. the samples of a
+ * multi-sample which are reduced, a sample which is encoded as FLAC or added to a ZIP file). The
+ * stages of a conversion allocate such buffers independently from each other, and some of them on
+ * several threads; without coordination a large preset or a number of large samples at the same
+ * time end in an out of memory error, which aborts the whole run. Therefore, the size of such a
+ * buffer is reserved against the budget before it is allocated and released when it is no longer
+ * needed:
+ *
+ * <pre>
+ * try (final MemoryBudget.Reservation _ = MemoryBudget.reserve (size))
+ * {
+ *     ...
+ * }
+ * </pre>
+ *
+ * If the budget is exhausted, {@link #reserve(long)} waits until other buffers are released and
+ * {@link #tryReserve(long)} fails right away, which allows the caller to use a temporary file
+ * instead. A thread which already holds a reservation never waits (it would wait for itself) and a
+ * buffer which is larger than the whole budget is granted as soon as no other buffer is reserved,
+ * therefore a reservation always succeeds in the end. If a buffer still does not fit after waiting
+ * for a minute, it is granted anyway to not block the run forever; these reservations exceed the
+ * budget and are logged separately. The budget only limits the buffers which are
+ * reserved; the sizes are estimations and the budget is no hard limit of the used memory.
+ * <p>
+ * The budget defaults to half of the maximum memory of the Java VM and can be set with the '-Mb'
+ * option of the command line interface. How much of it was used and how often a buffer had to wait
+ * is logged at the end of a run.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class MemoryBudget
+{
+    /** The part of the maximum memory of the Java VM which is used as the default budget. */
+    public static final double                DEFAULT_FRACTION = 0.5;
+
+    private static final long                 MAX_WAIT_MILLIS  = 60_000;
+    private static final Object               LOCK             = new Object ();
+    /** The number of bytes which are reserved by the current thread. */
+    private static final ThreadLocal<long []> HELD             = ThreadLocal.withInitial ( () -> new long [1]);
+
+    private static long                       limit            = getDefaultLimit ();
+    private static long                       reserved         = 0;
+    private static long                       peak             = 0;
+    private static int                        numReservations  = 0;
+    private static int                        numStalls        = 0;
+    private static long                       stallMillis      = 0;
+    private static int                        numFallbacks     = 0;
+    private static int                        numOverruns      = 0;
+
+
+    /**
+     * A reserved part of the budget. It is released when closed.
+     */
+    public static final class Reservation implements AutoCloseable
+    {
+        private long size;
+
+
+        /**
+         * Constructor.
+         *
+         * @param size The number of reserved bytes
+         */
+        private Reservation (final long size)
+        {
+            this.size = size;
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void close ()
+        {
+            if (this.size > 0)
+            {
+                release (this.size);
+                this.size = 0;
+            }
+        }
+    }
+
+
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private MemoryBudget ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Set the size of the budget.
+     *
+     * @param bytes The size in bytes, 0 or less sets the default
+     */
+    public static void setLimit (final long bytes)
+    {
+        synchronized (LOCK)
+        {
+            limit = bytes > 0 ? bytes : getDefaultLimit ();
+            LOCK.notifyAll ();
+        }
+    }
+
+
+    /**
+     * Get the size of the budget.
+     *
+     * @return The size in bytes
+     */
+    public static long getLimit ()
+    {
+        synchronized (LOCK)
+        {
+            return limit;
+        }
+    }
+
+
+    /**
+     * Clear the statistics, e.g. at the start of a run. The current reservations are kept.
+     */
+    public static void reset ()
+    {
+        synchronized (LOCK)
+        {
+            peak = reserved;
+            numReservations = 0;
+            numStalls = 0;
+            stallMillis = 0;
+            numFallbacks = 0;
+            numOverruns = 0;
+        }
+    }
+
+
+    /**
+     * Reserve a buffer, waits until the budget has room for it.
+     *
+     * @param bytes The size of the buffer
+     * @return The reservation, which needs to be closed when the buffer is no longer needed
+     */
+    public static Reservation reserve (final long bytes)
+    {
+        if (bytes <= 0)
+            return new Reservation (0);
+
+        final long [] held = HELD.get ();
+        synchronized (LOCK)
+        {
+            if (!fits (bytes) && held[0] == 0)
+            {
+                numStalls++;
+                final long start = System.currentTimeMillis ();
+                long waited = 0;
+                while (!fits (bytes) && waited < MAX_WAIT_MILLIS)
+                {
+                    try
+                    {
+                        LOCK.wait (MAX_WAIT_MILLIS - waited);
+                    }
+                    catch (final InterruptedException _)
+                    {
+                        Thread.currentThread ().interrupt ();
+                        break;
+                    }
+                    waited = System.currentTimeMillis () - start;
+                }
+                stallMillis += System.currentTimeMillis () - start;
+                // Granted without room after the maximum wait time or an interrupt
+                if (!fits (bytes))
+                    numOverruns++;
+            }
+            add (bytes);
+        }
+        held[0] += bytes;
+        return new Reservation (bytes);
+    }
+
+
+    /**
+     * Reserve a buffer if the budget has room for it right now.
+     *
+     * @param bytes The size of the buffer
+     * @return The reservation, which needs to be closed when the buffer is no longer needed; empty
+     *         if the budget is exhausted and the caller should use a temporary file instead
+     */
+    public static Optional<Reservation> tryReserve (final long bytes)
+    {
+        if (bytes <= 0)
+            return Optional.of (new Reservation (0));
+
+        synchronized (LOCK)
+        {
+            if (!fits (bytes))
+            {
+                numFallbacks++;
+                return Optional.empty ();
+            }
+            add (bytes);
+        }
+        HELD.get ()[0] += bytes;
+        return Optional.of (new Reservation (bytes));
+    }
+
+
+    /**
+     * Estimate the size of the audio data of a sample as 16 or 24 bit PCM.
+     *
+     * @param sampleData The sample data
+     * @return The size in bytes, 0 if it is not known
+     */
+    public static long estimateSize (final ISampleData sampleData)
+    {
+        try
+        {
+            final IAudioMetadata metadata = sampleData.getAudioMetadata ();
+            final int bytesPerSample = Math.max (2, (metadata.getBitResolution () + 7) / 8);
+            return (long) Math.max (0, metadata.getNumberOfSamples ()) * Math.max (1, metadata.getChannels ()) * bytesPerSample;
+        }
+        catch (final IOException | RuntimeException _)
+        {
+            return 0;
+        }
+    }
+
+
+    /**
+     * Log how the budget was used since the last reset. Nothing is logged if no buffer was
+     * reserved.
+     *
+     * @param notifier Where to log to
+     */
+    public static void logSummary (final INotifier notifier)
+    {
+        final long currentLimit;
+        final long currentPeak;
+        final int reservations;
+        final int stalls;
+        final long stallTime;
+        final int fallbacks;
+        final int overruns;
+        synchronized (LOCK)
+        {
+            currentLimit = limit;
+            currentPeak = peak;
+            reservations = numReservations;
+            stalls = numStalls;
+            stallTime = stallMillis;
+            fallbacks = numFallbacks;
+            overruns = numOverruns;
+        }
+        if (reservations + fallbacks == 0)
+            return;
+        notifier.log ("IDS_NOTIFY_MEMORY_BUDGET", toMegabytes (currentLimit), toMegabytes (currentPeak), Integer.toString (reservations), Integer.toString (stalls), String.format (Locale.US, "%.1f", Double.valueOf (stallTime / 1000.0)), Integer.toString (fallbacks));
+        if (overruns > 0)
+            notifier.log ("IDS_NOTIFY_MEMORY_BUDGET_EXCEEDED", Integer.toString (overruns), Long.toString (MAX_WAIT_MILLIS / 1000));
+    }
+
+
+    private static boolean fits (final long bytes)
+    {
+        return reserved == 0 || reserved + bytes <= limit;
+    }
+
+
+    private static void add (final long bytes)
+    {
+        reserved += bytes;
+        peak = Math.max (peak, reserved);
+        numReservations++;
+    }
+
+
+    private static void release (final long bytes)
+    {
+        synchronized (LOCK)
+        {
+            reserved -= bytes;
+            LOCK.notifyAll ();
+        }
+        final long [] held = HELD.get ();
+        held[0] = Math.max (0, held[0] - bytes);
+    }
+
+
+    private static String toMegabytes (final long bytes)
+    {
+        return Long.toString ((bytes + 512 * 1024) / (1024 * 1024));
+    }
+
+
+    private static long getDefaultLimit ()
+    {
+        return (long) (Runtime.getRuntime ().maxMemory () * DEFAULT_FRACTION);
+    }
+}
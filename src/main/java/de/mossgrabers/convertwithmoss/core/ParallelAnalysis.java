@@ -0,0 +1,322 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.mossgrabers.convertwithmoss.core.detector.FileSearchIndex;
+import de.mossgrabers.convertwithmoss.core.detector.IDetector;
+import de.mossgrabers.convertwithmoss.core.detector.SourceTreeScanner;
+import de.mossgrabers.convertwithmoss.core.detector.SourceTreeScanner.SourceTreeFolder;
+import de.mossgrabers.convertwithmoss.core.settings.ICoreTaskSettings;
+
+
+/**
+ * Analyzes all source files of a library on several threads and writes the result into an
+ * {@link AnalysisReport}. A detector is not thread-safe, therefore every thread reads its files
+ * with its own instance of the detector, which gets the settings of the detector which was
+ * selected by the user. Each multi-sample is inspected and written to the report on the thread
+ * which read it and is dropped afterwards. The number of files which are read or waiting to be
+ * read is limited, so the used memory does not depend on the size of the library. All threads
+ * share the index of the folders which were read while searching missing files, which is created
+ * for each analysis run.
+ * <p>
+ * Only works with detectors which read each of their source files on its own. Detectors which
+ * read folders (e.g. the sample files) or the automatic detection need to run the normal, single
+ * threaded detection.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class ParallelAnalysis implements Runnable
+{
+    private static final String                  IDS_NOTIFY_ANALYZE_OK  = "IDS_NOTIFY_ANALYZE_OK";
+    private static final String                  IDS_NOTIFY_SAVE_FAILED = "IDS_NOTIFY_SAVE_FAILED";
+
+    private final INotifier                      notifier;
+    private final FormatDescriptor<IDetector<?>> descriptor;
+    private final IDetector<?>                   detector;
+    private final AnalysisReport                 report;
+    private final File                           sourceFolder;
+    private final List<File>                     sourceFiles;
+    private final boolean                        detectPerformances;
+    private final int                            numberOfThreads;
+    private final AtomicBoolean                  isCancelled            = new AtomicBoolean (false);
+    private final AtomicBoolean                  hasWriteError          = new AtomicBoolean (false);
+    private final List<IDetector<?>>             workerDetectors        = new ArrayList<> ();
+    private final ThreadLocal<IDetector<?>>      threadDetector         = ThreadLocal.withInitial (this::createWorkerDetector);
+
+
+    /**
+     * Constructor.
+     *
+     * @param notifier The notifier for log-feedback
+     * @param descriptor The descriptor of the source format, creates the detectors of the threads
+     * @param detector The detector which was selected by the user, provides the settings
+     * @param report Where to write the analysis to
+     * @param sourceFolder The folder to analyze
+     * @param sourceFiles If not empty, only these files are analyzed instead of the source folder
+     * @param detectPerformances If true, performances are detected otherwise presets
+     */
+    public ParallelAnalysis (final INotifier notifier, final FormatDescriptor<IDetector<?>> descriptor, final IDetector<?> detector, final AnalysisReport report, final File sourceFolder, final List<File> sourceFiles, final boolean detectPerformances)
+    {
+        this.notifier = notifier;
+        this.descriptor = descriptor;
+        this.detector = detector;
+        this.report = report;
+        this.sourceFolder = sourceFolder;
+        this.sourceFiles = new ArrayList<> (sourceFiles);
+        this.detectPerformances = detectPerformances;
+        this.numberOfThreads = Math.max (1, Runtime.getRuntime ().availableProcessors ());
+    }
+
+
+    /**
+     * Test if a detector can read its files in parallel.
+     *
+     * @param detector The detector
+     * @param detectPerformances If true, performances are detected otherwise presets
+     * @return True if each source file of the detector can be read on its own
+     */
+    public static boolean supports (final IDetector<?> detector, final boolean detectPerformances)
+    {
+        // A detector without file endings does not read files but folders
+        return detector.getFileEndings (detectPerformances).length > 0;
+    }
+
+
+    /**
+     * Start the analysis in the background. The notifier is called when it is finished.
+     */
+    public void start ()
+    {
+        this.notifier.updateButtonStates (false);
+        final Thread thread = new Thread (this, "Library Analysis");
+        thread.setDaemon (true);
+        thread.start ();
+    }
+
+
+    /**
+     * Cancel the analysis. The files which are currently read are finished.
+     */
+    public void cancel ()
+    {
+        this.isCancelled.set (true);
+        synchronized (this.workerDetectors)
+        {
+            for (final IDetector<?> workerDetector: this.workerDetectors)
+                workerDetector.cancel ();
+        }
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void run ()
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool (this.numberOfThreads, runnable -> {
+            final Thread thread = new Thread (runnable, "Library Analyzer");
+            thread.setDaemon (true);
+            return thread;
+        });
+        final Semaphore pendingFiles = new Semaphore (2 * this.numberOfThreads);
+        final FileSearchIndex searchIndex = new FileSearchIndex ();
+
+        try
+        {
+            for (final File file: this.getFiles ())
+            {
+                if (this.isCancelled.get ())
+                    break;
+                pendingFiles.acquire ();
+                executor.execute ( () -> {
+                    try
+                    {
+                        if (!this.isCancelled.get ())
+                            searchIndex.run ( () -> this.analyze (file));
+                    }
+                    finally
+                    {
+                        pendingFiles.release ();
+                    }
+                });
+            }
+            executor.shutdown ();
+            while (!executor.awaitTermination (1, TimeUnit.SECONDS))
+            {
+                // Wait for the files which are currently read
+            }
+        }
+        catch (final InterruptedException _)
+        {
+            executor.shutdownNow ();
+            this.isCancelled.set (true);
+            Thread.currentThread ().interrupt ();
+        }
+        catch (final RuntimeException | OutOfMemoryError err)
+        {
+            executor.shutdownNow ();
+            this.notifier.logError (err);
+        }
+
+        synchronized (this.workerDetectors)
+        {
+            for (final IDetector<?> workerDetector: this.workerDetectors)
+                workerDetector.shutdown ();
+            this.workerDetectors.clear ();
+        }
+
+        final int hits = searchIndex.getHits ();
+        final int misses = searchIndex.getMisses ();
+        if (hits + misses > 0)
+            this.notifier.log ("IDS_NOTIFY_SEARCH_FILE_INDEX", Integer.toString (hits + misses), Integer.toString (hits), Integer.toString (misses));
+
+        this.notifier.finished (this.isCancelled.get ());
+    }
+
+
+    /**
+     * Read one source file and add its multi-samples to the report.
+     *
+     * @param file The source file
+     */
+    private void analyze (final File file)
+    {
+        final IDetector<?> workerDetector = this.threadDetector.get ();
+        final int [] numberOfSources = new int [1];
+        try
+        {
+            workerDetector.readSources (this.sourceFolder, List.of (file), multisampleSource -> {
+                numberOfSources[0]++;
+                this.addToReport (multisampleSource, null);
+                this.notifier.log (IDS_NOTIFY_ANALYZE_OK, multisampleSource.getName ());
+            }, performanceSource -> {
+                numberOfSources[0]++;
+                for (final IInstrumentSource instrumentSource: performanceSource.getInstruments ())
+                    this.addToReport (instrumentSource.getMultisampleSource (), performanceSource.getName ());
+                this.notifier.log (IDS_NOTIFY_ANALYZE_OK, performanceSource.getName ());
+            }, this.detectPerformances);
+        }
+        catch (final RuntimeException | OutOfMemoryError err)
+        {
+            this.notifier.logError (err);
+        }
+
+        this.report.addFile ();
+        if (numberOfSources[0] == 0)
+            try
+            {
+                this.report.addUnreadFile (file);
+            }
+            catch (final IOException ex)
+            {
+                this.logWriteError (ex);
+            }
+    }
+
+
+    private void addToReport (final IMultisampleSource multisampleSource, final String performanceName)
+    {
+        try
+        {
+            this.report.add (multisampleSource, performanceName);
+        }
+        catch (final IOException ex)
+        {
+            this.logWriteError (ex);
+        }
+    }
+
+
+    /**
+     * Log an error of writing the report only once, since all further records will fail as well.
+     *
+     * @param ex The error
+     */
+    private void logWriteError (final IOException ex)
+    {
+        if (!this.hasWriteError.getAndSet (true))
+            this.notifier.logError (IDS_NOTIFY_SAVE_FAILED, ex);
+    }
+
+
+    /**
+     * Get the files to analyze. These are the files which the user selected or all files of the
+     * source folder with one of the file endings of the detector in the same order as the normal
+     * detection reads them.
+     *
+     * @return The files
+     */
+    private List<File> getFiles ()
+    {
+        if (!this.sourceFiles.isEmpty ())
+        {
+            this.sourceFiles.sort (Comparator.comparing (File::getName, String.CASE_INSENSITIVE_ORDER));
+            return this.sourceFiles;
+        }
+
+        final List<File> files = new ArrayList<> ();
+        final Optional<SourceTreeFolder> sourceTree;
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.FOLDER_WALK, this.sourceFolder))
+        {
+            sourceTree = SourceTreeScanner.scan (this.sourceFolder, this.detector.getFileEndings (this.detectPerformances), this.isCancelled::get);
+        }
+        if (sourceTree.isEmpty ())
+            this.notifier.log ("IDS_NOT_A_DIRECTORY", this.sourceFolder.getAbsolutePath ());
+        else
+            collectFiles (sourceTree.get (), files);
+        return files;
+    }
+
+
+    /**
+     * Collect the files of a folder of the source tree, the files of the sub-folders first.
+     *
+     * @param folder The folder
+     * @param files Where to add the files
+     */
+    private static void collectFiles (final SourceTreeFolder folder, final List<File> files)
+    {
+        for (final SourceTreeFolder subFolder: folder.getSubFolders ())
+            if (subFolder.isReadable ())
+                collectFiles (subFolder, files);
+        files.addAll (folder.getFiles ());
+    }
+
+
+    /**
+     * Create the detector of a thread with the settings of the selected detector.
+     *
+     * @return The detector
+     */
+    private IDetector<?> createWorkerDetector ()
+    {
+        final IDetector<?> workerDetector = this.descriptor.create (this.notifier);
+        copySettings (this.detector, workerDetector);
+        synchronized (this.workerDetectors)
+        {
+            this.workerDetectors.add (workerDetector);
+        }
+        return workerDetector;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ICoreTaskSettings> void copySettings (final IDetector<T> source, final IDetector<?> target)
+    {
+        // Both are created by the same descriptor, therefore the settings have the same type
+        ((IDetector<T>) target).setSettings (source.getSettings ());
+    }
+}
@@ -0,0 +1,97 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+/**
+ * The stages of the conversion pipeline which are measured by the {@link PipelineStatistics}. A
+ * stage can run inside of another one (e.g. the samples are probed while the detector parses a
+ * source file), its time is then part of the time of both stages. The depth tells how a stage is
+ * nested into the others and is only used to indent it in the summary.
+ *
+ * @author Jürgen Moßgraber
+ */
+public enum PipelineStage
+{
+    /** Listing the matching files of a source folder. */
+    FOLDER_WALK("folder-walk", "Folder walk", 0),
+    /** Reading and parsing a source file by the detector, including the sample probes. */
+    DETECTOR_PARSE("detector-parse", "Detector parse", 0),
+    /** Probing the format and the header of one sample file. */
+    SAMPLE_PROBE("sample-probe", "Sample probe", 1),
+    /** All processing of a detected source. */
+    PROCESS_SOURCE("process-source", "Process source", 0),
+    /** Processing of the sample data (trimming, resampling, normalizing, ...). */
+    PROCESS_SAMPLES("process-samples", "Process samples", 1),
+    /** Applying the category based default amplitude envelope. */
+    PROCESS_DEFAULT_ENVELOPE("process-default-envelope", "Default envelope", 1),
+    /** Checking for a mapping which is not centered. */
+    PROCESS_MAPPING_CHECK("process-mapping-check", "Mapping check", 1),
+    /** Checking the loops for clicks. */
+    PROCESS_LOOP_CHECK("process-loop-check", "Loop click check", 1),
+    /** Writing a preset, performance or library by the creator, including all of its files. */
+    CREATOR_WRITE("creator-write", "Creator write", 0),
+    /** Writing one sample file. */
+    SAMPLE_WRITE("sample-write", "Sample write", 1),
+    /** Compressing one sample file into a ZIP file. */
+    ZIP_ENCODE("zip-encode", "ZIP encode", 1),
+    /** Encoding one sample file as FLAC. */
+    FLAC_ENCODE("flac-encode", "FLAC encode", 1),
+    /** Writing a metadata document (e.g. the XML description of a preset). */
+    METADATA_WRITE("metadata-write", "Metadata write", 1);
+
+
+    private final String key;
+    private final String label;
+    private final int    depth;
+
+
+    /**
+     * Constructor.
+     *
+     * @param key The key which identifies the stage in the JSON output and in the Flight Recorder
+     *            events
+     * @param label The label to display in the summary
+     * @param depth The nesting depth of the stage
+     */
+    private PipelineStage (final String key, final String label, final int depth)
+    {
+        this.key = key;
+        this.label = label;
+        this.depth = depth;
+    }
+
+
+    /**
+     * Get the key which identifies the stage in the JSON output and in the Flight Recorder events.
+     *
+     * @return The key
+     */
+    public String getKey ()
+    {
+        return this.key;
+    }
+
+
+    /**
+     * Get the label to display in the summary.
+     *
+     * @return The label
+     */
+    public String getLabel ()
+    {
+        return this.label;
+    }
+
+
+    /**
+     * Get the nesting depth of the stage.
+     *
+     * @return The depth, 0 for a top-level stage
+     */
+    public int getDepth ()
+    {
+        return this.depth;
+    }
+}
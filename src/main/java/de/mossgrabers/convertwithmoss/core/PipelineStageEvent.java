@@ -0,0 +1,35 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * A JDK Flight Recorder event which covers one run of a stage of the conversion pipeline. The
+ * event is only recorded if a recording is running which enables it, e.g. when started with
+ * -XX:StartFlightRecording.
+ *
+ * @author Jürgen Moßgraber
+ */
+@Name("de.mossgrabers.convertwithmoss.PipelineStage")
+@Label("Pipeline Stage")
+@Category("ConvertWithMoss")
+@Description("One run of a stage of the conversion pipeline")
+@StackTrace(false)
+class PipelineStageEvent extends Event
+{
+    @Label("Stage")
+    String stage;
+
+    @Label("Detail")
+    @Description("The file or folder which is processed, if any")
+    String detail;
+}
@@ -0,0 +1,232 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jdk.jfr.EventType;
+
+
+/**
+ * Collects how often and how long the stages of the conversion pipeline run, to see where the time
+ * of a conversion goes. A stage is measured with a {@link StageTimer}:
+ *
+ * <pre>
+ * try (final StageTimer _ = PipelineStatistics.start (PipelineStage.DETECTOR_PARSE, sourceFile))
+ * {
+ *     ...
+ * }
+ * </pre>
+ *
+ * The statistics are off by default and must be requested with the '-M' option of the command line
+ * interface, which prints them as a table at the end of the run and optionally writes them into a
+ * JSON file. As long as they and the Flight Recorder event are off, starting a timer does nothing
+ * but test two flags.
+ * <p>
+ * Independent from that, each run of a stage is reported as a JDK Flight Recorder event
+ * ('de.mossgrabers.convertwithmoss.PipelineStage') if a recording is running which enables it.
+ * <p>
+ * Stages can run on several threads at the same time (e.g. the rendering of the previews),
+ * therefore the values are summed up thread-safe. The time of a stage is the time which was spent
+ * in it summed over all threads and might therefore be larger than the duration of the whole run.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class PipelineStatistics
+{
+    private static final PipelineStage []   STAGES          = PipelineStage.values ();
+    private static final LongAdder []       COUNTS          = new LongAdder [STAGES.length];
+    private static final LongAdder []       TOTAL_TIMES     = new LongAdder [STAGES.length];
+    private static final LongAccumulator [] MAX_TIMES       = new LongAccumulator [STAGES.length];
+    private static final EventType          STAGE_EVENT     = EventType.getEventType (PipelineStageEvent.class);
+    private static final double             NANOS_PER_MILLI = 1_000_000.0;
+
+    private static volatile boolean         isActive        = false;
+    private static volatile long            startTime       = System.nanoTime ();
+
+    static
+    {
+        for (int i = 0; i < STAGES.length; i++)
+        {
+            COUNTS[i] = new LongAdder ();
+            TOTAL_TIMES[i] = new LongAdder ();
+            MAX_TIMES[i] = new LongAccumulator (Math::max, 0);
+        }
+    }
+
+
+    /**
+     * Constructor. Private due to utility class.
+     */
+    private PipelineStatistics ()
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Activate the statistics.
+     */
+    public static void activate ()
+    {
+        isActive = true;
+    }
+
+
+    /**
+     * Are the statistics collected?
+     *
+     * @return True if collected
+     */
+    public static boolean isActive ()
+    {
+        return isActive;
+    }
+
+
+    /**
+     * Clear all collected values and restart the measurement of the whole run.
+     */
+    public static void reset ()
+    {
+        for (int i = 0; i < STAGES.length; i++)
+        {
+            COUNTS[i].reset ();
+            TOTAL_TIMES[i].reset ();
+            MAX_TIMES[i].reset ();
+        }
+        startTime = System.nanoTime ();
+    }
+
+
+    /**
+     * Start the measurement of one run of a stage.
+     *
+     * @param stage The stage
+     * @return The timer which needs to be closed when the stage is finished
+     */
+    public static StageTimer start (final PipelineStage stage)
+    {
+        return start (stage, (String) null);
+    }
+
+
+    /**
+     * Start the measurement of one run of a stage.
+     *
+     * @param stage The stage
+     * @param file The file or folder which is processed by the stage, only used for the Flight
+     *            Recorder event
+     * @return The timer which needs to be closed when the stage is finished
+     */
+    public static StageTimer start (final PipelineStage stage, final File file)
+    {
+        return start (stage, file == null ? null : file.getPath ());
+    }
+
+
+    /**
+     * Start the measurement of one run of a stage.
+     *
+     * @param stage The stage
+     * @param detail Details about what is processed by the stage (e.g. a file name), only used for
+     *            the Flight Recorder event, might be null
+     * @return The timer which needs to be closed when the stage is finished
+     */
+    public static StageTimer start (final PipelineStage stage, final String detail)
+    {
+        PipelineStageEvent event = null;
+        if (STAGE_EVENT.isEnabled ())
+        {
+            event = new PipelineStageEvent ();
+            event.stage = stage.getKey ();
+            event.detail = detail;
+            event.begin ();
+        }
+        else if (!isActive)
+            return StageTimer.NONE;
+        return new StageTimer (stage, event, isActive);
+    }
+
+
+    /**
+     * Add one run of a stage.
+     *
+     * @param stage The stage
+     * @param duration The duration of the run in nanoseconds
+     */
+    static void add (final PipelineStage stage, final long duration)
+    {
+        final int index = stage.ordinal ();
+        COUNTS[index].increment ();
+        TOTAL_TIMES[index].add (duration);
+        MAX_TIMES[index].accumulate (duration);
+    }
+
+
+    /**
+     * Format the collected values as a table, one line per stage which ran at least once.
+     *
+     * @return The formatted table
+     */
+    public static String formatSummary ()
+    {
+        final StringBuilder sb = new StringBuilder ();
+        sb.append (String.format (Locale.US, "%-28s %10s %12s %12s %12s%n", "Stage", "Count", "Total ms", "Average ms", "Max ms"));
+        for (final PipelineStage stage: STAGES)
+        {
+            final int index = stage.ordinal ();
+            final long count = COUNTS[index].sum ();
+            if (count == 0)
+                continue;
+            final long total = TOTAL_TIMES[index].sum ();
+            final String label = "  ".repeat (stage.getDepth ()) + stage.getLabel ();
+            sb.append (String.format (Locale.US, "%-28s %10d %12.1f %12.3f %12.1f%n", label, Long.valueOf (count), Double.valueOf (total / NANOS_PER_MILLI), Double.valueOf (total / NANOS_PER_MILLI / count), Double.valueOf (MAX_TIMES[index].get () / NANOS_PER_MILLI)));
+        }
+        sb.append (String.format (Locale.US, "%-28s %10s %12.1f%n", "Whole run", "", Double.valueOf ((System.nanoTime () - startTime) / NANOS_PER_MILLI)));
+        return sb.toString ();
+    }
+
+
+    /**
+     * Write the collected values as a JSON document into a file. All stages are contained, also
+     * the ones which did not run, so that the documents of different runs can be compared easily.
+     *
+     * @param file The file to write to
+     * @param application The name and version of the application which created the values
+     * @throws IOException Could not write the file
+     */
+    public static void writeJson (final File file, final String application) throws IOException
+    {
+        final ObjectMapper mapper = new ObjectMapper ();
+        final ObjectNode root = mapper.createObjectNode ();
+        root.put ("application", application);
+        root.put ("wallTimeMs", (System.nanoTime () - startTime) / NANOS_PER_MILLI);
+
+        final ArrayNode stages = root.putArray ("stages");
+        for (final PipelineStage stage: STAGES)
+        {
+            final int index = stage.ordinal ();
+            final long count = COUNTS[index].sum ();
+            final long total = TOTAL_TIMES[index].sum ();
+            final ObjectNode stageNode = stages.addObject ();
+            stageNode.put ("stage", stage.getKey ());
+            stageNode.put ("count", count);
+            stageNode.put ("totalMs", total / NANOS_PER_MILLI);
+            stageNode.put ("averageMs", count == 0 ? 0 : total / NANOS_PER_MILLI / count);
+            stageNode.put ("maxMs", MAX_TIMES[index].get () / NANOS_PER_MILLI);
+        }
+
+        mapper.writerWithDefaultPrettyPrinter ().writeValue (file, root);
+    }
+}
@@ -0,0 +1,356 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import de.mossgrabers.convertwithmoss.core.algorithm.PresetRenderer;
+import de.mossgrabers.convertwithmoss.file.wav.DataChunk;
+import de.mossgrabers.convertwithmoss.file.wav.FormatChunk;
+import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
+import de.mossgrabers.tools.FileUtils;
+
+
+/**
+ * Renders preview notes of every converted multi-sample into WAV files next to the converted
+ * preset and writes a summary of all of them as a CSV file at the end of the run. The summary lists
+ * the peak and RMS level of every preview and flags the silent ones, which finds conversions that
+ * lost their audio without listening to thousands of presets. No audio device is needed.
+ *
+ * The notes of a multi-sample are rendered in parallel and the rendering of one multi-sample runs
+ * while the next one is detected and converted. The number of notes which are rendered or waiting
+ * to be rendered is limited, so that a fast detection cannot pile up the sources in memory.
+ *
+ * If several multi-samples end up with the same preview file name in the same folder (e.g. same
+ * named sources from different sub-folders which are all written into one output folder), the
+ * names are numbered like the presets, e.g. 'Piano (2) - Preview C3 v127.wav'.
+ *
+ * The field names of the summary are intentionally not translated, since they are read by other
+ * applications.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class PreviewWriter
+{
+    /** The name of the summary file, which is written into the output folder. */
+    public static final String      SUMMARY_FILENAME = "Previews.csv";
+
+    /** A preview whose peak stays below this level is flagged as silent. */
+    private static final double     SILENCE_DB       = -60.0;
+
+    private static final String []  COLUMNS          =
+    {
+        "Name",
+        "Folder",
+        "Preview",
+        "Key",
+        "MIDI Key",
+        "Velocity",
+        "Seconds",
+        "Peak dBFS",
+        "RMS dBFS",
+        "Silent",
+        "Status"
+    };
+
+    private final int []            octaves;
+    private final int []            velocities;
+    private final ExecutorService   executor;
+    private final Semaphore         pendingNotes;
+    private final List<Future<Row>> rows             = new ArrayList<> ();
+    private final Set<String>       usedNames        = new HashSet<> ();
+
+
+    /**
+     * Constructor.
+     *
+     * @param octaves The octaves to render relative to the preview key of a multi-sample, 0 is the
+     *            preview key itself
+     * @param velocities The velocities to render each key with
+     */
+    public PreviewWriter (final int [] octaves, final int [] velocities)
+    {
+        this.octaves = octaves.clone ();
+        this.velocities = velocities.clone ();
+
+        final int threads = Math.max (1, Runtime.getRuntime ().availableProcessors ());
+        this.executor = Executors.newFixedThreadPool (threads, runnable -> {
+            final Thread thread = new Thread (runnable, "Preview Renderer");
+            thread.setDaemon (true);
+            return thread;
+        });
+        this.pendingNotes = new Semaphore (4 * threads);
+    }
+
+
+    /**
+     * Render the preview notes of a multi-sample. Returns as soon as all notes are queued. The
+     * multi-sample must not be changed afterwards, since it is rendered in the background.
+     *
+     * @param multisampleSource The multi-sample to render
+     * @param outputFolder The folder into which to write the preview files
+     */
+    public void render (final IMultisampleSource multisampleSource, final File outputFolder)
+    {
+        final String name = multisampleSource.getName ();
+        final String [] subPath = multisampleSource.getSubPath ();
+        final String folder = subPath == null ? "" : String.join ("/", subPath);
+        final String filename = this.createUniqueName (outputFolder, FileUtils.createSafeFilename (name));
+
+        final int previewKey = PresetRenderer.getPreviewKey (multisampleSource);
+        final Set<Integer> keys = new LinkedHashSet<> ();
+        for (final int octave: this.octaves)
+        {
+            final int key = previewKey + 12 * octave;
+            if (key >= 0 && key <= 127)
+                keys.add (Integer.valueOf (key));
+        }
+
+        for (final Integer key: keys)
+            for (final int velocity: this.velocities)
+            {
+                final int midiKey = key.intValue ();
+                final File previewFile = new File (outputFolder, filename + " - Preview " + ContentsEntry.formatNote (midiKey) + " v" + velocity + ".wav");
+                try
+                {
+                    this.pendingNotes.acquire ();
+                }
+                catch (final InterruptedException _)
+                {
+                    Thread.currentThread ().interrupt ();
+                    return;
+                }
+
+                final Future<Row> row = this.executor.submit ( () -> {
+                    try
+                    {
+                        return renderNote (multisampleSource, midiKey, velocity, previewFile, name, folder);
+                    }
+                    finally
+                    {
+                        this.pendingNotes.release ();
+                    }
+                });
+                synchronized (this.rows)
+                {
+                    this.rows.add (row);
+                }
+            }
+    }
+
+
+    /**
+     * Get a name for the preview files of a multi-sample which was not yet used in the given folder
+     * during this run. Adds a counter to the name if it was already used.
+     *
+     * @param outputFolder The folder into which the preview files are written
+     * @param filename The safe file name of the multi-sample
+     * @return The unique name
+     */
+    private String createUniqueName (final File outputFolder, final String filename)
+    {
+        synchronized (this.usedNames)
+        {
+            String uniqueName = filename;
+            int counter = 1;
+            while (!this.usedNames.add (new File (outputFolder, uniqueName).getAbsolutePath ().toLowerCase (Locale.US)))
+            {
+                counter++;
+                uniqueName = filename + " (" + counter + ")";
+            }
+            return uniqueName;
+        }
+    }
+
+
+    /**
+     * Wait for all queued notes and write the summary into the given folder.
+     *
+     * @param outputFolder The folder into which to write the summary
+     * @param cancelled True if the run was cancelled, the notes which are still queued are then
+     *            dropped and no summary is written
+     * @return The number of rendered previews and the number of silent ones of them
+     * @throws IOException Could not write the summary
+     */
+    public int [] finish (final File outputFolder, final boolean cancelled) throws IOException
+    {
+        if (cancelled)
+        {
+            this.executor.shutdownNow ();
+            return new int [2];
+        }
+        this.executor.shutdown ();
+
+        final List<Future<Row>> futures;
+        synchronized (this.rows)
+        {
+            futures = new ArrayList<> (this.rows);
+        }
+
+        final StringBuilder sb = new StringBuilder (String.join (",", COLUMNS)).append ('\n');
+        int rendered = 0;
+        int silent = 0;
+        for (final Future<Row> future: futures)
+        {
+            final Row row;
+            try
+            {
+                row = future.get ();
+            }
+            catch (final InterruptedException _)
+            {
+                Thread.currentThread ().interrupt ();
+                break;
+            }
+            catch (final ExecutionException ex)
+            {
+                // Rendering catches its own errors, anything else is a bug which must not take
+                // the summary down with it
+                sb.append (",,,,,,,,,,").append (quote ("ERROR: " + ex.getCause ())).append ('\n');
+                continue;
+            }
+
+            sb.append (quote (row.name ())).append (',');
+            sb.append (quote (row.folder ())).append (',');
+            sb.append (quote (row.preview ())).append (',');
+            sb.append (ContentsEntry.formatNote (row.key ())).append (',');
+            sb.append (row.key ()).append (',');
+            sb.append (row.velocity ()).append (',');
+            sb.append (String.format (Locale.US, "%.3f", Double.valueOf (row.seconds ()))).append (',');
+            sb.append (formatDecibel (row.peak ())).append (',');
+            sb.append (formatDecibel (row.rms ())).append (',');
+            sb.append (row.isSilent ()).append (',');
+            sb.append (quote (row.status ())).append ('\n');
+
+            if (!row.preview ().isEmpty ())
+                rendered++;
+            if (row.isSilent ())
+                silent++;
+        }
+
+        Files.writeString (new File (outputFolder, SUMMARY_FILENAME).toPath (), sb.toString (), StandardCharsets.UTF_8);
+        return new int []
+        {
+            rendered,
+            silent
+        };
+    }
+
+
+    /**
+     * Render one note, write it to a WAV file and measure it.
+     *
+     * @param multisampleSource The multi-sample to render
+     * @param key The key to play
+     * @param velocity The velocity to play the key at
+     * @param previewFile The file to write
+     * @param name The name of the multi-sample
+     * @param folder The folder of the multi-sample
+     * @return The summary of the note
+     */
+    private static Row renderNote (final IMultisampleSource multisampleSource, final int key, final int velocity, final File previewFile, final String name, final String folder)
+    {
+        final byte [] pcm;
+        try
+        {
+            pcm = PresetRenderer.render (multisampleSource, key, velocity);
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            return new Row (name, folder, "", key, velocity, 0, 0, 0, true, "ERROR: " + ex.getMessage ());
+        }
+        if (pcm.length == 0)
+            return new Row (name, folder, "", key, velocity, 0, 0, 0, true, "NO ZONE");
+
+        // Measure the level over both channels
+        double peak = 0;
+        double sum = 0;
+        final int values = pcm.length / 2;
+        for (int i = 0; i < values; i++)
+        {
+            final double value = (short) (pcm[2 * i] & 0xFF | pcm[2 * i + 1] << 8) / 32768.0;
+            peak = Math.max (peak, Math.abs (value));
+            sum += value * value;
+        }
+        final double rms = Math.sqrt (sum / values);
+        final boolean isSilent = toDecibel (peak) < SILENCE_DB;
+        final int frames = pcm.length / PresetRenderer.PREVIEW_FORMAT.getFrameSize ();
+        final double seconds = frames / (double) PresetRenderer.SAMPLE_RATE;
+
+        try
+        {
+            final FormatChunk formatChunk = new FormatChunk (2, PresetRenderer.SAMPLE_RATE, 16, true);
+            new WaveFile (formatChunk, new DataChunk (formatChunk, pcm)).write (previewFile);
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            return new Row (name, folder, "", key, velocity, seconds, peak, rms, isSilent, "ERROR: " + ex.getMessage ());
+        }
+
+        return new Row (name, folder, previewFile.getName (), key, velocity, seconds, peak, rms, isSilent, isSilent ? "SILENT" : "OK");
+    }
+
+
+    private static double toDecibel (final double level)
+    {
+        return level <= 0 ? Double.NEGATIVE_INFINITY : 20.0 * Math.log10 (level);
+    }
+
+
+    private static String formatDecibel (final double level)
+    {
+        final double decibel = toDecibel (level);
+        return Double.isInfinite (decibel) ? "-inf" : String.format (Locale.US, "%.1f", Double.valueOf (decibel));
+    }
+
+
+    /**
+     * Quote a field if necessary, which keeps the file readable.
+     *
+     * @param value The value of the field
+     * @return The field
+     */
+    private static String quote (final String value)
+    {
+        final String text = value == null ? "" : value;
+        if (text.indexOf (',') < 0 && text.indexOf ('"') < 0 && text.indexOf ('\n') < 0 && text.indexOf ('\r') < 0)
+            return text;
+        return '"' + text.replace ("\"", "\"\"") + '"';
+    }
+
+
+    /**
+     * The summary of one preview note.
+     *
+     * @param name The name of the multi-sample
+     * @param folder The folder of the multi-sample
+     * @param preview The name of the written file, empty if none was written
+     * @param key The rendered key
+     * @param velocity The rendered velocity
+     * @param seconds The length of the preview
+     * @param peak The peak level [0..1]
+     * @param rms The RMS level [0..1]
+     * @param isSilent True if the preview is silent
+     * @param status OK, SILENT, NO ZONE or the error which happened
+     */
+    private record Row (String name, String folder, String preview, int key, int velocity, double seconds, double peak, double rms, boolean isSilent, String status)
+    {
+        // Intentionally empty
+    }
+}
@@ -0,0 +1,53 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core;
+
+/**
+ * Measures one run of a stage of the conversion pipeline. Created by
+ * {@link PipelineStatistics#start(PipelineStage)} and intended to be used with a
+ * try-with-resources statement, which ends the measurement.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class StageTimer implements AutoCloseable
+{
+    /** The timer which is used if neither the statistics nor the Flight Recorder event are on. */
+    static final StageTimer          NONE = new StageTimer (null, null, false);
+
+    private final PipelineStage      stage;
+    private final PipelineStageEvent event;
+    private final boolean            isMeasured;
+    private final long               startTime;
+
+
+    /**
+     * Constructor.
+     *
+     * @param stage The measured stage
+     * @param event The Flight Recorder event which was already begun, null if the event is not
+     *            enabled
+     * @param isMeasured True if the time is added to the statistics
+     */
+    StageTimer (final PipelineStage stage, final PipelineStageEvent event, final boolean isMeasured)
+    {
+        this.stage = stage;
+        this.event = event;
+        this.isMeasured = isMeasured;
+        this.startTime = isMeasured ? System.nanoTime () : 0;
+    }
+
+
+    /**
+     * Ends the measurement.
+     */
+    @Override
+    public void close ()
+    {
+        if (this.isMeasured)
+            PipelineStatistics.add (this.stage, System.nanoTime () - this.startTime);
+        if (this.event != null)
+            this.event.commit ();
+    }
+}
@@ -19,6 +19,7 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import de.mossgrabers.convertwithmoss.core.MemoryBudget;
 import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
 import de.mossgrabers.convertwithmoss.core.model.ISampleData;
 import de.mossgrabers.convertwithmoss.core.model.ISampleLoop;
@@ -61,6 +62,16 @@ public class AudioSampleReducer
      * @throws UnsupportedAudioFileException Can't happen since only WAV files are supported
      */
     public static void reduceSamples (final List<ISampleZone> sampleZones, final boolean enableMakeMono, final boolean enableTrimSample, final int reduceBitDepth, final int reduceFrequency, final boolean alwaysResample, final boolean enableNormalize) throws IOException, UnsupportedAudioFileException
+    {
+        // The original and the reduced data of all samples are in memory at the same time
+        try (final MemoryBudget.Reservation _ = MemoryBudget.reserve (2 * estimateSize (sampleZones)))
+        {
+            reduceSampleData (sampleZones, enableMakeMono, enableTrimSample, reduceBitDepth, reduceFrequency, alwaysResample, enableNormalize);
+        }
+    }
+
+
+    private static void reduceSampleData (final List<ISampleZone> sampleZones, final boolean enableMakeMono, final boolean enableTrimSample, final int reduceBitDepth, final int reduceFrequency, final boolean alwaysResample, final boolean enableNormalize) throws IOException, UnsupportedAudioFileException
     {
         final List<byte []> sampleCache = loadSampleData (sampleZones);
 
@@ -100,6 +111,19 @@ public class AudioSampleReducer
     }
 
 
+    private static long estimateSize (final List<ISampleZone> sampleZones)
+    {
+        long size = 0;
+        for (final ISampleZone sampleZone: sampleZones)
+        {
+            final Optional<ISampleData> sampleData = sampleZone.getSampleData ();
+            if (sampleData.isPresent ())
+                size += MemoryBudget.estimateSize (sampleData.get ());
+        }
+        return size;
+    }
+
+
     private static void adjustPositions (final List<ISampleZone> sampleZones, final int [] sourceSampleRates, final List<byte []> newSampleCache) throws IOException
     {
         for (int i = 0; i < newSampleCache.size (); i++)
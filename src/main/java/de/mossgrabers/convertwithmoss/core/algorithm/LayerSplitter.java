@@ -7,10 +7,9 @@ package de.mossgrabers.convertwithmoss.core.algorithm;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.IdentityHashMap;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 
 import de.mossgrabers.convertwithmoss.core.creator.AbstractCreator;
@@ -45,16 +44,21 @@ public class LayerSplitter
      */
     public static List<List<IGroup>> splitIntoNonOverlappingLayers (final List<IGroup> groups)
     {
-        final List<boolean [] []> layerMatrices = new ArrayList<> ();
+        final List<long []> layerMatrices = new ArrayList<> ();
         final Map<ISampleZone, Integer> zoneLayerMap = new IdentityHashMap<> ();
 
         // Step 1: Assign every zone to the first layer it fits into
         for (final IGroup group: groups)
             for (final ISampleZone zone: group.getSampleZones ())
             {
+                final int keyLow = clamp (zone.getKeyLow ());
+                final int keyHigh = clamp (zone.getKeyHigh ());
+                final long velocityMaskLow = createVelocityMask (zone.getVelocityLow (), zone.getVelocityHigh (), 0);
+                final long velocityMaskHigh = createVelocityMask (zone.getVelocityLow (), zone.getVelocityHigh (), 64);
+
                 int targetLayer = -1;
                 for (int l = 0; l < layerMatrices.size (); l++)
-                    if (fitsInLayer (zone, layerMatrices.get (l)))
+                    if (fitsInLayer (layerMatrices.get (l), keyLow, keyHigh, velocityMaskLow, velocityMaskHigh))
                     {
                         targetLayer = l;
                         break;
@@ -64,11 +68,11 @@ public class LayerSplitter
                 if (targetLayer == -1)
                 {
                     targetLayer = layerMatrices.size ();
-                    layerMatrices.add (new boolean [128] [128]);
+                    layerMatrices.add (new long [2 * 128]);
                 }
 
                 zoneLayerMap.put (zone, Integer.valueOf (targetLayer));
-                markLayer (zone, layerMatrices.get (targetLayer));
+                markLayer (layerMatrices.get (targetLayer), keyLow, keyHigh, velocityMaskLow, velocityMaskHigh);
             }
 
         // Step 2: Build result structure
@@ -80,23 +84,22 @@ public class LayerSplitter
         {
             final List<ISampleZone> zones = group.getSampleZones ();
 
-            // Collect the distinct layers used by this group's zones (insertion-ordered)
-            final Set<Integer> usedLayers = new LinkedHashSet<> ();
+            // Collect the zones of each layer used by this group (ordered by first use)
+            final Map<Integer, List<ISampleZone>> layerZones = new LinkedHashMap<> ();
             for (final ISampleZone zone: zones)
-                usedLayers.add (zoneLayerMap.get (zone));
+                layerZones.computeIfAbsent (zoneLayerMap.get (zone), _ -> new ArrayList<> ()).add (zone);
 
-            if (usedLayers.size () == 1)
+            if (layerZones.size () == 1)
                 // All zones stay together -> reuse the original IGroup unchanged
-                result.get (usedLayers.iterator ().next ().intValue ()).add (group);
+                result.get (layerZones.keySet ().iterator ().next ().intValue ()).add (group);
             else
                 // Zones spread across layers -> create one new group per layer
-                for (final int layer: usedLayers)
+                for (final Map.Entry<Integer, List<ISampleZone>> entry: layerZones.entrySet ())
                 {
                     final IGroup newGroup = new DefaultGroup (group.getName ());
-                    for (final ISampleZone zone: zones)
-                        if (zoneLayerMap.get (zone).intValue () == layer)
-                            newGroup.addSampleZone (zone);
-                    result.get (layer).add (newGroup);
+                    for (final ISampleZone zone: entry.getValue ())
+                        newGroup.addSampleZone (zone);
+                    result.get (entry.getKey ().intValue ()).add (newGroup);
                 }
         }
 
@@ -130,20 +133,58 @@ public class LayerSplitter
     }
 
 
-    private static boolean fitsInLayer (final ISampleZone zone, final boolean [] [] matrix)
+    /**
+     * Test if the rectangle of a zone is still free in a layer. The matrix contains one row of 128
+     * velocity bits per key, stored in 2 longs, therefore a row is tested with 2 operations.
+     *
+     * @param matrix The occupied key/velocity cells of the layer
+     * @param keyLow The lower key of the zone
+     * @param keyHigh The upper key of the zone
+     * @param velocityMaskLow The velocities 0-63 of the zone
+     * @param velocityMaskHigh The velocities 64-127 of the zone
+     * @return True if none of the cells is occupied
+     */
+    private static boolean fitsInLayer (final long [] matrix, final int keyLow, final int keyHigh, final long velocityMaskLow, final long velocityMaskHigh)
     {
-        for (int k = zone.getKeyLow (); k <= zone.getKeyHigh (); k++)
-            for (int v = zone.getVelocityLow (); v <= zone.getVelocityHigh (); v++)
-                if (matrix[k][v])
-                    return false;
+        for (int k = keyLow; k <= keyHigh; k++)
+            if ((matrix[2 * k] & velocityMaskLow) != 0 || (matrix[2 * k + 1] & velocityMaskHigh) != 0)
+                return false;
         return true;
     }
 
 
-    private static void markLayer (final ISampleZone zone, final boolean [] [] matrix)
+    private static void markLayer (final long [] matrix, final int keyLow, final int keyHigh, final long velocityMaskLow, final long velocityMaskHigh)
+    {
+        for (int k = keyLow; k <= keyHigh; k++)
+        {
+            matrix[2 * k] |= velocityMaskLow;
+            matrix[2 * k + 1] |= velocityMaskHigh;
+        }
+    }
+
+
+    /**
+     * Create the bits of a velocity range which fall into one of the 2 longs of a matrix row.
+     *
+     * @param velocityLow The lower velocity of the range
+     * @param velocityHigh The upper velocity of the range
+     * @param offset The velocity of the lowest bit of the long, 0 or 64
+     * @return The bits
+     */
+    private static long createVelocityMask (final int velocityLow, final int velocityHigh, final int offset)
+    {
+        final int low = Math.max (clamp (velocityLow), offset);
+        final int high = Math.min (clamp (velocityHigh), offset + 63);
+        if (low > high)
+            return 0;
+        final int count = high - low + 1;
+        final long bits = count == 64 ? -1L : (1L << count) - 1;
+        return bits << low - offset;
+    }
+
+
+    private static int clamp (final int value)
     {
-        for (int k = zone.getKeyLow (); k <= zone.getKeyHigh (); k++)
-            for (int v = zone.getVelocityLow (); v <= zone.getVelocityHigh (); v++)
-                matrix[k][v] = true;
+        return Math.clamp (value, 0, 127);
     }
 }
@@ -4,10 +4,14 @@
 
 package de.mossgrabers.convertwithmoss.core.algorithm;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,6 +44,10 @@ import de.mossgrabers.convertwithmoss.core.model.enumeration.LoopType;
  * preset which converts to silence or which lost its envelope sounds exactly as wrong here as it
  * will in the destination.
  *
+ * The note is rendered in blocks, each zone being a voice which keeps its own state from one block
+ * to the next. The samples are only read as far as the note plays them, so that a note can be heard
+ * as soon as the start of its samples is available, whatever their size.
+ *
  * @author Jürgen Moßgraber
  */
 public class PresetRenderer
@@ -48,6 +56,8 @@ public class PresetRenderer
     public static final int         SAMPLE_RATE               = 44100;
     /** The format of a rendered preview: 16 bit stereo at the preview sample rate. */
     public static final AudioFormat PREVIEW_FORMAT            = new AudioFormat (SAMPLE_RATE, 16, 2, true, false);
+    /** The number of frames which are rendered at a time. */
+    public static final int         BLOCK_FRAMES              = 512;
 
     private static final double     DEFAULT_HOLD_SECONDS      = 2.0;
     private static final double     MAXIMUM_SECONDS           = 8.0;
@@ -68,6 +78,10 @@ public class PresetRenderer
     private static final int        CUTOFF_KEY_CENTER         = 60;
     /** A short fade whenever the signal ends, so that a note never stops with a click. */
     private static final double     FADE_OUT_SECONDS          = 0.01;
+    /** How many bytes of a WAV the writing may run ahead of the decoding of a sample. */
+    private static final int        PIPE_SIZE                 = 64 * 1024;
+    /** How many frames of a sample are decoded at a time. */
+    private static final int        DECODE_FRAMES             = 4096;
 
 
     /**
@@ -93,23 +107,73 @@ public class PresetRenderer
      * @throws IOException Could not read the audio data of a zone
      */
     public static byte [] render (final IMultisampleSource source, final int key, final int velocity) throws IOException
+    {
+        final Optional<Note> noteOpt = start (source, key, velocity);
+        if (noteOpt.isEmpty ())
+            return new byte [0];
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        final byte [] block = new byte [BLOCK_FRAMES * PREVIEW_FORMAT.getFrameSize ()];
+        try (final Note note = noteOpt.get ())
+        {
+            int length;
+            while ((length = note.renderBlock (block)) > 0)
+                out.write (block, 0, length);
+        }
+        return out.toByteArray ();
+    }
+
+
+    /**
+     * Start one note of the given multi-sample at its preview key. Nothing is rendered yet, the
+     * signal is pulled block by block from the returned note, which allows to play it while it is
+     * rendered.
+     *
+     * @param source The multi-sample to render
+     * @return The note, empty if it triggers no zone whose audio data can be read
+     * @throws IOException Could not read the audio data of a zone
+     */
+    public static Optional<Note> start (final IMultisampleSource source) throws IOException
+    {
+        return start (source, getPreviewKey (source), DEFAULT_VELOCITY);
+    }
+
+
+    /**
+     * Start one note of the given multi-sample. Nothing is rendered yet, the signal is pulled block
+     * by block from the returned note, which allows to play it while it is rendered.
+     *
+     * @param source The multi-sample to render
+     * @param key The key to play
+     * @param velocity The velocity to play the key at
+     * @return The note, empty if it triggers no zone whose audio data can be read
+     * @throws IOException Could not read the audio data of a zone
+     */
+    public static Optional<Note> start (final IMultisampleSource source, final int key, final int velocity) throws IOException
     {
         final List<ISampleZone> zones = collectZones (source, key, velocity);
         if (zones.isEmpty ())
-            return new byte [0];
+            return Optional.empty ();
 
         final int holdFrames = computeHoldFrames (zones);
         final int maximumFrames = (int) Math.round (MAXIMUM_SECONDS * SAMPLE_RATE);
-        final double [] left = new double [maximumFrames];
-        final double [] right = new double [maximumFrames];
-
-        int renderedFrames = 0;
-        for (final ISampleZone zone: zones)
-            renderedFrames = Math.max (renderedFrames, renderZone (zone, key, velocity, holdFrames, maximumFrames, left, right));
-        if (renderedFrames == 0)
-            return new byte [0];
-
-        return toPcm (left, right, renderedFrames);
+        final List<Voice> voices = new ArrayList<> ();
+        try
+        {
+            for (final ISampleZone zone: zones)
+            {
+                final Optional<SampleReader> reader = SampleReader.open (zone);
+                if (reader.isPresent ())
+                    voices.add (new Voice (zone, reader.get (), key, velocity, holdFrames, maximumFrames));
+            }
+        }
+        catch (final IOException | RuntimeException ex)
+        {
+            for (final Voice voice: voices)
+                voice.close ();
+            throw ex;
+        }
+        return voices.isEmpty () ? Optional.empty () : Optional.of (new Note (voices, maximumFrames));
     }
 
 
@@ -269,92 +333,6 @@ public class PresetRenderer
     }
 
 
-    /**
-     * Render one zone and add it to the given signal.
-     *
-     * @param zone The zone to render
-     * @param key The key to play
-     * @param velocity The velocity to play the key at
-     * @param holdFrames How long the key is held down
-     * @param maximumFrames The length of the signal
-     * @param left The left channel to add to
-     * @param right The right channel to add to
-     * @return The number of frames which were written
-     * @throws IOException Could not read the audio data of the zone
-     */
-    private static int renderZone (final ISampleZone zone, final int key, final int velocity, final int holdFrames, final int maximumFrames, final double [] left, final double [] right) throws IOException
-    {
-        final Optional<double [] []> sampleOpt = readSample (zone);
-        if (sampleOpt.isEmpty ())
-            return 0;
-        final double [] [] sample = sampleOpt.get ();
-        if (sample[0].length == 0)
-            return 0;
-        final double sampleRate = sample[2][0];
-
-        // The distance to the root key, scaled by the key tracking of the zone, plus its own tuning
-        final double semitones = (key - zone.getKeyRoot ()) * zone.getKeyTracking () + zone.getTuning ();
-        final double step = Math.pow (2, semitones / 12.0) * sampleRate / SAMPLE_RATE;
-
-        final int start = Math.max (0, zone.getStart ());
-        final int stop = zone.getStop () > start ? Math.min (zone.getStop (), sample[0].length) : sample[0].length;
-        final Loop loop = readLoop (zone, start, stop);
-
-        final EnvelopeRunner amplitude = new EnvelopeRunner (zone.getAmplitudeEnvelopeModulator ().getSource (), 1.0);
-        final FilterRunner filter = FilterRunner.create (zone.getFilter (), key, velocity);
-        final LfoRunner pitchLfo = LfoRunner.create (zone.getPitchLfoModulator ().getSource (), zone.getPitchLfoModulator ().getDepth ());
-        final LfoRunner volumeLfo = LfoRunner.create (zone.getAmplitudeLfoModulator ().getSource (), zone.getAmplitudeLfoModulator ().getDepth ());
-
-        // The gain of the zone plus what the velocity adds to it
-        final double velocityAmount = Math.clamp (zone.getAmplitudeVelocityModulator ().getDepth (), 0, 1);
-        final double velocityGain = 1.0 - velocityAmount + velocityAmount * velocity / 127.0;
-        final double gain = decibelToLinear (zone.getGain ()) * velocityGain;
-        final double panning = Math.clamp (zone.getPanning (), -1, 1);
-        final double leftGain = gain * Math.min (1, 1 - panning);
-        final double rightGain = gain * Math.min (1, 1 + panning);
-
-        double position = start;
-        int frame = 0;
-        for (; frame < maximumFrames; frame++)
-        {
-            final boolean isReleased = frame >= holdFrames;
-            final double level = amplitude.next (isReleased);
-            // Stop once the release has faded out, but never before the key is released
-            if (isReleased && level < SILENCE_LEVEL)
-                break;
-
-            double value = read (sample, position);
-            if (filter != null)
-                value = filter.next (value, isReleased);
-
-            double amount = level * (volumeLfo == null ? 1 : volumeLfo.nextVolume ());
-            final double fadeFrames = FADE_OUT_SECONDS * SAMPLE_RATE;
-            // Fade the very end out so that a note which runs into the limit does not click
-            final int remaining = maximumFrames - frame;
-            if (remaining < fadeFrames)
-                amount *= remaining / fadeFrames;
-            // The same where the audio itself runs out: a zone which does not loop - or whose loop
-            // has ended with the release - simply stops at its end point, and cutting the wave off
-            // in the middle clicks just as much
-            if ((loop == null || isReleased && loop.untilRelease) && step > 0)
-            {
-                final double audioFrames = (stop - position) / step;
-                if (audioFrames < fadeFrames)
-                    amount *= Math.max (0, audioFrames / fadeFrames);
-            }
-
-            left[frame] += value * amount * leftGain;
-            right[frame] += value * amount * rightGain;
-
-            position += step * (pitchLfo == null ? 1 : pitchLfo.nextPitchFactor ());
-            position = advance (position, loop, isReleased);
-            if (position >= stop)
-                break;
-        }
-        return frame;
-    }
-
-
     /**
      * Move the read position into the loop if it ran past its end.
      *
@@ -373,87 +351,6 @@ public class PresetRenderer
     }
 
 
-    /**
-     * Read one frame with a linear interpolation between its neighbors.
-     *
-     * @param sample The channels of the sample
-     * @param position The position to read at
-     * @return The value, the mix of both channels for a stereo sample
-     */
-    private static double read (final double [] [] sample, final double position)
-    {
-        final double [] channel = sample[0];
-        final int index = (int) position;
-        if (index < 0 || index >= channel.length)
-            return 0;
-        final int next = Math.min (index + 1, channel.length - 1);
-        final double fraction = position - index;
-        final double first = channel[index] + (channel[next] - channel[index]) * fraction;
-        if (sample[1].length == 0)
-            return first;
-        final double second = sample[1][index] + (sample[1][next] - sample[1][index]) * fraction;
-        return (first + second) / 2.0;
-    }
-
-
-    /**
-     * Read the audio data of a zone. Every format can write its samples as a WAV, which makes this
-     * the one path which works for all of them.
-     *
-     * @param zone The zone
-     * @return The left channel, the right channel (empty for a mono sample) and the sample rate in
-     *         a single element array, null if the data cannot be read
-     * @throws IOException Could not read the audio data
-     */
-    private static Optional<double [] []> readSample (final ISampleZone zone) throws IOException
-    {
-        final Optional<ISampleData> sampleData = zone.getSampleData ();
-        if (sampleData.isEmpty ())
-            return Optional.empty ();
-
-        final ByteArrayOutputStream out = new ByteArrayOutputStream ();
-        sampleData.get ().writeSample (out);
-
-        try (final AudioInputStream in = AudioSystem.getAudioInputStream (new ByteArrayInputStream (out.toByteArray ())))
-        {
-            final AudioFormat format = in.getFormat ();
-            final AudioFormat target = new AudioFormat (format.getSampleRate (), 16, format.getChannels (), true, false);
-            try (final AudioInputStream pcm = AudioSystem.getAudioInputStream (target, in))
-            {
-                final byte [] bytes = pcm.readAllBytes ();
-                final int channels = target.getChannels ();
-                final int frames = bytes.length / (2 * channels);
-                final double [] left = new double [frames];
-                final double [] right = new double [channels > 1 ? frames : 0];
-                for (int i = 0; i < frames; i++)
-                {
-                    left[i] = toSample (bytes, i * 2 * channels);
-                    if (channels > 1)
-                        right[i] = toSample (bytes, i * 2 * channels + 2);
-                }
-                return Optional.of (new double [] []
-                {
-                    left,
-                    right,
-                    {
-                        format.getSampleRate ()
-                    }
-                });
-            }
-        }
-        catch (final UnsupportedAudioFileException | IllegalArgumentException _)
-        {
-            return Optional.empty ();
-        }
-    }
-
-
-    private static double toSample (final byte [] bytes, final int offset)
-    {
-        return (short) (bytes[offset] & 0xFF | bytes[offset + 1] << 8) / 32768.0;
-    }
-
-
     /**
      * Read the forward loop of a zone.
      *
@@ -477,32 +374,6 @@ public class PresetRenderer
     }
 
 
-    /**
-     * Convert the rendered signal into the preview format.
-     *
-     * @param left The left channel
-     * @param right The right channel
-     * @param frames The number of frames to convert
-     * @return The interleaved 16 bit signal
-     */
-    private static byte [] toPcm (final double [] left, final double [] right, final int frames)
-    {
-        // Normalize only if the mix of several zones went past full scale
-        double peak = 0;
-        for (int i = 0; i < frames; i++)
-            peak = Math.max (peak, Math.max (Math.abs (left[i]), Math.abs (right[i])));
-        final double scale = peak > 1 ? 1 / peak : 1;
-
-        final byte [] pcm = new byte [frames * 4];
-        for (int i = 0; i < frames; i++)
-        {
-            writeSample (pcm, i * 4, left[i] * scale);
-            writeSample (pcm, i * 4 + 2, right[i] * scale);
-        }
-        return pcm;
-    }
-
-
     private static void writeSample (final byte [] pcm, final int offset, final double value)
     {
         final int sample = Math.clamp (Math.round (value * 32767.0), -32768, 32767);
@@ -532,6 +403,405 @@ public class PresetRenderer
     }
 
 
+    /**
+     * One note which is rendered block by block. Every zone which the note triggers is a voice of
+     * its own, and the voices are mixed into each block. A block is only rendered when it is
+     * requested, therefore the first one is available as soon as the start of the samples has been
+     * read. The note must be closed, which also stops reading the samples which were not fully
+     * needed.
+     */
+    public static final class Note implements AutoCloseable
+    {
+        private final List<Voice> voices;
+        private final int         maximumFrames;
+        private final double []   left   = new double [BLOCK_FRAMES];
+        private final double []   right  = new double [BLOCK_FRAMES];
+        private int               frame  = 0;
+        private double            scale  = 1;
+
+
+        private Note (final List<Voice> voices, final int maximumFrames)
+        {
+            this.voices = new ArrayList<> (voices);
+            this.maximumFrames = maximumFrames;
+        }
+
+
+        /**
+         * Render the next block of the note.
+         *
+         * @param pcm Where to write the block in {@link PresetRenderer#PREVIEW_FORMAT}, must have
+         *            room for {@link PresetRenderer#BLOCK_FRAMES} frames
+         * @return The number of bytes which were written, 0 if the note has ended
+         * @throws IOException Could not read the audio data of a zone
+         */
+        public int renderBlock (final byte [] pcm) throws IOException
+        {
+            final int frames = Math.min (BLOCK_FRAMES, Math.min (pcm.length / PREVIEW_FORMAT.getFrameSize (), this.maximumFrames - this.frame));
+            if (frames <= 0 || this.voices.isEmpty ())
+                return 0;
+
+            Arrays.fill (this.left, 0, frames, 0);
+            Arrays.fill (this.right, 0, frames, 0);
+
+            int renderedFrames = 0;
+            for (final Iterator<Voice> iterator = this.voices.iterator (); iterator.hasNext ();)
+            {
+                final Voice voice = iterator.next ();
+                renderedFrames = Math.max (renderedFrames, voice.render (this.left, this.right, frames));
+                if (voice.isFinished ())
+                {
+                    voice.close ();
+                    iterator.remove ();
+                }
+            }
+            this.frame += renderedFrames;
+
+            // The whole note is not known in advance, therefore the mix of several zones is
+            // normalized block by block: once it went past full scale it stays turned down
+            double peak = 0;
+            for (int i = 0; i < renderedFrames; i++)
+                peak = Math.max (peak, Math.max (Math.abs (this.left[i]), Math.abs (this.right[i])));
+            if (peak * this.scale > 1)
+                this.scale = 1 / peak;
+
+            for (int i = 0; i < renderedFrames; i++)
+            {
+                writeSample (pcm, i * 4, this.left[i] * this.scale);
+                writeSample (pcm, i * 4 + 2, this.right[i] * this.scale);
+            }
+            return renderedFrames * 4;
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void close ()
+        {
+            for (final Voice voice: this.voices)
+                voice.close ();
+            this.voices.clear ();
+        }
+    }
+
+
+    /**
+     * Renders one zone of a note. It keeps the position in the sample and the state of the
+     * envelope, filter and LFOs from one block to the next.
+     */
+    private static final class Voice
+    {
+        private final SampleReader   reader;
+        private final int            holdFrames;
+        private final int            maximumFrames;
+        private final double         step;
+        private final int            stop;
+        private final Loop           loop;
+        private final EnvelopeRunner amplitude;
+        private final FilterRunner   filter;
+        private final LfoRunner      pitchLfo;
+        private final LfoRunner      volumeLfo;
+        private final double         leftGain;
+        private final double         rightGain;
+
+        private double               position;
+        private int                  frame      = 0;
+        private boolean              isFinished = false;
+
+
+        Voice (final ISampleZone zone, final SampleReader reader, final int key, final int velocity, final int holdFrames, final int maximumFrames)
+        {
+            this.reader = reader;
+            this.holdFrames = holdFrames;
+            this.maximumFrames = maximumFrames;
+
+            // The distance to the root key, scaled by the key tracking of the zone, plus its own
+            // tuning
+            final double semitones = (key - zone.getKeyRoot ()) * zone.getKeyTracking () + zone.getTuning ();
+            this.step = Math.pow (2, semitones / 12.0) * reader.getSampleRate () / SAMPLE_RATE;
+
+            final int start = Math.max (0, zone.getStart ());
+            final int length = reader.getLength ();
+            this.stop = zone.getStop () > start ? Math.min (zone.getStop (), length) : length;
+            this.loop = readLoop (zone, start, this.stop);
+            this.position = start;
+
+            this.amplitude = new EnvelopeRunner (zone.getAmplitudeEnvelopeModulator ().getSource (), 1.0);
+            this.filter = FilterRunner.create (zone.getFilter (), key, velocity);
+            this.pitchLfo = LfoRunner.create (zone.getPitchLfoModulator ().getSource (), zone.getPitchLfoModulator ().getDepth ());
+            this.volumeLfo = LfoRunner.create (zone.getAmplitudeLfoModulator ().getSource (), zone.getAmplitudeLfoModulator ().getDepth ());
+
+            // The gain of the zone plus what the velocity adds to it
+            final double velocityAmount = Math.clamp (zone.getAmplitudeVelocityModulator ().getDepth (), 0, 1);
+            final double velocityGain = 1.0 - velocityAmount + velocityAmount * velocity / 127.0;
+            final double gain = decibelToLinear (zone.getGain ()) * velocityGain;
+            final double panning = Math.clamp (zone.getPanning (), -1, 1);
+            this.leftGain = gain * Math.min (1, 1 - panning);
+            this.rightGain = gain * Math.min (1, 1 + panning);
+
+            if (this.stop <= start)
+                this.isFinished = true;
+        }
+
+
+        /**
+         * Render the next frames of the zone and add them to the given block.
+         *
+         * @param left The left channel to add to
+         * @param right The right channel to add to
+         * @param frames The number of frames of the block
+         * @return The number of frames which were written, less than requested if the zone ended
+         * @throws IOException Could not read the audio data of the zone
+         */
+        int render (final double [] left, final double [] right, final int frames) throws IOException
+        {
+            final double fadeFrames = FADE_OUT_SECONDS * SAMPLE_RATE;
+
+            int count = 0;
+            while (count < frames && !this.isFinished)
+            {
+                final boolean isReleased = this.frame >= this.holdFrames;
+                final double level = this.amplitude.next (isReleased);
+                // Stop once the release has faded out, but never before the key is released
+                if (isReleased && level < SILENCE_LEVEL || !this.reader.fetch ((int) this.position))
+                {
+                    this.isFinished = true;
+                    break;
+                }
+
+                double value = this.reader.read (this.position);
+                if (this.filter != null)
+                    value = this.filter.next (value, isReleased);
+
+                double amount = level * (this.volumeLfo == null ? 1 : this.volumeLfo.nextVolume ());
+                // Fade the very end out so that a note which runs into the limit does not click
+                final int remaining = this.maximumFrames - this.frame;
+                if (remaining < fadeFrames)
+                    amount *= remaining / fadeFrames;
+                // The same where the audio itself runs out: a zone which does not loop - or whose
+                // loop has ended with the release - simply stops at its end point, and cutting the
+                // wave off in the middle clicks just as much
+                if ((this.loop == null || isReleased && this.loop.untilRelease) && this.step > 0)
+                {
+                    final double audioFrames = (this.stop - this.position) / this.step;
+                    if (audioFrames < fadeFrames)
+                        amount *= Math.max (0, audioFrames / fadeFrames);
+                }
+
+                left[count] += value * amount * this.leftGain;
+                right[count] += value * amount * this.rightGain;
+                count++;
+
+                this.frame++;
+                this.position += this.step * (this.pitchLfo == null ? 1 : this.pitchLfo.nextPitchFactor ());
+                this.position = advance (this.position, this.loop, isReleased);
+                if (this.position >= this.stop || this.frame >= this.maximumFrames)
+                    this.isFinished = true;
+            }
+            return count;
+        }
+
+
+        boolean isFinished ()
+        {
+            return this.isFinished;
+        }
+
+
+        void close ()
+        {
+            this.reader.close ();
+        }
+    }
+
+
+    /**
+     * Reads the audio data of a zone only as far as it is played. Every format can write its
+     * samples as a WAV, which makes this the one path which works for all of them. The WAV is
+     * written on a thread of its own into a pipe, from which the frames are decoded when the
+     * rendering reaches them. Closing the reader ends the writing, so that the rest of a long
+     * sample is never read.
+     */
+    private static final class SampleReader
+    {
+        private final PipedInputStream pipe;
+        private final AudioInputStream pcm;
+        private final int              channels;
+        private final double           sampleRate;
+        private final int              length;
+        private final byte []          bytes;
+
+        private double []              left;
+        private double []              right;
+        private int                    frames      = 0;
+        private boolean                isExhausted = false;
+
+
+        private SampleReader (final PipedInputStream pipe, final AudioInputStream pcm, final double sampleRate)
+        {
+            this.pipe = pipe;
+            this.pcm = pcm;
+            this.channels = pcm.getFormat ().getChannels ();
+            this.sampleRate = sampleRate;
+            final long frameLength = pcm.getFrameLength ();
+            this.length = frameLength < 0 || frameLength > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) frameLength;
+            this.bytes = new byte [DECODE_FRAMES * 2 * this.channels];
+            this.left = new double [DECODE_FRAMES];
+            this.right = new double [this.channels > 1 ? DECODE_FRAMES : 0];
+        }
+
+
+        /**
+         * Start reading the audio data of a zone. Only the header of the WAV is read here.
+         *
+         * @param zone The zone
+         * @return The reader, empty if the data cannot be read
+         * @throws IOException Could not read the audio data
+         */
+        static Optional<SampleReader> open (final ISampleZone zone) throws IOException
+        {
+            final Optional<ISampleData> sampleData = zone.getSampleData ();
+            if (sampleData.isEmpty ())
+                return Optional.empty ();
+
+            final PipedInputStream pipe = new PipedInputStream (PIPE_SIZE);
+            final PipedOutputStream out = new PipedOutputStream (pipe);
+            final Thread writeThread = new Thread (() -> {
+                try (out)
+                {
+                    sampleData.get ().writeSample (out);
+                }
+                catch (final IOException | RuntimeException _)
+                {
+                    // The reader was closed before the whole sample was needed or the data is
+                    // broken, which the reader notices as the end of the data
+                }
+            }, "Audition Sample");
+            writeThread.setDaemon (true);
+            writeThread.start ();
+
+            try
+            {
+                final AudioInputStream in = AudioSystem.getAudioInputStream (new BufferedInputStream (pipe));
+                final AudioFormat format = in.getFormat ();
+                final AudioFormat target = new AudioFormat (format.getSampleRate (), 16, format.getChannels (), true, false);
+                return Optional.of (new SampleReader (pipe, AudioSystem.getAudioInputStream (target, in), format.getSampleRate ()));
+            }
+            catch (final UnsupportedAudioFileException | IllegalArgumentException _)
+            {
+                pipe.close ();
+                return Optional.empty ();
+            }
+        }
+
+
+        /**
+         * Get the sample rate of the audio data.
+         *
+         * @return The sample rate
+         */
+        double getSampleRate ()
+        {
+            return this.sampleRate;
+        }
+
+
+        /**
+         * Get the number of frames of the audio data.
+         *
+         * @return The number of frames, {@link Integer#MAX_VALUE} if the header does not tell
+         */
+        int getLength ()
+        {
+            return this.length;
+        }
+
+
+        /**
+         * Decode the audio data up to the given frame and its neighbor.
+         *
+         * @param index The index of the frame which is needed
+         * @return True if there is audio data at the index, false if the data ended before
+         * @throws IOException Could not read the audio data
+         */
+        boolean fetch (final int index) throws IOException
+        {
+            // The neighbor for the interpolation is only missing at the very end of the data
+            final int needed = Math.min (index + 1, this.length - 1);
+            while (this.frames <= needed && !this.isExhausted)
+            {
+                final int read = this.pcm.readNBytes (this.bytes, 0, this.bytes.length);
+                final int decoded = read / (2 * this.channels);
+                if (decoded == 0)
+                {
+                    this.isExhausted = true;
+                    break;
+                }
+
+                if (this.frames + decoded > this.left.length)
+                {
+                    final int size = Math.max (this.left.length * 2, this.frames + decoded);
+                    this.left = Arrays.copyOf (this.left, size);
+                    if (this.channels > 1)
+                        this.right = Arrays.copyOf (this.right, size);
+                }
+                for (int i = 0; i < decoded; i++)
+                {
+                    this.left[this.frames + i] = toSample (this.bytes, i * 2 * this.channels);
+                    if (this.channels > 1)
+                        this.right[this.frames + i] = toSample (this.bytes, i * 2 * this.channels + 2);
+                }
+                this.frames += decoded;
+            }
+            return index < this.frames;
+        }
+
+
+        /**
+         * Read one frame with a linear interpolation between its neighbors. The frames must have
+         * been fetched before.
+         *
+         * @param position The position to read at
+         * @return The value, the mix of both channels for a stereo sample
+         */
+        double read (final double position)
+        {
+            final int index = (int) position;
+            if (index < 0 || index >= this.frames)
+                return 0;
+            final int next = Math.min (index + 1, this.frames - 1);
+            final double fraction = position - index;
+            final double first = this.left[index] + (this.left[next] - this.left[index]) * fraction;
+            if (this.channels < 2)
+                return first;
+            final double second = this.right[index] + (this.right[next] - this.right[index]) * fraction;
+            return (first + second) / 2.0;
+        }
+
+
+        /**
+         * Stop reading, which also ends the writing of the WAV.
+         */
+        void close ()
+        {
+            try
+            {
+                this.pipe.close ();
+            }
+            catch (final IOException _)
+            {
+                // Nothing to do about it
+            }
+        }
+
+
+        private static double toSample (final byte [] bytes, final int offset)
+        {
+            return (short) (bytes[offset] & 0xFF | bytes[offset + 1] << 8) / 32768.0;
+        }
+    }
+
+
     /** Runs an envelope of the model one frame at a time. */
     private static class EnvelopeRunner
     {
@@ -4,6 +4,7 @@
 
 package de.mossgrabers.convertwithmoss.core.creator;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -11,6 +12,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
@@ -40,7 +42,11 @@ import de.mossgrabers.convertwithmoss.core.DetectSettings;
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.IPerformanceSource;
+import de.mossgrabers.convertwithmoss.core.MemoryBudget;
 import de.mossgrabers.convertwithmoss.core.ParameterLevel;
+import de.mossgrabers.convertwithmoss.core.PipelineStage;
+import de.mossgrabers.convertwithmoss.core.PipelineStatistics;
+import de.mossgrabers.convertwithmoss.core.StageTimer;
 import de.mossgrabers.convertwithmoss.core.ZoneChannels;
 import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelopeModulator;
@@ -746,6 +752,32 @@ public abstract class AbstractCreator<T extends ICoreTaskSettings> extends Abstr
     }
 
 
+    /**
+     * Adds a new entry to an uncompressed ZIP output stream and copies its content from a file.
+     *
+     * @param zipOutputStream The uncompressed ZIP output stream
+     * @param fileName The name to use for the file when added
+     * @param file The file which contains the content to add
+     * @param checksum The checksum of the content
+     * @param dateTime The date and time to set as the creation date of the file entry
+     * @throws IOException Could not read or add the file
+     */
+    protected static void putUncompressedEntry (final ZipOutputStream zipOutputStream, final String fileName, final File file, final CRC32 checksum, final Date dateTime) throws IOException
+    {
+        final long size = file.length ();
+        final ZipEntry entry = new ZipEntry (fileName);
+        entry.setSize (size);
+        entry.setCompressedSize (size);
+        entry.setCrc (checksum.getValue ());
+        entry.setMethod (ZipOutputStream.STORED);
+        if (dateTime != null)
+            entry.setLastModifiedTime (FileTime.fromMillis (dateTime.getTime ()));
+        zipOutputStream.putNextEntry (entry);
+        Files.copy (file.toPath (), zipOutputStream);
+        zipOutputStream.closeEntry ();
+    }
+
+
     /**
      * Adds a sample file to the uncompressed ZIP output stream.
      *
@@ -771,18 +803,76 @@ public abstract class AbstractCreator<T extends ICoreTaskSettings> extends Abstr
             return;
         }
 
+        // The sample is buffered in memory to calculate the checksum before the entry is written,
+        // the buffer and its copy need about twice the size of the sample. If the memory budget is
+        // exhausted a temporary file is used instead
         final CRC32 crc = new CRC32 ();
-        try (final ByteArrayOutputStream bout = new ByteArrayOutputStream (); final OutputStream checkedOut = new CheckedOutputStream (bout, crc))
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.SAMPLE_WRITE, name.get ()))
         {
-            if (this.requiresRewrite (DESTINATION_FORMAT))
-                this.rewriteFile (multiSampleSource, zone, checkedOut, DESTINATION_FORMAT, false);
-            else
-                sampleData.get ().writeSample (checkedOut);
-            putUncompressedEntry (zipOutputStream, name.get (), bout.toByteArray (), crc, multiSampleSource.getMetadata ().getCreationDateTime ());
+            final Optional<MemoryBudget.Reservation> reservation = MemoryBudget.tryReserve (2 * MemoryBudget.estimateSize (sampleData.get ()));
+            if (reservation.isEmpty ())
+            {
+                this.storeSamplefileFromTemporaryFile (zipOutputStream, multiSampleSource, zone, sampleData.get (), name.get ());
+                return;
+            }
+
+            try (final MemoryBudget.Reservation _ = reservation.get (); final ByteArrayOutputStream bout = new ByteArrayOutputStream (); final OutputStream checkedOut = new CheckedOutputStream (bout, crc))
+            {
+                this.writeSamplefile (multiSampleSource, zone, sampleData.get (), checkedOut);
+                putUncompressedEntry (zipOutputStream, name.get (), bout.toByteArray (), crc, multiSampleSource.getMetadata ().getCreationDateTime ());
+            }
         }
     }
 
 
+    /**
+     * Adds a sample file to the uncompressed ZIP output stream by writing it to a temporary file
+     * first.
+     *
+     * @param zipOutputStream The ZIP output stream
+     * @param multiSampleSource The multi-sample source
+     * @param zone The zone to add
+     * @param sampleData The sample data of the zone
+     * @param fileName The name of the entry in the ZIP file
+     * @throws IOException Could not read or write the file
+     */
+    private void storeSamplefileFromTemporaryFile (final ZipOutputStream zipOutputStream, final IMultisampleSource multiSampleSource, final ISampleZone zone, final ISampleData sampleData, final String fileName) throws IOException
+    {
+        final File tempFile = File.createTempFile ("sample", ".tmp");
+        try
+        {
+            final CRC32 crc = new CRC32 ();
+            try (final OutputStream checkedOut = new CheckedOutputStream (new BufferedOutputStream (new FileOutputStream (tempFile)), crc))
+            {
+                this.writeSamplefile (multiSampleSource, zone, sampleData, checkedOut);
+            }
+            putUncompressedEntry (zipOutputStream, fileName, tempFile, crc, multiSampleSource.getMetadata ().getCreationDateTime ());
+        }
+        finally
+        {
+            Files.deleteIfExists (tempFile.toPath ());
+        }
+    }
+
+
+    /**
+     * Writes a sample file in the destination format, rewrites it if necessary.
+     *
+     * @param multiSampleSource The multi-sample source
+     * @param zone The zone of the sample
+     * @param sampleData The sample data of the zone
+     * @param outputStream Where to write the file to
+     * @throws IOException Could not read or write the file
+     */
+    private void writeSamplefile (final IMultisampleSource multiSampleSource, final ISampleZone zone, final ISampleData sampleData, final OutputStream outputStream) throws IOException
+    {
+        if (this.requiresRewrite (DESTINATION_FORMAT))
+            this.rewriteFile (multiSampleSource, zone, outputStream, DESTINATION_FORMAT, false);
+        else
+            sampleData.writeSample (outputStream);
+    }
+
+
     /**
      * Add all samples from all groups in the given uncompressed ZIP output stream.
      *
@@ -938,7 +1028,7 @@ public abstract class AbstractCreator<T extends ICoreTaskSettings> extends Abstr
                 this.notifier.logError ("IDS_NOTIFY_ALREADY_EXISTS", file.getAbsolutePath ());
                 continue;
             }
-            try (final FileOutputStream fos = new FileOutputStream (file))
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.SAMPLE_WRITE, file); final FileOutputStream fos = new FileOutputStream (file))
             {
                 this.progress.notifyProgress ();
 
@@ -1154,16 +1244,19 @@ public abstract class AbstractCreator<T extends ICoreTaskSettings> extends Abstr
             entry.setTime (millis);
         }
 
-        zipOutputStream.putNextEntry (entry);
-        final Optional<ISampleData> sampleData = zone.getSampleData ();
-        if (sampleData.isEmpty ())
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.ZIP_ENCODE, name.get ()))
         {
-            this.notifier.logError (IDS_NOTIFY_ERR_MISSING_SAMPLE_DATA, zone.getName (), name.get ());
-            this.notifier.logText ("\n");
+            zipOutputStream.putNextEntry (entry);
+            final Optional<ISampleData> sampleData = zone.getSampleData ();
+            if (sampleData.isEmpty ())
+            {
+                this.notifier.logError (IDS_NOTIFY_ERR_MISSING_SAMPLE_DATA, zone.getName (), name.get ());
+                this.notifier.logText ("\n");
+            }
+            else
+                sampleData.get ().writeSample (zipOutputStream);
+            zipOutputStream.closeEntry ();
         }
-        else
-            sampleData.get ().writeSample (zipOutputStream);
-        zipOutputStream.closeEntry ();
     }
 
 
@@ -1219,7 +1312,7 @@ public abstract class AbstractCreator<T extends ICoreTaskSettings> extends Abstr
      */
     protected Optional<String> createXMLString (final Document document)
     {
-        try
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.METADATA_WRITE))
         {
             return Optional.of (XMLUtils.toString (document));
         }
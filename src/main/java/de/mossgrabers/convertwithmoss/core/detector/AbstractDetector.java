@@ -42,6 +42,10 @@ import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.IPerformanceSource;
 import de.mossgrabers.convertwithmoss.core.MachineProgressReporter;
+import de.mossgrabers.convertwithmoss.core.PipelineStage;
+import de.mossgrabers.convertwithmoss.core.PipelineStatistics;
+import de.mossgrabers.convertwithmoss.core.StageTimer;
+import de.mossgrabers.convertwithmoss.core.detector.SourceTreeScanner.SourceTreeFolder;
 import de.mossgrabers.convertwithmoss.core.model.IFileBasedSampleData;
 import de.mossgrabers.convertwithmoss.core.model.IGroup;
 import de.mossgrabers.convertwithmoss.core.model.IMetadata;
@@ -100,6 +104,10 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
     private final List<File>                  sourceFiles                         = new ArrayList<> ();
 
     private int                               deliveryCounter                     = 0;
+    /** The source tree which was read for the progress total, used by the detection run. */
+    private SourceTreeFolder                  sourceTree                          = null;
+    /** Remembers the folders which were read while searching files during the detection run. */
+    private FileSearchIndex                   fileSearchIndex                     = new FileSearchIndex ();
 
 
     /**
@@ -140,6 +148,7 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
         this.unsupportedElements.clear ();
         this.unsupportedAttributes.clear ();
         this.isCancelled.set (false);
+        this.fileSearchIndex = new FileSearchIndex ();
 
         this.startDetection ();
     }
@@ -157,6 +166,7 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
         this.unsupportedElements.clear ();
         this.unsupportedAttributes.clear ();
         this.isCancelled.set (false);
+        this.fileSearchIndex = new FileSearchIndex ();
 
         final SourcePicker picker = new SourcePicker (indexInFile);
         // Reading is stopped as soon as the wanted source was delivered
@@ -172,7 +182,7 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
 
         try
         {
-            this.detectSources (List.of (sourceFile));
+            this.fileSearchIndex.run ( () -> this.detectSources (List.of (sourceFile)));
         }
         catch (final RuntimeException | OutOfMemoryError err)
         {
@@ -187,6 +197,49 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public void readSources (final File sourceFolder, final List<File> sourceFiles, final Consumer<IMultisampleSource> multisampleSourceConsumer, final Consumer<IPerformanceSource> performanceSourceConsumer, final boolean detectPerformances)
+    {
+        this.configureFileEndings (detectPerformances);
+
+        this.multisampleSourceConsumer = multisampleSourceConsumer;
+        this.performanceSourceConsumer = performanceSourceConsumer;
+        this.sourceFolder = sourceFolder;
+        this.detectPerformances = detectPerformances;
+        this.isCancelled.set (false);
+
+        for (final File file: sourceFiles)
+        {
+            if (this.isCancelled ())
+                break;
+            this.detectSourceFile (file);
+        }
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        // Only checks the file ending. Overwrite to additionally check the content of the file,
+        // which is required if other detectors use the same file ending
+        // A detector without file endings does not read files but folders
+        if (endings.length == 0 || !matchesFileEnding (file, endings))
+            return ProbeResult.NO_MATCH;
+        return ProbeResult.FILE_ENDING;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public String [] getFileEndings (final boolean detectPerformances)
+    {
+        this.configureFileEndings (detectPerformances);
+        return this.fileEndings.clone ();
+    }
+
+
     /**
      * Set the source folder.
      *
@@ -253,26 +306,95 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
         if (this.waitForDelivery ())
             return;
 
-        final Optional<List<File>> listFiles = this.listFiles (folder, this.fileEndings);
-        if (listFiles.isEmpty ())
+        final Optional<SourceTreeFolder> sourceTree;
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.FOLDER_WALK, folder))
+        {
+            sourceTree = this.scanSourceTree (folder);
+        }
+        if (sourceTree.isEmpty ())
         {
             this.notifier.log ("IDS_NOT_A_DIRECTORY", folder.getAbsolutePath ());
             return;
         }
-        for (final File file: listFiles.get ())
-            // Ignore MacOS crap
-            if (!file.getName ().startsWith ("._"))
-            {
-                this.notifier.log (IDS_NOTIFY_ANALYZING, file.getAbsolutePath ());
+        this.detect (sourceTree.get ());
+    }
 
-                if (this.waitForDelivery ())
-                    break;
 
-                if (this.detectPerformances)
-                    this.handlePerformanceFile (file);
-                else
-                    this.handlePresetFile (file);
-            }
+    /**
+     * Detect all potential multi-sample files of a folder of the source tree. The sub-folders are
+     * processed first, then the files of the folder itself.
+     *
+     * @param folder The folder of the source tree
+     */
+    private void detect (final SourceTreeFolder folder)
+    {
+        for (final SourceTreeFolder subFolder: folder.getSubFolders ())
+        {
+            if (this.isCancelled ())
+                return;
+
+            this.notifier.log (IDS_NOTIFY_ANALYZING, subFolder.getFolder ().getAbsolutePath ());
+            if (this.waitForDelivery ())
+                return;
+            if (subFolder.isReadable ())
+                this.detect (subFolder);
+            else
+                this.notifier.log ("IDS_NOT_A_DIRECTORY", subFolder.getFolder ().getAbsolutePath ());
+        }
+
+        for (final File file: folder.getFiles ())
+        {
+            this.notifier.log (IDS_NOTIFY_ANALYZING, file.getAbsolutePath ());
+
+            if (this.waitForDelivery ())
+                break;
+
+            this.detectSourceFile (file);
+        }
+
+        if (!folder.getOtherFiles ().isEmpty ())
+            this.skipOtherFiles (folder.getOtherFiles ());
+    }
+
+
+    /**
+     * Should the files of the source folder, which do not match the file endings, be handed to
+     * {@link #skipOtherFiles(List)}? Overwrite, if required.
+     *
+     * @return True to get the other files
+     */
+    protected boolean needsOtherFiles ()
+    {
+        return false;
+    }
+
+
+    /**
+     * Called with the files of a folder which do not match the file endings and are therefore not
+     * read, if {@link #needsOtherFiles()} returns true. Overwrite, if required.
+     *
+     * @param files The files of one folder, sorted by their name
+     */
+    protected void skipOtherFiles (final List<File> files)
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * Get the source tree of the given folder. The tree which was read for the total of the
+     * progress protocol is used if it is the one of the folder, otherwise the folder is read.
+     *
+     * @param folder The folder
+     * @return The source tree, empty if the folder is not a folder or cannot be read
+     */
+    private Optional<SourceTreeFolder> scanSourceTree (final File folder)
+    {
+        final SourceTreeFolder tree = this.sourceTree;
+        this.sourceTree = null;
+        if (tree != null && tree.getFolder ().equals (folder))
+            return Optional.of (tree);
+        return SourceTreeScanner.scan (folder, this.fileEndings, this.needsOtherFiles (), this::isCancelled);
     }
 
 
@@ -334,6 +456,18 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
             return;
         }
 
+        this.detectSourceFile (file);
+    }
+
+
+    /**
+     * Read one source file, which was found in the source folder or selected by the user, and
+     * report its multi-samples or performances.
+     *
+     * @param file The file to read
+     */
+    protected void detectSourceFile (final File file)
+    {
         if (this.detectPerformances)
             this.handlePerformanceFile (file);
         else
@@ -350,11 +484,21 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
      */
     protected boolean matchesFileEnding (final File file)
     {
-        if (this.fileEndings.length == 0)
-            return true;
+        return this.fileEndings.length == 0 || matchesFileEnding (file, this.fileEndings);
+    }
+
 
+    /**
+     * Test if the name of the given file matches one of the given file endings.
+     *
+     * @param file The file to check
+     * @param endings The file endings, including the dot
+     * @return True if it matches
+     */
+    private static boolean matchesFileEnding (final File file, final String [] endings)
+    {
         final String lower = file.getName ().toLowerCase (Locale.US);
-        for (final String ending: this.fileEndings)
+        for (final String ending: endings)
             if (lower.endsWith (ending))
                 return true;
         return false;
@@ -367,7 +511,13 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
 
         try
         {
-            for (final IMultisampleSource multisample: this.readPresetFile (file))
+            final List<IMultisampleSource> multisamples;
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.DETECTOR_PARSE, file))
+            {
+                multisamples = this.readPresetFile (file);
+            }
+
+            for (final IMultisampleSource multisample: multisamples)
             {
                 if (this.waitForDelivery ())
                     break;
@@ -393,7 +543,11 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
 
         try
         {
-            final List<IPerformanceSource> performances = this.readPerformanceFile (file);
+            final List<IPerformanceSource> performances;
+            try (final StageTimer _ = PipelineStatistics.start (PipelineStage.DETECTOR_PARSE, file))
+            {
+                performances = this.readPerformanceFile (file);
+            }
             if (performances.isEmpty () || this.waitForDelivery ())
                 return;
 
@@ -469,8 +623,27 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
     @Override
     public void run ()
     {
-        MachineProgressReporter.start (this.sourceFolder, this.countSourceFiles ());
+        MachineProgressReporter.start (this.notifier, this.sourceFolder, this.countSourceFiles ());
 
+        final FileSearchIndex searchIndex = this.fileSearchIndex;
+        searchIndex.run (this::detectAll);
+        this.detectionFinished ();
+
+        final int hits = searchIndex.getHits ();
+        final int misses = searchIndex.getMisses ();
+        if (hits + misses > 0)
+            this.notifier.log ("IDS_NOTIFY_SEARCH_FILE_INDEX", Integer.toString (hits + misses), Integer.toString (hits), Integer.toString (misses));
+
+        MachineProgressReporter.finish (this.isCancelled ());
+        this.notifier.finished (this.isCancelled ());
+    }
+
+
+    /**
+     * Read all source files of the detection run.
+     */
+    private void detectAll ()
+    {
         try
         {
             if (this.sourceFiles.isEmpty ())
@@ -482,66 +655,43 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
         {
             this.notifier.logError (err);
         }
+    }
 
-        MachineProgressReporter.finish (this.isCancelled ());
-        this.notifier.finished (this.isCancelled ());
+
+    /**
+     * Called after all source files of a detection run were read, e.g. to log a summary.
+     * Overwrite, if required.
+     */
+    protected void detectionFinished ()
+    {
+        // Intentionally empty
     }
 
 
     /**
      * Count the source files which this detection run will read. This is only needed to calculate
      * the percentage of the machine-readable progress protocol and is therefore only counted if
-     * that protocol is active, since it walks the whole source folder a second time.
+     * that protocol is active. The source tree which is read for it is kept for the detection run,
+     * so that the source folder is read only once.
      *
      * @return The number of source files, 0 if that number cannot be told in advance
      */
     private int countSourceFiles ()
     {
+        this.sourceTree = null;
         if (!MachineProgressReporter.isActive ())
             return 0;
         if (!this.sourceFiles.isEmpty ())
             return this.sourceFiles.size ();
         // A detector without file endings does not read files but folders
-        return this.fileEndings.length == 0 ? 0 : countFiles (this.sourceFolder, this.fileEndings);
-    }
-
-
-    /**
-     * Count all files in the given folder and its sub-folders which match one of the given file
-     * endings. This applies exactly the same criteria as the detection run itself.
-     *
-     * @param folder The folder to start counting
-     * @param endings The file endings to match, including the dot, e.g. '.wav'
-     * @return The number of matching files
-     */
-    private static int countFiles (final File folder, final String... endings)
-    {
-        final File [] children = folder.listFiles ();
-        if (children == null)
+        if (this.fileEndings.length == 0)
             return 0;
 
-        int count = 0;
-        for (final File child: children)
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.FOLDER_WALK, this.sourceFolder))
         {
-            if (child.isDirectory ())
-            {
-                count += countFiles (child, endings);
-                continue;
-            }
-
-            // Ignore MacOS crap
-            if (child.getName ().startsWith ("._"))
-                continue;
-
-            final String lower = child.getName ().toLowerCase (Locale.US);
-            for (final String ending: endings)
-                if (lower.endsWith (ending))
-                {
-                    count++;
-                    break;
-                }
+            this.sourceTree = SourceTreeScanner.scan (this.sourceFolder, this.fileEndings, this.needsOtherFiles (), this::isCancelled).orElse (null);
         }
-        return count;
+        return this.sourceTree == null ? 0 : this.sourceTree.countFiles ();
     }
 
 
@@ -830,7 +980,11 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
      */
     protected ISampleData createSampleData (final File zipFile, final File sampleFile) throws IOException
     {
-        final ISampleData sampleData = loadSampleData (zipFile, sampleFile);
+        final ISampleData sampleData;
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.SAMPLE_PROBE, sampleFile))
+        {
+            sampleData = loadSampleData (zipFile, sampleFile);
+        }
         MachineProgressReporter.reportSample (sampleFile);
         return sampleData;
     }
@@ -874,7 +1028,11 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
      */
     public static IFileBasedSampleData createSampleData (final File sampleFile, final INotifier notifier) throws IOException
     {
-        final IFileBasedSampleData sampleData = loadSampleData (sampleFile, notifier);
+        final IFileBasedSampleData sampleData;
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.SAMPLE_PROBE, sampleFile))
+        {
+            sampleData = loadSampleData (sampleFile, notifier);
+        }
         MachineProgressReporter.reportSample (sampleFile);
         return sampleData;
     }
@@ -1282,27 +1440,18 @@ public abstract class AbstractDetector<T extends ICoreTaskSettings> extends Abst
     }
 
 
+    /**
+     * Search a file in the given folder and all of its non-hidden sub-folders, depth-first. The
+     * folders are read only once per detection run which executes on the calling thread, see
+     * {@link FileSearchIndex}.
+     *
+     * @param folder The folder in which to start the search
+     * @param fileName The name of the file, the upper/lower case is ignored
+     * @return The file, if found
+     */
     protected static Optional<File> findFileRecursively (final File folder, final String fileName)
     {
-        final File sampleFile = findFileIgnoreCase (folder, fileName);
-        if (sampleFile.exists ())
-            return Optional.of (sampleFile);
-
-        final File [] children = folder.listFiles (File::isDirectory);
-        if (children == null)
-            return Optional.empty ();
-
-        for (final File subFolder: children)
-        {
-            if (subFolder.isHidden () || subFolder.getName ().startsWith ("."))
-                continue;
-
-            final Optional<File> sampleFileOpt = findFileRecursively (subFolder, fileName);
-            if (sampleFileOpt.isPresent ())
-                return sampleFileOpt;
-        }
-
-        return Optional.empty ();
+        return FileSearchIndex.findInCurrentRun (folder, fileName);
     }
 
 
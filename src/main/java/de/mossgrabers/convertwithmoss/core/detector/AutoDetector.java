@@ -0,0 +1,326 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core.detector;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
+import de.mossgrabers.convertwithmoss.core.INotifier;
+import de.mossgrabers.convertwithmoss.core.MachineProgressReporter;
+
+
+/**
+ * Detects the source files of all formats in one run. Each file of the source folder is offered
+ * to all detectors, which check cheaply if it is one of their source files (the file ending and
+ * the first bytes of the file, see {@link IDetector#probe(File, byte[], boolean)}), and is then
+ * read by the detector which claimed it. This converts a folder which mixes several formats (e.g.
+ * SFZ next to EXS24 next to Kontakt files) in one run, which reads the source folder only once.
+ * <p>
+ * A detector whose check of the content confirms the file wins over detectors which only match
+ * the file ending. If several detectors match only the file ending, the file is ambiguous and not
+ * read. All files which were not read are listed at the end of the run, including the files with
+ * an ending which no format uses, which are grouped by their ending. Detectors which do not read
+ * files but folders (e.g. the sample files) do not take part.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class AutoDetector extends AbstractDetector<AutoDetectorSettings>
+{
+    /** The prefix which selects the automatic detection on the command line. */
+    public static final String                    PREFIX                 = "auto";
+    /** The number of bytes at the beginning of a file which are handed to the probes. */
+    public static final int                       PROBE_SIZE             = 4096;
+    /** The number of files which are listed for each unknown file ending. */
+    private static final int                      MAX_OTHER_FILES_LISTED = 5;
+
+    private final List<IDetector<?>>              detectors;
+    private final Map<String, Integer>            claimedFiles           = new LinkedHashMap<> ();
+    private final List<String []>                 unclaimedFiles         = new ArrayList<> ();
+    private final Map<String, Integer>            otherFileCounts        = new TreeMap<> ();
+    private final Map<String, List<String>>       otherFileExamples      = new TreeMap<> ();
+    private volatile IDetector<?>                 currentDetector        = null;
+    private volatile Map<IDetector<?>, String []> detectorFileEndings    = Collections.emptyMap ();
+
+
+    /**
+     * Constructor.
+     *
+     * @param notifier The notifier
+     * @param detectors The detectors of all source formats, files are claimed in their order
+     */
+    public AutoDetector (final INotifier notifier, final List<IDetector<?>> detectors)
+    {
+        super ("Automatic (all formats)", PREFIX, notifier, new AutoDetectorSettings (detectors));
+
+        this.detectors = detectors;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected void configureFileEndings (final boolean detectPerformances)
+    {
+        // Called at the start of each run, the endings of the detectors are kept for their probes
+        final Set<String> endings = new LinkedHashSet<> ();
+        final Map<IDetector<?>, String []> endingsOfDetectors = new IdentityHashMap<> ();
+        for (final IDetector<?> detector: this.detectors)
+            if (!detectPerformances || detector.supportsPerformances ())
+            {
+                final String [] detectorEndings = detector.getFileEndings (detectPerformances);
+                endingsOfDetectors.put (detector, detectorEndings);
+                Collections.addAll (endings, detectorEndings);
+            }
+        this.fileEndings = endings.toArray (new String [endings.size ()]);
+        this.detectorFileEndings = endingsOfDetectors;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean supportsPerformances ()
+    {
+        return true;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized Optional<IMultisampleSource> readSource (final File sourceFolder, final File sourceFile, final int indexInFile, final boolean detectPerformances)
+    {
+        final Optional<IMultisampleSource> source = super.readSource (sourceFolder, sourceFile, indexInFile, detectPerformances);
+        this.clearSummary ();
+        return source;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void cancel ()
+    {
+        super.cancel ();
+
+        final IDetector<?> detector = this.currentDetector;
+        if (detector != null)
+            detector.cancel ();
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected void detectSourceFile (final File file)
+    {
+        final Optional<IDetector<?>> detector = this.findDetector (file);
+        if (detector.isEmpty ())
+        {
+            // Count the file as processed, it is part of the total of the progress
+            MachineProgressReporter.startFile (file);
+            MachineProgressReporter.finishFile (file);
+            return;
+        }
+
+        final IDetector<?> claimingDetector = detector.get ();
+        this.notifier.log ("IDS_AUTO_DETECTED_FORMAT", claimingDetector.getName ());
+        this.currentDetector = claimingDetector;
+        try
+        {
+            claimingDetector.readSources (this.sourceFolder, List.of (file), this.multisampleSourceConsumer, this.performanceSourceConsumer, this.detectPerformances);
+        }
+        finally
+        {
+            this.currentDetector = null;
+        }
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean needsOtherFiles ()
+    {
+        return true;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected void skipOtherFiles (final List<File> files)
+    {
+        for (final File file: files)
+        {
+            final String ending = getFileEnding (file);
+            this.otherFileCounts.merge (ending, Integer.valueOf (1), Integer::sum);
+            final List<String> examples = this.otherFileExamples.computeIfAbsent (ending, _ -> new ArrayList<> ());
+            if (examples.size () < MAX_OTHER_FILES_LISTED)
+                examples.add (file.getAbsolutePath ());
+        }
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected List<IMultisampleSource> readPresetFile (final File sourceFile)
+    {
+        // Not used, all files are read by the detectors which claimed them
+        return Collections.emptyList ();
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected void detectionFinished ()
+    {
+        if (!this.claimedFiles.isEmpty ())
+        {
+            this.notifier.log ("IDS_AUTO_SUMMARY");
+            for (final Map.Entry<String, Integer> entry: this.claimedFiles.entrySet ())
+                this.notifier.log ("IDS_AUTO_SUMMARY_FORMAT", entry.getKey (), entry.getValue ().toString ());
+        }
+
+        if (!this.unclaimedFiles.isEmpty ())
+        {
+            this.notifier.log ("IDS_AUTO_UNCLAIMED", Integer.toString (this.unclaimedFiles.size ()));
+            for (final String [] unclaimedFile: this.unclaimedFiles)
+                if (unclaimedFile[1] == null)
+                    this.notifier.log ("IDS_AUTO_UNCLAIMED_NO_MATCH", unclaimedFile[0]);
+                else
+                    this.notifier.log ("IDS_AUTO_UNCLAIMED_AMBIGUOUS", unclaimedFile[0], unclaimedFile[1]);
+        }
+
+        if (!this.otherFileCounts.isEmpty ())
+        {
+            int total = 0;
+            for (final Integer count: this.otherFileCounts.values ())
+                total += count.intValue ();
+            this.notifier.log ("IDS_AUTO_UNKNOWN", Integer.toString (total));
+            for (final Map.Entry<String, Integer> entry: this.otherFileCounts.entrySet ())
+            {
+                final String ending = entry.getKey ();
+                final int count = entry.getValue ().intValue ();
+                if (ending.isEmpty ())
+                    this.notifier.log ("IDS_AUTO_UNKNOWN_NO_ENDING", Integer.toString (count));
+                else
+                    this.notifier.log ("IDS_AUTO_UNKNOWN_ENDING", ending, Integer.toString (count));
+                final List<String> examples = this.otherFileExamples.get (ending);
+                for (final String example: examples)
+                    this.notifier.log ("IDS_AUTO_UNKNOWN_FILE", example);
+                if (count > examples.size ())
+                    this.notifier.log ("IDS_AUTO_UNKNOWN_MORE", Integer.toString (count - examples.size ()));
+            }
+        }
+
+        this.clearSummary ();
+    }
+
+
+    /**
+     * Clear the collected information about the claimed and unclaimed files.
+     */
+    private void clearSummary ()
+    {
+        this.claimedFiles.clear ();
+        this.unclaimedFiles.clear ();
+        this.otherFileCounts.clear ();
+        this.otherFileExamples.clear ();
+    }
+
+
+    /**
+     * Find the detector which claims the given file.
+     *
+     * @param file The file
+     * @return The detector, empty if no or several detectors claim the file
+     */
+    private Optional<IDetector<?>> findDetector (final File file)
+    {
+        final byte [] header = readHeader (file);
+        final Map<IDetector<?>, String []> endingsOfDetectors = this.detectorFileEndings;
+        final List<IDetector<?>> fileEndingMatches = new ArrayList<> ();
+        IDetector<?> claimingDetector = null;
+        for (final IDetector<?> detector: this.detectors)
+        {
+            final String [] endings = endingsOfDetectors.get (detector);
+            if (endings == null)
+                continue;
+
+            final ProbeResult result = detector.probe (file, header, endings, this.detectPerformances);
+            if (result == ProbeResult.SIGNATURE)
+            {
+                claimingDetector = detector;
+                break;
+            }
+            if (result == ProbeResult.FILE_ENDING)
+                fileEndingMatches.add (detector);
+        }
+        if (claimingDetector == null && fileEndingMatches.size () == 1)
+            claimingDetector = fileEndingMatches.get (0);
+
+        if (claimingDetector != null)
+        {
+            this.claimedFiles.merge (claimingDetector.getName (), Integer.valueOf (1), Integer::sum);
+            return Optional.of (claimingDetector);
+        }
+
+        String candidates = null;
+        if (!fileEndingMatches.isEmpty ())
+        {
+            final List<String> names = new ArrayList<> (fileEndingMatches.size ());
+            for (final IDetector<?> detector: fileEndingMatches)
+                names.add (detector.getName ());
+            candidates = String.join (", ", names);
+        }
+        this.unclaimedFiles.add (new String []
+        {
+            file.getAbsolutePath (),
+            candidates
+        });
+        return Optional.empty ();
+    }
+
+
+    /**
+     * Get the ending of a file name.
+     *
+     * @param file The file
+     * @return The ending in lower case including the dot, e.g. '.txt', empty if the name has none
+     */
+    private static String getFileEnding (final File file)
+    {
+        final String name = file.getName ().toLowerCase (Locale.US);
+        final int pos = name.lastIndexOf ('.');
+        return pos > 0 ? name.substring (pos) : "";
+    }
+
+
+    /**
+     * Read the first bytes of a file.
+     *
+     * @param file The file
+     * @return Up to {@link #PROBE_SIZE} bytes, empty if the file cannot be read
+     */
+    private static byte [] readHeader (final File file)
+    {
+        try (final InputStream in = new FileInputStream (file))
+        {
+            return in.readNBytes (PROBE_SIZE);
+        }
+        catch (final IOException _)
+        {
+            return new byte [0];
+        }
+    }
+}
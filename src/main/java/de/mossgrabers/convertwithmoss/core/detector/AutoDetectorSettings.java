@@ -0,0 +1,96 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core.detector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.mossgrabers.convertwithmoss.core.INotifier;
+import de.mossgrabers.convertwithmoss.core.settings.ICoreTaskSettings;
+import de.mossgrabers.tools.ui.BasicConfig;
+import de.mossgrabers.tools.ui.panel.BoxPanel;
+import javafx.geometry.Orientation;
+import javafx.scene.layout.Pane;
+
+
+/**
+ * The settings of the automatic detection are the settings of all detectors which take part in
+ * it. Since the parameters of each detector start with its prefix, all of them can be given on the
+ * command line at the same time. The automatic detection is only available on the command line,
+ * therefore there are no widgets.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class AutoDetectorSettings implements ICoreTaskSettings
+{
+    private final List<IDetector<?>> detectors;
+
+
+    /**
+     * Constructor.
+     *
+     * @param detectors The detectors which take part in the automatic detection
+     */
+    public AutoDetectorSettings (final List<IDetector<?>> detectors)
+    {
+        this.detectors = detectors;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public Pane getEditPane ()
+    {
+        return new BoxPanel (Orientation.VERTICAL).getPane ();
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void saveSettings (final BasicConfig configuration)
+    {
+        // Intentionally empty
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public void loadSettings (final BasicConfig configuration)
+    {
+        // Intentionally empty
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean checkSettingsUI (final INotifier notifier)
+    {
+        return true;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean checkSettingsCLI (final INotifier notifier, final Map<String, String> parameters)
+    {
+        for (final IDetector<?> detector: this.detectors)
+            if (!detector.getSettings ().checkSettingsCLI (notifier, parameters))
+                return false;
+        return true;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public String [] getCLIParameterNames ()
+    {
+        final List<String> parameterNames = new ArrayList<> ();
+        for (final IDetector<?> detector: this.detectors)
+            Collections.addAll (parameterNames, detector.getSettings ().getCLIParameterNames ());
+        return parameterNames.toArray (new String [parameterNames.size ()]);
+    }
+}
@@ -0,0 +1,348 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core.detector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Remembers the folders which were read while searching for missing files, so that each folder is
+ * only read once during a detection run. A preset whose samples are not where it expects them
+ * searches the same folders for every one of its samples, which on a large library volume means
+ * reading thousands of folders for each of its hundreds of samples.
+ * <p>
+ * The index is built lazily: a search reads only the folders it visits, in the same order and
+ * stopping at the same folder as a recursive search of the file system. Once all folders below a
+ * folder were read, a search from there is answered from the file names alone. Either way the
+ * found file is the one the recursive search finds: the folders are visited depth-first in the
+ * order in which the file system lists them, a folder is checked before its sub-folders, hidden
+ * folders are skipped and the upper/lower case of the name is ignored.
+ * <p>
+ * Each detection run creates its own index, so files which were added in between are found and
+ * runs which happen at the same time do not interfere. While a run executes, its index is bound
+ * to the thread (see {@link #run(Runnable)}), which lets the static search methods of the
+ * detectors find it. The threads of one run can share the index: the file system is always
+ * accessed without holding its lock, only the reading and updating of the index is synchronized.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class FileSearchIndex
+{
+    private static final ThreadLocal<FileSearchIndex> CURRENT = new ThreadLocal<> ();
+
+    /** All folders which were seen, by their absolute path. */
+    private final Map<File, Folder>                   folders = new HashMap<> ();
+    /** The folders which contain a file of the name, by the case-folded name. */
+    private final Map<String, List<Folder>>           names   = new HashMap<> ();
+
+    private final AtomicInteger                       hits    = new AtomicInteger ();
+    private final AtomicInteger                       misses  = new AtomicInteger ();
+
+
+    /**
+     * Search a file in the given folder and all of its sub-folders with the index of the detection
+     * run which is executed by the calling thread. If the thread does not execute a detection run,
+     * the folders are read without remembering them.
+     *
+     * @param folder The folder in which to start the search
+     * @param fileName The name of the file, the upper/lower case is ignored
+     * @return The file, if found
+     */
+    public static Optional<File> findInCurrentRun (final File folder, final String fileName)
+    {
+        final FileSearchIndex index = CURRENT.get ();
+        return (index == null ? new FileSearchIndex () : index).find (folder, fileName);
+    }
+
+
+    /**
+     * Execute the given task on the calling thread with this index as the index of the current
+     * detection run. The index which was bound before is restored afterwards.
+     *
+     * @param task The task to execute
+     */
+    public void run (final Runnable task)
+    {
+        final FileSearchIndex previous = CURRENT.get ();
+        CURRENT.set (this);
+        try
+        {
+            task.run ();
+        }
+        finally
+        {
+            if (previous == null)
+                CURRENT.remove ();
+            else
+                CURRENT.set (previous);
+        }
+    }
+
+
+    /**
+     * Search a file in the given folder and all of its sub-folders.
+     *
+     * @param folder The folder in which to start the search
+     * @param fileName The name of the file, the upper/lower case is ignored
+     * @return The file, if found
+     */
+    public Optional<File> find (final File folder, final String fileName)
+    {
+        final Folder start;
+        synchronized (this)
+        {
+            start = this.getFolder (folder.getAbsoluteFile ());
+        }
+
+        final boolean [] hasListed = new boolean [1];
+        final Optional<File> result = this.search (start, folder, fileName, fold (fileName), hasListed);
+        if (hasListed[0])
+            this.misses.incrementAndGet ();
+        else
+            this.hits.incrementAndGet ();
+        return result;
+    }
+
+
+    /**
+     * Get the number of searches which were answered without reading a folder.
+     *
+     * @return The number of searches of this index
+     */
+    public int getHits ()
+    {
+        return this.hits.get ();
+    }
+
+
+    /**
+     * Get the number of searches which needed to read at least one folder.
+     *
+     * @return The number of searches of this index
+     */
+    public int getMisses ()
+    {
+        return this.misses.get ();
+    }
+
+
+    private Optional<File> search (final Folder folder, final File directory, final String fileName, final String key, final boolean [] hasListed)
+    {
+        final boolean isComplete;
+        final boolean isListed;
+        synchronized (this)
+        {
+            isComplete = folder.isComplete;
+            isListed = folder.isListed;
+        }
+
+        if (isComplete)
+            return this.searchIndex (folder, directory, fileName, key);
+        if (!isListed)
+        {
+            hasListed[0] = true;
+            this.list (folder, directory);
+        }
+
+        final boolean containsName;
+        final List<Folder> subFolders;
+        synchronized (this)
+        {
+            containsName = folder.names.contains (key);
+            subFolders = new ArrayList<> (folder.subFolders);
+        }
+
+        if (containsName)
+        {
+            final File file = AbstractDetector.findFileIgnoreCase (directory, fileName);
+            if (file.exists ())
+                return Optional.of (file);
+        }
+
+        for (final Folder subFolder: subFolders)
+        {
+            final Optional<File> file = this.search (subFolder, new File (directory, subFolder.name), fileName, key, hasListed);
+            if (file.isPresent ())
+                return file;
+        }
+
+        // Nothing below this folder needs to be read again
+        synchronized (this)
+        {
+            folder.isComplete = true;
+        }
+        return Optional.empty ();
+    }
+
+
+    /**
+     * Search a file below a folder of which all sub-folders were already read.
+     *
+     * @param folder The folder in which to start the search
+     * @param directory The folder as given by the caller, the found file is relative to it
+     * @param fileName The name of the file
+     * @param key The case-folded name of the file
+     * @return The file, if found
+     */
+    private Optional<File> searchIndex (final Folder folder, final File directory, final String fileName, final String key)
+    {
+        final List<File> candidateDirectories = new ArrayList<> ();
+        synchronized (this)
+        {
+            final List<Folder> candidates = this.names.get (key);
+            if (candidates == null)
+                return Optional.empty ();
+
+            // Order the folders below the start folder like the recursive search visits them
+            final List<List<Folder>> paths = new ArrayList<> ();
+            for (final Folder candidate: candidates)
+            {
+                final List<Folder> path = new ArrayList<> ();
+                Folder current = candidate;
+                while (current != null && current != folder)
+                {
+                    path.add (0, current);
+                    current = current.parent;
+                }
+                if (current == folder)
+                    paths.add (path);
+            }
+            paths.sort (FileSearchIndex::compareVisitOrder);
+
+            for (final List<Folder> path: paths)
+            {
+                File candidateDirectory = directory;
+                for (final Folder subFolder: path)
+                    candidateDirectory = new File (candidateDirectory, subFolder.name);
+                candidateDirectories.add (candidateDirectory);
+            }
+        }
+
+        for (final File candidateDirectory: candidateDirectories)
+        {
+            final File file = AbstractDetector.findFileIgnoreCase (candidateDirectory, fileName);
+            if (file.exists ())
+                return Optional.of (file);
+        }
+        return Optional.empty ();
+    }
+
+
+    /**
+     * Compares the paths to 2 folders below the same folder in the order of a depth-first search,
+     * which visits a folder before its sub-folders.
+     *
+     * @param path1 The first path
+     * @param path2 The second path
+     * @return Negative if the folder of the first path is visited first
+     */
+    private static int compareVisitOrder (final List<Folder> path1, final List<Folder> path2)
+    {
+        final int length = Math.min (path1.size (), path2.size ());
+        for (int i = 0; i < length; i++)
+        {
+            final int result = Integer.compare (path1.get (i).position, path2.get (i).position);
+            if (result != 0)
+                return result;
+        }
+        return Integer.compare (path1.size (), path2.size ());
+    }
+
+
+    /**
+     * Read the content of a folder and add it to the index. The folder is read without holding
+     * the lock of the index. If another thread read the same folder in the meantime, its result is
+     * kept.
+     *
+     * @param folder The folder of the index
+     * @param directory The folder to read
+     */
+    private void list (final Folder folder, final File directory)
+    {
+        final List<String> entryNames = new ArrayList<> ();
+        final Set<String> subFolderNames = new HashSet<> ();
+        final File [] entries = directory.listFiles ();
+        if (entries != null)
+            for (final File entry: entries)
+            {
+                final String name = entry.getName ();
+                entryNames.add (name);
+                if (entry.isDirectory () && !entry.isHidden () && !name.startsWith ("."))
+                    subFolderNames.add (name);
+            }
+
+        synchronized (this)
+        {
+            if (folder.isListed)
+                return;
+            folder.isListed = true;
+
+            for (final String name: entryNames)
+            {
+                final String key = fold (name);
+                if (folder.names.add (key))
+                    this.names.computeIfAbsent (key, _ -> new ArrayList<> (1)).add (folder);
+
+                if (subFolderNames.contains (name))
+                {
+                    final Folder subFolder = this.getFolder (new File (folder.path, name));
+                    subFolder.parent = folder;
+                    subFolder.position = folder.subFolders.size ();
+                    folder.subFolders.add (subFolder);
+                }
+            }
+        }
+    }
+
+
+    private Folder getFolder (final File path)
+    {
+        return this.folders.computeIfAbsent (path, Folder::new);
+    }
+
+
+    /**
+     * Folds the upper/lower case of a name, two names fold to the same text if they are equal
+     * ignoring their case.
+     *
+     * @param name The name
+     * @return The folded name
+     */
+    private static String fold (final String name)
+    {
+        final StringBuilder sb = new StringBuilder (name.length ());
+        name.codePoints ().forEach (c -> sb.appendCodePoint (Character.toLowerCase (Character.toUpperCase (c))));
+        return sb.toString ();
+    }
+
+
+    /** A folder of the index. All fields are only accessed while holding the lock of the index. */
+    private static final class Folder
+    {
+        private final File         path;
+        private final String       name;
+        private final Set<String>  names      = new HashSet<> ();
+        private final List<Folder> subFolders = new ArrayList<> ();
+        private Folder             parent     = null;
+        private int                position   = 0;
+        private boolean            isListed   = false;
+        private boolean            isComplete = false;
+
+
+        Folder (final File path)
+        {
+            this.path = path;
+            this.name = path.getName ();
+        }
+    }
+}
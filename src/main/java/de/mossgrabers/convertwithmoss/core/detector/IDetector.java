@@ -53,6 +53,47 @@ public interface IDetector<T extends ICoreTaskSettings> extends ICoreTask<T>, Ru
     Optional<IMultisampleSource> readSource (File sourceFolder, File sourceFile, int indexInFile, boolean detectPerformances);
 
 
+    /**
+     * Read the sources of the given files on the calling thread and report everything which is
+     * found. This is used by the automatic detection, which hands each file to the detector which
+     * claimed it. Must not be called while a detection run of this detector is in progress. Missing
+     * files are searched with the index of the detection run which executes on the calling thread,
+     * see {@link FileSearchIndex#run(Runnable)}.
+     *
+     * @param sourceFolder The folder which is the reference for all sub-path calculations
+     * @param sourceFiles The files to read
+     * @param multisampleSourceConsumer Where to report the found multi-samples sources
+     * @param performanceSourceConsumer Where to report the found performance sources
+     * @param detectPerformances If true, performances are detected otherwise presets
+     */
+    void readSources (File sourceFolder, List<File> sourceFiles, Consumer<IMultisampleSource> multisampleSourceConsumer, Consumer<IPerformanceSource> performanceSourceConsumer, boolean detectPerformances);
+
+
+    /**
+     * Check cheaply if the given file is a source file of this detector. The check must not read
+     * more than the beginning of the file, which is handed in as the header.
+     *
+     * @param file The file to check
+     * @param header The first bytes of the file (a few KB), shorter if the file is shorter
+     * @param endings The file endings of this detector (see {@link #getFileEndings(boolean)}), the
+     *            caller retrieves them once for all files it checks
+     * @param detectPerformances If true, performances are detected otherwise presets
+     * @return The result of the check
+     */
+    ProbeResult probe (File file, byte [] header, String [] endings, boolean detectPerformances);
+
+
+    /**
+     * Get the file endings of the source files.
+     *
+     * @param detectPerformances If true, the endings of performance files otherwise the ones of
+     *            preset files
+     * @return The file endings, including the dot, e.g. '.wav', empty if the detector does not
+     *         read files but folders
+     */
+    String [] getFileEndings (boolean detectPerformances);
+
+
     /**
      * Check if the detector supports performance sources.
      *
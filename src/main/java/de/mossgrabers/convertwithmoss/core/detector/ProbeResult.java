@@ -0,0 +1,21 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core.detector;
+
+/**
+ * How certain a detector is that a file is one of its source files, see
+ * {@link IDetector#probe(java.io.File, byte[], boolean)}.
+ *
+ * @author Jürgen Moßgraber
+ */
+public enum ProbeResult
+{
+    /** The file is not a source file of the detector. */
+    NO_MATCH,
+    /** The file ending matches, the content of the file was not checked. */
+    FILE_ENDING,
+    /** The file ending and the content of the file (e.g. its magic bytes) match. */
+    SIGNATURE
+}
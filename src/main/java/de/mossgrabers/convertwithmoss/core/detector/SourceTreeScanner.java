@@ -0,0 +1,361 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.core.detector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Reads a source folder with all of its sub-folders and creates a manifest of the source files it
+ * contains. The folders are read in parallel on a bounded number of threads, which hides most of
+ * the latency of a network volume, and the attributes of each entry are read only once. The
+ * manifest is then used for the total of the progress protocol as well as for the detection run
+ * itself, so that the source folder is read only once.
+ * <p>
+ * The sub-folders and files of each folder are sorted by their name ignoring the upper/lower case,
+ * which gives the same stable order as a sequential walk, independent of the file system.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class SourceTreeScanner
+{
+    /** The default number of folders which are read at the same time. */
+    public static final int                           DEFAULT_CONCURRENCY = Math.max (4, Runtime.getRuntime ().availableProcessors ());
+    /** The maximum number of folders which are read at the same time. */
+    public static final int                           MAX_CONCURRENCY     = 64;
+
+    private static final Comparator<File>             NAME_ORDER          = Comparator.comparing (File::getName, String.CASE_INSENSITIVE_ORDER);
+    private static final Comparator<SourceTreeFolder> FOLDER_ORDER        = Comparator.comparing (SourceTreeFolder::getFolder, NAME_ORDER);
+
+    private static volatile int                       concurrency         = DEFAULT_CONCURRENCY;
+
+    private final String []                           endings;
+    private final boolean                             keepOtherFiles;
+    private final BooleanSupplier                     isCancelled;
+    private final ExecutorService                     executor;
+    private final AtomicInteger                       pendingFolders      = new AtomicInteger ();
+    private final CountDownLatch                      finishedSignal      = new CountDownLatch (1);
+
+
+    /**
+     * Set the number of folders which are read at the same time. Applies to all following scans.
+     *
+     * @param numberOfThreads The number of threads, limited to 1-{@link #MAX_CONCURRENCY}
+     */
+    public static void setConcurrency (final int numberOfThreads)
+    {
+        concurrency = Math.clamp (numberOfThreads, 1, MAX_CONCURRENCY);
+    }
+
+
+    /**
+     * Read the given folder and all of its sub-folders.
+     *
+     * @param folder The folder to read
+     * @param endings The file endings to match, including the dot, e.g. '.wav'
+     * @param isCancelled Is checked before each folder is read, reading stops if it returns true
+     * @return The manifest of the folder, empty if it is not a folder or cannot be read
+     */
+    public static Optional<SourceTreeFolder> scan (final File folder, final String [] endings, final BooleanSupplier isCancelled)
+    {
+        return scan (folder, endings, false, isCancelled);
+    }
+
+
+    /**
+     * Read the given folder and all of its sub-folders.
+     *
+     * @param folder The folder to read
+     * @param endings The file endings to match, including the dot, e.g. '.wav'
+     * @param keepOtherFiles If true, the files which do not match the file endings are kept as
+     *            well, see {@link SourceTreeFolder#getOtherFiles()}
+     * @param isCancelled Is checked before each folder is read, reading stops if it returns true
+     * @return The manifest of the folder, empty if it is not a folder or cannot be read
+     */
+    public static Optional<SourceTreeFolder> scan (final File folder, final String [] endings, final boolean keepOtherFiles, final BooleanSupplier isCancelled)
+    {
+        final SourceTreeFolder root = new SourceTreeFolder (folder);
+        new SourceTreeScanner (endings, keepOtherFiles, isCancelled).scan (root);
+        return root.isReadable () ? Optional.of (root) : Optional.empty ();
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param endings The file endings to match
+     * @param keepOtherFiles If true, the files which do not match the file endings are kept
+     * @param isCancelled Is checked before each folder is read
+     */
+    private SourceTreeScanner (final String [] endings, final boolean keepOtherFiles, final BooleanSupplier isCancelled)
+    {
+        this.endings = endings;
+        this.keepOtherFiles = keepOtherFiles;
+        this.isCancelled = isCancelled;
+        this.executor = Executors.newFixedThreadPool (concurrency, runnable -> {
+            final Thread thread = new Thread (runnable, "Source Tree Scanner");
+            thread.setDaemon (true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Read the root folder and wait until all of its sub-folders are read.
+     *
+     * @param root The root folder
+     */
+    private void scan (final SourceTreeFolder root)
+    {
+        try
+        {
+            this.submit (root);
+            this.finishedSignal.await ();
+        }
+        catch (final InterruptedException _)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+        finally
+        {
+            this.executor.shutdownNow ();
+        }
+    }
+
+
+    /**
+     * Read a folder on one of the threads.
+     *
+     * @param folder The folder
+     */
+    private void submit (final SourceTreeFolder folder)
+    {
+        // The sub-folders are submitted before the folder counts as finished, therefore the
+        // counter only reaches 0 when the whole tree is read
+        this.pendingFolders.incrementAndGet ();
+        this.executor.execute ( () -> {
+            try
+            {
+                if (!this.isCancelled.getAsBoolean ())
+                    this.read (folder);
+            }
+            finally
+            {
+                if (this.pendingFolders.decrementAndGet () == 0)
+                    this.finishedSignal.countDown ();
+            }
+        });
+    }
+
+
+    /**
+     * Read the entries of one folder, submit its sub-folders and keep the matching files.
+     *
+     * @param folder The folder
+     */
+    private void read (final SourceTreeFolder folder)
+    {
+        final List<SourceTreeFolder> subFolders = new ArrayList<> ();
+        final List<File> files = new ArrayList<> ();
+        final List<File> otherFiles = new ArrayList<> ();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream (folder.getFolder ().toPath ()))
+        {
+            for (final Path entry: stream)
+            {
+                if (this.isCancelled.getAsBoolean ())
+                    break;
+
+                if (isDirectory (entry))
+                {
+                    final SourceTreeFolder subFolder = new SourceTreeFolder (entry.toFile ());
+                    subFolders.add (subFolder);
+                    this.submit (subFolder);
+                }
+                else
+                {
+                    final String name = entry.getFileName ().toString ();
+                    if (this.matches (name))
+                        files.add (entry.toFile ());
+                    else if (this.keepOtherFiles && !name.startsWith ("._"))
+                        otherFiles.add (entry.toFile ());
+                }
+            }
+        }
+        catch (final IOException | DirectoryIteratorException | SecurityException _)
+        {
+            // Not a folder or cannot be read, reported by the detection run
+            return;
+        }
+
+        subFolders.sort (FOLDER_ORDER);
+        files.sort (NAME_ORDER);
+        otherFiles.sort (NAME_ORDER);
+        folder.setContent (subFolders, files, otherFiles);
+    }
+
+
+    /**
+     * Test if a file name matches one of the file endings. Ignores MacOS resource fork files.
+     *
+     * @param name The name of the file
+     * @return True if it matches
+     */
+    private boolean matches (final String name)
+    {
+        if (name.startsWith ("._"))
+            return false;
+        final String lower = name.toLowerCase (Locale.US);
+        for (final String ending: this.endings)
+            if (lower.endsWith (ending))
+                return true;
+        return false;
+    }
+
+
+    /**
+     * Read the attributes of an entry, following a symbolic link like {@link File#isDirectory()}.
+     *
+     * @param entry The entry
+     * @return True if the entry is a folder, false if it is not or its attributes cannot be read
+     */
+    private static boolean isDirectory (final Path entry)
+    {
+        try
+        {
+            return Files.readAttributes (entry, BasicFileAttributes.class).isDirectory ();
+        }
+        catch (final IOException | SecurityException _)
+        {
+            return false;
+        }
+    }
+
+
+    /**
+     * One folder of the manifest with its sub-folders and the source files which it contains.
+     */
+    public static final class SourceTreeFolder
+    {
+        private final File             folder;
+        private volatile boolean       isReadable = false;
+        private List<SourceTreeFolder> subFolders = Collections.emptyList ();
+        private List<File>             files      = Collections.emptyList ();
+        private List<File>             otherFiles = Collections.emptyList ();
+
+
+        /**
+         * Constructor.
+         *
+         * @param folder The folder
+         */
+        SourceTreeFolder (final File folder)
+        {
+            this.folder = folder;
+        }
+
+
+        /**
+         * Set the read content.
+         *
+         * @param subFolders The sub-folders, sorted
+         * @param files The matching files, sorted
+         * @param otherFiles The files which do not match, sorted
+         */
+        void setContent (final List<SourceTreeFolder> subFolders, final List<File> files, final List<File> otherFiles)
+        {
+            this.subFolders = subFolders;
+            this.files = files;
+            this.otherFiles = otherFiles;
+            this.isReadable = true;
+        }
+
+
+        /**
+         * Get the folder.
+         *
+         * @return The folder
+         */
+        public File getFolder ()
+        {
+            return this.folder;
+        }
+
+
+        /**
+         * Could the folder be read?
+         *
+         * @return True if it is a folder and could be read
+         */
+        public boolean isReadable ()
+        {
+            return this.isReadable;
+        }
+
+
+        /**
+         * Get the sub-folders.
+         *
+         * @return The sub-folders, sorted by their name
+         */
+        public List<SourceTreeFolder> getSubFolders ()
+        {
+            return this.subFolders;
+        }
+
+
+        /**
+         * Get the source files of this folder (without the ones of the sub-folders).
+         *
+         * @return The files which match the file endings, sorted by their name
+         */
+        public List<File> getFiles ()
+        {
+            return this.files;
+        }
+
+
+        /**
+         * Get the files of this folder which do not match the file endings (without the ones of the
+         * sub-folders). Only available if the scan was asked to keep them.
+         *
+         * @return The files which do not match the file endings, sorted by their name
+         */
+        public List<File> getOtherFiles ()
+        {
+            return this.otherFiles;
+        }
+
+
+        /**
+         * Count the source files of this folder and all of its sub-folders.
+         *
+         * @return The number of files
+         */
+        public int countFiles ()
+        {
+            int count = this.files.size ();
+            for (final SourceTreeFolder subFolder: this.subFolders)
+                count += subFolder.countFiles ();
+            return count;
+        }
+    }
+}
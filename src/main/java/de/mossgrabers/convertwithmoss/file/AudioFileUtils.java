@@ -28,6 +28,10 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import de.mossgrabers.convertwithmoss.core.INotifier;
+import de.mossgrabers.convertwithmoss.core.MemoryBudget;
+import de.mossgrabers.convertwithmoss.core.PipelineStage;
+import de.mossgrabers.convertwithmoss.core.PipelineStatistics;
+import de.mossgrabers.convertwithmoss.core.StageTimer;
 import de.mossgrabers.convertwithmoss.core.algorithm.AudioSampleReducer;
 import de.mossgrabers.convertwithmoss.core.creator.DestinationAudioFormat;
 import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
@@ -541,6 +545,26 @@ public final class AudioFileUtils
      * @throws IOException Could not read the sample data
      */
     public static byte [] compressToFLAC (final ISampleData sampleData) throws IOException
+    {
+        try (final StageTimer _ = PipelineStatistics.start (PipelineStage.FLAC_ENCODE))
+        {
+            return encodeFLAC (sampleData);
+        }
+    }
+
+
+    private static byte [] encodeFLAC (final ISampleData sampleData) throws IOException
+    {
+        // The WAV data, the de-interleaved channels (as integers) and the encoded result are in
+        // memory at the same time
+        try (final MemoryBudget.Reservation _ = MemoryBudget.reserve (4 * MemoryBudget.estimateSize (sampleData)))
+        {
+            return encodeFLACData (sampleData);
+        }
+    }
+
+
+    private static byte [] encodeFLACData (final ISampleData sampleData) throws IOException
     {
         final WaveFile waveFile = convertToWav (sampleData, FLAC_COMPATIBLE_FORMAT);
         final FormatChunk formatChunk = waveFile.getFormatChunk ();
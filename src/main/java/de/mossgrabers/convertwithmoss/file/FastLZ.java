@@ -5,11 +5,15 @@
 package de.mossgrabers.convertwithmoss.file;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Objects;
 
 
 /**
- * Conversion of FastLZ to Java based on https://ariya.github.io/FastLZ/.
+ * Conversion of FastLZ to Java based on https://ariya.github.io/FastLZ/. Besides the methods which
+ * return new arrays, the data can be compressed and uncompressed into arrays or buffers which are
+ * provided by the caller, so that they can be re-used.
  *
  * @author Jürgen Moßgraber
  */
@@ -40,12 +44,43 @@ public class FastLZ
      */
     public static byte [] compress (final byte [] data)
     {
-        final byte [] compressed = new byte [calcLength (data.length)];
-        final int size = compressLZ (data, compressed, data.length < LEVEL_BARRIER ? FASTLZ_LEVEL1 : FASTLZ_LEVEL2);
+        final byte [] compressed = new byte [getMaxCompressedLength (data.length)];
+        final int size = compress (data, 0, data.length, compressed, 0);
         return Arrays.copyOf (compressed, size);
     }
 
 
+    /**
+     * Compresses a part of the given data into the given array.
+     *
+     * @param data The data to compress
+     * @param offset The offset of the first byte to compress
+     * @param length The number of bytes to compress
+     * @param compressed Where to write the compressed data, must provide at least
+     *            getMaxCompressedLength bytes from the offset on
+     * @param compressedOffset The offset at which to write the compressed data
+     * @return The number of bytes of the compressed data
+     */
+    public static int compress (final byte [] data, final int offset, final int length, final byte [] compressed, final int compressedOffset)
+    {
+        Objects.checkFromIndexSize (offset, length, data.length);
+        Objects.checkFromIndexSize (compressedOffset, getMaxCompressedLength (length), compressed.length);
+        return compressLZ (data, offset, length, compressed, compressedOffset, length < LEVEL_BARRIER ? FASTLZ_LEVEL1 : FASTLZ_LEVEL2);
+    }
+
+
+    /**
+     * Get the number of bytes which the compressed data might need in the worst case.
+     *
+     * @param length The number of bytes to compress
+     * @return The maximum number of bytes of the compressed data
+     */
+    public static int getMaxCompressedLength (final int length)
+    {
+        return (int) Math.max (66, length * 1.06);
+    }
+
+
     /**
      * Uncompresses the given data.
      *
@@ -57,26 +92,168 @@ public class FastLZ
     public static byte [] uncompress (final byte [] compressed, final int sizeOutput) throws IOException
     {
         final byte [] out = new byte [sizeOutput];
-        final int result = uncompress (compressed, out);
-        return Arrays.copyOf (out, result);
+        final int result = uncompress (compressed, 0, compressed.length, out, 0, sizeOutput);
+        return result == sizeOutput ? out : Arrays.copyOf (out, result);
     }
 
 
-    private static int compressLZ (final byte [] data, final byte [] compressed, final int compressionLevel)
+    /**
+     * Uncompresses the remaining bytes of the compressed buffer into the remaining space of the
+     * output buffer. The positions of both buffers are moved behind the read respectively written
+     * bytes. Buffers which are not backed by an array (e.g. direct buffers) are copied.
+     *
+     * @param compressed The compressed data to uncompress
+     * @param output Where to write the uncompressed data
+     * @return The number of uncompressed bytes
+     * @throws IOException If the data could not uncompressed or the output buffer was too small
+     */
+    public static int uncompress (final ByteBuffer compressed, final ByteBuffer output) throws IOException
     {
-        int ip = 0;
-        int op = 0;
-        int ipBound = data.length - 2;
+        final int compressedLength = compressed.remaining ();
+        final byte [] compressedArray;
+        final int compressedOffset;
+        if (compressed.hasArray ())
+        {
+            compressedArray = compressed.array ();
+            compressedOffset = compressed.arrayOffset () + compressed.position ();
+        }
+        else
+        {
+            compressedArray = new byte [compressedLength];
+            compressed.get (compressed.position (), compressedArray);
+            compressedOffset = 0;
+        }
 
-        if (data.length < 4)
+        final int size;
+        if (output.hasArray ())
+            size = uncompress (compressedArray, compressedOffset, compressedLength, output.array (), output.arrayOffset () + output.position (), output.remaining ());
+        else
         {
-            if (data.length != 0)
+            final byte [] outputArray = new byte [output.remaining ()];
+            size = uncompress (compressedArray, compressedOffset, compressedLength, outputArray, 0, outputArray.length);
+            output.put (output.position (), outputArray, 0, size);
+        }
+
+        compressed.position (compressed.limit ());
+        output.position (output.position () + size);
+        return size;
+    }
+
+
+    /**
+     * Uncompresses a part of the given data into the given array. This allows to re-use the output
+     * array for several calls.
+     *
+     * @param compressed The compressed data to uncompress
+     * @param compressedOffset The offset of the first byte of the compressed data
+     * @param compressedLength The number of bytes of the compressed data
+     * @param output Where to write the uncompressed data
+     * @param outputOffset The offset at which to write the uncompressed data
+     * @param outputLength The maximum number of uncompressed bytes
+     * @return The number of uncompressed bytes
+     * @throws IOException If the data could not uncompressed or the given output size was too small
+     */
+    public static int uncompress (final byte [] compressed, final int compressedOffset, final int compressedLength, final byte [] output, final int outputOffset, final int outputLength) throws IOException
+    {
+        Objects.checkFromIndexSize (compressedOffset, compressedLength, compressed.length);
+        Objects.checkFromIndexSize (outputOffset, outputLength, output.length);
+        if (compressedLength == 0)
+            throw new IOException ("FastLZ: No data.");
+
+        final int compressionLevel = findLevel (compressed[compressedOffset]);
+        if (compressionLevel == FASTLZ_LEVEL0)
+            throw new IOException ("FastLZ: Cannot uncompress level 0.");
+
+        final int ipEnd = compressedOffset + compressedLength;
+        final int opEnd = outputOffset + outputLength;
+        int ip = compressedOffset;
+        int op = outputOffset;
+        int ctrl = compressed[ip++] & 31;
+
+        while (true)
+        {
+            if (ctrl >= 32)
+            {
+                // Copy a match from the already uncompressed data
+                int len = (ctrl >>> 5) - 1;
+                int ofs = (ctrl & 31) << 8;
+                int ref = op - ofs;
+
+                if (len == 6)
+                    if (compressionLevel == FASTLZ_LEVEL1)
+                        len += readByte (compressed, ip++, ipEnd);
+                    else
+                    {
+                        int code;
+                        do
+                        {
+                            code = readByte (compressed, ip++, ipEnd);
+                            len += code;
+                        } while (code == 255);
+                    }
+                final int code = readByte (compressed, ip++, ipEnd);
+                ref -= code;
+                if (compressionLevel != FASTLZ_LEVEL1 && code == 255 && ofs == 31 << 8)
+                {
+                    ofs = readByte (compressed, ip++, ipEnd) << 8;
+                    ofs += readByte (compressed, ip++, ipEnd);
+                    ref = op - ofs - MAX_DISTANCE_LZ2;
+                }
+
+                len += 3;
+                if (op + (long) len > opEnd)
+                    throw new IOException ("FastLZ: (op+len+3 > out.length)");
+                final int source = ref - 1;
+                if (source < outputOffset)
+                    throw new IOException ("FastLZ: (ref-1 < 0)");
+
+                // A match which overlaps its own output repeats the bytes in between
+                final int distance = op - source;
+                if (distance >= len)
+                    System.arraycopy (output, source, output, op, len);
+                else if (distance == 1)
+                    Arrays.fill (output, op, op + len, output[source]);
+                else
+                    for (int i = 0; i < len; i++)
+                        output[op + i] = output[source + i];
+                op += len;
+            }
+            else
             {
-                compressed[op++] = (byte) (data.length - 1);
+                // Copy a run of literal bytes
+                final int len = ctrl + 1;
+                if (op + len > opEnd)
+                    throw new IOException ("FastLZ: Unsound data (op + ctrl > out.length).");
+                if (ip + len > ipEnd)
+                    throw new IOException ("FastLZ: Unsound data (ip + ctrl > in.length).");
+                System.arraycopy (compressed, ip, output, op, len);
+                ip += len;
+                op += len;
+            }
+
+            if (ip >= ipEnd)
+                return op - outputOffset;
+            ctrl = compressed[ip++] & 0xff;
+        }
+    }
+
+
+    private static int compressLZ (final byte [] data, final int offset, final int length, final byte [] compressed, final int compressedOffset, final int compressionLevel)
+    {
+        final int end = offset + length;
+        int ip = offset;
+        int op = compressedOffset;
+        int ipBound = end - 2;
+
+        if (length < 4)
+        {
+            if (length != 0)
+            {
+                compressed[op++] = (byte) (length - 1);
                 ipBound++;
                 while (ip <= ipBound)
                     compressed[op++] = data[ip++];
-                return data.length + 1;
+                return length + 1;
             }
             return 0;
         }
@@ -91,7 +268,7 @@ public class FastLZ
         compressed[op++] = data[ip++];
         compressed[op++] = data[ip++];
 
-        final int ipLimit = data.length - 12;
+        final int ipLimit = end - 12;
         int hval;
         while (ip < ipLimit)
         {
@@ -101,7 +278,7 @@ public class FastLZ
             int anchor = ip;
             boolean labelMatch = false;
 
-            if (compressionLevel == FASTLZ_LEVEL2 && data[ip] == data[ip - 1] && readU16 (data, ip - 1) == readU16 (data, ip + 1))
+            if (compressionLevel == FASTLZ_LEVEL2 && data[ip] == data[ip - 1] && readU16 (data, ip - 1, end) == readU16 (data, ip + 1, end))
             {
                 distance = 1;
                 ip += 3;
@@ -111,7 +288,7 @@ public class FastLZ
 
             if (!labelMatch)
             {
-                hval = hashFunction (data, ip);
+                hval = hashFunction (data, ip, end);
                 hslot = hval;
                 ref = htab[hval];
                 distance = anchor - ref;
@@ -223,14 +400,14 @@ public class FastLZ
             }
             else
             {
-                final int length = MAX_LEN - 2;
-                if (len > length)
-                    while (len > length)
+                final int maxLength = MAX_LEN - 2;
+                if (len > maxLength)
+                    while (len > maxLength)
                     {
                         compressed[op++] = (byte) ((7 << 5) + (distance >>> 8));
-                        compressed[op++] = (byte) (length - 7 - 2);
+                        compressed[op++] = (byte) (maxLength - 7 - 2);
                         compressed[op++] = (byte) (distance & 255);
-                        len -= length;
+                        len -= maxLength;
                     }
 
                 if (len < 7)
@@ -246,9 +423,9 @@ public class FastLZ
                 }
             }
 
-            hval = hashFunction (data, ip);
+            hval = hashFunction (data, ip, end);
             htab[hval] = ip++;
-            hval = hashFunction (data, ip);
+            hval = hashFunction (data, ip, end);
             htab[hval] = ip++;
 
             compressed[op++] = MAX_COPY - 1;
@@ -272,142 +449,40 @@ public class FastLZ
             op--;
 
         if (compressionLevel == FASTLZ_LEVEL2)
-            compressed[0] |= 1 << 5;
+            compressed[compressedOffset] |= 1 << 5;
 
-        return op;
+        return op - compressedOffset;
     }
 
 
-    private static int uncompress (final byte [] compressed, final byte [] uncompressed) throws IOException
+    private static int readByte (final byte [] in, final int offset, final int end) throws IOException
     {
-        final int compressionLevel = findLevel (compressed);
-        if (compressionLevel == FASTLZ_LEVEL0)
-            throw new IOException ("FastLZ: Cannot uncompress level 0.");
-
-        int ip = 0;
-        int op = 0;
-        long ctrl = compressed[ip++] & 31;
-
-        boolean loop = true;
-        do
-        {
-            int ref = op;
-            long len = ctrl >>> 5;
-            long ofs = (ctrl & 31) << 8;
-
-            if (ctrl >= 32)
-            {
-                int code;
-                len--;
-                ref -= ofs;
-
-                if (len == 6)
-                    if (compressionLevel == FASTLZ_LEVEL1)
-                        len += compressed[ip++] & 0xff;
-                    else
-                        do
-                        {
-                            code = compressed[ip++] & 0xff;
-                            len += code;
-                        } while (code == 255);
-                if (compressionLevel == FASTLZ_LEVEL1)
-                    ref -= compressed[ip++] & 0xff;
-                else
-                {
-                    code = compressed[ip++] & 0xff;
-                    ref -= code;
-
-                    if (code == 255 && ofs == 31 << 8)
-                    {
-                        ofs = (compressed[ip++] & 0xff) << 8;
-                        ofs += compressed[ip++] & 0xff;
-
-                        ref = (int) (op - ofs - MAX_DISTANCE_LZ2);
-                    }
-                }
-
-                if (op + len + 3 > uncompressed.length)
-                    throw new IOException ("FastLZ: (op+len+3 > out.length)");
-                if (ref - 1 < 0)
-                    throw new IOException ("FastLZ: (ref-1 < 0)");
-
-                if (ip < compressed.length)
-                    ctrl = compressed[ip++] & 0xff;
-                else
-                    loop = false;
-
-                if (ref == op)
-                {
-                    final byte b = uncompressed[ref - 1];
-                    uncompressed[op++] = b;
-                    uncompressed[op++] = b;
-                    uncompressed[op++] = b;
-
-                    for (; len != 0; --len)
-                        uncompressed[op++] = b;
-                }
-                else
-                {
-                    ref--;
-
-                    uncompressed[op++] = uncompressed[ref++];
-                    uncompressed[op++] = uncompressed[ref++];
-                    uncompressed[op++] = uncompressed[ref++];
-
-                    for (; len != 0; --len)
-                        uncompressed[op++] = uncompressed[ref++];
-                }
-            }
-            else
-            {
-                ctrl++;
-
-                if (op + ctrl > uncompressed.length)
-                    throw new IOException ("FastLZ: Unsound data (op + ctrl > out.length).");
-                if (ip + ctrl > compressed.length)
-                    throw new IOException ("FastLZ: Unsound data (ip + ctrl > in.length).");
-
-                uncompressed[op++] = compressed[ip++];
-
-                for (--ctrl; ctrl != 0; ctrl--)
-                    uncompressed[op++] = compressed[ip++];
-
-                loop = ip < compressed.length;
-                if (loop)
-                    ctrl = compressed[ip++] & 0xff;
-            }
-        } while (loop);
-
-        return op;
+        if (offset >= end)
+            throw new IOException ("FastLZ: Unsound data (ip > in.length).");
+        return in[offset] & 0xFF;
     }
 
 
-    private static int readU16 (final byte [] in, final int offset)
+    private static int readU16 (final byte [] in, final int offset, final int end)
     {
-        if (offset + 1 >= in.length)
+        if (offset + 1 >= end)
             return in[offset] & 0xFF;
         return (in[offset] & 0xFF) + ((in[offset + 1] & 0xFF) << 8);
     }
 
 
-    private static int hashFunction (final byte [] in, final int offset)
+    private static int hashFunction (final byte [] in, final int offset, final int end)
     {
-        int v = readU16 (in, offset);
-        v ^= readU16 (in, offset + 1) ^ v >>> 16 - HASH_LOG;
+        int v = readU16 (in, offset, end);
+        v ^= readU16 (in, offset + 1, end) ^ v >>> 16 - HASH_LOG;
         v &= HASH_MASK;
         return v;
     }
 
 
-    private static int findLevel (final byte [] in)
-    {
-        return (in[0] >>> 5) + 1;
-    }
-
-
-    private static int calcLength (final int length)
+    private static int findLevel (final byte first)
     {
-        return (int) Math.max (66, length * 1.06);
+        return (first >>> 5) + 1;
     }
 
 
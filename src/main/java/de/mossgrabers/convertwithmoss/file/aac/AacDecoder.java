@@ -21,6 +21,10 @@ public class AacDecoder
     /** The number of samples of a full frame. */
     public static final int       FRAME_LENGTH         = 1024;
 
+    private static final int      INITIAL_RANDOM_STATE = 0x1F2E3D4C;
+    private static final int      RANDOM_MULTIPLIER    = 1664525;
+    private static final int      RANDOM_INCREMENT     = 1013904223;
+
     private static final int      ID_SCE               = 0;
     private static final int      ID_CPE               = 1;
     @SuppressWarnings("unused")
@@ -76,7 +80,8 @@ public class AacDecoder
 
     // The decoding state of up to two channels
     private final Channel []      channels;
-    private int                   randomState          = 0x1F2E3D4C;
+    private int                   randomState          = INITIAL_RANDOM_STATE;
+    private long                  noisePosition        = 0;
 
     // The inverse MDCT as precomputed cosine matrices: exact, and fast enough for material of
     // sample length
@@ -207,6 +212,59 @@ public class AacDecoder
     }
 
 
+    /**
+     * Reset the decoding state, afterwards the decoder behaves like a new one.
+     */
+    public void reset ()
+    {
+        for (final Channel channel: this.channels)
+        {
+            Arrays.fill (channel.overlap, 0);
+            channel.windowShape = 0;
+            channel.previousWindowShape = 0;
+        }
+        this.setNoisePosition (0);
+    }
+
+
+    /**
+     * Get the number of random values which the perceptual noise substitution has drawn since the
+     * decoder was created or reset.
+     *
+     * @return The number of random values
+     */
+    public long getNoisePosition ()
+    {
+        return this.noisePosition;
+    }
+
+
+    /**
+     * Set the random generator of the perceptual noise substitution to the state which it has after
+     * the given number of drawn values. This allows to continue the noise of a stream which was
+     * decoded by another decoder up to this point.
+     *
+     * @param position The number of drawn random values
+     */
+    public void setNoisePosition (final long position)
+    {
+        // Jump ahead by combining the steps of the linear congruential generator, which needs
+        // log2(position) steps instead of position steps
+        int state = INITIAL_RANDOM_STATE;
+        int multiplier = RANDOM_MULTIPLIER;
+        int increment = RANDOM_INCREMENT;
+        for (long steps = position; steps > 0; steps >>= 1)
+        {
+            if ((steps & 1) != 0)
+                state = state * multiplier + increment;
+            increment *= multiplier + 1;
+            multiplier *= multiplier;
+        }
+        this.randomState = state;
+        this.noisePosition = position;
+    }
+
+
     /**
      * Decode one packet (a raw data block with 1024 sample frames).
      *
@@ -687,10 +745,11 @@ public class AacDecoder
                         final float [] noise = new float [end - start];
                         for (int k = 0; k < noise.length; k++)
                         {
-                            this.randomState = this.randomState * 1664525 + 1013904223;
+                            this.randomState = this.randomState * RANDOM_MULTIPLIER + RANDOM_INCREMENT;
                             noise[k] = this.randomState;
                             energy += noise[k] * noise[k];
                         }
+                        this.noisePosition += noise.length;
                         final float scale = (float) (Math.pow (2, 0.25 * (channel.scalefactors[index] - 100)) / Math.sqrt (energy / noise.length) / 32768.0);
                         for (int k = 0; k < noise.length; k++)
                             channel.coefficients[coefficientBase + start + k] = noise[k] * scale;
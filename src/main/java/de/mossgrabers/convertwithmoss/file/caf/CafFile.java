@@ -4,6 +4,7 @@
 
 package de.mossgrabers.convertwithmoss.file.caf;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import de.mossgrabers.convertwithmoss.file.StreamUtils;
 import de.mossgrabers.convertwithmoss.file.aac.AacDecoder;
@@ -53,6 +55,10 @@ public class CafFile
     private static final int          IMA4_BYTES_PER_PACKET   = 34;
     /** The number of sample frames encoded in an IMA4 packet. */
     private static final int          IMA4_FRAMES_PER_PACKET  = 64;
+    /** The number of sample frames which are decoded at once from formats without packets. */
+    private static final int          BLOCK_FRAMES            = 4096;
+    /** The number of sample frames which are decoded by one task of the parallel decoding. */
+    private static final int          PARALLEL_RANGE_FRAMES   = 64 * 1024;
 
     private static final int []       IMA_INDEX_TABLE         =
     {
@@ -172,6 +178,7 @@ public class CafFile
     private byte []                   audioData               = null;
     private byte []                   magicCookie             = null;
     private int []                    packetSizes             = null;
+    private long []                   packetOffsets           = null;
     private final List<CafMarker>     markers                 = new ArrayList<> ();
     private final List<CafRegion>     regions                 = new ArrayList<> ();
     private final Map<String, String> information             = new TreeMap<> ();
@@ -181,6 +188,9 @@ public class CafFile
     private boolean                   alacDecoderFailed       = false;
     private AacDecoder                aacDecoder              = null;
     private boolean                   aacDecoderFailed        = false;
+    private boolean                   isParallelDecoding      = false;
+    private ExecutorService           parallelExecutor        = null;
+    private int                       parallelThreads         = 0;
 
 
     /**
@@ -302,6 +312,7 @@ public class CafFile
                     if (numberOfPackets > 0 && numberOfPackets < Integer.MAX_VALUE)
                     {
                         this.packetSizes = new int [(int) numberOfPackets];
+                        this.packetOffsets = null;
                         for (int i = 0; i < this.packetSizes.length; i++)
                         {
                             int size = 0;
@@ -563,6 +574,7 @@ public class CafFile
     public void setPacketTable (final int [] packetSizes, final long numberOfValidFrames, final int primingFrames)
     {
         this.packetSizes = packetSizes;
+        this.packetOffsets = null;
         this.numberOfValidFrames = numberOfValidFrames;
         this.primingFrames = primingFrames;
     }
@@ -628,6 +640,35 @@ public class CafFile
     }
 
 
+    /**
+     * Enable the parallel decoding of Apple Lossless and AAC audio data. The packets are then split
+     * into ranges which are decoded on all processors. The result is identical to the decoding of
+     * one packet after the other.
+     *
+     * @param isParallelDecoding True to decode in parallel
+     */
+    public void setParallelDecoding (final boolean isParallelDecoding)
+    {
+        this.isParallelDecoding = isParallelDecoding;
+        this.parallelExecutor = null;
+    }
+
+
+    /**
+     * Enable the parallel decoding of Apple Lossless and AAC audio data on the given pool of threads
+     * instead of the pool which is shared by all CAF files.
+     *
+     * @param executor The pool of threads on which to decode
+     * @param numberOfThreads The number of threads of the pool
+     */
+    public void setParallelDecoding (final ExecutorService executor, final int numberOfThreads)
+    {
+        this.isParallelDecoding = true;
+        this.parallelExecutor = executor;
+        this.parallelThreads = Math.max (1, numberOfThreads);
+    }
+
+
     /**
      * Decode the audio data to interleaved little-endian PCM data. Integer samples keep their
      * resolution and are signed (including 8-bit ones), 64-bit float samples are converted to
@@ -639,23 +680,74 @@ public class CafFile
      */
     public byte [] decodeAudioData () throws IOException
     {
+        final long numberOfFrames = this.getNumberOfFrames ();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream (Math.toIntExact (numberOfFrames * this.getDecodedBytesPerFrame ()));
+        this.decodeAudioData (out, 0, numberOfFrames);
+        return out.toByteArray ();
+    }
+
+
+    /**
+     * Decode the audio data like decodeAudioData() but write it packet by packet to the given
+     * stream instead of building it in memory.
+     *
+     * @param outputStream Where to write the decoded data
+     * @throws IOException The format of the audio data is not supported or could not write
+     */
+    public void decodeAudioData (final OutputStream outputStream) throws IOException
+    {
+        this.decodeAudioData (outputStream, 0, this.getNumberOfFrames ());
+    }
+
+
+    /**
+     * Decode a range of sample frames of the audio data and write them packet by packet to the
+     * given stream. The packet which contains the first frame is looked up in the packet table (or
+     * calculated from the constant packet size of the format), the packets in front of it are not
+     * decoded. Exactly the requested number of frames is written; if the audio data ends early,
+     * the remainder is filled with silence.
+     * <p>
+     * IMA4 decoding starts from the checkpoint of the first packet of the range, therefore the
+     * lowest bits of its first samples might differ from a decoding of the whole file. AAC decoding
+     * starts one packet in front of the range, which provides the overlap of its first frame.
+     *
+     * @param outputStream Where to write the decoded data
+     * @param startFrame The index of the first frame to decode
+     * @param numberOfFrames The number of frames to decode
+     * @throws IOException The format of the audio data is not supported, the range is outside of
+     *             the audio data or could not write
+     */
+    public void decodeAudioData (final OutputStream outputStream, final long startFrame, final long numberOfFrames) throws IOException
+    {
+        if (startFrame < 0 || numberOfFrames < 0 || startFrame + numberOfFrames > this.getNumberOfFrames ())
+            throw new IOException ("Frame range is outside of the CAF audio data: " + startFrame + " - " + (startFrame + numberOfFrames));
+
+        final BufferedOutputStream out = new BufferedOutputStream (outputStream, 64 * 1024);
+        final long endFrame = startFrame + numberOfFrames;
         switch (this.audioDescriptionChunk.getFormatID ())
         {
             case CafAudioDescriptionChunk.FORMAT_LINEAR_PCM:
-                return this.decodeLinearPCM ();
+                this.decodeLinearPCM (out, startFrame, endFrame);
+                break;
             case CafAudioDescriptionChunk.FORMAT_APPLE_IMA4:
-                return this.decodeIMA4 ();
+                this.decodeIMA4 (out, startFrame, endFrame);
+                break;
             case CafAudioDescriptionChunk.FORMAT_ULAW:
-                return this.decodeLaw (false);
+                this.decodeLaw (out, startFrame, endFrame, false);
+                break;
             case CafAudioDescriptionChunk.FORMAT_ALAW:
-                return this.decodeLaw (true);
+                this.decodeLaw (out, startFrame, endFrame, true);
+                break;
             case CafAudioDescriptionChunk.FORMAT_APPLE_LOSSLESS:
-                return this.decodeAlac ();
+                this.decodeAlac (out, startFrame, endFrame);
+                break;
             case CafAudioDescriptionChunk.FORMAT_MPEG4_AAC:
-                return this.decodeAac ();
+                this.decodeAac (out, startFrame, endFrame);
+                break;
             default:
                 throw new IOException ("Unsupported CAF audio data format: " + this.audioDescriptionChunk.getFormatName ());
         }
+        out.flush ();
     }
 
 
@@ -711,43 +803,110 @@ public class CafFile
     }
 
 
-    private byte [] decodeLinearPCM () throws IOException
+    /**
+     * Get the number of channels of the decoded audio data. This is the number of channels of the
+     * decoder, which can differ from the audio description for AAC.
+     *
+     * @return The number of channels
+     */
+    public int getDecodedNumberOfChannels ()
+    {
+        if (CafAudioDescriptionChunk.FORMAT_MPEG4_AAC.equals (this.audioDescriptionChunk.getFormatID ()))
+        {
+            final AacDecoder decoder = this.getAacDecoder ();
+            if (decoder != null)
+                return decoder.getNumberOfChannels ();
+        }
+        return this.audioDescriptionChunk.getChannelsPerFrame ();
+    }
+
+
+    /**
+     * Get the number of bytes of one decoded sample frame.
+     *
+     * @return The number of bytes
+     */
+    private int getDecodedBytesPerFrame ()
+    {
+        return this.getDecodedNumberOfChannels () * this.getDecodedBitsPerSample () / 8;
+    }
+
+
+    /**
+     * Get the offset of a packet in the audio data from the packet table. The offsets are summed
+     * up once from the sizes of the packets.
+     *
+     * @param packet The index of the packet, the number of packets returns the end of the data
+     * @return The offset in bytes
+     */
+    private long getPacketOffset (final int packet)
+    {
+        if (this.packetOffsets == null)
+        {
+            this.packetOffsets = new long [this.packetSizes.length + 1];
+            for (int i = 0; i < this.packetSizes.length; i++)
+                this.packetOffsets[i + 1] = this.packetOffsets[i] + this.packetSizes[i];
+        }
+        return this.packetOffsets[packet];
+    }
+
+
+    private void decodeLinearPCM (final OutputStream out, final long startFrame, final long endFrame) throws IOException
     {
         final int bytesPerSample = this.getBytesPerSample ();
         final boolean isLittleEndian = this.audioDescriptionChunk.isLittleEndian ();
+        final boolean isFloat = this.audioDescriptionChunk.isFloat ();
+
+        if (isFloat)
+        {
+            if (bytesPerSample != 4 && bytesPerSample != 8)
+                throw new IOException ("Unsupported CAF float sample resolution: " + this.audioDescriptionChunk.getBitsPerChannel () + " bit");
+        }
+        else if (bytesPerSample < 1 || bytesPerSample > 4)
+            throw new IOException ("Unsupported CAF sample resolution: " + this.audioDescriptionChunk.getBitsPerChannel () + " bit");
+
+        final int numberOfChannels = this.audioDescriptionChunk.getChannelsPerFrame ();
+        final int bytesPerFrame = bytesPerSample * numberOfChannels;
+        // 64-bit float samples are converted to 32-bit float ones
+        final int decodedBytesPerFrame = Math.min (bytesPerSample, 4) * numberOfChannels;
+        final long availableEndFrame = Math.min (endFrame, this.audioData.length / bytesPerFrame);
 
-        if (this.audioDescriptionChunk.isFloat ())
+        final byte [] block = new byte [BLOCK_FRAMES * decodedBytesPerFrame];
+        for (long frame = startFrame; frame < availableEndFrame; frame += BLOCK_FRAMES)
         {
-            if (bytesPerSample == 4)
-                return isLittleEndian ? this.audioData : swapEndianness (this.audioData, 4);
+            final int numberOfSamples = (int) Math.min (BLOCK_FRAMES, availableEndFrame - frame) * numberOfChannels;
+            final int offset = (int) (frame * bytesPerFrame);
 
             if (bytesPerSample == 8)
             {
-                // Convert 64-bit float samples to 32-bit float ones
-                final int numberOfSamples = this.audioData.length / 8;
-                final byte [] result = new byte [numberOfSamples * 4];
-                final ByteArrayInputStream in = new ByteArrayInputStream (this.audioData);
                 for (int i = 0; i < numberOfSamples; i++)
                 {
-                    final int bits = Float.floatToIntBits ((float) StreamUtils.readDouble (in, !isLittleEndian));
-                    final int offset = i * 4;
-                    result[offset] = (byte) bits;
-                    result[offset + 1] = (byte) (bits >> 8);
-                    result[offset + 2] = (byte) (bits >> 16);
-                    result[offset + 3] = (byte) (bits >> 24);
+                    final int sampleOffset = offset + i * 8;
+                    long value = 0;
+                    for (int b = 0; b < 8; b++)
+                        value |= (this.audioData[sampleOffset + (isLittleEndian ? b : 7 - b)] & 0xFFL) << b * 8;
+                    final int bits = Float.floatToIntBits ((float) Double.longBitsToDouble (value));
+                    final int blockOffset = i * 4;
+                    block[blockOffset] = (byte) bits;
+                    block[blockOffset + 1] = (byte) (bits >> 8);
+                    block[blockOffset + 2] = (byte) (bits >> 16);
+                    block[blockOffset + 3] = (byte) (bits >> 24);
                 }
-                return result;
+                out.write (block, 0, numberOfSamples * 4);
+            }
+            else if (bytesPerSample == 1 || isLittleEndian)
+                out.write (this.audioData, offset, numberOfSamples * bytesPerSample);
+            else
+            {
+                // Swap the byte order of all samples
+                for (int i = 0; i < numberOfSamples * bytesPerSample; i += bytesPerSample)
+                    for (int b = 0; b < bytesPerSample; b++)
+                        block[i + b] = this.audioData[offset + i + bytesPerSample - 1 - b];
+                out.write (block, 0, numberOfSamples * bytesPerSample);
             }
-
-            throw new IOException ("Unsupported CAF float sample resolution: " + this.audioDescriptionChunk.getBitsPerChannel () + " bit");
         }
 
-        if (bytesPerSample < 1 || bytesPerSample > 4)
-            throw new IOException ("Unsupported CAF sample resolution: " + this.audioDescriptionChunk.getBitsPerChannel () + " bit");
-
-        if (bytesPerSample == 1 || isLittleEndian)
-            return this.audioData;
-        return swapEndianness (this.audioData, bytesPerSample);
+        writeSilence (out, endFrame - Math.max (startFrame, availableEndFrame), decodedBytesPerFrame);
     }
 
 
@@ -760,20 +919,26 @@ public class CafFile
      * running state is kept when the checkpoint is consistent with it and only adopted when it is
      * not (e.g. at the start or after a cut).
      *
-     * @return The decoded data
+     * @param out Where to write the decoded data
+     * @param startFrame The index of the first frame to decode
+     * @param endFrame The index after the last frame to decode
+     * @throws IOException Could not write
      */
-    private byte [] decodeIMA4 ()
+    private void decodeIMA4 (final OutputStream out, final long startFrame, final long endFrame) throws IOException
     {
         final int numberOfChannels = this.audioDescriptionChunk.getChannelsPerFrame ();
         final int bytesPerPacket = IMA4_BYTES_PER_PACKET * numberOfChannels;
         final int numberOfPackets = this.audioData.length / bytesPerPacket;
-        final int numberOfFrames = numberOfPackets * IMA4_FRAMES_PER_PACKET;
+        final int bytesPerFrame = numberOfChannels * 2;
 
-        final byte [] result = new byte [numberOfFrames * numberOfChannels * 2];
+        final byte [] packetResult = new byte [IMA4_FRAMES_PER_PACKET * bytesPerFrame];
         final int [] predictors = new int [numberOfChannels];
         final int [] stepIndices = new int [numberOfChannels];
 
-        for (int packet = 0; packet < numberOfPackets; packet++)
+        final int firstPacket = (int) Math.min (startFrame / IMA4_FRAMES_PER_PACKET, numberOfPackets);
+        long frameOffset = (long) firstPacket * IMA4_FRAMES_PER_PACKET;
+        for (int packet = firstPacket; packet < numberOfPackets && frameOffset < endFrame; packet++)
+        {
             for (int channel = 0; channel < numberOfChannels; channel++)
             {
                 final int blockOffset = packet * bytesPerPacket + channel * IMA4_BYTES_PER_PACKET;
@@ -781,7 +946,7 @@ public class CafFile
                 final int preamble = (this.audioData[blockOffset] & 0xFF) << 8 | this.audioData[blockOffset + 1] & 0xFF;
                 final int checkpointPredictor = (short) (preamble & 0xFF80);
                 final int checkpointStepIndex = Math.clamp (preamble & 0x7F, 0, 88);
-                if (packet == 0 || checkpointStepIndex != stepIndices[channel] || Math.abs (checkpointPredictor - predictors[channel]) > 0x7F)
+                if (packet == firstPacket || checkpointStepIndex != stepIndices[channel] || Math.abs (checkpointPredictor - predictors[channel]) > 0x7F)
                 {
                     predictors[channel] = checkpointPredictor;
                     stepIndices[channel] = checkpointStepIndex;
@@ -808,9 +973,9 @@ public class CafFile
                         predictor = Math.clamp ((nibble & 8) != 0 ? predictor - difference : predictor + difference, Short.MIN_VALUE, Short.MAX_VALUE);
                         stepIndex = Math.clamp (stepIndex + (long) IMA_INDEX_TABLE[nibble], 0, 88);
 
-                        final int offset = ((packet * IMA4_FRAMES_PER_PACKET + i * 2 + nibbleIndex) * numberOfChannels + channel) * 2;
-                        result[offset] = (byte) predictor;
-                        result[offset + 1] = (byte) (predictor >> 8);
+                        final int offset = ((i * 2 + nibbleIndex) * numberOfChannels + channel) * 2;
+                        packetResult[offset] = (byte) predictor;
+                        packetResult[offset + 1] = (byte) (predictor >> 8);
                     }
                 }
 
@@ -818,24 +983,24 @@ public class CafFile
                 stepIndices[channel] = stepIndex;
             }
 
-        // The last packet might contain less than 64 valid frames
-        final long validFrames = this.getNumberOfFrames ();
-        final int validLength = (int) Math.min (validFrames * numberOfChannels * 2, result.length);
-        if (validLength == result.length)
-            return result;
-        final byte [] validResult = new byte [validLength];
-        System.arraycopy (result, 0, validResult, 0, validLength);
-        return validResult;
+            writeFrames (out, packetResult, frameOffset, IMA4_FRAMES_PER_PACKET, startFrame, endFrame, bytesPerFrame);
+            frameOffset += IMA4_FRAMES_PER_PACKET;
+        }
+
+        writeSilence (out, endFrame - Math.max (startFrame, frameOffset), bytesPerFrame);
     }
 
 
     /**
-     * Decode Apple Lossless (ALAC) data to PCM with the original resolution.
+     * Decode Apple Lossless (ALAC) data to PCM with the original resolution. The packets do not
+     * depend on each other, therefore the decoding can start at any packet.
      *
-     * @return The decoded data
-     * @throws IOException The data is malformed
+     * @param out Where to write the decoded data
+     * @param startFrame The index of the first frame to decode
+     * @param endFrame The index after the last frame to decode
+     * @throws IOException The data is malformed or could not write
      */
-    private byte [] decodeAlac () throws IOException
+    private void decodeAlac (final OutputStream out, final long startFrame, final long endFrame) throws IOException
     {
         final AlacDecoder decoder = this.getAlacDecoder ();
         if (decoder == null || this.packetSizes == null)
@@ -844,65 +1009,145 @@ public class CafFile
         final int numberOfChannels = this.audioDescriptionChunk.getChannelsPerFrame ();
         final int bytesPerSample = decoder.getBitDepth () / 8;
         final int bytesPerFrame = numberOfChannels * bytesPerSample;
-        final long totalFrames = this.getNumberOfFrames ();
+        final int framesPerPacket = decoder.getFrameLength ();
 
-        final byte [] result = new byte [Math.toIntExact (totalFrames * bytesPerFrame)];
-        final byte [] packetResult = new byte [decoder.getFrameLength () * bytesPerFrame];
+        int packet = (int) Math.min (startFrame / framesPerPacket, this.packetSizes.length);
+        long frameOffset = (long) packet * framesPerPacket;
 
-        int dataOffset = 0;
-        long frameOffset = 0;
-        for (final int packetSize: this.packetSizes)
+        final int packetsPerRange = Math.max (1, PARALLEL_RANGE_FRAMES / framesPerPacket);
+        final int lastPacket = (int) Math.min (Math.ceilDiv (endFrame, framesPerPacket), this.packetSizes.length);
+        if (this.isParallelDecoding && lastPacket - packet > packetsPerRange)
         {
-            if (frameOffset >= totalFrames)
-                break;
-            if (dataOffset + packetSize > this.audioData.length)
-                throw new IOException ("Malformed ALAC data in CAF file.");
-
-            final int decodedFrames = decoder.decodePacket (this.audioData, dataOffset, packetSize, packetResult, 0);
-            final int copyFrames = (int) Math.min (decodedFrames, totalFrames - frameOffset);
-            System.arraycopy (packetResult, 0, result, (int) (frameOffset * bytesPerFrame), copyFrames * bytesPerFrame);
+            // Build the table of packet offsets before it is read by several threads
+            this.getPacketOffset (0);
+            final ParallelPacketDecoder<AlacDecoder> parallelDecoder = this.createParallelDecoder ( () -> new AlacDecoder (this.magicCookie), (rangeDecoder, fromPacket, toPacket, _) -> {
+                final byte [] data = new byte [(toPacket - fromPacket) * framesPerPacket * bytesPerFrame];
+                int frames = 0;
+                for (int p = fromPacket; p < toPacket; p++)
+                    frames += this.decodeAlacPacket (rangeDecoder, p, data, frames * bytesPerFrame);
+                return new ParallelPacketDecoder.DecodedRange (data, frames, 0, 0, 0);
+            });
+            final long [] position = new long [] { frameOffset };
+            parallelDecoder.decode (packet, lastPacket, packetsPerRange, range -> {
+                writeFrames (out, range.data (), position[0], range.numberOfFrames (), startFrame, endFrame, bytesPerFrame);
+                position[0] += range.numberOfFrames ();
+                return position[0] < endFrame;
+            });
+            packet = lastPacket;
+            frameOffset = position[0];
+        }
 
-            dataOffset += packetSize;
+        // Decode the packets one by one, also the ones which are left if the parallel decoding
+        // ended early since packets contained less frames than usual
+        final byte [] packetResult = new byte [framesPerPacket * bytesPerFrame];
+        for (; packet < this.packetSizes.length && frameOffset < endFrame; packet++)
+        {
+            final int decodedFrames = this.decodeAlacPacket (decoder, packet, packetResult, 0);
+            writeFrames (out, packetResult, frameOffset, decodedFrames, startFrame, endFrame, bytesPerFrame);
             frameOffset += decodedFrames;
         }
 
-        return result;
+        writeSilence (out, endFrame - Math.max (startFrame, frameOffset), bytesPerFrame);
+    }
+
+
+    private int decodeAlacPacket (final AlacDecoder decoder, final int packet, final byte [] output, final int outputOffset) throws IOException
+    {
+        final long dataOffset = this.getPacketOffset (packet);
+        final int packetSize = this.packetSizes[packet];
+        if (dataOffset + packetSize > this.audioData.length)
+            throw new IOException ("Malformed ALAC data in CAF file.");
+        return decoder.decodePacket (this.audioData, (int) dataOffset, packetSize, output, outputOffset);
     }
 
 
     /**
      * Decode MPEG-4 AAC data to 16-bit PCM. The priming frames of the encoder delay are skipped per
-     * the packet table.
+     * the packet table. A new decoder is used for each call, since the overlap of a frame depends
+     * on the previous packet.
      *
-     * @return The decoded data
-     * @throws IOException The data is malformed
+     * @param out Where to write the decoded data
+     * @param startFrame The index of the first frame to decode
+     * @param endFrame The index after the last frame to decode
+     * @throws IOException The data is malformed or could not write
      */
-    private byte [] decodeAac () throws IOException
+    private void decodeAac (final OutputStream out, final long startFrame, final long endFrame) throws IOException
     {
-        final AacDecoder decoder = this.getAacDecoder ();
-        if (decoder == null || this.packetSizes == null)
+        if (this.getAacDecoder () == null || this.packetSizes == null)
             throw new IOException ("Malformed AAC data in CAF file.");
+        final AacDecoder decoder = new AacDecoder (this.magicCookie);
 
-        final int numberOfChannels = decoder.getNumberOfChannels ();
-        final int bytesPerFrame = numberOfChannels * 2;
-        final long totalFrames = this.getNumberOfFrames ();
+        final int bytesPerFrame = decoder.getNumberOfChannels () * 2;
 
-        final byte [] decoded = new byte [(this.packetSizes.length * AacDecoder.FRAME_LENGTH + this.primingFrames) * bytesPerFrame];
-        int dataOffset = 0;
-        int frameOffset = 0;
-        for (final int packetSize: this.packetSizes)
+        // The decoded frames are delayed by the priming frames
+        final long decodedStartFrame = startFrame + this.primingFrames;
+        final long decodedEndFrame = endFrame + this.primingFrames;
+
+        final int firstPacket = Math.clamp (decodedStartFrame / AacDecoder.FRAME_LENGTH - 1, 0, this.packetSizes.length);
+        long frameOffset = (long) firstPacket * AacDecoder.FRAME_LENGTH;
+
+        final int packetsPerRange = PARALLEL_RANGE_FRAMES / AacDecoder.FRAME_LENGTH;
+        final int lastPacket = (int) Math.min (Math.ceilDiv (decodedEndFrame, AacDecoder.FRAME_LENGTH), this.packetSizes.length);
+        if (this.isParallelDecoding && lastPacket - firstPacket > packetsPerRange)
+        {
+            this.getPacketOffset (0);
+
+            // Each range starts with the packet in front of it which provides the overlap of its
+            // first frame, like a decoding which starts in the middle of the stream
+            final ParallelPacketDecoder<AacDecoder> parallelDecoder = this.createParallelDecoder ( () -> new AacDecoder (this.magicCookie), (rangeDecoder, fromPacket, toPacket, noisePosition) -> {
+                final byte [] data = new byte [(toPacket - fromPacket) * AacDecoder.FRAME_LENGTH * bytesPerFrame];
+                rangeDecoder.reset ();
+                rangeDecoder.setNoisePosition (noisePosition);
+                if (fromPacket > firstPacket)
+                    this.decodeAacPacket (rangeDecoder, fromPacket - 1, data, 0);
+                final long rangeNoisePosition = rangeDecoder.getNoisePosition ();
+                long lastPacketNoise = 0;
+                int frames = 0;
+                for (int p = fromPacket; p < toPacket; p++)
+                {
+                    final long packetNoisePosition = rangeDecoder.getNoisePosition ();
+                    frames += this.decodeAacPacket (rangeDecoder, p, data, frames * bytesPerFrame);
+                    lastPacketNoise = rangeDecoder.getNoisePosition () - packetNoisePosition;
+                }
+                return new ParallelPacketDecoder.DecodedRange (data, frames, rangeNoisePosition - noisePosition, rangeDecoder.getNoisePosition () - rangeNoisePosition, lastPacketNoise);
+            });
+            final long [] position = new long [] { frameOffset };
+            parallelDecoder.decode (firstPacket, lastPacket, packetsPerRange, range -> {
+                writeFrames (out, range.data (), position[0], range.numberOfFrames (), decodedStartFrame, decodedEndFrame, bytesPerFrame);
+                position[0] += range.numberOfFrames ();
+                return position[0] < decodedEndFrame;
+            });
+            writeSilence (out, decodedEndFrame - Math.max (decodedStartFrame, position[0]), bytesPerFrame);
+            return;
+        }
+
+        final byte [] packetResult = new byte [AacDecoder.FRAME_LENGTH * bytesPerFrame];
+        for (int packet = firstPacket; packet < this.packetSizes.length && frameOffset < decodedEndFrame; packet++)
         {
-            if (dataOffset + packetSize > this.audioData.length || (frameOffset + AacDecoder.FRAME_LENGTH) * bytesPerFrame > decoded.length)
-                throw new IOException ("Malformed AAC data in CAF file.");
-            frameOffset += decoder.decodePacket (this.audioData, dataOffset, packetSize, decoded, frameOffset * bytesPerFrame);
-            dataOffset += packetSize;
+            final int decodedFrames = this.decodeAacPacket (decoder, packet, packetResult, 0);
+            writeFrames (out, packetResult, frameOffset, decodedFrames, decodedStartFrame, decodedEndFrame, bytesPerFrame);
+            frameOffset += decodedFrames;
         }
 
-        // Drop the priming frames and the padding of the last packet
-        final int copyFrames = (int) Math.min (totalFrames, frameOffset - (long) this.primingFrames);
-        final byte [] result = new byte [Math.max (0, copyFrames) * bytesPerFrame];
-        System.arraycopy (decoded, this.primingFrames * bytesPerFrame, result, 0, result.length);
-        return result;
+        writeSilence (out, decodedEndFrame - Math.max (decodedStartFrame, frameOffset), bytesPerFrame);
+    }
+
+
+    private <D> ParallelPacketDecoder<D> createParallelDecoder (final ParallelPacketDecoder.IDecoderFactory<D> factory, final ParallelPacketDecoder.IRangeDecoder<D> rangeDecoder)
+    {
+        if (this.parallelExecutor == null)
+            return new ParallelPacketDecoder<> (factory, rangeDecoder);
+        return new ParallelPacketDecoder<> (factory, rangeDecoder, this.parallelExecutor, this.parallelThreads);
+    }
+
+
+    private int decodeAacPacket (final AacDecoder decoder, final int packet, final byte [] output, final int outputOffset) throws IOException
+    {
+        final long dataOffset = this.getPacketOffset (packet);
+        final int packetSize = this.packetSizes[packet];
+        if (dataOffset + packetSize > this.audioData.length)
+            throw new IOException ("Malformed AAC data in CAF file.");
+        return decoder.decodePacket (this.audioData, (int) dataOffset, packetSize, output, outputOffset);
     }
 
 
@@ -964,19 +1209,34 @@ public class CafFile
     /**
      * Decode µLaw or aLaw (G.711) data to 16-bit PCM.
      *
+     * @param out Where to write the decoded data
+     * @param startFrame The index of the first frame to decode
+     * @param endFrame The index after the last frame to decode
      * @param isALaw True to decode aLaw, false to decode µLaw
-     * @return The decoded data
+     * @throws IOException Could not write
      */
-    private byte [] decodeLaw (final boolean isALaw)
+    private void decodeLaw (final OutputStream out, final long startFrame, final long endFrame, final boolean isALaw) throws IOException
     {
-        final byte [] result = new byte [this.audioData.length * 2];
-        for (int i = 0; i < this.audioData.length; i++)
+        final int numberOfChannels = Math.max (1, this.audioDescriptionChunk.getChannelsPerFrame ());
+        final int bytesPerFrame = numberOfChannels * 2;
+        final long availableEndFrame = Math.min (endFrame, this.audioData.length / numberOfChannels);
+
+        final byte [] block = new byte [BLOCK_FRAMES * bytesPerFrame];
+        for (long frame = startFrame; frame < availableEndFrame; frame += BLOCK_FRAMES)
         {
-            final int value = isALaw ? decodeALawSample (this.audioData[i] & 0xFF) : decodeULawSample (this.audioData[i] & 0xFF);
-            result[i * 2] = (byte) value;
-            result[i * 2 + 1] = (byte) (value >> 8);
+            final int numberOfSamples = (int) Math.min (BLOCK_FRAMES, availableEndFrame - frame) * numberOfChannels;
+            final int offset = (int) (frame * numberOfChannels);
+            for (int i = 0; i < numberOfSamples; i++)
+            {
+                final int sample = this.audioData[offset + i] & 0xFF;
+                final int value = isALaw ? decodeALawSample (sample) : decodeULawSample (sample);
+                block[i * 2] = (byte) value;
+                block[i * 2 + 1] = (byte) (value >> 8);
+            }
+            out.write (block, 0, numberOfSamples * 2);
         }
-        return result;
+
+        writeSilence (out, endFrame - Math.max (startFrame, availableEndFrame), bytesPerFrame);
     }
 
 
@@ -1012,20 +1272,41 @@ public class CafFile
 
 
     /**
-     * Swap the byte order of all samples.
+     * Write the frames of a decoded packet which are inside of the requested range.
+     *
+     * @param out Where to write the frames
+     * @param data The decoded packet
+     * @param dataStartFrame The index of the first frame of the packet
+     * @param numberOfFrames The number of frames of the packet
+     * @param startFrame The index of the first frame of the range
+     * @param endFrame The index after the last frame of the range
+     * @param bytesPerFrame The number of bytes of one frame
+     * @throws IOException Could not write
+     */
+    private static void writeFrames (final OutputStream out, final byte [] data, final long dataStartFrame, final int numberOfFrames, final long startFrame, final long endFrame, final int bytesPerFrame) throws IOException
+    {
+        final long from = Math.max (dataStartFrame, startFrame);
+        final long to = Math.min (dataStartFrame + numberOfFrames, endFrame);
+        if (to > from)
+            out.write (data, (int) (from - dataStartFrame) * bytesPerFrame, (int) (to - from) * bytesPerFrame);
+    }
+
+
+    /**
+     * Write silent frames.
      *
-     * @param data The sample data
-     * @param bytesPerSample The number of bytes of one sample
-     * @return The swapped data in a new array
+     * @param out Where to write the frames
+     * @param numberOfFrames The number of frames, nothing is written if it is not positive
+     * @param bytesPerFrame The number of bytes of one frame
+     * @throws IOException Could not write
      */
-    private static byte [] swapEndianness (final byte [] data, final int bytesPerSample)
+    private static void writeSilence (final OutputStream out, final long numberOfFrames, final int bytesPerFrame) throws IOException
     {
-        final byte [] result = new byte [data.length];
-        final int limit = data.length - bytesPerSample;
-        for (int offset = 0; offset <= limit; offset += bytesPerSample)
-            for (int i = 0; i < bytesPerSample; i++)
-                result[offset + i] = data[offset + bytesPerSample - 1 - i];
-        return result;
+        if (numberOfFrames <= 0)
+            return;
+        final byte [] silence = new byte [BLOCK_FRAMES * bytesPerFrame];
+        for (long remaining = numberOfFrames * bytesPerFrame; remaining > 0; remaining -= silence.length)
+            out.write (silence, 0, (int) Math.min (remaining, silence.length));
     }
 
 
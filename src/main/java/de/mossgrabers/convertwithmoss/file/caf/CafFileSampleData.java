@@ -5,6 +5,7 @@
 package de.mossgrabers.convertwithmoss.file.caf;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -19,6 +20,7 @@ import de.mossgrabers.convertwithmoss.core.model.enumeration.LoopType;
 import de.mossgrabers.convertwithmoss.core.model.implementation.AbstractFileSampleData;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultAudioMetadata;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleLoop;
+import de.mossgrabers.convertwithmoss.file.wav.DataChunk;
 import de.mossgrabers.convertwithmoss.file.wav.FormatChunk;
 import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
 import de.mossgrabers.tools.ui.Functions;
@@ -65,20 +67,29 @@ public class CafFileSampleData extends AbstractFileSampleData
     {
         final CafFile caf = this.getCafFile ();
         final CafAudioDescriptionChunk descriptionChunk = this.checkCanDecode (caf);
+        caf.setParallelDecoding (true);
 
-        byte [] data = caf.decodeAudioData ();
         final boolean isFloat = caf.isDecodedFloat ();
         final int bitsPerSample = caf.getDecodedBitsPerSample ();
-
-        // WAV stores 8-bit samples unsigned
-        if (!isFloat && bitsPerSample == 8)
-            data = convertSigned8BitToUnsigned (data);
-
-        final WaveFile wavFile = new WaveFile (descriptionChunk.getChannelsPerFrame (), (int) Math.round (descriptionChunk.getSampleRate ()), bitsPerSample, (int) caf.getNumberOfFrames ());
+        final FormatChunk formatChunk = new FormatChunk (caf.getDecodedNumberOfChannels (), (int) Math.round (descriptionChunk.getSampleRate ()), bitsPerSample, true);
         if (isFloat)
-            wavFile.getFormatChunk ().setCompressionCode (FormatChunk.WAVE_FORMAT_IEEE_FLOAT);
-        wavFile.getDataChunk ().setData (data);
-        wavFile.write (outputStream);
+            formatChunk.setCompressionCode (FormatChunk.WAVE_FORMAT_IEEE_FLOAT);
+
+        // Stream the decoded audio data into the data chunk instead of holding the whole decoded
+        // sample in memory. The size of the data is the one of the decoded frames which are written
+        final long dataSize = formatChunk.calculateDataSize (caf.getNumberOfFrames ());
+        final WaveFile wavFile = new WaveFile (formatChunk, new DataChunk (formatChunk, new byte [0]));
+        wavFile.write (outputStream, wavFile.getDataChunk (), dataSize, out -> {
+            // WAV stores 8-bit samples unsigned
+            if (isFloat || bitsPerSample != 8)
+            {
+                caf.decodeAudioData (out);
+                return;
+            }
+            final SignedToUnsignedOutputStream unsignedStream = new SignedToUnsignedOutputStream (out);
+            caf.decodeAudioData (unsignedStream);
+            unsignedStream.flush ();
+        });
     }
 
 
@@ -170,7 +181,7 @@ public class CafFileSampleData extends AbstractFileSampleData
         // chunks instead
         final CafFile caf = this.getCafFile ();
         final CafAudioDescriptionChunk descriptionChunk = this.checkCanDecode (caf);
-        this.audioMetadata = new DefaultAudioMetadata (descriptionChunk.getChannelsPerFrame (), (int) Math.round (descriptionChunk.getSampleRate ()), caf.getDecodedBitsPerSample (), (int) caf.getNumberOfFrames ());
+        this.audioMetadata = new DefaultAudioMetadata (caf.getDecodedNumberOfChannels (), (int) Math.round (descriptionChunk.getSampleRate ()), caf.getDecodedBitsPerSample (), (int) caf.getNumberOfFrames ());
     }
 
 
@@ -251,16 +262,43 @@ public class CafFileSampleData extends AbstractFileSampleData
 
 
     /**
-     * Convert signed 8-bit samples (CAF) to unsigned ones (WAV).
-     *
-     * @param data The sample data
-     * @return The converted data in a new array
+     * Converts signed 8-bit samples (CAF) to unsigned ones (WAV) while writing them.
      */
-    private static byte [] convertSigned8BitToUnsigned (final byte [] data)
+    private static class SignedToUnsignedOutputStream extends FilterOutputStream
     {
-        final byte [] result = new byte [data.length];
-        for (int i = 0; i < data.length; i++)
-            result[i] = (byte) (data[i] + 128);
-        return result;
+        private final byte [] buffer = new byte [8192];
+
+
+        /**
+         * Constructor.
+         *
+         * @param out The stream to write the converted samples to
+         */
+        SignedToUnsignedOutputStream (final OutputStream out)
+        {
+            super (out);
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void write (final int b) throws IOException
+        {
+            this.out.write (b + 128);
+        }
+
+
+        /** {@inheritDoc} */
+        @Override
+        public void write (final byte [] data, final int offset, final int length) throws IOException
+        {
+            for (int position = 0; position < length; position += this.buffer.length)
+            {
+                final int size = Math.min (this.buffer.length, length - position);
+                for (int i = 0; i < size; i++)
+                    this.buffer[i] = (byte) (data[offset + position + i] + 128);
+                this.out.write (this.buffer, 0, size);
+            }
+        }
     }
 }
@@ -0,0 +1,258 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.file.caf;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Decodes the packets of compressed audio data in parallel. The packets are split into ranges
+ * which are decoded on a bounded pool of threads and handed to a consumer in their original order.
+ * A decoder is only used by one thread at a time and re-used for the following ranges, so there
+ * are never more decoders than threads.
+ * <p>
+ * A range may depend on the packet in front of it (the overlap of AAC), in that case the range
+ * decoder decodes that packet first and drops its output. The noise substitution of AAC draws from
+ * a random generator which runs through the whole stream, therefore a range which draws noise (in
+ * the packet in front of it or in its own packets) is decoded again as soon as the number of values
+ * which were drawn in front of it is known. Both make the result identical to decoding all packets
+ * one after the other.
+ *
+ * @param <D> The type of the decoder
+ *
+ * @author Jürgen Moßgraber
+ */
+class ParallelPacketDecoder<D>
+{
+    private static final int       DEFAULT_THREADS = Math.max (1, Runtime.getRuntime ().availableProcessors ());
+    private static ExecutorService sharedExecutor  = null;
+
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param <D> The type of the decoder
+     */
+    @FunctionalInterface
+    interface IDecoderFactory<D>
+    {
+        /**
+         * Create a new decoder.
+         *
+         * @return The decoder
+         * @throws IOException Could not create the decoder
+         */
+        D create () throws IOException;
+    }
+
+
+    /**
+     * Decodes a range of packets.
+     *
+     * @param <D> The type of the decoder
+     */
+    @FunctionalInterface
+    interface IRangeDecoder<D>
+    {
+        /**
+         * Decode a range of packets.
+         *
+         * @param decoder The decoder to use, its state is undefined
+         * @param fromPacket The index of the first packet of the range
+         * @param toPacket The index after the last packet of the range
+         * @param noisePosition The number of noise values which were drawn in front of the packet
+         *            which precedes the range
+         * @return The decoded range
+         * @throws IOException The data is malformed
+         */
+        DecodedRange decode (D decoder, int fromPacket, int toPacket, long noisePosition) throws IOException;
+    }
+
+
+    /**
+     * Receives the decoded ranges in their order.
+     */
+    @FunctionalInterface
+    interface IRangeConsumer
+    {
+        /**
+         * Handle a decoded range.
+         *
+         * @param range The decoded range
+         * @return True to continue, false if no more ranges are needed
+         * @throws IOException Could not handle the range
+         */
+        boolean accept (DecodedRange range) throws IOException;
+    }
+
+
+    /**
+     * The result of decoding a range of packets.
+     *
+     * @param data The decoded frames
+     * @param numberOfFrames The number of decoded frames
+     * @param numberOfPreRollNoiseValues The number of random values which the noise substitution
+     *            drew in the packet which precedes the range
+     * @param numberOfNoiseValues The number of random values which the noise substitution drew in
+     *            the packets of the range
+     * @param numberOfLastPacketNoiseValues The number of random values which the noise substitution
+     *            drew in the last packet of the range
+     */
+    record DecodedRange (byte [] data, int numberOfFrames, long numberOfPreRollNoiseValues, long numberOfNoiseValues, long numberOfLastPacketNoiseValues)
+    {
+        // Intentionally empty
+    }
+
+
+    /**
+     * A range which is decoded in the background.
+     *
+     * @param fromPacket The index of the first packet of the range
+     * @param toPacket The index after the last packet of the range
+     * @param future The result of the decoding
+     */
+    private record PendingRange (int fromPacket, int toPacket, Future<DecodedRange> future)
+    {
+        // Intentionally empty
+    }
+
+
+    private final IDecoderFactory<D>       factory;
+    private final IRangeDecoder<D>         rangeDecoder;
+    private final ExecutorService          executor;
+    private final int                      numberOfThreads;
+    private final ConcurrentLinkedQueue<D> decoders = new ConcurrentLinkedQueue<> ();
+
+
+    /**
+     * Constructor. Uses a pool with one thread per processor which is shared by all decoders.
+     *
+     * @param factory Creates the decoders
+     * @param rangeDecoder Decodes a range of packets
+     */
+    ParallelPacketDecoder (final IDecoderFactory<D> factory, final IRangeDecoder<D> rangeDecoder)
+    {
+        this (factory, rangeDecoder, getSharedExecutor (), DEFAULT_THREADS);
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param factory Creates the decoders
+     * @param rangeDecoder Decodes a range of packets
+     * @param executor The pool of threads on which to decode
+     * @param numberOfThreads The number of threads of the pool
+     */
+    ParallelPacketDecoder (final IDecoderFactory<D> factory, final IRangeDecoder<D> rangeDecoder, final ExecutorService executor, final int numberOfThreads)
+    {
+        this.factory = factory;
+        this.rangeDecoder = rangeDecoder;
+        this.executor = executor;
+        this.numberOfThreads = numberOfThreads;
+    }
+
+
+    /**
+     * Decode the packets and hand the decoded ranges to the consumer. At most two ranges per
+     * thread are decoded ahead of the consumer, which limits the used memory.
+     *
+     * @param firstPacket The index of the first packet to decode
+     * @param lastPacket The index after the last packet to decode
+     * @param packetsPerRange The number of packets to decode in one range
+     * @param consumer Receives the decoded ranges in their order
+     * @throws IOException The data is malformed or the consumer failed
+     */
+    void decode (final int firstPacket, final int lastPacket, final int packetsPerRange, final IRangeConsumer consumer) throws IOException
+    {
+        final Deque<PendingRange> pending = new ArrayDeque<> ();
+        final int maxPending = 2 * this.numberOfThreads;
+
+        int nextPacket = firstPacket;
+        long noisePosition = 0;
+        long lastPacketNoise = 0;
+        try
+        {
+            while (nextPacket < lastPacket || !pending.isEmpty ())
+            {
+                while (nextPacket < lastPacket && pending.size () < maxPending)
+                {
+                    final int fromPacket = nextPacket;
+                    final int toPacket = Math.min (lastPacket, fromPacket + packetsPerRange);
+                    pending.add (new PendingRange (fromPacket, toPacket, this.executor.submit ( () -> this.decodeRange (fromPacket, toPacket, 0))));
+                    nextPacket = toPacket;
+                }
+
+                final PendingRange pendingRange = pending.remove ();
+                DecodedRange range = getResult (pendingRange.future ());
+
+                // The noise of the range was drawn from the wrong position of the random generator
+                final long preRollPosition = noisePosition - lastPacketNoise;
+                if (preRollPosition > 0 && range.numberOfPreRollNoiseValues () + range.numberOfNoiseValues () > 0)
+                    range = this.decodeRange (pendingRange.fromPacket (), pendingRange.toPacket (), preRollPosition);
+                noisePosition += range.numberOfNoiseValues ();
+                lastPacketNoise = range.numberOfLastPacketNoiseValues ();
+
+                if (!consumer.accept (range))
+                    break;
+            }
+        }
+        finally
+        {
+            for (final PendingRange pendingRange: pending)
+                pendingRange.future ().cancel (false);
+        }
+    }
+
+
+    private DecodedRange decodeRange (final int fromPacket, final int toPacket, final long noisePosition) throws IOException
+    {
+        D decoder = this.decoders.poll ();
+        if (decoder == null)
+            decoder = this.factory.create ();
+        final DecodedRange range = this.rangeDecoder.decode (decoder, fromPacket, toPacket, noisePosition);
+        this.decoders.add (decoder);
+        return range;
+    }
+
+
+    private static DecodedRange getResult (final Future<DecodedRange> future) throws IOException
+    {
+        try
+        {
+            return future.get ();
+        }
+        catch (final InterruptedException ex)
+        {
+            Thread.currentThread ().interrupt ();
+            throw new IOException (ex);
+        }
+        catch (final ExecutionException ex)
+        {
+            if (ex.getCause () instanceof final IOException ioException)
+                throw ioException;
+            throw new IOException (ex.getCause ());
+        }
+    }
+
+
+    private static synchronized ExecutorService getSharedExecutor ()
+    {
+        if (sharedExecutor == null)
+            sharedExecutor = Executors.newFixedThreadPool (DEFAULT_THREADS, runnable -> {
+                final Thread thread = new Thread (runnable, "CAF Decoder");
+                thread.setDaemon (true);
+                return thread;
+            });
+        return sharedExecutor;
+    }
+}
@@ -19,15 +19,30 @@ enum BitReadMode
 
 
 /**
- * Helper class for reading MFM-encoded bit streams with different bit orders.
+ * Helper class for reading MFM-encoded bit streams with different bit orders. The bit order of the
+ * data is normalized once when the stream is created, therefore all reads work on whole bytes and
+ * words instead of single bits. MFM and FM cells are decoded with a lookup table.
  *
  * @author Jürgen Moßgraber
  */
 public class BitStream
 {
-    private final byte []     data;
-    private int               bitPosition;
-    private final BitReadMode mode;
+    /** Maps 16 interleaved clock and data bits (clock first) to the 8 data bits. */
+    private static final byte [] DATA_BITS = new byte [0x10000];
+    static
+    {
+        for (int word = 0; word < DATA_BITS.length; word++)
+        {
+            int value = 0;
+            for (int i = 7; i >= 0; i--)
+                value = value << 1 | word >> 2 * i & 1;
+            DATA_BITS[word] = (byte) value;
+        }
+    }
+
+    private final byte [] data;
+    private final int     numBits;
+    private int           bitPosition;
 
 
     /**
@@ -38,9 +53,9 @@ public class BitStream
      */
     public BitStream (final byte [] data, final BitReadMode mode)
     {
-        this.data = data;
+        this.data = normalize (data, mode);
+        this.numBits = data.length * 8;
         this.bitPosition = 0;
-        this.mode = mode;
     }
 
 
@@ -51,7 +66,7 @@ public class BitStream
      */
     public boolean hasRemaining ()
     {
-        return this.bitPosition < this.data.length * 8 - 32; // Safety margin
+        return this.bitPosition < this.numBits - 32; // Safety margin
     }
 
 
@@ -86,51 +101,9 @@ public class BitStream
      */
     public int readSingleBit ()
     {
-        return this.readBit ();
-    }
-
-
-    /**
-     * Read a single bit according to the current mode.
-     *
-     * @return The bit 0/1
-     */
-    private int readBit ()
-    {
-        if (this.bitPosition >= this.data.length * 8)
-            return 0;
-
-        int byteIndex = this.bitPosition / 8;
-        int bitIndex;
-
-        switch (this.mode)
-        {
-            case LSB_FIRST:
-                bitIndex = this.bitPosition % 8; // LSB first
-                break;
-
-            case BYTE_SWAPPED_MSB:
-                // Swap bytes in 16-bit words, then MSB first
-                byteIndex = byteIndex & ~1 | 1 - (byteIndex & 1);
-                bitIndex = 7 - this.bitPosition % 8;
-                break;
-
-            case BYTE_SWAPPED_LSB:
-                // Swap bytes in 16-bit words, then LSB first
-                byteIndex = byteIndex & ~1 | 1 - (byteIndex & 1);
-                bitIndex = this.bitPosition % 8;
-                break;
-
-            case MSB_FIRST:
-            default:
-                bitIndex = 7 - this.bitPosition % 8; // MSB first
-                break;
-        }
-
-        if (byteIndex >= this.data.length)
+        if (this.bitPosition >= this.numBits)
             return 0;
-
-        final int bit = this.data[byteIndex] >> bitIndex & 1;
+        final int bit = this.data[this.bitPosition >> 3] >> 7 - (this.bitPosition & 7) & 1;
         this.bitPosition++;
         return bit;
     }
@@ -143,14 +116,22 @@ public class BitStream
      */
     public int peekWord ()
     {
-        final int savedPos = this.bitPosition;
-        int word = 0;
+        final int index = this.bitPosition >> 3;
+        final int window = this.getByte (index) << 16 | this.getByte (index + 1) << 8 | this.getByte (index + 2);
+        return window >>> 8 - (this.bitPosition & 7) & 0xFFFF;
+    }
 
-        for (int i = 0; i < 16; i++)
-            word = word << 1 | this.readBit ();
 
-        this.bitPosition = savedPos;
-        return word;
+    /**
+     * Peek at the next 32 bits without advancing.
+     *
+     * @return The bits, the first one is the most significant bit
+     */
+    public int peekInt ()
+    {
+        final int index = this.bitPosition >> 3;
+        final long window = (long) this.getByte (index) << 32 | (long) this.getByte (index + 1) << 24 | this.getByte (index + 2) << 16 | this.getByte (index + 3) << 8 | this.getByte (index + 4);
+        return (int) (window >>> 8 - (this.bitPosition & 7));
     }
 
 
@@ -165,6 +146,38 @@ public class BitStream
     }
 
 
+    /**
+     * Move forward bit by bit until the stream is positioned on the given 16-bit word. The search
+     * compares the words at all 8 bit offsets of a byte from one window of the data.
+     *
+     * @param word The word to find
+     * @param maxBits The maximum number of bits to move forward
+     * @return True if the word was found, the stream is then positioned at its first bit. If not,
+     *         the stream is positioned after all searched bits
+     */
+    public boolean findWord (final int word, final int maxBits)
+    {
+        final int end = Math.min (this.bitPosition + maxBits, this.numBits - 32);
+        int position = this.bitPosition;
+        while (position < end)
+        {
+            final int index = position >> 3;
+            final int window = this.getByte (index) << 16 | this.getByte (index + 1) << 8 | this.getByte (index + 2);
+            for (int offset = position & 7; offset < 8 && position < end; offset++)
+            {
+                if ((window >>> 8 - offset & 0xFFFF) == word)
+                {
+                    this.bitPosition = position;
+                    return true;
+                }
+                position++;
+            }
+        }
+        this.bitPosition = position;
+        return false;
+    }
+
+
     /**
      * Read one MFM-encoded byte (16 bits -> 8 data bits).
      *
@@ -172,14 +185,9 @@ public class BitStream
      */
     public int readMfmByte ()
     {
-        int result = 0;
-        for (int i = 0; i < 8; i++)
-        {
-            this.readBit (); // Skip clock bit
-            final int dataBit = this.readBit (); // Read data bit
-            result = result << 1 | dataBit;
-        }
-        return result & 0xFF;
+        final int value = decodeCells (this.peekWord ());
+        this.bitPosition += 16;
+        return value;
     }
 
 
@@ -190,9 +198,65 @@ public class BitStream
      */
     public int peekMfmByte ()
     {
-        final int savedPos = this.bitPosition;
-        final int value = this.readMfmByte ();
-        this.bitPosition = savedPos;
-        return value;
+        return decodeCells (this.peekWord ());
+    }
+
+
+    /**
+     * Decode 8 cells of interleaved clock and data bits.
+     *
+     * @param word The 16 bits of the cells, the clock bit of each cell comes first
+     * @return The 8 data bits
+     */
+    public static int decodeCells (final int word)
+    {
+        return DATA_BITS[word & 0xFFFF] & 0xFF;
+    }
+
+
+    /**
+     * Reduce a bit-stream in which each bit is written twice in a row to the bit sequence it
+     * encodes.
+     *
+     * @param bits 32 bits of the stream, the first one is the most significant bit
+     * @return The 16 bits encoded by the first bit of each pair
+     */
+    public static int decimate (final int bits)
+    {
+        return decodeCells (bits >>> 17) << 8 | decodeCells (bits >>> 1);
     }
-}
\ No newline at end of file
+
+
+    private int getByte (final int index)
+    {
+        return index < this.data.length ? this.data[index] & 0xFF : 0;
+    }
+
+
+    /**
+     * Re-order the data, so that it can be read most significant bit first.
+     *
+     * @param data The data
+     * @param mode The order of the bits in the data
+     * @return The re-ordered data
+     */
+    private static byte [] normalize (final byte [] data, final BitReadMode mode)
+    {
+        if (mode == BitReadMode.MSB_FIRST)
+            return data;
+
+        final byte [] normalized = new byte [data.length];
+        final boolean swapBytes = mode == BitReadMode.BYTE_SWAPPED_MSB || mode == BitReadMode.BYTE_SWAPPED_LSB;
+        final boolean reverseBits = mode == BitReadMode.LSB_FIRST || mode == BitReadMode.BYTE_SWAPPED_LSB;
+        for (int i = 0; i < normalized.length; i++)
+        {
+            // The last byte of an odd length has no partner to swap with and reads as zero
+            final int source = swapBytes ? i ^ 1 : i;
+            if (source >= data.length)
+                continue;
+            final int value = data[source] & 0xFF;
+            normalized[i] = (byte) (reverseBits ? Integer.reverse (value) >>> 24 : value);
+        }
+        return normalized;
+    }
+}
@@ -44,16 +44,26 @@ import java.util.List;
 public class EmuFmDecoder extends AbstractDecoder
 {
     /** The fixed size of the single sector which the Emulator II stores in each track. */
-    public static final int  SECTOR_SIZE   = 3584;
+    public static final int     SECTOR_SIZE   = 3584;
 
     /** The two bytes which mark both the track header and the sector data. */
-    private static final int MARK_FIRST    = 0xFA;
-    private static final int MARK_SECOND   = 0x96;
+    private static final int    MARK_FIRST    = 0xFA;
+    private static final int    MARK_SECOND   = 0x96;
 
     /** A FM bit cell occupies this many bits of the raw HFE bit-stream. */
-    private static final int BITS_PER_CELL = 4;
+    private static final int    BITS_PER_CELL = 4;
     /** The data pulse of a bit cell sits in this bit of the cell. */
-    private static final int DATA_PULSE    = 0x08;
+    private static final int    DATA_PULSE    = 0x08;
+
+    /** Maps a byte of the raw bit-stream to the data bits of its 2 cells, first cell in bit 0. */
+    private static final int [] CELL_PAIRS    = new int [256];
+    static
+    {
+        for (int value = 0; value < CELL_PAIRS.length; value++)
+            for (int cell = 0; cell < 8 / BITS_PER_CELL; cell++)
+                if ((value >> cell * BITS_PER_CELL & DATA_PULSE) != 0)
+                    CELL_PAIRS[value] |= 1 << cell;
+    }
 
 
     /** {@inheritDoc} */
@@ -114,18 +124,12 @@ public class EmuFmDecoder extends AbstractDecoder
         final int numberOfCells = cellData.length * 8 / BITS_PER_CELL;
         final byte [] decoded = new byte [numberOfCells / 8];
 
-        int cellIndex = 0;
-        for (final byte cellByte: cellData)
-            for (int cell = 0; cell < 8 / BITS_PER_CELL; cell++)
-            {
-                final int position = cellIndex / 8;
-                if (position >= decoded.length)
-                    return decoded;
-
-                if ((cellByte >> cell * BITS_PER_CELL & DATA_PULSE) != 0)
-                    decoded[position] |= (byte) (1 << cellIndex % 8);
-                cellIndex++;
-            }
+        // One decoded byte is spread over 4 bytes of the stream with 2 cells each
+        for (int position = 0; position < decoded.length; position++)
+        {
+            final int index = 4 * position;
+            decoded[position] = (byte) (CELL_PAIRS[cellData[index] & 0xFF] | CELL_PAIRS[cellData[index + 1] & 0xFF] << 2 | CELL_PAIRS[cellData[index + 2] & 0xFF] << 4 | CELL_PAIRS[cellData[index + 3] & 0xFF] << 6);
+        }
 
         return decoded;
     }
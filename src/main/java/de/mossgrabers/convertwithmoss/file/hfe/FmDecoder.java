@@ -176,7 +176,9 @@ public class FmDecoder extends AbstractDecoder
         // Use the physical side the track was read from, not the (often unreliable/always-0)
         // on-disk head byte, so sectors from side 1 don't collide with side 0 during image
         // reconstruction.
-        final int sectorSize = 128 << sizeCode;
+        // A header with a wrong CRC is dropped, therefore there is no need for the (in that case
+        // random and possibly huge) buffer of its data
+        final int sectorSize = crcValid ? 128 << sizeCode : 0;
         return Optional.of (new Sector (cyl, physicalHead, sectorNum, sizeCode, new byte [sectorSize], crcValid));
     }
 
@@ -247,26 +249,18 @@ public class FmDecoder extends AbstractDecoder
     // -----------------------------------------------------------------------
     // Decimation helpers - reduce a possibly bit-doubled raw stream down to
     // the logical FM bit sequence before applying the normal clock/data
-    // interleave decoding (same mechanics as MfmDecoder's readMfmByte).
+    // interleave decoding (same lookup table as MfmDecoder's readMfmByte).
+    // A doubled word is sampled from 32 raw bits at once.
 
 
-    private static int readLogicalBit (final BitStream bitStream, final int cellWidth, final int phase)
+    private static int peekLogicalWord (final BitStream bitStream, final int cellWidth, final int phase)
     {
         if (cellWidth == 1)
-            return bitStream.readSingleBit ();
-
-        final int b0 = bitStream.readSingleBit ();
-        final int b1 = bitStream.readSingleBit ();
-        return phase == 0 ? b0 : b1;
-    }
-
+            return bitStream.peekWord ();
 
-    private static int peekLogicalWord (final BitStream bitStream, final int cellWidth, final int phase)
-    {
         final int saved = bitStream.getBitPosition ();
-        int word = 0;
-        for (int i = 0; i < 16; i++)
-            word = word << 1 | readLogicalBit (bitStream, cellWidth, phase);
+        bitStream.skipBits (phase);
+        final int word = BitStream.decimate (bitStream.peekInt ());
         bitStream.setBitPosition (saved);
         return word;
     }
@@ -280,13 +274,8 @@ public class FmDecoder extends AbstractDecoder
 
     private static int readLogicalByte (final BitStream bitStream, final int cellWidth, final int phase)
     {
-        int result = 0;
-        for (int i = 0; i < 8; i++)
-        {
-            readLogicalBit (bitStream, cellWidth, phase); // skip clock bit
-            final int dataBit = readLogicalBit (bitStream, cellWidth, phase); // data bit
-            result = result << 1 | dataBit;
-        }
-        return result & 0xFF;
+        final int word = peekLogicalWord (bitStream, cellWidth, phase);
+        skipLogicalBits (bitStream, 16, cellWidth);
+        return BitStream.decodeCells (word);
     }
 }
\ No newline at end of file
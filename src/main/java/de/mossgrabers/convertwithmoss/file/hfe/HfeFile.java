@@ -11,6 +11,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import de.mossgrabers.convertwithmoss.file.StreamUtils;
 import de.mossgrabers.tools.ui.Functions;
@@ -134,7 +135,8 @@ public class HfeFile
 
 
     /**
-     * Decodes all sectors from all tracks.
+     * Decodes all sectors from all tracks. The tracks are independent of each other and are
+     * therefore decoded in parallel. The sectors are returned in the order of the tracks and sides.
      *
      * @return The decoded sectors
      * @throws IOException Could not decode the sectors
@@ -151,10 +153,16 @@ public class HfeFile
         else
             throw new IOException (Functions.getMessage ("IDS_HFE_UNSUPPORTED_TRACK_ENCODING", Integer.toString (this.track0s0Encoding)));
 
+        final int sides = this.getNumSides ();
+        final List<List<Sector>> trackSectors = IntStream.range (0, this.getNumTracks () * sides).parallel ().mapToObj (index -> {
+            final int track = index / sides;
+            final int side = index % sides;
+            return decoder.decodeSectors (this.getTrack (side, track), track, side);
+        }).toList ();
+
         final List<Sector> allSectors = new ArrayList<> ();
-        for (int track = 0; track < this.getNumTracks (); track++)
-            for (int side = 0; side < this.getNumSides (); side++)
-                allSectors.addAll (decoder.decodeSectors (this.getTrack (side, track), track, side));
+        for (final List<Sector> sectors: trackSectors)
+            allSectors.addAll (sectors);
         return allSectors;
     }
 
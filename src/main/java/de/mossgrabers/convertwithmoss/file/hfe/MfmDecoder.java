@@ -79,28 +79,30 @@ public class MfmDecoder extends AbstractDecoder
 
     private static boolean findSync (final BitStream bitStream)
     {
-        int syncCount = 0;
         final int maxBits = 100000;
         int searched = 0;
 
-        while (bitStream.hasRemaining () && searched < maxBits)
+        while (searched < maxBits)
         {
-            final int word = bitStream.peekWord ();
-
-            if (word == SYNC_WORD)
+            final int start = bitStream.getBitPosition ();
+            final boolean found = bitStream.findWord (SYNC_WORD, maxBits - searched);
+            searched += bitStream.getBitPosition () - start;
+            if (!found)
+                return false;
+
+            int syncCount = 0;
+            while (bitStream.hasRemaining () && bitStream.peekWord () == SYNC_WORD)
             {
                 bitStream.skipBits (16);
                 syncCount++;
-
                 if (syncCount >= 3)
                     return true;
             }
-            else
-            {
-                syncCount = 0;
-                bitStream.skipBits (1);
-                searched++;
-            }
+
+            if (!bitStream.hasRemaining ())
+                return false;
+            bitStream.skipBits (1);
+            searched++;
         }
 
         return false;
@@ -136,7 +138,9 @@ public class MfmDecoder extends AbstractDecoder
         final int readCrc = crc1 << 8 | crc2;
         final boolean crcValid = calculatedCrc == readCrc;
 
-        final int sectorSize = 128 << sizeCode;
+        // A header with a wrong CRC is dropped, therefore there is no need for the (in that case
+        // random and possibly huge) buffer of its data
+        final int sectorSize = crcValid ? 128 << sizeCode : 0;
         return Optional.of (new Sector (cyl, head, sectorNum, sizeCode, new byte [sectorSize], crcValid));
     }
 
@@ -14,6 +14,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.ToLongFunction;
 
 import de.mossgrabers.convertwithmoss.exception.ParseException;
 import de.mossgrabers.convertwithmoss.file.StreamUtils;
@@ -152,14 +153,65 @@ public abstract class AbstractRIFFFile implements RIFFVisitor
     {
         this.fillChunkStack ();
 
-        StreamUtils.writeUnsigned32 (out, CommonRiffChunkId.RIFF_ID.getFourCC (), true);
-        StreamUtils.writeUnsigned32 (out, this.calculateFileSize (), false);
-        StreamUtils.writeUnsigned32 (out, this.topRiffChunkId.getFourCC (), true);
+        this.writeHeader (out, this.calculateFileSize (), IRiffChunk::getDataSize);
         for (final IRiffChunk chunk: this.chunkStack)
             chunk.write (out);
     }
 
 
+    /**
+     * Write the file to an output stream but take the data of one chunk from the given writer
+     * instead of the chunk itself. This allows to stream large data (e.g. decoded audio) into the
+     * file without holding it in memory.
+     *
+     * @param out The output stream to write to
+     * @param streamedChunk The chunk of which the data is provided by the writer
+     * @param dataSize The number of bytes which the writer writes
+     * @param dataWriter Writes the data of the chunk
+     * @throws IOException Error during write
+     */
+    public void write (final OutputStream out, final IRiffChunk streamedChunk, final long dataSize, final IChunkDataWriter dataWriter) throws IOException
+    {
+        this.fillChunkStack ();
+
+        final ToLongFunction<IRiffChunk> dataSizes = chunk -> chunk == streamedChunk ? dataSize : chunk.getDataSize ();
+        this.writeHeader (out, this.calculateFileSize (dataSizes), dataSizes);
+        for (final IRiffChunk chunk: this.chunkStack)
+        {
+            if (chunk != streamedChunk)
+            {
+                chunk.write (out);
+                continue;
+            }
+
+            RawRIFFChunk.writeHeader (out, chunk.getId (), dataSize);
+            dataWriter.writeData (out);
+            if (dataSize % 2 == 1)
+                out.write (0);
+        }
+    }
+
+
+    /**
+     * Write the header of the file, which is the RIFF ID, the size of the file and the ID of the
+     * top chunk.
+     *
+     * @param out The output stream to write to
+     * @param fileSize The size of the file without the RIFF ID and the size itself
+     * @param dataSizes Provides the size of the data of a chunk on the chunk stack as it is written
+     * @throws IOException Error during write
+     */
+    protected void writeHeader (final OutputStream out, final long fileSize, final ToLongFunction<IRiffChunk> dataSizes) throws IOException
+    {
+        if (fileSize > RawRIFFChunk.MAX_CHUNK_SIZE)
+            throw new IOException ("The file is too large for the RIFF format: " + fileSize + " bytes.");
+
+        StreamUtils.writeUnsigned32 (out, CommonRiffChunkId.RIFF_ID.getFourCC (), true);
+        StreamUtils.writeUnsigned32 (out, fileSize, false);
+        StreamUtils.writeUnsigned32 (out, this.topRiffChunkId.getFourCC (), true);
+    }
+
+
     /**
      * Remove all chunks which match one of the given IDs.
      *
@@ -240,12 +292,24 @@ public abstract class AbstractRIFFFile implements RIFFVisitor
      *
      * @return The size of the whole RIFF file
      */
-    private long calculateFileSize ()
+    protected long calculateFileSize ()
+    {
+        return this.calculateFileSize (IRiffChunk::getDataSize);
+    }
+
+
+    /**
+     * Calculate the file size from all chunks on the chunk stack.
+     *
+     * @param dataSizes Provides the size of the data of a chunk on the chunk stack as it is written
+     * @return The size of the whole RIFF file
+     */
+    protected long calculateFileSize (final ToLongFunction<IRiffChunk> dataSizes)
     {
-        int fullSize = 4;
+        long fullSize = 4;
         for (final IRiffChunk chunk: this.chunkStack)
         {
-            final long length = chunk.getDataSize ();
+            final long length = dataSizes.applyAsLong (chunk);
             fullSize += 8 + length;
             if (length % 2 == 1)
                 fullSize++;
@@ -13,6 +13,12 @@ public enum CommonRiffChunkId implements RiffChunkId
 {
     /** ID for main RIFF ID. */
     RIFF_ID("RIFF", "RIFF"),
+    /** ID for a RIFF chunk with 64-bit sizes (EBU Tech 3306). */
+    RF64_ID("RF64", "RF64"),
+    /** ID for a RIFF chunk with 64-bit sizes (ITU-R BS.2088). */
+    BW64_ID("BW64", "BW64"),
+    /** ID for the chunk which contains the 64-bit sizes of a RF64/BW64 file. */
+    DS64_ID("Data Size 64", "ds64"),
     /** ID for a chunk LIST. */
     LIST_ID("List", "LIST"),
     /** ID for NULL chunk. */
@@ -0,0 +1,27 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.file.riff;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Writes the data of a chunk which is not held in memory, e.g. audio data which is decoded while
+ * it is written.
+ *
+ * @author Jürgen Moßgraber
+ */
+@FunctionalInterface
+public interface IChunkDataWriter
+{
+    /**
+     * Write the data of the chunk.
+     *
+     * @param out Where to write the data to
+     * @throws IOException Could not write the data
+     */
+    void writeData (OutputStream out) throws IOException;
+}
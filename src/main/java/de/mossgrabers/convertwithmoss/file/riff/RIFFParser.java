@@ -5,6 +5,7 @@
 package de.mossgrabers.convertwithmoss.file.riff;
 
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.NumberFormat;
@@ -27,6 +28,10 @@ import de.mossgrabers.convertwithmoss.file.StreamUtils;
  */
 public class RIFFParser
 {
+    /** The 32-bit size of a chunk in a RF64/BW64 file of which the size is in the ds64 chunk. */
+    private static final long               RF64_SIZE_MARKER    = 0xFFFFFFFFL;
+    private static final int                DATA_ID             = RiffChunkId.toFourCC ("data");
+
     private final Map<Integer, RiffChunkId> riffChunkIds        = new HashMap<> ();
     private final RiffChunkId               allBytesChunk;
     private boolean                         ignoreUnknownChunks = true;
@@ -45,6 +50,8 @@ public class RIFFParser
     private final Set<Integer>              stopChunkTypes      = new HashSet<> ();
     /** List of group chunks the visitor is interested in. */
     private final Set<RawRIFFChunk>         groupChunks         = new HashSet<> ();
+    /** The IDs of the chunks whose data is referenced in the source file instead of loaded. */
+    private final Set<Integer>              referencedChunkIds  = new HashSet<> ();
 
     /** Reference to the input stream. */
     private RIFFPrimitivesInputStream       in;
@@ -55,6 +62,12 @@ public class RIFFParser
     /** Stream offset. */
     private long                            streamOffset;
     private boolean                         hasEmptyTopSize     = false;
+    /** The file which is parsed, if known. */
+    private File                            sourceFile          = null;
+    /** True if the top chunk is a RF64 or BW64 chunk. */
+    private boolean                         isRF64              = false;
+    /** The sizes of the chunks which are larger than 4GB, from the ds64 chunk. */
+    private final Map<Integer, Long>        largeChunkSizes     = new HashMap<> ();
 
 
     /**
@@ -113,6 +126,18 @@ public class RIFFParser
     }
 
 
+    /**
+     * Set the file from which the parsed stream is read, starting at its beginning. Data chunks
+     * which are too large to be loaded into memory then reference their data in the file instead.
+     *
+     * @param sourceFile The file
+     */
+    public void setSourceFile (final File sourceFile)
+    {
+        this.sourceFile = sourceFile;
+    }
+
+
     /**
      * Check if this RIFF file has no size set for the top RIFF chunk (workaround for AKP/AKM
      * format).
@@ -160,6 +185,14 @@ public class RIFFParser
             return;
         }
 
+        // RIFF with 64-bit sizes, the sizes which do not fit are stored in the ds64 chunk
+        if (id == CommonRiffChunkId.RF64_ID.getFourCC () || id == CommonRiffChunkId.BW64_ID.getFourCC ())
+        {
+            this.isRF64 = true;
+            this.parseFORM (null, true);
+            return;
+        }
+
         if (id == CommonRiffChunkId.JUNK_ID.getFourCC ())
         {
             this.parseLocalChunk (null, this.getRiffChunkId (id));
@@ -218,7 +251,7 @@ public class RIFFParser
                 this.visitor.enterGroup (chunk);
         }
 
-        final long finish = offset + size;
+        long finish = offset + size;
         try
         {
             while (this.getPosition () < finish)
@@ -233,7 +266,13 @@ public class RIFFParser
                     throw new IOException ("Broken RIFF structure.");
                 }
 
-                if (id == CommonRiffChunkId.RIFF_ID.getFourCC ())
+                if (isTopForm && this.isRF64 && id == CommonRiffChunkId.DS64_ID.getFourCC ())
+                {
+                    final long riffSize = this.parseDS64 ();
+                    if (size == RF64_SIZE_MARKER)
+                        finish = offset + riffSize;
+                }
+                else if (id == CommonRiffChunkId.RIFF_ID.getFourCC ())
                     this.parseFORM (props, false);
                 else if (id == CommonRiffChunkId.LIST_ID.getFourCC ())
                     this.parseLIST (props);
@@ -241,7 +280,7 @@ public class RIFFParser
                     this.parseLocalChunk (chunk, this.getRiffChunkId (id));
                 else if (this.ignoreUnknownChunks)
                 {
-                    final long longSize = this.in.readUDWORD ();
+                    final long longSize = this.readChunkSize (id);
                     this.in.skipFully (longSize);
                 }
                 else
@@ -344,9 +383,18 @@ public class RIFFParser
      */
     private void parseLocalChunk (final RawRIFFChunk parent, final RiffChunkId id) throws ParseException, IOException
     {
-        final long longSize = this.in.readUDWORD ();
+        final long longSize = this.readChunkSize (id.getFourCC ());
         final RawRIFFChunk chunk = new RawRIFFChunk (parent == null ? 0 : parent.getType (), id, longSize);
 
+        if (this.isReferencedChunk (chunk, longSize))
+        {
+            // Reference the data in the file instead of loading it
+            chunk.setData (this.sourceFile, this.getPosition (), longSize);
+            this.in.skipFully (longSize);
+            this.visitor.visitChunk (parent, chunk);
+            return;
+        }
+
         if (longSize < Integer.MAX_VALUE)
         {
             final int size = (int) longSize;
@@ -365,6 +413,55 @@ public class RIFFParser
     }
 
 
+    /**
+     * Parses the ds64 chunk of a RF64/BW64 file, which contains the sizes of the RIFF chunk, the
+     * data chunk and any other chunk which is larger than 4GB.
+     *
+     * @return The size of the RIFF chunk
+     * @throws ParseException Indicates a parsing error
+     * @throws IOException Could not read data from the stream
+     */
+    private long parseDS64 () throws ParseException, IOException
+    {
+        final long size = this.in.readUDWORD ();
+        if (size < 28)
+            throw new ParseException ("The ds64 chunk is too short: " + size);
+
+        final long riffSize = StreamUtils.readUnsigned64 (this.in, false);
+        this.largeChunkSizes.put (Integer.valueOf (DATA_ID), Long.valueOf (StreamUtils.readUnsigned64 (this.in, false)));
+        // The number of sample frames, which can be calculated from the data size
+        StreamUtils.readUnsigned64 (this.in, false);
+        final long tableLength = this.in.readUDWORD ();
+        if (28 + tableLength * 12 > size)
+            throw new ParseException ("The table of the ds64 chunk does not fit into the chunk.");
+        for (long i = 0; i < tableLength; i++)
+        {
+            final int id = this.in.readFourCC ();
+            this.largeChunkSizes.put (Integer.valueOf (id), Long.valueOf (StreamUtils.readUnsigned64 (this.in, false)));
+        }
+        this.in.skipFully (size - 28 - tableLength * 12);
+        return riffSize;
+    }
+
+
+    /**
+     * Reads the size of a chunk. In a RF64/BW64 file the size of a chunk which is larger than 4GB
+     * is taken from the ds64 chunk.
+     *
+     * @param id The ID of the chunk
+     * @return The size of the chunk
+     * @throws IOException Could not read data from the stream
+     */
+    private long readChunkSize (final int id) throws IOException
+    {
+        final long size = this.in.readUDWORD ();
+        if (size != RF64_SIZE_MARKER || !this.isRF64)
+            return size;
+        final Long largeSize = this.largeChunkSizes.get (Integer.valueOf (id));
+        return largeSize == null ? size : largeSize.longValue ();
+    }
+
+
     /**
      * Handles the given chunk.
      *
@@ -519,6 +616,39 @@ public class RIFFParser
     }
 
 
+    /**
+     * Test if the data of a chunk is referenced in the source file instead of being loaded. This is
+     * the case for data chunks which are too large to be loaded into memory and for the declared
+     * referenced chunks, if their data is complete.
+     *
+     * @param chunk The chunk
+     * @param size The size of the chunk data
+     * @return True if the data is referenced
+     */
+    private boolean isReferencedChunk (final RawRIFFChunk chunk, final long size)
+    {
+        if (this.sourceFile == null || !this.isDataChunk (chunk))
+            return false;
+        if (size >= Integer.MAX_VALUE)
+            return true;
+        // A truncated chunk is read as before, which handles the missing data
+        return this.referencedChunkIds.contains (Integer.valueOf (chunk.getId ().getFourCC ())) && this.getPosition () + size <= this.sourceFile.length ();
+    }
+
+
+    /**
+     * Declares a data chunk whose data is never loaded into memory but only referenced in the
+     * source file (see {@link #setSourceFile(File)}), e.g. to map large sample data into memory
+     * instead.
+     *
+     * @param id ID of the chunk
+     */
+    public void declareReferencedChunk (final RiffChunkId id)
+    {
+        this.referencedChunkIds.add (Integer.valueOf (id.getFourCC ()));
+    }
+
+
     /**
      * Declares a data chunk.
      *
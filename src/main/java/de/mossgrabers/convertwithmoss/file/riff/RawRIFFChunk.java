@@ -4,13 +4,20 @@
 
 package de.mossgrabers.convertwithmoss.file.riff;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -30,11 +37,16 @@ import de.mossgrabers.tools.ui.Functions;
  */
 public class RawRIFFChunk implements IRiffChunk
 {
+    /** The largest size which can be stored in the 32-bit size field of a chunk. */
+    public static final long                      MAX_CHUNK_SIZE   = 0xFFFFFFFFL;
+
     private final RiffChunkId                     id;
     private int                                   type;
     private long                                  size;
     private byte []                               data;
     private File                                  dataFile;
+    private long                                  dataFileOffset;
+    private long                                  dataFileLength;
 
     private final Map<RawRIFFChunk, RawRIFFChunk> propertyChunks   = new HashMap<> ();
     private final List<RawRIFFChunk>              collectionChunks = new ArrayList<> ();
@@ -231,8 +243,23 @@ public class RawRIFFChunk implements IRiffChunk
      */
     public void setData (final File largeFile)
     {
-        this.dataFile = largeFile;
+        this.setData (largeFile, 0, largeFile.length ());
+    }
 
+
+    /**
+     * Sets the data to a region of a file in case it is larger than 2GB. The data is never loaded
+     * into memory but read from the file when needed.
+     *
+     * @param file The file which contains the data
+     * @param offset The position of the data in the file
+     * @param length The number of bytes of the data
+     */
+    public void setData (final File file, final long offset, final long length)
+    {
+        this.dataFile = file;
+        this.dataFileOffset = offset;
+        this.dataFileLength = length;
     }
 
 
@@ -241,7 +268,7 @@ public class RawRIFFChunk implements IRiffChunk
     public long getDataSize ()
     {
         this.checkValidity ();
-        return this.data == null ? this.dataFile.length () : this.data.length;
+        return this.data == null ? this.dataFileLength : this.data.length;
     }
 
 
@@ -253,10 +280,33 @@ public class RawRIFFChunk implements IRiffChunk
     public byte [] getData ()
     {
         this.checkValidity ();
+        if (this.data == null && this.dataFile != null)
+            throw new NoDataInChunkException ("Chunk data is too large to be loaded into memory (" + this.dataFileLength + " bytes).");
         return this.data;
     }
 
 
+    /**
+     * Get read-only access to the data without loading it. If the data is referenced in a file
+     * (see {@link #setData(File, long, long)}), the region of the file is mapped into memory and
+     * only the parts which are accessed are read by the operating system. The mapping is released
+     * when the returned segment is no longer referenced. Data in the array is only wrapped.
+     *
+     * @return The data
+     * @throws IOException Could not map the file
+     */
+    public MemorySegment mapData () throws IOException
+    {
+        if (!this.usesDataFile ())
+            return MemorySegment.ofArray (this.getData ()).asReadOnly ();
+
+        try (final FileChannel channel = FileChannel.open (this.dataFile.toPath (), StandardOpenOption.READ))
+        {
+            return channel.map (MapMode.READ_ONLY, this.dataFileOffset, this.dataFileLength, Arena.ofAuto ());
+        }
+    }
+
+
     private void checkValidity ()
     {
         if (this.id.getFourCC () != CommonRiffChunkId.LIST_ID.getFourCC () && this.data == null && this.dataFile == null)
@@ -533,10 +583,25 @@ public class RawRIFFChunk implements IRiffChunk
     @Override
     public void writeData (final OutputStream out) throws IOException
     {
-        if (this.usesDataFile ())
-            Files.copy (this.dataFile.toPath (), out);
-        else
+        if (!this.usesDataFile ())
+        {
             out.write (this.getData ());
+            return;
+        }
+
+        try (final FileChannel channel = FileChannel.open (this.dataFile.toPath (), StandardOpenOption.READ))
+        {
+            final WritableByteChannel target = Channels.newChannel (out);
+            long position = this.dataFileOffset;
+            final long end = this.dataFileOffset + this.dataFileLength;
+            while (position < end)
+            {
+                final long transferred = channel.transferTo (position, end - position, target);
+                if (transferred <= 0)
+                    throw new EOFException ();
+                position += transferred;
+            }
+        }
     }
 
 
@@ -544,19 +609,32 @@ public class RawRIFFChunk implements IRiffChunk
     @Override
     public void write (final OutputStream out) throws IOException
     {
-        StreamUtils.writeUnsigned32 (out, this.id.getFourCC (), true);
-
         final long length = this.getDataSize ();
-        final boolean needsPadByte = length % 2 == 1;
-        StreamUtils.writeUnsigned32 (out, length, false);
+        writeHeader (out, this.id, length);
 
         this.writeData (out);
 
-        if (needsPadByte)
+        if (length % 2 == 1)
             out.write (0);
     }
 
 
+    /**
+     * Write the ID and the size of a chunk. A size which does not fit into 32-bit is written as
+     * 0xFFFFFFFF, the real size needs to be stored in the ds64 chunk of a RF64/BW64 file.
+     *
+     * @param out The output stream to write to
+     * @param id The ID of the chunk
+     * @param dataSize The size of the data of the chunk
+     * @throws IOException Could not write
+     */
+    public static void writeHeader (final OutputStream out, final RiffChunkId id, final long dataSize) throws IOException
+    {
+        StreamUtils.writeUnsigned32 (out, id.getFourCC (), true);
+        StreamUtils.writeUnsigned32 (out, Math.min (dataSize, MAX_CHUNK_SIZE), false);
+    }
+
+
     /** {@inheritDoc} */
     @Override
     public boolean equals (final Object another)
@@ -43,6 +43,32 @@ public interface RiffChunkId
     }
 
 
+    /**
+     * Check if the beginning of a file is the header of a RIFF file with the given form type.
+     *
+     * @param header The first bytes of the file
+     * @param formType The expected form type, e.g. 'sfbk' for a SoundFont 2
+     * @return True if the header matches
+     */
+    public static boolean isRiffForm (final byte [] header, final RiffChunkId formType)
+    {
+        return header.length >= 12 && readFourCC (header, 0) == CommonRiffChunkId.RIFF_ID.getFourCC () && readFourCC (header, 8) == formType.getFourCC ();
+    }
+
+
+    /**
+     * Read a four character ID from a byte array.
+     *
+     * @param data The data
+     * @param offset The offset of the ID in the data
+     * @return The ID as a value
+     */
+    private static int readFourCC (final byte [] data, final int offset)
+    {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8 | data[offset + 3] & 0xFF;
+    }
+
+
     /**
      * Convert an integer RIFF identifier to an ASCII text.
      *
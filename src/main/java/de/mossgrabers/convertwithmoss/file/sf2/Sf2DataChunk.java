@@ -4,6 +4,7 @@
 
 package de.mossgrabers.convertwithmoss.file.sf2;
 
+import java.io.IOException;
 import java.util.Optional;
 
 import de.mossgrabers.convertwithmoss.file.riff.AbstractListChunk;
@@ -18,6 +19,9 @@ import de.mossgrabers.convertwithmoss.file.riff.RawRIFFChunk;
  */
 public class Sf2DataChunk extends AbstractListChunk
 {
+    private Sf2SamplePool samplePool;
+
+
     /**
      * Constructor.
      */
@@ -28,35 +32,29 @@ public class Sf2DataChunk extends AbstractListChunk
 
 
     /**
-     * The smpl sub-chunk, if present, contains one or more "samples" of digital audio information
-     * in the form of linearly coded sixteen bit, signed, little-endian (least significant byte
-     * first) words. Each sample is followed by a minimum of forty-six zero valued sample data
-     * points. These zero valued data points are necessary to guarantee that any reasonable upward
-     * pitch shift using any reasonable interpolator can loop on zero data at the end of the sound.
+     * Get the sample data of the smpl and the optional sm24 sub-chunk. If the data is referenced in
+     * the file, it is mapped into memory. The pool is created once and then shared by all samples.
      *
-     * @return The data
+     * @return The sample data, empty if there is no smpl sub-chunk
+     * @throws IOException Could not map the data
      */
-    public Optional<byte []> getSampleData ()
+    public Optional<Sf2SamplePool> getSamplePool () throws IOException
     {
-        final Optional<IRiffChunk> chunk = this.findSubChunk (Sf2RiffChunkId.SMPL_ID);
-        if (chunk.isEmpty ())
-            return Optional.empty ();
-        return chunk.get () instanceof final RawRIFFChunk rawChunk ? Optional.of (rawChunk.getData ()) : Optional.empty ();
+        if (this.samplePool == null)
+        {
+            final Optional<RawRIFFChunk> sampleChunk = this.findRawSubChunk (Sf2RiffChunkId.SMPL_ID);
+            if (sampleChunk.isEmpty ())
+                return Optional.empty ();
+            final Optional<RawRIFFChunk> sample24Chunk = this.findRawSubChunk (Sf2RiffChunkId.SM24_ID);
+            this.samplePool = new Sf2SamplePool (sampleChunk.get ().mapData (), sample24Chunk.isEmpty () ? null : sample24Chunk.get ().mapData ());
+        }
+        return Optional.of (this.samplePool);
     }
 
 
-    /**
-     * The sm24 sub-chunk, if present, contains the least significant byte counterparts to each
-     * sample data point contained in the smpl chunk. Note this means for every two bytes in the
-     * [smpl] sub-chunk there is a 1-byte counterpart in [sm24] sub-chunk.
-     *
-     * @return The data
-     */
-    public Optional<byte []> getSample24Data ()
+    private Optional<RawRIFFChunk> findRawSubChunk (final Sf2RiffChunkId id)
     {
-        final Optional<IRiffChunk> chunk = this.findSubChunk (Sf2RiffChunkId.SM24_ID);
-        if (chunk.isEmpty ())
-            return Optional.empty ();
-        return chunk.get () instanceof final RawRIFFChunk rawChunk ? Optional.of (rawChunk.getData ()) : Optional.empty ();
+        final Optional<IRiffChunk> chunk = this.findSubChunk (id);
+        return chunk.isPresent () && chunk.get () instanceof final RawRIFFChunk rawChunk ? Optional.of (rawChunk) : Optional.empty ();
     }
 }
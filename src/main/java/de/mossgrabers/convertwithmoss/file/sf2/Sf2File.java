@@ -86,7 +86,7 @@ public class Sf2File extends AbstractRIFFFile
 
         try (final FileInputStream stream = new FileInputStream (sf2File))
         {
-            this.read (stream);
+            this.read (stream, sf2File);
         }
     }
 
@@ -152,12 +152,16 @@ public class Sf2File extends AbstractRIFFFile
      * Read and parse a SF2 file.
      *
      * @param inputStream Where to read the file from
+     * @param sourceFile The file which is read, the sample data is mapped from it
      * @throws IOException Could not read the file
      * @throws ParseException Error during parsing
      */
-    private void read (final InputStream inputStream) throws IOException, ParseException
+    private void read (final InputStream inputStream, final File sourceFile) throws IOException, ParseException
     {
         final RIFFParser riffParser = new RIFFParser (SF2_RIFF_CHUNK_IDS);
+        riffParser.setSourceFile (sourceFile);
+        riffParser.declareReferencedChunk (Sf2RiffChunkId.SMPL_ID);
+        riffParser.declareReferencedChunk (Sf2RiffChunkId.SM24_ID);
         riffParser.declareGroupChunk (Sf2RiffChunkId.SFBK_ID.getFourCC (), CommonRiffChunkId.RIFF_ID);
         riffParser.declareGroupChunk (InfoRiffChunkId.INFO_ID.getFourCC (), CommonRiffChunkId.LIST_ID);
         riffParser.declareGroupChunk (Sf2RiffChunkId.DATA_ID.getFourCC (), CommonRiffChunkId.LIST_ID);
@@ -613,14 +617,21 @@ public class Sf2File extends AbstractRIFFFile
             throw new ParseException (Functions.getMessage ("IDS_NOTIFY_ERR_BROKEN_SAMPLE_HEADER"));
 
         // Read all sample headers
+        final Optional<Sf2SamplePool> samplePool;
+        try
+        {
+            samplePool = this.dataChunk.getSamplePool ();
+        }
+        catch (final IOException ex)
+        {
+            throw new ParseException (ex.getMessage (), ex);
+        }
+        if (samplePool.isEmpty ())
+            throw new ParseException (Functions.getMessage ("IDS_NOTIFY_ERR_MISSING_SAMPLE_DATA_CHUNK"));
         final List<Sf2SampleDescriptor> samples = new ArrayList<> ();
         for (int i = 0; i < size / LENGTH_SHDR; i++)
         {
-            final Optional<byte []> sampleData = this.dataChunk.getSampleData ();
-            if (sampleData.isEmpty ())
-                throw new ParseException (Functions.getMessage ("IDS_NOTIFY_ERR_MISSING_SAMPLE_DATA_CHUNK"));
-            final Optional<byte []> sample24Data = this.dataChunk.getSample24Data ();
-            final Sf2SampleDescriptor sampleDescriptor = new Sf2SampleDescriptor (i, sampleData.get (), sample24Data.isEmpty () ? null : sample24Data.get ());
+            final Sf2SampleDescriptor sampleDescriptor = new Sf2SampleDescriptor (i, samplePool.get ());
             sampleDescriptor.readHeader (i * LENGTH_SHDR, chunk);
             samples.add (sampleDescriptor);
         }
@@ -688,8 +699,8 @@ public class Sf2File extends AbstractRIFFFile
                     for (int instZoneIndex = 0; instZoneIndex < instrument.getZoneCount (); instZoneIndex++)
                     {
                         final Sf2SampleDescriptor sample = instrument.getZone (instZoneIndex).getSample ();
-                        sampleOut.write (sample.getSampleData ());
-                        sample24Out.write (sample.getSample24Data ());
+                        sample.getSamplePool ().writeSampleData (sampleOut);
+                        sample.getSamplePool ().writeSample24Data (sample24Out);
                     }
                 }
             }
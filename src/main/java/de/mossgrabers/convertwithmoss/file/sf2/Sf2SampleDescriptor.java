@@ -23,50 +23,47 @@ import de.mossgrabers.tools.ui.Functions;
 public class Sf2SampleDescriptor
 {
     /** A mono sample. */
-    public static final int MONO       = 1;
+    public static final int     MONO       = 1;
     /** The right side mono sample of a stereo sample. */
-    public static final int RIGHT      = 2;
+    public static final int     RIGHT      = 2;
     /** The left side mono sample of a stereo sample. */
-    public static final int LEFT       = 4;
+    public static final int     LEFT       = 4;
     /** A linked sample. */
-    public static final int LINKED     = 8;
+    public static final int     LINKED     = 8;
     /** A mono sample located in the ROM. */
-    public static final int ROM_MONO   = 32769;
+    public static final int     ROM_MONO   = 32769;
     /** The right side mono sample of a stereo sample located in the ROM. */
-    public static final int ROM_RIGHT  = 32770;
+    public static final int     ROM_RIGHT  = 32770;
     /** The left side mono sample of a stereo sample located in the ROM. */
-    public static final int ROM_LEFT   = 32772;
+    public static final int     ROM_LEFT   = 32772;
     /** A linked sample located in the ROM. */
-    public static final int ROM_LINKED = 32776;
+    public static final int     ROM_LINKED = 32776;
 
-    private final int       sampleIndex;
-    private final byte []   sampleData;
-    private final byte []   sample24Data;
+    private final int           sampleIndex;
+    private final Sf2SamplePool samplePool;
 
-    private String          name;
-    private long            start;
-    private long            end;
-    private long            startLoop;
-    private long            endLoop;
-    private long            sampleRate;
-    private int             originalPitch;
-    private int             pitchCorrection;
-    private int             sampleLink;
-    private int             sampleType;
+    private String              name;
+    private long                start;
+    private long                end;
+    private long                startLoop;
+    private long                endLoop;
+    private long                sampleRate;
+    private int                 originalPitch;
+    private int                 pitchCorrection;
+    private int                 sampleLink;
+    private int                 sampleType;
 
 
     /**
      * Constructor.
      *
      * @param sampleIndex The index of the sample
-     * @param sampleData The sample data bytes
-     * @param sample24Data The additional sample data bytes for 24 bit samples
+     * @param samplePool The sample data which contains the sample between its start and end
      */
-    public Sf2SampleDescriptor (final int sampleIndex, final byte [] sampleData, final byte [] sample24Data)
+    public Sf2SampleDescriptor (final int sampleIndex, final Sf2SamplePool samplePool)
     {
         this.sampleIndex = sampleIndex;
-        this.sampleData = sampleData;
-        this.sample24Data = sample24Data;
+        this.samplePool = samplePool;
     }
 
 
@@ -390,23 +387,13 @@ public class Sf2SampleDescriptor
 
 
     /**
-     * Get the raw sample data (16 bit).
+     * Get the sample data which contains this sample between its start and end. When read from a
+     * file it is shared by all samples of the file.
      *
-     * @return The sampleData
+     * @return The sample data
      */
-    public byte [] getSampleData ()
+    public Sf2SamplePool getSamplePool ()
     {
-        return this.sampleData;
-    }
-
-
-    /**
-     * Get the additional 8 bit to form 24 bit.
-     *
-     * @return The additional 8 bit or null if it is a 16 bit sample
-     */
-    public byte [] getSample24Data ()
-    {
-        return this.sample24Data;
+        return this.samplePool;
     }
 }
@@ -0,0 +1,159 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.file.sf2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+
+/**
+ * The sample data of a SoundFont, which is shared by all of its samples. The smpl chunk contains
+ * the sample points as linearly coded sixteen bit, signed, little-endian words. The optional sm24
+ * chunk contains the least significant byte counterparts of each of them, which extend them to 24
+ * bit. Each sample is followed by a minimum of forty-six zero valued sample points.
+ * <p>
+ * The data of a read file is mapped into memory and not loaded: only the parts of the samples which
+ * are actually written or analyzed are read from the file, which allows to convert SoundFonts which
+ * are larger than the available heap.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class Sf2SamplePool
+{
+    private static final ValueLayout.OfShort SAMPLE_POINT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder (ByteOrder.LITTLE_ENDIAN);
+    private static final int                 BLOCK_SIZE   = 0x10000;
+
+    private final MemorySegment              sampleData;
+    private final MemorySegment              sample24Data;
+
+
+    /**
+     * Constructor.
+     *
+     * @param sampleData The 16-bit sample data
+     * @param sample24Data The least significant bytes of 24-bit sample data, might be null
+     */
+    public Sf2SamplePool (final byte [] sampleData, final byte [] sample24Data)
+    {
+        this (MemorySegment.ofArray (sampleData), sample24Data == null ? null : MemorySegment.ofArray (sample24Data));
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param sampleData The 16-bit sample data, e.g. mapped from a file
+     * @param sample24Data The least significant bytes of 24-bit sample data, might be null
+     */
+    public Sf2SamplePool (final MemorySegment sampleData, final MemorySegment sample24Data)
+    {
+        this.sampleData = sampleData;
+        this.sample24Data = sample24Data;
+    }
+
+
+    /**
+     * Get the number of sample points in the pool.
+     *
+     * @return The number of 16-bit words in the smpl chunk
+     */
+    public long getNumberOfSamplePoints ()
+    {
+        return this.sampleData.byteSize () / 2;
+    }
+
+
+    /**
+     * Is there 24-bit data for all sample points?
+     *
+     * @return True if the sm24 data is present and matches the 16-bit data
+     */
+    public boolean has24BitData ()
+    {
+        return this.sample24Data != null && this.sample24Data.byteSize () * 2 == this.sampleData.byteSize ();
+    }
+
+
+    /**
+     * Get the 16-bit value of a sample point.
+     *
+     * @param index The index of the sample point
+     * @return The signed value
+     */
+    public short getSamplePoint (final long index)
+    {
+        return this.sampleData.get (SAMPLE_POINT, 2 * index);
+    }
+
+
+    /**
+     * Copy the bytes of the 16-bit values of several sample points.
+     *
+     * @param index The index of the first sample point
+     * @param count The number of sample points
+     * @param destination Where to copy the little-endian bytes to
+     * @param destinationOffset The offset in the destination
+     */
+    public void copySamplePoints (final long index, final int count, final byte [] destination, final int destinationOffset)
+    {
+        MemorySegment.copy (this.sampleData, ValueLayout.JAVA_BYTE, 2 * index, destination, destinationOffset, 2 * count);
+    }
+
+
+    /**
+     * Copy the least significant bytes of several 24-bit sample points. Only use this if
+     * {@link #has24BitData()} is true.
+     *
+     * @param index The index of the first sample point
+     * @param count The number of sample points
+     * @param destination Where to copy the bytes to
+     * @param destinationOffset The offset in the destination
+     */
+    public void copySample24Points (final long index, final int count, final byte [] destination, final int destinationOffset)
+    {
+        MemorySegment.copy (this.sample24Data, ValueLayout.JAVA_BYTE, index, destination, destinationOffset, count);
+    }
+
+
+    /**
+     * Write the 16-bit data of all sample points.
+     *
+     * @param out Where to write the data to
+     * @throws IOException Could not write the data
+     */
+    public void writeSampleData (final OutputStream out) throws IOException
+    {
+        write (this.sampleData, out);
+    }
+
+
+    /**
+     * Write the 24-bit data of all sample points, if any.
+     *
+     * @param out Where to write the data to
+     * @throws IOException Could not write the data
+     */
+    public void writeSample24Data (final OutputStream out) throws IOException
+    {
+        if (this.sample24Data != null)
+            write (this.sample24Data, out);
+    }
+
+
+    private static void write (final MemorySegment data, final OutputStream out) throws IOException
+    {
+        final long size = data.byteSize ();
+        final byte [] block = new byte [(int) Math.min (BLOCK_SIZE, size)];
+        for (long position = 0; position < size; position += block.length)
+        {
+            final int length = (int) Math.min (block.length, size - position);
+            MemorySegment.copy (data, ValueLayout.JAVA_BYTE, position, block, 0, length);
+            out.write (block, 0, length);
+        }
+    }
+}
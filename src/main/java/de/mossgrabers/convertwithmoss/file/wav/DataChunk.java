@@ -12,6 +12,7 @@ import de.mossgrabers.convertwithmoss.file.riff.RawRIFFChunk;
 
 /**
  * Wrapper of a data chunk ("data") in a WAV file. Data is stored stereo interleaved little-endian.
+ * Data of 2GB or more is not loaded into memory but read from the WAV file.
  *
  * @author Jürgen Moßgraber
  */
@@ -81,14 +82,14 @@ public class DataChunk extends AbstractSpecificRIFFChunk
         final int compressionCode = formatChunk.getCompressionCode ();
 
         if (compressionCode == FormatChunk.WAVE_FORMAT_PCM || compressionCode == FormatChunk.WAVE_FORMAT_IEEE_FLOAT)
-            return formatChunk.calculateLength (this.rawRiffChunk.getData ());
+            return formatChunk.calculateLength (this.rawRiffChunk.getDataSize ());
 
         if (compressionCode == FormatChunk.WAVE_FORMAT_EXTENSIBLE)
         {
             final int numberOfChannels = formatChunk.getNumberOfChannels ();
             if (numberOfChannels > 2)
                 throw new CompressionNotSupportedException ("WAV files in Extensible format are only supported for stereo files.");
-            return formatChunk.calculateLength (this.rawRiffChunk.getData ());
+            return formatChunk.calculateLength (this.rawRiffChunk.getDataSize ());
         }
 
         throw new CompressionNotSupportedException ("Unsupported data compression: " + FormatChunk.getCompression (compressionCode));
@@ -100,7 +101,7 @@ public class DataChunk extends AbstractSpecificRIFFChunk
     public String infoText ()
     {
         final StringBuilder sb = new StringBuilder ();
-        sb.append ("Size: ").append (this.rawRiffChunk.getData ().length + " Bytes");
+        sb.append ("Size: ").append (this.rawRiffChunk.getDataSize () + " Bytes");
         return sb.toString ();
     }
 }
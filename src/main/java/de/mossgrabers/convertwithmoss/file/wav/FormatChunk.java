@@ -323,6 +323,19 @@ public class FormatChunk extends AbstractSpecificRIFFChunk
     }
 
 
+    /**
+     * Calculates the length of the data in samples.
+     *
+     * @param dataSize The size of the data in bytes
+     * @return The length of the sample in samples (frames) of 1 channel
+     * @throws ArithmeticException The number of samples does not fit into an integer
+     */
+    public int calculateLength (final long dataSize)
+    {
+        return Math.toIntExact (dataSize / this.calculateBytesPerSample ());
+    }
+
+
     /**
      * Calculates the data size.
      *
@@ -335,6 +348,18 @@ public class FormatChunk extends AbstractSpecificRIFFChunk
     }
 
 
+    /**
+     * Calculates the data size of a sample which might be larger than 2GB.
+     *
+     * @param lengthInSamples The length of the sample (number of samples)
+     * @return The size of the data block
+     */
+    public long calculateDataSize (final long lengthInSamples)
+    {
+        return lengthInSamples * this.calculateBytesPerSample ();
+    }
+
+
     /**
      * Calculate the number of bytes which are used for one sample depending on the significant bits
      * per sample and the number of channels.
@@ -8,17 +8,21 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.ToLongFunction;
 
 import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
 import de.mossgrabers.convertwithmoss.exception.CombinationNotPossibleException;
 import de.mossgrabers.convertwithmoss.exception.ParseException;
+import de.mossgrabers.convertwithmoss.file.StreamUtils;
 import de.mossgrabers.convertwithmoss.file.riff.AbstractRIFFFile;
 import de.mossgrabers.convertwithmoss.file.riff.CommonRiffChunkId;
+import de.mossgrabers.convertwithmoss.file.riff.IRiffChunk;
 import de.mossgrabers.convertwithmoss.file.riff.InfoRiffChunkId;
 import de.mossgrabers.convertwithmoss.file.riff.RIFFParser;
 import de.mossgrabers.convertwithmoss.file.riff.RIFFVisitor;
@@ -27,12 +31,17 @@ import de.mossgrabers.convertwithmoss.file.riff.RiffChunkId;
 
 
 /**
- * Read/write WAV files.
+ * Read/write WAV files. Files larger than 4GB are read and written in the RF64/BW64 format. The data
+ * chunk of such a file (or any data chunk of 2GB or more) is not loaded into memory but read from
+ * the file when it is needed.
  *
  * @author Jürgen Moßgraber
  */
 public class WaveFile extends AbstractRIFFFile
 {
+    /** The size of the ds64 chunk without a table of further chunk sizes. */
+    private static final int                                      DS64_SIZE           = 28;
+
     private static final Collection<Class<? extends RiffChunkId>> WAVE_RIFF_CHUNK_IDS = new ArrayList<> ();
     static
     {
@@ -90,7 +99,7 @@ public class WaveFile extends AbstractRIFFFile
 
         try (final FileInputStream stream = new FileInputStream (wavFile))
         {
-            this.read (stream, ignoreChunkErrors);
+            this.read (stream, ignoreChunkErrors, wavFile);
         }
     }
 
@@ -157,8 +166,15 @@ public class WaveFile extends AbstractRIFFFile
      * @throws ParseException Error parsing the chunks
      */
     public void read (final InputStream inputStream, final boolean ignoreChunkErrors) throws IOException, ParseException
+    {
+        this.read (inputStream, ignoreChunkErrors, null);
+    }
+
+
+    private void read (final InputStream inputStream, final boolean ignoreChunkErrors, final File sourceFile) throws IOException, ParseException
     {
         final RIFFParser riffParser = new RIFFParser (WAVE_RIFF_CHUNK_IDS);
+        riffParser.setSourceFile (sourceFile);
         riffParser.setIgnoreChunkErrors (ignoreChunkErrors);
         riffParser.setIgnoreUnknownChunks (ignoreChunkErrors);
         riffParser.declareGroupChunk (InfoRiffChunkId.INFO_ID.getFourCC (), CommonRiffChunkId.LIST_ID);
@@ -461,6 +477,43 @@ public class WaveFile extends AbstractRIFFFile
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    protected long calculateFileSize (final ToLongFunction<IRiffChunk> dataSizes)
+    {
+        final long fileSize = super.calculateFileSize (dataSizes);
+        return fileSize > RawRIFFChunk.MAX_CHUNK_SIZE ? fileSize + 8 + DS64_SIZE : fileSize;
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    protected void writeHeader (final OutputStream out, final long fileSize, final ToLongFunction<IRiffChunk> dataSizes) throws IOException
+    {
+        if (fileSize <= RawRIFFChunk.MAX_CHUNK_SIZE)
+        {
+            super.writeHeader (out, fileSize, dataSizes);
+            return;
+        }
+
+        // Write a RF64 file, the real sizes are stored in the ds64 chunk which follows the header
+        final long dataSize = this.dataChunk == null ? 0 : dataSizes.applyAsLong (this.dataChunk);
+        for (final IRiffChunk chunk: this.chunkStack)
+            if (chunk != this.dataChunk && dataSizes.applyAsLong (chunk) > RawRIFFChunk.MAX_CHUNK_SIZE)
+                throw new IOException ("Only the data chunk of a WAV file can be larger than 4GB.");
+        final int blockAlign = this.formatChunk == null ? 0 : this.formatChunk.getBlockAlign ();
+
+        StreamUtils.writeUnsigned32 (out, CommonRiffChunkId.RF64_ID.getFourCC (), true);
+        StreamUtils.writeUnsigned32 (out, RawRIFFChunk.MAX_CHUNK_SIZE, false);
+        StreamUtils.writeUnsigned32 (out, this.topRiffChunkId.getFourCC (), true);
+        RawRIFFChunk.writeHeader (out, CommonRiffChunkId.DS64_ID, DS64_SIZE);
+        StreamUtils.writeUnsigned64 (out, fileSize, false);
+        StreamUtils.writeUnsigned64 (out, dataSize, false);
+        StreamUtils.writeUnsigned64 (out, blockAlign == 0 ? 0 : dataSize / blockAlign, false);
+        StreamUtils.writeUnsigned32 (out, 0, false);
+    }
+
+
     /** {@inheritDoc} */
     @Override
     public void checkTopChunk (final int type) throws ParseException
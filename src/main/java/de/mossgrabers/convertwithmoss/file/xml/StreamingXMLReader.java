@@ -0,0 +1,369 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.file.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+
+/**
+ * Reads an XML document element by element from a stream (StAX) and creates a DOM which contains
+ * only the elements a detector needs. All other elements are skipped while they are read, therefore
+ * neither the text of the document nor a DOM of all of its elements is held in memory. This makes
+ * a large difference for documents in which the interesting part is small compared to the rest,
+ * e.g. an Ableton rack with a sampler next to hundreds of other devices.
+ * <p>
+ * Which elements are kept is decided by an {@link ElementFilter}. Since the result is a normal DOM
+ * (without comments and processing instructions), the existing code which navigates the elements
+ * can stay as it is. Reading ends with the end of the root element, content after it is ignored.
+ *
+ * @author Jürgen Moßgraber
+ */
+public final class StreamingXMLReader
+{
+    /** How an element is handled. */
+    public enum Selection
+    {
+        /** Keep the element with all of its content, its children are not offered to the filter. */
+        KEEP,
+        /** Keep the element with its attributes and text, offer its children to the filter. */
+        KEEP_FILTER_CHILDREN,
+        /**
+         * Keep the element with its attributes (but without its text) only if one of its
+         * descendants is kept, offer its children to the filter.
+         */
+        ANCESTOR,
+        /** Drop the element with all of its content. */
+        SKIP
+    }
+
+
+    /**
+     * Decides which elements are kept.
+     */
+    @FunctionalInterface
+    public interface ElementFilter
+    {
+        /**
+         * Select how an element is handled. The root element is always kept with its attributes,
+         * even if this returns ANCESTOR or SKIP.
+         *
+         * @param name The name of the element
+         * @param depth The depth of the element, 0 is the root element
+         * @return How to handle the element
+         */
+        Selection select (String name, int depth);
+    }
+
+
+    private static final XMLInputFactory        INPUT_FACTORY    = createInputFactory ();
+    private static final DocumentBuilderFactory DOCUMENT_FACTORY = DocumentBuilderFactory.newInstance ();
+
+    private final XMLStreamReader               reader;
+    private final ElementFilter                 filter;
+    private final Document                      document;
+    private final List<Frame>                   frames           = new ArrayList<> ();
+
+
+    /**
+     * Read a document and keep all of its elements. Compared to a DOM parser this does not need
+     * the text of the document and stops at the end of the root element.
+     *
+     * @param inputStream The stream to read from, it is not closed
+     * @return The document
+     * @throws IOException Could not read or parse the document
+     */
+    public static Document read (final InputStream inputStream) throws IOException
+    {
+        return read (inputStream, (_, _) -> Selection.KEEP);
+    }
+
+
+    /**
+     * Read a document and keep only the elements which are selected by the filter.
+     *
+     * @param inputStream The stream to read from, it is not closed
+     * @param filter Selects the elements to keep
+     * @return The document
+     * @throws IOException Could not read or parse the document
+     */
+    public static Document read (final InputStream inputStream, final ElementFilter filter) throws IOException
+    {
+        XMLStreamReader reader = null;
+        try
+        {
+            // The factories are not guaranteed to be thread-safe
+            synchronized (INPUT_FACTORY)
+            {
+                reader = INPUT_FACTORY.createXMLStreamReader (inputStream);
+            }
+            return new StreamingXMLReader (reader, filter).read ();
+        }
+        catch (final XMLStreamException ex)
+        {
+            // The message contains the position in the document
+            throw new IOException (ex.getMessage (), ex);
+        }
+        finally
+        {
+            if (reader != null)
+                try
+                {
+                    reader.close ();
+                }
+                catch (final XMLStreamException _)
+                {
+                    // Ignore, the stream is closed by the caller
+                }
+        }
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param reader The StAX reader
+     * @param filter Selects the elements to keep
+     * @throws IOException Could not create the document
+     */
+    private StreamingXMLReader (final XMLStreamReader reader, final ElementFilter filter) throws IOException
+    {
+        this.reader = reader;
+        this.filter = filter;
+
+        try
+        {
+            synchronized (DOCUMENT_FACTORY)
+            {
+                this.document = DOCUMENT_FACTORY.newDocumentBuilder ().newDocument ();
+            }
+        }
+        catch (final ParserConfigurationException ex)
+        {
+            throw new IOException (ex);
+        }
+    }
+
+
+    /**
+     * Read the document.
+     *
+     * @return The document
+     * @throws XMLStreamException Could not parse the document
+     * @throws IOException The document has no root element
+     */
+    private Document read () throws XMLStreamException, IOException
+    {
+        while (this.reader.hasNext ())
+        {
+            switch (this.reader.next ())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    this.startElement ();
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    this.frames.removeLast ();
+                    if (this.frames.isEmpty ())
+                        return this.document;
+                    break;
+
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE:
+                    this.addText (false);
+                    break;
+
+                case XMLStreamConstants.CDATA:
+                    this.addText (true);
+                    break;
+
+                default:
+                    // Comments, processing instructions and the document type are not needed
+                    break;
+            }
+        }
+        throw new IOException ("The document has no root element.");
+    }
+
+
+    /**
+     * Handle the start of an element.
+     *
+     * @throws XMLStreamException Could not parse the document
+     */
+    private void startElement () throws XMLStreamException
+    {
+        final String name = getName (this.reader.getPrefix (), this.reader.getLocalName ());
+        final int depth = this.frames.size ();
+
+        Selection selection;
+        if (depth > 0 && this.frames.getLast ().selection == Selection.KEEP)
+            selection = Selection.KEEP;
+        else
+        {
+            selection = this.filter.select (name, depth);
+            if (depth == 0 && (selection == Selection.ANCESTOR || selection == Selection.SKIP))
+                selection = Selection.KEEP_FILTER_CHILDREN;
+        }
+
+        if (selection == Selection.SKIP)
+        {
+            this.skipElement ();
+            return;
+        }
+
+        final Frame frame = new Frame (name, selection, this.readAttributes ());
+        this.frames.add (frame);
+        if (selection != Selection.ANCESTOR)
+            this.createElements ();
+    }
+
+
+    /**
+     * Add the text of the current event to the current element, if it is kept with its text.
+     *
+     * @param isCData True if the text is a CDATA section
+     */
+    private void addText (final boolean isCData)
+    {
+        if (this.frames.isEmpty ())
+            return;
+        final Frame frame = this.frames.getLast ();
+        if (frame.element == null || frame.selection == Selection.ANCESTOR)
+            return;
+        final String text = this.reader.getText ();
+        frame.element.appendChild (isCData ? this.document.createCDATASection (text) : this.document.createTextNode (text));
+    }
+
+
+    /**
+     * Create the elements of all frames which were not created yet, which are the ancestors of an
+     * element which is kept.
+     */
+    private void createElements ()
+    {
+        final int size = this.frames.size ();
+        int first = size - 1;
+        while (first > 0 && this.frames.get (first - 1).element == null)
+            first--;
+
+        Node parent = first == 0 ? this.document : this.frames.get (first - 1).element;
+        for (int i = first; i < size; i++)
+        {
+            final Frame frame = this.frames.get (i);
+            frame.element = this.document.createElement (frame.name);
+            for (int a = 0; a < frame.attributes.length; a += 2)
+                frame.element.setAttribute (frame.attributes[a], frame.attributes[a + 1]);
+            parent.appendChild (frame.element);
+            parent = frame.element;
+        }
+    }
+
+
+    /**
+     * Read the attributes of the current element.
+     *
+     * @return The names and values of the attributes, alternating
+     */
+    private String [] readAttributes ()
+    {
+        final int count = this.reader.getAttributeCount ();
+        final String [] attributes = new String [2 * count];
+        for (int i = 0; i < count; i++)
+        {
+            attributes[2 * i] = getName (this.reader.getAttributePrefix (i), this.reader.getAttributeLocalName (i));
+            attributes[2 * i + 1] = this.reader.getAttributeValue (i);
+        }
+        return attributes;
+    }
+
+
+    /**
+     * Skip the current element with all of its content.
+     *
+     * @throws XMLStreamException Could not parse the document
+     */
+    private void skipElement () throws XMLStreamException
+    {
+        int level = 1;
+        while (level > 0)
+        {
+            final int event = this.reader.next ();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                level++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                level--;
+        }
+    }
+
+
+    /**
+     * Get the qualified name of an element or attribute.
+     *
+     * @param prefix The name-space prefix, might be null or empty
+     * @param localName The local name
+     * @return The name
+     */
+    private static String getName (final String prefix, final String localName)
+    {
+        return prefix == null || prefix.isEmpty () ? localName : prefix + ":" + localName;
+    }
+
+
+    /**
+     * Create the StAX factory. Document types are not supported and external entities are not
+     * resolved, since a preset file must not make the parser access other files or the network.
+     *
+     * @return The factory
+     */
+    private static XMLInputFactory createInputFactory ()
+    {
+        final XMLInputFactory factory = XMLInputFactory.newFactory ();
+        factory.setProperty (XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty (XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty (XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty (XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+
+
+    /**
+     * An element which is currently open.
+     */
+    private static final class Frame
+    {
+        private final String    name;
+        private final Selection selection;
+        private final String [] attributes;
+        private Element         element;
+
+
+        /**
+         * Constructor.
+         *
+         * @param name The name of the element
+         * @param selection How the element is handled
+         * @param attributes The names and values of the attributes, alternating
+         */
+        Frame (final String name, final Selection selection, final String [] attributes)
+        {
+            this.name = name;
+            this.selection = selection;
+            this.attributes = attributes;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.file.xml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+
+/**
+ * Writes an XML document element by element straight into an output stream, without building a
+ * DOM and without holding the text of the document in memory. The output is pretty-printed and
+ * escaped exactly like a DOM document which is serialized with the indenting Transformer of
+ * XMLUtils, including the alphabetical order of the attributes which follow the namespace
+ * declarations, therefore a creator can switch from the DOM to this writer without changing a
+ * single byte of the files it writes.
+ * <p>
+ * The attributes of an element can be added as long as neither a child element nor text was
+ * written into it. An element contains either child elements or text, mixed content is not
+ * supported.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class StreamingXMLWriter implements AutoCloseable
+{
+    private static final String   INDENT         = "    ";
+    private static final String   LINE_SEPARATOR = System.lineSeparator ();
+
+    private final Writer          writer;
+    private final List<String>    openElements   = new ArrayList<> ();
+    private final List<String []> attributes     = new ArrayList<> ();
+    private boolean               isTagOpen      = false;
+    private boolean               hasChildren    = false;
+
+
+    /**
+     * Constructor. Writes the XML declaration.
+     *
+     * @param outputStream The stream to write to, it is not closed by this writer
+     * @param isStandalone True to omit the standalone attribute from the declaration (like a
+     *            document which is flagged as standalone), false to write standalone="no"
+     * @throws IOException Could not write
+     */
+    public StreamingXMLWriter (final OutputStream outputStream, final boolean isStandalone) throws IOException
+    {
+        this.writer = new BufferedWriter (new OutputStreamWriter (outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        this.writer.write (isStandalone ? "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" : "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+        this.writer.write (LINE_SEPARATOR);
+    }
+
+
+    /**
+     * Start a new element inside of the current one.
+     *
+     * @param name The name of the element
+     * @throws IOException Could not write
+     */
+    public void startElement (final String name) throws IOException
+    {
+        if (this.isTagOpen)
+            this.closeTag ();
+        if (!this.openElements.isEmpty ())
+        {
+            this.writer.write (LINE_SEPARATOR);
+            this.writeIndent (this.openElements.size ());
+        }
+
+        this.writer.write ('<');
+        this.writer.write (name);
+        this.openElements.add (name);
+        this.isTagOpen = true;
+        this.hasChildren = false;
+    }
+
+
+    /**
+     * Add an attribute to the element which was started last. Setting an attribute a second time
+     * replaces its value.
+     *
+     * @param name The name of the attribute
+     * @param value The value of the attribute
+     */
+    public void attribute (final String name, final String value)
+    {
+        if (!this.isTagOpen)
+            throw new IllegalStateException ("Attributes must be set before the content of an element: " + name);
+
+        for (final String [] attribute: this.attributes)
+            if (attribute[0].equals (name))
+            {
+                attribute[1] = value;
+                return;
+            }
+        this.attributes.add (new String []
+        {
+            name,
+            value
+        });
+    }
+
+
+    /**
+     * Add an integer attribute to the element which was started last.
+     *
+     * @param name The name of the attribute
+     * @param value The value of the attribute
+     */
+    public void attribute (final String name, final int value)
+    {
+        this.attribute (name, Integer.toString (value));
+    }
+
+
+    /**
+     * Add a double attribute to the element which was started last, formatted like
+     * XMLUtils.setDoubleAttribute.
+     *
+     * @param name The name of the attribute
+     * @param value The value of the attribute
+     * @param fractions The number of fraction digits
+     */
+    public void attribute (final String name, final double value, final int fractions)
+    {
+        this.attribute (name, String.format (Locale.US, "%." + fractions + "f", Double.valueOf (value)));
+    }
+
+
+    /**
+     * Add a boolean attribute to the element which was started last.
+     *
+     * @param name The name of the attribute
+     * @param value The value of the attribute
+     */
+    public void attribute (final String name, final boolean value)
+    {
+        this.attribute (name, Boolean.toString (value));
+    }
+
+
+    /**
+     * Write text into the current element.
+     *
+     * @param text The text, nothing is written if it is null or empty
+     * @throws IOException Could not write
+     */
+    public void text (final String text) throws IOException
+    {
+        if (text == null || text.isEmpty ())
+            return;
+        if (this.isTagOpen)
+            this.closeTag ();
+        escape (this.writer, text, false);
+    }
+
+
+    /**
+     * Write an element which only contains text, like XMLUtils.addTextElement.
+     *
+     * @param name The name of the element
+     * @param text The text, an empty element is written if it is null or empty
+     * @throws IOException Could not write
+     */
+    public void textElement (final String name, final String text) throws IOException
+    {
+        this.startElement (name);
+        this.text (text);
+        this.endElement ();
+    }
+
+
+    /**
+     * Write a comment into the current element, like a comment node of the DOM.
+     *
+     * @param comment The text of the comment
+     * @throws IOException Could not write
+     */
+    public void comment (final String comment) throws IOException
+    {
+        if (this.openElements.isEmpty ())
+            throw new IllegalStateException ("A comment needs to be inside of an element.");
+
+        if (this.isTagOpen)
+            this.closeTag ();
+        this.writer.write (LINE_SEPARATOR);
+        this.writeIndent (this.openElements.size ());
+        this.writer.write ("<!--");
+        this.writer.write (comment);
+        this.writer.write ("-->");
+        this.hasChildren = true;
+    }
+
+
+    /**
+     * End the current element.
+     *
+     * @throws IOException Could not write
+     */
+    public void endElement () throws IOException
+    {
+        if (this.openElements.isEmpty ())
+            throw new IllegalStateException ("There is no open element.");
+
+        final String name = this.openElements.remove (this.openElements.size () - 1);
+        if (this.isTagOpen)
+        {
+            this.writeAttributes ();
+            this.writer.write ("/>");
+            this.isTagOpen = false;
+        }
+        else
+        {
+            if (this.hasChildren)
+            {
+                this.writer.write (LINE_SEPARATOR);
+                this.writeIndent (this.openElements.size ());
+            }
+            this.writer.write ("</");
+            this.writer.write (name);
+            this.writer.write ('>');
+        }
+
+        // The parent contains at least this element
+        this.hasChildren = true;
+        if (this.openElements.isEmpty ())
+            this.writer.write (LINE_SEPARATOR);
+    }
+
+
+    /**
+     * Ends all elements which are still open and flushes the written text into the output stream,
+     * which stays open.
+     *
+     * @throws IOException Could not write
+     */
+    @Override
+    public void close () throws IOException
+    {
+        while (!this.openElements.isEmpty ())
+            this.endElement ();
+        this.writer.flush ();
+    }
+
+
+    private void closeTag () throws IOException
+    {
+        this.writeAttributes ();
+        this.writer.write ('>');
+        this.isTagOpen = false;
+    }
+
+
+    private void writeAttributes () throws IOException
+    {
+        if (this.attributes.isEmpty ())
+            return;
+
+        // The DOM keeps the attributes sorted by their name, the Transformer writes the namespace
+        // declarations first
+        this.attributes.sort ( (a1, a2) -> {
+            final int result = Boolean.compare (!isNamespaceDeclaration (a1[0]), !isNamespaceDeclaration (a2[0]));
+            return result == 0 ? a1[0].compareTo (a2[0]) : result;
+        });
+        for (final String [] attribute: this.attributes)
+        {
+            this.writer.write (' ');
+            this.writer.write (attribute[0]);
+            this.writer.write ("=\"");
+            escape (this.writer, attribute[1], true);
+            this.writer.write ('"');
+        }
+        this.attributes.clear ();
+    }
+
+
+    private static boolean isNamespaceDeclaration (final String name)
+    {
+        return "xmlns".equals (name) || name.startsWith ("xmlns:");
+    }
+
+
+    private void writeIndent (final int depth) throws IOException
+    {
+        for (int i = 0; i < depth; i++)
+            this.writer.write (INDENT);
+    }
+
+
+    /**
+     * Escape the text of an element or the value of an attribute in the same way as the
+     * Transformer.
+     *
+     * @param writer Where to write the escaped text
+     * @param text The text to escape
+     * @param isAttribute True if the text is the value of an attribute
+     * @throws IOException Could not write or the text contains a character which is not allowed in
+     *             XML
+     */
+    private static void escape (final Writer writer, final String text, final boolean isAttribute) throws IOException
+    {
+        final int length = text.length ();
+        int start = 0;
+        for (int i = 0; i < length; i++)
+        {
+            final char c = text.charAt (i);
+            final String replacement;
+            switch (c)
+            {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = isAttribute ? "&quot;" : null;
+                    break;
+                case '\n':
+                    replacement = isAttribute ? "&#10;" : null;
+                    break;
+                case '\t':
+                    replacement = isAttribute ? "&#9;" : null;
+                    break;
+                case '\r':
+                    replacement = "&#13;";
+                    break;
+                default:
+                    if (c < 0x20 || c == 0xFFFE || c == 0xFFFF)
+                        throw new IOException ("An invalid XML character (Unicode: 0x" + Integer.toHexString (c) + ") was found in: " + text);
+                    if (c >= 0x7F && c <= 0x9F)
+                        replacement = isAttribute ? null : "&#" + (int) c + ";";
+                    else if (Character.isSurrogate (c))
+                    {
+                        if (!Character.isHighSurrogate (c) || i + 1 >= length || !Character.isLowSurrogate (text.charAt (i + 1)))
+                            throw new IOException ("An invalid XML character (Unicode: 0x" + Integer.toHexString (c) + ") was found in: " + text);
+                        writer.write (text, start, i - start);
+                        writer.write ("&#" + Character.toCodePoint (c, text.charAt (i + 1)) + ";");
+                        i++;
+                        start = i + 1;
+                        continue;
+                    }
+                    else
+                        replacement = null;
+                    break;
+            }
+
+            if (replacement != null)
+            {
+                writer.write (text, start, i - start);
+                writer.write (replacement);
+                start = i + 1;
+            }
+        }
+        writer.write (text, start, length - start);
+    }
+}
@@ -9,7 +9,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -46,7 +45,7 @@ import de.mossgrabers.tools.ui.Functions;
 public class KeyMapping
 {
     /** The names of notes. */
-    private static final String []                  NOTE_NAMES_FLAT         =
+    private static final String []   NOTE_NAMES_FLAT         =
     {
         "C",
         "Db",
@@ -61,7 +60,7 @@ public class KeyMapping
         "Bb",
         "B"
     };
-    private static final String []                  NOTE_NAMES_SHARP        =
+    private static final String []   NOTE_NAMES_SHARP        =
     {
         "C",
         "C#",
@@ -77,7 +76,7 @@ public class KeyMapping
         "B"
     };
     /** The names of notes. */
-    private static final String []                  NOTE_NAMES_FLAT_GERMAN  =
+    private static final String []   NOTE_NAMES_FLAT_GERMAN  =
     {
         "C",
         "Db",
@@ -92,7 +91,7 @@ public class KeyMapping
         "Bb",
         "H"
     };
-    private static final String []                  NOTE_NAMES_SHARP_GERMAN =
+    private static final String []   NOTE_NAMES_SHARP_GERMAN =
     {
         "C",
         "C#",
@@ -108,30 +107,33 @@ public class KeyMapping
         "H"
     };
 
-    private static final List<Map<String, Integer>> KEY_MAP                 = new ArrayList<> (10);
+    /** The upper case texts of all MIDI notes in the different naming schemes, indexed by note. */
+    private static final String [][] KEY_MAP                 = new String [10][128];
 
     static
     {
-        for (int i = 0; i < 10; i++)
-            KEY_MAP.add (new HashMap<> ());
-
         // Create note map
         for (int note = 0; note < 128; note++)
         {
             final int n = Math.abs (note % 12);
             final String octave = Integer.toString (note / 12 - 2);
             final Integer ni = Integer.valueOf (note);
-            KEY_MAP.get (0).put (NOTE_NAMES_FLAT[n] + octave, ni);
-            KEY_MAP.get (1).put (NOTE_NAMES_SHARP[n] + octave, ni);
-            KEY_MAP.get (2).put (NOTE_NAMES_FLAT_GERMAN[n] + octave, ni);
-            KEY_MAP.get (3).put (NOTE_NAMES_SHARP_GERMAN[n] + octave, ni);
-            KEY_MAP.get (4).put (NOTE_NAMES_FLAT[n] + "_" + octave, ni);
-            KEY_MAP.get (5).put (NOTE_NAMES_SHARP[n] + "_" + octave, ni);
-            KEY_MAP.get (6).put (NOTE_NAMES_FLAT_GERMAN[n] + "_" + octave, ni);
-            KEY_MAP.get (7).put (NOTE_NAMES_SHARP_GERMAN[n] + "_" + octave, ni);
-            KEY_MAP.get (8).put (String.format ("%03d", ni), ni);
-            KEY_MAP.get (9).put (String.format ("%02d", ni), ni);
+            KEY_MAP[0][note] = NOTE_NAMES_FLAT[n] + octave;
+            KEY_MAP[1][note] = NOTE_NAMES_SHARP[n] + octave;
+            KEY_MAP[2][note] = NOTE_NAMES_FLAT_GERMAN[n] + octave;
+            KEY_MAP[3][note] = NOTE_NAMES_SHARP_GERMAN[n] + octave;
+            KEY_MAP[4][note] = NOTE_NAMES_FLAT[n] + "_" + octave;
+            KEY_MAP[5][note] = NOTE_NAMES_SHARP[n] + "_" + octave;
+            KEY_MAP[6][note] = NOTE_NAMES_FLAT_GERMAN[n] + "_" + octave;
+            KEY_MAP[7][note] = NOTE_NAMES_SHARP_GERMAN[n] + "_" + octave;
+            KEY_MAP[8][note] = String.format ("%03d", ni);
+            KEY_MAP[9][note] = String.format ("%02d", ni);
         }
+
+        // The file names are compared in upper case
+        for (final String [] noteNames: KEY_MAP)
+            for (int note = 0; note < noteNames.length; note++)
+                noteNames[note] = noteNames[note].toUpperCase (Locale.US);
     }
 
     private final List<IGroup> orderedSampleMetadata;
@@ -146,14 +148,13 @@ public class KeyMapping
      * @param isAscending Sort ascending otherwise descending
      * @param crossfadeNotes The number of notes to cross-fade ranges
      * @param crossfadeVelocities The number of velocity steps to cross-fade ranges
-     * @param groupPatterns The group patterns
-     * @param leftChannelPatterns The left channel detection patterns
+     * @param namePatterns The patterns to detect the groups and the left channels
      * @throws MultisampleException Found duplicated MIDI notes
      * @throws CombinationNotPossibleException Could not create stereo files
      */
-    public KeyMapping (final List<IFileBasedSampleData> sampleData, final boolean isAscending, final int crossfadeNotes, final int crossfadeVelocities, final String [] groupPatterns, final String [] leftChannelPatterns) throws MultisampleException, CombinationNotPossibleException
+    public KeyMapping (final List<IFileBasedSampleData> sampleData, final boolean isAscending, final int crossfadeNotes, final int crossfadeVelocities, final SampleNamePatterns namePatterns) throws MultisampleException, CombinationNotPossibleException
     {
-        this.orderedSampleMetadata = this.createGroups (sampleData, isAscending, crossfadeNotes, groupPatterns, leftChannelPatterns);
+        this.orderedSampleMetadata = this.createGroups (sampleData, isAscending, crossfadeNotes, namePatterns);
         this.name = findCommonPrefix (new ArrayList<> (this.extractedNames));
 
         // Calculate velocity cross-fades
@@ -212,16 +213,15 @@ public class KeyMapping
      * @param sampleData The sample data from which to get the filenames and set the key ranges.
      * @param isAscending Sort ascending otherwise descending
      * @param crossfadeNotes The number of notes to cross-fade ranges
-     * @param groupPatterns The group patterns
-     * @param leftChannelPatterns The left channel detection patterns
+     * @param namePatterns The patterns to detect the groups and the left channels
      * @return The created groups
      * @throws MultisampleException Found duplicated MIDI notes
      * @throws CombinationNotPossibleException Could not create stereo files
      */
-    private List<IGroup> createGroups (final List<IFileBasedSampleData> sampleData, final boolean isAscending, final int crossfadeNotes, final String [] groupPatterns, final String [] leftChannelPatterns) throws MultisampleException, CombinationNotPossibleException
+    private List<IGroup> createGroups (final List<IFileBasedSampleData> sampleData, final boolean isAscending, final int crossfadeNotes, final SampleNamePatterns namePatterns) throws MultisampleException, CombinationNotPossibleException
     {
         final Map<Integer, List<ISampleZone>> sampleMetadata = new TreeMap<> ();
-        final Map<Integer, List<ISampleZone>> groups = detectGroups (sampleData, groupPatterns);
+        final Map<Integer, List<ISampleZone>> groups = detectGroups (sampleData, namePatterns);
 
         for (final Entry<Integer, List<ISampleZone>> entry: groups.entrySet ())
         {
@@ -230,7 +230,7 @@ public class KeyMapping
                 this.extractedNames.add (zone.getName ());
 
             final Map<Integer, List<ISampleZone>> noteMap = detectNotes (group);
-            final Map<Integer, ISampleZone> groupNoteMap = convertSplitStereo (noteMap, leftChannelPatterns);
+            final Map<Integer, ISampleZone> groupNoteMap = convertSplitStereo (noteMap, namePatterns.getLeftChannelPatterns ());
             sampleMetadata.put (entry.getKey (), createKeyMaps (groupNoteMap));
 
             if (crossfadeNotes > 0 && crossfadeNotes < 128)
@@ -434,17 +434,17 @@ public class KeyMapping
      * Detect groups.
      *
      * @param sampleData Info about all available samples
-     * @param groupPatterns The patterns to match for groups
+     * @param namePatterns The patterns to match for groups
      * @return The detected groups
      * @throws MultisampleException There was a pattern detected but (or more) of the samples could
      *             not be matched
      */
-    private static Map<Integer, List<ISampleZone>> detectGroups (final List<IFileBasedSampleData> sampleData, final String [] groupPatterns) throws MultisampleException
+    private static Map<Integer, List<ISampleZone>> detectGroups (final List<IFileBasedSampleData> sampleData, final SampleNamePatterns namePatterns) throws MultisampleException
     {
         final Map<Integer, List<ISampleZone>> groups = new TreeMap<> ();
 
         // If no groups are detected create one group which contains all samples
-        final Optional<Pattern> patternResult = getGroupPattern (sampleData, groupPatterns);
+        final Optional<Pattern> patternResult = getGroupPattern (sampleData, namePatterns);
         if (patternResult.isEmpty ())
         {
             final List<ISampleZone> zones = new ArrayList<> (sampleData.size ());
@@ -485,39 +485,15 @@ public class KeyMapping
      * Check if one of the group patterns matches.
      *
      * @param sampleData The sample data
-     * @param groupPatterns The patterns to detect groups
+     * @param namePatterns The patterns to detect groups
      * @return The matching pattern or null
      * @throws MultisampleException If a pattern could not be parsed
      */
-    private static Optional<Pattern> getGroupPattern (final List<IFileBasedSampleData> sampleData, final String [] groupPatterns) throws MultisampleException
+    private static Optional<Pattern> getGroupPattern (final List<IFileBasedSampleData> sampleData, final SampleNamePatterns namePatterns) throws MultisampleException
     {
-        if (groupPatterns.length == 0 || sampleData.isEmpty ())
+        if (sampleData.isEmpty ())
             return Optional.empty ();
-        final String filename = FileUtils.getNameWithoutType (sampleData.get (0).getFilename ());
-        for (final String groupPattern: groupPatterns)
-        {
-            final String [] parts = groupPattern.split ("\\*");
-            String query;
-
-            if (parts.length == 1)
-            {
-                // * is at the end or the beginning
-                if (groupPattern.endsWith ("*"))
-                    query = "(?<prefix>.*)" + Pattern.quote (parts[0]) + "(?<value>\\d+)(?<postfix>.*)";
-                else
-                    query = "(?<prefix>.*)(?<value>\\d+)" + Pattern.quote (parts[0]) + "(?<postfix>.*)";
-            }
-            else if (parts.length == 2)
-                // * is in the middle
-                query = "(?<prefix>.*)" + Pattern.quote (parts[0]) + "(?<value>\\d+)" + Pattern.quote (parts[1]) + "(?<postfix>.*)";
-            else
-                throw new MultisampleException (Functions.getMessage ("IDS_WAV_ERR_IN_GROUP_PATTERN", groupPattern));
-
-            final Pattern p = Pattern.compile (query);
-            if (p.matcher (filename).matches ())
-                return Optional.of (p);
-        }
-        return Optional.empty ();
+        return namePatterns.findGroupPattern (FileUtils.getNameWithoutType (sampleData.get (0).getFilename ()));
     }
 
 
@@ -562,20 +538,26 @@ public class KeyMapping
         if (zones.isEmpty ())
             return new TreeMap<> ();
 
+        // Prepare the names only once for all key maps
+        final int numZones = zones.size ();
+        final String [] noteAreas = new String [numZones];
+        for (int i = 0; i < numZones; i++)
+            noteAreas[i] = FileUtils.getNameWithoutType (new File (zones.get (i).getName ())).toUpperCase (Locale.US);
+
         // Collect all potential key maps which match all sample names
         final Set<Integer> potentialKeyMaps = new TreeSet<> ();
+        final int [][] midiNotes = new int [KEY_MAP.length][numZones];
         String filename = "";
-        for (int keyMapIndex = 0; keyMapIndex < KEY_MAP.size (); keyMapIndex++)
+        for (int keyMapIndex = 0; keyMapIndex < KEY_MAP.length; keyMapIndex++)
         {
-            final Map<String, Integer> keyMap = KEY_MAP.get (keyMapIndex);
             int midiNote = -1;
-            for (final ISampleZone zone: zones)
+            for (int i = 0; i < numZones; i++)
             {
-                filename = zone.getName ();
-                midiNote = lookupMidiNote (keyMap, filename);
+                filename = zones.get (i).getName ();
+                midiNote = lookupMidiNote (KEY_MAP[keyMapIndex], noteAreas[i]);
+                midiNotes[keyMapIndex][i] = midiNote;
                 if (midiNote < 0)
                     break;
-
             }
 
             // Did all sample names match?
@@ -592,12 +574,9 @@ public class KeyMapping
         for (final Integer keyMapIndex: potentialKeyMaps)
         {
             final Map<Integer, List<ISampleZone>> orderedByNote = new TreeMap<> ();
-            final Map<String, Integer> keyMap = KEY_MAP.get (keyMapIndex.intValue ());
-            for (final ISampleZone zone: zones)
-            {
-                final int midiNote = lookupMidiNote (keyMap, zone.getName ());
-                orderedByNote.computeIfAbsent (Integer.valueOf (midiNote), _ -> new ArrayList<> ()).add (zone);
-            }
+            final int [] notes = midiNotes[keyMapIndex.intValue ()];
+            for (int i = 0; i < numZones; i++)
+                orderedByNote.computeIfAbsent (Integer.valueOf (notes[i]), _ -> new ArrayList<> ()).add (zones.get (i));
 
             result = decidePreferred (result, orderedByNote);
         }
@@ -718,23 +697,20 @@ public class KeyMapping
     /**
      * Parse the MIDI note from (a part of) the filename.
      *
-     * @param keyMap The key map to use
-     * @param filename The filename
+     * @param noteNames The upper case names of the notes of one naming scheme, indexed by note
+     * @param noteArea The filename without its type in upper case
      * @return The MIDI note value (0-127) or -1 if not found
      */
-    private static int lookupMidiNote (final Map<String, Integer> keyMap, final String filename)
+    private static int lookupMidiNote (final String [] noteNames, final String noteArea)
     {
-        final String fn = FileUtils.getNameWithoutType (new File (filename));
-        final String noteArea = fn.toUpperCase (Locale.US);
-
         int pos = -1;
         String str = "";
         int note = 0;
 
         // Test if one of the notes is a part of the text
-        for (final Map.Entry<String, Integer> e: keyMap.entrySet ())
+        for (int i = 0; i < noteNames.length; i++)
         {
-            final String n = e.getKey ().toUpperCase (Locale.US);
+            final String n = noteNames[i];
             final int p = noteArea.lastIndexOf (n);
             if (p == -1)
                 continue;
@@ -747,7 +723,7 @@ public class KeyMapping
             {
                 pos = p;
                 str = n;
-                note = e.getValue ().intValue ();
+                note = i;
             }
         }
 
@@ -0,0 +1,205 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.format;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Finds all of a fixed set of patterns in a text with a single pass over its characters (an
+ * Aho-Corasick automaton). The patterns are compiled once into a table of state transitions, so the
+ * time to scan a text does not depend on the number of patterns.
+ *
+ * @author Jürgen Moßgraber
+ */
+class MultiPatternMatcher
+{
+    private final String []               patterns;
+    /** Maps the characters which appear in the patterns to a column of the transition table. */
+    private final byte []                 asciiColumns = new byte [128];
+    private final Map<Character, Integer> otherColumns = new HashMap<> ();
+    private final int                     numColumns;
+    private final int []                  transitions;
+    private final int []                  depths;
+    /** The index of the pattern which ends in a state, -1 if none. */
+    private final int []                  terminals;
+    /** The indices of all patterns which end in a state, including the ones which are suffixes. */
+    private final int [] []               outputs;
+
+
+    /**
+     * Constructor.
+     *
+     * @param patterns The patterns to find, the index of a pattern in the list identifies it in the
+     *            results
+     */
+    MultiPatternMatcher (final List<String> patterns)
+    {
+        this.patterns = patterns.toArray (new String [patterns.size ()]);
+
+        // Column 0 is for all characters which do not appear in any pattern
+        int columns = 1;
+        int numStates = 1;
+        for (final String pattern: this.patterns)
+        {
+            numStates += pattern.length ();
+            for (int i = 0; i < pattern.length (); i++)
+            {
+                final char c = pattern.charAt (i);
+                if (c < 128)
+                {
+                    if (this.asciiColumns[c] == 0)
+                        this.asciiColumns[c] = (byte) columns++;
+                }
+                else if (!this.otherColumns.containsKey (Character.valueOf (c)))
+                    this.otherColumns.put (Character.valueOf (c), Integer.valueOf (columns++));
+            }
+        }
+        if (columns > Byte.MAX_VALUE)
+            throw new IllegalArgumentException ("Too many different characters in the patterns.");
+        this.numColumns = columns;
+
+        // Build the tree of all patterns, -1 marks a missing transition
+        final int [] gotos = new int [numStates * columns];
+        Arrays.fill (gotos, -1);
+        final int [] stateDepths = new int [numStates];
+        final int [] stateTerminals = new int [numStates];
+        Arrays.fill (stateTerminals, -1);
+        int stateCount = 1;
+        for (int p = 0; p < this.patterns.length; p++)
+        {
+            int state = 0;
+            final String pattern = this.patterns[p];
+            for (int i = 0; i < pattern.length (); i++)
+            {
+                final int index = state * columns + this.getColumn (pattern.charAt (i));
+                if (gotos[index] < 0)
+                {
+                    stateDepths[stateCount] = stateDepths[state] + 1;
+                    gotos[index] = stateCount++;
+                }
+                state = gotos[index];
+            }
+            if (stateTerminals[state] < 0)
+                stateTerminals[state] = p;
+        }
+
+        // Add the fail transitions in breadth-first order, which turns the tree into an automaton
+        // with exactly one transition per state and character
+        this.transitions = Arrays.copyOf (gotos, stateCount * columns);
+        this.depths = Arrays.copyOf (stateDepths, stateCount);
+        this.terminals = Arrays.copyOf (stateTerminals, stateCount);
+        this.outputs = new int [stateCount] [];
+        final int [] fails = new int [stateCount];
+        final int [] queue = new int [stateCount];
+        int head = 0;
+        int tail = 0;
+        this.outputs[0] = new int [0];
+        for (int c = 0; c < columns; c++)
+        {
+            final int next = this.transitions[c];
+            if (next < 0)
+                this.transitions[c] = 0;
+            else
+                queue[tail++] = next;
+        }
+        while (head < tail)
+        {
+            final int state = queue[head++];
+            final int fail = fails[state];
+            final int [] inherited = this.outputs[fail];
+            final int terminal = this.terminals[state];
+            if (terminal < 0)
+                this.outputs[state] = inherited;
+            else
+            {
+                this.outputs[state] = Arrays.copyOf (inherited, inherited.length + 1);
+                this.outputs[state][inherited.length] = terminal;
+            }
+
+            for (int c = 0; c < columns; c++)
+            {
+                final int index = state * columns + c;
+                final int next = this.transitions[index];
+                if (next < 0)
+                    this.transitions[index] = this.transitions[fail * columns + c];
+                else
+                {
+                    fails[next] = this.transitions[fail * columns + c];
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Get a pattern.
+     *
+     * @param index The index of the pattern
+     * @return The pattern
+     */
+    String getPattern (final int index)
+    {
+        return this.patterns[index];
+    }
+
+
+    /**
+     * Find all patterns which are contained in the text.
+     *
+     * @param text The text to scan
+     * @return The flags of the found patterns, indexed like the patterns
+     */
+    boolean [] findAll (final String text)
+    {
+        final boolean [] found = new boolean [this.patterns.length];
+        int state = 0;
+        for (int i = 0; i < text.length (); i++)
+        {
+            state = this.transitions[state * this.numColumns + this.getColumn (text.charAt (i))];
+            for (final int pattern: this.outputs[state])
+                found[pattern] = true;
+        }
+        return found;
+    }
+
+
+    /**
+     * Find the longest pattern which starts at the given position of the text.
+     *
+     * @param text The text
+     * @param start The position at which the pattern needs to start
+     * @return The index of the pattern or -1 if no pattern starts at that position
+     */
+    int matchLongestAt (final String text, final int start)
+    {
+        int match = -1;
+        int state = 0;
+        for (int i = start; i < text.length (); i++)
+        {
+            final int next = this.transitions[state * this.numColumns + this.getColumn (text.charAt (i))];
+            // Only a step into the next level of the tree continues the pattern from the start
+            if (this.depths[next] != this.depths[state] + 1)
+                break;
+            state = next;
+            if (this.terminals[state] >= 0)
+                match = this.terminals[state];
+        }
+        return match;
+    }
+
+
+    private int getColumn (final char c)
+    {
+        if (c < 128)
+            return this.asciiColumns[c];
+        final Integer column = this.otherColumns.get (Character.valueOf (c));
+        return column == null ? 0 : column.intValue ();
+    }
+}
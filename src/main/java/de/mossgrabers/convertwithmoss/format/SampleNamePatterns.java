@@ -0,0 +1,106 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.format;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import de.mossgrabers.convertwithmoss.exception.MultisampleException;
+import de.mossgrabers.tools.ui.Functions;
+
+
+/**
+ * The patterns which detect the groups and the left channel of split stereo files from the names
+ * of sample files. A group pattern contains a '*' which stands for the number of the group, e.g.
+ * '_ms*_' matches 'Piano_ms2_C3'. The patterns are compiled once when they are created and can
+ * then be used for all folders of a conversion run.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class SampleNamePatterns
+{
+    private final String []     groupPatterns;
+    private final List<Pattern> compiledGroupPatterns;
+    private final String []     leftChannelPatterns;
+
+
+    /**
+     * Constructor.
+     *
+     * @param groupPatterns The patterns to detect groups
+     * @param leftChannelPatterns The patterns to detect the left channel, e.g. '_L'
+     */
+    public SampleNamePatterns (final String [] groupPatterns, final String [] leftChannelPatterns)
+    {
+        this.groupPatterns = groupPatterns.clone ();
+        this.leftChannelPatterns = leftChannelPatterns.clone ();
+
+        this.compiledGroupPatterns = new ArrayList<> (groupPatterns.length);
+        for (final String groupPattern: groupPatterns)
+            this.compiledGroupPatterns.add (compileGroupPattern (groupPattern));
+    }
+
+
+    /**
+     * Get the group pattern which matches the given name. The patterns are tested in their order.
+     *
+     * @param name The name of a sample file without its file type
+     * @return The matching pattern, empty if none matches; the number of the group is in its
+     *         matcher group 'value'
+     * @throws MultisampleException A pattern which was tested could not be parsed
+     */
+    public Optional<Pattern> findGroupPattern (final String name) throws MultisampleException
+    {
+        for (int i = 0; i < this.groupPatterns.length; i++)
+        {
+            final Pattern pattern = this.compiledGroupPatterns.get (i);
+            if (pattern == null)
+                throw new MultisampleException (Functions.getMessage ("IDS_WAV_ERR_IN_GROUP_PATTERN", this.groupPatterns[i]));
+            if (pattern.matcher (name).matches ())
+                return Optional.of (pattern);
+        }
+        return Optional.empty ();
+    }
+
+
+    /**
+     * Get the patterns which detect the left channel of split stereo files.
+     *
+     * @return The patterns
+     */
+    public String [] getLeftChannelPatterns ()
+    {
+        return this.leftChannelPatterns;
+    }
+
+
+    /**
+     * Create the regular expression of a group pattern.
+     *
+     * @param groupPattern The group pattern
+     * @return The compiled expression or null if the pattern contains more than one '*'
+     */
+    private static Pattern compileGroupPattern (final String groupPattern)
+    {
+        final String [] parts = groupPattern.split ("\\*");
+        final String query;
+        if (parts.length == 1)
+        {
+            // * is at the end or the beginning
+            if (groupPattern.endsWith ("*"))
+                query = "(?<prefix>.*)" + Pattern.quote (parts[0]) + "(?<value>\\d+)(?<postfix>.*)";
+            else
+                query = "(?<prefix>.*)(?<value>\\d+)" + Pattern.quote (parts[0]) + "(?<postfix>.*)";
+        }
+        else if (parts.length == 2)
+            // * is in the middle
+            query = "(?<prefix>.*)" + Pattern.quote (parts[0]) + "(?<value>\\d+)" + Pattern.quote (parts[1]) + "(?<postfix>.*)";
+        else
+            return null;
+        return Pattern.compile (query);
+    }
+}
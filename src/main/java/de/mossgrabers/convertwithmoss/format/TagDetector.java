@@ -32,6 +32,9 @@ public class TagDetector
     private static final Map<String, String>    CATEGORY_PREFIX_LOOKUP        = new HashMap<> ();
     private static final Map<String, String>    KEYWORD_LOOKUP                = new TreeMap<> (new StringLengthComparator ());
     private static final List<String>           WORD_DICT                     = new ArrayList<> ();
+    private static final MultiPatternMatcher    CATEGORY_MATCHER;
+    private static final MultiPatternMatcher    KEYWORD_MATCHER;
+    private static final MultiPatternMatcher    WORD_MATCHER;
 
     public static final String                  CATEGORY_UNKNOWN              = "Unknown";
     public static final String                  CATEGORY_ACOUSTIC_DRUM        = "Acoustic Drum";
@@ -613,6 +616,11 @@ public class TagDetector
         for (final String w: words)
             WORD_DICT.add (w.toUpperCase (Locale.ROOT));
         WORD_DICT.sort ((a, b) -> Integer.compare (b.length (), a.length ()));
+
+        // Compile the lookups, so that each text is scanned only once for all of them
+        CATEGORY_MATCHER = new MultiPatternMatcher (new ArrayList<> (CATEGORY_LOOKUP.keySet ()));
+        KEYWORD_MATCHER = new MultiPatternMatcher (new ArrayList<> (KEYWORD_LOOKUP.keySet ()));
+        WORD_MATCHER = new MultiPatternMatcher (WORD_DICT);
     }
 
 
@@ -696,7 +704,22 @@ public class TagDetector
             if (category.isPresent ())
                 return category.get ();
         }
-        return detect (texts, CATEGORY_LOOKUP, CATEGORY_UNKNOWN);
+
+        // Same as detect (texts, CATEGORY_LOOKUP, CATEGORY_UNKNOWN) but with a single pass over
+        // each text. The found keys are added in the order of the lookup map, which keeps the
+        // choice between keys of the same length identical
+        final Map<String, String> results = new HashMap<> ();
+        for (final String text: texts)
+        {
+            final boolean [] found = CATEGORY_MATCHER.findAll (text.toUpperCase (Locale.US));
+            for (int i = 0; i < found.length; i++)
+                if (found[i])
+                {
+                    final String key = CATEGORY_MATCHER.getPattern (i);
+                    results.put (key, CATEGORY_LOOKUP.get (key));
+                }
+        }
+        return getLongestMatch (results, CATEGORY_UNKNOWN);
     }
 
 
@@ -748,10 +771,10 @@ public class TagDetector
         final Set<String> keywords = new HashSet<> ();
         for (final String text: texts)
         {
-            final String t = text.toUpperCase (Locale.US);
-            for (final Map.Entry<String, String> e: KEYWORD_LOOKUP.entrySet ())
-                if (t.contains (e.getKey ()))
-                    keywords.add (e.getValue ());
+            final boolean [] found = KEYWORD_MATCHER.findAll (text.toUpperCase (Locale.US));
+            for (int i = 0; i < found.length; i++)
+                if (found[i])
+                    keywords.add (KEYWORD_LOOKUP.get (KEYWORD_MATCHER.getPattern (i)));
         }
         return keywords.toArray (new String [keywords.size ()]);
     }
@@ -821,6 +844,12 @@ public class TagDetector
                     results.put (key, e.getValue ());
             }
         }
+        return getLongestMatch (results, defaultTag);
+    }
+
+
+    private static String getLongestMatch (final Map<String, String> results, final String defaultTag)
+    {
         if (results.isEmpty ())
             return defaultTag;
         return Collections.max (results.entrySet (), (entry1, entry2) -> entry1.getKey ().length () - entry2.getKey ().length ()).getValue ();
@@ -860,18 +889,15 @@ public class TagDetector
         int i = 0;
         while (i < s.length ())
         {
-            boolean matched = false;
-
-            for (final String w: WORD_DICT)
-                if (s.startsWith (w, i))
-                {
-                    out.append (capitalize (w));
-                    i += w.length ();
-                    matched = true;
-                    break;
-                }
-
-            if (!matched)
+            // The longest word which starts at this position
+            final int match = WORD_MATCHER.matchLongestAt (s, i);
+            if (match >= 0)
+            {
+                final String w = WORD_MATCHER.getPattern (match);
+                out.append (capitalize (w));
+                i += w.length ();
+            }
+            else
             {
                 // Fallback: single character
                 out.append (Character.toLowerCase (s.charAt (i)));
@@ -8,7 +8,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -23,8 +22,6 @@ import java.util.zip.GZIPInputStream;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
@@ -47,7 +44,8 @@ import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultGroup;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleLoop;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZone;
 import de.mossgrabers.convertwithmoss.core.settings.MetadataSettingsUI;
-import de.mossgrabers.convertwithmoss.file.StreamUtils;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLReader;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLReader.Selection;
 import de.mossgrabers.tools.FileUtils;
 import de.mossgrabers.tools.Pair;
 import de.mossgrabers.tools.XMLUtils;
@@ -98,10 +96,13 @@ public class AbletonDetector extends AbstractDetector<MetadataSettingsUI>
     {
         this.previousSampleFolder = null;
 
-        try (final InputStream in = new GZIPInputStream (new FileInputStream (file)))
+        if (this.waitForDelivery ())
+            return Collections.emptyList ();
+
+        try (final InputStream in = new GZIPInputStream (new FileInputStream (file), 64 * 1024))
         {
-            final String multiSampleFileContent = StreamUtils.readUtf8 (in);
-            return this.readMetadataFile (file, multiSampleFileContent);
+            final Document document = readSamplerDocument (in);
+            return this.parseDescription (file, document);
         }
         catch (final IOException ex)
         {
@@ -112,28 +113,36 @@ public class AbletonDetector extends AbstractDetector<MetadataSettingsUI>
 
 
     /**
-     * Read the metadata description file.
+     * Read the XML document of a preset but only with the elements which are needed to read the
+     * sampler devices: the sampler devices and the reference to the preset file of a rack. All other
+     * devices of a rack (and their parameters) are skipped while the (uncompressed) document is
+     * read.
      *
-     * @param multiSampleFile The file
-     * @param multiSampleFileContent The XML description file content
-     * @return The result
-     * @throws IOException Error reading the file
+     * @param in The stream with the uncompressed XML document
+     * @return The document
+     * @throws IOException Could not read or parse the document
      */
-    private List<IMultisampleSource> readMetadataFile (final File multiSampleFile, final String multiSampleFileContent) throws IOException
+    public static Document readSamplerDocument (final InputStream in) throws IOException
     {
-        if (this.waitForDelivery ())
-            return Collections.emptyList ();
+        return StreamingXMLReader.read (in, AbletonDetector::selectElement);
+    }
 
-        try
-        {
-            final Document document = XMLUtils.parseDocument (new InputSource (new StringReader (multiSampleFileContent)));
-            return this.parseDescription (multiSampleFile, document);
-        }
-        catch (final SAXException ex)
-        {
-            this.notifier.logError ("IDS_NOTIFY_ERR_BAD_METADATA_FILE", ex);
-            return Collections.emptyList ();
-        }
+
+    /**
+     * Select the elements of the document which are read.
+     *
+     * @param name The name of the element
+     * @param depth The depth of the element
+     * @return Keeps the sampler devices and the preset reference of a rack, all other elements are
+     *         only kept if they contain one of them
+     */
+    private static Selection selectElement (final String name, final int depth)
+    {
+        if (AbletonTag.TAG_DEVICE_SIMPLER.equals (name) || AbletonTag.TAG_DEVICE_SAMPLER.equals (name))
+            return Selection.KEEP;
+        if (depth == 2 && (AbletonTag.TAG_PRESET_REF.equals (name) || AbletonTag.TAG_LAST_PRESET_REF.equals (name)))
+            return Selection.KEEP;
+        return Selection.ANCESTOR;
     }
 
 
@@ -7,50 +7,56 @@ package de.mossgrabers.convertwithmoss.format.akai.mpc;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.w3c.dom.Element;
+import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
+import de.mossgrabers.convertwithmoss.core.model.enumeration.TriggerType;
 
 
 /**
- * Helper class for keeping track of created keygroups.
+ * Helper class for keeping track of created keygroups. The settings of a keygroup are taken from
+ * the zone which created it, each of its layers is a zone.
  *
  * @author Jürgen Moßgraber
  */
 public class MPCKeygroup
 {
-    private final boolean       isSequence;
-    private final Element       layersElement;
-    private final List<Element> layerElements = new ArrayList<> ();
-    private final int           velocityLow;
-    private final int           velocityHigh;
+    private final boolean           isSequence;
+    private final ISampleZone       zone;
+    private final TriggerType       trigger;
+    private final List<ISampleZone> layers = new ArrayList<> ();
+    private final int               velocityLow;
+    private final int               velocityHigh;
 
 
     /**
      * Constructor for a velocity keygroup.
      *
-     * @param layersElement The layers element
+     * @param zone The zone from which to take the settings of the keygroup
+     * @param trigger The trigger type of the group of the zone
      */
-    public MPCKeygroup (final Element layersElement)
+    public MPCKeygroup (final ISampleZone zone, final TriggerType trigger)
     {
-        this (layersElement, -1, -1, false);
+        this (zone, trigger, -1, -1, false);
     }
 
 
     /**
      * Constructor for a sequence keygroup.
      *
-     * @param layersElement The layers element
+     * @param zone The zone from which to take the settings of the keygroup
+     * @param trigger The trigger type of the group of the zone
      * @param velocityLow The bottom velocity
      * @param velocityHigh The upper velocity
      */
-    public MPCKeygroup (final Element layersElement, final int velocityLow, final int velocityHigh)
+    public MPCKeygroup (final ISampleZone zone, final TriggerType trigger, final int velocityLow, final int velocityHigh)
     {
-        this (layersElement, velocityLow, velocityHigh, true);
+        this (zone, trigger, velocityLow, velocityHigh, true);
     }
 
 
-    private MPCKeygroup (final Element layersElement, final int velocityLow, final int velocityHigh, final boolean isSequence)
+    private MPCKeygroup (final ISampleZone zone, final TriggerType trigger, final int velocityLow, final int velocityHigh, final boolean isSequence)
     {
-        this.layersElement = layersElement;
+        this.zone = zone;
+        this.trigger = trigger;
         this.velocityLow = velocityLow;
         this.velocityHigh = velocityHigh;
         this.isSequence = isSequence;
@@ -68,15 +74,47 @@ public class MPCKeygroup
     }
 
 
+    /**
+     * Get the zone from which the settings of the keygroup are taken.
+     *
+     * @return The zone
+     */
+    public ISampleZone getZone ()
+    {
+        return this.zone;
+    }
+
+
+    /**
+     * Get the trigger type of the group of the zone.
+     *
+     * @return The trigger type
+     */
+    public TriggerType getTrigger ()
+    {
+        return this.trigger;
+    }
+
+
     /**
      * Add a layer to the keygroup.
      *
-     * @param layerElement The layer to add
+     * @param layer The zone of the layer to add
+     */
+    public void addLayer (final ISampleZone layer)
+    {
+        this.layers.add (layer);
+    }
+
+
+    /**
+     * Get the layers of the keygroup.
+     *
+     * @return The zones of the layers
      */
-    public void addLayer (final Element layerElement)
+    public List<ISampleZone> getLayers ()
     {
-        this.layersElement.appendChild (layerElement);
-        this.layerElements.add (layerElement);
+        return this.layers;
     }
 
 
@@ -87,7 +125,7 @@ public class MPCKeygroup
      */
     public int getLayerCount ()
     {
-        return this.layerElements.size ();
+        return this.layers.size ();
     }
 
 
@@ -6,11 +6,12 @@ package de.mossgrabers.convertwithmoss.format.akai.mpc;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,9 +20,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.zip.GZIPOutputStream;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.algorithm.MathUtils;
@@ -34,8 +32,8 @@ import de.mossgrabers.convertwithmoss.core.model.ISampleLoop;
 import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.PlayLogic;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.TriggerType;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.tools.FileUtils;
-import de.mossgrabers.tools.XMLUtils;
 
 
 /**
@@ -84,14 +82,18 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
 
         // Create the metadata file
         final File multiFile = new File (sampleFolder, sampleName + ".xpm");
-        final Optional<String> metadata = this.createXmlDocument (multisampleSource, sampleName);
-        if (metadata.isEmpty ())
-            return;
+        final List<MPCKeygroup> keygroups = this.createKeygroups (multisampleSource);
 
         this.notifier.log ("IDS_NOTIFY_STORING", multiFile.getAbsolutePath ());
-        try (final FileWriter writer = new FileWriter (multiFile, StandardCharsets.UTF_8))
+        try (final OutputStream out = new FileOutputStream (multiFile))
+        {
+            writeMetadata (out, multisampleSource, sampleName, keygroups);
+        }
+        catch (final IOException ex)
         {
-            writer.write (metadata.get ());
+            Files.deleteIfExists (multiFile.toPath ());
+            this.notifier.logError (ex);
+            return;
         }
 
         // Store all samples - WAV ending needs to be upper case!
@@ -144,33 +146,15 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
 
 
     /**
-     * Create the text of the description file.
+     * Distribute the zones of all groups to the keygroups.
      *
      * @param multisampleSource The multi-sample
-     * @param sampleName The name of the multi-sample
-     * @return The XML structure
+     * @return The keygroups in the order of their numbers
      */
-    private Optional<String> createXmlDocument (final IMultisampleSource multisampleSource, final String sampleName)
+    private List<MPCKeygroup> createKeygroups (final IMultisampleSource multisampleSource)
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element multisampleElement = document.createElement (MPCKeygroupTag.ROOT);
-        document.appendChild (multisampleElement);
-        final Element versionElement = document.createElement (MPCKeygroupTag.ROOT_VERSION);
-        multisampleElement.appendChild (versionElement);
-        XMLUtils.addTextElement (document, versionElement, MPCKeygroupTag.VERSION_FILE_VERSION, MPCKeygroupConstants.FILE_VERSION);
-        XMLUtils.addTextElement (document, versionElement, MPCKeygroupTag.VERSION_PLATFORM, MPCKeygroupConstants.PLATFORM);
-
-        final Element programElement = createProgramElement (document, multisampleSource);
-        multisampleElement.appendChild (programElement);
-        final Element instrumentsElement = document.createElement (MPCKeygroupTag.PROGRAM_INSTRUMENTS);
-        programElement.appendChild (instrumentsElement);
-
         final Map<String, List<MPCKeygroup>> keygroupsMap = new HashMap<> ();
+        final List<MPCKeygroup> allKeygroups = new ArrayList<> ();
 
         // Need to stack the parts of groups in key ranges
         for (final IGroup group: multisampleSource.getGroups ())
@@ -179,40 +163,71 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
 
             for (final ISampleZone sampleMetadata: group.getSampleZones ())
             {
-                final Optional<MPCKeygroup> keygroupOpt = this.getKeygroup (keygroupsMap, sampleMetadata, document, instrumentsElement, trigger);
+                final Optional<MPCKeygroup> keygroupOpt = this.getKeygroup (keygroupsMap, allKeygroups, sampleMetadata, trigger);
                 if (keygroupOpt.isEmpty ())
                 {
                     this.notifier.logError ("IDS_MPC_MORE_THAN_N_LAYERS", Integer.toString (this.settingsConfiguration.getLayerLimit ()), Integer.toString (sampleMetadata.getKeyLow ()), Integer.toString (sampleMetadata.getKeyHigh ()), Integer.toString (sampleMetadata.getVelocityLow ()), Integer.toString (sampleMetadata.getVelocityHigh ()));
                     continue;
                 }
 
-                final MPCKeygroup keygroup = keygroupOpt.get ();
-                keygroup.addLayer (createLayerElement (document, keygroup.getLayerCount (), sampleMetadata, sampleName));
+                keygroupOpt.get ().addLayer (sampleMetadata);
             }
         }
 
-        final int size = calcInstrumentNumber (keygroupsMap) - 1;
+        final int size = allKeygroups.size ();
         if (size > 128)
             this.notifier.logError ("IDS_MPC_MORE_THAN_128_KEYGROUPS", Integer.toString (size));
-        XMLUtils.addTextElement (document, programElement, MPCKeygroupTag.PROGRAM_NUM_KEYGROUPS, Integer.toString (size));
+        return allKeygroups;
+    }
+
+
+    /**
+     * Write the description file.
+     *
+     * @param outputStream Where to write the XML text
+     * @param multisampleSource The multi-sample
+     * @param sampleName The name of the multi-sample
+     * @param keygroups The keygroups to write
+     * @throws IOException Could not write the XML text
+     */
+    private static void writeMetadata (final OutputStream outputStream, final IMultisampleSource multisampleSource, final String sampleName, final List<MPCKeygroup> keygroups) throws IOException
+    {
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (outputStream, true))
+        {
+            writer.startElement (MPCKeygroupTag.ROOT);
+            writer.startElement (MPCKeygroupTag.ROOT_VERSION);
+            writer.textElement (MPCKeygroupTag.VERSION_FILE_VERSION, MPCKeygroupConstants.FILE_VERSION);
+            writer.textElement (MPCKeygroupTag.VERSION_PLATFORM, MPCKeygroupConstants.PLATFORM);
+            writer.endElement ();
+
+            writer.startElement (MPCKeygroupTag.ROOT_PROGRAM);
+            writeProgramSettings (writer, multisampleSource);
 
-        return this.createXMLString (document);
+            writer.startElement (MPCKeygroupTag.PROGRAM_INSTRUMENTS);
+            for (int i = 0; i < keygroups.size (); i++)
+                writeInstrument (writer, keygroups.get (i), i + 1, sampleName);
+            writer.endElement ();
+
+            writer.textElement (MPCKeygroupTag.PROGRAM_NUM_KEYGROUPS, Integer.toString (keygroups.size ()));
+            writer.endElement ();
+
+            writer.endElement ();
+        }
     }
 
 
     /**
-     * Creates a program element.
+     * Writes the settings of the program element.
      *
-     * @param document The XML document
+     * @param writer Where to write the XML
      * @param multisampleSource The multi-sample source
-     * @return The created element
+     * @throws IOException Could not write the XML
      */
-    private static Element createProgramElement (final Document document, final IMultisampleSource multisampleSource)
+    private static void writeProgramSettings (final StreamingXMLWriter writer, final IMultisampleSource multisampleSource) throws IOException
     {
-        final Element programElement = document.createElement (MPCKeygroupTag.ROOT_PROGRAM);
-        programElement.setAttribute (MPCKeygroupTag.PROGRAM_TYPE, MPCKeygroupTag.TYPE_KEYGROUP);
-        XMLUtils.addTextElement (document, programElement, MPCKeygroupTag.PROGRAM_NAME, multisampleSource.getName ());
-        programElement.appendChild (document.createElement (MPCKeygroupTag.PROGRAM_PADS + MPCKeygroupConstants.APP_VERSION));
+        writer.attribute (MPCKeygroupTag.PROGRAM_TYPE, MPCKeygroupTag.TYPE_KEYGROUP);
+        writer.textElement (MPCKeygroupTag.PROGRAM_NAME, multisampleSource.getName ());
+        writer.textElement (MPCKeygroupTag.PROGRAM_PADS + MPCKeygroupConstants.APP_VERSION, null);
 
         // Pitchbend 2 semitones up/down
         final List<IGroup> layers = multisampleSource.getNonEmptyGroups (false);
@@ -220,44 +235,43 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
         {
             final int bendUp = Math.abs (layers.get (0).getSampleZones ().get (0).getBendUp ());
             final double bendUpValue = bendUp == 0 ? 0.16 : bendUp / 1200.0;
-            XMLUtils.addTextElement (document, programElement, MPCKeygroupTag.PROGRAM_PITCHBEND_RANGE, formatDouble (bendUpValue, 3));
+            writer.textElement (MPCKeygroupTag.PROGRAM_PITCHBEND_RANGE, formatDouble (bendUpValue, 3));
         }
 
         // Vibrato on Modulation Wheel
-        XMLUtils.addTextElement (document, programElement, MPCKeygroupTag.PROGRAM_WHEEL_TO_LFO, "1.000000");
-        return programElement;
+        writer.textElement (MPCKeygroupTag.PROGRAM_WHEEL_TO_LFO, "1.000000");
     }
 
 
     /**
-     * Creates a layer element.
+     * Writes a layer element.
      *
-     * @param document The XML document
+     * @param writer Where to write the XML
      * @param layerIndex The index of the layer
      * @param zone The sample metadata
      * @param sampleName The name of the sample
-     * @return The created layer
+     * @throws IOException Could not write the XML
      */
-    private static Element createLayerElement (final Document document, final int layerIndex, final ISampleZone zone, final String sampleName)
+    private static void writeLayer (final StreamingXMLWriter writer, final int layerIndex, final ISampleZone zone, final String sampleName) throws IOException
     {
-        final Element layerElement = document.createElement ("Layer");
-        layerElement.setAttribute ("number", Integer.toString (layerIndex + 1));
+        writer.startElement ("Layer");
+        writer.attribute ("number", layerIndex + 1);
 
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_ACTIVE, MPCKeygroupTag.TRUE);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_VOLUME, Double.toString (convertGain (zone.getGain ())));
+        writer.textElement (MPCKeygroupTag.LAYER_ACTIVE, MPCKeygroupTag.TRUE);
+        writer.textElement (MPCKeygroupTag.LAYER_VOLUME, Double.toString (convertGain (zone.getGain ())));
 
         final double pan = (Math.clamp (zone.getPanning (), -1.0d, 1.0d) + 1.0d) / 2.0d;
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_PAN, String.format (Locale.US, "%.6f", Double.valueOf (pan)));
+        writer.textElement (MPCKeygroupTag.LAYER_PAN, String.format (Locale.US, "%.6f", Double.valueOf (pan)));
 
         final double tuneCent = zone.getTuning ();
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_PITCH, Double.toString (tuneCent));
+        writer.textElement (MPCKeygroupTag.LAYER_PITCH, Double.toString (tuneCent));
         // Values need to be identical to the pitch element!
         final int tuneCentInteger = (int) Math.round (tuneCent);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_COARSE_TUNE, Integer.toString (tuneCentInteger));
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_FINE_TUNE, Integer.toString ((int) Math.round ((tuneCent - tuneCentInteger) * 100.0)));
+        writer.textElement (MPCKeygroupTag.LAYER_COARSE_TUNE, Integer.toString (tuneCentInteger));
+        writer.textElement (MPCKeygroupTag.LAYER_FINE_TUNE, Integer.toString ((int) Math.round ((tuneCent - tuneCentInteger) * 100.0)));
 
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_VEL_START, Integer.toString (limitToDefault (zone.getVelocityLow (), 1)));
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_VEL_END, Integer.toString (limitToDefault (zone.getVelocityHigh (), 127)));
+        writer.textElement (MPCKeygroupTag.LAYER_VEL_START, Integer.toString (limitToDefault (zone.getVelocityLow (), 1)));
+        writer.textElement (MPCKeygroupTag.LAYER_VEL_END, Integer.toString (limitToDefault (zone.getVelocityHigh (), 127)));
 
         // Add the name of the multi-sample to the wave file to make it 'more unique' if
         // necessary
@@ -268,62 +282,63 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
             zone.setName (zoneName);
         }
 
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SAMPLE_START, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SAMPLE_END, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_LOOP_START, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_LOOP_END, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_LOOP_CROSSFADE, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_LOOP_TUNE, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_SAMPLE_START, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_SAMPLE_END, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_LOOP_START, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_LOOP_END, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_LOOP_CROSSFADE, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_LOOP_TUNE, "0");
         // The root note is strangely one more then the lower upper keys!
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_ROOT_NOTE, Integer.toString (limitToDefault (zone.getKeyRoot (), limitToDefault (zone.getKeyLow (), 0)) + 1));
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_KEY_TRACK, zone.getKeyTracking () == 0 ? "False" : "True");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SAMPLE_NAME, zoneName);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_PITCH_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_VOLUME_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_PAN_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_OFFSET_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SAMPLE_FILE, "");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_INDEX, "129");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_DIRECTION, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_OFFSET, "0");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_START, Integer.toString (zone.getStart ()));
+        writer.textElement (MPCKeygroupTag.LAYER_ROOT_NOTE, Integer.toString (limitToDefault (zone.getKeyRoot (), limitToDefault (zone.getKeyLow (), 0)) + 1));
+        writer.textElement (MPCKeygroupTag.LAYER_KEY_TRACK, zone.getKeyTracking () == 0 ? "False" : "True");
+        writer.textElement (MPCKeygroupTag.LAYER_SAMPLE_NAME, zoneName);
+        writer.textElement (MPCKeygroupTag.LAYER_PITCH_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
+        writer.textElement (MPCKeygroupTag.LAYER_VOLUME_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
+        writer.textElement (MPCKeygroupTag.LAYER_PAN_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
+        writer.textElement (MPCKeygroupTag.LAYER_OFFSET_RANDOM, MPCKeygroupConstants.DOUBLE_ZERO);
+        writer.textElement (MPCKeygroupTag.LAYER_SAMPLE_FILE, "");
+        writer.textElement (MPCKeygroupTag.LAYER_SLICE_INDEX, "129");
+        writer.textElement (MPCKeygroupTag.LAYER_DIRECTION, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_OFFSET, "0");
+        writer.textElement (MPCKeygroupTag.LAYER_SLICE_START, Integer.toString (zone.getStart ()));
 
         final List<ISampleLoop> loops = zone.getLoops ();
         if (loops.isEmpty ())
         {
-            XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_END, Integer.toString (zone.getStop ()));
-            XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_LOOP, "0");
-            return layerElement;
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_END, Integer.toString (zone.getStop ()));
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_LOOP, "0");
+        }
+        else
+        {
+            // Format can store only 1 loop
+            final ISampleLoop sampleLoop = loops.get (0);
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_LOOP_START, Integer.toString (sampleLoop.getStart ()));
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_END, Integer.toString (sampleLoop.getEnd ()));
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_LOOP, zone.isReversed () ? "3" : "1");
+
+            final int loopCrossfade = (int) Math.floor (sampleLoop.getCrossfade () * sampleLoop.getLength ());
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_LOOP_CROSSFADE, Integer.toString (loopCrossfade));
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_TAIL_POSITION, "0.500000");
+            writer.textElement (MPCKeygroupTag.LAYER_SLICE_TAIL_LENGTH, MPCKeygroupConstants.DOUBLE_ZERO);
         }
 
-        // Format can store only 1 loop
-        final ISampleLoop sampleLoop = loops.get (0);
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_LOOP_START, Integer.toString (sampleLoop.getStart ()));
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_END, Integer.toString (sampleLoop.getEnd ()));
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_LOOP, zone.isReversed () ? "3" : "1");
-
-        final int loopCrossfade = (int) Math.floor (sampleLoop.getCrossfade () * sampleLoop.getLength ());
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_LOOP_CROSSFADE, Integer.toString (loopCrossfade));
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_TAIL_POSITION, "0.500000");
-        XMLUtils.addTextElement (document, layerElement, MPCKeygroupTag.LAYER_SLICE_TAIL_LENGTH, MPCKeygroupConstants.DOUBLE_ZERO);
-
-        return layerElement;
+        writer.endElement ();
     }
 
 
     // LFO for vibrato on Modulation Wheel
-    private static Element createLfoElement (final Document document)
+    private static void writeLfo (final StreamingXMLWriter writer) throws IOException
     {
-        final Element lfoElement = document.createElement ("LFO");
-        lfoElement.setAttribute ("LfoNum", "0");
-        XMLUtils.addTextElement (document, lfoElement, "Type", "Sine");
-        XMLUtils.addTextElement (document, lfoElement, "Rate", "0.700000");
-        XMLUtils.addTextElement (document, lfoElement, "LfoPitch", "0.044000");
-        return lfoElement;
+        writer.startElement ("LFO");
+        writer.attribute ("LfoNum", "0");
+        writer.textElement ("Type", "Sine");
+        writer.textElement ("Rate", "0.700000");
+        writer.textElement ("LfoPitch", "0.044000");
+        writer.endElement ();
     }
 
 
-    private Optional<MPCKeygroup> getKeygroup (final Map<String, List<MPCKeygroup>> keygroupsMap, final ISampleZone zone, final Document document, final Element instrumentsElement, final TriggerType trigger)
+    private Optional<MPCKeygroup> getKeygroup (final Map<String, List<MPCKeygroup>> keygroupsMap, final List<MPCKeygroup> allKeygroups, final ISampleZone zone, final TriggerType trigger)
     {
         final int keyLow = limitToDefault (zone.getKeyLow (), 0);
         final int keyHigh = limitToDefault (zone.getKeyHigh (), 127);
@@ -354,10 +369,32 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
             }
 
         // No existing key-group found, create a new one (Instrument is a key-group)
+        final MPCKeygroup keygroup;
+        if (isSequence)
+            keygroup = new MPCKeygroup (zone, trigger, limitToDefault (zone.getVelocityLow (), 1), limitToDefault (zone.getVelocityHigh (), 127));
+        else
+            keygroup = new MPCKeygroup (zone, trigger);
+        keygroups.add (keygroup);
+        allKeygroups.add (keygroup);
+        return Optional.of (keygroup);
+    }
 
-        final Element instrumentElement = document.createElement ("Instrument");
-        instrumentElement.setAttribute ("number", Integer.toString (calcInstrumentNumber (keygroupsMap)));
-        instrumentsElement.appendChild (instrumentElement);
+
+    /**
+     * Writes an instrument element (which is a key-group) with all its layers.
+     *
+     * @param writer Where to write the XML
+     * @param keygroup The key-group
+     * @param instrumentNumber The number of the instrument
+     * @param sampleName The name of the sample
+     * @throws IOException Could not write the XML
+     */
+    private static void writeInstrument (final StreamingXMLWriter writer, final MPCKeygroup keygroup, final int instrumentNumber, final String sampleName) throws IOException
+    {
+        final ISampleZone zone = keygroup.getZone ();
+
+        writer.startElement ("Instrument");
+        writer.attribute ("number", instrumentNumber);
 
         // -----------------------------------------------------------
         // Filter
@@ -366,59 +403,59 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
         if (optFilter.isPresent ())
         {
             final IFilter filter = optFilter.get ();
-            XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_TYPE, Integer.toString (MPCFilter.getFilterIndex (filter)));
-            XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_CUTOFF, formatDouble (MathUtils.normalizeCutoff (filter.getCutoff ()), 2));
-            XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_RESONANCE, formatDouble (filter.getResonance (), 2));
+            writer.textElement (MPCKeygroupTag.INSTRUMENT_FILTER_TYPE, Integer.toString (MPCFilter.getFilterIndex (filter)));
+            writer.textElement (MPCKeygroupTag.INSTRUMENT_FILTER_CUTOFF, formatDouble (MathUtils.normalizeCutoff (filter.getCutoff ()), 2));
+            writer.textElement (MPCKeygroupTag.INSTRUMENT_FILTER_RESONANCE, formatDouble (filter.getResonance (), 2));
 
             final IEnvelopeModulator cutoffModulator = filter.getCutoffEnvelopeModulator ();
             final double envelopeDepth = cutoffModulator.getDepth ();
             // Only positive modulation values are supported with MPC
             if (envelopeDepth > 0)
             {
-                XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_ENV_AMOUNT, formatDouble (envelopeDepth, 2));
+                writer.textElement (MPCKeygroupTag.INSTRUMENT_FILTER_ENV_AMOUNT, formatDouble (envelopeDepth, 2));
 
                 final IEnvelope filterEnvelope = cutoffModulator.getSource ();
-                setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_ATTACK, filterEnvelope.getAttackTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_ATTACK_TIME, true);
-                setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_HOLD, filterEnvelope.getHoldTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_HOLD_TIME, true);
-                setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_DECAY, filterEnvelope.getDecayTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_DECAY_TIME, true);
-                setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_SUSTAIN, filterEnvelope.getSustainLevel (), 0, 1, 1);
-                setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_RELEASE, filterEnvelope.getReleaseTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_RELEASE_TIME, true);
-                setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_ATTACK_CURVE, filterEnvelope.getAttackSlope ());
-                setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_DECAY_CURVE, filterEnvelope.getDecaySlope ());
-                setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_RELEASE_CURVE, filterEnvelope.getReleaseSlope ());
+                setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_ATTACK, filterEnvelope.getAttackTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_ATTACK_TIME, true);
+                setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_HOLD, filterEnvelope.getHoldTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_HOLD_TIME, true);
+                setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_DECAY, filterEnvelope.getDecayTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_DECAY_TIME, true);
+                setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_SUSTAIN, filterEnvelope.getSustainLevel (), 0, 1, 1);
+                setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_RELEASE, filterEnvelope.getReleaseTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_RELEASE_TIME, true);
+                setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_ATTACK_CURVE, filterEnvelope.getAttackSlope ());
+                setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_DECAY_CURVE, filterEnvelope.getDecaySlope ());
+                setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_FILTER_RELEASE_CURVE, filterEnvelope.getReleaseSlope ());
             }
 
             final double filterCutoffVelocityAmount = filter.getCutoffVelocityModulator ().getDepth ();
             if (filterCutoffVelocityAmount > 0)
-                XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VELOCITY_TO_FILTER_AMOUNT, formatDouble (filterCutoffVelocityAmount, 2));
+                writer.textElement (MPCKeygroupTag.INSTRUMENT_VELOCITY_TO_FILTER_AMOUNT, formatDouble (filterCutoffVelocityAmount, 2));
 
             final double filterKeyTracking = filter.getCutoffKeyTracking ();
-            XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_FILTER_KEYTRACK, formatDouble (filterKeyTracking, 2));
+            writer.textElement (MPCKeygroupTag.INSTRUMENT_FILTER_KEYTRACK, formatDouble (filterKeyTracking, 2));
         }
 
         // -----------------------------------------------------------
         // Range
 
-        XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_LOW_NOTE, Integer.toString (keyLow));
-        XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_HIGH_NOTE, Integer.toString (keyHigh));
-        XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_IGNORE_BASE_NOTE, zone.getKeyTracking () == 0 ? "True" : "False");
+        writer.textElement (MPCKeygroupTag.INSTRUMENT_LOW_NOTE, Integer.toString (limitToDefault (zone.getKeyLow (), 0)));
+        writer.textElement (MPCKeygroupTag.INSTRUMENT_HIGH_NOTE, Integer.toString (limitToDefault (zone.getKeyHigh (), 127)));
+        writer.textElement (MPCKeygroupTag.INSTRUMENT_IGNORE_BASE_NOTE, zone.getKeyTracking () == 0 ? "True" : "False");
 
         // -----------------------------------------------------------
         // Amplitude
 
         final double ampVelocityAmount = zone.getAmplitudeVelocityModulator ().getDepth ();
         if (ampVelocityAmount > 0)
-            XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VELOCITY_TO_AMP_AMOUNT, formatDouble (ampVelocityAmount, 2));
+            writer.textElement (MPCKeygroupTag.INSTRUMENT_VELOCITY_TO_AMP_AMOUNT, formatDouble (ampVelocityAmount, 2));
 
         final IEnvelope amplitudeEnvelope = zone.getAmplitudeEnvelopeModulator ().getSource ();
-        setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_ATTACK, amplitudeEnvelope.getAttackTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_ATTACK_TIME, true);
-        setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_HOLD, amplitudeEnvelope.getHoldTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_HOLD_TIME, true);
-        setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_DECAY, amplitudeEnvelope.getDecayTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_DECAY_TIME, true);
-        setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_SUSTAIN, amplitudeEnvelope.getSustainLevel (), 0, 1, 1);
-        setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_RELEASE, amplitudeEnvelope.getReleaseTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_RELEASE_TIME, true);
-        setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_ATTACK_CURVE, amplitudeEnvelope.getAttackSlope ());
-        setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_DECAY_CURVE, amplitudeEnvelope.getDecaySlope ());
-        setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_VOLUME_RELEASE_CURVE, amplitudeEnvelope.getReleaseSlope ());
+        setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_ATTACK, amplitudeEnvelope.getAttackTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_ATTACK_TIME, true);
+        setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_HOLD, amplitudeEnvelope.getHoldTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_HOLD_TIME, true);
+        setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_DECAY, amplitudeEnvelope.getDecayTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_DECAY_TIME, true);
+        setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_SUSTAIN, amplitudeEnvelope.getSustainLevel (), 0, 1, 1);
+        setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_RELEASE, amplitudeEnvelope.getReleaseTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_RELEASE_TIME, true);
+        setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_ATTACK_CURVE, amplitudeEnvelope.getAttackSlope ());
+        setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_DECAY_CURVE, amplitudeEnvelope.getDecaySlope ());
+        setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_VOLUME_RELEASE_CURVE, amplitudeEnvelope.getReleaseSlope ());
 
         // -----------------------------------------------------------
         // Pitch
@@ -429,50 +466,39 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
         if (pitchDepth > 0)
         {
             final double mpcPitchDepth = pitchDepth / 2.0 + 0.5;
-            XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_ENV_AMOUNT, formatDouble (mpcPitchDepth, 2));
+            writer.textElement (MPCKeygroupTag.INSTRUMENT_PITCH_ENV_AMOUNT, formatDouble (mpcPitchDepth, 2));
 
             final IEnvelope pitchEnvelope = pitchModulator.getSource ();
-            setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_ATTACK, pitchEnvelope.getAttackTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_ATTACK_TIME, true);
-            setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_HOLD, pitchEnvelope.getHoldTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_HOLD_TIME, true);
-            setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_DECAY, pitchEnvelope.getDecayTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_DECAY_TIME, true);
-            setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_SUSTAIN, pitchEnvelope.getSustainLevel (), 0, 1, 1);
-            setEnvelopeAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_RELEASE, pitchEnvelope.getReleaseTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_RELEASE_TIME, true);
-            setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_ATTACK_CURVE, pitchEnvelope.getAttackSlope ());
-            setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_DECAY_CURVE, pitchEnvelope.getDecaySlope ());
-            setEnvelopeCurveAttribute (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_PITCH_RELEASE_CURVE, pitchEnvelope.getReleaseSlope ());
+            setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_ATTACK, pitchEnvelope.getAttackTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_ATTACK_TIME, true);
+            setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_HOLD, pitchEnvelope.getHoldTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_HOLD_TIME, true);
+            setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_DECAY, pitchEnvelope.getDecayTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_DECAY_TIME, true);
+            setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_SUSTAIN, pitchEnvelope.getSustainLevel (), 0, 1, 1);
+            setEnvelopeAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_RELEASE, pitchEnvelope.getReleaseTime (), MPCKeygroupConstants.MIN_ENV_TIME_SECONDS, MPCKeygroupConstants.MAX_ENV_TIME_SECONDS, MPCKeygroupConstants.DEFAULT_RELEASE_TIME, true);
+            setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_ATTACK_CURVE, pitchEnvelope.getAttackSlope ());
+            setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_DECAY_CURVE, pitchEnvelope.getDecaySlope ());
+            setEnvelopeCurveAttribute (writer, MPCKeygroupTag.INSTRUMENT_PITCH_RELEASE_CURVE, pitchEnvelope.getReleaseSlope ());
         }
 
-        XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_ZONE_PLAY, ZonePlay.from (zone.getPlayLogic ()).getID ());
+        writer.textElement (MPCKeygroupTag.INSTRUMENT_ZONE_PLAY, ZonePlay.from (zone.getPlayLogic ()).getID ());
 
         SamplePlay triggerMode = SamplePlay.NOTE_ON;
 
-        if (trigger == TriggerType.RELEASE)
+        if (keygroup.getTrigger () == TriggerType.RELEASE)
             triggerMode = SamplePlay.NOTE_OFF;
         else if (zone.isOneShot () || amplitudeEnvelope.getSustainLevel () <= 0 && limitToDefault (zone.getKeyLow (), 0) == limitToDefault (zone.getKeyHigh (), 127))
             triggerMode = SamplePlay.ONE_SHOT;
 
-        XMLUtils.addTextElement (document, instrumentElement, MPCKeygroupTag.INSTRUMENT_TRIGGER_MODE, Integer.toString (triggerMode.ordinal ()));
+        writer.textElement (MPCKeygroupTag.INSTRUMENT_TRIGGER_MODE, Integer.toString (triggerMode.ordinal ()));
 
-        instrumentElement.appendChild (createLfoElement (document));
-        final Element layersElement = document.createElement ("Layers");
-        instrumentElement.appendChild (layersElement);
+        writeLfo (writer);
 
-        final MPCKeygroup keygroup;
-        if (isSequence)
-            keygroup = new MPCKeygroup (layersElement, limitToDefault (zone.getVelocityLow (), 1), limitToDefault (zone.getVelocityHigh (), 127));
-        else
-            keygroup = new MPCKeygroup (layersElement);
-        keygroups.add (keygroup);
-        return Optional.of (keygroup);
-    }
+        writer.startElement ("Layers");
+        final List<ISampleZone> layers = keygroup.getLayers ();
+        for (int i = 0; i < layers.size (); i++)
+            writeLayer (writer, i, layers.get (i), sampleName);
+        writer.endElement ();
 
-
-    private static int calcInstrumentNumber (final Map<String, List<MPCKeygroup>> keygroupsMap)
-    {
-        int count = 1;
-        for (final List<MPCKeygroup> keygroups: keygroupsMap.values ())
-            count += keygroups.size ();
-        return count;
+        writer.endElement ();
     }
 
 
@@ -512,23 +538,23 @@ public class MPCKeygroupCreator extends AbstractWavCreator<MPCKeygroupCreatorUI>
     }
 
 
-    private static void setEnvelopeAttribute (final Document document, final Element element, final String attribute, final double value, final double minimum, final double maximum, final double defaultValue)
+    private static void setEnvelopeAttribute (final StreamingXMLWriter writer, final String attribute, final double value, final double minimum, final double maximum, final double defaultValue) throws IOException
     {
-        setEnvelopeAttribute (document, element, attribute, value, minimum, maximum, defaultValue, false);
+        setEnvelopeAttribute (writer, attribute, value, minimum, maximum, defaultValue, false);
     }
 
 
-    private static void setEnvelopeAttribute (final Document document, final Element element, final String attribute, final double value, final double minimum, final double maximum, final double defaultValue, final boolean logarithmic)
+    private static void setEnvelopeAttribute (final StreamingXMLWriter writer, final String attribute, final double value, final double minimum, final double maximum, final double defaultValue, final boolean logarithmic) throws IOException
     {
         final double v = value < 0 ? defaultValue : value;
         final double normalizedValue = logarithmic ? normalizeLogarithmicEnvTimeValue (v, minimum, maximum) : MathUtils.normalize (v, minimum, maximum);
-        XMLUtils.addTextElement (document, element, attribute, String.format (Locale.US, "%.6f", Double.valueOf (normalizedValue)));
+        writer.textElement (attribute, String.format (Locale.US, "%.6f", Double.valueOf (normalizedValue)));
     }
 
 
-    private static void setEnvelopeCurveAttribute (final Document document, final Element element, final String curveTag, final double slopeValue)
+    private static void setEnvelopeCurveAttribute (final StreamingXMLWriter writer, final String curveTag, final double slopeValue) throws IOException
     {
         final double value = Math.clamp ((slopeValue + 1.0) / 2.0, 0, 1);
-        XMLUtils.addTextElement (document, element, curveTag, String.format (Locale.US, "%.6f", Double.valueOf (value)));
+        writer.textElement (curveTag, String.format (Locale.US, "%.6f", Double.valueOf (value)));
     }
 }
\ No newline at end of file
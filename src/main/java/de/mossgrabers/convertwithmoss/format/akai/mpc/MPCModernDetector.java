@@ -4,11 +4,13 @@
 
 package de.mossgrabers.convertwithmoss.format.akai.mpc;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
@@ -49,6 +51,8 @@ import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleLoo
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZone;
 import de.mossgrabers.convertwithmoss.file.AudioFileUtils;
 import de.mossgrabers.convertwithmoss.file.StreamUtils;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLReader;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLReader.Selection;
 import de.mossgrabers.convertwithmoss.format.wav.WavFileSampleData;
 import de.mossgrabers.tools.FileUtils;
 import de.mossgrabers.tools.XMLUtils;
@@ -101,10 +105,7 @@ public class MPCModernDetector extends AbstractDetector<MPCKeygroupDetectorUI>
                     isXML = "<?xml".equals (StreamUtils.readAscii (input, 5));
                 }
                 if (isXML)
-                {
-                    final String content = this.loadTextFile (sourceFile).trim ();
-                    return this.readXmlFile (sourceFile, content);
-                }
+                    return this.readXmlFile (sourceFile);
             }
             catch (final IOException ex)
             {
@@ -117,27 +118,52 @@ public class MPCModernDetector extends AbstractDetector<MPCKeygroupDetectorUI>
 
 
     /**
-     * Load and parse the metadata description file.
+     * Load and parse the metadata description file. The document is read straight from the file,
+     * without the pad setup of the program which is not needed. If the file contains characters
+     * which are not valid in its encoding, its text is loaded (which replaces them) and parsed.
      *
      * @param file The file
-     * @param content The XML content to parse
      * @return The result
+     * @throws IOException Could not read the file
      */
-    private List<IMultisampleSource> readXmlFile (final File file, final String content)
+    private List<IMultisampleSource> readXmlFile (final File file) throws IOException
     {
         if (this.waitForDelivery ())
             return Collections.emptyList ();
 
-        try
+        Document document;
+        try (final InputStream input = new BufferedInputStream (new FileInputStream (file)))
         {
-            final Document document = XMLUtils.parseDocument (new InputSource (new StringReader (content)));
-            return this.parseXml (file, document);
+            document = StreamingXMLReader.read (input, MPCModernDetector::selectElement);
         }
-        catch (final SAXException ex)
+        catch (final IOException _)
         {
-            this.notifier.logError (BAD_METADATA_FILE, ex);
+            try
+            {
+                document = XMLUtils.parseDocument (new InputSource (new StringReader (this.loadTextFile (file).trim ())));
+            }
+            catch (final SAXException ex)
+            {
+                this.notifier.logError (BAD_METADATA_FILE, ex);
+                return Collections.emptyList ();
+            }
         }
-        return Collections.emptyList ();
+        return this.parseXml (file, document);
+    }
+
+
+    /**
+     * Select the elements of the document which are read.
+     *
+     * @param name The name of the element
+     * @param depth The depth of the element
+     * @return Skips the pad setup of the program, keeps all other elements
+     */
+    private static Selection selectElement (final String name, final int depth)
+    {
+        if (depth < 2)
+            return Selection.KEEP_FILTER_CHILDREN;
+        return name.startsWith (MPCKeygroupTag.PROGRAM_PADS) ? Selection.SKIP : Selection.KEEP;
     }
 
 
@@ -17,6 +17,7 @@ import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.algorithm.MathUtils;
 import de.mossgrabers.convertwithmoss.core.detector.AbstractDetector;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.model.IAudioMetadata;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelope;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelopeModulator;
@@ -62,6 +63,17 @@ public class AkaiMPC1000Detector extends AbstractDetector<MetadataSettingsUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        // The file ending is shared with the MPC2000 format
+        if (super.probe (file, header, endings, detectPerformances) == ProbeResult.NO_MATCH)
+            return ProbeResult.NO_MATCH;
+        return AkaiMPC1000Program.hasProgramHeader (header) ? ProbeResult.SIGNATURE : ProbeResult.NO_MATCH;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected List<IMultisampleSource> readPresetFile (final File sourceFile)
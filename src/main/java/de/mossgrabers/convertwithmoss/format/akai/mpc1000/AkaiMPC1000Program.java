@@ -6,6 +6,7 @@ package de.mossgrabers.convertwithmoss.format.akai.mpc1000;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -69,6 +70,18 @@ public class AkaiMPC1000Program
     }
 
 
+    /**
+     * Check if the beginning of a file is the header of a program.
+     *
+     * @param header The first bytes of the file
+     * @return True if the magic text of a program is present
+     */
+    public static boolean hasProgramHeader (final byte [] header)
+    {
+        return header.length >= 20 && MAGIC.equals (new String (header, 4, 16, StandardCharsets.US_ASCII));
+    }
+
+
     /**
      * Get all pads.
      *
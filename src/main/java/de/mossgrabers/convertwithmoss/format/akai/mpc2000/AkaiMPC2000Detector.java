@@ -13,12 +13,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.detector.AbstractDetector;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.model.ISampleData;
 import de.mossgrabers.convertwithmoss.core.settings.IMetadataConfig;
 import de.mossgrabers.convertwithmoss.core.settings.MetadataSettingsUI;
@@ -62,6 +64,27 @@ public class AkaiMPC2000Detector extends AbstractDetector<MetadataSettingsUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        // Program files and disk images use file endings which are shared with other formats
+        if (super.probe (file, header, endings, detectPerformances) == ProbeResult.NO_MATCH)
+            return ProbeResult.NO_MATCH;
+
+        final String lowerCaseName = file.getName ().toLowerCase (Locale.US);
+        if (lowerCaseName.endsWith (".pgm"))
+            return AkaiMPC2000Program.hasProgramHeader (header) ? ProbeResult.SIGNATURE : ProbeResult.NO_MATCH;
+        if (lowerCaseName.endsWith (".iso") || lowerCaseName.endsWith (".img"))
+        {
+            final IsoFormat isoFormat = IsoFormatIdentifier.identifyIso (file);
+            return isoFormat == IsoFormat.AKAI_MPC2000 || isoFormat == IsoFormat.AKAI_MPC2000XL ? ProbeResult.SIGNATURE : ProbeResult.NO_MATCH;
+        }
+        // The HFE image needs to be decoded to identify its content
+        return ProbeResult.FILE_ENDING;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected List<IMultisampleSource> readPresetFile (final File sourceFile)
@@ -92,6 +92,18 @@ public class AkaiMPC2000Program
     }
 
 
+    /**
+     * Check if the beginning of a file is the header of a program.
+     *
+     * @param header The first bytes of the file
+     * @return True if the header contains the ID of a MPC2000 or MPC3000 program
+     */
+    public static boolean hasProgramHeader (final byte [] header)
+    {
+        return header.length >= 2 && header[0] == 0x07 && (header[1] == 0x04 || header[1] == 0x00);
+    }
+
+
     /**
      * Get the name of the program.
      *
@@ -4,19 +4,19 @@
 
 package de.mossgrabers.convertwithmoss.format.bitwig;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.List;
-import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.ZipOutputStream;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
-import de.mossgrabers.convertwithmoss.core.creator.AbstractCreator;
 import de.mossgrabers.convertwithmoss.core.creator.AbstractWavCreator;
 import de.mossgrabers.convertwithmoss.core.model.IGroup;
 import de.mossgrabers.convertwithmoss.core.model.IMetadata;
@@ -26,8 +26,8 @@ import de.mossgrabers.convertwithmoss.core.model.enumeration.LoopType;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.PlayLogic;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.TriggerType;
 import de.mossgrabers.convertwithmoss.core.settings.WavChunkSettingsUI;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.tools.FileUtils;
-import de.mossgrabers.tools.XMLUtils;
 
 
 /**
@@ -53,18 +53,35 @@ public class BitwigMultisampleCreator extends AbstractWavCreator<WavChunkSetting
     @Override
     public void createPreset (final File destinationFolder, final IMultisampleSource multisampleSource) throws IOException
     {
-        final Optional<String> metadata = this.createMetadata (multisampleSource);
-        if (metadata.isEmpty ())
-            return;
+        // The uncompressed ZIP entry requires the size and the checksum of the description before
+        // it is added, therefore it is streamed into a temporary file first
+        final File metadataFile = File.createTempFile ("multisample", ".xml");
+        try
+        {
+            final CRC32 crc = new CRC32 ();
+            try (final OutputStream checkedOut = new CheckedOutputStream (new BufferedOutputStream (new FileOutputStream (metadataFile)), crc))
+            {
+                writeMetadata (checkedOut, multisampleSource);
+            }
+            catch (final IOException ex)
+            {
+                this.notifier.logError (ex);
+                return;
+            }
 
-        final File multiFile = this.createUniqueFilename (destinationFolder, FileUtils.createSafeFilename (multisampleSource.getName ()), "multisample");
-        this.notifier.log ("IDS_NOTIFY_STORING", multiFile.getAbsolutePath ());
+            final File multiFile = this.createUniqueFilename (destinationFolder, FileUtils.createSafeFilename (multisampleSource.getName ()), "multisample");
+            this.notifier.log ("IDS_NOTIFY_STORING", multiFile.getAbsolutePath ());
 
-        try (final ZipOutputStream zos = new ZipOutputStream (new FileOutputStream (multiFile)))
+            try (final ZipOutputStream zos = new ZipOutputStream (new FileOutputStream (multiFile)))
+            {
+                zos.setMethod (ZipOutputStream.STORED);
+                putUncompressedEntry (zos, "multisample.xml", metadataFile, crc, multisampleSource.getMetadata ().getCreationDateTime ());
+                this.storeSampleFiles (zos, null, multisampleSource);
+            }
+        }
+        finally
         {
-            zos.setMethod (ZipOutputStream.STORED);
-            AbstractCreator.storeTextFile (zos, "multisample.xml", metadata.get (), multisampleSource.getMetadata ().getCreationDateTime ());
-            this.storeSampleFiles (zos, null, multisampleSource);
+            Files.deleteIfExists (metadataFile.toPath ());
         }
 
         this.progress.notifyDone ();
@@ -72,114 +89,116 @@ public class BitwigMultisampleCreator extends AbstractWavCreator<WavChunkSetting
 
 
     /**
-     * Create the text of the description file.
+     * Write the UTF-8 encoded text of the description file. The XML is streamed since there is no
+     * need to build a DOM for a structure which is written strictly in order.
      *
+     * @param outputStream Where to write the XML text to
      * @param multisampleSource The multi-sample
-     * @return The XML structure
+     * @throws IOException Could not write the XML text
      */
-    private Optional<String> createMetadata (final IMultisampleSource multisampleSource)
+    private static void writeMetadata (final OutputStream outputStream, final IMultisampleSource multisampleSource) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element multisampleElement = document.createElement ("multisample");
-        document.appendChild (multisampleElement);
-        multisampleElement.setAttribute ("name", multisampleSource.getName ());
-
-        final IMetadata metadata = multisampleSource.getMetadata ();
-        XMLUtils.addTextElement (document, multisampleElement, "generator", "ConvertWithMoss");
-        XMLUtils.addTextElement (document, multisampleElement, "category", metadata.getCategory ());
-        XMLUtils.addTextElement (document, multisampleElement, "creator", metadata.getCreator ());
-        XMLUtils.addTextElement (document, multisampleElement, "description", metadata.getDescription ());
-
-        final Element keywordsElement = XMLUtils.addElement (document, multisampleElement, "keywords");
-        for (final String keyword: metadata.getKeywords ())
-            XMLUtils.addTextElement (document, keywordsElement, "keyword", keyword);
-
-        final List<IGroup> groups = multisampleSource.getNonEmptyGroups (true);
-        for (final IGroup group: groups)
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (outputStream, true))
         {
-            final String name = group.getName ();
-            if (name != null && !name.isBlank ())
+            writer.startElement ("multisample");
+            writer.attribute ("name", multisampleSource.getName ());
+
+            final IMetadata metadata = multisampleSource.getMetadata ();
+            writer.textElement ("generator", "ConvertWithMoss");
+            writer.textElement ("category", metadata.getCategory ());
+            writer.textElement ("creator", metadata.getCreator ());
+            writer.textElement ("description", metadata.getDescription ());
+
+            writer.startElement ("keywords");
+            for (final String keyword: metadata.getKeywords ())
+                writer.textElement ("keyword", keyword);
+            writer.endElement ();
+
+            final List<IGroup> groups = multisampleSource.getNonEmptyGroups (true);
+            for (final IGroup group: groups)
             {
-                final Element groupElement = XMLUtils.addElement (document, multisampleElement, "group");
-                groupElement.setAttribute ("name", name);
-                groupElement.setAttribute ("color", "d92e24");
+                final String name = group.getName ();
+                if (name != null && !name.isBlank ())
+                {
+                    writer.startElement ("group");
+                    writer.attribute ("name", name);
+                    writer.attribute ("color", "d92e24");
+                    writer.endElement ();
+                }
             }
-        }
 
-        int index = 0;
-        for (final IGroup group: groups)
-        {
-            final String name = group.getName ();
-            final int idx = name == null || name.isBlank () ? -1 : index;
+            int index = 0;
+            for (final IGroup group: groups)
+            {
+                final String name = group.getName ();
+                final int idx = name == null || name.isBlank () ? -1 : index;
 
-            for (final ISampleZone zone: group.getSampleZones ())
-                if (zone.getTrigger () != TriggerType.RELEASE)
-                    createSample (document, multisampleElement, idx, zone);
+                for (final ISampleZone zone: group.getSampleZones ())
+                    if (zone.getTrigger () != TriggerType.RELEASE)
+                        createSample (writer, idx, zone);
 
-            index++;
-        }
+                index++;
+            }
 
-        return this.createXMLString (document);
+            writer.endElement ();
+        }
     }
 
 
     /**
      * Creates the metadata for one sample.
      *
-     * @param document The XML document
-     * @param multisampleElement The element where to add the sample information
+     * @param writer Where to write the sample information
      * @param groupIndex The index of the group to which this sample belongs
      * @param zone Where to get the sample zone info from
+     * @throws IOException Could not write the sample information
      */
-    private static void createSample (final Document document, final Element multisampleElement, final int groupIndex, final ISampleZone zone)
+    private static void createSample (final StreamingXMLWriter writer, final int groupIndex, final ISampleZone zone) throws IOException
     {
         // -----------------------------------------------------------
         // Sample element and attributes
 
-        final Element sampleElement = XMLUtils.addElement (document, multisampleElement, "sample");
-        sampleElement.setAttribute ("file", zone.getName () + ".wav");
+        writer.startElement ("sample");
+        writer.attribute ("file", zone.getName () + ".wav");
         if (groupIndex >= 0)
-            sampleElement.setAttribute ("group", Integer.toString (groupIndex));
+            writer.attribute ("group", groupIndex);
         final double gain = zone.getGain ();
         if (gain != 0)
-            XMLUtils.setDoubleAttribute (sampleElement, "gain", gain, 2);
-        XMLUtils.setDoubleAttribute (sampleElement, "sample-start", Math.max (0, zone.getStart ()), 3);
+            writer.attribute ("gain", gain, 2);
+        writer.attribute ("sample-start", Math.max (0, zone.getStart ()), 3);
         final int stop = zone.getStop ();
         if (stop >= 0)
-            XMLUtils.setDoubleAttribute (sampleElement, "sample-stop", stop, 3);
-        XMLUtils.setBooleanAttribute (sampleElement, "reverse", zone.isReversed ());
+            writer.attribute ("sample-stop", stop, 3);
+        writer.attribute ("reverse", zone.isReversed ());
         final PlayLogic playLogic = zone.getPlayLogic ();
         if (playLogic != PlayLogic.ALWAYS)
-            sampleElement.setAttribute ("zone-logic", "round-robin");
+            writer.attribute ("zone-logic", "round-robin");
 
         // -----------------------------------------------------------
         // Key element and attributes
 
-        final Element keyElement = XMLUtils.addElement (document, sampleElement, "key");
+        writer.startElement ("key");
         final int keyLow = limitToDefault (zone.getKeyLow (), 0);
-        XMLUtils.setIntegerAttribute (keyElement, "low", keyLow);
-        XMLUtils.setIntegerAttribute (keyElement, "low-fade", limitToDefault (zone.getNoteCrossfadeLow (), 0));
-        XMLUtils.setIntegerAttribute (keyElement, "root", limitToDefault (zone.getKeyRoot (), keyLow));
-        XMLUtils.setIntegerAttribute (keyElement, "high", limitToDefault (zone.getKeyHigh (), 127));
-        XMLUtils.setIntegerAttribute (keyElement, "high-fade", limitToDefault (zone.getNoteCrossfadeHigh (), 0));
-        XMLUtils.setDoubleAttribute (keyElement, "track", zone.getKeyTracking (), 4);
+        writer.attribute ("low", keyLow);
+        writer.attribute ("low-fade", limitToDefault (zone.getNoteCrossfadeLow (), 0));
+        writer.attribute ("root", limitToDefault (zone.getKeyRoot (), keyLow));
+        writer.attribute ("high", limitToDefault (zone.getKeyHigh (), 127));
+        writer.attribute ("high-fade", limitToDefault (zone.getNoteCrossfadeHigh (), 0));
+        writer.attribute ("track", zone.getKeyTracking (), 4);
         final double tune = zone.getTuning ();
         if (tune != 0)
-            XMLUtils.setDoubleAttribute (keyElement, "tune", tune, 2);
+            writer.attribute ("tune", tune, 2);
+        writer.endElement ();
 
         // -----------------------------------------------------------
         // Key element and attributes
 
-        final Element velocityElement = XMLUtils.addElement (document, sampleElement, "velocity");
-        XMLUtils.setIntegerAttribute (velocityElement, "low", limitToDefault (zone.getVelocityLow (), 1));
-        XMLUtils.setIntegerAttribute (velocityElement, "low-fade", limitToDefault (zone.getVelocityCrossfadeLow (), 0));
-        XMLUtils.setIntegerAttribute (velocityElement, "high", limitToDefault (zone.getVelocityHigh (), 127));
-        XMLUtils.setIntegerAttribute (velocityElement, "high-fade", limitToDefault (zone.getVelocityCrossfadeHigh (), 0));
+        writer.startElement ("velocity");
+        writer.attribute ("low", limitToDefault (zone.getVelocityLow (), 1));
+        writer.attribute ("low-fade", limitToDefault (zone.getVelocityCrossfadeLow (), 0));
+        writer.attribute ("high", limitToDefault (zone.getVelocityHigh (), 127));
+        writer.attribute ("high-fade", limitToDefault (zone.getVelocityCrossfadeHigh (), 0));
+        writer.endElement ();
 
         // -----------------------------------------------------------
         // Loops
@@ -190,14 +209,17 @@ public class BitwigMultisampleCreator extends AbstractWavCreator<WavChunkSetting
             final ISampleLoop sampleLoop = loops.get (0);
             final String type = sampleLoop.getType () == LoopType.ALTERNATING ? "ping-pong" : "loop";
 
-            final Element loopElement = XMLUtils.addElement (document, sampleElement, "loop");
-            loopElement.setAttribute ("mode", type);
-            XMLUtils.setDoubleAttribute (loopElement, "start", limitToDefault (sampleLoop.getStart (), 0), 3);
-            XMLUtils.setDoubleAttribute (loopElement, "stop", limitToDefault (sampleLoop.getEnd (), stop), 3);
+            writer.startElement ("loop");
+            writer.attribute ("mode", type);
+            writer.attribute ("start", limitToDefault (sampleLoop.getStart (), 0), 3);
+            writer.attribute ("stop", limitToDefault (sampleLoop.getEnd (), stop), 3);
 
             final double crossfade = sampleLoop.getCrossfade ();
             if (crossfade > 0)
-                XMLUtils.setDoubleAttribute (loopElement, "fade", crossfade, 4);
+                writer.attribute ("fade", crossfade, 4);
+            writer.endElement ();
         }
+
+        writer.endElement ();
     }
 }
@@ -6,10 +6,9 @@ package de.mossgrabers.convertwithmoss.format.decentsampler;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
@@ -17,14 +16,16 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.NamedNodeMap;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -46,6 +47,7 @@ import de.mossgrabers.convertwithmoss.core.model.enumeration.LfoWaveform;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.PlayLogic;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.TriggerType;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultFilter;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.tools.FileUtils;
 import de.mossgrabers.tools.XMLUtils;
 import de.mossgrabers.tools.ui.Functions;
@@ -79,7 +81,6 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
 
     private class PresetResult
     {
-        String             dsPreset;
         File               dsPresetFile;
         String             sampleFolder;
         IMultisampleSource sampleSource;
@@ -165,7 +166,7 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
     }
 
 
-    private final List<PresetResult> create (final File destinationFolder, final List<IMultisampleSource> multisampleSources, final boolean isLibrary) throws IOException
+    private final List<PresetResult> create (final File destinationFolder, final List<IMultisampleSource> multisampleSources, final boolean isLibrary)
     {
         if (multisampleSources.isEmpty ())
             return Collections.emptyList ();
@@ -185,11 +186,6 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
             presetResult.sampleFolder = sampleName + FOLDER_POSTFIX;
 
             otherOutputFiles.add (presetResult.dsPresetFile.getAbsolutePath ());
-
-            final Optional<String> metadata = this.createPresetDocument (presetResult.sampleFolder, multisampleSource);
-            if (metadata.isEmpty ())
-                continue;
-            presetResult.dsPreset = metadata.get ();
             results.add (presetResult);
         }
 
@@ -206,9 +202,15 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
      */
     private void storePreset (final File destinationFolder, final PresetResult presetResult) throws IOException
     {
-        try (final FileWriter writer = new FileWriter (presetResult.dsPresetFile, StandardCharsets.UTF_8))
+        try (final OutputStream out = new FileOutputStream (presetResult.dsPresetFile))
+        {
+            this.writePresetDocument (out, presetResult.sampleFolder, presetResult.sampleSource);
+        }
+        catch (final IOException ex)
         {
-            writer.write (presetResult.dsPreset);
+            // Do not leave a partially written description behind
+            Files.deleteIfExists (presetResult.dsPresetFile.toPath ());
+            throw ex;
         }
 
         // Store all samples
@@ -261,175 +263,221 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
         {
             for (final PresetResult presetResult: presetResults)
             {
-                AbstractCreator.zipTextFile (zos, libraryPath + FORWARD_SLASH + presetResult.dsPresetFile.getName (), presetResult.dsPreset);
+                zos.putNextEntry (new ZipEntry (libraryPath + FORWARD_SLASH + presetResult.dsPresetFile.getName ()));
+                this.writePresetDocument (zos, presetResult.sampleFolder, presetResult.sampleSource);
+                zos.closeEntry ();
                 this.zipSampleFiles (zos, libraryPath + FORWARD_SLASH + presetResult.sampleFolder, presetResult.sampleSource);
             }
 
             this.copyResources (zos, libraryPath);
         }
+        catch (final IOException ex)
+        {
+            // Do not leave a broken library behind
+            Files.deleteIfExists (multiFile.toPath ());
+            throw ex;
+        }
     }
 
 
     /**
-     * Create the text of the description file.
+     * Write the description file.
      *
+     * @param out Where to write the XML
      * @param folderName The name to use for the sample folder
      * @param multisampleSource The multi-sample
-     * @return The XML structure
-     * @throws IOException Could not find template
+     * @throws IOException Could not find template or could not write the XML
      */
-    private Optional<String> createPresetDocument (final String folderName, final IMultisampleSource multisampleSource) throws IOException
+    private void writePresetDocument (final OutputStream out, final String folderName, final IMultisampleSource multisampleSource) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element multisampleElement = document.createElement (DecentSamplerTag.DECENTSAMPLER);
-        document.appendChild (multisampleElement);
-        multisampleElement.setAttribute (DecentSamplerTag.MIN_VERSION, "1.11");
-
         final ParameterLevel ampEnvParameterLevel = getAmpEnvelopeParamLevel (multisampleSource);
-
-        // No metadata at all
-
-        final Element groupsElement = XMLUtils.addElement (document, multisampleElement, DecentSamplerTag.GROUPS);
         final List<IGroup> groups = multisampleSource.getNonEmptyGroups (false);
-
-        // Add all groups
-
-        final Element modulatorsElement = XMLUtils.addElement (document, multisampleElement, DecentSamplerTag.MODULATORS);
-
-        for (int groupIndex = 0; groupIndex < groups.size (); groupIndex++)
+        final Optional<IFilter> filter = this.getFilter (multisampleSource);
+
+        // The instrument amplitude envelope and the velocity sensitivity of the first group are
+        // applied to the template variables, therefore the template is read before anything is
+        // written
+        final Map<String, String> instrumentEnvelope = new TreeMap<> ();
+        if (ampEnvParameterLevel == ParameterLevel.INSTRUMENT && !groups.isEmpty ())
+            addEnvelopeAttributes (instrumentEnvelope, groups.get (0).getSampleZones ().get (0).getAmplitudeEnvelopeModulator ().getSource ());
+        final List<GroupSettings> groupSettings = new ArrayList<> (groups.size ());
+        for (final IGroup group: groups)
+            groupSettings.add (new GroupSettings (group.getSampleZones ()));
+        final String ampVelocityTrack = groupSettings.isEmpty () ? null : groupSettings.get (0).ampVelocityTrack;
+        final org.w3c.dom.Node xmlSnippet = this.readTemplate (instrumentEnvelope, ampVelocityTrack);
+
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (out, true))
         {
-            final IGroup group = groups.get (groupIndex);
-            final Element groupElement = XMLUtils.addElement (document, groupsElement, DecentSamplerTag.GROUP);
+            writer.startElement (DecentSamplerTag.DECENTSAMPLER);
+            writer.attribute (DecentSamplerTag.MIN_VERSION, "1.11");
 
-            final String name = group.getName ();
-            if (name != null && !name.isBlank ())
-                groupElement.setAttribute ("name", name);
+            // No metadata at all
 
-            final TriggerType triggerType = group.getTrigger ();
-            if (triggerType != TriggerType.ATTACK)
-                groupElement.setAttribute (DecentSamplerTag.TRIGGER, triggerType.name ().toLowerCase (Locale.ENGLISH));
+            // Add all groups
 
-            final Set<Double> ampVelDepths = new HashSet<> ();
-            final List<ISampleZone> zones = group.getSampleZones ();
-            boolean isSequence = false;
-            boolean isRandom = false;
-            int seqLength = 0;
-            for (int zoneIndex = 0; zoneIndex < zones.size (); zoneIndex++)
+            writer.startElement (DecentSamplerTag.GROUPS);
+            final String polyphonyTag = this.getPolyphonyTag (multisampleSource);
+            if (polyphonyTag != null)
+                writer.attribute (DecentSamplerTag.TAGS_ATTRIBUTE, polyphonyTag);
+            writeAttributes (writer, instrumentEnvelope);
+
+            for (int groupIndex = 0; groupIndex < groups.size (); groupIndex++)
             {
-                final ISampleZone zone = zones.get (zoneIndex);
+                final IGroup group = groups.get (groupIndex);
+                final GroupSettings settings = groupSettings.get (groupIndex);
+                writer.startElement (DecentSamplerTag.GROUP);
 
-                final PlayLogic playLogic = zone.getPlayLogic ();
-                isSequence = isSequence || playLogic != PlayLogic.ALWAYS;
-                isRandom = isRandom || playLogic == PlayLogic.RANDOM;
-                // The sequence length is the number of round-robin positions and not the
-                // number of zones
-                if (isSequence && zone.getSequencePosition () >= 1)
-                    seqLength = Math.max (seqLength, zone.getSequencePosition ());
+                final String name = group.getName ();
+                if (name != null && !name.isBlank ())
+                    writer.attribute ("name", name);
 
-                ampVelDepths.add (Double.valueOf (zone.getAmplitudeVelocityModulator ().getDepth ()));
-                final Element sampleElement = createSample (document, folderName, groupElement, zone);
+                final TriggerType triggerType = group.getTrigger ();
+                if (triggerType != TriggerType.ATTACK)
+                    writer.attribute (DecentSamplerTag.TRIGGER, triggerType.name ().toLowerCase (Locale.ENGLISH));
 
                 // Note: there is no amplitude envelope modulation depth parameter!
-                final IEnvelope modulatorSource = zone.getAmplitudeEnvelopeModulator ().getSource ();
-                if (ampEnvParameterLevel == ParameterLevel.ZONE)
-                    setEnvelope (sampleElement, modulatorSource);
-                else if (ampEnvParameterLevel == ParameterLevel.GROUP && zoneIndex == 0)
-                    setEnvelope (groupElement, modulatorSource);
-                else if (ampEnvParameterLevel == ParameterLevel.INSTRUMENT && groupIndex == 0 && zoneIndex == 0)
-                    setEnvelope (groupsElement, modulatorSource);
-            }
+                final List<ISampleZone> zones = group.getSampleZones ();
+                if (ampEnvParameterLevel == ParameterLevel.GROUP && !zones.isEmpty ())
+                    writeEnvelope (writer, zones.get (0).getAmplitudeEnvelopeModulator ().getSource ());
 
-            if (ampVelDepths.size () == 1)
-                XMLUtils.setDoubleAttribute (groupElement, DecentSamplerTag.AMP_VELOCITY_TRACK, ampVelDepths.iterator ().next ().doubleValue (), 4);
+                if (settings.ampVelocityTrack != null)
+                    writer.attribute (DecentSamplerTag.AMP_VELOCITY_TRACK, settings.ampVelocityTrack);
 
-            if (isSequence)
-            {
-                groupElement.setAttribute (DecentSamplerTag.SEQ_MODE, isRandom ? DecentSamplerTag.SEQ_RANDOM : DecentSamplerTag.SEQ_ROUND_ROBIN);
-                XMLUtils.setIntegerAttribute (groupElement, DecentSamplerTag.SEQ_LENGTH, seqLength);
+                if (settings.isSequence)
+                {
+                    writer.attribute (DecentSamplerTag.SEQ_MODE, settings.isRandom ? DecentSamplerTag.SEQ_RANDOM : DecentSamplerTag.SEQ_ROUND_ROBIN);
+                    writer.attribute (DecentSamplerTag.SEQ_LENGTH, settings.seqLength);
+                }
+
+                for (final ISampleZone zone: zones)
+                    createSample (writer, folderName, zone, ampEnvParameterLevel == ParameterLevel.ZONE);
+
+                // Needs to be added to all groups since envelopes seem to only work on a group
+                // level (and not instrument level)...
+                if (filter.isPresent ())
+                    createFilter (writer, filter.get ());
+
+                writer.endElement ();
             }
+            writer.endElement ();
 
-            this.createFilter (document, modulatorsElement, multisampleSource, groupElement, groupIndex);
-            if (!zones.isEmpty ())
+            writer.startElement (DecentSamplerTag.MODULATORS);
+            for (int groupIndex = 0; groupIndex < groups.size (); groupIndex++)
             {
-                createPitchModulator (document, modulatorsElement, zones.get (0).getPitchEnvelopeModulator (), groupIndex);
-                createPitchLfoModulator (document, modulatorsElement, zones.get (0).getPitchLfoModulator (), groupIndex);
-                createAmplitudeLfoModulator (document, modulatorsElement, zones.get (0).getAmplitudeLfoModulator (), groupIndex);
+                if (filter.isPresent ())
+                    createFilterModulator (writer, filter.get ().getCutoffEnvelopeModulator (), groupIndex);
+                final List<ISampleZone> zones = groups.get (groupIndex).getSampleZones ();
+                if (!zones.isEmpty ())
+                {
+                    createPitchModulator (writer, zones.get (0).getPitchEnvelopeModulator (), groupIndex);
+                    createPitchLfoModulator (writer, zones.get (0).getPitchLfoModulator (), groupIndex);
+                    createAmplitudeLfoModulator (writer, zones.get (0).getAmplitudeLfoModulator (), groupIndex);
+                }
             }
+            // The modulators of the template are added in reverse order
+            final Element childModulatorsElement = XMLUtils.getChildElementByName (xmlSnippet, "modulators");
+            if (childModulatorsElement != null)
+                for (org.w3c.dom.Node item = childModulatorsElement.getLastChild (); item != null; item = item.getPreviousSibling ())
+                    writeNode (writer, item);
+            writer.endElement ();
+
+            this.applyPolyphony (writer, polyphonyTag, multisampleSource);
+
+            // Insert the additional code from the (user) template
+            writeChildByName (writer, xmlSnippet, "effects");
+            writeChildByName (writer, xmlSnippet, "midi");
+            writeChildByName (writer, xmlSnippet, "ui");
         }
-
-        this.applyPolyphony (document, multisampleElement, groupsElement, multisampleSource);
-        this.applyTemplate (document, multisampleElement, groupsElement, modulatorsElement);
-        return this.createXMLString (document);
     }
 
 
     /**
-     * Limit the number of voices of the instrument. DecentSampler can only limit the polyphony of a
-     * tag, therefore a tag is created and assigned to all groups. The option to make the instrument
-     * monophonic always enforces one voice, otherwise the polyphony of the instrument is applied,
-     * if it is set.
+     * Get the polyphony of the instrument. The option to make the instrument monophonic always
+     * enforces one voice, otherwise the polyphony of the instrument is applied, if it is set.
      *
-     * @param document The XML document
-     * @param multisampleElement The top level element
-     * @param groupsElement The groups element
      * @param multisampleSource The multi-sample source
+     * @return The polyphony or 0 if it is not limited
      */
-    private void applyPolyphony (final Document document, final Element multisampleElement, final Element groupsElement, final IMultisampleSource multisampleSource)
+    private int getPolyphony (final IMultisampleSource multisampleSource)
     {
-        int polyphony = multisampleSource.getPolyphony ();
         if (this.settingsConfiguration.makeMonophonic () || multisampleSource.isMonophonicLegato ())
-            polyphony = 1;
+            return 1;
+        return Math.max (0, multisampleSource.getPolyphony ());
+    }
+
+
+    /**
+     * Get the name of the tag which limits the polyphony of all groups.
+     *
+     * @param multisampleSource The multi-sample source
+     * @return The name of the tag or null if the polyphony is not limited
+     */
+    private String getPolyphonyTag (final IMultisampleSource multisampleSource)
+    {
+        final int polyphony = this.getPolyphony (multisampleSource);
         if (polyphony <= 0)
+            return null;
+        return polyphony == 1 ? DecentSamplerTag.TAG_MONOPHONIC : DecentSamplerTag.TAG_POLYPHONY;
+    }
+
+
+    /**
+     * Limit the number of voices of the instrument. DecentSampler can only limit the polyphony of a
+     * tag, therefore a tag is created which is assigned to all groups.
+     *
+     * @param writer Where to write the XML
+     * @param tagName The name of the tag, nothing is written if it is null
+     * @param multisampleSource The multi-sample source
+     * @throws IOException Could not write the XML
+     */
+    private void applyPolyphony (final StreamingXMLWriter writer, final String tagName, final IMultisampleSource multisampleSource) throws IOException
+    {
+        if (tagName == null)
             return;
 
-        final String tagName = polyphony == 1 ? DecentSamplerTag.TAG_MONOPHONIC : DecentSamplerTag.TAG_POLYPHONY;
-        groupsElement.setAttribute (DecentSamplerTag.TAGS_ATTRIBUTE, tagName);
-        final Element tagsElement = XMLUtils.addElement (document, multisampleElement, DecentSamplerTag.TAGS);
-        final Element tagElement = XMLUtils.addElement (document, tagsElement, DecentSamplerTag.TAG);
-        tagElement.setAttribute (DecentSamplerTag.TAG_NAME, tagName);
-        tagElement.setAttribute (DecentSamplerTag.TAG_POLYPHONY, Integer.toString (polyphony));
+        writer.startElement (DecentSamplerTag.TAGS);
+        writer.startElement (DecentSamplerTag.TAG);
+        writer.attribute (DecentSamplerTag.TAG_NAME, tagName);
+        writer.attribute (DecentSamplerTag.TAG_POLYPHONY, this.getPolyphony (multisampleSource));
+        writer.endElement ();
+        writer.endElement ();
     }
 
 
     /**
      * Creates the metadata for one sample.
      *
-     * @param document The XML document
+     * @param writer Where to write the XML
      * @param folderName The name to use for the sample folder
-     * @param groupElement The element where to add the sample information
      * @param zone Where to get the sample info from
-     * @return The sample element
+     * @param addEnvelope True to add the amplitude envelope to the sample
+     * @throws IOException Could not write the XML
      */
-    private static Element createSample (final Document document, final String folderName, final Element groupElement, final ISampleZone zone)
+    private static void createSample (final StreamingXMLWriter writer, final String folderName, final ISampleZone zone, final boolean addEnvelope) throws IOException
     {
         // -----------------------------------------------------------
         // Sample element and attributes
 
-        final Element sampleElement = XMLUtils.addElement (document, groupElement, DecentSamplerTag.SAMPLE);
+        writer.startElement (DecentSamplerTag.SAMPLE);
 
         final String filename = zone.getName () + ".wav";
-        sampleElement.setAttribute (DecentSamplerTag.PATH, AbstractCreator.formatFileName (folderName, filename));
+        writer.attribute (DecentSamplerTag.PATH, AbstractCreator.formatFileName (folderName, filename));
 
         final double gain = zone.getGain ();
         if (gain != 0)
-            sampleElement.setAttribute (DecentSamplerTag.VOLUME, gain + "dB");
-        sampleElement.setAttribute (DecentSamplerTag.PANNING, Integer.toString ((int) Math.round (zone.getPanning () * 100.0)));
-        XMLUtils.setDoubleAttribute (sampleElement, DecentSamplerTag.START, Math.max (0, zone.getStart ()), 3);
+            writer.attribute (DecentSamplerTag.VOLUME, gain + "dB");
+        writer.attribute (DecentSamplerTag.PANNING, Integer.toString ((int) Math.round (zone.getPanning () * 100.0)));
+        writer.attribute (DecentSamplerTag.START, Math.max (0, zone.getStart ()), 3);
         final int stop = zone.getStop ();
         if (stop >= 0)
-            XMLUtils.setDoubleAttribute (sampleElement, DecentSamplerTag.END, stop, 3);
+            writer.attribute (DecentSamplerTag.END, stop, 3);
         final double tune = zone.getTuning ();
         if (tune != 0)
-            XMLUtils.setDoubleAttribute (sampleElement, DecentSamplerTag.TUNING, tune, 2);
+            writer.attribute (DecentSamplerTag.TUNING, tune, 2);
 
         final TriggerType triggerType = zone.getTrigger ();
         if (triggerType != TriggerType.ATTACK)
-            sampleElement.setAttribute (DecentSamplerTag.TRIGGER, triggerType.name ().toLowerCase (Locale.ENGLISH));
+            writer.attribute (DecentSamplerTag.TRIGGER, triggerType.name ().toLowerCase (Locale.ENGLISH));
 
         // No info.isReversed ()
 
@@ -439,22 +487,22 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
         {
             final int seqPos = zone.getSequencePosition ();
             if (seqPos >= 1)
-                sampleElement.setAttribute (DecentSamplerTag.SEQ_POSITION, Integer.toString (seqPos));
+                writer.attribute (DecentSamplerTag.SEQ_POSITION, Integer.toString (seqPos));
         }
 
         // -----------------------------------------------------------
         // Key & Velocity attributes
 
         final int keyLow = limitToDefault (zone.getKeyLow (), 0);
-        XMLUtils.setIntegerAttribute (sampleElement, DecentSamplerTag.LO_NOTE, keyLow);
+        writer.attribute (DecentSamplerTag.LO_NOTE, keyLow);
         // No fades info.getNoteCrossfadeLow ()
-        XMLUtils.setIntegerAttribute (sampleElement, DecentSamplerTag.ROOT_NOTE, limitToDefault (zone.getKeyRoot (), keyLow));
-        XMLUtils.setIntegerAttribute (sampleElement, DecentSamplerTag.HI_NOTE, limitToDefault (zone.getKeyHigh (), 127));
+        writer.attribute (DecentSamplerTag.ROOT_NOTE, limitToDefault (zone.getKeyRoot (), keyLow));
+        writer.attribute (DecentSamplerTag.HI_NOTE, limitToDefault (zone.getKeyHigh (), 127));
         // No fades info.getNoteCrossfadeHigh ()
-        XMLUtils.setDoubleAttribute (sampleElement, DecentSamplerTag.PITCH_KEY_TRACK, zone.getKeyTracking (), 4);
-        XMLUtils.setIntegerAttribute (sampleElement, DecentSamplerTag.LO_VEL, limitToDefault (zone.getVelocityLow (), 1));
+        writer.attribute (DecentSamplerTag.PITCH_KEY_TRACK, zone.getKeyTracking (), 4);
+        writer.attribute (DecentSamplerTag.LO_VEL, limitToDefault (zone.getVelocityLow (), 1));
         // No fades info.getVelocityCrossfadeLow ()
-        XMLUtils.setIntegerAttribute (sampleElement, DecentSamplerTag.HI_VEL, limitToDefault (zone.getVelocityHigh (), 127));
+        writer.attribute (DecentSamplerTag.HI_VEL, limitToDefault (zone.getVelocityHigh (), 127));
         // No fades info.getVelocityCrossfadeHigh ()
 
         // -----------------------------------------------------------
@@ -463,43 +511,48 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
         final List<ISampleLoop> loops = zone.getLoops ();
         // Loops are enabled by default!
         if (loops.isEmpty ())
-            sampleElement.setAttribute (DecentSamplerTag.LOOP_ENABLED, "false");
+            writer.attribute (DecentSamplerTag.LOOP_ENABLED, "false");
         else
         {
 
             final ISampleLoop sampleLoop = loops.get (0);
-            sampleElement.setAttribute (DecentSamplerTag.LOOP_ENABLED, "true");
-            XMLUtils.setDoubleAttribute (sampleElement, DecentSamplerTag.LOOP_START, limitToDefault (sampleLoop.getStart (), 0), 3);
-            XMLUtils.setDoubleAttribute (sampleElement, DecentSamplerTag.LOOP_END, limitToDefault (sampleLoop.getEnd (), stop), 3);
+            writer.attribute (DecentSamplerTag.LOOP_ENABLED, "true");
+            writer.attribute (DecentSamplerTag.LOOP_START, limitToDefault (sampleLoop.getStart (), 0), 3);
+            writer.attribute (DecentSamplerTag.LOOP_END, limitToDefault (sampleLoop.getEnd (), stop), 3);
 
             // Calculate the cross-fade in frames/samples from a percentage of the loop length
             final int crossfade = sampleLoop.getCrossfadeInSamples ();
             if (crossfade > 0)
-                XMLUtils.setIntegerAttribute (sampleElement, DecentSamplerTag.LOOP_CROSSFADE, crossfade);
+                writer.attribute (DecentSamplerTag.LOOP_CROSSFADE, crossfade);
         }
 
-        return sampleElement;
+        // Note: there is no amplitude envelope modulation depth parameter!
+        if (addEnvelope)
+            writeEnvelope (writer, zone.getAmplitudeEnvelopeModulator ().getSource ());
+
+        writer.endElement ();
     }
 
 
-    private void createFilter (final Document document, final Element modulatorsElement, final IMultisampleSource multisampleSource, final Element groupElement, final int groupIndex)
+    /**
+     * Get the filter to add to all groups.
+     *
+     * @param multisampleSource The multi-sample source
+     * @return The global filter, the default filter if groups should always get one or empty
+     */
+    private Optional<IFilter> getFilter (final IMultisampleSource multisampleSource)
     {
         final Optional<IFilter> globalFilter = multisampleSource.getGlobalFilter ();
-        final IFilter filter;
-        if (globalFilter.isEmpty ())
-        {
-            if (!this.settingsConfiguration.addFilterToGroups ())
-                return;
-            filter = DEFAULT_LOW_PASS_FILTER;
-        }
-        else
-            filter = globalFilter.get ();
+        if (globalFilter.isEmpty () && this.settingsConfiguration.addFilterToGroups ())
+            return Optional.of (DEFAULT_LOW_PASS_FILTER);
+        return globalFilter;
+    }
 
-        // Needs to be added to all groups since envelopes seem to only work on a group level (and
-        // not instrument level)...
 
-        final Element effectsElement = XMLUtils.addElement (document, groupElement, DecentSamplerTag.EFFECTS);
-        final Element filterElement = XMLUtils.addElement (document, effectsElement, DecentSamplerTag.EFFECTS_EFFECT);
+    private static void createFilter (final StreamingXMLWriter writer, final IFilter filter) throws IOException
+    {
+        writer.startElement (DecentSamplerTag.EFFECTS);
+        writer.startElement (DecentSamplerTag.EFFECTS_EFFECT);
 
         boolean isNotch = false;
         switch (filter.getType ())
@@ -507,16 +560,16 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
             default:
             case LOW_PASS:
                 // 'lowpass' is 4 pole filter
-                filterElement.setAttribute ("type", filter.getPoles () == 1 ? "lowpass_1pl" : "lowpass");
+                writer.attribute ("type", filter.getPoles () == 1 ? "lowpass_1pl" : "lowpass");
                 break;
             case HIGH_PASS:
-                filterElement.setAttribute ("type", "highpass");
+                writer.attribute ("type", "highpass");
                 break;
             case BAND_PASS:
-                filterElement.setAttribute ("type", "bandpass");
+                writer.attribute ("type", "bandpass");
                 break;
             case BAND_REJECTION:
-                filterElement.setAttribute ("type", "notch");
+                writer.attribute ("type", "notch");
                 isNotch = true;
                 break;
         }
@@ -525,33 +578,42 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
         // lower than 0.7 will start to reduce the frequency at the cutoff point, and a value near 0
         // will actually stop sound altogether. From a practical perspective, it usually makes sense
         // to think of 0.7 as the minimum value, as this produces no "bump" at the cutoff point.
-        filterElement.setAttribute ("resonance", formatDouble (filter.getResonance () * 4.3 + 0.7, 3));
-        filterElement.setAttribute (isNotch ? "q" : "frequency", formatDouble (filter.getCutoff (), 2));
+        writer.attribute ("resonance", formatDouble (filter.getResonance () * 4.3 + 0.7, 3));
+        writer.attribute (isNotch ? "q" : "frequency", formatDouble (filter.getCutoff (), 2));
 
-        final IEnvelopeModulator cutoffModulator = filter.getCutoffEnvelopeModulator ();
+        writer.endElement ();
+        writer.endElement ();
+    }
+
+
+    private static void createFilterModulator (final StreamingXMLWriter writer, final IEnvelopeModulator cutoffModulator, final int groupIndex) throws IOException
+    {
         final double envelopeDepth = cutoffModulator.getDepth ();
-        if (envelopeDepth > 0)
-        {
-            final Element envelopeElement = XMLUtils.addElement (document, modulatorsElement, DecentSamplerTag.ENVELOPE);
-            XMLUtils.setDoubleAttribute (envelopeElement, DecentSamplerTag.MOD_AMOUNT, envelopeDepth, 2);
-            envelopeElement.setAttribute ("scope", "voice");
-
-            setEnvelope (envelopeElement, cutoffModulator.getSource ());
-
-            final Element bindingElement = XMLUtils.addElement (document, envelopeElement, DecentSamplerTag.BINDING);
-            bindingElement.setAttribute ("type", "effect");
-            bindingElement.setAttribute (TAG_LEVEL, TAG_GROUP);
-            bindingElement.setAttribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
-            bindingElement.setAttribute ("effectIndex", "0");
-            bindingElement.setAttribute (TAG_PARAMETER, "FX_FILTER_FREQUENCY");
-            bindingElement.setAttribute (TAG_MOD_BEHAVIOR, "add");
-            bindingElement.setAttribute (TAG_TRANSLATION, "table");
-            bindingElement.setAttribute ("translationTable", "0,33;0.3,150;0.4,450;0.5,1100;0.7,4100;0.9,11000;1.0001,22000");
-        }
+        if (envelopeDepth <= 0)
+            return;
+
+        writer.startElement (DecentSamplerTag.ENVELOPE);
+        writer.attribute (DecentSamplerTag.MOD_AMOUNT, envelopeDepth, 2);
+        writer.attribute ("scope", "voice");
+
+        writeEnvelope (writer, cutoffModulator.getSource ());
+
+        writer.startElement (DecentSamplerTag.BINDING);
+        writer.attribute ("type", "effect");
+        writer.attribute (TAG_LEVEL, TAG_GROUP);
+        writer.attribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
+        writer.attribute ("effectIndex", "0");
+        writer.attribute (TAG_PARAMETER, "FX_FILTER_FREQUENCY");
+        writer.attribute (TAG_MOD_BEHAVIOR, "add");
+        writer.attribute (TAG_TRANSLATION, "table");
+        writer.attribute ("translationTable", "0,33;0.3,150;0.4,450;0.5,1100;0.7,4100;0.9,11000;1.0001,22000");
+        writer.endElement ();
+
+        writer.endElement ();
     }
 
 
-    private static void createPitchLfoModulator (final Document document, final Element modulatorsElement, final ILfoModulator pitchLfoModulator, final int groupIndex)
+    private static void createPitchLfoModulator (final StreamingXMLWriter writer, final ILfoModulator pitchLfoModulator, final int groupIndex) throws IOException
     {
         final double lfoDepth = pitchLfoModulator.getDepth ();
         if (lfoDepth == 0)
@@ -559,36 +621,39 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
 
         final ILfo pitchLfo = pitchLfoModulator.getSource ();
 
-        final Element lfoElement = XMLUtils.addElement (document, modulatorsElement, DecentSamplerTag.LFO);
-        lfoElement.setAttribute (DecentSamplerTag.LFO_SHAPE, toLfoShape (pitchLfo.getWaveform ()));
+        writer.startElement (DecentSamplerTag.LFO);
+        writer.attribute (DecentSamplerTag.LFO_SHAPE, toLfoShape (pitchLfo.getWaveform ()));
         // The modulation depth is applied through the binding range below, like the pitch envelope.
         // A vibrato depth is small in relation to the full range, so more digits are needed here.
-        XMLUtils.setDoubleAttribute (lfoElement, DecentSamplerTag.MOD_AMOUNT, Math.abs (lfoDepth), 5);
+        writer.attribute (DecentSamplerTag.MOD_AMOUNT, Math.abs (lfoDepth), 5);
         final double rate = pitchLfo.getRate ();
         if (rate > 0)
         {
-            lfoElement.setAttribute (DecentSamplerTag.LFO_FREQUENCY_FORMAT, "hz");
-            XMLUtils.setDoubleAttribute (lfoElement, DecentSamplerTag.LFO_FREQUENCY, rate, 3);
+            writer.attribute (DecentSamplerTag.LFO_FREQUENCY_FORMAT, "hz");
+            writer.attribute (DecentSamplerTag.LFO_FREQUENCY, rate, 3);
         }
         final double delay = pitchLfo.getDelay ();
         if (delay > 0)
-            XMLUtils.setDoubleAttribute (lfoElement, DecentSamplerTag.LFO_DELAY_TIME, delay, 3);
-
-        final Element bindingElement = XMLUtils.addElement (document, lfoElement, DecentSamplerTag.BINDING);
-        bindingElement.setAttribute ("type", "amp");
-        bindingElement.setAttribute (TAG_LEVEL, TAG_GROUP);
-        bindingElement.setAttribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
-        bindingElement.setAttribute (TAG_PARAMETER, "GROUP_TUNING");
-        bindingElement.setAttribute (TAG_TRANSLATION, TAG_LINEAR);
+            writer.attribute (DecentSamplerTag.LFO_DELAY_TIME, delay, 3);
+
+        writer.startElement (DecentSamplerTag.BINDING);
+        writer.attribute ("type", "amp");
+        writer.attribute (TAG_LEVEL, TAG_GROUP);
+        writer.attribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
+        writer.attribute (TAG_PARAMETER, "GROUP_TUNING");
+        writer.attribute (TAG_TRANSLATION, TAG_LINEAR);
         // Unit are semi-tones; the oscillator is bipolar, so the full range is applied
         // symmetrically
-        bindingElement.setAttribute (TAG_TRANSLATION_OUTPUT_MIN, Integer.toString (-IEnvelope.MAX_ENVELOPE_DEPTH / 100));
-        bindingElement.setAttribute (TAG_TRANSLATION_OUTPUT_MAX, Integer.toString (IEnvelope.MAX_ENVELOPE_DEPTH / 100));
-        bindingElement.setAttribute (TAG_MOD_BEHAVIOR, "add");
+        writer.attribute (TAG_TRANSLATION_OUTPUT_MIN, Integer.toString (-IEnvelope.MAX_ENVELOPE_DEPTH / 100));
+        writer.attribute (TAG_TRANSLATION_OUTPUT_MAX, Integer.toString (IEnvelope.MAX_ENVELOPE_DEPTH / 100));
+        writer.attribute (TAG_MOD_BEHAVIOR, "add");
+        writer.endElement ();
+
+        writer.endElement ();
     }
 
 
-    private static void createAmplitudeLfoModulator (final Document document, final Element modulatorsElement, final ILfoModulator amplitudeLfoModulator, final int groupIndex)
+    private static void createAmplitudeLfoModulator (final StreamingXMLWriter writer, final ILfoModulator amplitudeLfoModulator, final int groupIndex) throws IOException
     {
         final double lfoDepth = amplitudeLfoModulator.getDepth ();
         if (lfoDepth == 0)
@@ -596,33 +661,36 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
 
         final ILfo amplitudeLfo = amplitudeLfoModulator.getSource ();
 
-        final Element lfoElement = XMLUtils.addElement (document, modulatorsElement, DecentSamplerTag.LFO);
-        lfoElement.setAttribute (DecentSamplerTag.LFO_SHAPE, toLfoShape (amplitudeLfo.getWaveform ()));
+        writer.startElement (DecentSamplerTag.LFO);
+        writer.attribute (DecentSamplerTag.LFO_SHAPE, toLfoShape (amplitudeLfo.getWaveform ()));
         // The volume parameter is linear with 1 being full volume. The bipolar oscillator swings by
         // the modulation amount around it, therefore a depth of d dB requires a swing of
         // 1-10^(-d/20) for its lowest point to be d dB below full volume.
         final double depthDecibels = Math.abs (lfoDepth) * ILfoModulator.MAX_VOLUME_DEPTH;
-        XMLUtils.setDoubleAttribute (lfoElement, DecentSamplerTag.MOD_AMOUNT, 1.0 - Math.pow (10.0, -depthDecibels / 20.0), 5);
+        writer.attribute (DecentSamplerTag.MOD_AMOUNT, 1.0 - Math.pow (10.0, -depthDecibels / 20.0), 5);
         final double rate = amplitudeLfo.getRate ();
         if (rate > 0)
         {
-            lfoElement.setAttribute (DecentSamplerTag.LFO_FREQUENCY_FORMAT, "hz");
-            XMLUtils.setDoubleAttribute (lfoElement, DecentSamplerTag.LFO_FREQUENCY, rate, 3);
+            writer.attribute (DecentSamplerTag.LFO_FREQUENCY_FORMAT, "hz");
+            writer.attribute (DecentSamplerTag.LFO_FREQUENCY, rate, 3);
         }
         final double delay = amplitudeLfo.getDelay ();
         if (delay > 0)
-            XMLUtils.setDoubleAttribute (lfoElement, DecentSamplerTag.LFO_DELAY_TIME, delay, 3);
-
-        final Element bindingElement = XMLUtils.addElement (document, lfoElement, DecentSamplerTag.BINDING);
-        bindingElement.setAttribute ("type", "amp");
-        bindingElement.setAttribute (TAG_LEVEL, TAG_GROUP);
-        bindingElement.setAttribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
-        bindingElement.setAttribute (TAG_PARAMETER, "AMP_VOLUME");
-        bindingElement.setAttribute (TAG_TRANSLATION, TAG_LINEAR);
+            writer.attribute (DecentSamplerTag.LFO_DELAY_TIME, delay, 3);
+
+        writer.startElement (DecentSamplerTag.BINDING);
+        writer.attribute ("type", "amp");
+        writer.attribute (TAG_LEVEL, TAG_GROUP);
+        writer.attribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
+        writer.attribute (TAG_PARAMETER, "AMP_VOLUME");
+        writer.attribute (TAG_TRANSLATION, TAG_LINEAR);
         // The oscillator is bipolar, the swing is applied symmetrically around the group volume
-        bindingElement.setAttribute (TAG_TRANSLATION_OUTPUT_MIN, "-1");
-        bindingElement.setAttribute (TAG_TRANSLATION_OUTPUT_MAX, "1");
-        bindingElement.setAttribute (TAG_MOD_BEHAVIOR, "add");
+        writer.attribute (TAG_TRANSLATION_OUTPUT_MIN, "-1");
+        writer.attribute (TAG_TRANSLATION_OUTPUT_MAX, "1");
+        writer.attribute (TAG_MOD_BEHAVIOR, "add");
+        writer.endElement ();
+
+        writer.endElement ();
     }
 
 
@@ -639,128 +707,178 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
     }
 
 
-    private static void createPitchModulator (final Document document, final Element modulatorsElement, final IEnvelopeModulator pitchModulator, final int groupIndex)
+    private static void createPitchModulator (final StreamingXMLWriter writer, final IEnvelopeModulator pitchModulator, final int groupIndex) throws IOException
     {
         final double envelopeDepth = pitchModulator.getDepth ();
         // Only positive values allowed in DecentSampler
         if (envelopeDepth <= 0)
             return;
 
-        final Element envelopeElement = XMLUtils.addElement (document, modulatorsElement, DecentSamplerTag.ENVELOPE);
-        XMLUtils.setDoubleAttribute (envelopeElement, DecentSamplerTag.MOD_AMOUNT, envelopeDepth, 2);
+        writer.startElement (DecentSamplerTag.ENVELOPE);
+        writer.attribute (DecentSamplerTag.MOD_AMOUNT, envelopeDepth, 2);
 
-        setEnvelope (envelopeElement, pitchModulator.getSource ());
-        envelopeElement.setAttribute ("scope", "voice");
+        writeEnvelope (writer, pitchModulator.getSource ());
+        writer.attribute ("scope", "voice");
 
-        final Element bindingElement = XMLUtils.addElement (document, envelopeElement, DecentSamplerTag.BINDING);
-        bindingElement.setAttribute ("type", "amp");
-        bindingElement.setAttribute (TAG_LEVEL, TAG_GROUP);
-        bindingElement.setAttribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
-        bindingElement.setAttribute (TAG_PARAMETER, "GROUP_TUNING");
-        bindingElement.setAttribute (TAG_TRANSLATION, TAG_LINEAR);
-        bindingElement.setAttribute (TAG_TRANSLATION_OUTPUT_MIN, "0");
+        writer.startElement (DecentSamplerTag.BINDING);
+        writer.attribute ("type", "amp");
+        writer.attribute (TAG_LEVEL, TAG_GROUP);
+        writer.attribute (TAG_GROUP_INDEX, Integer.toString (groupIndex));
+        writer.attribute (TAG_PARAMETER, "GROUP_TUNING");
+        writer.attribute (TAG_TRANSLATION, TAG_LINEAR);
+        writer.attribute (TAG_TRANSLATION_OUTPUT_MIN, "0");
         // Unit are semi-tones; maximum value is 120 semi-tones
-        bindingElement.setAttribute (TAG_TRANSLATION_OUTPUT_MAX, Integer.toString (IEnvelope.MAX_ENVELOPE_DEPTH / 100));
-        bindingElement.setAttribute (TAG_MOD_BEHAVIOR, "add");
+        writer.attribute (TAG_TRANSLATION_OUTPUT_MAX, Integer.toString (IEnvelope.MAX_ENVELOPE_DEPTH / 100));
+        writer.attribute (TAG_MOD_BEHAVIOR, "add");
+        writer.endElement ();
+
+        writer.endElement ();
     }
 
 
     /**
-     * Create the static user interface from a template.
+     * Read the static user interface from the template.
      *
-     * @param document The XML document
-     * @param rootElement The root XML element
-     * @param groupsElement The groups element
-     * @param modulatorsElement The modulatorsElement
+     * @param instrumentEnvelope The attributes of the instrument amplitude envelope
+     * @param ampVelocityTrack The velocity sensitivity of the first group, might be null
+     * @return The root node which contains the XML code of the template
      * @throws IOException Could not load the template
      */
-    private void applyTemplate (final Document document, final Element rootElement, final Element groupsElement, final Element modulatorsElement) throws IOException
+    private Element readTemplate (final Map<String, String> instrumentEnvelope, final String ampVelocityTrack) throws IOException
     {
-        // Read again the created amplitude envelope values...
-        final double attackAttribute = XMLUtils.getDoubleAttribute (groupsElement, DecentSamplerTag.ENV_ATTACK, 0.0);
-        final double decayAttribute = XMLUtils.getDoubleAttribute (groupsElement, DecentSamplerTag.ENV_DECAY, 0.0);
-        final double sustainAttribute = XMLUtils.getDoubleAttribute (groupsElement, DecentSamplerTag.ENV_SUSTAIN, 1.0);
-        final double releaseAttribute = XMLUtils.getDoubleAttribute (groupsElement, DecentSamplerTag.ENV_RELEASE, 0.1);
-        final Element groupElement = XMLUtils.getChildElementByName (groupsElement, DecentSamplerTag.GROUP);
-        final double ampVelTrackAttribute = groupElement != null ? XMLUtils.getDoubleAttribute (groupElement, DecentSamplerTag.AMP_VELOCITY_TRACK, 0.0) : 0.0;
+        final double attackAttribute = getDoubleAttribute (instrumentEnvelope, DecentSamplerTag.ENV_ATTACK, 0.0);
+        final double decayAttribute = getDoubleAttribute (instrumentEnvelope, DecentSamplerTag.ENV_DECAY, 0.0);
+        final double sustainAttribute = getDoubleAttribute (instrumentEnvelope, DecentSamplerTag.ENV_SUSTAIN, 1.0);
+        final double releaseAttribute = getDoubleAttribute (instrumentEnvelope, DecentSamplerTag.ENV_RELEASE, 0.1);
+        final double ampVelTrackAttribute = ampVelocityTrack == null ? 0.0 : Double.parseDouble (ampVelocityTrack);
 
-        // ... and apply them to the template variables
+        // Apply the amplitude envelope values to the template variables
         String template = this.settingsConfiguration.getTemplateCode ("ui.xml").trim ();
         template = template.replace ("%ENV_ATTACK_VALUE%", String.format (Locale.US, "%.3f", Double.valueOf (attackAttribute)));
         template = template.replace ("%ENV_DECAY_VALUE%", String.format (Locale.US, "%.3f", Double.valueOf (decayAttribute)));
         template = template.replace ("%ENV_SUSTAIN_VALUE%", String.format (Locale.US, "%.3f", Double.valueOf (sustainAttribute)));
         template = template.replace ("%ENV_RELEASE_VALUE%", String.format (Locale.US, "%.3f", Double.valueOf (releaseAttribute)));
         template = template.replace ("%ENV_VELOCITY_SENSITIVITY%", String.format (Locale.US, "%.4f", Double.valueOf (ampVelTrackAttribute)));
+        return readXMLSnippet (template);
+    }
 
-        // Insert the additional code from the (user) template into the created document
-        final org.w3c.dom.Node xmlSnippet = readXMLSnippet (document, template);
-        addChildByName (rootElement, xmlSnippet, "effects");
-        addChildByName (rootElement, xmlSnippet, "midi");
-        addChildByName (rootElement, xmlSnippet, "ui");
-        final Element childModulatorsElement = XMLUtils.getChildElementByName (xmlSnippet, "modulators");
-        if (childModulatorsElement != null)
-        {
-            final NodeList modulatorsChildrenList = childModulatorsElement.getChildNodes ();
-            final int length = modulatorsChildrenList.getLength ();
-            for (int i = length - 1; i >= 0; i--)
-            {
-                final org.w3c.dom.Node item = modulatorsChildrenList.item (i);
-                if (item != null)
-                    modulatorsElement.appendChild (item);
-            }
-        }
+
+    private static double getDoubleAttribute (final Map<String, String> attributes, final String name, final double defaultValue)
+    {
+        final String value = attributes.get (name);
+        return value == null ? defaultValue : Double.parseDouble (value);
     }
 
 
-    private static void addChildByName (final Element rootElement, final org.w3c.dom.Node xmlSnippet, final String childName)
+    private static void writeChildByName (final StreamingXMLWriter writer, final org.w3c.dom.Node xmlSnippet, final String childName) throws IOException
     {
         final Element childElement = XMLUtils.getChildElementByName (xmlSnippet, childName);
         if (childElement != null)
-            rootElement.appendChild (childElement);
+            writeNode (writer, childElement);
     }
 
 
     /**
-     * Set the amplitude envelope parameters to the given element.
+     * Write a node of the template with all of its children.
      *
-     * @param element Where to add the parameters
+     * @param writer Where to write the XML
+     * @param node The node to write
+     * @throws IOException Could not write the XML
+     */
+    private static void writeNode (final StreamingXMLWriter writer, final org.w3c.dom.Node node) throws IOException
+    {
+        switch (node.getNodeType ())
+        {
+            case org.w3c.dom.Node.ELEMENT_NODE:
+                writer.startElement (node.getNodeName ());
+                final NamedNodeMap attributes = node.getAttributes ();
+                for (int i = 0; i < attributes.getLength (); i++)
+                {
+                    final org.w3c.dom.Node attribute = attributes.item (i);
+                    writer.attribute (attribute.getNodeName (), attribute.getNodeValue ());
+                }
+                for (org.w3c.dom.Node child = node.getFirstChild (); child != null; child = child.getNextSibling ())
+                    writeNode (writer, child);
+                writer.endElement ();
+                break;
+
+            case org.w3c.dom.Node.TEXT_NODE, org.w3c.dom.Node.CDATA_SECTION_NODE:
+                writer.text (node.getNodeValue ());
+                break;
+
+            case org.w3c.dom.Node.COMMENT_NODE:
+                writer.comment (node.getNodeValue ());
+                break;
+
+            default:
+                // Nothing else is contained in a template
+                break;
+        }
+    }
+
+
+    /**
+     * Write the amplitude envelope parameters as attributes of the current element.
+     *
+     * @param writer Where to write the XML
      * @param envelope The envelope
      */
-    private static void setEnvelope (final Element element, final IEnvelope envelope)
+    private static void writeEnvelope (final StreamingXMLWriter writer, final IEnvelope envelope)
     {
-        setEnvelopeTimeAttribute (element, DecentSamplerTag.ENV_ATTACK, envelope.getAttackTime ());
-        setEnvelopeTimeAttribute (element, DecentSamplerTag.ENV_DECAY, Math.max (0, envelope.getHoldTime ()) + Math.max (0, envelope.getDecayTime ()));
-        setEnvelopeAttribute (element, DecentSamplerTag.ENV_SUSTAIN, envelope.getSustainLevel ());
-        setEnvelopeTimeAttribute (element, DecentSamplerTag.ENV_RELEASE, envelope.getReleaseTime ());
+        final Map<String, String> attributes = new TreeMap<> ();
+        addEnvelopeAttributes (attributes, envelope);
+        writeAttributes (writer, attributes);
+    }
 
-        setEnvelopeSlopeAttribute (element, DecentSamplerTag.ENV_ATTACK_CURVE, envelope.getAttackSlope () * 100.0);
-        setEnvelopeSlopeAttribute (element, DecentSamplerTag.ENV_DECAY_CURVE, envelope.getDecaySlope () * 100.0);
-        setEnvelopeSlopeAttribute (element, DecentSamplerTag.ENV_RELEASE_CURVE, envelope.getReleaseSlope () * 100.0);
+
+    private static void writeAttributes (final StreamingXMLWriter writer, final Map<String, String> attributes)
+    {
+        for (final Map.Entry<String, String> attribute: attributes.entrySet ())
+            writer.attribute (attribute.getKey (), attribute.getValue ());
     }
 
 
-    private static void setEnvelopeTimeAttribute (final Element element, final String attribute, final double value)
+    /**
+     * Get the amplitude envelope parameters as attributes.
+     *
+     * @param attributes Where to add the attributes
+     * @param envelope The envelope
+     */
+    private static void addEnvelopeAttributes (final Map<String, String> attributes, final IEnvelope envelope)
+    {
+        setEnvelopeTimeAttribute (attributes, DecentSamplerTag.ENV_ATTACK, envelope.getAttackTime ());
+        setEnvelopeTimeAttribute (attributes, DecentSamplerTag.ENV_DECAY, Math.max (0, envelope.getHoldTime ()) + Math.max (0, envelope.getDecayTime ()));
+        setEnvelopeAttribute (attributes, DecentSamplerTag.ENV_SUSTAIN, envelope.getSustainLevel ());
+        setEnvelopeTimeAttribute (attributes, DecentSamplerTag.ENV_RELEASE, envelope.getReleaseTime ());
+
+        setEnvelopeSlopeAttribute (attributes, DecentSamplerTag.ENV_ATTACK_CURVE, envelope.getAttackSlope () * 100.0);
+        setEnvelopeSlopeAttribute (attributes, DecentSamplerTag.ENV_DECAY_CURVE, envelope.getDecaySlope () * 100.0);
+        setEnvelopeSlopeAttribute (attributes, DecentSamplerTag.ENV_RELEASE_CURVE, envelope.getReleaseSlope () * 100.0);
+    }
+
+
+    private static void setEnvelopeTimeAttribute (final Map<String, String> attributes, final String attribute, final double value)
     {
         if (value >= 0)
-            setEnvelopeAttribute (element, attribute, value);
+            setEnvelopeAttribute (attributes, attribute, value);
     }
 
 
-    private static void setEnvelopeAttribute (final Element element, final String attribute, final double value)
+    private static void setEnvelopeAttribute (final Map<String, String> attributes, final String attribute, final double value)
     {
         if (value >= 0)
-            XMLUtils.setDoubleAttribute (element, attribute, value, 3);
+            attributes.put (attribute, formatDouble (value, 3));
     }
 
 
-    private static void setEnvelopeSlopeAttribute (final Element element, final String attribute, final double value)
+    private static void setEnvelopeSlopeAttribute (final Map<String, String> attributes, final String attribute, final double value)
     {
         if (value != 0)
-            XMLUtils.setDoubleAttribute (element, attribute, value, 3);
+            attributes.put (attribute, formatDouble (value, 3));
     }
 
 
-    private static org.w3c.dom.Node readXMLSnippet (final Document document, final String template) throws IOException
+    private static Element readXMLSnippet (final String template) throws IOException
     {
         final Document templateDocument;
         try
@@ -777,7 +895,7 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
         final Element templateDocumentElement = templateDocument.getDocumentElement ();
         templateDocumentElement.normalize ();
         trimWhitespace (templateDocumentElement);
-        return document.importNode (templateDocumentElement, true);
+        return templateDocumentElement;
     }
 
 
@@ -790,6 +908,44 @@ public class DecentSamplerCreator extends AbstractWavCreator<DecentSamplerCreato
     }
 
 
+    /**
+     * The settings of a group which are calculated from all of its zones.
+     */
+    private static class GroupSettings
+    {
+        boolean isSequence       = false;
+        boolean isRandom         = false;
+        int     seqLength        = 0;
+        String  ampVelocityTrack = null;
+
+
+        /**
+         * Constructor.
+         *
+         * @param zones The zones of the group
+         */
+        GroupSettings (final List<ISampleZone> zones)
+        {
+            final Set<Double> ampVelDepths = new HashSet<> ();
+            for (final ISampleZone zone: zones)
+            {
+                final PlayLogic playLogic = zone.getPlayLogic ();
+                this.isSequence = this.isSequence || playLogic != PlayLogic.ALWAYS;
+                this.isRandom = this.isRandom || playLogic == PlayLogic.RANDOM;
+                // The sequence length is the number of round-robin positions and not the
+                // number of zones
+                if (this.isSequence && zone.getSequencePosition () >= 1)
+                    this.seqLength = Math.max (this.seqLength, zone.getSequencePosition ());
+
+                ampVelDepths.add (Double.valueOf (zone.getAmplitudeVelocityModulator ().getDepth ()));
+            }
+
+            if (ampVelDepths.size () == 1)
+                this.ampVelocityTrack = formatDouble (ampVelDepths.iterator ().next ().doubleValue (), 4);
+        }
+    }
+
+
     private void copyResources (final File resourceDestination) throws IOException
     {
         final File templateFolderPath = this.settingsConfiguration.getTemplateFolderPath ();
@@ -16,6 +16,7 @@ import java.util.TreeMap;
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.detector.AbstractDetector;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelope;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelopeModulator;
 import de.mossgrabers.convertwithmoss.core.model.IGroup;
@@ -33,7 +34,9 @@ import de.mossgrabers.convertwithmoss.file.dls.DlsArticulation;
 import de.mossgrabers.convertwithmoss.file.dls.DlsFile;
 import de.mossgrabers.convertwithmoss.file.dls.DlsInstrument;
 import de.mossgrabers.convertwithmoss.file.dls.DlsRegion;
+import de.mossgrabers.convertwithmoss.file.dls.DlsRiffChunkId;
 import de.mossgrabers.convertwithmoss.file.riff.InfoRiffChunkId;
+import de.mossgrabers.convertwithmoss.file.riff.RiffChunkId;
 import de.mossgrabers.convertwithmoss.format.TagDetector;
 import de.mossgrabers.convertwithmoss.format.wav.WavFileSampleData;
 import de.mossgrabers.tools.FileUtils;
@@ -57,6 +60,16 @@ public class DlsDetector extends AbstractDetector<MetadataSettingsUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        if (super.probe (file, header, endings, detectPerformances) == ProbeResult.NO_MATCH)
+            return ProbeResult.NO_MATCH;
+        return RiffChunkId.isRiffForm (header, DlsRiffChunkId.DLS_ID) ? ProbeResult.SIGNATURE : ProbeResult.NO_MATCH;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected List<IMultisampleSource> readPresetFile (final File file)
@@ -50,11 +50,13 @@ public class Emu3DiskImage
     private static final int     FILE_TYPE_BANK      = 0x81;
 
 
-    /** A file read from the image. */
+    /** A file read from or written to the image. */
     public static class ImageFile
     {
         private final String  name;
         private final byte [] content;
+        private final File    contentFile;
+        private final long    size;
 
 
         /**
@@ -67,6 +69,24 @@ public class Emu3DiskImage
         {
             this.name = name;
             this.content = content;
+            this.contentFile = null;
+            this.size = content.length;
+        }
+
+
+        /**
+         * Constructor for a file to write whose content is stored in a file on disk, it is copied
+         * into the image when the image is written.
+         *
+         * @param name The name of the file
+         * @param contentFile The file which contains the content of the file
+         */
+        public ImageFile (final String name, final File contentFile)
+        {
+            this.name = name;
+            this.content = null;
+            this.contentFile = contentFile;
+            this.size = contentFile.length ();
         }
 
 
@@ -84,12 +104,38 @@ public class Emu3DiskImage
         /**
          * Get the content of the file.
          *
-         * @return The content
+         * @return The content, null if the content is stored in a file on disk
          */
         public byte [] getContent ()
         {
             return this.content;
         }
+
+
+        /**
+         * Get the size of the file.
+         *
+         * @return The size in bytes
+         */
+        public long getSize ()
+        {
+            return this.size;
+        }
+
+
+        /**
+         * Write the content of the file.
+         *
+         * @param out Where to write to
+         * @throws IOException Could not read or write the content
+         */
+        public void writeContent (final OutputStream out) throws IOException
+        {
+            if (this.contentFile == null)
+                out.write (this.content);
+            else
+                Files.copy (this.contentFile.toPath (), out);
+        }
     }
 
 
@@ -389,7 +435,7 @@ public class Emu3DiskImage
             clusterBytes = 1L << 15 + extra;
             numClusters = 0;
             for (final ImageFile file: files)
-                numClusters += (file.getContent ().length + clusterBytes - 1) / clusterBytes;
+                numClusters += (file.getSize () + clusterBytes - 1) / clusterBytes;
             if (numClusters <= layout.getMaximumClusters ())
             {
                 clusterSizeExtra = extra;
@@ -418,9 +464,8 @@ public class Emu3DiskImage
             // The file data, each file padded to a full cluster
             for (final ImageFile file: files)
             {
-                final byte [] content = file.getContent ();
-                out.write (content);
-                final int pad = (int) ((clusterBytes - content.length % clusterBytes) % clusterBytes);
+                file.writeContent (out);
+                final int pad = (int) ((clusterBytes - file.getSize () % clusterBytes) % clusterBytes);
                 if (pad > 0)
                     out.write (new byte [pad]);
             }
@@ -505,7 +550,7 @@ public class Emu3DiskImage
         int cluster = 1;
         for (final ImageFile file: files)
         {
-            final int numClusters = (int) ((file.getContent ().length + clusterBytes - 1) / clusterBytes);
+            final int numClusters = (int) ((file.getSize () + clusterBytes - 1) / clusterBytes);
             for (int i = 0; i < numClusters; i++)
             {
                 Emulator4Constants.putU16LE (fat, cluster * 2, i < numClusters - 1 ? cluster + 1 : LAST_CLUSTER);
@@ -553,7 +598,7 @@ public class Emu3DiskImage
             final ImageFile file = files.get (i);
             // The entries fill one block after the other but their numbers run through all of them
             final int offset = i / ENTRIES_PER_BLOCK * BLOCK_SIZE + i % ENTRIES_PER_BLOCK * ENTRY_SIZE;
-            final long size = file.getContent ().length;
+            final long size = file.getSize ();
             final int numClusters = (int) ((size + clusterBytes - 1) / clusterBytes);
             final long lastClusterBytes = size - (numClusters - 1L) * clusterBytes;
             // A partially filled last block counts as a whole block, otherwise the firmware
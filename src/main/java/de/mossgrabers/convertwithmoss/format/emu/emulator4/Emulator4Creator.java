@@ -5,12 +5,19 @@
 package de.mossgrabers.convertwithmoss.format.emu.emulator4;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,6 +59,8 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
 {
     /** The maximum sample playback rate of the EOS samplers. */
     private static final int                    MAX_SAMPLE_RATE    = 48000;
+    /** The number of sample frames which are mixed down to mono at once. */
+    private static final int                    MIX_BLOCK_FRAMES   = 16384;
 
     private static final DestinationAudioFormat DESTINATION_FORMAT = new DestinationAudioFormat (new int []
     {
@@ -59,11 +68,14 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
     }, MAX_SAMPLE_RATE, false);
 
 
-    /** Holds one de-duplicated sample to be written as an E3S1 chunk. */
+    /**
+     * Holds one de-duplicated sample to be written as an E3S1 chunk. The PCM data of all samples is
+     * stored in a temporary file, one sample after the other.
+     */
     private static class Sample
     {
         String  name;
-        byte [] pcm;
+        int     pcmLength;
         int     sampleRate;
         boolean hasLoop;
         int     loopStart;
@@ -122,11 +134,62 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
         final File outputFile = this.createUniqueFilename (destinationFolder, safeName, writeCdImage ? "iso" : "e4b");
         this.notifier.log ("IDS_NOTIFY_STORING", outputFile.getAbsolutePath ());
 
-        final List<Sample> samples = new ArrayList<> ();
+        // The PCM data of the converted samples is collected in a temporary file instead of in
+        // memory and copied into the bank when it is written. The bank of a CD image is a file of
+        // the image, which is therefore written to a temporary file first
+        final File sampleDataFile = createTemporaryFile ("e4b-samples");
+        File bankDataFile = null;
+        try
+        {
+            final List<Sample> samples = new ArrayList<> ();
+            final List<byte []> presetBodies = new ArrayList<> ();
+            final List<String> presetNames = new ArrayList<> ();
+            try (final OutputStream sampleDataOut = new BufferedOutputStream (Files.newOutputStream (sampleDataFile.toPath ())))
+            {
+                this.createPresets (multisampleSources, sampleDataOut, samples, presetBodies, presetNames);
+            }
+            if (presetBodies.isEmpty ())
+                return;
+
+            if (writeCdImage)
+            {
+                bankDataFile = createTemporaryFile ("e4b-bank");
+                try (final OutputStream out = new BufferedOutputStream (Files.newOutputStream (bankDataFile.toPath ())))
+                {
+                    writeFile (out, presetBodies, presetNames, samples, sampleDataFile);
+                }
+                Emu3DiskImage.writeImage (outputFile, List.of (new Emu3DiskImage.ImageFile (safeName, bankDataFile)), Emu3DiskImage.ImageLayout.EOS, Emu3DiskImage.DEFAULT_FOLDER_NAME);
+            }
+            else
+                try (final OutputStream out = new BufferedOutputStream (Files.newOutputStream (outputFile.toPath ())))
+                {
+                    writeFile (out, presetBodies, presetNames, samples, sampleDataFile);
+                }
+        }
+        finally
+        {
+            Files.deleteIfExists (sampleDataFile.toPath ());
+            if (bankDataFile != null)
+                Files.deleteIfExists (bankDataFile.toPath ());
+        }
+        this.notifier.log ("IDS_NOTIFY_PROGRESS_DONE");
+    }
+
+
+    /**
+     * Create the presets of the bank from the given sources.
+     *
+     * @param multisampleSources The sources to convert, each becomes one preset
+     * @param sampleDataOut Where to write the PCM data of the samples to
+     * @param samples Where to add the samples
+     * @param presetBodies Where to add the bodies of the preset chunks
+     * @param presetNames Where to add the names of the presets
+     * @throws IOException Could not convert or write the sample data
+     */
+    private void createPresets (final List<IMultisampleSource> multisampleSources, final OutputStream sampleDataOut, final List<Sample> samples, final List<byte []> presetBodies, final List<String> presetNames) throws IOException
+    {
         final Map<Object, Integer> sampleIndicesByContent = new HashMap<> ();
         final Set<String> usedSampleNames = new HashSet<> ();
-        final List<byte []> presetBodies = new ArrayList<> ();
-        final List<String> presetNames = new ArrayList<> ();
 
         for (final IMultisampleSource multisampleSource: multisampleSources)
         {
@@ -147,7 +210,7 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
             int numMixedDown = 0;
             for (final ISampleZone zone: zones)
             {
-                final int sampleIndex = this.addSample (zone, samples, sampleIndicesByContent, usedSampleNames);
+                final int sampleIndex = this.addSample (zone, samples, sampleIndicesByContent, usedSampleNames, sampleDataOut);
                 if (sampleIndex == 0)
                     continue;
                 if (sampleIndex < 0)
@@ -168,22 +231,6 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
             presetBodies.add (createPresetBody (presetBodies.size (), presetName, voices));
             presetNames.add (presetName);
         }
-
-        if (presetBodies.isEmpty ())
-            return;
-
-        if (writeCdImage)
-        {
-            final ByteArrayOutputStream bankData = new ByteArrayOutputStream ();
-            writeFile (bankData, presetBodies, presetNames, samples);
-            Emu3DiskImage.writeImage (outputFile, List.of (new Emu3DiskImage.ImageFile (safeName, bankData.toByteArray ())), Emu3DiskImage.ImageLayout.EOS, Emu3DiskImage.DEFAULT_FOLDER_NAME);
-        }
-        else
-            try (final OutputStream out = new BufferedOutputStream (Files.newOutputStream (outputFile.toPath ())))
-            {
-                writeFile (out, presetBodies, presetNames, samples);
-            }
-        this.notifier.log ("IDS_NOTIFY_PROGRESS_DONE");
     }
 
 
@@ -209,17 +256,19 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
 
     /**
      * Convert the sample of a zone to 16-bit mono PCM and add it to the bank samples, re-using an
-     * already added sample with identical content.
+     * already added sample with identical content. The PCM data of a new sample is written to the
+     * sample data file.
      *
      * @param zone The zone
      * @param samples The samples collected so far
      * @param sampleIndicesByContent The 1-based indices of the collected samples by their content
      * @param usedSampleNames All sample names used so far
+     * @param sampleDataOut Where to write the PCM data to
      * @return The 1-based index of the sample, negated if the sample was newly mixed down from
      *         stereo; 0 if the zone must be skipped
-     * @throws IOException Could not convert the sample data
+     * @throws IOException Could not convert or write the sample data
      */
-    private int addSample (final ISampleZone zone, final List<Sample> samples, final Map<Object, Integer> sampleIndicesByContent, final Set<String> usedSampleNames) throws IOException
+    private int addSample (final ISampleZone zone, final List<Sample> samples, final Map<Object, Integer> sampleIndicesByContent, final Set<String> usedSampleNames, final OutputStream sampleDataOut) throws IOException
     {
         final Optional<ISampleData> sampleData = zone.getSampleData ();
         if (sampleData.isEmpty ())
@@ -240,8 +289,7 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
 
         final byte [] wavData = waveFile.getDataChunk ().getData ();
         final boolean isStereo = numChannels == 2;
-        final byte [] pcm = isStereo ? mixToMono (wavData) : wavData;
-        final int numFrames = pcm.length / 2;
+        final int numFrames = wavData.length / (2 * numChannels);
         if (numFrames <= 0)
             return 0;
 
@@ -262,8 +310,11 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
         final int rootKey = Math.clamp (zone.getKeyRoot () < 0 ? zone.getKeyLow () : zone.getKeyRoot (), 0, 127);
 
         // Re-use an already written sample with identical content and parameters, e.g. when the
-        // same sample is mapped to several key ranges or velocity layers
-        final Object contentKey = List.of (ByteBuffer.wrap (pcm), Integer.valueOf (sampleRate), Boolean.valueOf (hasLoop), Integer.valueOf (loopStart), Integer.valueOf (loopEnd), Integer.valueOf (rootKey));
+        // same sample is mapped to several key ranges or velocity layers. The digest of the content
+        // is the key instead of the content itself, which would keep all samples in memory
+        final MessageDigest digest = createDigest ();
+        writeMono (new DigestOutputStream (OutputStream.nullOutputStream (), digest), wavData, numFrames, isStereo);
+        final Object contentKey = List.of (ByteBuffer.wrap (digest.digest ()), Integer.valueOf (sampleRate), Boolean.valueOf (hasLoop), Integer.valueOf (loopStart), Integer.valueOf (loopEnd), Integer.valueOf (rootKey));
         final Integer existingIndex = sampleIndicesByContent.get (contentKey);
         if (existingIndex != null)
             return existingIndex.intValue ();
@@ -279,12 +330,13 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
         // suffix always fits into the 16 characters
         final String suffix = Emulator4Constants.formatNoteSuffix (rootKey);
         sample.name = createUniqueSampleName (zone.getName (), usedSampleNames, Emulator4Constants.NAME_LENGTH - suffix.length ()) + suffix;
-        sample.pcm = pcm;
+        sample.pcmLength = numFrames * 2;
         sample.sampleRate = sampleRate;
         sample.hasLoop = hasLoop;
         sample.loopStart = loopStart;
         sample.loopEnd = loopEnd;
         samples.add (sample);
+        writeMono (sampleDataOut, wavData, numFrames, isStereo);
 
         final int index = samples.size ();
         sampleIndicesByContent.put (contentKey, Integer.valueOf (index));
@@ -293,24 +345,38 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
 
 
     /**
-     * Mix interleaved 16-bit stereo PCM down to mono.
+     * Write 16-bit PCM as mono. Interleaved stereo data is mixed down block by block, therefore no
+     * copy of the whole sample is created.
      *
-     * @param stereo The interleaved little-endian stereo data
-     * @return The mono data
+     * @param out Where to write to
+     * @param data The little-endian mono or interleaved stereo data
+     * @param numFrames The number of sample frames
+     * @param isStereo True if the data is stereo
+     * @throws IOException Could not write
      */
-    private static byte [] mixToMono (final byte [] stereo)
+    private static void writeMono (final OutputStream out, final byte [] data, final int numFrames, final boolean isStereo) throws IOException
     {
-        final int numFrames = stereo.length / 4;
-        final byte [] mono = new byte [numFrames * 2];
-        for (int i = 0; i < numFrames; i++)
+        if (!isStereo)
         {
-            final int left = stereo[i * 4 + 1] << 8 | stereo[i * 4] & 0xFF;
-            final int right = stereo[i * 4 + 3] << 8 | stereo[i * 4 + 2] & 0xFF;
-            final int value = (left + right) / 2;
-            mono[i * 2] = (byte) (value & 0xFF);
-            mono[i * 2 + 1] = (byte) (value >> 8 & 0xFF);
+            out.write (data, 0, numFrames * 2);
+            return;
+        }
+
+        final byte [] mono = new byte [Math.min (numFrames, MIX_BLOCK_FRAMES) * 2];
+        for (int frame = 0; frame < numFrames; frame += MIX_BLOCK_FRAMES)
+        {
+            final int count = Math.min (MIX_BLOCK_FRAMES, numFrames - frame);
+            for (int i = 0; i < count; i++)
+            {
+                final int position = (frame + i) * 4;
+                final int left = data[position + 1] << 8 | data[position] & 0xFF;
+                final int right = data[position + 3] << 8 | data[position + 2] & 0xFF;
+                final int value = (left + right) / 2;
+                mono[i * 2] = (byte) (value & 0xFF);
+                mono[i * 2 + 1] = (byte) (value >> 8 & 0xFF);
+            }
+            out.write (mono, 0, count * 2);
         }
-        return mono;
     }
 
 
@@ -566,7 +632,7 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
     {
         final byte [] header = new byte [Emulator4Constants.SAMPLE_HEADER_SIZE];
         final int structSize = Emulator4Constants.SAMPLE_STRUCT_SIZE;
-        final int endOffset = structSize + sample.pcm.length - 2;
+        final int endOffset = structSize + sample.pcmLength - 2;
 
         Emulator4Constants.putU16BE (header, 0, sampleIndex);
         Emulator4Constants.encodeName (header, 2, sample.name);
@@ -600,9 +666,10 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
      * @param presetBodies The bodies of the preset chunks
      * @param presetNames The names of the presets, for the table of contents
      * @param samples The samples
+     * @param sampleDataFile The file which contains the PCM data of all samples
      * @throws IOException Could not write the bank
      */
-    private static void writeFile (final OutputStream outputStream, final List<byte []> presetBodies, final List<String> presetNames, final List<Sample> samples) throws IOException
+    private static void writeFile (final OutputStream outputStream, final List<byte []> presetBodies, final List<String> presetNames, final List<Sample> samples, final File sampleDataFile) throws IOException
     {
         final int sampleCount = samples.size ();
         final int presetBodiesSize = presetBodies.size ();
@@ -628,7 +695,7 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
         for (int i = 0; i < sampleCount; i++)
         {
             sampleOffsets[i] = position;
-            sampleBodySizes[i] = Emulator4Constants.SAMPLE_HEADER_SIZE + samples.get (i).pcm.length;
+            sampleBodySizes[i] = Emulator4Constants.SAMPLE_HEADER_SIZE + samples.get (i).pcmLength;
             position += 8 + sampleBodySizes[i] + sampleBodySizes[i] % 2;
         }
 
@@ -665,20 +732,66 @@ public class Emulator4Creator extends AbstractCreator<Emulator4CreatorUI>
             writeChunkHeader (out, Emulator4Constants.PRESET_TAG, presetBody.length);
             out.write (presetBody);
         }
-        for (int i = 0; i < sampleCount; i++)
+        try (final FileChannel sampleData = FileChannel.open (sampleDataFile.toPath (), StandardOpenOption.READ))
         {
-            final Sample sample = samples.get (i);
-            writeChunkHeader (out, Emulator4Constants.SAMPLE_TAG, sampleBodySizes[i]);
-            out.write (createSampleHeader (sample, i + 1));
-            out.write (sample.pcm);
-            if (sampleBodySizes[i] % 2 == 1)
-                out.write (0);
+            final WritableByteChannel target = Channels.newChannel (out);
+            long dataPosition = 0;
+            for (int i = 0; i < sampleCount; i++)
+            {
+                final Sample sample = samples.get (i);
+                writeChunkHeader (out, Emulator4Constants.SAMPLE_TAG, sampleBodySizes[i]);
+                out.write (createSampleHeader (sample, i + 1));
+                final long end = dataPosition + sample.pcmLength;
+                while (dataPosition < end)
+                {
+                    final long transferred = sampleData.transferTo (dataPosition, end - dataPosition, target);
+                    if (transferred <= 0)
+                        throw new EOFException ();
+                    dataPosition += transferred;
+                }
+                if (sampleBodySizes[i] % 2 == 1)
+                    out.write (0);
+            }
         }
         writeChunkHeader (out, Emulator4Constants.EMST_TAG, masterSetup.length);
         out.write (masterSetup);
     }
 
 
+    /**
+     * Create a temporary file, which is deleted when the application ends at the latest.
+     *
+     * @param prefix The prefix of the name of the file
+     * @return The file
+     * @throws IOException Could not create the file
+     */
+    private static File createTemporaryFile (final String prefix) throws IOException
+    {
+        final File file = File.createTempFile (prefix, ".bin");
+        file.deleteOnExit ();
+        return file;
+    }
+
+
+    /**
+     * Create the digest which identifies the content of a sample.
+     *
+     * @return The SHA-256 digest
+     * @throws IOException The SHA-256 algorithm is not available
+     */
+    private static MessageDigest createDigest () throws IOException
+    {
+        try
+        {
+            return MessageDigest.getInstance ("SHA-256");
+        }
+        catch (final NoSuchAlgorithmException ex)
+        {
+            throw new IOException (ex);
+        }
+    }
+
+
     /**
      * Fill one 32 byte entry of the table of contents.
      *
@@ -12,6 +12,8 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -78,11 +80,11 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
             new Cord (EmulatorXConstants.CORD_SOURCE_VELOCITY, EmulatorXConstants.CORD_DEST_VOLUME, EmulatorXConstants.FULL_CORD_AMOUNT), new Cord (0x11, 0xAA, 6.0f), new Cord (0x60, 0x30, 0), new Cord (0x68, 0x30, 0), new Cord (0x16, 0x08, EmulatorXConstants.FULL_CORD_AMOUNT), new Cord (EmulatorXConstants.CORD_SOURCE_FILTER_ENV2, EmulatorXConstants.CORD_DEST_CUTOFF, 0), new Cord (EmulatorXConstants.CORD_SOURCE_VELOCITY, EmulatorXConstants.CORD_DEST_CUTOFF, 0));
 
 
-    /** Holds one de-duplicated sample of the sample pool. */
+    /** Holds one de-duplicated sample of the sample pool, which is already written. */
     private static class Sample
     {
-        EmulatorXSampleFile file;
-        int                 index;
+        String name;
+        int    index;
     }
 
 
@@ -138,6 +140,9 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
         final String bankName = bankFile.getName ().substring (0, bankFile.getName ().length () - EmulatorXConstants.BANK_ENDING.length ());
         this.notifier.log ("IDS_NOTIFY_STORING", bankFile.getAbsolutePath ());
 
+        // The samples are written into the sample pool as soon as they are converted, therefore
+        // only one of them is in memory at a time
+        final File samplePool = new File (destinationFolder, EmulatorXConstants.SAMPLE_POOL_FOLDER);
         final List<Sample> samples = new ArrayList<> ();
         final Map<Object, Sample> samplesByContent = new HashMap<> ();
         final List<byte []> presets = new ArrayList<> ();
@@ -155,7 +160,7 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
             for (final IGroup group: multisampleSource.getNonEmptyGroups (true))
                 for (final ISampleZone zone: group.getSampleZones ())
                 {
-                    final Sample sample = this.addSample (zone, samples, samplesByContent);
+                    final Sample sample = this.addSample (zone, samplePool, bankName, samples, samplesByContent);
                     if (sample != null)
                         voices.add (createVoice (zone, sample.index));
                 }
@@ -172,11 +177,6 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
         if (presets.isEmpty ())
             return;
 
-        final File samplePool = new File (destinationFolder, EmulatorXConstants.SAMPLE_POOL_FOLDER);
-        safeCreateDirectory (samplePool);
-        for (final Sample sample: samples)
-            Files.write (new File (samplePool, EmulatorXConstants.createSampleFileName (bankName, sample.index)).toPath (), sample.file.write ());
-
         try (final OutputStream out = new BufferedOutputStream (Files.newOutputStream (bankFile.toPath ())))
         {
             writeBankFile (out, presets, presetNames, samples);
@@ -186,16 +186,18 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
 
 
     /**
-     * Convert the sample of a zone to 16 bit PCM and add it to the sample pool, re-using an already
-     * added sample with identical content and parameters.
+     * Convert the sample of a zone to 16 bit PCM and write it into the sample pool, re-using an
+     * already written sample with identical content and parameters.
      *
      * @param zone The zone
+     * @param samplePool The folder of the sample files
+     * @param bankName The name of the bank, which is part of the names of the sample files
      * @param samples The samples collected so far
      * @param samplesByContent The already collected samples by their content
      * @return The sample or null if the zone must be skipped
-     * @throws IOException Could not convert the sample data
+     * @throws IOException Could not convert or write the sample data
      */
-    private Sample addSample (final ISampleZone zone, final List<Sample> samples, final Map<Object, Sample> samplesByContent) throws IOException
+    private Sample addSample (final ISampleZone zone, final File samplePool, final String bankName, final List<Sample> samples, final Map<Object, Sample> samplesByContent) throws IOException
     {
         final Optional<ISampleData> sampleData = zone.getSampleData ();
         if (sampleData.isEmpty ())
@@ -233,7 +235,9 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
             }
 
         final int sampleRate = waveFile.getFormatChunk ().getSampleRate ();
-        final Object contentKey = List.of (ByteBuffer.wrap (pcm), Integer.valueOf (sampleRate), Integer.valueOf (loopStart), Integer.valueOf (loopEnd));
+        // The digest of the content is the key instead of the content itself, which would keep the
+        // audio data of all samples in memory
+        final Object contentKey = List.of (ByteBuffer.wrap (createDigest (pcm)), Integer.valueOf (sampleRate), Integer.valueOf (loopStart), Integer.valueOf (loopEnd));
         final Sample existing = samplesByContent.get (contentKey);
         if (existing != null)
             return existing;
@@ -252,14 +256,42 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
             sampleFile.setLoop (loopStart, loopEnd);
 
         final Sample sample = new Sample ();
-        sample.file = sampleFile;
+        sample.name = sampleFile.getName ();
         sample.index = samples.size () + 1;
+
+        if (samples.isEmpty ())
+            safeCreateDirectory (samplePool);
+        try (final OutputStream out = new BufferedOutputStream (Files.newOutputStream (new File (samplePool, EmulatorXConstants.createSampleFileName (bankName, sample.index)).toPath ())))
+        {
+            sampleFile.write (out);
+        }
+
         samples.add (sample);
         samplesByContent.put (contentKey, sample);
         return sample;
     }
 
 
+    /**
+     * Calculate the SHA-256 digest of sample data.
+     *
+     * @param data The sample data
+     * @return The digest
+     * @throws IOException The SHA-256 algorithm is not available
+     */
+    private static byte [] createDigest (final byte [] data) throws IOException
+    {
+        try
+        {
+            return MessageDigest.getInstance ("SHA-256").digest (data);
+        }
+        catch (final NoSuchAlgorithmException ex)
+        {
+            throw new IOException (ex);
+        }
+    }
+
+
     /**
      * Write the bank file. The table of contents lists all presets and then all samples; its
      * entries point at the chunks which follow it without any padding.
@@ -284,7 +316,7 @@ public class EmulatorXCreator extends AbstractCreator<EmptySettingsUI>
         }
         for (final Sample sample: samples)
         {
-            createTocEntry (toc, entry++, EmulatorXConstants.SAMPLE_LINK_TAG, 4, offset, sample.index, sample.file.getName ());
+            createTocEntry (toc, entry++, EmulatorXConstants.SAMPLE_LINK_TAG, 4, offset, sample.index, sample.name);
             offset += 4 + EmulatorXConstants.CHUNK_OVERHEAD;
         }
 
@@ -5,6 +5,7 @@
 package de.mossgrabers.convertwithmoss.format.emu.emulatorx;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 import de.mossgrabers.convertwithmoss.exception.ParseException;
 
@@ -20,14 +21,17 @@ import de.mossgrabers.convertwithmoss.exception.ParseException;
  */
 public class EmulatorXSampleFile
 {
-    private String  name       = "";
-    private int     sampleRate = 44100;
-    private int     numChannels;
-    private int     numFrames;
-    private byte [] pcm;
-    private boolean hasLoop;
-    private int     loopStart;
-    private int     loopEnd;
+    /** The number of sample frames of a channel which are written at once. */
+    private static final int WRITE_BLOCK_FRAMES = 16384;
+
+    private String           name               = "";
+    private int              sampleRate         = 44100;
+    private int              numChannels;
+    private int              numFrames;
+    private byte []          pcm;
+    private boolean          hasLoop;
+    private int              loopStart;
+    private int              loopEnd;
 
 
     /**
@@ -103,13 +107,14 @@ public class EmulatorXSampleFile
 
 
     /**
-     * Assemble the complete content of a sample file. A version 2 header is written, which is what
-     * the Emulator X3 uses.
+     * Write the complete content of a sample file. A version 2 header is written, which is what the
+     * Emulator X3 uses. The channels are written block by block, therefore no second copy of the
+     * audio data is created.
      *
-     * @return The content of the file
+     * @param out Where to write the file to
      * @throws IOException The sample cannot be written
      */
-    public byte [] write () throws IOException
+    public void write (final OutputStream out) throws IOException
     {
         if (this.pcm == null || this.numFrames <= 0)
             throw new IOException ("IDS_EXB_MALFORMED_SAMPLE");
@@ -125,70 +130,76 @@ public class EmulatorXSampleFile
         final int trailerOffset = Math.max (leftEnd, rightEnd) + EmulatorXConstants.SAMPLE_DATA_POSTFIX;
         final int trailerLength = this.hasLoop ? EmulatorXConstants.SAMPLE_TRAILER_SIZE + 8 : 0;
         final int payloadSize = trailerOffset + trailerLength;
+        final long fileLength = (long) EmulatorXConstants.SAMPLE_PAYLOAD_OFFSET + payloadSize;
 
-        final byte [] fileData = new byte [EmulatorXConstants.SAMPLE_PAYLOAD_OFFSET + payloadSize];
-        System.arraycopy (EmulatorXConstants.FORM_MAGIC.getBytes (), 0, fileData, 0, 4);
-        EmulatorXConstants.putU32BE (fileData, 4, fileData.length - 8L);
-        System.arraycopy (EmulatorXConstants.FORM_TYPE.getBytes (), 0, fileData, 8, 8);
-        EmulatorXConstants.putU32BE (fileData, 16, EmulatorXConstants.TOC_ENTRY_SIZE);
+        // The container and the sample header up to the audio data of the left channel
+        final int payload = EmulatorXConstants.SAMPLE_PAYLOAD_OFFSET;
+        final byte [] header = new byte [payload + leftStart];
+        System.arraycopy (EmulatorXConstants.FORM_MAGIC.getBytes (), 0, header, 0, 4);
+        EmulatorXConstants.putU32BE (header, 4, fileLength - 8L);
+        System.arraycopy (EmulatorXConstants.FORM_TYPE.getBytes (), 0, header, 8, 8);
+        EmulatorXConstants.putU32BE (header, 16, EmulatorXConstants.TOC_ENTRY_SIZE);
 
         // The single table of contents entry and the chunk header of the sample chunk
         final int chunkOffset = EmulatorXConstants.TOC_OFFSET + EmulatorXConstants.TOC_ENTRY_SIZE;
-        System.arraycopy (EmulatorXConstants.SAMPLE_TAG.getBytes (), 0, fileData, EmulatorXConstants.TOC_OFFSET, 4);
-        EmulatorXConstants.putU32BE (fileData, EmulatorXConstants.TOC_OFFSET + 4, payloadSize);
-        EmulatorXConstants.putU32BE (fileData, EmulatorXConstants.TOC_OFFSET + 8, chunkOffset);
-        EmulatorXConstants.encodeName (fileData, EmulatorXConstants.TOC_OFFSET + 14, this.name);
-        System.arraycopy (EmulatorXConstants.SAMPLE_TAG.getBytes (), 0, fileData, chunkOffset, 4);
-        EmulatorXConstants.putU32BE (fileData, chunkOffset + 4, payloadSize + 2L);
-
-        final int payload = EmulatorXConstants.SAMPLE_PAYLOAD_OFFSET;
-        EmulatorXConstants.putU16LE (fileData, payload + EmulatorXConstants.SAMPLE_VERSION, EmulatorXConstants.VERSION_2);
-        EmulatorXConstants.encodeName (fileData, payload + EmulatorXConstants.SAMPLE_NAME, this.name);
-        EmulatorXConstants.putU32BE (fileData, payload + EmulatorXConstants.SAMPLE_MARKER, EmulatorXConstants.SAMPLE_MARKER_VALUE);
-
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_LEFT_START, leftStart);
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_RIGHT_START, rightStart);
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_LEFT_END, leftEnd);
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_RIGHT_END, rightEnd);
+        System.arraycopy (EmulatorXConstants.SAMPLE_TAG.getBytes (), 0, header, EmulatorXConstants.TOC_OFFSET, 4);
+        EmulatorXConstants.putU32BE (header, EmulatorXConstants.TOC_OFFSET + 4, payloadSize);
+        EmulatorXConstants.putU32BE (header, EmulatorXConstants.TOC_OFFSET + 8, chunkOffset);
+        EmulatorXConstants.encodeName (header, EmulatorXConstants.TOC_OFFSET + 14, this.name);
+        System.arraycopy (EmulatorXConstants.SAMPLE_TAG.getBytes (), 0, header, chunkOffset, 4);
+        EmulatorXConstants.putU32BE (header, chunkOffset + 4, payloadSize + 2L);
+
+        EmulatorXConstants.putU16LE (header, payload + EmulatorXConstants.SAMPLE_VERSION, EmulatorXConstants.VERSION_2);
+        EmulatorXConstants.encodeName (header, payload + EmulatorXConstants.SAMPLE_NAME, this.name);
+        EmulatorXConstants.putU32BE (header, payload + EmulatorXConstants.SAMPLE_MARKER, EmulatorXConstants.SAMPLE_MARKER_VALUE);
+
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_LEFT_START, leftStart);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_RIGHT_START, rightStart);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_LEFT_END, leftEnd);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_RIGHT_END, rightEnd);
 
         // Without a loop the end is put in front of the start, which is what the factory banks do
         final int loopStartOffset = this.hasLoop ? this.loopStart * EmulatorXConstants.BYTES_PER_FRAME : 0;
         final int loopEndOffset = this.hasLoop ? (this.loopEnd - 1) * EmulatorXConstants.BYTES_PER_FRAME : -EmulatorXConstants.BYTES_PER_FRAME;
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_LEFT_LOOP_START, leftStart + (long) loopStartOffset);
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_RIGHT_LOOP_START, rightStart + (long) loopStartOffset);
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_LEFT_LOOP_END, leftStart + (long) loopEndOffset);
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_RIGHT_LOOP_END, rightStart + (long) loopEndOffset);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_LEFT_LOOP_START, leftStart + (long) loopStartOffset);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_RIGHT_LOOP_START, rightStart + (long) loopStartOffset);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_LEFT_LOOP_END, leftStart + (long) loopEndOffset);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_RIGHT_LOOP_END, rightStart + (long) loopEndOffset);
 
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_RATE, this.sampleRate);
-        EmulatorXConstants.putU16LE (fileData, payload + EmulatorXConstants.SAMPLE_LOOP_FLAG, this.hasLoop ? 1 : 0);
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_RATE, this.sampleRate);
+        EmulatorXConstants.putU16LE (header, payload + EmulatorXConstants.SAMPLE_LOOP_FLAG, this.hasLoop ? 1 : 0);
         // The four flag bytes: the first and the last are constant, the other two describe the
         // channels - a mono sample uses only the left one, a stereo sample both
-        fileData[payload + EmulatorXConstants.SAMPLE_FLAGS] = 1;
-        fileData[payload + EmulatorXConstants.SAMPLE_EXTRA_CHANNELS] = (byte) (this.numChannels - 1);
-        fileData[payload + EmulatorXConstants.SAMPLE_CHANNEL_MASK] = (byte) ((1 << this.numChannels) - 1);
-        fileData[payload + EmulatorXConstants.SAMPLE_FLAGS + 3] = 2;
-        EmulatorXConstants.putU32LE (fileData, payload + EmulatorXConstants.SAMPLE_TRAILER_POINTER, this.hasLoop ? trailerOffset : 0);
-
-        deinterleave (this.pcm, fileData, payload + leftStart, payload + rightStart, this.numFrames, this.numChannels);
+        header[payload + EmulatorXConstants.SAMPLE_FLAGS] = 1;
+        header[payload + EmulatorXConstants.SAMPLE_EXTRA_CHANNELS] = (byte) (this.numChannels - 1);
+        header[payload + EmulatorXConstants.SAMPLE_CHANNEL_MASK] = (byte) ((1 << this.numChannels) - 1);
+        header[payload + EmulatorXConstants.SAMPLE_FLAGS + 3] = 2;
+        EmulatorXConstants.putU32LE (header, payload + EmulatorXConstants.SAMPLE_TRAILER_POINTER, this.hasLoop ? trailerOffset : 0);
+        out.write (header);
+
+        this.writeChannel (out, 0);
+        if (isStereo)
+        {
+            out.write (new byte [rightStart - leftEnd]);
+            this.writeChannel (out, 1);
+        }
+        out.write (new byte [EmulatorXConstants.SAMPLE_DATA_POSTFIX]);
 
         if (this.hasLoop)
         {
-            int position = payload + trailerOffset;
-            System.arraycopy (EmulatorXConstants.SAMPLE_TRAILER_TAG.getBytes (), 0, fileData, position, 4);
-            EmulatorXConstants.putU32LE (fileData, position + 4, EmulatorXConstants.SAMPLE_TRAILER_SIZE);
-            position += 8;
-            System.arraycopy (EmulatorXConstants.SAMPLE_INFO_TAG.getBytes (), 0, fileData, position, 4);
-            EmulatorXConstants.putU32LE (fileData, position + 4, 8);
-            EmulatorXConstants.putU32LE (fileData, position + 8, 1);
-            EmulatorXConstants.putU32LE (fileData, position + 12, 1);
-            position += 16;
-            System.arraycopy (EmulatorXConstants.SAMPLE_MARKER_TAG.getBytes (), 0, fileData, position, 4);
-            EmulatorXConstants.putU32LE (fileData, position + 4, 8);
-            EmulatorXConstants.putU32LE (fileData, position + 8, this.loopStart);
-            EmulatorXConstants.putU32LE (fileData, position + 12, this.loopEnd);
+            final byte [] trailer = new byte [trailerLength];
+            System.arraycopy (EmulatorXConstants.SAMPLE_TRAILER_TAG.getBytes (), 0, trailer, 0, 4);
+            EmulatorXConstants.putU32LE (trailer, 4, EmulatorXConstants.SAMPLE_TRAILER_SIZE);
+            System.arraycopy (EmulatorXConstants.SAMPLE_INFO_TAG.getBytes (), 0, trailer, 8, 4);
+            EmulatorXConstants.putU32LE (trailer, 12, 8);
+            EmulatorXConstants.putU32LE (trailer, 16, 1);
+            EmulatorXConstants.putU32LE (trailer, 20, 1);
+            System.arraycopy (EmulatorXConstants.SAMPLE_MARKER_TAG.getBytes (), 0, trailer, 24, 4);
+            EmulatorXConstants.putU32LE (trailer, 28, 8);
+            EmulatorXConstants.putU32LE (trailer, 32, this.loopStart);
+            EmulatorXConstants.putU32LE (trailer, 36, this.loopEnd);
+            out.write (trailer);
         }
-
-        return fileData;
     }
 
 
@@ -246,28 +257,31 @@ public class EmulatorXSampleFile
 
 
     /**
-     * Split interleaved PCM data into one block per channel.
+     * Write one channel of the interleaved PCM data.
      *
-     * @param pcm The interleaved 16 bit little-endian data
-     * @param data The buffer to write to
-     * @param leftOffset The offset of the left channel
-     * @param rightOffset The offset of the right channel
-     * @param numFrames The number of sample frames
-     * @param numChannels The number of channels
+     * @param out Where to write to
+     * @param channel The index of the channel, 0 or 1
+     * @throws IOException Could not write the data
      */
-    private static void deinterleave (final byte [] pcm, final byte [] data, final int leftOffset, final int rightOffset, final int numFrames, final int numChannels)
+    private void writeChannel (final OutputStream out, final int channel) throws IOException
     {
-        if (numChannels == 1)
+        if (this.numChannels == 1)
         {
-            System.arraycopy (pcm, 0, data, leftOffset, numFrames * 2);
+            out.write (this.pcm, 0, this.numFrames * 2);
             return;
         }
-        for (int frame = 0; frame < numFrames; frame++)
+
+        final byte [] block = new byte [WRITE_BLOCK_FRAMES * 2];
+        for (int frame = 0; frame < this.numFrames; frame += WRITE_BLOCK_FRAMES)
         {
-            data[leftOffset + frame * 2] = pcm[frame * 4];
-            data[leftOffset + frame * 2 + 1] = pcm[frame * 4 + 1];
-            data[rightOffset + frame * 2] = pcm[frame * 4 + 2];
-            data[rightOffset + frame * 2 + 1] = pcm[frame * 4 + 3];
+            final int count = Math.min (WRITE_BLOCK_FRAMES, this.numFrames - frame);
+            for (int i = 0; i < count; i++)
+            {
+                final int position = (frame + i) * 4 + channel * 2;
+                block[i * 2] = this.pcm[position];
+                block[i * 2 + 1] = this.pcm[position + 1];
+            }
+            out.write (block, 0, count * 2);
         }
     }
 
@@ -12,6 +12,7 @@ import java.util.List;
 
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.settings.MetadataSettingsUI;
 import de.mossgrabers.convertwithmoss.format.akai.mpc2000.AkaiMPC2000Detector;
 import de.mossgrabers.convertwithmoss.format.emu.emulator3.Emulator3Detector;
@@ -55,6 +56,19 @@ public class IsoDetector extends AbstractIsoDetector<MetadataSettingsUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        // The file endings are shared with the formats of the images, claim only images which can
+        // be read
+        if (super.probe (file, header, endings, detectPerformances) == ProbeResult.NO_MATCH)
+            return ProbeResult.NO_MATCH;
+        final IsoFormat isoFormat = IsoFormatIdentifier.identifyIso (file);
+        return isoFormat == IsoFormat.UNKNOWN || isoFormat == IsoFormat.ISO_9660 ? ProbeResult.NO_MATCH : ProbeResult.SIGNATURE;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected List<IMultisampleSource> readPresetFile (final File sourceFile)
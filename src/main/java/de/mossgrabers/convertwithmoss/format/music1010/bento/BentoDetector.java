@@ -26,6 +26,7 @@ import de.mossgrabers.convertwithmoss.core.algorithm.MathUtils;
 import de.mossgrabers.convertwithmoss.core.detector.AbstractDetector;
 import de.mossgrabers.convertwithmoss.core.detector.DefaultInstrumentSource;
 import de.mossgrabers.convertwithmoss.core.detector.DefaultPerformanceSource;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelope;
 import de.mossgrabers.convertwithmoss.core.model.IFilter;
 import de.mossgrabers.convertwithmoss.core.model.IGroup;
@@ -77,6 +78,20 @@ public class BentoDetector extends AbstractDetector<MetadataSettingsUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        // The file ending is shared with other formats, only the project and patch files are read
+        if (super.probe (file, header, endings, detectPerformances) == ProbeResult.NO_MATCH)
+            return ProbeResult.NO_MATCH;
+        final String filename = file.getName ();
+        if ("project.xml".equals (filename) || !detectPerformances && "patch.xml".equals (filename))
+            return ProbeResult.SIGNATURE;
+        return ProbeResult.NO_MATCH;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected List<IMultisampleSource> readPresetFile (final File file)
@@ -23,9 +23,17 @@ import de.mossgrabers.tools.ui.Functions;
  */
 public class SubTreeItemChunkData extends AbstractChunkData
 {
-    private NIContainerItem subTreeItem;
-    private boolean         isEncrypted = false;
-    private boolean         isCompressed;
+    /** The largest compressed data for which the buffer is kept for the next sub tree. */
+    private static final int                  MAX_BUFFER_SIZE   = 1024 * 1024;
+    /**
+     * The compressed data is only needed until it is uncompressed, which happens before any nested
+     * sub tree is read, therefore one buffer per thread can be re-used.
+     */
+    private static final ThreadLocal<byte []> COMPRESSED_BUFFER = ThreadLocal.withInitial ( () -> new byte [64 * 1024]);
+
+    private NIContainerItem                   subTreeItem;
+    private boolean                           isEncrypted       = false;
+    private boolean                           isCompressed;
 
 
     /** {@inheritDoc} */
@@ -42,11 +50,13 @@ public class SubTreeItemChunkData extends AbstractChunkData
         {
             final int sizeUncompressed = (int) StreamUtils.readUnsigned32 (in, false);
             final int sizeCompressed = (int) StreamUtils.readUnsigned32 (in, false);
-            final byte [] data = in.readNBytes (sizeCompressed);
-            byte [] uncompressedData;
+            final byte [] data = getCompressedBuffer (sizeCompressed);
+            final int readBytes = in.readNBytes (data, 0, sizeCompressed);
+            final byte [] uncompressedData = new byte [sizeUncompressed];
+            final int size;
             try
             {
-                uncompressedData = FastLZ.uncompress (data, sizeUncompressed);
+                size = FastLZ.uncompress (data, 0, readBytes, uncompressedData, 0, sizeUncompressed);
             }
             catch (final IOException _)
             {
@@ -54,7 +64,7 @@ public class SubTreeItemChunkData extends AbstractChunkData
                 return;
             }
 
-            this.subTreeItem.read (new ByteArrayInputStream (uncompressedData));
+            this.subTreeItem.read (new ByteArrayInputStream (uncompressedData, 0, size));
         }
         else
             this.subTreeItem.read (in);
@@ -87,6 +97,18 @@ public class SubTreeItemChunkData extends AbstractChunkData
     }
 
 
+    private static byte [] getCompressedBuffer (final int size)
+    {
+        final byte [] buffer = COMPRESSED_BUFFER.get ();
+        if (buffer.length >= size)
+            return buffer;
+        final byte [] largerBuffer = new byte [size];
+        if (size <= MAX_BUFFER_SIZE)
+            COMPRESSED_BUFFER.set (largerBuffer);
+        return largerBuffer;
+    }
+
+
     /**
      * Get the sub tree item.
      *
@@ -4,9 +4,12 @@
 
 package de.mossgrabers.convertwithmoss.format.renoise;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -16,11 +19,6 @@ import java.util.Optional;
 import java.util.zip.CRC32;
 import java.util.zip.ZipOutputStream;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.creator.AbstractCreator;
@@ -44,9 +42,9 @@ import de.mossgrabers.convertwithmoss.file.AudioFileUtils;
 import de.mossgrabers.convertwithmoss.file.wav.DataChunk;
 import de.mossgrabers.convertwithmoss.file.wav.FormatChunk;
 import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.convertwithmoss.format.wav.WavFileSampleData;
 import de.mossgrabers.tools.FileUtils;
-import de.mossgrabers.tools.XMLUtils;
 
 
 /**
@@ -100,9 +98,9 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
     {
         this.padWidth = calcPadWidth (multisampleSource);
 
-        final Optional<String> metadata = this.createMetadata (multisampleSource);
-        if (metadata.isEmpty ())
-            return;
+        // The ZIP entries are stored uncompressed which requires the checksum in advance, therefore
+        // the description is written into memory before the file is created
+        final byte [] metadata = this.createMetadata (multisampleSource);
 
         final File multiFile = this.createUniqueFilename (destinationFolder, FileUtils.createSafeFilename (multisampleSource.getName ()), "xrni");
         this.notifier.log ("IDS_NOTIFY_STORING", multiFile.getAbsolutePath ());
@@ -110,7 +108,7 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
         try (final ZipOutputStream zos = new ZipOutputStream (new FileOutputStream (multiFile)))
         {
             zos.setMethod (ZipOutputStream.STORED);
-            AbstractCreator.storeTextFile (zos, "Instrument.xml", metadata.get (), multisampleSource.getMetadata ().getCreationDateTime ());
+            AbstractCreator.storeDataFile (zos, "Instrument.xml", metadata, multisampleSource.getMetadata ().getCreationDateTime ());
             this.storeRenoiseSamples (zos, multisampleSource);
         }
 
@@ -122,164 +120,176 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
      * Create the text of the description file.
      *
      * @param multisampleSource The multi-sample
-     * @return The XML structure
+     * @return The UTF-8 encoded XML text
+     * @throws IOException Could not create the XML text
      */
-    private Optional<String> createMetadata (final IMultisampleSource multisampleSource)
+    private byte [] createMetadata (final IMultisampleSource multisampleSource) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element rootElement = document.createElement (RenoiseTag.ROOT);
-        rootElement.setAttribute (RenoiseTag.ATTR_DOC_VERSION, DOC_VERSION);
-        document.appendChild (rootElement);
-
-        XMLUtils.addTextElement (document, rootElement, RenoiseTag.NAME, multisampleSource.getName ());
-
-        // Global properties (master volume + the description as comment lines)
-        final Element globalProperties = XMLUtils.addElement (document, rootElement, RenoiseTag.GLOBAL_PROPERTIES);
-        globalProperties.setAttribute (RenoiseTag.ATTR_TYPE, "InstrumentGlobalProperties");
-        XMLUtils.addTextElement (document, globalProperties, RenoiseTag.VOLUME, "1.0");
-        final IMetadata metadata = multisampleSource.getMetadata ();
-        final String description = metadata.getDescription ();
-        if (description != null && !description.isBlank ())
-        {
-            final Element commentsElement = XMLUtils.addElement (document, globalProperties, RenoiseTag.COMMENTS);
-            for (final String line: description.split ("\\R"))
-                XMLUtils.addTextElement (document, commentsElement, RenoiseTag.COMMENT, line);
-        }
-
-        final Element sampleGenerator = XMLUtils.addElement (document, rootElement, RenoiseTag.SAMPLE_GENERATOR);
-        final Element samplesElement = XMLUtils.addElement (document, sampleGenerator, RenoiseTag.SAMPLES);
-        samplesElement.setAttribute (RenoiseTag.ATTR_TYPE, "SampleList");
-        final Element modulationSetsElement = document.createElement (RenoiseTag.MODULATION_SETS);
-
         // Zones with identical modulation share one modulation set so that a conventional
         // multi-sample gets one instrument-wide set; additional sets are only created for zones
-        // which genuinely modulate differently (e.g. release samples with their own envelope)
+        // which genuinely modulate differently (e.g. release samples with their own envelope).
+        // The sets are written after the samples but the samples reference them, therefore the
+        // sets are collected first.
         final Map<String, Integer> modulationSetKeys = new HashMap<> ();
-        boolean hasRoundRobin = false;
-        boolean hasRandom = false;
-        int zoneIndex = 0;
+        final List<ISampleZone> modulationSetZones = new ArrayList<> ();
+        final List<Integer> modulationSetIndices = new ArrayList<> ();
         for (final IGroup group: multisampleSource.getGroups ())
             for (final ISampleZone zone: group.getSampleZones ())
+                modulationSetIndices.add (getModulationSetIndex (modulationSetKeys, modulationSetZones, zone));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (out, true))
+        {
+            writer.startElement (RenoiseTag.ROOT);
+            writer.attribute (RenoiseTag.ATTR_DOC_VERSION, DOC_VERSION);
+
+            writer.textElement (RenoiseTag.NAME, multisampleSource.getName ());
+
+            // Global properties (master volume + the description as comment lines)
+            writer.startElement (RenoiseTag.GLOBAL_PROPERTIES);
+            writer.attribute (RenoiseTag.ATTR_TYPE, "InstrumentGlobalProperties");
+            writer.textElement (RenoiseTag.VOLUME, "1.0");
+            final IMetadata metadata = multisampleSource.getMetadata ();
+            final String description = metadata.getDescription ();
+            if (description != null && !description.isBlank ())
             {
-                final int modulationSetIndex = addModulationSet (document, modulationSetsElement, modulationSetKeys, zone);
-                this.createSampleElement (document, samplesElement, zoneIndex, modulationSetIndex, zone);
-                final PlayLogic playLogic = zone.getPlayLogic ();
-                hasRoundRobin = hasRoundRobin || playLogic == PlayLogic.ROUND_ROBIN;
-                hasRandom = hasRandom || playLogic == PlayLogic.RANDOM;
-                zoneIndex++;
+                writer.startElement (RenoiseTag.COMMENTS);
+                for (final String line: description.split ("\\R"))
+                    writer.textElement (RenoiseTag.COMMENT, line);
+                writer.endElement ();
             }
-
-        sampleGenerator.appendChild (modulationSetsElement);
-        // The overlapping mode is a global setting of the instrument. If both selection modes are
-        // present the random one wins since it cannot be expressed by cycling but a round-robin can
-        // still be played randomly.
-        final String overlapMode;
-        if (hasRandom)
-            overlapMode = RenoiseTag.OVERLAP_RANDOM;
-        else if (hasRoundRobin)
-            overlapMode = RenoiseTag.OVERLAP_CYCLE;
-        else
-            overlapMode = RenoiseTag.OVERLAP_PLAY_ALL;
-        XMLUtils.addTextElement (document, sampleGenerator, RenoiseTag.KEYZONE_OVERLAPPING_MODE, overlapMode);
-
-        return this.createXMLString (document);
+            writer.endElement ();
+
+            writer.startElement (RenoiseTag.SAMPLE_GENERATOR);
+            writer.startElement (RenoiseTag.SAMPLES);
+            writer.attribute (RenoiseTag.ATTR_TYPE, "SampleList");
+
+            boolean hasRoundRobin = false;
+            boolean hasRandom = false;
+            int zoneIndex = 0;
+            for (final IGroup group: multisampleSource.getGroups ())
+                for (final ISampleZone zone: group.getSampleZones ())
+                {
+                    this.createSampleElement (writer, zoneIndex, modulationSetIndices.get (zoneIndex).intValue (), zone);
+                    final PlayLogic playLogic = zone.getPlayLogic ();
+                    hasRoundRobin = hasRoundRobin || playLogic == PlayLogic.ROUND_ROBIN;
+                    hasRandom = hasRandom || playLogic == PlayLogic.RANDOM;
+                    zoneIndex++;
+                }
+            writer.endElement ();
+
+            writer.startElement (RenoiseTag.MODULATION_SETS);
+            for (int i = 0; i < modulationSetZones.size (); i++)
+                createModulationSet (writer, modulationSetZones.get (i), "Set " + (i + 1));
+            writer.endElement ();
+
+            // The overlapping mode is a global setting of the instrument. If both selection modes
+            // are present the random one wins since it cannot be expressed by cycling but a
+            // round-robin can still be played randomly.
+            final String overlapMode;
+            if (hasRandom)
+                overlapMode = RenoiseTag.OVERLAP_RANDOM;
+            else if (hasRoundRobin)
+                overlapMode = RenoiseTag.OVERLAP_CYCLE;
+            else
+                overlapMode = RenoiseTag.OVERLAP_PLAY_ALL;
+            writer.textElement (RenoiseTag.KEYZONE_OVERLAPPING_MODE, overlapMode);
+        }
+        return out.toByteArray ();
     }
 
 
     /**
      * Create the XML for one sample.
      *
-     * @param document The XML document
-     * @param samplesElement The element to which to add the sample
+     * @param writer Where to write the XML
      * @param zoneIndex The global index of the zone (used to reference the sample file)
      * @param modulationSetIndex The index of the modulation set which modulates this sample
      * @param zone The zone from which to read the sample information
+     * @throws IOException Could not write the XML
      */
-    private void createSampleElement (final Document document, final Element samplesElement, final int zoneIndex, final int modulationSetIndex, final ISampleZone zone)
+    private void createSampleElement (final StreamingXMLWriter writer, final int zoneIndex, final int modulationSetIndex, final ISampleZone zone) throws IOException
     {
-        final Element sampleElement = XMLUtils.addElement (document, samplesElement, RenoiseTag.SAMPLE);
+        writer.startElement (RenoiseTag.SAMPLE);
 
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.NAME, zone.getName ());
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.FILE_NAME, this.sampleBaseName (zoneIndex, zone));
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.VOLUME, formatFloat (RenoiseValueConverter.gainToVolume (zone.getGain ())));
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.PANNING, formatFloat (RenoiseValueConverter.panningToRenoise (zone.getPanning ())));
+        writer.textElement (RenoiseTag.NAME, zone.getName ());
+        writer.textElement (RenoiseTag.FILE_NAME, this.sampleBaseName (zoneIndex, zone));
+        writer.textElement (RenoiseTag.VOLUME, formatFloat (RenoiseValueConverter.gainToVolume (zone.getGain ())));
+        writer.textElement (RenoiseTag.PANNING, formatFloat (RenoiseValueConverter.panningToRenoise (zone.getPanning ())));
 
         final double tuning = zone.getTuning ();
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.TRANSPOSE, Integer.toString (RenoiseValueConverter.tuningToTranspose (tuning)));
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.FINETUNE, Integer.toString (RenoiseValueConverter.tuningToFinetune (tuning)));
+        writer.textElement (RenoiseTag.TRANSPOSE, Integer.toString (RenoiseValueConverter.tuningToTranspose (tuning)));
+        writer.textElement (RenoiseTag.FINETUNE, Integer.toString (RenoiseValueConverter.tuningToFinetune (tuning)));
         // 'OneShotTrigger' ignores a note-off and always plays the sample to its end. It defaults
         // to
         // false, therefore it is only written if it is enabled.
         if (zone.isOneShot ())
-            XMLUtils.addTextElement (document, sampleElement, RenoiseTag.ONE_SHOT, TRUE);
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.NEW_NOTE_ACTION, RenoiseTag.NNA_NOTE_OFF);
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.INTERPOLATION, "Cubic");
+            writer.textElement (RenoiseTag.ONE_SHOT, TRUE);
+        writer.textElement (RenoiseTag.NEW_NOTE_ACTION, RenoiseTag.NNA_NOTE_OFF);
+        writer.textElement (RenoiseTag.INTERPOLATION, "Cubic");
         // 'MuteGroupIndex' is zero-based and defaults to -1 (no mute group), therefore it is only
         // written if the zone belongs to an exclusive group
         final int muteGroupIndex = RenoiseValueConverter.exclusiveGroupToMuteGroup (zone.getExclusiveGroup ());
         if (muteGroupIndex != RenoiseValueConverter.MUTE_GROUP_NONE)
-            XMLUtils.addTextElement (document, sampleElement, RenoiseTag.MUTE_GROUP_INDEX, Integer.toString (muteGroupIndex));
+            writer.textElement (RenoiseTag.MUTE_GROUP_INDEX, Integer.toString (muteGroupIndex));
 
         // Loop
         final List<ISampleLoop> loops = zone.getLoops ();
         final ISampleLoop loop = loops.isEmpty () ? null : loops.get (0);
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.LOOP_MODE, loopMode (loop));
+        writer.textElement (RenoiseTag.LOOP_MODE, loopMode (loop));
         // 'LoopRelease' true exits the loop on note-off and plays the remainder of the sample
         // (sustain loop); false keeps looping
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.LOOP_RELEASE, loop != null && loop.isLoopUntilRelease () ? TRUE : FALSE);
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.LOOP_START, Integer.toString (loop == null ? 0 : Math.max (0, loop.getStart ())));
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.LOOP_END, Integer.toString (loop == null ? 0 : Math.max (0, loop.getEnd ())));
+        writer.textElement (RenoiseTag.LOOP_RELEASE, loop != null && loop.isLoopUntilRelease () ? TRUE : FALSE);
+        writer.textElement (RenoiseTag.LOOP_START, Integer.toString (loop == null ? 0 : Math.max (0, loop.getStart ())));
+        writer.textElement (RenoiseTag.LOOP_END, Integer.toString (loop == null ? 0 : Math.max (0, loop.getEnd ())));
 
-        XMLUtils.addTextElement (document, sampleElement, RenoiseTag.MODULATION_SET_INDEX, Integer.toString (modulationSetIndex));
+        writer.textElement (RenoiseTag.MODULATION_SET_INDEX, Integer.toString (modulationSetIndex));
 
         // Key/velocity mapping
-        final Element mappingElement = XMLUtils.addElement (document, sampleElement, RenoiseTag.MAPPING);
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.LAYER, zone.getTrigger () == TriggerType.RELEASE ? RenoiseTag.LAYER_NOTE_OFF : RenoiseTag.LAYER_NOTE_ON);
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.BASE_NOTE, Integer.toString (RenoiseValueConverter.clampNote (zone.getKeyRoot ())));
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.NOTE_START, Integer.toString (RenoiseValueConverter.clampNote (zone.getKeyLow ())));
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.NOTE_END, Integer.toString (RenoiseValueConverter.clampNote (limitToDefault (zone.getKeyHigh (), RenoiseValueConverter.MAX_NOTE))));
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.MAP_KEY_TO_PITCH, TRUE);
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.VELOCITY_START, Integer.toString (Math.clamp (zone.getVelocityLow (), 0, 127)));
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.VELOCITY_END, Integer.toString (Math.clamp (limitToDefault (zone.getVelocityHigh (), 127), 0, 127)));
-        XMLUtils.addTextElement (document, mappingElement, RenoiseTag.MAP_VELOCITY_TO_VOLUME, TRUE);
+        writer.startElement (RenoiseTag.MAPPING);
+        writer.textElement (RenoiseTag.LAYER, zone.getTrigger () == TriggerType.RELEASE ? RenoiseTag.LAYER_NOTE_OFF : RenoiseTag.LAYER_NOTE_ON);
+        writer.textElement (RenoiseTag.BASE_NOTE, Integer.toString (RenoiseValueConverter.clampNote (zone.getKeyRoot ())));
+        writer.textElement (RenoiseTag.NOTE_START, Integer.toString (RenoiseValueConverter.clampNote (zone.getKeyLow ())));
+        writer.textElement (RenoiseTag.NOTE_END, Integer.toString (RenoiseValueConverter.clampNote (limitToDefault (zone.getKeyHigh (), RenoiseValueConverter.MAX_NOTE))));
+        writer.textElement (RenoiseTag.MAP_KEY_TO_PITCH, TRUE);
+        writer.textElement (RenoiseTag.VELOCITY_START, Integer.toString (Math.clamp (zone.getVelocityLow (), 0, 127)));
+        writer.textElement (RenoiseTag.VELOCITY_END, Integer.toString (Math.clamp (limitToDefault (zone.getVelocityHigh (), 127), 0, 127)));
+        writer.textElement (RenoiseTag.MAP_VELOCITY_TO_VOLUME, TRUE);
+        writer.endElement ();
+
+        writer.endElement ();
     }
 
 
     /**
      * Get the index of the modulation set which describes the modulation of the given zone. If an
-     * identical set was already created for a previous zone it is shared and its index is returned,
-     * otherwise a new set is added. This keeps one instrument-wide modulation set for the usual
-     * case that all zones modulate identically.
+     * identical set was already found for a previous zone it is shared and its index is returned,
+     * otherwise the zone is added as the source of a new set. This keeps one instrument-wide
+     * modulation set for the usual case that all zones modulate identically.
      *
-     * @param document The XML document
-     * @param modulationSetsElement The element which holds all modulation sets
-     * @param modulationSetKeys Maps the comparison key of each created modulation set to its index
+     * @param modulationSetKeys Maps the comparison key of each found modulation set to its index
+     * @param modulationSetZones The zone from which to write each found modulation set
      * @param zone The zone from which to read the modulation information
      * @return The index of the modulation set to reference from the sample
+     * @throws IOException Could not create the comparison key
      */
-    private static int addModulationSet (final Document document, final Element modulationSetsElement, final Map<String, Integer> modulationSetKeys, final ISampleZone zone)
+    private static Integer getModulationSetIndex (final Map<String, Integer> modulationSetKeys, final List<ISampleZone> modulationSetZones, final ISampleZone zone) throws IOException
     {
-        final Element modulationSetElement = createModulationSet (document, zone);
-        final String key = createComparisonKey (modulationSetElement);
+        // The XML of the set without a name is the key to compare the sets
+        final ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (out, true))
+        {
+            createModulationSet (writer, zone, null);
+        }
+        final String key = out.toString (StandardCharsets.UTF_8);
+
         final Integer existingIndex = modulationSetKeys.get (key);
         if (existingIndex != null)
-            return existingIndex.intValue ();
-
-        final int index = modulationSetKeys.size ();
-        modulationSetKeys.put (key, Integer.valueOf (index));
+            return existingIndex;
 
-        // The name is not part of the comparison key, therefore it is only set once the set is
-        // known to be a new one; it belongs between the devices and the filter type
-        final Element nameElement = document.createElement (RenoiseTag.NAME);
-        nameElement.setTextContent ("Set " + (index + 1));
-        modulationSetElement.insertBefore (nameElement, XMLUtils.getChildElementByName (modulationSetElement, RenoiseTag.FILTER_TYPE));
-
-        modulationSetsElement.appendChild (modulationSetElement);
+        final Integer index = Integer.valueOf (modulationSetZones.size ());
+        modulationSetKeys.put (key, index);
+        modulationSetZones.add (zone);
         return index;
     }
 
@@ -287,20 +297,20 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
     /**
      * Create the modulation set for one zone. It holds the amplitude envelope and - if present -
      * the sampler filter (type, cutoff, resonance and filter envelope), the pitch envelope, the
-     * pitch LFO (vibrato) and the volume LFO (tremolo). The created element is not appended to the
-     * document and does not contain a name element yet.
+     * pitch LFO (vibrato) and the volume LFO (tremolo).
      *
-     * @param document The XML document
+     * @param writer Where to write the XML
      * @param zone The zone from which to read the modulation information
-     * @return The created modulation set element
+     * @param name The name of the set, no name element is written if it is null
+     * @throws IOException Could not write the XML
      */
-    private static Element createModulationSet (final Document document, final ISampleZone zone)
+    private static void createModulationSet (final StreamingXMLWriter writer, final ISampleZone zone, final String name) throws IOException
     {
-        final Element modulationSetElement = document.createElement (RenoiseTag.MODULATION_SET);
-        XMLUtils.addTextElement (document, modulationSetElement, RenoiseTag.SELECTED_PRESET_NAME, "Init");
-        XMLUtils.addTextElement (document, modulationSetElement, RenoiseTag.SELECTED_PRESET_LIBRARY, "Bundled Content");
-        XMLUtils.addTextElement (document, modulationSetElement, RenoiseTag.SELECTED_PRESET_MODIFIED, TRUE);
-        final Element devicesElement = XMLUtils.addElement (document, modulationSetElement, RenoiseTag.DEVICES);
+        writer.startElement (RenoiseTag.MODULATION_SET);
+        writer.textElement (RenoiseTag.SELECTED_PRESET_NAME, "Init");
+        writer.textElement (RenoiseTag.SELECTED_PRESET_LIBRARY, "Bundled Content");
+        writer.textElement (RenoiseTag.SELECTED_PRESET_MODIFIED, TRUE);
+        writer.startElement (RenoiseTag.DEVICES);
 
         // Determine the filter (if any) to set the base cutoff/resonance values of the mixer device
         int filterTypeIndex = RenoiseFilterType.INDEX_NONE;
@@ -330,68 +340,32 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
 
         // The mixer device holds the base input values and is required for the filter view to be
         // built; without it Renoise crashes when a filter is active
-        createMixerDevice (document, devicesElement, cutoff, resonance, pitchModulationRange);
+        createMixerDevice (writer, cutoff, resonance, pitchModulationRange);
 
         // The amplitude envelope is always present
-        createAhdsrDevice (document, devicesElement, RenoiseTag.TARGET_VOLUME, RenoiseTag.OP_MULTIPLY, false, zone.getAmplitudeEnvelopeModulator ().getSource ());
+        createAhdsrDevice (writer, RenoiseTag.TARGET_VOLUME, RenoiseTag.OP_MULTIPLY, false, zone.getAmplitudeEnvelopeModulator ().getSource ());
 
         if (cutoffEnvelope != null)
-            createAhdsrDevice (document, devicesElement, RenoiseTag.TARGET_CUTOFF, RenoiseTag.OP_ADD, false, cutoffEnvelope);
+            createAhdsrDevice (writer, RenoiseTag.TARGET_CUTOFF, RenoiseTag.OP_ADD, false, cutoffEnvelope);
 
         if (pitchDepth != 0)
-            createAhdsrDevice (document, devicesElement, RenoiseTag.TARGET_PITCH, RenoiseTag.OP_ADD, true, pitchModulator.getSource ());
+            createAhdsrDevice (writer, RenoiseTag.TARGET_PITCH, RenoiseTag.OP_ADD, true, pitchModulator.getSource ());
 
         final ILfoModulator pitchLfoModulator = zone.getPitchLfoModulator ();
         if (pitchLfoModulator.getDepth () != 0 && pitchLfoModulator.getSource ().isSet ())
-            createLfoDevice (document, devicesElement, RenoiseTag.TARGET_PITCH, RenoiseValueConverter.lfoDepthToAmplitude (pitchLfoModulator.getDepth (), pitchModulationRange), pitchLfoModulator);
+            createLfoDevice (writer, RenoiseTag.TARGET_PITCH, RenoiseValueConverter.lfoDepthToAmplitude (pitchLfoModulator.getDepth (), pitchModulationRange), pitchLfoModulator);
 
         final ILfoModulator amplitudeLfoModulator = zone.getAmplitudeLfoModulator ();
         if (amplitudeLfoModulator.getDepth () != 0 && amplitudeLfoModulator.getSource ().isSet ())
-            createLfoDevice (document, devicesElement, RenoiseTag.TARGET_VOLUME, RenoiseValueConverter.volumeLfoDepthToAmplitude (amplitudeLfoModulator.getDepth ()), amplitudeLfoModulator);
-
-        XMLUtils.addTextElement (document, modulationSetElement, RenoiseTag.FILTER_TYPE, Integer.toString (filterTypeIndex));
-        XMLUtils.addTextElement (document, modulationSetElement, RenoiseTag.FILTER_BANK_VERSION, Integer.toString (RenoiseFilterType.FILTER_BANK_VERSION));
-        return modulationSetElement;
-    }
+            createLfoDevice (writer, RenoiseTag.TARGET_VOLUME, RenoiseValueConverter.volumeLfoDepthToAmplitude (amplitudeLfoModulator.getDepth ()), amplitudeLfoModulator);
 
+        writer.endElement ();
 
-    /**
-     * Create a text key from an element and all of its children (tag names, attributes and text
-     * content) which can be compared to decide whether two modulation sets are identical.
-     *
-     * @param element The element for which to create the key
-     * @return The comparison key
-     */
-    private static String createComparisonKey (final Element element)
-    {
-        final StringBuilder sb = new StringBuilder ();
-        appendComparisonKey (element, sb);
-        return sb.toString ();
-    }
-
-
-    /**
-     * Append the comparison key of an element and all of its children to the given string builder.
-     *
-     * @param element The element for which to append the key
-     * @param sb Where to append the key
-     */
-    private static void appendComparisonKey (final Element element, final StringBuilder sb)
-    {
-        sb.append ('<').append (element.getTagName ());
-        final NamedNodeMap attributes = element.getAttributes ();
-        for (int i = 0; i < attributes.getLength (); i++)
-        {
-            final Node attribute = attributes.item (i);
-            sb.append (' ').append (attribute.getNodeName ()).append ("=\"").append (attribute.getNodeValue ()).append ('"');
-        }
-        sb.append ('>');
-        for (Node child = element.getFirstChild (); child != null; child = child.getNextSibling ())
-            if (child instanceof final Element childElement)
-                appendComparisonKey (childElement, sb);
-            else
-                sb.append (child.getNodeValue ());
-        sb.append ("</>");
+        if (name != null)
+            writer.textElement (RenoiseTag.NAME, name);
+        writer.textElement (RenoiseTag.FILTER_TYPE, Integer.toString (filterTypeIndex));
+        writer.textElement (RenoiseTag.FILTER_BANK_VERSION, Integer.toString (RenoiseFilterType.FILTER_BANK_VERSION));
+        writer.endElement ();
     }
 
 
@@ -400,56 +374,58 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
      * cutoff, resonance, drive). This device is required by Renoise to build the modulation input
      * view.
      *
-     * @param document The XML document
-     * @param devicesElement The devices element to which to add the device
+     * @param writer Where to write the XML
      * @param cutoff The base cutoff value (0..127)
      * @param resonance The base resonance value (0..127)
      * @param pitchModulationRange The pitch modulation range in semitones, which scales all
      *            modulation devices targeting the pitch
+     * @throws IOException Could not write the XML
      */
-    private static void createMixerDevice (final Document document, final Element devicesElement, final double cutoff, final double resonance, final int pitchModulationRange)
+    private static void createMixerDevice (final StreamingXMLWriter writer, final double cutoff, final double resonance, final int pitchModulationRange) throws IOException
     {
-        final Element deviceElement = XMLUtils.addElement (document, devicesElement, RenoiseTag.MIXER_DEVICE);
-        deviceElement.setAttribute (RenoiseTag.ATTR_TYPE, RenoiseTag.MIXER_DEVICE);
-
-        addParameter (document, deviceElement, RenoiseTag.IS_ACTIVE, 1.0);
-        addParameter (document, deviceElement, RenoiseTag.VOLUME, 1.0);
-        addParameter (document, deviceElement, RenoiseTag.PANNING, 0.0);
-        addParameter (document, deviceElement, RenoiseTag.PITCH, 0.0);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.PITCH_MODULATION_RANGE, Integer.toString (pitchModulationRange));
-        addParameter (document, deviceElement, RenoiseTag.CUTOFF, cutoff);
-        addParameter (document, deviceElement, RenoiseTag.RESONANCE, resonance);
-        addParameter (document, deviceElement, RenoiseTag.DRIVE, 0.0);
+        writer.startElement (RenoiseTag.MIXER_DEVICE);
+        writer.attribute (RenoiseTag.ATTR_TYPE, RenoiseTag.MIXER_DEVICE);
+
+        addParameter (writer, RenoiseTag.IS_ACTIVE, 1.0);
+        addParameter (writer, RenoiseTag.VOLUME, 1.0);
+        addParameter (writer, RenoiseTag.PANNING, 0.0);
+        addParameter (writer, RenoiseTag.PITCH, 0.0);
+        writer.textElement (RenoiseTag.PITCH_MODULATION_RANGE, Integer.toString (pitchModulationRange));
+        addParameter (writer, RenoiseTag.CUTOFF, cutoff);
+        addParameter (writer, RenoiseTag.RESONANCE, resonance);
+        addParameter (writer, RenoiseTag.DRIVE, 0.0);
+        writer.endElement ();
     }
 
 
     /**
      * Create an AHDSR modulation device.
      *
-     * @param document The XML document
-     * @param devicesElement The devices element to which to add the device
+     * @param writer Where to write the XML
      * @param target The modulation target (Volume, Cutoff, Pitch)
      * @param operator The modulation operator
      * @param bipolar True for a bipolar modulation
      * @param envelope The envelope to write
+     * @throws IOException Could not write the XML
      */
-    private static void createAhdsrDevice (final Document document, final Element devicesElement, final String target, final String operator, final boolean bipolar, final IEnvelope envelope)
+    private static void createAhdsrDevice (final StreamingXMLWriter writer, final String target, final String operator, final boolean bipolar, final IEnvelope envelope) throws IOException
     {
-        final Element deviceElement = XMLUtils.addElement (document, devicesElement, RenoiseTag.AHDSR_DEVICE);
-        deviceElement.setAttribute (RenoiseTag.ATTR_TYPE, RenoiseTag.AHDSR_DEVICE);
-
-        addParameter (document, deviceElement, RenoiseTag.IS_ACTIVE, 1.0);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.TARGET, target);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.OPERATOR, operator);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.BIPOLAR, Boolean.toString (bipolar));
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.TEMPO_SYNCED, FALSE);
-
-        addParameter (document, deviceElement, RenoiseTag.ATTACK, RenoiseValueConverter.timeToRenoise (envelope.getAttackTime ()));
-        addParameter (document, deviceElement, RenoiseTag.HOLD, RenoiseValueConverter.timeToRenoise (Math.max (0, envelope.getHoldTime ())));
-        addParameter (document, deviceElement, RenoiseTag.DECAY, RenoiseValueConverter.timeToRenoise (envelope.getDecayTime ()));
+        writer.startElement (RenoiseTag.AHDSR_DEVICE);
+        writer.attribute (RenoiseTag.ATTR_TYPE, RenoiseTag.AHDSR_DEVICE);
+
+        addParameter (writer, RenoiseTag.IS_ACTIVE, 1.0);
+        writer.textElement (RenoiseTag.TARGET, target);
+        writer.textElement (RenoiseTag.OPERATOR, operator);
+        writer.textElement (RenoiseTag.BIPOLAR, Boolean.toString (bipolar));
+        writer.textElement (RenoiseTag.TEMPO_SYNCED, FALSE);
+
+        addParameter (writer, RenoiseTag.ATTACK, RenoiseValueConverter.timeToRenoise (envelope.getAttackTime ()));
+        addParameter (writer, RenoiseTag.HOLD, RenoiseValueConverter.timeToRenoise (Math.max (0, envelope.getHoldTime ())));
+        addParameter (writer, RenoiseTag.DECAY, RenoiseValueConverter.timeToRenoise (envelope.getDecayTime ()));
         final double sustain = envelope.getSustainLevel ();
-        addParameter (document, deviceElement, RenoiseTag.SUSTAIN, sustain < 0 ? 1.0 : sustain);
-        addParameter (document, deviceElement, RenoiseTag.RELEASE, RenoiseValueConverter.timeToRenoise (envelope.getReleaseTime ()));
+        addParameter (writer, RenoiseTag.SUSTAIN, sustain < 0 ? 1.0 : sustain);
+        addParameter (writer, RenoiseTag.RELEASE, RenoiseValueConverter.timeToRenoise (envelope.getReleaseTime ()));
+        writer.endElement ();
     }
 
 
@@ -457,33 +433,34 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
      * Create a LFO modulation device which modulates the given target, e.g. the pitch (vibrato) or
      * the volume (tremolo).
      *
-     * @param document The XML document
-     * @param devicesElement The devices element to which to add the device
+     * @param writer Where to write the XML
      * @param target The modulation target, see the TARGET_* constants
      * @param amplitude The LFO amplitude [0..1] already converted for the target
      * @param lfoModulator The LFO modulator to write
+     * @throws IOException Could not write the XML
      */
-    private static void createLfoDevice (final Document document, final Element devicesElement, final String target, final double amplitude, final ILfoModulator lfoModulator)
+    private static void createLfoDevice (final StreamingXMLWriter writer, final String target, final double amplitude, final ILfoModulator lfoModulator) throws IOException
     {
-        final Element deviceElement = XMLUtils.addElement (document, devicesElement, RenoiseTag.LFO_DEVICE);
-        deviceElement.setAttribute (RenoiseTag.ATTR_TYPE, RenoiseTag.LFO_DEVICE);
+        writer.startElement (RenoiseTag.LFO_DEVICE);
+        writer.attribute (RenoiseTag.ATTR_TYPE, RenoiseTag.LFO_DEVICE);
 
-        addParameter (document, deviceElement, RenoiseTag.IS_ACTIVE, 1.0);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.TARGET, target);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.OPERATOR, RenoiseTag.OP_ADD);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.BIPOLAR, TRUE);
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.TEMPO_SYNCED, FALSE);
+        addParameter (writer, RenoiseTag.IS_ACTIVE, 1.0);
+        writer.textElement (RenoiseTag.TARGET, target);
+        writer.textElement (RenoiseTag.OPERATOR, RenoiseTag.OP_ADD);
+        writer.textElement (RenoiseTag.BIPOLAR, TRUE);
+        writer.textElement (RenoiseTag.TEMPO_SYNCED, FALSE);
 
         final ILfo lfo = lfoModulator.getSource ();
-        XMLUtils.addTextElement (document, deviceElement, RenoiseTag.LFO_MODE, waveformToMode (lfo.getWaveform ()));
-        addParameter (document, deviceElement, RenoiseTag.LFO_FREQUENCY, RenoiseValueConverter.lfoRateToRenoise (lfo.getRate ()));
-        addParameter (document, deviceElement, RenoiseTag.LFO_AMPLITUDE, amplitude);
+        writer.textElement (RenoiseTag.LFO_MODE, waveformToMode (lfo.getWaveform ()));
+        addParameter (writer, RenoiseTag.LFO_FREQUENCY, RenoiseValueConverter.lfoRateToRenoise (lfo.getRate ()));
+        addParameter (writer, RenoiseTag.LFO_AMPLITUDE, amplitude);
         final double startPhase = lfo.getStartPhase ();
-        addParameter (document, deviceElement, RenoiseTag.LFO_DEPHASE, startPhase > 0 ? startPhase * 360.0 : 0);
+        addParameter (writer, RenoiseTag.LFO_DEPHASE, startPhase > 0 ? startPhase * 360.0 : 0);
         // Renoise has a single onset time which ramps the LFO in, therefore delay and fade-in are
         // combined
         final double onset = Math.max (0, lfo.getDelay ()) + Math.max (0, lfo.getFadeIn ());
-        addParameter (document, deviceElement, RenoiseTag.LFO_DELAY, RenoiseValueConverter.lfoDelayToRenoise (onset));
+        addParameter (writer, RenoiseTag.LFO_DELAY, RenoiseValueConverter.lfoDelayToRenoise (onset));
+        writer.endElement ();
     }
 
 
@@ -509,16 +486,17 @@ public class RenoiseCreator extends AbstractCreator<EmptySettingsUI>
     /**
      * Add a device parameter element (a {@code Value} plus {@code Visualization}).
      *
-     * @param document The XML document
-     * @param deviceElement The device element to which to add the parameter
+     * @param writer Where to write the XML
      * @param name The name of the parameter element
      * @param value The value
+     * @throws IOException Could not write the XML
      */
-    private static void addParameter (final Document document, final Element deviceElement, final String name, final double value)
+    private static void addParameter (final StreamingXMLWriter writer, final String name, final double value) throws IOException
     {
-        final Element parameterElement = XMLUtils.addElement (document, deviceElement, name);
-        XMLUtils.addTextElement (document, parameterElement, RenoiseTag.VALUE, formatFloat (value));
-        XMLUtils.addTextElement (document, parameterElement, RenoiseTag.VISUALIZATION, "Device only");
+        writer.startElement (name);
+        writer.textElement (RenoiseTag.VALUE, formatFloat (value));
+        writer.textElement (RenoiseTag.VISUALIZATION, "Device only");
+        writer.endElement ();
     }
 
 
@@ -16,6 +16,7 @@ import java.util.Set;
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.detector.AbstractDetector;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.model.IFileBasedSampleData;
 import de.mossgrabers.convertwithmoss.core.model.IGroup;
 import de.mossgrabers.convertwithmoss.core.model.ISampleData;
@@ -58,6 +59,23 @@ public class SampleFileDetector extends AbstractDetector<SampleFileDetectorUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public String [] getFileEndings (final boolean detectPerformances)
+    {
+        // Reads folders of sample files, therefore it does not take part in the automatic detection
+        return new String [0];
+    }
+
+
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        return ProbeResult.NO_MATCH;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected void detect (final File folder)
@@ -209,7 +227,7 @@ public class SampleFileDetector extends AbstractDetector<SampleFileDetectorUI>
             }
             else
             {
-                final KeyMapping keyMapping = new KeyMapping (new ArrayList<> (sampleData), this.settingsConfiguration.isAscending (), this.settingsConfiguration.getCrossfadeNotes (), this.settingsConfiguration.getCrossfadeVelocities (), this.settingsConfiguration.getGroupPatterns (), this.settingsConfiguration.getMonoSplitPatterns ());
+                final KeyMapping keyMapping = new KeyMapping (new ArrayList<> (sampleData), this.settingsConfiguration.isAscending (), this.settingsConfiguration.getCrossfadeNotes (), this.settingsConfiguration.getCrossfadeVelocities (), this.settingsConfiguration.getNamePatterns ());
                 if (this.settingsConfiguration.isPreferFolderName ())
                 {
                     name = cleanupName (folderWithSamples.getName (), this.settingsConfiguration.getPostfixTexts ());
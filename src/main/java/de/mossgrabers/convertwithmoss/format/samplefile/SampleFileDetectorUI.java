@@ -14,6 +14,7 @@ import java.util.TreeSet;
 
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.settings.MetadataSettingsUI;
+import de.mossgrabers.convertwithmoss.format.SampleNamePatterns;
 import de.mossgrabers.tools.StringUtils;
 import de.mossgrabers.tools.ui.BasicConfig;
 import de.mossgrabers.tools.ui.Functions;
@@ -83,6 +84,7 @@ public class SampleFileDetectorUI extends MetadataSettingsUI
     private String []                  groupPatterns;
     private boolean                    isAscending;
     private String []                  monoSplitPatterns;
+    private SampleNamePatterns         namePatterns;
     private String []                  postfixTexts;
     private boolean                    shouldIgnoreLoops;
 
@@ -257,6 +259,7 @@ public class SampleFileDetectorUI extends MetadataSettingsUI
         this.groupPatterns = groupPatternsRaw;
         this.isAscending = this.sortAscendingGroup.getToggles ().get (1).isSelected ();
         this.monoSplitPatterns = StringUtils.splitByComma (this.monoSplitsField.getText ());
+        this.namePatterns = new SampleNamePatterns (this.groupPatterns, this.monoSplitPatterns);
         this.postfixTexts = StringUtils.splitByComma (this.postfixField.getText ());
         this.crossfadeNotes = crossfadeNotesValueRaw;
         this.crossfadeVelocities = crossfadeVelocitiesValue;
@@ -337,6 +340,7 @@ public class SampleFileDetectorUI extends MetadataSettingsUI
         this.isAscending = value == null || "1".equals (value);
 
         this.monoSplitPatterns = StringUtils.splitByComma (parameters.remove (SAMPLEFILE_MONO_SPLITS_PATTERN));
+        this.namePatterns = new SampleNamePatterns (this.groupPatterns, this.monoSplitPatterns);
         this.postfixTexts = StringUtils.splitByComma (parameters.remove (SAMPLEFILE_POSTFIX));
 
         value = parameters.remove (SAMPLEFILE_IGNORE_LOOPS);
@@ -429,6 +433,18 @@ public class SampleFileDetectorUI extends MetadataSettingsUI
     }
 
 
+    /**
+     * Get the compiled group detection and mono split patterns. They are created when the settings
+     * are checked, therefore only once for all folders of a run.
+     *
+     * @return The patterns
+     */
+    public SampleNamePatterns getNamePatterns ()
+    {
+        return this.namePatterns;
+    }
+
+
     /**
      * Get the post-fix texts to remove.
      *
@@ -42,6 +42,7 @@ import de.mossgrabers.convertwithmoss.file.sf2.Sf2Preset;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2PresetZone;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2RiffChunkId;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2SampleDescriptor;
+import de.mossgrabers.convertwithmoss.file.sf2.Sf2SamplePool;
 import de.mossgrabers.convertwithmoss.file.wav.DataChunk;
 import de.mossgrabers.convertwithmoss.file.wav.FormatChunk;
 import de.mossgrabers.convertwithmoss.file.wav.InfoChunk;
@@ -635,7 +636,7 @@ public class Sf2Creator extends AbstractCreator<Sf2CreatorUI>
      */
     private static Sf2SampleDescriptor createSf2SampleDescriptor (final int sampleType, final int sampleIndex, final long sampleStartPosition, final ISampleZone sampleZone, final FormatChunk formatChunk, final int numSamples, final byte [] sampleData, final byte [] sample24Data)
     {
-        final Sf2SampleDescriptor sampleDescriptor = new Sf2SampleDescriptor (sampleIndex, sampleData, sample24Data);
+        final Sf2SampleDescriptor sampleDescriptor = new Sf2SampleDescriptor (sampleIndex, new Sf2SamplePool (sampleData, sample24Data));
 
         sampleDescriptor.setSampleType (sampleType);
         sampleDescriptor.setSampleRate (formatChunk.getSampleRate ());
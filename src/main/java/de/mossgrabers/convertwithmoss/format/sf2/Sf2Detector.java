@@ -16,6 +16,7 @@ import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.creator.AbstractCreator;
 import de.mossgrabers.convertwithmoss.core.detector.AbstractDetector;
+import de.mossgrabers.convertwithmoss.core.detector.ProbeResult;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelope;
 import de.mossgrabers.convertwithmoss.core.model.IEnvelopeModulator;
 import de.mossgrabers.convertwithmoss.core.model.IFilter;
@@ -34,6 +35,7 @@ import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultSampleZon
 import de.mossgrabers.convertwithmoss.exception.ParseException;
 import de.mossgrabers.convertwithmoss.file.AudioFileUtils;
 import de.mossgrabers.convertwithmoss.file.riff.InfoRiffChunkId;
+import de.mossgrabers.convertwithmoss.file.riff.RiffChunkId;
 import de.mossgrabers.convertwithmoss.file.sf2.Generator;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2File;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2Instrument;
@@ -41,7 +43,9 @@ import de.mossgrabers.convertwithmoss.file.sf2.Sf2InstrumentZone;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2Modulator;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2Preset;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2PresetZone;
+import de.mossgrabers.convertwithmoss.file.sf2.Sf2RiffChunkId;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2SampleDescriptor;
+import de.mossgrabers.convertwithmoss.file.sf2.Sf2SamplePool;
 import de.mossgrabers.convertwithmoss.format.TagDetector;
 import de.mossgrabers.tools.FileUtils;
 import de.mossgrabers.tools.Pair;
@@ -74,6 +78,16 @@ public class Sf2Detector extends AbstractDetector<Sf2DetectorUI>
     }
 
 
+    /** {@inheritDoc} */
+    @Override
+    public ProbeResult probe (final File file, final byte [] header, final String [] endings, final boolean detectPerformances)
+    {
+        if (super.probe (file, header, endings, detectPerformances) == ProbeResult.NO_MATCH)
+            return ProbeResult.NO_MATCH;
+        return RiffChunkId.isRiffForm (header, Sf2RiffChunkId.SFBK_ID) ? ProbeResult.SIGNATURE : ProbeResult.NO_MATCH;
+    }
+
+
     /** {@inheritDoc} */
     @Override
     protected List<IMultisampleSource> readPresetFile (final File sourceFile)
@@ -555,14 +569,11 @@ public class Sf2Detector extends AbstractDetector<Sf2DetectorUI>
      */
     private static boolean isSilence (final Sf2SampleDescriptor sample)
     {
-        final byte [] data = sample.getSampleData ();
-        final int end = (int) Math.min (sample.getEnd (), data.length / 2);
-        for (int i = (int) sample.getStart (); i < end; i++)
-        {
-            final short value = (short) (data[2 * i] & 0xFF | data[2 * i + 1] << 8);
-            if (Math.abs (value) > SILENCE_THRESHOLD)
+        final Sf2SamplePool samplePool = sample.getSamplePool ();
+        final long end = Math.min (sample.getEnd (), samplePool.getNumberOfSamplePoints ());
+        for (long i = sample.getStart (); i < end; i++)
+            if (Math.abs (samplePool.getSamplePoint (i)) > SILENCE_THRESHOLD)
                 return false;
-        }
         return true;
     }
 
@@ -628,9 +639,9 @@ public class Sf2Detector extends AbstractDetector<Sf2DetectorUI>
      */
     private static double detectPitch (final Sf2SampleDescriptor sample)
     {
-        final byte [] data = sample.getSampleData ();
+        final Sf2SamplePool samplePool = sample.getSamplePool ();
         final long start = sample.getStart ();
-        final long end = Math.min (sample.getEnd (), data.length / 2);
+        final long end = Math.min (sample.getEnd (), samplePool.getNumberOfSamplePoints ());
         long from = start + (end - start) / 3;
         final long loopStart = sample.getLoopStart ();
         if (sample.getLoopEnd () - loopStart >= 32 && loopStart >= start && loopStart < end)
@@ -643,8 +654,7 @@ public class Sf2Detector extends AbstractDetector<Sf2DetectorUI>
         double sum = 0;
         for (int i = 0; i < length; i++)
         {
-            final int index = (int) (2 * (from + i));
-            final short value = (short) (data[index] & 0xFF | data[index + 1] << 8);
+            final short value = samplePool.getSamplePoint (from + i);
             frames[i] = value;
             sum += value;
         }
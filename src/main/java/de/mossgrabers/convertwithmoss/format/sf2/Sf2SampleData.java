@@ -12,6 +12,7 @@ import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
 import de.mossgrabers.convertwithmoss.core.model.implementation.AbstractSampleData;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultAudioMetadata;
 import de.mossgrabers.convertwithmoss.file.sf2.Sf2SampleDescriptor;
+import de.mossgrabers.convertwithmoss.file.sf2.Sf2SamplePool;
 import de.mossgrabers.convertwithmoss.file.wav.DataChunk;
 import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
 
@@ -23,6 +24,9 @@ import de.mossgrabers.convertwithmoss.file.wav.WaveFile;
  */
 public class Sf2SampleData extends AbstractSampleData
 {
+    /** The number of sample frames which are read at once from the sample data. */
+    private static final int          BLOCK_FRAMES       = 4096;
+
     private final Sf2SampleDescriptor sample;
     private Sf2SampleDescriptor       rightSample;
     private int                       rightChannelOffset = 0;
@@ -49,11 +53,7 @@ public class Sf2SampleData extends AbstractSampleData
     private void updateFormat ()
     {
         // For 24 bit the data must be present and the length must match
-        final byte [] leftSampleData = this.sample.getSampleData ();
-        final byte [] leftSample24Data = this.sample.getSample24Data ();
-        final byte [] rightSampleData = this.rightSample.getSampleData ();
-        final byte [] rightSample24Data = this.rightSample.getSample24Data ();
-        this.is24 = leftSample24Data != null && rightSample24Data != null && leftSample24Data.length * 2 == leftSampleData.length && rightSample24Data.length * 2 == rightSampleData.length;
+        this.is24 = this.sample.getSamplePool ().has24BitData () && this.rightSample.getSamplePool ().has24BitData ();
 
         this.leftLengthInSamples = this.sample.getEnd () - this.sample.getStart ();
         this.rightLengthInSamples = this.rightSample.getEnd () - this.rightSample.getStart ();
@@ -65,12 +65,6 @@ public class Sf2SampleData extends AbstractSampleData
     @Override
     public void writeSample (final OutputStream outputStream) throws IOException
     {
-        final byte [] leftSampleData = this.sample.getSampleData ();
-        final byte [] leftSample24Data = this.sample.getSample24Data ();
-
-        final byte [] rightSampleData = this.rightSample.getSampleData ();
-        final byte [] rightSample24Data = this.rightSample.getSample24Data ();
-
         final IAudioMetadata am = this.getAudioMetadata ();
         final int bitsPerSample = am.getBitResolution ();
 
@@ -79,53 +73,11 @@ public class Sf2SampleData extends AbstractSampleData
         final DataChunk dataChunk = wavFile.getDataChunk ();
         final byte [] data = dataChunk.getData ();
 
-        // Fill in the data
-        final int leftStart = (int) this.sample.getStart ();
-        final int rightStart = (int) this.rightSample.getStart ();
-        if (bitsPerSample == 24)
-            // Convert to stereo interleaved format
-            for (int i = 0; i < this.lengthInSamples; i++)
-            {
-                final int dataOffset = 6 * i;
-                final int leftOffset = 2 * (leftStart + i);
-                // The right channel might be moved by the alignment offset, see setRightSample()
-                final int rightIndex = i + this.rightChannelOffset;
-                final int rightOffset = 2 * (rightStart + rightIndex);
-
-                // Support for different lengths of left/right mono file
-                if (i < this.leftLengthInSamples && leftOffset < leftSampleData.length)
-                {
-                    data[dataOffset] = leftSample24Data[leftStart + i];
-                    data[dataOffset + 1] = leftSampleData[leftOffset];
-                    data[dataOffset + 2] = leftSampleData[leftOffset + 1];
-                }
-                if (rightIndex >= 0 && rightIndex < this.rightLengthInSamples && rightOffset < rightSampleData.length)
-                {
-                    data[dataOffset + 3] = rightSample24Data[rightStart + rightIndex];
-                    data[dataOffset + 4] = rightSampleData[rightOffset];
-                    data[dataOffset + 5] = rightSampleData[rightOffset + 1];
-                }
-            }
-        else
-            for (int i = 0; i < this.lengthInSamples; i++)
-            {
-                final int dataOffset = 4 * i;
-                final int leftOffset = 2 * (leftStart + i);
-                // The right channel might be moved by the alignment offset, see setRightSample()
-                final int rightIndex = i + this.rightChannelOffset;
-                final int rightOffset = 2 * (rightStart + rightIndex);
-
-                if (i < this.leftLengthInSamples && leftOffset < leftSampleData.length)
-                {
-                    data[dataOffset] = leftSampleData[leftOffset];
-                    data[dataOffset + 1] = leftSampleData[leftOffset + 1];
-                }
-                if (rightIndex >= 0 && rightIndex < this.rightLengthInSamples && rightOffset < rightSampleData.length)
-                {
-                    data[dataOffset + 2] = rightSampleData[rightOffset];
-                    data[dataOffset + 3] = rightSampleData[rightOffset + 1];
-                }
-            }
+        // Fill in the data, converted to stereo interleaved format
+        final int frameSize = bitsPerSample == 24 ? 6 : 4;
+        this.fillChannel (this.sample, 0, this.leftLengthInSamples, data, 0, frameSize);
+        // The right channel might be moved by the alignment offset, see setRightSample()
+        this.fillChannel (this.rightSample, this.rightChannelOffset, this.rightLengthInSamples, data, frameSize / 2, frameSize);
 
         dataChunk.setData (data);
 
@@ -133,6 +85,54 @@ public class Sf2SampleData extends AbstractSampleData
     }
 
 
+    /**
+     * Copy the sample points of one channel into the interleaved data. Only the sample points of
+     * the sample are read from the sample data, block by block.
+     *
+     * @param channelSample The sample of the channel
+     * @param channelOffset The number of frames by which the channel is moved
+     * @param channelLength The length of the channel in sample frames
+     * @param data The interleaved data
+     * @param dataOffset The offset of the channel in a frame
+     * @param frameSize The size of a frame in bytes, 6 for 24 bit, 4 for 16 bit
+     */
+    private void fillChannel (final Sf2SampleDescriptor channelSample, final int channelOffset, final long channelLength, final byte [] data, final int dataOffset, final int frameSize)
+    {
+        final Sf2SamplePool pool = channelSample.getSamplePool ();
+        final long start = channelSample.getStart ();
+        final boolean isChannel24 = frameSize == 6;
+
+        // Support for different lengths of left/right mono file, which must not exceed the data
+        final long firstFrame = Math.max (0, -channelOffset);
+        final long endFrame = Math.min (this.lengthInSamples, Math.min (channelLength, pool.getNumberOfSamplePoints () - start) - channelOffset);
+
+        final byte [] points = new byte [2 * BLOCK_FRAMES];
+        final byte [] points24 = isChannel24 ? new byte [BLOCK_FRAMES] : null;
+        for (long frame = firstFrame; frame < endFrame; frame += BLOCK_FRAMES)
+        {
+            final int count = (int) Math.min (BLOCK_FRAMES, endFrame - frame);
+            final long index = start + frame + channelOffset;
+            pool.copySamplePoints (index, count, points, 0);
+            if (isChannel24)
+                pool.copySample24Points (index, count, points24, 0);
+
+            int position = (int) frame * frameSize + dataOffset;
+            for (int i = 0; i < count; i++, position += frameSize)
+                if (isChannel24)
+                {
+                    data[position] = points24[i];
+                    data[position + 1] = points[2 * i];
+                    data[position + 2] = points[2 * i + 1];
+                }
+                else
+                {
+                    data[position] = points[2 * i];
+                    data[position + 1] = points[2 * i + 1];
+                }
+        }
+    }
+
+
     /**
      * Get the sample description.
      *
@@ -11,14 +11,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
@@ -52,8 +49,6 @@ import de.mossgrabers.tools.ui.Functions;
  */
 public class SfzDetector extends AbstractDetector<SfzDetectorUI>
 {
-    private static final Pattern                 HEADER_PATTERN    = Pattern.compile ("<([a-z]+)>([^<]*)", Pattern.DOTALL);
-    private static final Pattern                 ATTRIBUTE_PATTERN = Pattern.compile ("(\\b\\w+)=(.*?(?=\\s\\w+=|//|$))", Pattern.DOTALL);
     private static final Map<String, FilterType> FILTER_TYPE_MAP   = new HashMap<> ();
     private static final Map<String, LoopType>   LOOP_TYPE_MAP     = HashMap.newHashMap (3);
 
@@ -97,9 +92,9 @@ public class SfzDetector extends AbstractDetector<SfzDetectorUI>
 
         try
         {
-            final String content = this.loadTextFileWithReferences (file);
+            final List<Pair<String, Map<String, String>>> headers = this.parseSfz (file);
             this.clearAttributes ();
-            return this.parseMetadataFile (file, content);
+            return this.parseMetadataFile (file, headers);
         }
         catch (final IOException ex)
         {
@@ -109,76 +104,6 @@ public class SfzDetector extends AbstractDetector<SfzDetectorUI>
     }
 
 
-    /**
-     * Loads a text file in UTF-8 encoding. If UTF-8 fails a string is created anyway but with
-     * unspecified behavior. If the file contains #include statements the referenced file is loaded
-     * as well and included at the position.
-     *
-     * @param file The file to load
-     * @return The loaded text
-     * @throws IOException Could not load the file
-     */
-    private String loadTextFileWithReferences (final File file) throws IOException
-    {
-        final Map<String, String> cachedContents = new HashMap<> ();
-        final Set<String> processingFiles = new HashSet<> ();
-        return this.parseFile (file, cachedContents, processingFiles);
-    }
-
-
-    private String parseFile (final File file, final Map<String, String> cachedContents, final Set<String> processingFiles) throws IOException
-    {
-        final String absolutePath = file.getAbsolutePath ();
-
-        // Check if the content is already cached
-        if (cachedContents.containsKey (absolutePath))
-            return cachedContents.get (absolutePath);
-
-        // Check for endless loop
-        if (processingFiles.contains (absolutePath))
-            throw new IOException (Functions.getMessage ("IDS_SFZ_INCLUDE_LOOP_DETECTED", absolutePath));
-
-        // Mark the file as currently processing
-        processingFiles.add (absolutePath);
-
-        final StringBuilder content = new StringBuilder ();
-        final Iterator<String> iterator = this.loadTextFile (file).lines ().iterator ();
-        while (iterator.hasNext ())
-        {
-            final String line = iterator.next ();
-            if (line.startsWith ("#include"))
-            {
-                final Optional<String> includedFilePath = extractIncludedFilePath (line);
-                if (includedFilePath.isEmpty ())
-                    throw new IOException (Functions.getMessage ("IDS_SFZ_MALFORMED_INCLUDE", line));
-
-                // Recursively parse the included file
-                final File includedFile = new File (file.getParent (), includedFilePath.get ());
-                content.append (this.parseFile (includedFile, cachedContents, processingFiles));
-            }
-            else
-                content.append (line).append ('\n');
-        }
-
-        // Cache the content of the current file in case it is included multiple times...
-        cachedContents.put (absolutePath, content.toString ());
-
-        // Mark the file as processed
-        processingFiles.remove (absolutePath);
-        return content.toString ();
-    }
-
-
-    private static Optional<String> extractIncludedFilePath (final String line)
-    {
-        final int start = line.indexOf ('"');
-        final int end = line.lastIndexOf ('"');
-        if (start < 0 || end < 0 || start == end)
-            return Optional.empty ();
-        return Optional.of (line.substring (start + 1, end));
-    }
-
-
     private void clearAttributes ()
     {
         this.globalAttributes = Collections.emptyMap ();
@@ -194,12 +119,11 @@ public class SfzDetector extends AbstractDetector<SfzDetectorUI>
      * Load and parse the metadata description file.
      *
      * @param sourceFile The file
-     * @param content The content to parse
+     * @param result All parsed headers with their key/value pairs
      * @return The parsed multi-sample source
      */
-    private List<IMultisampleSource> parseMetadataFile (final File sourceFile, final String content)
+    private List<IMultisampleSource> parseMetadataFile (final File sourceFile, final List<Pair<String, Map<String, String>>> result)
     {
-        final List<Pair<String, Map<String, String>>> result = parseSfz (content);
         if (result.isEmpty ())
         {
             this.notifier.logError ("IDS_ERR_COULD_NOT_DETECT_MULTI_SAMPLE");
@@ -341,38 +265,38 @@ public class SfzDetector extends AbstractDetector<SfzDetectorUI>
 
 
     /**
-     * Parse all SFZ header with their key/value pairs.
+     * Parse all SFZ header with their key/value pairs. If the file contains #include statements the
+     * referenced files are parsed as well at their position.
      *
-     * @param content The text to parse
+     * @param file The SFZ file to parse
      * @return The parse headers and key/value pairs
+     * @throws IOException Could not load the file or one of the included files
      */
-    private static List<Pair<String, Map<String, String>>> parseSfz (final String content)
+    private List<Pair<String, Map<String, String>>> parseSfz (final File file) throws IOException
     {
         final List<Pair<String, Map<String, String>>> headersWithOpCodes = new ArrayList<> ();
 
-        final Matcher blockMatcher = HEADER_PATTERN.matcher (content);
-        while (blockMatcher.find ())
+        new SfzTokenizer (this::loadTextFile, new SfzTokenizer.ISfzHandler ()
         {
-            final String headerName = blockMatcher.group (1);
-            if (headerName == null || headerName.isBlank ())
-                continue;
+            private Map<String, String> attributes;
+
 
-            final String attributeBlock = blockMatcher.group (2);
-            final Map<String, String> attributes = new HashMap<> ();
-            if (attributeBlock != null && !attributeBlock.isBlank ())
+            /** {@inheritDoc} */
+            @Override
+            public void header (final String name)
             {
-                final Matcher keyValueMatcher = ATTRIBUTE_PATTERN.matcher (attributeBlock);
-                while (keyValueMatcher.find ())
-                {
-                    final String key = keyValueMatcher.group (1);
-                    final String value = keyValueMatcher.group (2);
-                    if (key != null && !key.isBlank () && value != null)
-                        attributes.put (key.trim (), value.trim ());
-                }
+                this.attributes = new HashMap<> ();
+                headersWithOpCodes.add (new Pair<> (name, this.attributes));
             }
 
-            headersWithOpCodes.add (new Pair<> (headerName, attributes));
-        }
+
+            /** {@inheritDoc} */
+            @Override
+            public void opcode (final String name, final String value)
+            {
+                this.attributes.put (name, value);
+            }
+        }).tokenize (file);
 
         return headersWithOpCodes;
     }
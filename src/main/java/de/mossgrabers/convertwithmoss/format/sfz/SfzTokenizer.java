@@ -0,0 +1,379 @@
+// Written by Jürgen Moßgraber - mossgrabers.de
+// (c) 2019-2026
+// Licensed under LGPLv3 - http://www.gnu.org/licenses/lgpl-3.0.txt
+
+package de.mossgrabers.convertwithmoss.format.sfz;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.mossgrabers.tools.ui.Functions;
+
+
+/**
+ * Splits the text of a SFZ file into its headers and opcodes in a single pass over the characters
+ * and reports them to a handler in the order in which they appear. Files which are referenced with
+ * <i>#include</i> are tokenized at the position of the statement, <i>#define</i> variables are
+ * substituted and line (//) as well as block comments are skipped.
+ * <p>
+ * The value of an opcode might contain spaces (e.g. the name of a sample). It ends at the end of
+ * the line, at a comment, at the next header or at the next opcode, which is a name directly
+ * followed by '='. Opcodes in front of the first header are ignored.
+ *
+ * @author Jürgen Moßgraber
+ */
+public class SfzTokenizer
+{
+    /**
+     * Receives the headers and opcodes found by the tokenizer.
+     */
+    public interface ISfzHandler
+    {
+        /**
+         * A header starts, all following opcodes belong to it.
+         *
+         * @param name The name of the header without the angle brackets, e.g. 'region'
+         */
+        void header (String name);
+
+
+        /**
+         * An opcode of the current header.
+         *
+         * @param name The name of the opcode
+         * @param value The value of the opcode, trimmed
+         */
+        void opcode (String name, String value);
+    }
+
+
+    /**
+     * Loads the text of a SFZ file.
+     */
+    @FunctionalInterface
+    public interface ITextLoader
+    {
+        /**
+         * Load the text of the file.
+         *
+         * @param file The file to load
+         * @return The text
+         * @throws IOException Could not load the file
+         */
+        String load (File file) throws IOException;
+    }
+
+
+    private static final String       INCLUDE         = "#include";
+    private static final String       DEFINE          = "#define";
+
+    private final ITextLoader         loader;
+    private final ISfzHandler         handler;
+    private final Map<String, String> cachedContents  = new HashMap<> ();
+    private final Set<String>         processingFiles = new HashSet<> ();
+    private final Map<String, String> defines         = new HashMap<> ();
+    private final List<String>        defineNames     = new ArrayList<> ();
+    private boolean                   hasHeader       = false;
+    private boolean                   isInComment     = false;
+
+
+    /**
+     * Constructor.
+     *
+     * @param loader Loads the text of the SFZ file and the files it includes
+     * @param handler Receives the headers and opcodes
+     */
+    public SfzTokenizer (final ITextLoader loader, final ISfzHandler handler)
+    {
+        this.loader = loader;
+        this.handler = handler;
+    }
+
+
+    /**
+     * Tokenize a SFZ file including all files which it references.
+     *
+     * @param file The file to tokenize
+     * @throws IOException Could not load the file or one of the included files, or the files
+     *             include each other
+     */
+    public void tokenize (final File file) throws IOException
+    {
+        final String absolutePath = file.getAbsolutePath ();
+
+        // Check for endless loop
+        if (!this.processingFiles.add (absolutePath))
+            throw new IOException (Functions.getMessage ("IDS_SFZ_INCLUDE_LOOP_DETECTED", absolutePath));
+
+        // Cache the content of the file in case it is included multiple times...
+        String content = this.cachedContents.get (absolutePath);
+        if (content == null)
+        {
+            content = this.loader.load (file);
+            this.cachedContents.put (absolutePath, content);
+        }
+
+        final int length = content.length ();
+        int lineStart = 0;
+        while (lineStart < length)
+        {
+            int lineEnd = lineStart;
+            while (lineEnd < length && content.charAt (lineEnd) != '\n' && content.charAt (lineEnd) != '\r')
+                lineEnd++;
+
+            this.tokenizeLine (file, content, lineStart, lineEnd);
+
+            // Windows line endings count as a single line break
+            lineStart = lineEnd + 1;
+            if (lineEnd + 1 < length && content.charAt (lineEnd) == '\r' && content.charAt (lineEnd + 1) == '\n')
+                lineStart++;
+        }
+
+        this.processingFiles.remove (absolutePath);
+    }
+
+
+    private void tokenizeLine (final File file, final String content, final int lineStart, final int lineEnd) throws IOException
+    {
+        int start = lineStart;
+        while (start < lineEnd && isWhitespace (content.charAt (start)))
+            start++;
+
+        if (!this.isInComment && start < lineEnd && content.charAt (start) == '#')
+        {
+            final String line = content.substring (start, lineEnd);
+            if (line.startsWith (INCLUDE))
+            {
+                this.include (file, this.substitute (line));
+                return;
+            }
+            if (line.startsWith (DEFINE))
+            {
+                this.define (line);
+                return;
+            }
+        }
+
+        if (this.defineNames.isEmpty () || indexOf (content, '$', start, lineEnd) < 0)
+            this.tokenizeText (content, start, lineEnd);
+        else
+        {
+            final String line = this.substitute (content.substring (start, lineEnd));
+            this.tokenizeText (line, 0, line.length ());
+        }
+    }
+
+
+    /**
+     * Tokenize the text of one line.
+     *
+     * @param text The text which contains the line
+     * @param start The index of the first character of the line
+     * @param end The index after the last character of the line
+     */
+    private void tokenizeText (final String text, final int start, final int end)
+    {
+        int position = start;
+        while (position < end)
+        {
+            if (this.isInComment)
+            {
+                int commentEnd = indexOf (text, '*', position, end);
+                while (commentEnd >= 0 && (commentEnd + 1 >= end || text.charAt (commentEnd + 1) != '/'))
+                    commentEnd = indexOf (text, '*', commentEnd + 1, end);
+                if (commentEnd < 0)
+                    return;
+                this.isInComment = false;
+                position = commentEnd + 2;
+                continue;
+            }
+
+            final char c = text.charAt (position);
+            if (isWhitespace (c))
+            {
+                position++;
+                continue;
+            }
+
+            if (c == '/' && position + 1 < end)
+            {
+                final char next = text.charAt (position + 1);
+                if (next == '/')
+                    return;
+                if (next == '*')
+                {
+                    this.isInComment = true;
+                    position += 2;
+                    continue;
+                }
+            }
+
+            if (c == '<')
+            {
+                final int headerEnd = matchHeader (text, position, end);
+                if (headerEnd > 0)
+                {
+                    this.hasHeader = true;
+                    this.handler.header (text.substring (position + 1, headerEnd - 1));
+                    position = headerEnd;
+                    continue;
+                }
+            }
+
+            final int nameEnd = matchOpcodeName (text, position, end);
+            if (nameEnd < 0)
+            {
+                // Not an opcode, skip the word but not a header which directly follows it
+                position++;
+                while (position < end && !isWhitespace (text.charAt (position)) && text.charAt (position) != '<')
+                    position++;
+                continue;
+            }
+
+            final int valueStart = nameEnd + 1;
+            final int valueEnd = findValueEnd (text, valueStart, end);
+            if (this.hasHeader)
+                this.handler.opcode (text.substring (position, nameEnd), text.substring (valueStart, valueEnd).trim ());
+            position = valueEnd;
+        }
+    }
+
+
+    /**
+     * Find the end of the value of an opcode.
+     *
+     * @param text The text
+     * @param start The index of the first character of the value
+     * @param end The index after the last character of the line
+     * @return The index after the last character of the value
+     */
+    private static int findValueEnd (final String text, final int start, final int end)
+    {
+        for (int position = start; position < end; position++)
+        {
+            final char c = text.charAt (position);
+            if (c == '/' && position + 1 < end && text.charAt (position + 1) == '/' || c == '<' && matchHeader (text, position, end) > 0)
+                return position;
+
+            // A value ends in front of the next opcode
+            if (isWhitespace (c) && position + 1 < end && matchOpcodeName (text, position + 1, end) > 0)
+                return position;
+        }
+        return end;
+    }
+
+
+    /**
+     * Test if there is a header, which is a name of lower case letters in angle brackets.
+     *
+     * @param text The text
+     * @param start The index of the opening angle bracket
+     * @param end The index after the last character of the line
+     * @return The index after the closing angle bracket or -1 if there is no header
+     */
+    private static int matchHeader (final String text, final int start, final int end)
+    {
+        int position = start + 1;
+        while (position < end && text.charAt (position) >= 'a' && text.charAt (position) <= 'z')
+            position++;
+        return position > start + 1 && position < end && text.charAt (position) == '>' ? position + 1 : -1;
+    }
+
+
+    /**
+     * Test if there is the name of an opcode directly followed by '='.
+     *
+     * @param text The text
+     * @param start The index of the first character of the name
+     * @param end The index after the last character of the line
+     * @return The index of the '=' or -1 if there is no opcode
+     */
+    private static int matchOpcodeName (final String text, final int start, final int end)
+    {
+        int position = start;
+        while (position < end && isNameCharacter (text.charAt (position)))
+            position++;
+        return position > start && position < end && text.charAt (position) == '=' ? position : -1;
+    }
+
+
+    private void include (final File file, final String line) throws IOException
+    {
+        final int start = line.indexOf ('"');
+        final int end = line.lastIndexOf ('"');
+        if (start < 0 || end < 0 || start == end)
+            throw new IOException (Functions.getMessage ("IDS_SFZ_MALFORMED_INCLUDE", line));
+
+        // Recursively tokenize the included file
+        this.tokenize (new File (file.getParent (), line.substring (start + 1, end)));
+    }
+
+
+    /**
+     * Store a variable, e.g. '#define $KEY 60'.
+     *
+     * @param line The line with the definition
+     */
+    private void define (final String line)
+    {
+        final String [] parts = line.substring (DEFINE.length ()).trim ().split ("\\s+", 2);
+        if (parts.length < 2 || parts[0].length () < 2 || parts[0].charAt (0) != '$')
+            return;
+
+        if (this.defines.put (parts[0], parts[1].trim ()) == null)
+        {
+            this.defineNames.add (parts[0]);
+            // Replace longer names first, so that $VEL does not replace the start of $VEL2
+            this.defineNames.sort ( (name1, name2) -> Integer.compare (name2.length (), name1.length ()));
+        }
+    }
+
+
+    private String substitute (final String line)
+    {
+        if (this.defineNames.isEmpty () || line.indexOf ('$') < 0)
+            return line;
+
+        String result = line;
+        for (final String name: this.defineNames)
+            result = result.replace (name, this.defines.get (name));
+        return result;
+    }
+
+
+    /**
+     * Find a character in a range of the text, unlike String.indexOf the search does not continue
+     * after the line.
+     *
+     * @param text The text
+     * @param c The character to find
+     * @param start The index at which to start the search
+     * @param end The index at which to end the search
+     * @return The index of the character or -1 if it is not found
+     */
+    private static int indexOf (final String text, final char c, final int start, final int end)
+    {
+        for (int position = start; position < end; position++)
+            if (text.charAt (position) == c)
+                return position;
+        return -1;
+    }
+
+
+    private static boolean isNameCharacter (final char c)
+    {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+
+    private static boolean isWhitespace (final char c)
+    {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\u000B';
+    }
+}
@@ -5,16 +5,14 @@
 package de.mossgrabers.convertwithmoss.format.tal;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
 import de.mossgrabers.convertwithmoss.core.algorithm.MathUtils;
@@ -29,8 +27,8 @@ import de.mossgrabers.convertwithmoss.core.model.ISampleZone;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.LoopType;
 import de.mossgrabers.convertwithmoss.core.model.implementation.DefaultGroup;
 import de.mossgrabers.convertwithmoss.core.settings.WavChunkSettingsUI;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.tools.FileUtils;
-import de.mossgrabers.tools.XMLUtils;
 
 
 /**
@@ -59,132 +57,131 @@ public class TALSamplerCreator extends AbstractWavCreator<WavChunkSettingsUI>
         final String sampleName = FileUtils.createSafeFilename (multisampleSource.getName ());
         final String relativeFolderName = sampleName + FOLDER_POSTFIX;
 
-        final Optional<String> metadata = this.createMetadata (relativeFolderName, multisampleSource);
-        if (metadata.isEmpty ())
-            return;
-
         final File multiFile = this.createUniqueFilename (destinationFolder, sampleName, "talsmpl");
         this.notifier.log ("IDS_NOTIFY_STORING", multiFile.getAbsolutePath ());
 
-        this.storePreset (relativeFolderName, destinationFolder, multisampleSource, multiFile, metadata.get ());
-
-        this.progress.notifyDone ();
-    }
-
-
-    /**
-     * Create a TAL sampler file.
-     *
-     * @param relativeFolderName A relative path for the samples
-     * @param destinationFolder Where to store the preset file
-     * @param multisampleSource The multi-sample to store in the library
-     * @param multiFile The output file
-     * @param metadata The metadata description file
-     * @throws IOException Could not store the file
-     */
-    private void storePreset (final String relativeFolderName, final File destinationFolder, final IMultisampleSource multisampleSource, final File multiFile, final String metadata) throws IOException
-    {
-        try (final FileWriter writer = new FileWriter (multiFile, StandardCharsets.UTF_8))
+        try (final OutputStream out = new FileOutputStream (multiFile))
         {
-            writer.write (metadata);
+            this.writeMetadata (out, relativeFolderName, multisampleSource);
+        }
+        catch (final IOException ex)
+        {
+            // Do not leave a partially written description behind
+            Files.deleteIfExists (multiFile.toPath ());
+            this.notifier.logError (ex);
+            return;
         }
 
         // Store all samples
         final File sampleFolder = new File (destinationFolder, relativeFolderName);
         safeCreateDirectory (sampleFolder);
         this.writeSamples (sampleFolder, multisampleSource);
+
+        this.progress.notifyDone ();
     }
 
 
     /**
-     * Create the text of the description file.
+     * Write the UTF-8 encoded text of the description file. The attributes of the program element
+     * are all calculated before its layers are written.
      *
+     * @param outputStream Where to write the XML text to
      * @param folderName The name to use for the sample folder
      * @param multisampleSource The multi-sample
-     * @return The XML structure
-     * @throws IOException Could not create the metadata
+     * @throws IOException Could not write the XML text
      */
-    private Optional<String> createMetadata (final String folderName, final IMultisampleSource multisampleSource) throws IOException
+    private void writeMetadata (final OutputStream outputStream, final String folderName, final IMultisampleSource multisampleSource) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element rootElement = document.createElement (TALSamplerTag.ROOT);
-        document.appendChild (rootElement);
-        rootElement.setAttribute (TALSamplerTag.ROOT_CUR_PROGRAM, "0");
-        rootElement.setAttribute (TALSamplerTag.ROOT_VERSION, TALSamplerConstants.CURRENT_VERSION);
-
-        // No metadata at all, except program name
-
-        final Element programsElement = XMLUtils.addElement (document, rootElement, TALSamplerTag.PROGRAMS);
-        final Element programElement = XMLUtils.addElement (document, programsElement, TALSamplerTag.PROGRAM);
-        programElement.setAttribute (TALSamplerTag.PROGRAM_NAME, multisampleSource.getName ());
-
-        // If the instrument does not specify a polyphony, all voices are enabled as before
-        int polyphony = multisampleSource.getPolyphony ();
-        if (multisampleSource.isMonophonicLegato ())
-            polyphony = 1;
-        if (polyphony > 0)
-            XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.PROGRAM_NUM_VOICES, TALSamplerConstants.normalizeVoices (polyphony), 6);
-        else
-            programElement.setAttribute (TALSamplerTag.PROGRAM_NUM_VOICES, "1.0");
-
-        // Add up to 4 groups
-        int groupCounter = 0;
+        // Up to 4 groups
         final List<IGroup> groups = this.optimizeGroups (multisampleSource.getNonEmptyGroups (true));
-        for (final IGroup group: groups)
+
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (outputStream, true))
         {
-            final Element groupElement = XMLUtils.addElement (document, programElement, TALSamplerTag.SAMPLE_LAYER + groupCounter);
-            final Element multisamplesElement = XMLUtils.addElement (document, groupElement, TALSamplerTag.MULTISAMPLES);
+            writer.startElement (TALSamplerTag.ROOT);
+            writer.attribute (TALSamplerTag.ROOT_CUR_PROGRAM, "0");
+            writer.attribute (TALSamplerTag.ROOT_VERSION, TALSamplerConstants.CURRENT_VERSION);
+
+            // No metadata at all, except program name
+
+            writer.startElement (TALSamplerTag.PROGRAMS);
+            writer.startElement (TALSamplerTag.PROGRAM);
+            writer.attribute (TALSamplerTag.PROGRAM_NAME, multisampleSource.getName ());
+
+            // If the instrument does not specify a polyphony, all voices are enabled as before
+            int polyphony = multisampleSource.getPolyphony ();
+            if (multisampleSource.isMonophonicLegato ())
+                polyphony = 1;
+            if (polyphony > 0)
+                writer.attribute (TALSamplerTag.PROGRAM_NUM_VOICES, TALSamplerConstants.normalizeVoices (polyphony), 6);
+            else
+                writer.attribute (TALSamplerTag.PROGRAM_NUM_VOICES, "1.0");
+
+            for (int groupCounter = 0; groupCounter < groups.size (); groupCounter++)
+            {
+                writer.attribute (TALSamplerTag.PROGRAM_LAYER_ON + TALSamplerConstants.LAYERS[groupCounter], "1.0");
+
+                // Fine tuning is set on the program with +-100 cent, the last tuned sample wins
+                for (final ISampleZone zone: groups.get (groupCounter).getSampleZones ())
+                {
+                    final double tune = zone.getTuning ();
+                    if (tune != 0)
+                        writer.attribute (TALSamplerTag.SAMPLE_FINE_TUNE + TALSamplerConstants.LAYERS[groupCounter], (tune - Math.round (tune) + 1.0) / 2.0, 4);
+                }
+            }
 
-            programElement.setAttribute (TALSamplerTag.PROGRAM_LAYER_ON + TALSamplerConstants.LAYERS[groupCounter], "1.0");
+            final List<TALSamplerModulator> modulators = addModulationAttributes (writer, groups, multisampleSource.getGlobalFilter ());
 
-            // No group name and trigger types
+            for (int groupCounter = 0; groupCounter < groups.size (); groupCounter++)
+            {
+                writer.startElement (TALSamplerTag.SAMPLE_LAYER + groupCounter);
+                writer.startElement (TALSamplerTag.MULTISAMPLES);
 
-            for (final ISampleZone sample: group.getSampleZones ())
-                createSample (document, folderName, programElement, groupCounter, multisamplesElement, sample);
+                // No group name and trigger types
 
-            groupCounter++;
-            if (groupCounter == 4)
-                break;
-        }
+                for (final ISampleZone sample: groups.get (groupCounter).getSampleZones ())
+                    createSample (writer, folderName, sample);
 
-        addModulationAttributes (document, groups, programElement, multisampleSource.getGlobalFilter ());
+                writer.endElement ();
+                writer.endElement ();
+            }
 
-        return this.createXMLString (document);
+            // Create modulator matrix
+            if (!modulators.isEmpty ())
+            {
+                writer.startElement (TALSamplerTag.MOD_MATRIX);
+                for (final TALSamplerModulator modulator: modulators)
+                    modulator.createModElements (writer);
+                writer.endElement ();
+            }
+        }
     }
 
 
     /**
      * Creates the metadata for one sample.
      *
-     * @param document The XML document
+     * @param writer Where to write the sample information
      * @param folderName The name to use for the sample folder
-     * @param programElement The program element
-     * @param groupCounter The index of the group
-     * @param groupElement The element where to add the sample information
      * @param zone Where to get the sample info from
+     * @throws IOException Could not write the sample information
      */
-    private static void createSample (final Document document, final String folderName, final Element programElement, final int groupCounter, final Element groupElement, final ISampleZone zone)
+    private static void createSample (final StreamingXMLWriter writer, final String folderName, final ISampleZone zone) throws IOException
     {
         // -----------------------------------------------------------
         // Sample element and attributes
 
-        final Element sampleElement = XMLUtils.addElement (document, groupElement, TALSamplerTag.MULTISAMPLE);
-        sampleElement.setAttribute (TALSamplerTag.MULTISAMPLE_URL, AbstractCreator.formatFileName (folderName, zone.getName () + ".wav"));
+        writer.startElement (TALSamplerTag.MULTISAMPLE);
+        writer.attribute (TALSamplerTag.MULTISAMPLE_URL, AbstractCreator.formatFileName (folderName, zone.getName () + ".wav"));
 
         // Always write the volume: a missing attribute is not read back as 0dB
-        XMLUtils.setDoubleAttribute (sampleElement, TALSamplerTag.VOLUME, convertGain (zone.getGain ()), 6);
-        XMLUtils.setDoubleAttribute (sampleElement, TALSamplerTag.PANNING, (zone.getPanning () + 1.0) / 2.0, 2);
+        writer.attribute (TALSamplerTag.VOLUME, convertGain (zone.getGain ()), 6);
+        writer.attribute (TALSamplerTag.PANNING, (zone.getPanning () + 1.0) / 2.0, 2);
 
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.START_SAMPLE, Math.max (0, zone.getStart ()));
+        writer.attribute (TALSamplerTag.START_SAMPLE, Math.max (0, zone.getStart ()));
         final int stop = zone.getStop ();
         if (stop >= 0)
-            XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.END_SAMPLE, stop);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.REVERSE, zone.isReversed () ? 1 : 0);
+            writer.attribute (TALSamplerTag.END_SAMPLE, stop);
+        writer.attribute (TALSamplerTag.REVERSE, zone.isReversed () ? 1 : 0);
 
         // transpose // tune in semi-tones = floor((48.0f * transpose + 0.5f) - 24.0f)
         final double tune = zone.getTuning ();
@@ -194,26 +191,24 @@ public class TALSamplerCreator extends AbstractWavCreator<WavChunkSettingsUI>
             // fine tuning is set on the program with +-100 cent
 
             final int semitones = (int) Math.round (tune);
-            final double fine = tune - semitones;
             // The amount which does not fit into the transpose range is moved to the de-tune
             final int transpose = Math.clamp (semitones, -24, 24);
             final int detune = Math.clamp (semitones - (long) transpose, -24, 24);
-            XMLUtils.setDoubleAttribute (sampleElement, TALSamplerTag.TRANSPOSE, (transpose + 24.0) / 48.0, 4);
-            XMLUtils.setDoubleAttribute (sampleElement, TALSamplerTag.DETUNE, (detune + 24.0) / 48.0, 4);
-            XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.SAMPLE_FINE_TUNE + TALSamplerConstants.LAYERS[groupCounter], (fine + 1.0) / 2.0, 4);
+            writer.attribute (TALSamplerTag.TRANSPOSE, (transpose + 24.0) / 48.0, 4);
+            writer.attribute (TALSamplerTag.DETUNE, (detune + 24.0) / 48.0, 4);
         }
 
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.PITCH_KEY_TRACK, zone.getKeyTracking () > 0 ? 1 : 0);
+        writer.attribute (TALSamplerTag.PITCH_KEY_TRACK, zone.getKeyTracking () > 0 ? 1 : 0);
 
         // -----------------------------------------------------------
         // Key & Velocity attributes
 
         final int keyLow = limitToDefault (zone.getKeyLow (), 0);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.ROOT_NOTE, limitToDefault (zone.getKeyRoot (), keyLow));
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LO_NOTE, keyLow);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.HI_NOTE, limitToDefault (zone.getKeyHigh (), 127));
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LO_VEL, limitToDefault (zone.getVelocityLow (), 1));
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.HI_VEL, limitToDefault (zone.getVelocityHigh (), 127));
+        writer.attribute (TALSamplerTag.ROOT_NOTE, limitToDefault (zone.getKeyRoot (), keyLow));
+        writer.attribute (TALSamplerTag.LO_NOTE, keyLow);
+        writer.attribute (TALSamplerTag.HI_NOTE, limitToDefault (zone.getKeyHigh (), 127));
+        writer.attribute (TALSamplerTag.LO_VEL, limitToDefault (zone.getVelocityLow (), 1));
+        writer.attribute (TALSamplerTag.HI_VEL, limitToDefault (zone.getVelocityHigh (), 127));
 
         // No note and velocity cross-fades
 
@@ -222,46 +217,58 @@ public class TALSamplerCreator extends AbstractWavCreator<WavChunkSettingsUI>
 
         final List<ISampleLoop> loops = zone.getLoops ();
         if (loops.isEmpty ())
-            XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LOOP_ENABLED, 0);
+            writer.attribute (TALSamplerTag.LOOP_ENABLED, 0);
         else
         {
             final ISampleLoop sampleLoop = loops.get (0);
-            XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LOOP_ENABLED, 1);
-            XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LOOP_START, limitToDefault (sampleLoop.getStart (), 0));
-            XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LOOP_END, limitToDefault (sampleLoop.getEnd (), stop));
+            writer.attribute (TALSamplerTag.LOOP_ENABLED, 1);
+            writer.attribute (TALSamplerTag.LOOP_START, limitToDefault (sampleLoop.getStart (), 0));
+            writer.attribute (TALSamplerTag.LOOP_END, limitToDefault (sampleLoop.getEnd (), stop));
 
             // No loop cross-fade
 
             final LoopType type = sampleLoop.getType ();
-            XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.LOOP_ALTERNATE, type == LoopType.ALTERNATING ? 1 : 0);
+            writer.attribute (TALSamplerTag.LOOP_ALTERNATE, type == LoopType.ALTERNATING ? 1 : 0);
         }
 
         // -----------------------------------------------------------
         // Static not relevant attributes
 
-        XMLUtils.setDoubleAttribute (sampleElement, TALSamplerTag.FADE_IN_SAMPLES, 0, 1);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.IS_ROM_SAMPLE, 0);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.SLICE, 0);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.PHASE_INVERSE, 0);
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.STEREO_INVERSE, 1);
+        writer.attribute (TALSamplerTag.FADE_IN_SAMPLES, 0, 1);
+        writer.attribute (TALSamplerTag.IS_ROM_SAMPLE, 0);
+        writer.attribute (TALSamplerTag.SLICE, 0);
+        writer.attribute (TALSamplerTag.PHASE_INVERSE, 0);
+        writer.attribute (TALSamplerTag.STEREO_INVERSE, 1);
 
         // The mute group is the exclusive group, 0 means that the sample is not assigned to one
-        XMLUtils.setIntegerAttribute (sampleElement, TALSamplerTag.MUTE_GROUP, Math.max (0, zone.getExclusiveGroup ()));
+        writer.attribute (TALSamplerTag.MUTE_GROUP, Math.max (0, zone.getExclusiveGroup ()));
+
+        writer.endElement ();
     }
 
 
-    private static void addModulationAttributes (final Document document, final List<IGroup> groups, final Element programElement, final Optional<IFilter> optFilter) throws IOException
+    /**
+     * Adds the pitch-bend, envelope and filter attributes to the program element which is open in
+     * the writer.
+     *
+     * @param writer The writer
+     * @param groups The groups, the settings are taken from the first sample of the first group
+     * @param optFilter The global filter, if any
+     * @return The entries of the modulation matrix, empty if there are no groups
+     * @throws IOException Could not get the length of the samples
+     */
+    private static List<TALSamplerModulator> addModulationAttributes (final StreamingXMLWriter writer, final List<IGroup> groups, final Optional<IFilter> optFilter) throws IOException
     {
+        final List<TALSamplerModulator> modulators = new ArrayList<> (10);
         if (groups.isEmpty ())
-            return;
+            return modulators;
 
         final ISampleZone zone = groups.get (0).getSampleZones ().get (0);
-        final List<TALSamplerModulator> modulators = new ArrayList<> (10);
 
         // Pitch-bend
         final int bendUp = Math.abs (zone.getBendUp ());
         final double bendUpValue = bendUp == 0 ? 0.16 : Math.clamp (bendUp / 1200.0, 0, 1.0);
-        XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.PITCHBEND_RANGE, bendUpValue, 3);
+        writer.attribute (TALSamplerTag.PITCHBEND_RANGE, bendUpValue, 3);
 
         final double maxEnvelopeTime = TALSamplerConstants.getMediumSampleLength (groups);
 
@@ -269,11 +276,11 @@ public class TALSamplerCreator extends AbstractWavCreator<WavChunkSettingsUI>
         // Amplitude
 
         final IEnvelope amplitudeEnvelope = zone.getAmplitudeEnvelopeModulator ().getSource ();
-        setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_AMP_ATTACK, amplitudeEnvelope.getAttackTime (), 0, maxEnvelopeTime);
-        setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_AMP_HOLD, amplitudeEnvelope.getHoldTime (), 0, maxEnvelopeTime);
-        setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_AMP_DECAY, amplitudeEnvelope.getDecayTime (), 0, maxEnvelopeTime);
-        setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_AMP_SUSTAIN, amplitudeEnvelope.getSustainLevel (), 0, 1);
-        setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_AMP_RELEASE, amplitudeEnvelope.getReleaseTime (), 0, maxEnvelopeTime);
+        setEnvelopeAttribute (writer, TALSamplerTag.ADSR_AMP_ATTACK, amplitudeEnvelope.getAttackTime (), 0, maxEnvelopeTime);
+        setEnvelopeAttribute (writer, TALSamplerTag.ADSR_AMP_HOLD, amplitudeEnvelope.getHoldTime (), 0, maxEnvelopeTime);
+        setEnvelopeAttribute (writer, TALSamplerTag.ADSR_AMP_DECAY, amplitudeEnvelope.getDecayTime (), 0, maxEnvelopeTime);
+        setEnvelopeAttribute (writer, TALSamplerTag.ADSR_AMP_SUSTAIN, amplitudeEnvelope.getSustainLevel (), 0, 1);
+        setEnvelopeAttribute (writer, TALSamplerTag.ADSR_AMP_RELEASE, amplitudeEnvelope.getReleaseTime (), 0, maxEnvelopeTime);
 
         // The modulator is always written since a missing entry cannot be distinguished from a
         // depth of zero when reading the file back
@@ -289,27 +296,27 @@ public class TALSamplerCreator extends AbstractWavCreator<WavChunkSettingsUI>
 
             // Enable the filter on all 4 velocity layers
             for (int i = 0; i < 4; i++)
-                programElement.setAttribute (TALSamplerTag.FILTER_LAYER_ON + TALSamplerConstants.LAYERS[i], "1.0");
+                writer.attribute (TALSamplerTag.FILTER_LAYER_ON + TALSamplerConstants.LAYERS[i], "1.0");
 
-            XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.FILTER_MODE, TALSamplerConstants.getFilterValue (filter), 16);
-            XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.FILTER_KEYBOARD, filter.getCutoffKeyTracking (), 2);
+            writer.attribute (TALSamplerTag.FILTER_MODE, TALSamplerConstants.getFilterValue (filter), 16);
+            writer.attribute (TALSamplerTag.FILTER_KEYBOARD, filter.getCutoffKeyTracking (), 2);
 
             final double cutoff = MathUtils.normalizeCutoff (filter.getCutoff ());
-            XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.FILTER_CUTOFF, cutoff, 4);
-            XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.FILTER_RESONANCE, filter.getResonance (), 4);
+            writer.attribute (TALSamplerTag.FILTER_CUTOFF, cutoff, 4);
+            writer.attribute (TALSamplerTag.FILTER_RESONANCE, filter.getResonance (), 4);
 
             final IEnvelopeModulator cutoffModulator = filter.getCutoffEnvelopeModulator ();
             final double filterModDepth = cutoffModulator.getDepth ();
             if (filterModDepth > 0)
             {
                 final IEnvelope filterEnvelope = cutoffModulator.getSource ();
-                setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_VCF_ATTACK, filterEnvelope.getAttackTime (), 0, maxEnvelopeTime);
-                setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_VCF_HOLD, filterEnvelope.getHoldTime (), 0, maxEnvelopeTime);
-                setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_VCF_DECAY, filterEnvelope.getDecayTime (), 0, maxEnvelopeTime);
-                setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_VCF_SUSTAIN, filterEnvelope.getSustainLevel (), 0, 1);
-                setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_VCF_RELEASE, filterEnvelope.getReleaseTime (), 0, maxEnvelopeTime);
+                setEnvelopeAttribute (writer, TALSamplerTag.ADSR_VCF_ATTACK, filterEnvelope.getAttackTime (), 0, maxEnvelopeTime);
+                setEnvelopeAttribute (writer, TALSamplerTag.ADSR_VCF_HOLD, filterEnvelope.getHoldTime (), 0, maxEnvelopeTime);
+                setEnvelopeAttribute (writer, TALSamplerTag.ADSR_VCF_DECAY, filterEnvelope.getDecayTime (), 0, maxEnvelopeTime);
+                setEnvelopeAttribute (writer, TALSamplerTag.ADSR_VCF_SUSTAIN, filterEnvelope.getSustainLevel (), 0, 1);
+                setEnvelopeAttribute (writer, TALSamplerTag.ADSR_VCF_RELEASE, filterEnvelope.getReleaseTime (), 0, maxEnvelopeTime);
 
-                XMLUtils.setDoubleAttribute (programElement, TALSamplerTag.FILTER_ENVELOPE, filterModDepth, 4);
+                writer.attribute (TALSamplerTag.FILTER_ENVELOPE, filterModDepth, 4);
 
                 // TALSamplerTag.FILTER_KEYBOARD not supported
             }
@@ -327,29 +334,26 @@ public class TALSamplerCreator extends AbstractWavCreator<WavChunkSettingsUI>
         if (pitchModDepth > 0)
         {
             final IEnvelope pitchEnvelope = pitchModulator.getSource ();
-            setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_MOD_ATTACK, pitchEnvelope.getAttackTime (), 0, maxEnvelopeTime);
-            setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_MOD_HOLD, pitchEnvelope.getHoldTime (), 0, maxEnvelopeTime);
-            setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_MOD_DECAY, pitchEnvelope.getDecayTime (), 0, maxEnvelopeTime);
-            setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_MOD_SUSTAIN, pitchEnvelope.getSustainLevel (), 0, 1);
-            setEnvelopeAttribute (programElement, TALSamplerTag.ADSR_MOD_RELEASE, pitchEnvelope.getReleaseTime (), 0, maxEnvelopeTime);
+            setEnvelopeAttribute (writer, TALSamplerTag.ADSR_MOD_ATTACK, pitchEnvelope.getAttackTime (), 0, maxEnvelopeTime);
+            setEnvelopeAttribute (writer, TALSamplerTag.ADSR_MOD_HOLD, pitchEnvelope.getHoldTime (), 0, maxEnvelopeTime);
+            setEnvelopeAttribute (writer, TALSamplerTag.ADSR_MOD_DECAY, pitchEnvelope.getDecayTime (), 0, maxEnvelopeTime);
+            setEnvelopeAttribute (writer, TALSamplerTag.ADSR_MOD_SUSTAIN, pitchEnvelope.getSustainLevel (), 0, 1);
+            setEnvelopeAttribute (writer, TALSamplerTag.ADSR_MOD_RELEASE, pitchEnvelope.getReleaseTime (), 0, maxEnvelopeTime);
 
             // Envelope 3 needs to be set to modulate the global pitch
             modulators.add (new TALSamplerModulator (TALSamplerModulator.SOURCE_ID_ENV3, TALSamplerModulator.DEST_ID_MASTER_TUNE, pitchModDepth));
         }
 
-        // Create modulator matrix
         while (modulators.size () != 10)
             modulators.add (new TALSamplerModulator ());
-        final Element modMatrixElement = XMLUtils.addElement (document, programElement, TALSamplerTag.MOD_MATRIX);
-        for (final TALSamplerModulator modulator: modulators)
-            modulator.createModElements (document, modMatrixElement);
+        return modulators;
     }
 
 
-    private static void setEnvelopeAttribute (final Element element, final String attribute, final double value, final double minimum, final double maximum)
+    private static void setEnvelopeAttribute (final StreamingXMLWriter writer, final String attribute, final double value, final double minimum, final double maximum)
     {
         if (value >= 0)
-            XMLUtils.setDoubleAttribute (element, attribute, MathUtils.normalize (value, minimum, maximum), 3);
+            writer.attribute (attribute, MathUtils.normalize (value, minimum, maximum), 3);
     }
 
 
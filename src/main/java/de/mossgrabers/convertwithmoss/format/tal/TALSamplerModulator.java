@@ -4,9 +4,11 @@
 
 package de.mossgrabers.convertwithmoss.format.tal;
 
-import org.w3c.dom.Document;
+import java.io.IOException;
+
 import org.w3c.dom.Element;
 
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.tools.XMLUtils;
 
 
@@ -74,17 +76,18 @@ public class TALSamplerModulator
 
 
     /**
-     * Creates a modulation entry from this modulator.
+     * Writes a modulation entry of this modulator into the modulation element.
      *
-     * @param document The document to which the element belongs
-     * @param modulationElement The modulation element to which to add the entry
+     * @param writer The writer in which the modulation element is open
+     * @throws IOException Could not write the entry
      */
-    public void createModElements (final Document document, final Element modulationElement)
+    public void createModElements (final StreamingXMLWriter writer) throws IOException
     {
-        final Element entryElement = XMLUtils.addElement (document, modulationElement, "entry");
-        XMLUtils.setIntegerAttribute (entryElement, TALSamplerTag.MOD_MATRIX_SOURCE_ID, this.source);
-        XMLUtils.setIntegerAttribute (entryElement, TALSamplerTag.MOD_MATRIX_PARAMETER_ID, this.destination);
-        XMLUtils.setDoubleAttribute (entryElement, TALSamplerTag.MOD_MATRIX_AMOUNT, this.amount, 6);
+        writer.startElement ("entry");
+        writer.attribute (TALSamplerTag.MOD_MATRIX_SOURCE_ID, this.source);
+        writer.attribute (TALSamplerTag.MOD_MATRIX_PARAMETER_ID, this.destination);
+        writer.attribute (TALSamplerTag.MOD_MATRIX_AMOUNT, this.amount, 6);
+        writer.endElement ();
     }
 
 
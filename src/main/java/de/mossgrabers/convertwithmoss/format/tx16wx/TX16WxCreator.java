@@ -5,9 +5,10 @@
 package de.mossgrabers.convertwithmoss.format.tx16wx;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
@@ -20,9 +21,6 @@ import java.util.UUID;
 
 import javax.xml.XMLConstants;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import de.mossgrabers.convertwithmoss.core.IInstrumentSource;
 import de.mossgrabers.convertwithmoss.core.IMultisampleSource;
 import de.mossgrabers.convertwithmoss.core.INotifier;
@@ -41,8 +39,8 @@ import de.mossgrabers.convertwithmoss.core.model.enumeration.FilterType;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.LoopType;
 import de.mossgrabers.convertwithmoss.core.model.enumeration.TriggerType;
 import de.mossgrabers.convertwithmoss.core.settings.WavChunkSettingsUI;
+import de.mossgrabers.convertwithmoss.file.xml.StreamingXMLWriter;
 import de.mossgrabers.tools.FileUtils;
-import de.mossgrabers.tools.XMLUtils;
 
 
 /**
@@ -296,15 +294,16 @@ public class TX16WxCreator extends AbstractWavCreator<WavChunkSettingsUI>
         if (performanceWithResults.performanceFile != null)
         {
             final File multiFile = this.createUniqueFilename (destinationFolder, performanceSource.getName (), "txbank");
-            final Optional<String> xmlCode = this.createBankDocument (performanceWithResults.performanceFile.getName (), performanceWithResults.acceptedInstrumentSources, performanceWithResults.programFiles);
-            if (xmlCode.isEmpty ())
-                return;
-
             this.notifier.log (IDS_NOTIFY_STORING, multiFile.getAbsolutePath ());
 
-            try (final FileWriter writer = new FileWriter (multiFile, StandardCharsets.UTF_8))
+            try (final OutputStream out = new FileOutputStream (multiFile))
             {
-                writer.write (xmlCode.get ());
+                writeBank (out, performanceWithResults.performanceFile.getName (), performanceWithResults.acceptedInstrumentSources, performanceWithResults.programFiles);
+            }
+            catch (final IOException ex)
+            {
+                this.deletePartialFile (multiFile, ex);
+                return;
             }
         }
 
@@ -344,14 +343,15 @@ public class TX16WxCreator extends AbstractWavCreator<WavChunkSettingsUI>
             }
         }
 
-        final Optional<String> xmlCode = this.createPerformanceDocument (performanceSource, acceptedInstrumentSources, programFiles);
-        if (xmlCode.isEmpty ())
-            return new PerformanceCreationResults (Collections.emptyList (), Collections.emptyList (), null);
-
         this.notifier.log (IDS_NOTIFY_STORING, multiFile.getAbsolutePath ());
-        try (final FileWriter writer = new FileWriter (multiFile, StandardCharsets.UTF_8))
+        try (final OutputStream out = new FileOutputStream (multiFile))
         {
-            writer.write (xmlCode.get ());
+            writePerformance (out, performanceSource, acceptedInstrumentSources, programFiles);
+        }
+        catch (final IOException ex)
+        {
+            this.deletePartialFile (multiFile, ex);
+            return new PerformanceCreationResults (Collections.emptyList (), Collections.emptyList (), null);
         }
 
         return new PerformanceCreationResults (programFiles, acceptedInstrumentSources, multiFile);
@@ -369,14 +369,23 @@ public class TX16WxCreator extends AbstractWavCreator<WavChunkSettingsUI>
         final String multisampleName = FileUtils.createSafeFilename (multisampleSource.getName ());
         final String relativeFolderName = multisampleName + FOLDER_POSTFIX;
 
-        final Optional<String> metadata = this.createPresetDocument (relativeFolderName, instrumentSource);
-        if (metadata.isEmpty ())
-            return Optional.empty ();
-
         final File multiFile = this.createUniqueFilename (destinationFolder, multisampleName, "txprog");
         this.notifier.log (IDS_NOTIFY_STORING, multiFile.getAbsolutePath ());
 
-        this.storePreset (relativeFolderName, destinationFolder, multisampleSource, multiFile, metadata.get ());
+        try (final OutputStream out = new FileOutputStream (multiFile))
+        {
+            writeProgram (out, relativeFolderName, instrumentSource);
+        }
+        catch (final IOException ex)
+        {
+            this.deletePartialFile (multiFile, ex);
+            return Optional.empty ();
+        }
+
+        // Store all samples
+        final File sampleFolder = new File (destinationFolder, relativeFolderName);
+        safeCreateDirectory (sampleFolder);
+        this.writeSamples (sampleFolder, multisampleSource);
 
         this.progress.notifyDone ();
 
@@ -385,304 +394,304 @@ public class TX16WxCreator extends AbstractWavCreator<WavChunkSettingsUI>
 
 
     /**
-     * Create a TX16Wx sampler file.
+     * Delete a description file which could not be written completely and log the reason.
      *
-     * @param relativeFolderName A relative path for the samples
-     * @param destinationFolder Where to store the preset file
-     * @param multisampleSource The multi-sample to store in the library
-     * @param multiFile Where to write the file to
-     * @param metadata The metadata description file
-     * @throws IOException Could not store the file
+     * @param file The file to delete
+     * @param ex The reason why the file could not be written
+     * @throws IOException Could not delete the file
      */
-    private void storePreset (final String relativeFolderName, final File destinationFolder, final IMultisampleSource multisampleSource, final File multiFile, final String metadata) throws IOException
+    private void deletePartialFile (final File file, final IOException ex) throws IOException
     {
-        try (final FileWriter writer = new FileWriter (multiFile, StandardCharsets.UTF_8))
-        {
-            writer.write (metadata);
-        }
-
-        // Store all samples
-        final File sampleFolder = new File (destinationFolder, relativeFolderName);
-        safeCreateDirectory (sampleFolder);
-        this.writeSamples (sampleFolder, multisampleSource);
+        Files.deleteIfExists (file.toPath ());
+        this.notifier.logError (ex);
     }
 
 
     /**
-     * Create the text of the TX bank description file.
-     * 
+     * Write the TX bank description file.
+     *
+     * @param out Where to write the XML
      * @param performanceFileName The name of the performance file
      * @param instrumentSources The multi-samples to add to the bank
      * @param programFiles The already created TX16w program files
-     * @return The XML structure
+     * @throws IOException Could not write the XML
      */
-    private Optional<String> createBankDocument (final String performanceFileName, final List<IInstrumentSource> instrumentSources, final List<File> programFiles)
+    private static void writeBank (final OutputStream out, final String performanceFileName, final List<IInstrumentSource> instrumentSources, final List<File> programFiles) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element bankElement = document.createElement (TX16WxTag.BANK);
-        document.appendChild (bankElement);
-        bankElement.setAttribute (TX16WxTag.PROGRAM_CREATED_BY, CREATED_BY_VERSION);
-        bankElement.setAttribute (TX16WxTag.PROGRAM_QUALITY, "Default");
-        bankElement.setAttribute (XSI_SCHEMA_LOCATION, "http://www.tx16wx.com/3.0/ bank");
-        bankElement.setAttribute (XMLNS_TX, "http://www.tx16wx.com/3.0/bank");
-        bankElement.setAttribute (XMLNS_XSI, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
-
-        for (int i = 0; i < instrumentSources.size (); i++)
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (out, true))
         {
-            final IMultisampleSource multisampleSource = instrumentSources.get (i).getMultisampleSource ();
-            final String multisampleName = FileUtils.createSafeFilename (multisampleSource.getName ());
-            final String relativeFolderName = multisampleName + FOLDER_POSTFIX;
-            for (final IGroup group: multisampleSource.getNonEmptyGroups (false))
+            writer.startElement (TX16WxTag.BANK);
+            writer.attribute (TX16WxTag.PROGRAM_CREATED_BY, CREATED_BY_VERSION);
+            writer.attribute (TX16WxTag.PROGRAM_QUALITY, "Default");
+            writer.attribute (XSI_SCHEMA_LOCATION, "http://www.tx16wx.com/3.0/ bank");
+            writer.attribute (XMLNS_TX, "http://www.tx16wx.com/3.0/bank");
+            writer.attribute (XMLNS_XSI, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+
+            for (int i = 0; i < instrumentSources.size (); i++)
             {
-                for (final ISampleZone zone: group.getSampleZones ())
+                final IMultisampleSource multisampleSource = instrumentSources.get (i).getMultisampleSource ();
+                final String multisampleName = FileUtils.createSafeFilename (multisampleSource.getName ());
+                final String relativeFolderName = multisampleName + FOLDER_POSTFIX;
+                for (final IGroup group: multisampleSource.getNonEmptyGroups (false))
                 {
-                    final Element waveElement = XMLUtils.addElement (document, bankElement, TX16WxTag.SAMPLE);
-                    waveElement.setAttribute (TX16WxTag.PATH, AbstractCreator.formatFileName (relativeFolderName, zone.getName () + ".wav"));
+                    for (final ISampleZone zone: group.getSampleZones ())
+                    {
+                        writer.startElement (TX16WxTag.SAMPLE);
+                        writer.attribute (TX16WxTag.PATH, AbstractCreator.formatFileName (relativeFolderName, zone.getName () + ".wav"));
+                        writer.endElement ();
+                    }
                 }
             }
-        }
-        for (int i = 0; i < instrumentSources.size (); i++)
-        {
-            final File programFile = programFiles.get (i);
-            final Element programElement = XMLUtils.addElement (document, bankElement, TX16WxTag.PROGRAM);
-            programElement.setAttribute (TX16WxTag.PATH, programFile.getName ());
-        }
-
-        final Element performanceElement = XMLUtils.addElement (document, bankElement, TX16WxTag.PERFORMANCE);
-        performanceElement.setAttribute (TX16WxTag.PATH, performanceFileName);
-        performanceElement.setAttribute ("tx:active", "true");
+            for (int i = 0; i < instrumentSources.size (); i++)
+            {
+                final File programFile = programFiles.get (i);
+                writer.startElement (TX16WxTag.PROGRAM);
+                writer.attribute (TX16WxTag.PATH, programFile.getName ());
+                writer.endElement ();
+            }
 
-        return this.createXMLString (document);
+            writer.startElement (TX16WxTag.PERFORMANCE);
+            writer.attribute (TX16WxTag.PATH, performanceFileName);
+            writer.attribute ("tx:active", "true");
+            writer.endElement ();
+        }
     }
 
 
     /**
-     * Create the text of the TX program description file.
+     * Write the TX program description file.
      *
+     * @param out Where to write the XML
      * @param folderName The name to use for the sample folder
      * @param instrumentSource The instrument source
-     * @return The XML structure
+     * @throws IOException Could not write the XML
      */
-    private Optional<String> createPresetDocument (final String folderName, final IInstrumentSource instrumentSource)
+    private static void writeProgram (final OutputStream out, final String folderName, final IInstrumentSource instrumentSource) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
         final IMultisampleSource multisampleSource = instrumentSource.getMultisampleSource ();
 
-        final Element programElement = document.createElement (TX16WxTag.PROGRAM);
-        document.appendChild (programElement);
-        programElement.setAttribute (TX16WxTag.PROGRAM_CREATED_BY, CREATED_BY_VERSION);
-        programElement.setAttribute (TX16WxTag.PROGRAM_QUALITY, "Default");
-
-        // No metadata at all, except program name and icon
-        programElement.setAttribute (TX16WxTag.NAME, multisampleSource.getName ());
-        final String category = multisampleSource.getMetadata ().getCategory ();
-        if (category != null)
-        {
-            final String icon = CATEGORY_ICONS.get (category.toLowerCase ());
-            if (icon != null)
-                programElement.setAttribute (TX16WxTag.PROGRAM_ICON, "#" + icon);
-        }
-
-        programElement.setAttribute (XSI_SCHEMA_LOCATION, "http://www.tx16wx.com/3.0/ program");
-        programElement.setAttribute (XMLNS_TX, "http://www.tx16wx.com/3.0/program");
-        programElement.setAttribute (XMLNS_XSI, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
-
-        final List<IGroup> groups = multisampleSource.getNonEmptyGroups (true);
-        final List<Element> groupElements = new ArrayList<> ();
-        final List<Element> soundshapeElements = new ArrayList<> ();
-        // The wave IDs must be unique across the whole program and not only within one group
-        int waveID = 0;
-        for (final IGroup group: groups)
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (out, true))
         {
-            final Element groupElement = document.createElement (TX16WxTag.GROUP);
-            groupElements.add (groupElement);
-            final Element soundshapeElement = document.createElement (TX16WxTag.SOUND_SHAPE);
-            soundshapeElements.add (soundshapeElement);
-            soundshapeElement.setAttribute (TX16WxTag.NAME, "");
-
-            // Link sound-shape to group
-            final String uuid = UUID.randomUUID ().toString ();
-            groupElement.setAttribute (TX16WxTag.SOUND_SHAPE, uuid);
-            soundshapeElement.setAttribute (TX16WxTag.SOUND_SHAPE_ID, uuid);
+            writer.startElement (TX16WxTag.PROGRAM);
+            writer.attribute (TX16WxTag.PROGRAM_CREATED_BY, CREATED_BY_VERSION);
+            writer.attribute (TX16WxTag.PROGRAM_QUALITY, "Default");
+
+            // No metadata at all, except program name and icon
+            writer.attribute (TX16WxTag.NAME, multisampleSource.getName ());
+            final String category = multisampleSource.getMetadata ().getCategory ();
+            if (category != null)
+            {
+                final String icon = CATEGORY_ICONS.get (category.toLowerCase ());
+                if (icon != null)
+                    writer.attribute (TX16WxTag.PROGRAM_ICON, "#" + icon);
+            }
 
-            groupElement.setAttribute (TX16WxTag.NAME, group.getName ());
+            writer.attribute (XSI_SCHEMA_LOCATION, "http://www.tx16wx.com/3.0/ program");
+            writer.attribute (XMLNS_TX, "http://www.tx16wx.com/3.0/program");
+            writer.attribute (XMLNS_XSI, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
 
-            final List<ISampleZone> zones = group.getSampleZones ();
+            // The waves of all groups come first, followed by the global bounds, the sound-shapes
+            // and the groups. The wave IDs must be unique across the whole program and not only
+            // within one group
+            final List<IGroup> groups = multisampleSource.getNonEmptyGroups (true);
+            int waveID = 0;
+            for (final IGroup group: groups)
+                for (final ISampleZone zone: group.getSampleZones ())
+                {
+                    writeWave (writer, folderName, zone, waveID);
+                    waveID++;
+                }
 
-            // The play mode is a group attribute, therefore a one-shot can only be applied if all
-            // zones of the group are one-shots. A release trigger takes precedence since it is
-            // stored in the same attribute
-            if (group.getTrigger () == TriggerType.RELEASE)
-                groupElement.setAttribute (TX16WxTag.GROUP_PLAYMODE, "Release");
-            else if (!zones.isEmpty () && zones.stream ().allMatch (ISampleZone::isOneShot))
-                groupElement.setAttribute (TX16WxTag.GROUP_PLAYMODE, "Oneshot");
-            groupElement.setAttribute (TX16WxTag.OUTPUT, "--");
+            writer.startElement (TX16WxTag.BOUNDS);
+            writer.attribute (TX16WxTag.LO_NOTE, instrumentSource.getClipKeyLow ());
+            writer.attribute (TX16WxTag.HI_NOTE, instrumentSource.getClipKeyHigh ());
+            writer.attribute (TX16WxTag.LO_VEL, 0);
+            writer.attribute (TX16WxTag.HI_VEL, 127);
+            writer.endElement ();
 
-            for (int i = 0; i < zones.size (); i++)
+            // Link sound-shape to group
+            final List<String> soundShapeIDs = new ArrayList<> ();
+            for (final IGroup group: groups)
             {
-                createSample (document, folderName, programElement, groupElement, zones.get (i), waveID);
-                waveID++;
+                final String uuid = UUID.randomUUID ().toString ();
+                soundShapeIDs.add (uuid);
+                writeSoundShape (writer, uuid, group.getSampleZones ());
             }
 
-            addGroupModulationAttributes (document, soundshapeElement, zones);
+            waveID = 0;
+            for (int i = 0; i < groups.size (); i++)
+            {
+                final IGroup group = groups.get (i);
+                writer.startElement (TX16WxTag.GROUP);
+                writer.attribute (TX16WxTag.SOUND_SHAPE, soundShapeIDs.get (i));
+                writer.attribute (TX16WxTag.NAME, group.getName ());
+
+                final List<ISampleZone> zones = group.getSampleZones ();
+
+                // The play mode is a group attribute, therefore a one-shot can only be applied if
+                // all zones of the group are one-shots. A release trigger takes precedence since it
+                // is stored in the same attribute
+                if (group.getTrigger () == TriggerType.RELEASE)
+                    writer.attribute (TX16WxTag.GROUP_PLAYMODE, "Release");
+                else if (!zones.isEmpty () && zones.stream ().allMatch (ISampleZone::isOneShot))
+                    writer.attribute (TX16WxTag.GROUP_PLAYMODE, "Oneshot");
+                writer.attribute (TX16WxTag.OUTPUT, "--");
+
+                for (final ISampleZone zone: zones)
+                {
+                    writeRegion (writer, zone, waveID);
+                    waveID++;
+                }
+                writer.endElement ();
+            }
         }
-
-        final Element globalBoundsElement = XMLUtils.addElement (document, programElement, TX16WxTag.BOUNDS);
-        XMLUtils.setIntegerAttribute (globalBoundsElement, TX16WxTag.LO_NOTE, instrumentSource.getClipKeyLow ());
-        XMLUtils.setIntegerAttribute (globalBoundsElement, TX16WxTag.HI_NOTE, instrumentSource.getClipKeyHigh ());
-        XMLUtils.setIntegerAttribute (globalBoundsElement, TX16WxTag.LO_VEL, 0);
-        XMLUtils.setIntegerAttribute (globalBoundsElement, TX16WxTag.HI_VEL, 127);
-
-        for (final Element soundshapeElement: soundshapeElements)
-            programElement.appendChild (soundshapeElement);
-        for (final Element groupElement: groupElements)
-            programElement.appendChild (groupElement);
-
-        return this.createXMLString (document);
     }
 
 
     /**
-     * Create the text of the TX performance description file.
+     * Write the TX performance description file.
      *
+     * @param out Where to write the XML
      * @param performanceSource The performance source
      * @param acceptedInstrumentSources Instrument sources which were successfully stored as
      *            programs
      * @param programFiles The files of the programs
-     * @return The XML structure
+     * @throws IOException Could not write the XML
      */
-    private Optional<String> createPerformanceDocument (final IPerformanceSource performanceSource, final List<IInstrumentSource> acceptedInstrumentSources, final List<File> programFiles)
+    private static void writePerformance (final OutputStream out, final IPerformanceSource performanceSource, final List<IInstrumentSource> acceptedInstrumentSources, final List<File> programFiles) throws IOException
     {
-        final Optional<Document> optionalDocument = this.createXMLDocument ();
-        if (optionalDocument.isEmpty ())
-            return Optional.empty ();
-        final Document document = optionalDocument.get ();
-        document.setXmlStandalone (true);
-
-        final Element performanceElement = document.createElement (TX16WxTag.PERFORMANCE);
-        document.appendChild (performanceElement);
-        performanceElement.setAttribute (TX16WxTag.PROGRAM_CREATED_BY, CREATED_BY_VERSION);
-        performanceElement.setAttribute (TX16WxTag.NAME, performanceSource.getName ());
-        performanceElement.setAttribute (XSI_SCHEMA_LOCATION, "http://www.tx16wx.com/3.0/ performance");
-        performanceElement.setAttribute (XMLNS_TX, "http://www.tx16wx.com/3.0/performance");
-        performanceElement.setAttribute (XMLNS_XSI, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
-
-        for (int i = 0; i < programFiles.size (); i++)
+        try (final StreamingXMLWriter writer = new StreamingXMLWriter (out, true))
         {
-            final Element slotElement = XMLUtils.addElement (document, performanceElement, TX16WxTag.SLOT);
-            slotElement.setAttribute (TX16WxTag.NAME, "Ch" + (i + 1));
-            slotElement.setAttribute (TX16WxTag.PROGRAM, programFiles.get (i).getName ());
-            final IInstrumentSource instrumentSource = acceptedInstrumentSources.get (i);
-            int midiChannel = instrumentSource.getMidiChannel ();
-            // No real meaningful mapping for Off-state, set it to channel 16
-            if (midiChannel == IInstrumentSource.MIDI_CHANNEL_OFF)
-                midiChannel = 15;
-            slotElement.setAttribute (TX16WxTag.MIDI_CHANNEL, midiChannel == IInstrumentSource.MIDI_CHANNEL_OMNI ? "Omni" : Integer.toString (midiChannel + 1));
-            slotElement.setAttribute (TX16WxTag.OUTPUT, "Out 1");
-
-            final Element volumeElement = XMLUtils.addElement (document, slotElement, TX16WxTag.SLOT_VOLUME);
-            volumeElement.setAttribute (TX16WxTag.VALUE, String.format (Locale.US, "%.2f dB", Double.valueOf (instrumentSource.getGain ())));
-            final Element panElement = XMLUtils.addElement (document, slotElement, TX16WxTag.SLOT_PANNING);
-            panElement.setAttribute (TX16WxTag.VALUE, Math.round (instrumentSource.getPanning () * 100) + "%");
-            final Element transposeElement = XMLUtils.addElement (document, slotElement, TX16WxTag.SLOT_TRANSPOSE);
-            XMLUtils.setIntegerAttribute (transposeElement, TX16WxTag.VALUE, instrumentSource.getTranspose ());
-            final Element detuneElement = XMLUtils.addElement (document, slotElement, TX16WxTag.SLOT_DETUNE);
-            XMLUtils.setIntegerAttribute (detuneElement, TX16WxTag.VALUE, instrumentSource.getTuning ());
+            writer.startElement (TX16WxTag.PERFORMANCE);
+            writer.attribute (TX16WxTag.PROGRAM_CREATED_BY, CREATED_BY_VERSION);
+            writer.attribute (TX16WxTag.NAME, performanceSource.getName ());
+            writer.attribute (XSI_SCHEMA_LOCATION, "http://www.tx16wx.com/3.0/ performance");
+            writer.attribute (XMLNS_TX, "http://www.tx16wx.com/3.0/performance");
+            writer.attribute (XMLNS_XSI, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+
+            for (int i = 0; i < programFiles.size (); i++)
+            {
+                writer.startElement (TX16WxTag.SLOT);
+                writer.attribute (TX16WxTag.NAME, "Ch" + (i + 1));
+                writer.attribute (TX16WxTag.PROGRAM, programFiles.get (i).getName ());
+                final IInstrumentSource instrumentSource = acceptedInstrumentSources.get (i);
+                int midiChannel = instrumentSource.getMidiChannel ();
+                // No real meaningful mapping for Off-state, set it to channel 16
+                if (midiChannel == IInstrumentSource.MIDI_CHANNEL_OFF)
+                    midiChannel = 15;
+                writer.attribute (TX16WxTag.MIDI_CHANNEL, midiChannel == IInstrumentSource.MIDI_CHANNEL_OMNI ? "Omni" : Integer.toString (midiChannel + 1));
+                writer.attribute (TX16WxTag.OUTPUT, "Out 1");
+
+                writeValueElement (writer, TX16WxTag.SLOT_VOLUME, String.format (Locale.US, "%.2f dB", Double.valueOf (instrumentSource.getGain ())));
+                writeValueElement (writer, TX16WxTag.SLOT_PANNING, Math.round (instrumentSource.getPanning () * 100) + "%");
+                writeValueElement (writer, TX16WxTag.SLOT_TRANSPOSE, Integer.toString (instrumentSource.getTranspose ()));
+                writeValueElement (writer, TX16WxTag.SLOT_DETUNE, Integer.toString (instrumentSource.getTuning ()));
+                writer.endElement ();
+            }
         }
+    }
+
 
-        return this.createXMLString (document);
+    private static void writeValueElement (final StreamingXMLWriter writer, final String name, final String value) throws IOException
+    {
+        writer.startElement (name);
+        writer.attribute (TX16WxTag.VALUE, value);
+        writer.endElement ();
     }
 
 
     /**
-     * Creates the metadata for one sample.
+     * Writes the wave description of one sample.
      *
-     * @param document The XML document
+     * @param writer Where to write the XML
      * @param folderName The name to use for the sample folder
-     * @param programElement The program element
-     * @param groupElement The element where to add the sample information
      * @param zone Where to get the sample info from
      * @param zoneIndex The index of the zone
+     * @throws IOException Could not write the XML
      */
-    private static void createSample (final Document document, final String folderName, final Element programElement, final Element groupElement, final ISampleZone zone, final int zoneIndex)
+    private static void writeWave (final StreamingXMLWriter writer, final String folderName, final ISampleZone zone, final int zoneIndex) throws IOException
     {
-        final int keyLow = zone.getKeyLow ();
-        final int keyHigh = zone.getKeyHigh ();
-        final int velocityLow = zone.getVelocityLow ();
-        final int velocityHigh = zone.getVelocityHigh ();
-        final int noteCrossfadeLow = zone.getNoteCrossfadeLow ();
-        final int noteCrossfadeHigh = zone.getNoteCrossfadeHigh ();
-        final int velocityCrossfadeLow = zone.getVelocityCrossfadeLow ();
-        final int velocityCrossfadeHigh = zone.getVelocityCrossfadeHigh ();
-
-        // The wave description
-        final Element waveElement = XMLUtils.addElement (document, programElement, TX16WxTag.SAMPLE);
-        waveElement.setAttribute (TX16WxTag.PATH, AbstractCreator.formatFileName (folderName, zone.getName () + ".wav"));
-        XMLUtils.setIntegerAttribute (waveElement, TX16WxTag.SAMPLE_ID, zoneIndex);
-        XMLUtils.setIntegerAttribute (waveElement, TX16WxTag.START, Math.max (0, zone.getStart ()));
+        writer.startElement (TX16WxTag.SAMPLE);
+        writer.attribute (TX16WxTag.PATH, AbstractCreator.formatFileName (folderName, zone.getName () + ".wav"));
+        writer.attribute (TX16WxTag.SAMPLE_ID, zoneIndex);
+        writer.attribute (TX16WxTag.START, Math.max (0, zone.getStart ()));
         final int stop = zone.getStop ();
         if (stop >= 0)
-            XMLUtils.setIntegerAttribute (waveElement, TX16WxTag.END, stop);
-        XMLUtils.setIntegerAttribute (waveElement, TX16WxTag.ROOT, limitToDefault (zone.getKeyRoot (), keyLow));
+            writer.attribute (TX16WxTag.END, stop);
+        writer.attribute (TX16WxTag.ROOT, limitToDefault (zone.getKeyRoot (), zone.getKeyLow ()));
 
         // The loop info of the wave description
-        final Element loopElement = XMLUtils.addElement (document, waveElement, TX16WxTag.SAMPLE_LOOP);
+        writer.startElement (TX16WxTag.SAMPLE_LOOP);
         final List<ISampleLoop> loops = zone.getLoops ();
         if (loops.isEmpty ())
         {
-            loopElement.setAttribute (TX16WxTag.LOOP_MODE, "None");
-            loopElement.setAttribute (TX16WxTag.LOOP_START, "0");
-            loopElement.setAttribute (TX16WxTag.LOOP_END, "0");
+            writer.attribute (TX16WxTag.LOOP_MODE, "None");
+            writer.attribute (TX16WxTag.LOOP_START, "0");
+            writer.attribute (TX16WxTag.LOOP_END, "0");
         }
         else
         {
             final ISampleLoop loop = loops.get (0);
-            loopElement.setAttribute (TX16WxTag.LOOP_MODE, LOOP_MODES.get (loop.getType ()));
-            loopElement.setAttribute (TX16WxTag.NAME, "1");
-            XMLUtils.setIntegerAttribute (loopElement, TX16WxTag.LOOP_START, loop.getStart ());
-            XMLUtils.setIntegerAttribute (loopElement, TX16WxTag.LOOP_END, loop.getEnd ());
-            XMLUtils.setIntegerAttribute (loopElement, TX16WxTag.LOOP_CROSSFADE, loop.getCrossfadeInSamples ());
+            writer.attribute (TX16WxTag.LOOP_MODE, LOOP_MODES.get (loop.getType ()));
+            writer.attribute (TX16WxTag.NAME, "1");
+            writer.attribute (TX16WxTag.LOOP_START, loop.getStart ());
+            writer.attribute (TX16WxTag.LOOP_END, loop.getEnd ());
+            writer.attribute (TX16WxTag.LOOP_CROSSFADE, loop.getCrossfadeInSamples ());
         }
+        writer.endElement ();
+
+        writer.endElement ();
+    }
 
-        // The region containing all other info
-        final Element regionElement = XMLUtils.addElement (document, groupElement, TX16WxTag.REGION);
-        XMLUtils.setIntegerAttribute (regionElement, TX16WxTag.SAMPLE, zoneIndex);
-        regionElement.setAttribute (TX16WxTag.ATTENUATION, String.format (Locale.US, "%.2f dB", Double.valueOf (zone.getGain ())));
-        XMLUtils.setDoubleAttribute (regionElement, TX16WxTag.PANNING, zone.getPanning (), 2);
-        regionElement.setAttribute (TX16WxTag.SAMPLE_LOOP, "0");
-        XMLUtils.setBooleanAttribute (regionElement, TX16WxTag.REVERSE, zone.isReversed ());
+
+    /**
+     * Writes the region of one sample which contains all other info.
+     *
+     * @param writer Where to write the XML
+     * @param zone Where to get the sample info from
+     * @param zoneIndex The index of the zone
+     * @throws IOException Could not write the XML
+     */
+    private static void writeRegion (final StreamingXMLWriter writer, final ISampleZone zone, final int zoneIndex) throws IOException
+    {
+        final int keyLow = zone.getKeyLow ();
+        final int keyHigh = zone.getKeyHigh ();
+        final int velocityLow = zone.getVelocityLow ();
+        final int velocityHigh = zone.getVelocityHigh ();
+        final int noteCrossfadeLow = zone.getNoteCrossfadeLow ();
+        final int noteCrossfadeHigh = zone.getNoteCrossfadeHigh ();
+        final int velocityCrossfadeLow = zone.getVelocityCrossfadeLow ();
+        final int velocityCrossfadeHigh = zone.getVelocityCrossfadeHigh ();
+
+        writer.startElement (TX16WxTag.REGION);
+        writer.attribute (TX16WxTag.SAMPLE, zoneIndex);
+        writer.attribute (TX16WxTag.ATTENUATION, String.format (Locale.US, "%.2f dB", Double.valueOf (zone.getGain ())));
+        writer.attribute (TX16WxTag.PANNING, zone.getPanning (), 2);
+        writer.attribute (TX16WxTag.SAMPLE_LOOP, "0");
+        writer.attribute (TX16WxTag.REVERSE, zone.isReversed ());
 
         // No key tracking
 
         // -----------------------------------------------------------
         // Key & Velocity attributes
 
-        final Element boundsElement = XMLUtils.addElement (document, regionElement, TX16WxTag.BOUNDS);
-        final Element fadesElement = XMLUtils.addElement (document, regionElement, TX16WxTag.FADE_BOUNDS);
-
-        XMLUtils.setIntegerAttribute (boundsElement, TX16WxTag.LO_NOTE, limitToDefault (keyLow, 0));
-        XMLUtils.setIntegerAttribute (boundsElement, TX16WxTag.HI_NOTE, limitToDefault (keyHigh, 127));
-        XMLUtils.setIntegerAttribute (boundsElement, TX16WxTag.LO_VEL, limitToDefault (velocityLow, 1));
-        XMLUtils.setIntegerAttribute (boundsElement, TX16WxTag.HI_VEL, limitToDefault (velocityHigh, 127));
+        writer.startElement (TX16WxTag.BOUNDS);
+        writer.attribute (TX16WxTag.LO_NOTE, limitToDefault (keyLow, 0));
+        writer.attribute (TX16WxTag.HI_NOTE, limitToDefault (keyHigh, 127));
+        writer.attribute (TX16WxTag.LO_VEL, limitToDefault (velocityLow, 1));
+        writer.attribute (TX16WxTag.HI_VEL, limitToDefault (velocityHigh, 127));
+        writer.endElement ();
 
+        writer.startElement (TX16WxTag.FADE_BOUNDS);
         if (noteCrossfadeLow > 0)
-            XMLUtils.setIntegerAttribute (fadesElement, TX16WxTag.LO_NOTE, Math.max (0, keyLow - noteCrossfadeLow));
+            writer.attribute (TX16WxTag.LO_NOTE, Math.max (0, keyLow - noteCrossfadeLow));
         if (noteCrossfadeHigh > 0)
-            XMLUtils.setIntegerAttribute (fadesElement, TX16WxTag.HI_NOTE, Math.min (127, keyHigh + noteCrossfadeHigh));
+            writer.attribute (TX16WxTag.HI_NOTE, Math.min (127, keyHigh + noteCrossfadeHigh));
         if (velocityCrossfadeLow > 0)
-            XMLUtils.setIntegerAttribute (fadesElement, TX16WxTag.LO_VEL, Math.max (0, velocityLow - velocityCrossfadeLow));
+            writer.attribute (TX16WxTag.LO_VEL, Math.max (0, velocityLow - velocityCrossfadeLow));
         if (velocityCrossfadeHigh > 0)
-            XMLUtils.setIntegerAttribute (fadesElement, TX16WxTag.HI_VEL, Math.min (127, velocityHigh + velocityCrossfadeHigh));
+            writer.attribute (TX16WxTag.HI_VEL, Math.min (127, velocityHigh + velocityCrossfadeHigh));
+        writer.endElement ();
 
         final double tune = zone.getTuning ();
         if (tune != 0)
@@ -701,148 +710,185 @@ public class TX16WxCreator extends AbstractWavCreator<WavChunkSettingsUI>
                 fineCents = fineCents - 100;
             }
 
-            final Element soundOffsetsElement = XMLUtils.addElement (document, regionElement, TX16WxTag.SOUND_OFFSETS);
-            XMLUtils.setIntegerAttribute (soundOffsetsElement, TX16WxTag.TUNING_COARSE, transpose);
-            XMLUtils.setIntegerAttribute (soundOffsetsElement, TX16WxTag.TUNING_FINE, fineCents);
+            writer.startElement (TX16WxTag.SOUND_OFFSETS);
+            writer.attribute (TX16WxTag.TUNING_COARSE, transpose);
+            writer.attribute (TX16WxTag.TUNING_FINE, fineCents);
+            writer.endElement ();
         }
+
+        writer.endElement ();
     }
 
 
-    private static void addGroupModulationAttributes (final Document document, final Element soundshapeElement, final List<ISampleZone> zones)
+    private static void writeSoundShape (final StreamingXMLWriter writer, final String soundShapeID, final List<ISampleZone> zones) throws IOException
     {
-        final Element modulationElement = document.createElement (TX16WxTag.MODULATION);
-        Element filterElement = null;
+        writer.startElement (TX16WxTag.SOUND_SHAPE);
+        writer.attribute (TX16WxTag.NAME, "");
+        writer.attribute (TX16WxTag.SOUND_SHAPE_ID, soundShapeID);
 
         final ISampleZone zone = zones.isEmpty () ? null : zones.get (0);
-        if (zone != null)
+        if (zone == null)
         {
-            // Add amplitude envelope
-            final IEnvelope amplitudeEnvelope = zone.getAmplitudeEnvelopeModulator ().getSource ();
-            final Element aegElement = XMLUtils.addElement (document, soundshapeElement, TX16WxTag.AMP_ENVELOPE);
-
-            // The whole group can be delayed which is basically the same as the amplitude delay
-            soundshapeElement.setAttribute (TX16WxTag.GROUP_DELAY, formatTime (amplitudeEnvelope.getDelayTime ()));
-
-            // -----------------------------------------------------------
-            // Amplitude
-
-            final double sustain = amplitudeEnvelope.getSustainLevel ();
-            final String sustainLevel = sustain < 0 ? "1" : Double.toString (Math.clamp (sustain, 0, 1));
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_ATTACK, formatTime (amplitudeEnvelope.getAttackTime ()));
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_LEVEL1, "0 dB");
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_DECAY1, formatTime (amplitudeEnvelope.getHoldTime ()));
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_LEVEL2, "0 dB");
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_DECAY2, formatTime (amplitudeEnvelope.getDecayTime ()));
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_SUSTAIN, sustainLevel);
-            aegElement.setAttribute (TX16WxTag.AMP_ENV_RELEASE, formatTime (amplitudeEnvelope.getReleaseTime ()));
-            XMLUtils.setDoubleAttribute (aegElement, TX16WxTag.AMP_ENV_ATTACK_SHAPE, amplitudeEnvelope.getAttackSlope (), 6);
-            XMLUtils.setDoubleAttribute (aegElement, TX16WxTag.AMP_ENV_DECAY2_SHAPE, amplitudeEnvelope.getDecaySlope (), 6);
-            XMLUtils.setDoubleAttribute (aegElement, TX16WxTag.AMP_ENV_RELEASE_SHAPE, amplitudeEnvelope.getReleaseSlope (), 6);
-
-            final double ampVelocityDepth = zone.getAmplitudeVelocityModulator ().getDepth ();
-            if (ampVelocityDepth != 0)
-                XMLUtils.setDoubleAttribute (soundshapeElement, TX16WxTag.AMP_VELOCITY, ampVelocityDepth, 6);
-
-            // Pitch-bend
-            int pitchbend = Math.abs (zone.getBendUp ());
-            pitchbend = pitchbend <= 0 ? 200 : pitchbend;
-            addModulationEntry (document, modulationElement, "Pitchbend", "Pitch", pitchbend + "Ct");
-
-            // -----------------------------------------------------------
-            // Filter
-
-            final Optional<IFilter> optFilter = zone.getFilter ();
-            if (optFilter.isPresent ())
-            {
-                final IFilter filter = optFilter.get ();
-                filterElement = document.createElement (TX16WxTag.FILTER1);
-
-                final String filterType = FILTER_TYPES.get (filter.getType ());
-                if (filterType == null)
-                    return;
-                filterElement.setAttribute (TX16WxTag.FILTER_TYPE, filterType);
-                filterElement.setAttribute (TX16WxTag.FILTER_CUTOFF, filter.getCutoff () + "Hz");
-                filterElement.setAttribute (TX16WxTag.FILTER_RESONANCE, Math.round (filter.getResonance () * 100) + "%");
-
-                final String slopeValue = FILTER_SLOPES.get (Integer.valueOf (filter.getPoles ()));
-                if (slopeValue != null)
-                    filterElement.setAttribute (TX16WxTag.FILTER_SLOPE, slopeValue);
-
-                final IEnvelopeModulator cutoffModulator = filter.getCutoffEnvelopeModulator ();
-                final double filterModDepth = cutoffModulator.getDepth ();
-                if (filterModDepth != 0)
-                {
-                    final Element envElement = XMLUtils.addElement (document, soundshapeElement, TX16WxTag.ENVELOPE_1);
-                    final IEnvelope filterEnvelope = cutoffModulator.getSource ();
-                    // An envelope starts and ends at zero, and level 1 is the level which is
-                    // reached
-                    // at the end of the attack phase - the model has no explicit peak level,
-                    // therefore fall back to the full level there
-                    envElement.setAttribute (TX16WxTag.ENV_LEVEL0, formatLevel (filterEnvelope.getStartLevel (), 0));
-                    envElement.setAttribute (TX16WxTag.ENV_TIME1, formatTime (filterEnvelope.getAttackTime ()));
-                    envElement.setAttribute (TX16WxTag.ENV_LEVEL1, formatLevel (filterEnvelope.getHoldLevel (), 1.0));
-                    envElement.setAttribute (TX16WxTag.ENV_TIME2, formatTime (filterEnvelope.getDecayTime ()));
-                    envElement.setAttribute (TX16WxTag.ENV_LEVEL2, formatLevel (filterEnvelope.getSustainLevel (), 1.0));
-                    envElement.setAttribute (TX16WxTag.ENV_TIME3, formatTime (filterEnvelope.getReleaseTime ()));
-                    envElement.setAttribute (TX16WxTag.ENV_LEVEL3, formatLevel (filterEnvelope.getEndLevel (), 0));
-                    XMLUtils.setDoubleAttribute (envElement, TX16WxTag.ENV_SHAPE1, filterEnvelope.getAttackSlope (), 6);
-                    XMLUtils.setDoubleAttribute (envElement, TX16WxTag.ENV_SHAPE2, filterEnvelope.getDecaySlope (), 6);
-                    XMLUtils.setDoubleAttribute (envElement, TX16WxTag.ENV_SHAPE3, filterEnvelope.getReleaseSlope (), 6);
-                    addModulationEntry (document, modulationElement, "ENV1", FILTER_1_FREQ, (int) Math.round (filterModDepth * IEnvelope.MAX_ENVELOPE_DEPTH) + "Ct");
-                }
+            writer.textElement (TX16WxTag.MODULATION, null);
+            writer.endElement ();
+            return;
+        }
 
-                final double filterVelocityDepth = filter.getCutoffVelocityModulator ().getDepth ();
-                if (filterVelocityDepth != 0)
-                    addModulationEntry (document, modulationElement, "Vel", FILTER_1_FREQ, (int) Math.round (filterVelocityDepth * IEnvelope.MAX_ENVELOPE_DEPTH) + "Ct");
-                final double cutoffKeyTracking = filter.getCutoffKeyTracking ();
-                if (cutoffKeyTracking != 0)
-                    addModulationEntry (document, modulationElement, "Key", FILTER_1_FREQ, (int) Math.round (cutoffKeyTracking * 24000) + "Ct");
-            }
+        // The whole group can be delayed which is basically the same as the amplitude delay
+        final IEnvelope amplitudeEnvelope = zone.getAmplitudeEnvelopeModulator ().getSource ();
+        writer.attribute (TX16WxTag.GROUP_DELAY, formatTime (amplitudeEnvelope.getDelayTime ()));
+        final double ampVelocityDepth = zone.getAmplitudeVelocityModulator ().getDepth ();
+        if (ampVelocityDepth != 0)
+            writer.attribute (TX16WxTag.AMP_VELOCITY, ampVelocityDepth, 6);
+
+        // -----------------------------------------------------------
+        // Amplitude
+
+        final double sustain = amplitudeEnvelope.getSustainLevel ();
+        final String sustainLevel = sustain < 0 ? "1" : Double.toString (Math.clamp (sustain, 0, 1));
+        writer.startElement (TX16WxTag.AMP_ENVELOPE);
+        writer.attribute (TX16WxTag.AMP_ENV_ATTACK, formatTime (amplitudeEnvelope.getAttackTime ()));
+        writer.attribute (TX16WxTag.AMP_ENV_LEVEL1, "0 dB");
+        writer.attribute (TX16WxTag.AMP_ENV_DECAY1, formatTime (amplitudeEnvelope.getHoldTime ()));
+        writer.attribute (TX16WxTag.AMP_ENV_LEVEL2, "0 dB");
+        writer.attribute (TX16WxTag.AMP_ENV_DECAY2, formatTime (amplitudeEnvelope.getDecayTime ()));
+        writer.attribute (TX16WxTag.AMP_ENV_SUSTAIN, sustainLevel);
+        writer.attribute (TX16WxTag.AMP_ENV_RELEASE, formatTime (amplitudeEnvelope.getReleaseTime ()));
+        writer.attribute (TX16WxTag.AMP_ENV_ATTACK_SHAPE, amplitudeEnvelope.getAttackSlope (), 6);
+        writer.attribute (TX16WxTag.AMP_ENV_DECAY2_SHAPE, amplitudeEnvelope.getDecaySlope (), 6);
+        writer.attribute (TX16WxTag.AMP_ENV_RELEASE_SHAPE, amplitudeEnvelope.getReleaseSlope (), 6);
+        writer.endElement ();
+
+        // Pitch-bend
+        final List<String []> modulationEntries = new ArrayList<> ();
+        int pitchbend = Math.abs (zone.getBendUp ());
+        pitchbend = pitchbend <= 0 ? 200 : pitchbend;
+        addModulationEntry (modulationEntries, "Pitchbend", "Pitch", pitchbend + "Ct");
+
+        // -----------------------------------------------------------
+        // Filter
 
-            // -----------------------------------------------------------
-            // Pitch
+        final Optional<IFilter> optFilter = zone.getFilter ();
+        final IFilter filter = optFilter.isPresent () ? optFilter.get () : null;
+        String filterType = null;
+        if (filter != null)
+        {
+            filterType = FILTER_TYPES.get (filter.getType ());
+            // Neither the filter nor any modulation can be written for an unsupported filter type
+            if (filterType == null)
+            {
+                writer.endElement ();
+                return;
+            }
 
-            final IEnvelopeModulator pitchModulator = zone.getPitchEnvelopeModulator ();
-            final double pitchModDepth = pitchModulator.getDepth ();
-            if (pitchModDepth != 0)
+            final IEnvelopeModulator cutoffModulator = filter.getCutoffEnvelopeModulator ();
+            final double filterModDepth = cutoffModulator.getDepth ();
+            if (filterModDepth != 0)
             {
-                final Element envElement = XMLUtils.addElement (document, soundshapeElement, TX16WxTag.ENVELOPE_2);
-                final IEnvelope pitchEnvelope = pitchModulator.getSource ();
-                envElement.setAttribute (TX16WxTag.ENV_LEVEL0, formatLevel (pitchEnvelope.getStartLevel (), 0));
-                envElement.setAttribute (TX16WxTag.ENV_LEVEL1, formatLevel (pitchEnvelope.getSustainLevel (), 1.0));
-                envElement.setAttribute (TX16WxTag.ENV_LEVEL2, formatLevel (pitchEnvelope.getSustainLevel (), 1.0));
-                envElement.setAttribute (TX16WxTag.ENV_LEVEL3, formatLevel (pitchEnvelope.getEndLevel (), 0));
-
-                envElement.setAttribute (TX16WxTag.ENV_TIME1, formatTime (pitchEnvelope.getDecayTime ()));
-                envElement.setAttribute (TX16WxTag.ENV_TIME2, formatTime (0));
-                envElement.setAttribute (TX16WxTag.ENV_TIME3, formatTime (pitchEnvelope.getReleaseTime ()));
-
-                XMLUtils.setDoubleAttribute (envElement, TX16WxTag.ENV_SHAPE1, pitchEnvelope.getAttackSlope (), 6);
-                XMLUtils.setDoubleAttribute (envElement, TX16WxTag.ENV_SHAPE2, pitchEnvelope.getDecaySlope (), 6);
-                XMLUtils.setDoubleAttribute (envElement, TX16WxTag.ENV_SHAPE3, pitchEnvelope.getReleaseSlope (), 6);
-                addModulationEntry (document, modulationElement, "ENV2", "Pitch", (int) Math.round (pitchModDepth * IEnvelope.MAX_ENVELOPE_DEPTH) + "Ct");
+                final IEnvelope filterEnvelope = cutoffModulator.getSource ();
+                writer.startElement (TX16WxTag.ENVELOPE_1);
+                // An envelope starts and ends at zero, and level 1 is the level which is
+                // reached
+                // at the end of the attack phase - the model has no explicit peak level,
+                // therefore fall back to the full level there
+                writer.attribute (TX16WxTag.ENV_LEVEL0, formatLevel (filterEnvelope.getStartLevel (), 0));
+                writer.attribute (TX16WxTag.ENV_TIME1, formatTime (filterEnvelope.getAttackTime ()));
+                writer.attribute (TX16WxTag.ENV_LEVEL1, formatLevel (filterEnvelope.getHoldLevel (), 1.0));
+                writer.attribute (TX16WxTag.ENV_TIME2, formatTime (filterEnvelope.getDecayTime ()));
+                writer.attribute (TX16WxTag.ENV_LEVEL2, formatLevel (filterEnvelope.getSustainLevel (), 1.0));
+                writer.attribute (TX16WxTag.ENV_TIME3, formatTime (filterEnvelope.getReleaseTime ()));
+                writer.attribute (TX16WxTag.ENV_LEVEL3, formatLevel (filterEnvelope.getEndLevel (), 0));
+                writer.attribute (TX16WxTag.ENV_SHAPE1, filterEnvelope.getAttackSlope (), 6);
+                writer.attribute (TX16WxTag.ENV_SHAPE2, filterEnvelope.getDecaySlope (), 6);
+                writer.attribute (TX16WxTag.ENV_SHAPE3, filterEnvelope.getReleaseSlope (), 6);
+                writer.endElement ();
+                addModulationEntry (modulationEntries, "ENV1", FILTER_1_FREQ, (int) Math.round (filterModDepth * IEnvelope.MAX_ENVELOPE_DEPTH) + "Ct");
             }
+
+            final double filterVelocityDepth = filter.getCutoffVelocityModulator ().getDepth ();
+            if (filterVelocityDepth != 0)
+                addModulationEntry (modulationEntries, "Vel", FILTER_1_FREQ, (int) Math.round (filterVelocityDepth * IEnvelope.MAX_ENVELOPE_DEPTH) + "Ct");
+            final double cutoffKeyTracking = filter.getCutoffKeyTracking ();
+            if (cutoffKeyTracking != 0)
+                addModulationEntry (modulationEntries, "Key", FILTER_1_FREQ, (int) Math.round (cutoffKeyTracking * 24000) + "Ct");
+        }
+
+        // -----------------------------------------------------------
+        // Pitch
+
+        final IEnvelopeModulator pitchModulator = zone.getPitchEnvelopeModulator ();
+        final double pitchModDepth = pitchModulator.getDepth ();
+        if (pitchModDepth != 0)
+        {
+            final IEnvelope pitchEnvelope = pitchModulator.getSource ();
+            writer.startElement (TX16WxTag.ENVELOPE_2);
+            writer.attribute (TX16WxTag.ENV_LEVEL0, formatLevel (pitchEnvelope.getStartLevel (), 0));
+            writer.attribute (TX16WxTag.ENV_LEVEL1, formatLevel (pitchEnvelope.getSustainLevel (), 1.0));
+            writer.attribute (TX16WxTag.ENV_LEVEL2, formatLevel (pitchEnvelope.getSustainLevel (), 1.0));
+            writer.attribute (TX16WxTag.ENV_LEVEL3, formatLevel (pitchEnvelope.getEndLevel (), 0));
+
+            writer.attribute (TX16WxTag.ENV_TIME1, formatTime (pitchEnvelope.getDecayTime ()));
+            writer.attribute (TX16WxTag.ENV_TIME2, formatTime (0));
+            writer.attribute (TX16WxTag.ENV_TIME3, formatTime (pitchEnvelope.getReleaseTime ()));
+
+            writer.attribute (TX16WxTag.ENV_SHAPE1, pitchEnvelope.getAttackSlope (), 6);
+            writer.attribute (TX16WxTag.ENV_SHAPE2, pitchEnvelope.getDecaySlope (), 6);
+            writer.attribute (TX16WxTag.ENV_SHAPE3, pitchEnvelope.getReleaseSlope (), 6);
+            writer.endElement ();
+            addModulationEntry (modulationEntries, "ENV2", "Pitch", (int) Math.round (pitchModDepth * IEnvelope.MAX_ENVELOPE_DEPTH) + "Ct");
+        }
+
+        // The filter and the modulation need to come last to fulfill the required order
+        if (filter != null)
+        {
+            writer.startElement (TX16WxTag.FILTER1);
+            writer.attribute (TX16WxTag.FILTER_TYPE, filterType);
+            writer.attribute (TX16WxTag.FILTER_CUTOFF, filter.getCutoff () + "Hz");
+            writer.attribute (TX16WxTag.FILTER_RESONANCE, Math.round (filter.getResonance () * 100) + "%");
+            final String slopeValue = FILTER_SLOPES.get (Integer.valueOf (filter.getPoles ()));
+            if (slopeValue != null)
+                writer.attribute (TX16WxTag.FILTER_SLOPE, slopeValue);
+            writer.endElement ();
         }
 
-        // Needs to be added here to fulfill the required order
-        if (filterElement != null)
-            soundshapeElement.appendChild (filterElement);
-        soundshapeElement.appendChild (modulationElement);
+        writer.startElement (TX16WxTag.MODULATION);
+        for (final String [] modulationEntry: modulationEntries)
+            writeModulationEntry (writer, modulationEntry[0], modulationEntry[1], modulationEntry[2]);
+        writer.endElement ();
+
+        writer.endElement ();
+    }
+
+
+    private static void addModulationEntry (final List<String []> modulationEntries, final String source, final String destination, final String amount)
+    {
+        modulationEntries.add (new String []
+        {
+            source,
+            destination,
+            amount
+        });
+    }
+
+
+    private static void writeModulationEntry (final StreamingXMLWriter writer, final String source, final String destination, final String amount) throws IOException
+    {
+        writer.startElement (TX16WxTag.MODULATION_ENTRY);
+        writer.attribute (TX16WxTag.MODULATION_SOURCE, source);
+        writer.attribute (TX16WxTag.MODULATION_DESTINATION, destination);
+        writer.attribute (TX16WxTag.MODULATION_AMOUNT, amount);
+        writeCurveElement (writer, TX16WxTag.MODULATION_SRC_CURVE);
+        writeCurveElement (writer, TX16WxTag.MODULATION_VIA_CURVE);
+        writer.endElement ();
     }
 
 
-    private static void addModulationEntry (final Document document, final Element modulationElement, final String source, final String destination, final String amount)
+    private static void writeCurveElement (final StreamingXMLWriter writer, final String name) throws IOException
     {
-        final Element modulationEntryElement = XMLUtils.addElement (document, modulationElement, TX16WxTag.MODULATION_ENTRY);
-        modulationEntryElement.setAttribute (TX16WxTag.MODULATION_SOURCE, source);
-        modulationEntryElement.setAttribute (TX16WxTag.MODULATION_DESTINATION, destination);
-        modulationEntryElement.setAttribute (TX16WxTag.MODULATION_AMOUNT, amount);
-        final Element modulationSrcCurveElement = XMLUtils.addElement (document, modulationEntryElement, TX16WxTag.MODULATION_SRC_CURVE);
-        modulationSrcCurveElement.setAttribute (TX16WxTag.MODULATION_SMOOTH, "true");
-        modulationSrcCurveElement.setAttribute (TX16WxTag.MODULATION_SHAPE, "Linear");
-        final Element modulationViaCurveElement = XMLUtils.addElement (document, modulationEntryElement, TX16WxTag.MODULATION_VIA_CURVE);
-        modulationViaCurveElement.setAttribute (TX16WxTag.MODULATION_SMOOTH, "true");
-        modulationViaCurveElement.setAttribute (TX16WxTag.MODULATION_SHAPE, "Linear");
+        writer.startElement (name);
+        writer.attribute (TX16WxTag.MODULATION_SMOOTH, "true");
+        writer.attribute (TX16WxTag.MODULATION_SHAPE, "Linear");
+        writer.endElement ();
     }
 
 
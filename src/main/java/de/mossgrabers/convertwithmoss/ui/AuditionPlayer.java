@@ -5,6 +5,7 @@
 package de.mossgrabers.convertwithmoss.ui;
 
 import java.io.IOException;
+import java.util.Optional;
 
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.DataLine;
@@ -18,14 +19,15 @@ import de.mossgrabers.convertwithmoss.core.algorithm.PresetRenderer;
 /**
  * Plays one note of a multi-sample, so that a preset can be listened to before it is converted.
  * Rendering and playing happen on a thread of their own, and starting a new note stops the one
- * which is currently playing.
+ * which is currently playing. The note is written to the audio device block by block while it is
+ * rendered, therefore it starts to sound right away even for very large samples.
  *
  * @author Jürgen Moßgraber
  */
 public class AuditionPlayer
 {
-    /** How many frames are written to the audio device at a time. */
-    private static final int FRAMES_PER_WRITE = 2048;
+    /** How many frames the audio device buffers, which is the latency until a note is heard. */
+    private static final int BUFFERED_FRAMES = 4 * PresetRenderer.BLOCK_FRAMES;
 
     private Thread           playThread;
     private SourceDataLine   line;
@@ -46,9 +48,10 @@ public class AuditionPlayer
     {
         this.stop ();
 
-        final byte [] pcm = PresetRenderer.render (source);
-        if (pcm.length == 0)
+        final Optional<PresetRenderer.Note> noteOpt = PresetRenderer.start (source);
+        if (noteOpt.isEmpty ())
             return false;
+        final PresetRenderer.Note note = noteOpt.get ();
 
         this.isCancelled = false;
         this.isStreaming = true;
@@ -56,7 +59,7 @@ public class AuditionPlayer
 
             // The playing state is cleared before the callback runs, so that it already sees that
             // the note has ended
-            this.stream (pcm);
+            this.stream (note);
             if (!this.isCancelled)
                 whenFinished.run ();
 
@@ -103,22 +106,24 @@ public class AuditionPlayer
 
 
     /**
-     * Write the rendered signal to the audio device.
+     * Render the note block by block and write each block to the audio device.
      *
-     * @param pcm The signal to play
+     * @param note The note to play
      */
-    private void stream (final byte [] pcm)
+    private void stream (final PresetRenderer.Note note)
     {
+        final int frameSize = PresetRenderer.PREVIEW_FORMAT.getFrameSize ();
         final DataLine.Info info = new DataLine.Info (SourceDataLine.class, PresetRenderer.PREVIEW_FORMAT);
-        try (final SourceDataLine sourceLine = (SourceDataLine) AudioSystem.getLine (info))
+        try (note; final SourceDataLine sourceLine = (SourceDataLine) AudioSystem.getLine (info))
         {
-            sourceLine.open (PresetRenderer.PREVIEW_FORMAT);
+            sourceLine.open (PresetRenderer.PREVIEW_FORMAT, BUFFERED_FRAMES * frameSize);
             sourceLine.start ();
             this.line = sourceLine;
 
-            final int blockSize = FRAMES_PER_WRITE * PresetRenderer.PREVIEW_FORMAT.getFrameSize ();
-            for (int offset = 0; offset < pcm.length && !this.isCancelled; offset += blockSize)
-                sourceLine.write (pcm, offset, Math.min (blockSize, pcm.length - offset));
+            final byte [] block = new byte [PresetRenderer.BLOCK_FRAMES * frameSize];
+            int length;
+            while (!this.isCancelled && (length = note.renderBlock (block)) > 0)
+                sourceLine.write (block, 0, length);
             if (!this.isCancelled)
                 sourceLine.drain ();
         }
@@ -126,6 +131,10 @@ public class AuditionPlayer
         {
             // No audio device: auditioning is simply not available, which needs no error dialog
         }
+        catch (final IOException _)
+        {
+            // A sample which cannot be read any further simply ends the note early
+        }
         finally
         {
             this.line = null;
@@ -4,7 +4,10 @@
 
 package de.mossgrabers.convertwithmoss.ui;
 
+import java.util.Arrays;
+
 import de.mossgrabers.convertwithmoss.core.CLIBackend;
+import de.mossgrabers.convertwithmoss.core.ConversionDaemon;
 import de.mossgrabers.tools.ui.DefaultApplication;
 import javafx.application.Application;
 
@@ -23,8 +26,10 @@ public class ConvertWithMossApp
      */
     public static void main (final String [] arguments)
     {
-        // Handle the command line (CLI) or start the user interface
-        if (arguments.length > 0)
+        // Handle the command line (CLI), start the daemon or start the user interface
+        if (arguments.length > 0 && ConversionDaemon.COMMAND.equals (arguments[0]))
+            new ConversionDaemon ().parseCommandLine (Arrays.copyOfRange (arguments, 1, arguments.length));
+        else if (arguments.length > 0)
             new CLIBackend ().parseCommandLine (arguments);
         else
             Application.launch (DefaultApplication.class, MainFrame.class.getName ());
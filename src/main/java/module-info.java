@@ -17,6 +17,7 @@ module de.mossgrabers.convertwithmoss
     requires com.fasterxml.jackson.databind;
     requires javafx.base;
     requires jdk.compiler;
+    requires jdk.jfr;
 
 
     exports de.mossgrabers.convertwithmoss.ui;